@@ -0,0 +1,16 @@
+package com.whatsapp.chatbot.alerts;
+
+import lombok.Value;
+
+/**
+ * One alert message for one subscriber, tagged with the traffic event that caused it
+ */
+@Value
+public class Alert {
+    String phoneNumber;
+    String message;
+    long eventId;
+
+    /** {@link System#nanoTime()} when the triggering event was ingested */
+    long eventNanos;
+}
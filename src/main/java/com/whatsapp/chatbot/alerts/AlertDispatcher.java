@@ -0,0 +1,181 @@
+package com.whatsapp.chatbot.alerts;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drains queued alerts in batches on a single thread, paced by a token bucket
+ * so bursts from a big incident never exceed the messaging rate limit. Each
+ * batch is sent concurrently and awaited before the next, which bounds the
+ * number of requests in flight. When the queue is full new alerts are dropped
+ * rather than blocking the ingest path.
+ */
+@Slf4j
+public final class AlertDispatcher implements Runnable, Closeable {
+
+    private final BlockingQueue<Alert> queue;
+    private final AlertSender sender;
+    private final int batchSize;
+    private final double permitsPerSecond;
+    private final Duration sendTimeout;
+    private volatile boolean running = true;
+
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+    private long lastEventId = -1;
+
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder fanOuts = new LongAdder();
+    private final LongAdder fanOutLatencyNanos = new LongAdder();
+    private final AtomicLong maxFanOutLatencyNanos = new AtomicLong();
+
+    public AlertDispatcher(AlertSender sender, int queueCapacity, int batchSize, double permitsPerSecond,
+                           Duration sendTimeout) {
+        if (queueCapacity < 1 || batchSize < 1 || !(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("Queue capacity, batch size and rate must be positive");
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.sender = sender;
+        this.batchSize = batchSize;
+        this.permitsPerSecond = permitsPerSecond;
+        this.sendTimeout = sendTimeout;
+        this.tokens = Math.min(batchSize, permitsPerSecond);
+    }
+
+    /**
+     * Queue an alert without blocking
+     *
+     * @return false if the queue is full and the alert was dropped
+     */
+    public boolean offer(Alert alert) {
+        if (queue.offer(alert)) {
+            queued.increment();
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    @Override
+    public void run() {
+        List<Alert> batch = new ArrayList<>(batchSize);
+        List<CompletableFuture<?>> inFlight = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Alert first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                for (Alert alert : batch) {
+                    acquirePermit();
+                    if (alert.getEventId() != lastEventId) {
+                        // Queue is FIFO, so this is the first send for the event
+                        lastEventId = alert.getEventId();
+                        recordFanOutLatency(System.nanoTime() - alert.getEventNanos());
+                    }
+                    inFlight.add(send(alert));
+                }
+                CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0]))
+                        .get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (TimeoutException e) {
+                log.warn("Alert batch of {} not confirmed within {} ms", batch.size(), sendTimeout.toMillis());
+            } catch (Exception e) {
+                log.warn("Alert batch failed: {}", e.getMessage());
+            } finally {
+                batch.clear();
+                inFlight.clear();
+            }
+        }
+    }
+
+    private CompletableFuture<?> send(Alert alert) {
+        try {
+            return sender.send(alert.getPhoneNumber(), alert.getMessage())
+                    .doOnSuccess(response -> sent.increment())
+                    .doOnError(error -> {
+                        failed.increment();
+                        log.debug("Alert to {} failed: {}", alert.getPhoneNumber(), error.getMessage());
+                    })
+                    .onErrorResume(error -> Mono.empty())
+                    .toFuture();
+        } catch (RuntimeException e) {
+            failed.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private void acquirePermit() throws InterruptedException {
+        while (true) {
+            long now = System.nanoTime();
+            tokens = Math.min(Math.max(1, batchSize), tokens + (now - lastRefillNanos) * permitsPerSecond / 1e9);
+            lastRefillNanos = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return;
+            }
+            long waitNanos = (long) ((1 - tokens) / permitsPerSecond * 1e9);
+            TimeUnit.NANOSECONDS.sleep(Math.max(waitNanos, 50_000));
+        }
+    }
+
+    private void recordFanOutLatency(long nanos) {
+        fanOuts.increment();
+        fanOutLatencyNanos.add(nanos);
+        maxFanOutLatencyNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public int backlog() {
+        return queue.size();
+    }
+
+    public long queued() {
+        return queued.sum();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public long sent() {
+        return sent.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    public double meanFanOutLatencyMillis() {
+        long count = fanOuts.sum();
+        return count == 0 ? 0.0 : fanOutLatencyNanos.sum() / 1e6 / count;
+    }
+
+    public double maxFanOutLatencyMillis() {
+        return maxFanOutLatencyNanos.get() / 1e6;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+    }
+}
@@ -0,0 +1,12 @@
+package com.whatsapp.chatbot.alerts;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Delivers one alert message, e.g. through the WhatsApp API
+ */
+@FunctionalInterface
+public interface AlertSender {
+
+    Mono<?> send(String phoneNumber, String message);
+}
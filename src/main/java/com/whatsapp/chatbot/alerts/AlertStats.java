@@ -0,0 +1,29 @@
+package com.whatsapp.chatbot.alerts;
+
+import lombok.Value;
+
+/**
+ * Point-in-time counters for traffic alert subscriptions and delivery
+ */
+@Value
+public class AlertStats {
+    int subscribers;
+    long areaSubscriptions;
+    long routeSegmentPostings;
+
+    /** Feed events that had at least one matching subscriber */
+    long matchedEvents;
+
+    /** Alerts skipped because the subscriber was alerted within the cooldown */
+    long suppressed;
+
+    long queued;
+    long dropped;
+    long sent;
+    long failed;
+    int backlog;
+
+    /** Event ingest to first send of that event's alerts */
+    double meanFanOutLatencyMillis;
+    double maxFanOutLatencyMillis;
+}
@@ -0,0 +1,69 @@
+package com.whatsapp.chatbot.alerts;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Fixed key space (areas or road segments) mapping each key to a small,
+ * unordered list of subscriber ids. Lists are allocated on first use.
+ * Not thread-safe.
+ */
+final class IntPostings {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final int[][] lists;
+    private final int[] sizes;
+    private long total;
+
+    IntPostings(int keys) {
+        this.lists = new int[keys][];
+        this.sizes = new int[keys];
+        Arrays.fill(lists, EMPTY);
+    }
+
+    void add(int key, int id) {
+        int size = sizes[key];
+        if (size == lists[key].length) {
+            lists[key] = Arrays.copyOf(lists[key], Math.max(4, size * 2));
+        }
+        lists[key][size] = id;
+        sizes[key] = size + 1;
+        total++;
+    }
+
+    /**
+     * Swap-remove; order within a list is not preserved
+     */
+    void remove(int key, int id) {
+        int[] list = lists[key];
+        int size = sizes[key];
+        for (int i = 0; i < size; i++) {
+            if (list[i] == id) {
+                list[i] = list[size - 1];
+                sizes[key] = size - 1;
+                total--;
+                if (size - 1 == 0) {
+                    lists[key] = EMPTY;
+                }
+                return;
+            }
+        }
+    }
+
+    int size(int key) {
+        return sizes[key];
+    }
+
+    long total() {
+        return total;
+    }
+
+    void forEach(int key, IntConsumer action) {
+        int[] list = lists[key];
+        int size = sizes[key];
+        for (int i = 0; i < size; i++) {
+            action.accept(list[i]);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.whatsapp.chatbot.alerts;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Traffic alert subscriptions indexed by area and by road segment, so the
+ * subscribers affected by an event on a segment are found by two list lookups.
+ *
+ * Each phone number gets a dense subscriber id and may hold one area
+ * subscription and one route subscription (the route's segments). Not
+ * thread-safe; callers serialize access.
+ */
+public final class SubscriptionIndex {
+
+    private static final int[] NO_EDGES = new int[0];
+
+    private final IntPostings areaSubscribers;
+    private final IntPostings segmentSubscribers;
+    private final Map<String, Integer> idsByPhone = new HashMap<>();
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+    private String[] phones = new String[1024];
+    private int[] areaOf = new int[1024];
+    private int[][] routeOf = new int[1024][];
+    private String[] routeLabel = new String[1024];
+    private int nextId;
+
+    public SubscriptionIndex(int areaCount, int segmentCount) {
+        this.areaSubscribers = new IntPostings(areaCount);
+        this.segmentSubscribers = new IntPostings(segmentCount);
+    }
+
+    /**
+     * Subscribe to an area, replacing any previous area subscription
+     */
+    public void subscribeArea(String phoneNumber, int area) {
+        int id = idFor(phoneNumber);
+        if (areaOf[id] >= 0) {
+            areaSubscribers.remove(areaOf[id], id);
+        }
+        areaOf[id] = area;
+        areaSubscribers.add(area, id);
+    }
+
+    /**
+     * Subscribe to the segments of a route, replacing any previous route subscription
+     */
+    public void subscribeRoute(String phoneNumber, int[] edges, String label) {
+        int id = idFor(phoneNumber);
+        removeRoute(id);
+        int[] distinct = Arrays.stream(edges).distinct().toArray();
+        routeOf[id] = distinct;
+        routeLabel[id] = label;
+        for (int edge : distinct) {
+            segmentSubscribers.add(edge, id);
+        }
+    }
+
+    /**
+     * Drop all subscriptions of a phone number
+     *
+     * @return the released subscriber id, or -1 if there was none
+     */
+    public int unsubscribe(String phoneNumber) {
+        Integer id = idsByPhone.remove(phoneNumber);
+        if (id == null) {
+            return -1;
+        }
+        if (areaOf[id] >= 0) {
+            areaSubscribers.remove(areaOf[id], id);
+        }
+        removeRoute(id);
+        phones[id] = null;
+        freeIds.push(id);
+        return id;
+    }
+
+    public boolean isSubscribed(String phoneNumber) {
+        return idsByPhone.containsKey(phoneNumber);
+    }
+
+    public boolean hasAreaSubscribers(int area) {
+        return areaSubscribers.size(area) > 0;
+    }
+
+    public boolean hasSegmentSubscribers(int edge) {
+        return segmentSubscribers.size(edge) > 0;
+    }
+
+    public void forEachAreaSubscriber(int area, IntConsumer action) {
+        areaSubscribers.forEach(area, action);
+    }
+
+    public void forEachSegmentSubscriber(int edge, IntConsumer action) {
+        segmentSubscribers.forEach(edge, action);
+    }
+
+    public String phoneNumber(int id) {
+        return phones[id];
+    }
+
+    public String routeLabel(int id) {
+        return routeLabel[id];
+    }
+
+    /** Upper bound (exclusive) of subscriber ids handed out so far */
+    public int idLimit() {
+        return nextId;
+    }
+
+    public int subscriberCount() {
+        return idsByPhone.size();
+    }
+
+    public long areaSubscriptionCount() {
+        return areaSubscribers.total();
+    }
+
+    public long routeSegmentPostings() {
+        return segmentSubscribers.total();
+    }
+
+    private int idFor(String phoneNumber) {
+        Integer existing = idsByPhone.get(phoneNumber);
+        if (existing != null) {
+            return existing;
+        }
+        int id = freeIds.isEmpty() ? nextId++ : freeIds.pop();
+        if (id == phones.length) {
+            int capacity = id * 2;
+            phones = Arrays.copyOf(phones, capacity);
+            areaOf = Arrays.copyOf(areaOf, capacity);
+            routeOf = Arrays.copyOf(routeOf, capacity);
+            routeLabel = Arrays.copyOf(routeLabel, capacity);
+        }
+        phones[id] = phoneNumber;
+        areaOf[id] = -1;
+        routeOf[id] = NO_EDGES;
+        routeLabel[id] = null;
+        idsByPhone.put(phoneNumber, id);
+        return id;
+    }
+
+    private void removeRoute(int id) {
+        for (int edge : routeOf[id]) {
+            segmentSubscribers.remove(edge, id);
+        }
+        routeOf[id] = NO_EDGES;
+        routeLabel[id] = null;
+    }
+}
@@ -0,0 +1,196 @@
+package com.whatsapp.chatbot.alerts;
+
+import com.whatsapp.chatbot.routing.RoadGraph;
+import com.whatsapp.chatbot.routing.RoutePath;
+import com.whatsapp.chatbot.traffic.TrafficAggregator;
+import com.whatsapp.chatbot.traffic.TrafficEventListener;
+import com.whatsapp.chatbot.traffic.TrafficLevel;
+import com.whatsapp.chatbot.traffic.TrafficReading;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turns feed events into alerts for the subscribers they affect.
+ *
+ * Incidents alert everyone watching the segment or its area. Speed reports
+ * only alert when the segment or area newly turns heavy, so a jam produces
+ * one alert rather than one per report. Matching is two posting-list lookups
+ * per event; events on segments and areas nobody watches return before any
+ * aggregate is read. Each subscriber gets at most one alert per event and one
+ * per cooldown period.
+ */
+public final class TrafficAlertEngine implements TrafficEventListener {
+
+    private static final int MIN_SEGMENT_SAMPLES = 3;
+    private static final int MIN_AREA_SAMPLES = 10;
+    private static final String FOOTER = "\n\nManage alerts from 🚦 Traffic Info → Traffic Alerts.";
+
+    private final TrafficAggregator aggregator;
+    private final RoadGraph graph;
+    private final SubscriptionIndex index;
+    private final AlertDispatcher dispatcher;
+    private final long cooldownMillis;
+
+    private final boolean[] heavySegments;
+    private final boolean[] heavyAreas;
+    private long[] lastAlertAt = new long[1024];
+    private long[] lastAlertEvent = new long[1024];
+    private long nextEventId = 1;
+
+    private final LongAdder matchedEvents = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+
+    public TrafficAlertEngine(TrafficAggregator aggregator, AlertDispatcher dispatcher, long cooldownMillis) {
+        this.aggregator = aggregator;
+        this.graph = aggregator.getGraph();
+        this.index = new SubscriptionIndex(aggregator.areaCount(), graph.edgeCount());
+        this.dispatcher = dispatcher;
+        this.cooldownMillis = cooldownMillis;
+        this.heavySegments = new boolean[graph.edgeCount()];
+        this.heavyAreas = new boolean[aggregator.areaCount()];
+    }
+
+    public synchronized void subscribeArea(String phoneNumber, int area) {
+        index.subscribeArea(phoneNumber, area);
+        ensureCapacity();
+    }
+
+    public synchronized void subscribeRoute(String phoneNumber, RoutePath route, String label) {
+        index.subscribeRoute(phoneNumber, route.getEdges(), label);
+        ensureCapacity();
+    }
+
+    public synchronized void unsubscribe(String phoneNumber) {
+        int id = index.unsubscribe(phoneNumber);
+        if (id >= 0) {
+            // The id may be reused by another subscriber
+            lastAlertAt[id] = 0;
+            lastAlertEvent[id] = 0;
+        }
+    }
+
+    public synchronized boolean isSubscribed(String phoneNumber) {
+        return index.isSubscribed(phoneNumber);
+    }
+
+    @Override
+    public synchronized void onIncident(int edge, int severity, long nowMillis) {
+        int area = aggregator.areaOfEdge(edge);
+        boolean routeWatch = index.hasSegmentSubscribers(edge);
+        boolean areaWatch = area >= 0 && index.hasAreaSubscribers(area);
+        if (!routeWatch && !areaWatch) {
+            return;
+        }
+
+        long eventId = nextEventId++;
+        long eventNanos = System.nanoTime();
+        matchedEvents.increment();
+        String street = streetName(edge);
+        String headline = "⚠️ *Traffic Alert*\n\nIncident reported on " + street + severityNote(severity);
+        if (routeWatch) {
+            index.forEachSegmentSubscriber(edge, id -> alert(id,
+                    headline + " along your route" + labelSuffix(id) + ".\nExpect delays, consider leaving earlier or "
+                            + "planning another route." + FOOTER,
+                    eventId, eventNanos, nowMillis));
+        }
+        if (areaWatch) {
+            String message = headline + " near you.\nExpect delays in the area." + FOOTER;
+            index.forEachAreaSubscriber(area, id -> alert(id, message, eventId, eventNanos, nowMillis));
+        }
+    }
+
+    @Override
+    public synchronized void onSpeedReport(int edge, long nowMillis) {
+        int area = aggregator.areaOfEdge(edge);
+        boolean routeWatch = index.hasSegmentSubscribers(edge);
+        boolean areaWatch = area >= 0 && index.hasAreaSubscribers(area);
+        if (!routeWatch && !areaWatch) {
+            return;
+        }
+
+        if (routeWatch) {
+            TrafficReading reading = aggregator.segment(edge, nowMillis);
+            if (becameHeavy(heavySegments, edge, reading, MIN_SEGMENT_SAMPLES)) {
+                long eventId = nextEventId++;
+                long eventNanos = System.nanoTime();
+                matchedEvents.increment();
+                String prefix = "🚦 *Traffic Alert*\n\nHeavy traffic on " + streetName(edge)
+                        + String.format(" (%.0f km/h)", reading.getAverageSpeedKmh()) + " along your route";
+                index.forEachSegmentSubscriber(edge, id -> alert(id,
+                        prefix + labelSuffix(id) + "." + FOOTER, eventId, eventNanos, nowMillis));
+            }
+        }
+        if (areaWatch) {
+            TrafficReading reading = aggregator.area(area, nowMillis);
+            if (becameHeavy(heavyAreas, area, reading, MIN_AREA_SAMPLES)) {
+                long eventId = nextEventId++;
+                long eventNanos = System.nanoTime();
+                matchedEvents.increment();
+                String message = "🚦 *Traffic Alert*\n\nHeavy traffic near you, vehicles moving at "
+                        + Math.round(reading.getSpeedRatio() * 100) + "% of normal speed." + FOOTER;
+                index.forEachAreaSubscriber(area, id -> alert(id, message, eventId, eventNanos, nowMillis));
+            }
+        }
+    }
+
+    public AlertStats stats() {
+        int subscribers;
+        long areaSubscriptions;
+        long postings;
+        synchronized (this) {
+            subscribers = index.subscriberCount();
+            areaSubscriptions = index.areaSubscriptionCount();
+            postings = index.routeSegmentPostings();
+        }
+        return new AlertStats(subscribers, areaSubscriptions, postings, matchedEvents.sum(), suppressed.sum(),
+                dispatcher.queued(), dispatcher.dropped(), dispatcher.sent(), dispatcher.failed(),
+                dispatcher.backlog(), dispatcher.meanFanOutLatencyMillis(), dispatcher.maxFanOutLatencyMillis());
+    }
+
+    /**
+     * Track heavy/not-heavy per key and report only the transition into heavy
+     */
+    private static boolean becameHeavy(boolean[] state, int key, TrafficReading reading, int minSamples) {
+        boolean heavy = reading.getLevel() == TrafficLevel.HEAVY && reading.getSamples() >= minSamples;
+        boolean transition = heavy && !state[key];
+        state[key] = heavy;
+        return transition;
+    }
+
+    private void alert(int id, String message, long eventId, long eventNanos, long nowMillis) {
+        if (lastAlertEvent[id] == eventId) {
+            return;
+        }
+        lastAlertEvent[id] = eventId;
+        if (lastAlertAt[id] != 0 && nowMillis - lastAlertAt[id] < cooldownMillis) {
+            suppressed.increment();
+            return;
+        }
+        lastAlertAt[id] = nowMillis;
+        dispatcher.offer(new Alert(index.phoneNumber(id), message, eventId, eventNanos));
+    }
+
+    private void ensureCapacity() {
+        int limit = index.idLimit();
+        if (limit > lastAlertAt.length) {
+            int capacity = Math.max(limit, lastAlertAt.length * 2);
+            lastAlertAt = Arrays.copyOf(lastAlertAt, capacity);
+            lastAlertEvent = Arrays.copyOf(lastAlertEvent, capacity);
+        }
+    }
+
+    private String streetName(int edge) {
+        String name = graph.edgeName(edge);
+        return name.isEmpty() ? "a road" : name;
+    }
+
+    private String labelSuffix(int id) {
+        String label = index.routeLabel(id);
+        return label == null ? "" : " (" + label + ")";
+    }
+
+    private static String severityNote(int severity) {
+        return severity >= 4 ? " (major)" : "";
+    }
+}
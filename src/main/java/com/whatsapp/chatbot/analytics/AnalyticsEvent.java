@@ -0,0 +1,18 @@
+package com.whatsapp.chatbot.analytics;
+
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * One raw analytics event: the stream it belongs to (the Firestore
+ * collection it used to be written to), the kind it is counted under
+ * within that stream, and its fields
+ */
+@Value
+public class AnalyticsEvent {
+    String stream;
+    String kind;
+    long timestampMillis;
+    Map<String, Object> data;
+}
@@ -0,0 +1,231 @@
+package com.whatsapp.chatbot.analytics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Folds raw analytics events into per-minute counters by stream and kind,
+ * keeps a random sample of the raw events, and hands both to an
+ * {@link AnalyticsSink} on each flush. A minute is flushed once it has been
+ * over for the grace period, so events recorded a little late still land
+ * in their own minute. At our volume this turns one document per event
+ * into a few counters per minute plus the sample.
+ *
+ * A flushed minute's totals are kept for the late window, so a minute
+ * flushed again for late events carries its whole count as well as the new
+ * events; sinks can then overwrite rather than add, which a retried write
+ * cannot count twice. Events older than the late window are not counted.
+ *
+ * Recording is a counter increment under a shared lock; flushing takes the
+ * lock exclusively only to detach the minutes it writes.
+ */
+@Slf4j
+public final class AnalyticsPipeline implements Closeable {
+
+    private static final long MINUTE_MILLIS = 60_000;
+    private static final String OTHER_KIND = "other";
+    private static final char KEY_SEPARATOR = '\u0000';
+    private static final DateTimeFormatter MINUTE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm'Z'").withZone(ZoneOffset.UTC);
+
+    private final AnalyticsSinkType sinkType;
+    private final AnalyticsSink sink;
+    private final double sampleRate;
+    private final int maxSampled;
+    private final int maxKindsPerMinute;
+    private final long graceMillis;
+    private final long lateWindowMillis;
+
+    /** Minute start to counters keyed by stream and kind */
+    private final Map<Long, Map<String, LongAdder>> minutes = new ConcurrentHashMap<>();
+    private final ReadWriteLock minutesLock = new ReentrantReadWriteLock();
+    private volatile long flushedBefore = Long.MIN_VALUE;
+    /** Minutes before this are past the late window; changed under the write lock */
+    private volatile long countedFrom = Long.MIN_VALUE;
+    /** Totals of flushed minutes still within the late window, touched by flush only */
+    private final Map<Long, Map<String, Long>> flushedTotals = new HashMap<>();
+
+    private final Queue<AnalyticsEvent> samples = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger sampleCount = new AtomicInteger();
+
+    private final LongAdder events = new LongAdder();
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder sampleOverflow = new LongAdder();
+    private final LongAdder kindOverflow = new LongAdder();
+    private final LongAdder lateEvents = new LongAdder();
+    private final LongAdder expiredEvents = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder eventsWritten = new LongAdder();
+    private final LongAdder countersWritten = new LongAdder();
+    private final LongAdder sinkFailures = new LongAdder();
+
+    /**
+     * @param sampleRate share of raw events passed to the sink, from 0 (none) to 1 (all)
+     * @param maxSampled sampled events held between flushes; more are dropped
+     * @param maxKindsPerMinute distinct kinds counted per minute before the rest count as "other"
+     * @param lateWindowMillis how long after a minute is flushed its totals are kept for late events
+     */
+    public AnalyticsPipeline(AnalyticsSinkType sinkType, AnalyticsSink sink, double sampleRate, int maxSampled,
+                             int maxKindsPerMinute, long graceMillis, long lateWindowMillis) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Sample rate must be between 0 and 1");
+        }
+        this.sinkType = sinkType;
+        this.sink = sink;
+        this.sampleRate = sampleRate;
+        this.maxSampled = maxSampled;
+        this.maxKindsPerMinute = maxKindsPerMinute;
+        this.graceMillis = graceMillis;
+        this.lateWindowMillis = lateWindowMillis;
+    }
+
+    /**
+     * Count an event in its minute, and keep it if it is sampled
+     */
+    public void record(AnalyticsEvent event) {
+        events.increment();
+        long minute = Math.floorDiv(event.getTimestampMillis(), MINUTE_MILLIS) * MINUTE_MILLIS;
+        if (minute < flushedBefore) {
+            lateEvents.increment();
+        }
+        String kind = event.getKind() == null ? OTHER_KIND : event.getKind();
+        minutesLock.readLock().lock();
+        try {
+            if (minute < countedFrom) {
+                expiredEvents.increment();
+            } else {
+                count(minute, event.getStream(), kind);
+            }
+        } finally {
+            minutesLock.readLock().unlock();
+        }
+        sample(event);
+    }
+
+    /**
+     * Add one to the minute's counter for the stream and kind; called under the read lock
+     */
+    private void count(long minute, String stream, String kind) {
+        Map<String, LongAdder> counters = minutes.computeIfAbsent(minute, key -> new ConcurrentHashMap<>());
+        String key = stream + KEY_SEPARATOR + kind;
+        LongAdder counter = counters.get(key);
+        if (counter == null) {
+            if (counters.size() >= maxKindsPerMinute) {
+                kindOverflow.increment();
+                key = stream + KEY_SEPARATOR + OTHER_KIND;
+            }
+            counter = counters.computeIfAbsent(key, ignored -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    private void sample(AnalyticsEvent event) {
+        if (sampleRate > 0 && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            if (sampleCount.incrementAndGet() > maxSampled) {
+                sampleCount.decrementAndGet();
+                sampleOverflow.increment();
+                return;
+            }
+            Map<String, Object> data = new HashMap<>(event.getData());
+            data.put("sampleRate", sampleRate);
+            samples.add(new AnalyticsEvent(event.getStream(), event.getKind(), event.getTimestampMillis(), data));
+            sampled.increment();
+        }
+    }
+
+    /**
+     * Write the minutes that ended at least the grace period before now, and the sample so far
+     *
+     * @param all write every minute, including the current one, as on shutdown
+     */
+    public synchronized void flush(long nowMillis, boolean all) {
+        List<Map.Entry<Long, Map<String, LongAdder>>> closed = new ArrayList<>();
+        long cutoff = all ? Long.MAX_VALUE : nowMillis - graceMillis - MINUTE_MILLIS;
+        minutesLock.writeLock().lock();
+        try {
+            for (Iterator<Map.Entry<Long, Map<String, LongAdder>>> it = minutes.entrySet().iterator();
+                 it.hasNext(); ) {
+                Map.Entry<Long, Map<String, LongAdder>> minute = it.next();
+                if (minute.getKey() <= cutoff) {
+                    closed.add(minute);
+                    it.remove();
+                }
+            }
+            if (!all) {
+                long lastClosed = Math.floorDiv(cutoff, MINUTE_MILLIS) * MINUTE_MILLIS;
+                flushedBefore = Math.max(flushedBefore, lastClosed + MINUTE_MILLIS);
+                countedFrom = Math.max(countedFrom, flushedBefore - lateWindowMillis);
+            }
+        } finally {
+            minutesLock.writeLock().unlock();
+        }
+
+        List<MinuteCounter> counters = new ArrayList<>();
+        for (Map.Entry<Long, Map<String, LongAdder>> minute : closed) {
+            String label = MINUTE_FORMAT.format(Instant.ofEpochMilli(minute.getKey()));
+            Map<String, Long> totals = flushedTotals.computeIfAbsent(minute.getKey(), key -> new HashMap<>());
+            for (Map.Entry<String, LongAdder> counter : minute.getValue().entrySet()) {
+                int separator = counter.getKey().indexOf(KEY_SEPARATOR);
+                long count = counter.getValue().sum();
+                counters.add(new MinuteCounter(counter.getKey().substring(0, separator),
+                        counter.getKey().substring(separator + 1), label, minute.getKey(), count,
+                        totals.merge(counter.getKey(), count, Long::sum)));
+            }
+        }
+        // Only after the totals above: minutes closed just now were recorded while they were still counted
+        flushedTotals.keySet().removeIf(minute -> minute < countedFrom);
+        List<AnalyticsEvent> sample = new ArrayList<>();
+        AnalyticsEvent event;
+        while ((event = samples.poll()) != null) {
+            sampleCount.decrementAndGet();
+            sample.add(event);
+        }
+        if (counters.isEmpty() && sample.isEmpty()) {
+            return;
+        }
+
+        flushes.increment();
+        try {
+            sink.write(sample, counters);
+            eventsWritten.add(sample.size());
+            countersWritten.add(counters.size());
+        } catch (IOException | RuntimeException e) {
+            sinkFailures.increment();
+            log.error("Analytics sink {} failed, lost {} counters and {} sampled events: {}", sinkType,
+                    counters.size(), sample.size(), e.getMessage());
+        }
+    }
+
+    public AnalyticsStats stats() {
+        return new AnalyticsStats(sinkType, sampleRate, events.sum(), sampled.sum(), sampleOverflow.sum(),
+                kindOverflow.sum(), lateEvents.sum(), expiredEvents.sum(), minutes.size(), flushes.sum(),
+                eventsWritten.sum(), countersWritten.sum(), sinkFailures.sum());
+    }
+
+    /**
+     * Flush everything and close the sink
+     */
+    @Override
+    public void close() throws IOException {
+        flush(System.currentTimeMillis(), true);
+        sink.close();
+    }
+}
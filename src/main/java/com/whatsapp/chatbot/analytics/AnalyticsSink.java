@@ -0,0 +1,19 @@
+package com.whatsapp.chatbot.analytics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where aggregated analytics go: the per-minute counters of closed minutes
+ * and the raw events that were sampled. Called from a single flushing
+ * thread.
+ */
+public interface AnalyticsSink extends Closeable {
+
+    void write(List<AnalyticsEvent> sampled, List<MinuteCounter> counters) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,13 @@
+package com.whatsapp.chatbot.analytics;
+
+/**
+ * Which {@link AnalyticsSink} the application writes analytics to
+ */
+public enum AnalyticsSinkType {
+    /** Documents in Firestore, through the Firestore spool or writer */
+    FIRESTORE,
+    /** Rolling hourly NDJSON files on local disk */
+    NDJSON,
+    /** Aggregate and count, but write nothing */
+    NONE
+}
@@ -0,0 +1,35 @@
+package com.whatsapp.chatbot.analytics;
+
+import lombok.Value;
+
+/**
+ * Point-in-time counters for the analytics pipeline. Documents or lines
+ * written is sampled events plus counters; the ratio of events to that is
+ * the saving over writing every event.
+ */
+@Value
+public class AnalyticsStats {
+    AnalyticsSinkType sink;
+    double sampleRate;
+
+    long events;
+    long sampled;
+
+    /** Sampled events dropped because the buffer was full before a flush */
+    long sampleOverflow;
+
+    /** Events counted under "other" because their minute had too many kinds */
+    long kindOverflow;
+
+    /** Events for a minute that had already been flushed */
+    long lateEvents;
+
+    /** Events for a minute past the late window, sampled but not counted */
+    long expiredEvents;
+
+    int openMinutes;
+    long flushes;
+    long eventsWritten;
+    long countersWritten;
+    long sinkFailures;
+}
@@ -0,0 +1,51 @@
+package com.whatsapp.chatbot.analytics;
+
+import com.whatsapp.chatbot.firestore.FirestoreWrite;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Writes sampled events to their stream's collection as before, one
+ * document each, and each stream, kind and minute as one document in
+ * {@value #COUNTER_COLLECTION}, with the id {@code stream_kind_minute}; a
+ * minute flushed again for late events overwrites its document with the
+ * new total, so a write retried after an ambiguous failure cannot count
+ * twice. Writes are handed to the Firestore write path, which queues or
+ * spools them in order.
+ */
+public final class FirestoreAnalyticsSink implements AnalyticsSink {
+
+    public static final String COUNTER_COLLECTION = "analytics_minutes";
+
+    private final Consumer<FirestoreWrite> writes;
+
+    public FirestoreAnalyticsSink(Consumer<FirestoreWrite> writes) {
+        this.writes = writes;
+    }
+
+    @Override
+    public void write(List<AnalyticsEvent> sampled, List<MinuteCounter> counters) {
+        for (AnalyticsEvent event : sampled) {
+            writes.accept(FirestoreWrite.add(event.getStream(), event.getData()));
+        }
+        for (MinuteCounter counter : counters) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("stream", counter.getStream());
+            data.put("kind", counter.getKind());
+            data.put("minute", counter.getMinute());
+            data.put("minuteMillis", counter.getMinuteMillis());
+            data.put("count", counter.getTotal());
+            writes.accept(FirestoreWrite.set(COUNTER_COLLECTION, documentId(counter), data));
+        }
+    }
+
+    /**
+     * The counter's document id; a slash would make it a path, so it is replaced
+     */
+    static String documentId(MinuteCounter counter) {
+        return (counter.getStream() + "_" + counter.getKind() + "_" + counter.getMinute()).replace('/', '-');
+    }
+}
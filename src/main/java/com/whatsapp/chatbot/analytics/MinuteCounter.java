@@ -0,0 +1,20 @@
+package com.whatsapp.chatbot.analytics;
+
+import lombok.Value;
+
+/**
+ * Events of one stream and kind within one UTC minute. A minute that gets
+ * late events after it was flushed is flushed again: count is just those,
+ * so readers of counters sum them by minute, stream and kind, while total
+ * is the minute's whole count so far, for sinks that overwrite.
+ */
+@Value
+public class MinuteCounter {
+    String stream;
+    String kind;
+    /** ISO-8601, e.g. 2024-05-01T10:15Z */
+    String minute;
+    long minuteMillis;
+    long count;
+    long total;
+}
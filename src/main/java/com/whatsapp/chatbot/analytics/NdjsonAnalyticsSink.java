@@ -0,0 +1,79 @@
+package com.whatsapp.chatbot.analytics;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends analytics to rolling NDJSON files on local disk, one pair per
+ * UTC hour: events-2024-05-01T10.ndjson holds the sampled events (stream,
+ * kind and timestamp next to their fields), counters-2024-05-01T10.ndjson
+ * the minute counters. Works without any network, and the files load
+ * straight into most query engines.
+ */
+public final class NdjsonAnalyticsSink implements AnalyticsSink {
+
+    private static final DateTimeFormatter HOUR_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH").withZone(ZoneOffset.UTC);
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final Path directory;
+    private final Clock clock;
+
+    public NdjsonAnalyticsSink(Path directory, Clock clock) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.clock = clock;
+    }
+
+    @Override
+    public void write(List<AnalyticsEvent> sampled, List<MinuteCounter> counters) throws IOException {
+        String hour = HOUR_FORMAT.format(clock.instant());
+        if (!sampled.isEmpty()) {
+            try (JsonGenerator out = open("events-" + hour + ".ndjson")) {
+                for (AnalyticsEvent event : sampled) {
+                    out.writeStartObject();
+                    out.writeStringField("stream", event.getStream());
+                    out.writeStringField("kind", event.getKind());
+                    out.writeNumberField("timestampMillis", event.getTimestampMillis());
+                    for (Map.Entry<String, Object> field : event.getData().entrySet()) {
+                        out.writeFieldName(field.getKey());
+                        out.writeObject(field.getValue());
+                    }
+                    out.writeEndObject();
+                }
+                out.writeRaw('\n');
+            }
+        }
+        if (!counters.isEmpty()) {
+            try (JsonGenerator out = open("counters-" + hour + ".ndjson")) {
+                for (MinuteCounter counter : counters) {
+                    out.writeObject(counter);
+                }
+                out.writeRaw('\n');
+            }
+        }
+    }
+
+    private JsonGenerator open(String name) throws IOException {
+        OutputStream file = new BufferedOutputStream(Files.newOutputStream(directory.resolve(name),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024);
+        JsonGenerator generator = JSON.getFactory().createGenerator(file, JsonEncoding.UTF8);
+        // One object per line; the caller ends the last line
+        generator.setRootValueSeparator(new SerializedString("\n"));
+        return generator;
+    }
+}
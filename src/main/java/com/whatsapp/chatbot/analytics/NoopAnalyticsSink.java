@@ -0,0 +1,14 @@
+package com.whatsapp.chatbot.analytics;
+
+import java.util.List;
+
+/**
+ * Discards everything, for running without any analytics store
+ */
+public final class NoopAnalyticsSink implements AnalyticsSink {
+
+    @Override
+    public void write(List<AnalyticsEvent> sampled, List<MinuteCounter> counters) {
+        // Nothing to do: the pipeline's own stats still count the events
+    }
+}
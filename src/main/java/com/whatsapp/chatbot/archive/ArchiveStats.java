@@ -0,0 +1,26 @@
+package com.whatsapp.chatbot.archive;
+
+import lombok.Value;
+
+/**
+ * Point-in-time counters for the message archive and its tiering job
+ */
+@Value
+public class ArchiveStats {
+    int segments;
+    long partitions;
+    long rows;
+    long sizeBytes;
+
+    /** Column bytes before compression */
+    long rawBytes;
+
+    long runs;
+    long archivedRows;
+    long lastRunMillis;
+    long failedRuns;
+
+    public double getCompressionRatio() {
+        return sizeBytes == 0 ? 0.0 : (double) rawBytes / sizeBytes;
+    }
+}
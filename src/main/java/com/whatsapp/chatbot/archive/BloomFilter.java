@@ -0,0 +1,76 @@
+package com.whatsapp.chatbot.archive;
+
+/**
+ * Fixed-size Bloom filter over strings, used to skip segments that cannot
+ * contain a phone number. Positions come from double hashing one 64-bit hash.
+ */
+final class BloomFilter {
+
+    private final long[] words;
+    private final int hashes;
+
+    private BloomFilter(long[] words, int hashes) {
+        this.words = words;
+        this.hashes = hashes;
+    }
+
+    static BloomFilter create(int expectedKeys, int bitsPerKey) {
+        int wordCount = Math.max(1, (int) ((Math.max(1L, expectedKeys) * bitsPerKey + 63) / 64));
+        int hashes = Math.max(1, Math.min(16, (int) Math.round(bitsPerKey * Math.log(2))));
+        return new BloomFilter(new long[wordCount], hashes);
+    }
+
+    static BloomFilter of(long[] words, int hashes) {
+        return new BloomFilter(words, hashes);
+    }
+
+    void add(String key) {
+        long hash = hash(key);
+        long bitCount = (long) words.length * 64;
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain(String key) {
+        long hash = hash(key);
+        long bitCount = (long) words.length * 64;
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long[] words() {
+        return words;
+    }
+
+    int hashes() {
+        return hashes;
+    }
+
+    /**
+     * FNV-1a over the chars, finished with the MurmurHash3 mixer so both halves are well spread
+     */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,130 @@
+package com.whatsapp.chatbot.archive;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a column written by {@link ColumnWriter} from its inflated bytes
+ */
+final class ColumnReader {
+
+    private final byte[] data;
+    private int position;
+
+    private ColumnReader(byte[] data) {
+        this.data = data;
+    }
+
+    static ColumnReader inflate(byte[] compressed, int rawLength) throws IOException {
+        return inflate(compressed, 0, compressed.length, rawLength);
+    }
+
+    static ColumnReader inflate(byte[] compressed, int offset, int length, int rawLength) throws IOException {
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed, offset, length);
+            int read = 0;
+            while (read < rawLength) {
+                int n = inflater.inflate(raw, read, rawLength - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != rawLength) {
+                throw new IOException("Truncated column: " + read + " of " + rawLength + " bytes");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt column", e);
+        } finally {
+            inflater.end();
+        }
+        return new ColumnReader(raw);
+    }
+
+    long readVarLong() {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    long readZigZag() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    String readString() {
+        int length = (int) readVarLong();
+        if (length == 0) {
+            return null;
+        }
+        String value = new String(data, position, length - 1, StandardCharsets.UTF_8);
+        position += length - 1;
+        return value;
+    }
+
+    void skipString() {
+        int length = (int) readVarLong();
+        if (length > 0) {
+            position += length - 1;
+        }
+    }
+
+    /**
+     * Positions of the dictionary entries indexed by code, so entries are
+     * only turned into strings when used; entry 0 (null) is -1
+     */
+    int[] readDictionaryOffsets() {
+        int size = (int) readVarLong();
+        int[] offsets = new int[size + 1];
+        offsets[0] = -1;
+        for (int code = 1; code <= size; code++) {
+            offsets[code] = position;
+            skipString();
+        }
+        return offsets;
+    }
+
+    String stringAt(int offset) {
+        if (offset < 0) {
+            return null;
+        }
+        int saved = position;
+        position = offset;
+        String value = readString();
+        position = saved;
+        return value;
+    }
+
+    /**
+     * Whether the string at the offset has exactly these UTF-8 bytes
+     */
+    boolean equalsAt(int offset, byte[] value) {
+        int saved = position;
+        position = offset;
+        int length = (int) readVarLong() - 1;
+        int start = position;
+        position = saved;
+        return length == value.length
+                && Arrays.equals(data, start, start + length, value, 0, value.length);
+    }
+
+    int[] readCodes(int rows) {
+        int[] codes = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            codes[i] = (int) readVarLong();
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,102 @@
+package com.whatsapp.chatbot.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes one column into a growable buffer: varints, length-prefixed
+ * strings and dictionary-encoded string columns, then deflates the result
+ */
+final class ColumnWriter {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+
+    void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    void writeZigZag(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Length + 1 then UTF-8 bytes; a length of zero means null
+     */
+    void writeString(String value) {
+        if (value == null) {
+            writeVarLong(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length + 1L);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Distinct values in first-seen order, then one varint code per row
+     */
+    <T> void writeDictionary(List<T> rows, Function<T, String> column) {
+        Map<String, Integer> codes = new HashMap<>();
+        String[] dictionary = new String[16];
+        int[] rowCodes = new int[rows.size()];
+        boolean sawNull = false;
+        for (int i = 0; i < rows.size(); i++) {
+            String value = column.apply(rows.get(i));
+            if (value == null) {
+                // Code 0 is reserved for null
+                rowCodes[i] = 0;
+                sawNull = true;
+                continue;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = codes.size() + 1;
+                codes.put(value, code);
+                if (code >= dictionary.length) {
+                    dictionary = Arrays.copyOf(dictionary, dictionary.length * 2);
+                }
+                dictionary[code] = value;
+            }
+            rowCodes[i] = code;
+        }
+        writeVarLong(codes.size());
+        for (int code = 1; code <= codes.size(); code++) {
+            writeString(dictionary[code]);
+        }
+        for (int code : rowCodes) {
+            writeVarLong(code);
+        }
+    }
+
+    int rawLength() {
+        return out.size();
+    }
+
+    byte[] compress() {
+        byte[] raw = out.toByteArray();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] chunk = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                compressed.write(chunk, 0, n);
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package com.whatsapp.chatbot.archive;
+
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongConsumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Date-partitioned archive of messages in immutable {@link Segment} files:
+ * one directory per day, one or more segments per directory. Segment
+ * headers are kept in memory, newest first, so a history query only opens
+ * the segments whose time range and Bloom filter allow a match.
+ *
+ * Moving rows out of the database is two steps, write then delete, so the
+ * archive keeps a committed sequence number. Segments above it may still
+ * have their rows in the database; readers tolerate the overlap by message
+ * id and the caller finishes the delete and commits.
+ *
+ * Retention drops whole segments past its cutoff, or rewrites them (one
+ * merged segment per day) when rows are anonymized rather than deleted. A
+ * rewrite stages the new segment and a manifest naming the segments it
+ * replaces, so a crash part way is completed when the archive is reopened.
+ * Readers pin the segment list they started with, and the files of segments
+ * dropped or replaced meanwhile are deleted only once those reads close.
+ */
+@Slf4j
+public final class MessageArchive {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String COMMITTED_FILE = "COMMITTED";
+    private static final String REWRITE_SUFFIX = ".rewrite";
+    private static final String REWRITE_MANIFEST_PREFIX = "REWRITE-";
+
+    private static final Comparator<Segment> NEWEST_FIRST =
+            Comparator.comparingLong(Segment::getMaxMicros).reversed().thenComparing(Segment::getSequence);
+
+    private final Path directory;
+    private final int bloomBitsPerKey;
+    private volatile List<Segment> segments;
+    private long nextSequence;
+    private long committedSequence;
+
+    private final Object readLock = new Object();
+    /** Bumped with every change to the segment list; guarded by readLock */
+    private long generation;
+    /** Open reads by the generation of the segment list they pinned; guarded by readLock */
+    private final TreeMap<Long, Integer> openReads = new TreeMap<>();
+    /** Files of removed segments, oldest removal first; guarded by readLock */
+    private final ArrayDeque<PendingDelete> pendingDeletes = new ArrayDeque<>();
+
+    private MessageArchive(Path directory, int bloomBitsPerKey, List<Segment> segments, long committedSequence) {
+        this.directory = directory;
+        this.bloomBitsPerKey = bloomBitsPerKey;
+        this.segments = segments;
+        this.committedSequence = committedSequence;
+        this.nextSequence = segments.stream().mapToLong(Segment::getSequence).max().orElse(committedSequence) + 1;
+    }
+
+    /**
+     * Open (or create) the archive under a directory, reading every segment header
+     */
+    public static MessageArchive open(Path directory, int bloomBitsPerKey) throws IOException {
+        Files.createDirectories(directory);
+        completeRewrites(directory);
+        List<Segment> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(".tmp") || name.endsWith(REWRITE_SUFFIX)) {
+                    // Left behind by a crash mid-write: a new segment's rows are still in the
+                    // database, a staged rewrite never got its manifest and replaces nothing
+                    Files.deleteIfExists(path);
+                } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.add(Segment.open(path));
+                }
+            }
+        }
+        segments.sort(NEWEST_FIRST);
+
+        long committed = 0;
+        Path committedFile = directory.resolve(COMMITTED_FILE);
+        if (Files.exists(committedFile)) {
+            committed = Long.parseLong(Files.readString(committedFile, StandardCharsets.UTF_8).trim());
+        }
+        return new MessageArchive(directory, bloomBitsPerKey, List.copyOf(segments), committed);
+    }
+
+    /**
+     * Write messages as new segments, one per day, and make them visible to readers
+     */
+    public synchronized List<Segment> append(List<WhatsAppMessage> messages) throws IOException {
+        deleteUnread();
+        Map<LocalDate, List<WhatsAppMessage>> byDay = new TreeMap<>();
+        for (WhatsAppMessage message : messages) {
+            byDay.computeIfAbsent(message.getTimestamp().toLocalDate(), day -> new ArrayList<>()).add(message);
+        }
+
+        List<Segment> written = new ArrayList<>();
+        for (Map.Entry<LocalDate, List<WhatsAppMessage>> day : byDay.entrySet()) {
+            long sequence = nextSequence++;
+            Path path = directory.resolve(day.getKey().toString())
+                    .resolve(String.format("segment-%012d%s", sequence, SEGMENT_SUFFIX));
+            written.add(Segment.write(path, sequence, day.getValue(), bloomBitsPerKey));
+        }
+
+        List<Segment> updated = new ArrayList<>(segments);
+        updated.addAll(written);
+        updated.sort(NEWEST_FIRST);
+        publish(updated);
+        return written;
+    }
+
+    /**
+     * Messages to or from a number older than the (before, beforeId) cursor, newest first
+     */
+    public List<WhatsAppMessage> history(String phoneNumber, LocalDateTime before, long beforeId, int limit)
+            throws IOException {
+        long beforeMicros = Segment.toMicros(before);
+        List<WhatsAppMessage> found = new ArrayList<>();
+        try (Read read = openRead()) {
+            for (Segment segment : read.getSegments()) {
+                if (found.size() >= limit
+                        && segment.getMaxMicros() < Segment.toMicros(found.get(limit - 1).getTimestamp())) {
+                    // Segments are newest first: nothing further on can make the page
+                    break;
+                }
+                if (segment.getMinMicros() > beforeMicros || !segment.mightContain(phoneNumber)) {
+                    continue;
+                }
+                segment.collect(phoneNumber, beforeMicros, beforeId, limit, found);
+                found.sort(Comparator.comparing(WhatsAppMessage::getTimestamp)
+                        .thenComparing(WhatsAppMessage::getId).reversed());
+                if (found.size() > limit) {
+                    found.subList(limit, found.size()).clear();
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Pin the current segments for reading: their files stay on disk until
+     * the read is closed, even if retention drops or replaces them meanwhile
+     */
+    public Read openRead() {
+        synchronized (readLock) {
+            openReads.merge(generation, 1, Integer::sum);
+            return new Read(generation, segments);
+        }
+    }
+
+    /**
+     * Segments written but not yet committed, oldest first
+     */
+    public synchronized List<Segment> uncommitted() {
+        return segments.stream()
+                .filter(segment -> segment.getSequence() > committedSequence)
+                .sorted(Comparator.comparingLong(Segment::getSequence))
+                .toList();
+    }
+
+    /**
+     * Record that every segment up to this sequence has had its rows removed from the database
+     */
+    public synchronized void commit(long sequence) throws IOException {
+        if (sequence <= committedSequence) {
+            return;
+        }
+        Path file = directory.resolve(COMMITTED_FILE);
+        Path temporary = directory.resolve(COMMITTED_FILE + ".tmp");
+        Files.writeString(temporary, Long.toString(sequence), StandardCharsets.UTF_8);
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        committedSequence = sequence;
+    }
+
+    /**
+     * Remove committed segments holding only messages before the cutoff
+     *
+     * @param dropped told the id of every message removed, before its segment goes
+     * @return the number of messages removed
+     */
+    public synchronized long dropBefore(LocalDateTime cutoff, LongConsumer dropped) throws IOException {
+        deleteUnread();
+        long cutoffMicros = Segment.toMicros(cutoff);
+        List<Segment> expired = segments.stream()
+                .filter(segment -> segment.getSequence() <= committedSequence && segment.getMaxMicros() < cutoffMicros)
+                .toList();
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        List<Segment> kept = new ArrayList<>(segments);
+        kept.removeAll(expired);
+        publish(kept);
+        long rows = 0;
+        for (Segment segment : expired) {
+            for (long id : segment.ids()) {
+                dropped.accept(id);
+            }
+            rows += segment.getRows();
+            deleteAfterReads(List.of(segment.getPath()), segment.getPath().getParent());
+        }
+        deleteUnread();
+        return rows;
+    }
+
+    /**
+     * Rewrite committed segments whose newest message falls in [from, cutoff),
+     * passing every message through rewrite and merging each day's segments
+     * into one. Does nothing while segments await their commit.
+     *
+     * @return the number of messages rewritten
+     */
+    public synchronized long rewriteBetween(LocalDateTime from, LocalDateTime cutoff,
+                                            UnaryOperator<WhatsAppMessage> rewrite) throws IOException {
+        deleteUnread();
+        if (!uncommitted().isEmpty()) {
+            return 0;
+        }
+        long fromMicros = Segment.toMicros(from);
+        long cutoffMicros = Segment.toMicros(cutoff);
+        Map<Path, List<Segment>> byDay = new TreeMap<>();
+        for (Segment segment : segments) {
+            if (segment.getMaxMicros() >= fromMicros && segment.getMaxMicros() < cutoffMicros) {
+                byDay.computeIfAbsent(segment.getPath().getParent(), day -> new ArrayList<>()).add(segment);
+            }
+        }
+
+        long rewritten = 0;
+        for (Map.Entry<Path, List<Segment>> day : byDay.entrySet()) {
+            List<WhatsAppMessage> messages = new ArrayList<>();
+            for (Segment segment : day.getValue()) {
+                segment.readAll().forEach(message -> messages.add(rewrite.apply(message)));
+            }
+            long sequence = nextSequence++;
+            Path target = day.getKey().resolve(String.format("segment-%012d%s", sequence, SEGMENT_SUFFIX));
+            Path staged = target.resolveSibling(target.getFileName() + REWRITE_SUFFIX);
+            Segment.write(staged, sequence, messages, bloomBitsPerKey);
+
+            // From here on a crash is completed on reopen: the manifest names what the new segment replaces
+            Path manifest = day.getKey().resolve(REWRITE_MANIFEST_PREFIX + sequence);
+            Path manifestTemporary = manifest.resolveSibling(manifest.getFileName() + ".tmp");
+            Files.write(manifestTemporary, day.getValue().stream()
+                    .map(segment -> segment.getPath().getFileName().toString()).toList(), StandardCharsets.UTF_8);
+            Files.move(manifestTemporary, manifest, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE);
+
+            List<Segment> updated = new ArrayList<>(segments);
+            updated.removeAll(day.getValue());
+            updated.add(Segment.open(target));
+            updated.sort(NEWEST_FIRST);
+            publish(updated);
+            // The manifest goes last, so a crash before the replaced segments are deleted still completes
+            List<Path> obsolete = new ArrayList<>();
+            day.getValue().forEach(replaced -> obsolete.add(replaced.getPath()));
+            obsolete.add(manifest);
+            deleteAfterReads(obsolete, null);
+            commit(sequence);
+            rewritten += messages.size();
+        }
+        deleteUnread();
+        return rewritten;
+    }
+
+    public List<Segment> getSegments() {
+        return segments;
+    }
+
+    public long getRows() {
+        return segments.stream().mapToLong(Segment::getRows).sum();
+    }
+
+    public long getSizeBytes() {
+        return segments.stream().mapToLong(Segment::getSizeBytes).sum();
+    }
+
+    public long getRawBytes() {
+        return segments.stream().mapToLong(Segment::getRawBytes).sum();
+    }
+
+    public long getPartitions() {
+        return segments.stream().map(segment -> segment.getPath().getParent()).distinct().count();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private void publish(List<Segment> updated) {
+        synchronized (readLock) {
+            segments = List.copyOf(updated);
+            generation++;
+        }
+    }
+
+    /**
+     * Delete files of segments just removed from the list once no open read can still see them
+     *
+     * @param emptyDirectory also removed if the deletes leave it empty; may be null
+     */
+    private void deleteAfterReads(List<Path> files, Path emptyDirectory) {
+        synchronized (readLock) {
+            pendingDeletes.addLast(new PendingDelete(generation, files, emptyDirectory));
+        }
+    }
+
+    /**
+     * Delete what no open read can still see; runs under the archive lock so
+     * it never races a write into the same day directory
+     */
+    private void deleteUnread() {
+        List<PendingDelete> ready = new ArrayList<>();
+        synchronized (readLock) {
+            long oldestRead = openReads.isEmpty() ? Long.MAX_VALUE : openReads.firstKey();
+            while (!pendingDeletes.isEmpty() && pendingDeletes.peekFirst().generation <= oldestRead) {
+                ready.add(pendingDeletes.pollFirst());
+            }
+        }
+        for (PendingDelete delete : ready) {
+            try {
+                for (Path file : delete.files) {
+                    Files.deleteIfExists(file);
+                }
+                if (delete.emptyDirectory != null) {
+                    deleteIfEmpty(delete.emptyDirectory);
+                }
+            } catch (IOException e) {
+                // Dropped segments reappear on reopen and are dropped again; rewrites finish from the manifest
+                log.warn("Could not delete removed archive files {}: {}", delete.files, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Finish rewrites interrupted by a crash: move the staged segment into
+     * place if it is still staged, then delete the segments it replaces
+     */
+    private static void completeRewrites(Path directory) throws IOException {
+        List<Path> manifests;
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            manifests = files.filter(path -> path.getFileName().toString().startsWith(REWRITE_MANIFEST_PREFIX)
+                    && !path.getFileName().toString().endsWith(".tmp")).toList();
+        }
+        for (Path manifest : manifests) {
+            long sequence = Long.parseLong(manifest.getFileName().toString().substring(REWRITE_MANIFEST_PREFIX.length()));
+            Path target = manifest.resolveSibling(String.format("segment-%012d%s", sequence, SEGMENT_SUFFIX));
+            Path staged = target.resolveSibling(target.getFileName() + REWRITE_SUFFIX);
+            if (Files.exists(staged)) {
+                Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            for (String replaced : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                if (!replaced.isBlank()) {
+                    Files.deleteIfExists(manifest.resolveSibling(replaced));
+                }
+            }
+            Files.delete(manifest);
+            log.warn("Completed interrupted archive rewrite {}", target);
+        }
+    }
+
+    private static void deleteIfEmpty(Path day) throws IOException {
+        try (Stream<Path> entries = Files.list(day)) {
+            if (entries.findAny().isEmpty()) {
+                Files.deleteIfExists(day);
+            }
+        }
+    }
+
+    /**
+     * The segment list as it was when the read was opened
+     */
+    public final class Read implements AutoCloseable {
+
+        private final long readGeneration;
+        private final List<Segment> readSegments;
+        private boolean closed;
+
+        private Read(long readGeneration, List<Segment> readSegments) {
+            this.readGeneration = readGeneration;
+            this.readSegments = readSegments;
+        }
+
+        public List<Segment> getSegments() {
+            return readSegments;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            synchronized (readLock) {
+                openReads.computeIfPresent(readGeneration, (generation, reads) -> reads == 1 ? null : reads - 1);
+            }
+        }
+    }
+
+    private static final class PendingDelete {
+        final long generation;
+        final List<Path> files;
+        final Path emptyDirectory;
+
+        PendingDelete(long generation, List<Path> files, Path emptyDirectory) {
+            this.generation = generation;
+            this.files = files;
+            this.emptyDirectory = emptyDirectory;
+        }
+    }
+}
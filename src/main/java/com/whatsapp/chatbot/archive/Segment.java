@@ -0,0 +1,553 @@
+package com.whatsapp.chatbot.archive;
+
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An immutable archive file of messages stored column by column, each
+ * column deflated separately. Numbers, types, statuses, directions and
+ * conversation ids are dictionary encoded; ids and timestamps are delta
+ * encoded varints. Rows are sorted by (timestamp, id). The message id and
+ * text columns, which are most of the bytes, are deflated in blocks of
+ * {@value #BLOCK_ROWS} rows so a lookup only inflates the blocks it hits.
+ *
+ * The header carries the row count, min/max timestamp and id, and a Bloom
+ * filter of every from/to number, so the archive can rule a segment out for
+ * a history query without reading any column.
+ *
+ * Layout: magic, sequence, rows, min/max timestamp (epoch micros), min/max
+ * id, Bloom filter, then (offset, compressed length, raw length) for each
+ * column, then the columns.
+ */
+public final class Segment {
+
+    private static final long MAGIC = 0x57414D5345473031L; // "WAMSEG01"
+
+    private static final int ID = 0;
+    private static final int TIMESTAMP = 1;
+    private static final int MESSAGE_ID = 2;
+    private static final int FROM = 3;
+    private static final int TO = 4;
+    private static final int TEXT = 5;
+    private static final int TYPE = 6;
+    private static final int STATUS = 7;
+    private static final int DIRECTION = 8;
+    private static final int CONVERSATION = 9;
+    private static final int COLUMNS = 10;
+    private static final int BLOCK_ROWS = 1_024;
+
+    private static final Comparator<WhatsAppMessage> ORDER =
+            Comparator.comparing(WhatsAppMessage::getTimestamp).thenComparing(WhatsAppMessage::getId);
+
+    private final Path path;
+    private final long sequence;
+    private final int rows;
+    private final long minMicros;
+    private final long maxMicros;
+    private final long minId;
+    private final long maxId;
+    private final BloomFilter numbers;
+    private final long[] offsets;
+    private final int[] compressedLengths;
+    private final int[] rawLengths;
+    private final long sizeBytes;
+
+    private Segment(Path path, long sequence, int rows, long minMicros, long maxMicros, long minId, long maxId,
+                    BloomFilter numbers, long[] offsets, int[] compressedLengths, int[] rawLengths, long sizeBytes) {
+        this.path = path;
+        this.sequence = sequence;
+        this.rows = rows;
+        this.minMicros = minMicros;
+        this.maxMicros = maxMicros;
+        this.minId = minId;
+        this.maxId = maxId;
+        this.numbers = numbers;
+        this.offsets = offsets;
+        this.compressedLengths = compressedLengths;
+        this.rawLengths = rawLengths;
+        this.sizeBytes = sizeBytes;
+    }
+
+    /**
+     * Write messages (ids and timestamps set) to a new segment file. The file
+     * is written beside the target, forced to disk and then renamed, so a
+     * segment is either complete or absent.
+     */
+    static Segment write(Path path, long sequence, List<WhatsAppMessage> messages, int bloomBitsPerKey)
+            throws IOException {
+        if (messages.isEmpty()) {
+            throw new IllegalArgumentException("A segment needs at least one message");
+        }
+        List<WhatsAppMessage> sorted = new ArrayList<>(messages);
+        sorted.sort(ORDER);
+
+        Set<String> distinct = new HashSet<>();
+        for (WhatsAppMessage message : sorted) {
+            distinct.add(message.getFromNumber());
+            distinct.add(message.getToNumber());
+        }
+        BloomFilter numbers = BloomFilter.create(distinct.size(), bloomBitsPerKey);
+        distinct.forEach(numbers::add);
+
+        ColumnWriter[] columns = new ColumnWriter[COLUMNS];
+        for (int c = 0; c < COLUMNS; c++) {
+            columns[c] = new ColumnWriter();
+        }
+        List<ColumnWriter> messageIdBlocks = new ArrayList<>();
+        List<ColumnWriter> textBlocks = new ArrayList<>();
+        long previousId = 0;
+        long previousMicros = 0;
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        for (int row = 0; row < sorted.size(); row++) {
+            WhatsAppMessage message = sorted.get(row);
+            long id = message.getId();
+            long micros = toMicros(message.getTimestamp());
+            if (row % BLOCK_ROWS == 0) {
+                messageIdBlocks.add(new ColumnWriter());
+                textBlocks.add(new ColumnWriter());
+            }
+            columns[ID].writeZigZag(id - previousId);
+            columns[TIMESTAMP].writeZigZag(micros - previousMicros);
+            messageIdBlocks.get(messageIdBlocks.size() - 1).writeString(message.getMessageId());
+            textBlocks.get(textBlocks.size() - 1).writeString(message.getMessageText());
+            previousId = id;
+            previousMicros = micros;
+            minId = Math.min(minId, id);
+            maxId = Math.max(maxId, id);
+        }
+        columns[FROM].writeDictionary(sorted, WhatsAppMessage::getFromNumber);
+        columns[TO].writeDictionary(sorted, WhatsAppMessage::getToNumber);
+        columns[TYPE].writeDictionary(sorted, WhatsAppMessage::getMessageType);
+        columns[STATUS].writeDictionary(sorted, WhatsAppMessage::getStatus);
+        columns[DIRECTION].writeDictionary(sorted, WhatsAppMessage::getDirection);
+        columns[CONVERSATION].writeDictionary(sorted, WhatsAppMessage::getConversationId);
+
+        byte[][] blocks = new byte[COLUMNS][];
+        int[] rawLengths = new int[COLUMNS];
+        for (int c = 0; c < COLUMNS; c++) {
+            if (c == MESSAGE_ID || c == TEXT) {
+                List<ColumnWriter> parts = c == MESSAGE_ID ? messageIdBlocks : textBlocks;
+                blocks[c] = compressBlocks(parts);
+                rawLengths[c] = parts.stream().mapToInt(ColumnWriter::rawLength).sum();
+            } else {
+                blocks[c] = columns[c].compress();
+                rawLengths[c] = columns[c].rawLength();
+            }
+        }
+
+        long minMicros = toMicros(sorted.get(0).getTimestamp());
+        long maxMicros = toMicros(sorted.get(sorted.size() - 1).getTimestamp());
+        long[] words = numbers.words();
+        long headerLength = 8 + 8 + 4 + 8 * 4 + 4 + 4 + 8L * words.length + COLUMNS * 16L;
+        long[] offsets = new long[COLUMNS];
+        int[] compressedLengths = new int[COLUMNS];
+        long offset = headerLength;
+        for (int c = 0; c < COLUMNS; c++) {
+            offsets[c] = offset;
+            compressedLengths[c] = blocks[c].length;
+            offset += blocks[c].length;
+        }
+
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream((int) headerLength);
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        header.writeLong(MAGIC);
+        header.writeLong(sequence);
+        header.writeInt(sorted.size());
+        header.writeLong(minMicros);
+        header.writeLong(maxMicros);
+        header.writeLong(minId);
+        header.writeLong(maxId);
+        header.writeInt(numbers.hashes());
+        header.writeInt(words.length);
+        for (long word : words) {
+            header.writeLong(word);
+        }
+        for (int c = 0; c < COLUMNS; c++) {
+            header.writeLong(offsets[c]);
+            header.writeInt(compressedLengths[c]);
+            header.writeInt(rawLengths[c]);
+        }
+        header.flush();
+
+        Files.createDirectories(path.getParent());
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, ByteBuffer.wrap(headerBytes.toByteArray()));
+            for (byte[] block : blocks) {
+                writeFully(channel, ByteBuffer.wrap(block));
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+
+        return new Segment(path, sequence, sorted.size(), minMicros, maxMicros, minId, maxId, numbers,
+                offsets, compressedLengths, rawLengths, offset);
+    }
+
+    /**
+     * Read a segment's header; columns are read on demand
+     */
+    static Segment open(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path);
+             DataInputStream header = new DataInputStream(new BufferedInputStream(in, 64 * 1024))) {
+            if (header.readLong() != MAGIC) {
+                throw new IOException("Not an archive segment: " + path);
+            }
+            long sequence = header.readLong();
+            int rows = header.readInt();
+            long minMicros = header.readLong();
+            long maxMicros = header.readLong();
+            long minId = header.readLong();
+            long maxId = header.readLong();
+            int hashes = header.readInt();
+            long[] words = new long[header.readInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = header.readLong();
+            }
+            long[] offsets = new long[COLUMNS];
+            int[] compressedLengths = new int[COLUMNS];
+            int[] rawLengths = new int[COLUMNS];
+            for (int c = 0; c < COLUMNS; c++) {
+                offsets[c] = header.readLong();
+                compressedLengths[c] = header.readInt();
+                rawLengths[c] = header.readInt();
+            }
+            return new Segment(path, sequence, rows, minMicros, maxMicros, minId, maxId,
+                    BloomFilter.of(words, hashes), offsets, compressedLengths, rawLengths, Files.size(path));
+        }
+    }
+
+    /**
+     * Whether any message in this segment may be to or from the number
+     */
+    boolean mightContain(String phoneNumber) {
+        return numbers.mightContain(phoneNumber);
+    }
+
+    /**
+     * Add to out, newest first, up to limit messages to or from the number
+     * that are older than the (beforeMicros, beforeId) cursor
+     */
+    void collect(String phoneNumber, long beforeMicros, long beforeId, int limit, List<WhatsAppMessage> out)
+            throws IOException {
+        DictionaryColumn from = dictionaryColumn(FROM);
+        DictionaryColumn to = dictionaryColumn(TO);
+        byte[] number = phoneNumber.getBytes(StandardCharsets.UTF_8);
+        int fromCode = from.indexOf(number);
+        int toCode = to.indexOf(number);
+        if (fromCode < 0 && toCode < 0) {
+            // Bloom filter false positive
+            return;
+        }
+
+        long[] ids = deltas(ID);
+        long[] micros = deltas(TIMESTAMP);
+        List<Integer> hits = new ArrayList<>();
+        for (int row = rows - 1; row >= 0 && hits.size() < limit; row--) {
+            boolean matches = from.codes[row] == fromCode || to.codes[row] == toCode;
+            boolean older = micros[row] < beforeMicros || (micros[row] == beforeMicros && ids[row] < beforeId);
+            if (matches && older) {
+                hits.add(row);
+            }
+        }
+        if (hits.isEmpty()) {
+            return;
+        }
+        boolean[] wanted = new boolean[rows];
+        hits.forEach(row -> wanted[row] = true);
+        Rows decoded = decodeRows(ids, micros, from, to, wanted);
+        for (int row : hits) {
+            out.add(decoded.message(row));
+        }
+    }
+
+    /**
+     * Every message in the segment, oldest first
+     */
+    public List<WhatsAppMessage> readAll() throws IOException {
+        Rows all = decodeRows(deltas(ID), deltas(TIMESTAMP), dictionaryColumn(FROM), dictionaryColumn(TO), null);
+        List<WhatsAppMessage> messages = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            messages.add(all.message(row));
+        }
+        return messages;
+    }
+
+    /**
+     * Ids of every message in the segment
+     */
+    public long[] ids() throws IOException {
+        return deltas(ID);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public LocalDateTime getMinTimestamp() {
+        return fromMicros(minMicros);
+    }
+
+    public LocalDateTime getMaxTimestamp() {
+        return fromMicros(maxMicros);
+    }
+
+    long getMinMicros() {
+        return minMicros;
+    }
+
+    long getMaxMicros() {
+        return maxMicros;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * Size of the columns before compression
+     */
+    public long getRawBytes() {
+        long total = 0;
+        for (int length : rawLengths) {
+            total += length;
+        }
+        return total;
+    }
+
+    static long toMicros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Decode the remaining columns for the wanted rows (every row when null);
+     * string blocks without a wanted row are not inflated
+     */
+    private Rows decodeRows(long[] ids, long[] micros, DictionaryColumn from, DictionaryColumn to,
+                            boolean[] wanted) throws IOException {
+        Rows all = new Rows(ids, micros);
+        BlockedColumn messageIds = blockedColumn(MESSAGE_ID);
+        BlockedColumn texts = blockedColumn(TEXT);
+        for (int block = 0; block * BLOCK_ROWS < rows; block++) {
+            int first = block * BLOCK_ROWS;
+            int last = Math.min(rows, first + BLOCK_ROWS);
+            if (wanted != null && !anyWanted(wanted, first, last)) {
+                continue;
+            }
+            ColumnReader blockIds = messageIds.inflate(block);
+            ColumnReader blockTexts = texts.inflate(block);
+            for (int row = first; row < last; row++) {
+                if (wanted == null || wanted[row]) {
+                    all.messageIds[row] = blockIds.readString();
+                    all.texts[row] = blockTexts.readString();
+                } else {
+                    blockIds.skipString();
+                    blockTexts.skipString();
+                }
+            }
+        }
+        all.from = from;
+        all.to = to;
+        all.types = dictionaryColumn(TYPE);
+        all.statuses = dictionaryColumn(STATUS);
+        all.directions = dictionaryColumn(DIRECTION);
+        all.conversations = dictionaryColumn(CONVERSATION);
+        return all;
+    }
+
+    private DictionaryColumn dictionaryColumn(int column) throws IOException {
+        ColumnReader reader = column(column);
+        int[] entries = reader.readDictionaryOffsets();
+        return new DictionaryColumn(reader, entries, reader.readCodes(rows));
+    }
+
+    private long[] deltas(int column) throws IOException {
+        ColumnReader reader = column(column);
+        long[] values = new long[rows];
+        long previous = 0;
+        for (int row = 0; row < rows; row++) {
+            previous += reader.readZigZag();
+            values[row] = previous;
+        }
+        return values;
+    }
+
+    private static boolean anyWanted(boolean[] wanted, int from, int to) {
+        for (int row = from; row < to; row++) {
+            if (wanted[row]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Block count, then (compressed length, raw length) per block, then the deflated blocks
+     */
+    private static byte[] compressBlocks(List<ColumnWriter> blocks) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        byte[][] compressed = new byte[blocks.size()][];
+        out.writeInt(blocks.size());
+        for (int b = 0; b < blocks.size(); b++) {
+            compressed[b] = blocks.get(b).compress();
+            out.writeInt(compressed[b].length);
+            out.writeInt(blocks.get(b).rawLength());
+        }
+        for (byte[] block : compressed) {
+            out.write(block);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private BlockedColumn blockedColumn(int column) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(read(column));
+        int blocks = buffer.getInt();
+        int[] starts = new int[blocks];
+        int[] compressed = new int[blocks];
+        int[] raw = new int[blocks];
+        int start = 4 + blocks * 8;
+        for (int b = 0; b < blocks; b++) {
+            compressed[b] = buffer.getInt();
+            raw[b] = buffer.getInt();
+            starts[b] = start;
+            start += compressed[b];
+        }
+        return new BlockedColumn(buffer.array(), starts, compressed, raw);
+    }
+
+    private ColumnReader column(int column) throws IOException {
+        return ColumnReader.inflate(read(column), rawLengths[column]);
+    }
+
+    private byte[] read(int column) throws IOException {
+        byte[] compressed = new byte[compressedLengths[column]];
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.wrap(compressed);
+            long position = offsets[column];
+            while (buffer.hasRemaining()) {
+                int n = channel.read(buffer, position);
+                if (n < 0) {
+                    throw new IOException("Truncated segment: " + path);
+                }
+                position += n;
+            }
+        }
+        return compressed;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static final class DictionaryColumn {
+        final ColumnReader reader;
+        final int[] entries;
+        final String[] values;
+        final int[] codes;
+
+        DictionaryColumn(ColumnReader reader, int[] entries, int[] codes) {
+            this.reader = reader;
+            this.entries = entries;
+            this.values = new String[entries.length];
+            this.codes = codes;
+        }
+
+        int indexOf(byte[] value) {
+            for (int code = 1; code < entries.length; code++) {
+                if (reader.equalsAt(entries[code], value)) {
+                    return code;
+                }
+            }
+            return -1;
+        }
+
+        String get(int row) {
+            int code = codes[row];
+            if (values[code] == null) {
+                values[code] = reader.stringAt(entries[code]);
+            }
+            return values[code];
+        }
+    }
+
+    private static final class BlockedColumn {
+        final byte[] bytes;
+        final int[] starts;
+        final int[] compressedLengths;
+        final int[] rawLengths;
+
+        BlockedColumn(byte[] bytes, int[] starts, int[] compressedLengths, int[] rawLengths) {
+            this.bytes = bytes;
+            this.starts = starts;
+            this.compressedLengths = compressedLengths;
+            this.rawLengths = rawLengths;
+        }
+
+        ColumnReader inflate(int block) throws IOException {
+            return ColumnReader.inflate(bytes, starts[block], compressedLengths[block], rawLengths[block]);
+        }
+    }
+
+    private final class Rows {
+        final long[] ids;
+        final long[] micros;
+        final String[] messageIds = new String[rows];
+        final String[] texts = new String[rows];
+        DictionaryColumn from;
+        DictionaryColumn to;
+        DictionaryColumn types;
+        DictionaryColumn statuses;
+        DictionaryColumn directions;
+        DictionaryColumn conversations;
+
+        Rows(long[] ids, long[] micros) {
+            this.ids = ids;
+            this.micros = micros;
+        }
+
+        WhatsAppMessage message(int row) {
+            return new WhatsAppMessage(ids[row], messageIds[row], from.get(row), to.get(row), texts[row],
+                    types.get(row), fromMicros(micros[row]), statuses.get(row), directions.get(row),
+                    conversations.get(row));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.whatsapp.chatbot.cache;
+
+import lombok.Value;
+
+/**
+ * Point-in-time counters for a {@link QueryCache}
+ */
+@Value
+public class CacheStats {
+
+    String name;
+    int size;
+    int maximumSize;
+    long hits;
+    long misses;
+    long loads;
+    long coalescedLoads;
+    long loadFailures;
+    long evictions;
+    long expirations;
+
+    /** Entries reloaded in the background ahead of expiry */
+    long refreshes;
+
+    /** Over loads and refreshes */
+    double meanLoadMillis;
+    double maxLoadMillis;
+
+    public double getHitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+}
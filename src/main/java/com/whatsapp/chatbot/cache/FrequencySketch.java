@@ -0,0 +1,60 @@
+package com.whatsapp.chatbot.cache;
+
+/**
+ * Approximate access counter (count-min sketch with 4-bit saturating counters).
+ * Counts are halved periodically so old popularity fades out.
+ */
+final class FrequencySketch {
+
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x97CB3127, 0xB1A83721, 0x8B9F2D47, 0xC3A5C85C};
+
+    private final byte[] table;
+    private final int mask;
+    private final int resetThreshold;
+    private int additions;
+
+    FrequencySketch(int capacity) {
+        int bounded = Math.max(16, Math.min(capacity, 1 << 24));
+        // ~16 counters per cached entry keeps collisions from inflating rare keys
+        int size = Integer.highestOneBit(bounded * 16 - 1) << 1;
+        this.table = new byte[size];
+        this.mask = size - 1;
+        this.resetThreshold = bounded * 10;
+    }
+
+    void increment(int hash) {
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = index(hash, i);
+            if (table[index] < MAX_COUNT) {
+                table[index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= resetThreshold) {
+            reset();
+        }
+    }
+
+    int frequency(int hash) {
+        int min = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            min = Math.min(min, table[index(hash, i)]);
+        }
+        return min;
+    }
+
+    private int index(int hash, int i) {
+        int h = (hash ^ SEEDS[i]) * 0x9E3779B9;
+        h ^= h >>> 16;
+        return h & mask;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] >>= 1;
+        }
+        additions /= 2;
+    }
+}
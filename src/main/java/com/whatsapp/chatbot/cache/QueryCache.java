@@ -0,0 +1,368 @@
+package com.whatsapp.chatbot.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Size-bounded, expiring cache for expensive lookups such as place search and routes.
+ *
+ * Eviction follows W-TinyLFU: new entries land in a small LRU window and only move
+ * into the main LRU region if they have been requested more often than the entry
+ * they would displace, so a burst of one-off queries cannot flush the popular ones.
+ * Concurrent misses for the same key share a single load.
+ *
+ * With refresh-ahead, a hit on an entry older than the refresh age still
+ * returns it at once but reloads it in the background, so popular keys are
+ * replaced before they expire and their readers never wait on a load.
+ */
+public final class QueryCache<K, V> {
+
+    private final String name;
+    private final int maximumSize;
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final long ttlNanos;
+    private final long refreshNanos;
+    private final Executor refreshExecutor;
+    private final LongSupplier clock;
+    private final FrequencySketch sketch;
+    private final LinkedHashMap<K, Entry<V>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Entry<V>> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalescedLoads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final AtomicLong maxLoadNanos = new AtomicLong();
+
+    // Bumped by invalidateAll so loads that started before it are not stored
+    private volatile long generation;
+
+    public QueryCache(String name, int maximumSize, Duration ttl) {
+        this(name, maximumSize, ttl, null, null, System::nanoTime);
+    }
+
+    /**
+     * A cache that reloads entries older than refreshAfter on the executor when they are read
+     */
+    public QueryCache(String name, int maximumSize, Duration ttl, Duration refreshAfter, Executor refreshExecutor) {
+        this(name, maximumSize, ttl, refreshAfter, refreshExecutor, System::nanoTime);
+    }
+
+    QueryCache(String name, int maximumSize, Duration ttl, LongSupplier clock) {
+        this(name, maximumSize, ttl, null, null, clock);
+    }
+
+    QueryCache(String name, int maximumSize, Duration ttl, Duration refreshAfter, Executor refreshExecutor,
+               LongSupplier clock) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("TTL must be positive: " + ttl);
+        }
+        this.name = name;
+        this.maximumSize = maximumSize;
+        this.windowCapacity = Math.max(1, maximumSize / 100);
+        this.mainCapacity = maximumSize - windowCapacity;
+        this.ttlNanos = ttl.toNanos();
+        this.refreshNanos = refreshAfter == null ? Long.MAX_VALUE : refreshAfter.toNanos();
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * Return the cached value for the key, or load it. If another thread is already
+     * loading the same key, wait for its result instead of loading again.
+     * Loader exceptions are propagated to every waiting caller and nothing is cached.
+     */
+    public V get(K key, Supplier<? extends V> loader) {
+        Entry<V> cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            if (clock.getAsLong() - cached.writtenAt >= refreshNanos) {
+                refresh(key, loader);
+            }
+            return cached.value;
+        }
+        misses.increment();
+
+        CompletableFuture<V> pending = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            coalescedLoads.increment();
+            return await(existing);
+        }
+
+        try {
+            // A load for this key may have completed between the lookup and claiming it
+            V value = peek(key);
+            if (value == null) {
+                value = load(key, loader);
+                loads.increment();
+            }
+            pending.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            loadFailures.increment();
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, pending);
+        }
+    }
+
+    public V getIfPresent(K key) {
+        Entry<V> cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached.value;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Store a value directly, e.g. state produced outside a loader or a
+     * write-through; a load of the key already running does not replace it
+     */
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            sketch.increment(spread(key));
+            store(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            generation++;
+            window.clear();
+            main.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return window.size() + main.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CacheStats stats() {
+        long loadCount = loads.sum() + refreshes.sum();
+        return new CacheStats(name, size(), maximumSize, hits.sum(), misses.sum(), loads.sum(),
+                coalescedLoads.sum(), loadFailures.sum(), evictions.sum(), expirations.sum(), refreshes.sum(),
+                loadCount == 0 ? 0.0 : loadNanos.sum() / 1e6 / loadCount, maxLoadNanos.get() / 1e6);
+    }
+
+    /**
+     * Run the loader and store its value, unless the cache was cleared or
+     * the key written while it ran
+     */
+    private V load(K key, Supplier<? extends V> loader) {
+        long startGeneration = generation;
+        long start = clock.getAsLong();
+        long startNanos = System.nanoTime();
+        V value = Objects.requireNonNull(loader.get(), "Cache loader returned null");
+        long nanos = System.nanoTime() - startNanos;
+        loadNanos.add(nanos);
+        maxLoadNanos.accumulateAndGet(nanos, Math::max);
+        lock.lock();
+        try {
+            Entry<V> current = entry(key);
+            if (generation == startGeneration && (current == null || current.writtenAt < start)) {
+                store(key, value);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return value;
+    }
+
+    /**
+     * Reload a key in the background unless a load of it is already running;
+     * readers keep getting the current value meanwhile
+     */
+    private void refresh(K key, Supplier<? extends V> loader) {
+        CompletableFuture<V> pending = new CompletableFuture<>();
+        if (refreshExecutor == null || inFlight.putIfAbsent(key, pending) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    V value = load(key, loader);
+                    refreshes.increment();
+                    pending.complete(value);
+                } catch (RuntimeException | Error e) {
+                    // The current value stays until it expires
+                    loadFailures.increment();
+                    pending.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, pending);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Executor saturated or shut down: the next read tries again
+            inFlight.remove(key, pending);
+            pending.cancel(false);
+        }
+    }
+
+    /**
+     * Read and record an access for admission decisions
+     */
+    private Entry<V> lookup(K key) {
+        lock.lock();
+        try {
+            sketch.increment(spread(key));
+            return liveEntry(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private V peek(K key) {
+        lock.lock();
+        try {
+            Entry<V> entry = liveEntry(key);
+            return entry == null ? null : entry.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Entry<V> entry(K key) {
+        Entry<V> entry = window.get(key);
+        return entry != null ? entry : main.get(key);
+    }
+
+    private Entry<V> liveEntry(K key) {
+        Map<K, Entry<V>> region = window;
+        Entry<V> entry = window.get(key);
+        if (entry == null) {
+            region = main;
+            entry = main.get(key);
+        }
+        if (entry == null) {
+            return null;
+        }
+        if (clock.getAsLong() - entry.writtenAt >= ttlNanos) {
+            region.remove(key);
+            expirations.increment();
+            return null;
+        }
+        return entry;
+    }
+
+    private void store(K key, V value) {
+        lock.lock();
+        try {
+            Entry<V> entry = new Entry<>(value, clock.getAsLong());
+            if (main.containsKey(key)) {
+                main.put(key, entry);
+                return;
+            }
+            window.put(key, entry);
+            while (window.size() > windowCapacity) {
+                Iterator<Map.Entry<K, Entry<V>>> eldest = window.entrySet().iterator();
+                Map.Entry<K, Entry<V>> candidate = eldest.next();
+                eldest.remove();
+                admit(candidate.getKey(), candidate.getValue());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Move an entry leaving the window into the main region if it is more popular
+     * than the main region's LRU victim; otherwise drop it
+     */
+    private void admit(K candidateKey, Entry<V> candidate) {
+        if (main.size() < mainCapacity) {
+            main.put(candidateKey, candidate);
+            return;
+        }
+        if (mainCapacity == 0) {
+            evictions.increment();
+            return;
+        }
+
+        Iterator<Map.Entry<K, Entry<V>>> eldest = main.entrySet().iterator();
+        Map.Entry<K, Entry<V>> victim = eldest.next();
+        boolean victimExpired = clock.getAsLong() - victim.getValue().writtenAt >= ttlNanos;
+        if (victimExpired || sketch.frequency(spread(candidateKey)) > sketch.frequency(spread(victim.getKey()))) {
+            eldest.remove();
+            if (victimExpired) {
+                expirations.increment();
+            } else {
+                evictions.increment();
+            }
+            main.put(candidateKey, candidate);
+        } else {
+            evictions.increment();
+        }
+    }
+
+    private static int spread(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long writtenAt;
+
+        Entry(V value, long writtenAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+    }
+}
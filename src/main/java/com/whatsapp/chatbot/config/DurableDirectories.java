@@ -0,0 +1,31 @@
+package com.whatsapp.chatbot.config;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Checks for directories that hold the only copy of data, such as the
+ * message archive: they must be configured explicitly and must not sit
+ * under the temp directory, which the OS clears on reboot.
+ */
+public final class DurableDirectories {
+
+    private DurableDirectories() {
+    }
+
+    /**
+     * @param allowTemp accept a directory under the temp directory (development and tests only)
+     * @return why the directory cannot hold durable data, or empty if it can
+     */
+    public static Optional<String> problem(String directory, boolean allowTemp) {
+        if (directory == null || directory.isBlank()) {
+            return Optional.of("no directory is configured");
+        }
+        Path path = Path.of(directory).toAbsolutePath().normalize();
+        Path temp = Path.of(System.getProperty("java.io.tmpdir")).toAbsolutePath().normalize();
+        if (!allowTemp && path.startsWith(temp)) {
+            return Optional.of(directory + " is under the temp directory, which is cleared on reboot");
+        }
+        return Optional.empty();
+    }
+}
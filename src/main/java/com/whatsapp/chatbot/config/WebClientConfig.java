@@ -1,8 +1,12 @@
 package com.whatsapp.chatbot.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 /**
  * Configuration class for WebClient beans
@@ -10,8 +14,19 @@ import org.springframework.web.reactive.function.client.WebClient;
 @Configuration
 public class WebClientConfig {
 
+    /**
+     * Sized for API sends that no longer hold a servlet thread; the default
+     * pool (twice the cores, with a short wait queue) would cap them instead
+     */
     @Bean
-    public WebClient.Builder webClientBuilder() {
-        return WebClient.builder();
+    public WebClient.Builder webClientBuilder(
+            @Value("${whatsapp.api.max-connections:500}") int maxConnections,
+            @Value("${whatsapp.api.max-pending-connections:5000}") int maxPendingConnections) {
+        ConnectionProvider connections = ConnectionProvider.builder("whatsapp-api")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(maxPendingConnections)
+                .build();
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)));
     }
 }
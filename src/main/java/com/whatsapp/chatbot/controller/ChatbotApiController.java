@@ -1,25 +1,64 @@
 package com.whatsapp.chatbot.controller;
 
+import com.whatsapp.chatbot.dto.ConversationThread;
+import com.whatsapp.chatbot.dto.MessageHistoryPage;
+import com.whatsapp.chatbot.feed.FeedStats;
+import com.whatsapp.chatbot.model.Conversation;
 import com.whatsapp.chatbot.model.WhatsAppMessage;
 import com.whatsapp.chatbot.model.UserSession;
-import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
-import com.whatsapp.chatbot.repository.UserSessionRepository;
+import com.whatsapp.chatbot.retention.RetentionStats;
+import com.whatsapp.chatbot.search.SearchOrder;
+import com.whatsapp.chatbot.search.SearchResult;
+import com.whatsapp.chatbot.search.SearchStats;
+import com.whatsapp.chatbot.service.ArchiveService;
+import com.whatsapp.chatbot.service.DashboardFeedService;
+import com.whatsapp.chatbot.service.FirebaseService;
+import com.whatsapp.chatbot.service.LocationSearchService;
+import com.whatsapp.chatbot.service.MessageHistoryService;
+import com.whatsapp.chatbot.service.NavigationService;
+import com.whatsapp.chatbot.service.PreferenceService;
+import com.whatsapp.chatbot.service.ReadModelService;
+import com.whatsapp.chatbot.service.RetentionService;
+import com.whatsapp.chatbot.service.RoutingService;
+import com.whatsapp.chatbot.service.SearchService;
+import com.whatsapp.chatbot.service.StatisticsService;
+import com.whatsapp.chatbot.service.TrafficAlertService;
+import com.whatsapp.chatbot.service.TrafficService;
+import com.whatsapp.chatbot.service.UserSessionService;
 import com.whatsapp.chatbot.service.WhatsAppService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 /**
  * REST API controller for chatbot management and testing
+ *
+ * Sends and history/session reads are asynchronous: sends return the
+ * WhatsApp API call itself, reads run on a bounded pool of their own, and
+ * either way the servlet thread is released while the request waits. Each
+ * has its own timeout, answered with 504.
  */
 @RestController
 @RequestMapping("/api")
@@ -28,41 +67,70 @@ import java.util.Map;
 public class ChatbotApiController {
 
     private final WhatsAppService whatsAppService;
-    private final WhatsAppMessageRepository messageRepository;
-    private final UserSessionRepository sessionRepository;
+    private final MessageHistoryService messageHistoryService;
+    private final ArchiveService archiveService;
+    private final RetentionService retentionService;
+    private final SearchService searchService;
+    private final StatisticsService statisticsService;
+    private final ReadModelService readModelService;
+    private final UserSessionService userSessionService;
+    private final LocationSearchService locationSearchService;
+    private final RoutingService routingService;
+    private final TrafficService trafficService;
+    private final TrafficAlertService trafficAlertService;
+    private final NavigationService navigationService;
+    private final FirebaseService firebaseService;
+    private final PreferenceService preferenceService;
+    private final DashboardFeedService dashboardFeedService;
+
+    @Value("${api.send-timeout-millis:10000}")
+    private long sendTimeoutMillis;
+
+    @Value("${api.read-timeout-millis:5000}")
+    private long readTimeoutMillis;
+
+    @Value("${api.read-threads:8}")
+    private int readThreads;
+
+    @Value("${api.read-queue-capacity:1000}")
+    private int readQueueCapacity;
+
+    private ThreadPoolExecutor readExecutor;
+
+    @PostConstruct
+    public void initialize() {
+        // Reads past the queue are refused with 503 rather than piling up
+        readExecutor = new ThreadPoolExecutor(readThreads, readThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(readQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "api-read");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        readExecutor.shutdownNow();
+    }
 
     /**
      * Send a test message to a phone number
      */
     @PostMapping("/send-message")
-    public ResponseEntity<Map<String, Object>> sendMessage(
+    public Mono<ResponseEntity<Map<String, Object>>> sendMessage(
             @RequestParam String to,
             @RequestParam String message) {
         
         log.info("API request to send message to: {}", to);
 
-        return whatsAppService.sendTextMessage(to, message)
-                .map(response -> {
-                    Map<String, Object> result = new HashMap<>();
-                    result.put("success", true);
-                    result.put("message", "Message sent successfully");
-                    result.put("response", response);
-                    return ResponseEntity.ok(result);
-                })
-                .onErrorResume(error -> {
-                    Map<String, Object> result = new HashMap<>();
-                    result.put("success", false);
-                    result.put("message", "Failed to send message: " + error.getMessage());
-                    return Mono.just(ResponseEntity.status(500).body(result));
-                })
-                .block();
+        return sent(whatsAppService.sendTextMessage(to, message), "Message");
     }
 
     /**
      * Send a button message
      */
     @PostMapping("/send-button-message")
-    public ResponseEntity<Map<String, Object>> sendButtonMessage(
+    public Mono<ResponseEntity<Map<String, Object>>> sendButtonMessage(
             @RequestParam String to,
             @RequestParam String bodyText,
             @RequestParam String[] buttonIds,
@@ -70,77 +138,154 @@ public class ChatbotApiController {
         
         log.info("API request to send button message to: {}", to);
 
-        return whatsAppService.sendButtonMessage(to, bodyText, buttonIds, buttonTitles)
-                .map(response -> {
-                    Map<String, Object> result = new HashMap<>();
-                    result.put("success", true);
-                    result.put("message", "Button message sent successfully");
-                    result.put("response", response);
-                    return ResponseEntity.ok(result);
-                })
-                .onErrorResume(error -> {
-                    Map<String, Object> result = new HashMap<>();
-                    result.put("success", false);
-                    result.put("message", "Failed to send button message: " + error.getMessage());
-                    return Mono.just(ResponseEntity.status(500).body(result));
-                })
-                .block();
+        return sent(whatsAppService.sendButtonMessage(to, bodyText, buttonIds, buttonTitles), "Button message");
     }
 
     /**
-     * Get message history for a phone number
+     * Get message history for a phone number, newest first
+     * Pass the returned nextCursor as before to get the next page
      */
     @GetMapping("/messages/{phoneNumber}")
-    public ResponseEntity<List<WhatsAppMessage>> getMessages(
+    public CompletableFuture<ResponseEntity<MessageHistoryPage>> getMessages(
             @PathVariable String phoneNumber,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String before,
             @RequestParam(defaultValue = "20") int size) {
         
         log.info("API request to get messages for: {}", phoneNumber);
 
-        List<WhatsAppMessage> messages = messageRepository
-                .findByFromNumberOrToNumberOrderByTimestampDesc(phoneNumber, phoneNumber);
-        
-        return ResponseEntity.ok(messages);
+        return read(() -> {
+            try {
+                return ResponseEntity.ok(messageHistoryService.history(phoneNumber, before, size));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        });
+    }
+
+    /**
+     * Get a number's conversations, latest first
+     */
+    @GetMapping("/conversations")
+    public CompletableFuture<ResponseEntity<List<Conversation>>> getConversations(
+            @RequestParam String phoneNumber,
+            @RequestParam(defaultValue = "20") int size) {
+
+        log.info("API request to get conversations for: {}", phoneNumber);
+
+        return read(() -> ResponseEntity.ok(messageHistoryService.conversations(phoneNumber, size)));
+    }
+
+    /**
+     * Get one conversation with its messages, oldest first
+     */
+    @GetMapping("/conversations/{conversationId}")
+    public CompletableFuture<ResponseEntity<ConversationThread>> getConversation(
+            @PathVariable String conversationId) {
+        log.info("API request to get conversation: {}", conversationId);
+
+        return read(() -> messageHistoryService.conversation(conversationId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build()));
     }
 
     /**
-     * Get all messages with pagination
+     * Search message text for every word of q, optionally to or from one number
+     * Newest first by default; pass the returned nextBeforeId as beforeId for the next page
+     */
+    @GetMapping("/search")
+    public CompletableFuture<ResponseEntity<SearchResult>> searchMessages(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(required = false) String phoneNumber,
+            @RequestParam(defaultValue = "recent") String order,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "20") int limit) {
+
+        log.info("API request to search messages (order: {})", order);
+
+        SearchOrder parsed = SearchOrder.parse(order);
+        if (parsed == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        return read(() -> {
+            try {
+                return searchService.search(q, phoneNumber, parsed, beforeId, limit)
+                        .map(ResponseEntity::ok)
+                        .orElse(ResponseEntity.status(503).build());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        });
+    }
+
+    /**
+     * Get search index size, maintenance and query latency statistics
+     */
+    @GetMapping("/search/stats")
+    public ResponseEntity<SearchStats> getSearchStatistics() {
+        log.info("API request to get search statistics");
+        return ResponseEntity.ok(searchService.getStats());
+    }
+
+    /**
+     * Get all messages with pagination, newest first
+     * Served from the read model; pages past its recent window come from the database
      */
     @GetMapping("/messages")
-    public ResponseEntity<Page<WhatsAppMessage>> getAllMessages(
+    public CompletableFuture<ResponseEntity<Page<WhatsAppMessage>>> getAllMessages(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size) {
         
         log.info("API request to get all messages");
 
-        PageRequest pageRequest = PageRequest.of(page, size, Sort.by("timestamp").descending());
-        Page<WhatsAppMessage> messages = messageRepository.findAll(pageRequest);
-        
-        return ResponseEntity.ok(messages);
+        return read(() -> projected(readModelService.getMessages(Math.max(page, 0), Math.max(size, 1))));
     }
 
     /**
-     * Get user session information
+     * Get user session information (from the read model)
      */
     @GetMapping("/session/{phoneNumber}")
-    public ResponseEntity<UserSession> getUserSession(@PathVariable String phoneNumber) {
+    public CompletableFuture<ResponseEntity<UserSession>> getUserSession(@PathVariable String phoneNumber) {
         log.info("API request to get session for: {}", phoneNumber);
 
-        return sessionRepository.findByPhoneNumber(phoneNumber)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+        return read(() -> readModelService.getSession(phoneNumber)
+                .map(this::projected)
+                .orElse(ResponseEntity.notFound().build()));
     }
 
     /**
-     * Get all active sessions
+     * Get a user's preferences (served from the near cache; a miss reads Firestore)
+     */
+    @GetMapping("/preferences/{phoneNumber}")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getUserPreferences(
+            @PathVariable String phoneNumber) {
+        log.info("API request to get preferences for: {}", phoneNumber);
+
+        return read(() -> ResponseEntity.ok(preferenceService.getPreferences(phoneNumber)));
+    }
+
+    /**
+     * Replace a user's preferences (written through to the session and Firestore)
+     */
+    @PutMapping("/preferences/{phoneNumber}")
+    public ResponseEntity<Map<String, Object>> saveUserPreferences(@PathVariable String phoneNumber,
+                                                                   @RequestBody Map<String, Object> preferences) {
+        log.info("API request to save preferences for: {}", phoneNumber);
+
+        try {
+            return ResponseEntity.ok(preferenceService.save(phoneNumber, preferences).getValues());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Get all active sessions (from the read model)
      */
     @GetMapping("/sessions")
-    public ResponseEntity<List<UserSession>> getActiveSessions() {
+    public CompletableFuture<ResponseEntity<List<UserSession>>> getActiveSessions() {
         log.info("API request to get all active sessions");
 
-        List<UserSession> sessions = sessionRepository.findBySessionActiveTrueOrderByUpdatedAtDesc();
-        return ResponseEntity.ok(sessions);
+        return read(() -> projected(readModelService.getActiveSessions()));
     }
 
     /**
@@ -150,26 +295,193 @@ public class ChatbotApiController {
     public ResponseEntity<Map<String, Object>> getStatistics() {
         log.info("API request to get chatbot statistics");
 
-        Map<String, Object> stats = new HashMap<>();
-        
-        // Message statistics
-        long totalMessages = messageRepository.count();
-        long inboundMessages = messageRepository.countByDirection("INBOUND");
-        long outboundMessages = messageRepository.countByDirection("OUTBOUND");
-        
-        // Session statistics
-        long totalSessions = sessionRepository.count();
-        long activeSessions = sessionRepository.countBySessionActiveTrue();
-        
-        stats.put("totalMessages", totalMessages);
-        stats.put("inboundMessages", inboundMessages);
-        stats.put("outboundMessages", outboundMessages);
-        stats.put("totalSessions", totalSessions);
-        stats.put("activeSessions", activeSessions);
+        // Maintained in memory; message counts cover the live table, archived messages are reported apart
+        Map<String, Object> stats = statisticsService.snapshot();
+        archiveService.getStats().ifPresent(archive -> stats.put("archivedMessages", archive.getRows()));
+        stats.put("readModel", readModelService.status());
         
         return ResponseEntity.ok(stats);
     }
 
+    /**
+     * Live dashboard feed (server-sent events): a snapshot, then message,
+     * session and stats changes as they happen
+     * Pass phoneNumber to receive message events for that number only
+     */
+    @GetMapping(value = "/dashboard/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamDashboard(@RequestParam(required = false) String phoneNumber) {
+        log.info("API request to open a dashboard feed (phone number: {})", phoneNumber);
+
+        try {
+            return ResponseEntity.ok(dashboardFeedService.subscribe(phoneNumber));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(503).build();
+        }
+    }
+
+    /**
+     * Get dashboard feed client, delivery and drop statistics
+     */
+    @GetMapping("/dashboard/stats")
+    public ResponseEntity<FeedStats> getDashboardFeedStatistics() {
+        log.info("API request to get dashboard feed statistics");
+        return ResponseEntity.ok(dashboardFeedService.getStats());
+    }
+
+    /**
+     * Get lookup cache statistics per query type
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStatistics() {
+        log.info("API request to get cache statistics");
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("geocode", locationSearchService.getCacheStats());
+        stats.put("route", routingService.getCacheStats());
+        stats.put("preferences", preferenceService.getCacheStats());
+        stats.put("preferencesFirestoreReadFailures", preferenceService.getFirestoreReadFailures());
+
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Get live traffic ingest metrics (throughput, data age, rejected events)
+     */
+    @GetMapping("/traffic/stats")
+    public ResponseEntity<Map<String, Object>> getTrafficStatistics() {
+        log.info("API request to get traffic statistics");
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", trafficService.isAvailable());
+        trafficService.getStats().ifPresent(ingest -> stats.put("ingest", ingest));
+        trafficService.citywideTraffic().ifPresent(citywide -> stats.put("citywide", citywide));
+
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Get traffic alert subscription and delivery statistics
+     */
+    @GetMapping("/alerts/stats")
+    public ResponseEntity<Map<String, Object>> getAlertStatistics() {
+        log.info("API request to get traffic alert statistics");
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", trafficAlertService.isAvailable());
+        trafficAlertService.getStats().ifPresent(alerts -> stats.put("alerts", alerts));
+
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Get live navigation session and guidance statistics
+     */
+    @GetMapping("/navigation/stats")
+    public ResponseEntity<Map<String, Object>> getNavigationStatistics() {
+        log.info("API request to get live navigation statistics");
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", navigationService.isAvailable());
+        navigationService.getStats().ifPresent(navigation -> stats.put("navigation", navigation));
+
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Get Firestore spool, write queue, batch commit and analytics pipeline statistics
+     */
+    @GetMapping("/firebase/stats")
+    public ResponseEntity<Map<String, Object>> getFirebaseStatistics() {
+        log.info("API request to get Firebase statistics");
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", firebaseService.isFirebaseInitialized());
+        firebaseService.getWriterStats().ifPresent(writer -> stats.put("writer", writer));
+        firebaseService.getSpoolStats().ifPresent(spool -> stats.put("spool", spool));
+        firebaseService.getAnalyticsStats().ifPresent(analytics -> stats.put("analytics", analytics));
+
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Get message archive size and tiering job statistics
+     */
+    @GetMapping("/archive/stats")
+    public ResponseEntity<Map<String, Object>> getArchiveStatistics() {
+        log.info("API request to get message archive statistics");
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", archiveService.isAvailable());
+        archiveService.getStats().ifPresent(archive -> stats.put("archive", archive));
+
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Start archiving messages in the background, either older than the
+     * given number of days or past the configured age; 202 once started,
+     * 409 while an earlier request is still running, 503 if archiving is
+     * disabled. Progress shows in the archive statistics.
+     */
+    @PostMapping("/archive/run")
+    public ResponseEntity<Map<String, Object>> runArchive(@RequestParam(required = false) Long olderThanDays) {
+        log.info("API request to archive messages older than {} days", olderThanDays);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("enabled", archiveService.isAvailable());
+        if (!archiveService.isAvailable()) {
+            return ResponseEntity.status(503).body(response);
+        }
+        LocalDateTime cutoff = olderThanDays == null
+                ? archiveService.expiryCutoff()
+                : LocalDateTime.now().minusDays(olderThanDays);
+        boolean started = archiveService.requestRun(cutoff);
+        response.put("started", started);
+        response.put("cutoff", cutoff);
+        archiveService.getStats().ifPresent(archive -> response.put("archive", archive));
+        return ResponseEntity.status(started ? 202 : 409).body(response);
+    }
+
+    /**
+     * Get data retention progress, throughput and lock impact
+     */
+    @GetMapping("/retention/stats")
+    public ResponseEntity<RetentionStats> getRetentionStatistics() {
+        log.info("API request to get data retention statistics");
+        return ResponseEntity.ok(retentionService.getStats());
+    }
+
+    /**
+     * Start data retention in the background; unless forced it stops when the
+     * retention window closes. 202 once started, 409 while a run is in
+     * progress. Progress shows in the retention statistics.
+     */
+    @PostMapping("/retention/run")
+    public ResponseEntity<Map<String, Object>> runRetention(@RequestParam(defaultValue = "false") boolean force) {
+        log.info("API request to run data retention (force: {})", force);
+
+        boolean started = retentionService.requestRun(force);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("started", started);
+        response.put("retention", retentionService.getStats());
+        return ResponseEntity.status(started ? 202 : 409).body(response);
+    }
+
+    /**
+     * Push traffic feed lines (one event per line) without going through the file or socket feed
+     */
+    @PostMapping(value = "/traffic/events", consumes = "text/plain")
+    public ResponseEntity<Map<String, Object>> postTrafficEvents(@RequestBody String events) {
+        List<String> lines = events.lines().toList();
+        lines.forEach(trafficService::ingest);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("lines", lines.size());
+        trafficService.getStats().ifPresent(ingest -> response.put("ingest", ingest));
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Health check endpoint
      */
@@ -190,12 +502,7 @@ public class ChatbotApiController {
     public ResponseEntity<Map<String, String>> resetUserSession(@PathVariable String phoneNumber) {
         log.info("API request to reset session for: {}", phoneNumber);
 
-        sessionRepository.findByPhoneNumber(phoneNumber).ifPresent(session -> {
-            session.setCurrentState("WELCOME");
-            session.setNavigationPath("WELCOME");
-            session.setSessionActive(true);
-            sessionRepository.save(session);
-        });
+        userSessionService.resetSession(phoneNumber);
 
         Map<String, String> response = new HashMap<>();
         response.put("message", "Session reset successfully");
@@ -230,4 +537,60 @@ public class ChatbotApiController {
             return ResponseEntity.status(500).body(response);
         }
     }
+
+    /**
+     * A read-model response, with how far the read model lags the database
+     */
+    private <T> ResponseEntity<T> projected(T body) {
+        return ResponseEntity.ok()
+                .header("X-Read-Model-Staleness-Millis", String.valueOf(readModelService.getStalenessMillis()))
+                .body(body);
+    }
+
+    /**
+     * The outcome of a send as the API response, 504 if the WhatsApp API has not answered
+     * within the send timeout (the message may still go out)
+     */
+    private Mono<ResponseEntity<Map<String, Object>>> sent(Mono<Map<String, Object>> send, String what) {
+        return send
+                .timeout(Duration.ofMillis(sendTimeoutMillis))
+                .map(response -> {
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("success", true);
+                    result.put("message", what + " sent successfully");
+                    result.put("response", response);
+                    return ResponseEntity.ok(result);
+                })
+                .onErrorResume(error -> {
+                    boolean timedOut = error instanceof TimeoutException;
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("success", false);
+                    result.put("message", timedOut
+                            ? what + " not confirmed within " + sendTimeoutMillis + " ms"
+                            : "Failed to send " + what.toLowerCase() + ": " + error.getMessage());
+                    return Mono.just(ResponseEntity.status(timedOut ? 504 : 500).body(result));
+                });
+    }
+
+    /**
+     * Run a read on the read pool: 503 if the pool is saturated, 504 past the read timeout.
+     * A timed out read still runs to completion; only its response is given up.
+     */
+    private <T> CompletableFuture<ResponseEntity<T>> read(Supplier<ResponseEntity<T>> query) {
+        try {
+            return CompletableFuture.supplyAsync(query, readExecutor)
+                    .orTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+                    .exceptionally(error -> {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        if (cause instanceof TimeoutException) {
+                            return ResponseEntity.status(504).build();
+                        }
+                        throw error instanceof CompletionException completion ? completion
+                                : new CompletionException(cause);
+                    });
+        } catch (RejectedExecutionException e) {
+            log.warn("API read pool saturated, refusing request");
+            return CompletableFuture.completedFuture(ResponseEntity.status(503).build());
+        }
+    }
 }
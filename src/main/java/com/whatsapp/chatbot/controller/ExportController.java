@@ -0,0 +1,98 @@
+package com.whatsapp.chatbot.controller;
+
+import com.whatsapp.chatbot.export.ExportFormat;
+import com.whatsapp.chatbot.service.ExportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streaming exports of the message log and user sessions for compliance and BI.
+ * Responses are written while rows are read, so there is no size limit.
+ */
+@RestController
+@RequestMapping("/api/export")
+@Slf4j
+@RequiredArgsConstructor
+public class ExportController {
+
+    private final ExportService exportService;
+
+    /**
+     * Export messages, optionally within [from, to) and for one direction (INBOUND/OUTBOUND)
+     */
+    @GetMapping("/messages")
+    public ResponseEntity<StreamingResponseBody> exportMessages(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String direction) {
+
+        log.info("API request to export messages from {} to {} ({}, {})", from, to, format, direction);
+
+        ExportFormat exportFormat = parseFormat(format);
+        if (exportFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return download("messages", exportFormat, gzip,
+                out -> exportService.exportMessages(out, exportFormat, gzip, from, to, direction));
+    }
+
+    /**
+     * Export all user sessions
+     */
+    @GetMapping("/sessions")
+    public ResponseEntity<StreamingResponseBody> exportSessions(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+
+        log.info("API request to export sessions ({})", format);
+
+        ExportFormat exportFormat = parseFormat(format);
+        if (exportFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return download("sessions", exportFormat, gzip,
+                out -> exportService.exportSessions(out, exportFormat, gzip));
+    }
+
+    /**
+     * Get export throughput statistics
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getExportStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("exports", exportService.getExports());
+        stats.put("rows", exportService.getExportedRows());
+        stats.put("bytes", exportService.getExportedBytes());
+        stats.put("last", exportService.getLastExport());
+        return ResponseEntity.ok(stats);
+    }
+
+    private static ExportFormat parseFormat(String format) {
+        try {
+            return ExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static ResponseEntity<StreamingResponseBody> download(String dataset, ExportFormat format, boolean gzip,
+                                                                  StreamingResponseBody body) {
+        String filename = dataset + "." + format.getExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : format.getContentType()))
+                .body(body);
+    }
+}
@@ -0,0 +1,116 @@
+package com.whatsapp.chatbot.controller;
+
+import com.whatsapp.chatbot.rollup.FunnelStep;
+import com.whatsapp.chatbot.rollup.Resolution;
+import com.whatsapp.chatbot.rollup.RollupPoint;
+import com.whatsapp.chatbot.service.RollupService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Time-series rollups of message traffic and session state changes, served
+ * from memory. Times are UTC; ranges are [from, to) and default to
+ * everything the chosen resolution still holds.
+ */
+@RestController
+@RequestMapping("/api/rollups")
+@Slf4j
+@RequiredArgsConstructor
+public class RollupController {
+
+    private final RollupService rollupService;
+
+    /**
+     * Counts per bucket for comma-separated series, e.g. messages.inbound,messages.type.location
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> query(
+            @RequestParam(defaultValue = "messages.inbound,messages.outbound") String series,
+            @RequestParam(defaultValue = "minute") String resolution,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+
+        log.info("API request for {} rollups of {}", resolution, series);
+
+        Resolution parsed = Resolution.parse(resolution);
+        if (parsed == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        long toMillis = to == null ? System.currentTimeMillis() : to.toInstant(ZoneOffset.UTC).toEpochMilli();
+        long fromMillis = from == null ? toMillis - rollupService.getRetentionMillis(parsed)
+                                       : from.toInstant(ZoneOffset.UTC).toEpochMilli();
+        List<RollupPoint> points = rollupService.query(split(series), parsed, fromMillis, toMillis);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("resolution", parsed);
+        response.put("points", points);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Step-to-step conversion through comma-separated session states, e.g. NAVIGATION_HELP,ROUTE_PLANNING
+     */
+    @GetMapping("/funnel")
+    public ResponseEntity<Map<String, Object>> funnel(
+            @RequestParam String steps,
+            @RequestParam(defaultValue = "hour") String resolution,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+
+        log.info("API request for funnel {}", steps);
+
+        Resolution parsed = Resolution.parse(resolution);
+        List<String> states = split(steps);
+        if (parsed == null || states.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        long toMillis = to == null ? System.currentTimeMillis() : to.toInstant(ZoneOffset.UTC).toEpochMilli();
+        long fromMillis = from == null ? toMillis - rollupService.getRetentionMillis(parsed)
+                                       : from.toInstant(ZoneOffset.UTC).toEpochMilli();
+        List<FunnelStep> funnel = rollupService.funnel(states, parsed, fromMillis, toMillis);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("resolution", parsed);
+        response.put("steps", funnel);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Names of every series recorded so far
+     */
+    @GetMapping("/series")
+    public ResponseEntity<List<String>> series() {
+        return ResponseEntity.ok(rollupService.getSeriesNames());
+    }
+
+    /**
+     * Get rollup engine and persistence statistics
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getRollupStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("rollups", rollupService.getStats());
+        stats.put("persistent", rollupService.isPersistent());
+        stats.put("persistedBytes", rollupService.getPersistedBytes());
+        stats.put("lastPersistMillis", rollupService.getLastPersistMillis());
+        return ResponseEntity.ok(stats);
+    }
+
+    private static List<String> split(String values) {
+        return Arrays.stream(values.split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .distinct()
+                .toList();
+    }
+}
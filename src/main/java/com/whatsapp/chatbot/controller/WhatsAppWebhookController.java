@@ -2,9 +2,10 @@ package com.whatsapp.chatbot.controller;
 
 import com.whatsapp.chatbot.dto.WebhookRequest;
 import com.whatsapp.chatbot.model.WhatsAppMessage;
-import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
 import com.whatsapp.chatbot.service.ChatbotService;
 import com.whatsapp.chatbot.service.FirebaseService;
+import com.whatsapp.chatbot.service.MessageLogWriter;
+import com.whatsapp.chatbot.service.NavigationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -24,8 +25,9 @@ import java.util.Arrays;
 public class WhatsAppWebhookController {
 
     private final ChatbotService chatbotService;
-    private final WhatsAppMessageRepository messageRepository;
+    private final MessageLogWriter messageLogWriter;
     private final FirebaseService firebaseService;
+    private final NavigationService navigationService;
 
     @Value("${whatsapp.webhook.verify-token}")
     private String verifyToken;
@@ -100,6 +102,12 @@ public class WhatsAppWebhookController {
         }
 
         Arrays.stream(value.getMessages()).forEach(message -> {
+            // Live location from a navigating user stays in memory: no database or Firebase write per fix
+            if (isLiveLocationUpdate(message)) {
+                log.debug("Live location update {} from {}", message.getId(), message.getFrom());
+                return;
+            }
+
             log.info("Processing message: {} from {}", message.getId(), message.getFrom());
 
             // Save message to database
@@ -118,10 +126,42 @@ public class WhatsAppWebhookController {
                             null,
                             error -> log.error("Error processing message {}: {}", message.getId(), error.getMessage())
                         );
+            } else if (hasLocation(message)) {
+                chatbotService.processLocation(message.getFrom(), message.getLocation().getLatitude(),
+                                message.getLocation().getLongitude())
+                        .subscribe(
+                            null,
+                            error -> log.error("Error processing location {}: {}", message.getId(), error.getMessage())
+                        );
             }
         });
     }
 
+    /**
+     * Feed location messages to navigation
+     *
+     * @return true if the sender was navigating and the fix was consumed
+     */
+    private boolean isLiveLocationUpdate(WebhookRequest.Entry.Change.Value.Message message) {
+        if (!hasLocation(message)) {
+            return false;
+        }
+        var location = message.getLocation();
+        long timestamp = 0;
+        try {
+            timestamp = message.getTimestamp() == null ? 0 : Long.parseLong(message.getTimestamp());
+        } catch (NumberFormatException e) {
+            log.debug("Unparseable message timestamp: {}", message.getTimestamp());
+        }
+        return navigationService.onLocation(message.getFrom(), location.getLatitude(), location.getLongitude(),
+                timestamp);
+    }
+
+    private static boolean hasLocation(WebhookRequest.Entry.Change.Value.Message message) {
+        var location = message.getLocation();
+        return location != null && location.getLatitude() != null && location.getLongitude() != null;
+    }
+
     /**
      * Process message status updates
      */
@@ -133,11 +173,8 @@ public class WhatsAppWebhookController {
         Arrays.stream(value.getStatuses()).forEach(status -> {
             log.debug("Message status update: {} - {}", status.getId(), status.getStatus());
             
-            // Update message status in database
-            messageRepository.findByMessageId(status.getId()).ifPresent(message -> {
-                message.setStatus(status.getStatus());
-                messageRepository.save(message);
-            });
+            // Update message status in database, or once the writer has inserted a still queued message
+            messageLogWriter.updateStatus(status.getId(), status.getStatus());
         });
     }
 
@@ -156,8 +193,8 @@ public class WhatsAppWebhookController {
             dbMessage.setDirection("INBOUND");
             dbMessage.setTimestamp(LocalDateTime.now());
             
-            messageRepository.save(dbMessage);
-            log.debug("Saved inbound message to database: {}", message.getId());
+            messageLogWriter.append(dbMessage);
+            log.debug("Queued inbound message for the database: {}", message.getId());
         } catch (Exception e) {
             log.error("Failed to save inbound message: {}", e.getMessage());
         }
@@ -0,0 +1,20 @@
+package com.whatsapp.chatbot.dto;
+
+import com.whatsapp.chatbot.model.Conversation;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One conversation: its summary and all of its messages, oldest first
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationThread {
+    private Conversation conversation;
+    private List<WhatsAppMessage> messages;
+}
@@ -0,0 +1,20 @@
+package com.whatsapp.chatbot.dto;
+
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a number's message history, newest first. Pass nextCursor as
+ * the before parameter to get the following page; it is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageHistoryPage {
+    private List<WhatsAppMessage> messages;
+    private String nextCursor;
+}
@@ -0,0 +1,20 @@
+package com.whatsapp.chatbot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * A number's preferences and when they were last saved. Instances are
+ * shared through the preference cache, so treat them as read-only.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPreferences {
+    private Map<String, Object> values;
+    /** Epoch millis; the newer copy wins when stores disagree */
+    private long updatedAt;
+}
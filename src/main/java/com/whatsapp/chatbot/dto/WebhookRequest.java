@@ -71,6 +71,7 @@ public class WebhookRequest {
                     private String type;
                     private Text text;
                     private Interactive interactive;
+                    private Location location;
 
                     @Data
                     @NoArgsConstructor
@@ -79,6 +80,16 @@ public class WebhookRequest {
                         private String body;
                     }
 
+                    @Data
+                    @NoArgsConstructor
+                    @AllArgsConstructor
+                    public static class Location {
+                        private Double latitude;
+                        private Double longitude;
+                        private String name;
+                        private String address;
+                    }
+
                     @Data
                     @NoArgsConstructor
                     @AllArgsConstructor
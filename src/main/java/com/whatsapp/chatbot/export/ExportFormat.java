@@ -0,0 +1,31 @@
+package com.whatsapp.chatbot.export;
+
+import java.io.OutputStream;
+
+/**
+ * Output formats for streamed exports
+ */
+public enum ExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public RowWriter open(OutputStream out, String[] columns) {
+        return this == CSV ? new CsvRowWriter(out, columns) : new NdjsonRowWriter(out, columns);
+    }
+}
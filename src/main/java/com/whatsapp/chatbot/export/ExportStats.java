@@ -0,0 +1,27 @@
+package com.whatsapp.chatbot.export;
+
+import lombok.Value;
+
+/**
+ * Outcome of one export: bytes are as sent, after any compression, and rows
+ * include those read from the message archive
+ */
+@Value
+public class ExportStats {
+    String dataset;
+    ExportFormat format;
+    boolean gzip;
+    long rows;
+    long archivedRows;
+    long bytes;
+    long millis;
+    boolean completed;
+
+    public double getRowsPerSecond() {
+        return rows * 1000.0 / Math.max(1, millis);
+    }
+
+    public double getBytesPerSecond() {
+        return bytes * 1000.0 / Math.max(1, millis);
+    }
+}
@@ -0,0 +1,60 @@
+package com.whatsapp.chatbot.export;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * One JSON object per line, keyed by column name
+ */
+final class NdjsonRowWriter implements RowWriter {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private final JsonGenerator generator;
+    private final SerializedString[] names;
+
+    NdjsonRowWriter(OutputStream out, String[] columns) {
+        try {
+            this.generator = FACTORY.createGenerator(out, JsonEncoding.UTF8)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open JSON output", e);
+        }
+        generator.setRootValueSeparator(new SerializedString("\n"));
+        this.names = new SerializedString[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            names[i] = new SerializedString(columns[i]);
+        }
+    }
+
+    @Override
+    public void write(Object[] values) throws IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < names.length; i++) {
+            generator.writeFieldName(names[i]);
+            Object value = values[i];
+            if (value == null) {
+                generator.writeNull();
+            } else if (value instanceof Long || value instanceof Integer) {
+                generator.writeNumber(((Number) value).longValue());
+            } else if (value instanceof Boolean) {
+                generator.writeBoolean((Boolean) value);
+            } else {
+                generator.writeString(value.toString());
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Terminate the last line too, so concatenated exports stay valid NDJSON
+        generator.writeRaw('\n');
+        generator.close();
+    }
+}
@@ -0,0 +1,19 @@
+package com.whatsapp.chatbot.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes rows of a fixed set of columns to an output stream, one at a time.
+ * Values are strings, numbers, booleans or null.
+ */
+public interface RowWriter extends Closeable {
+
+    void write(Object[] values) throws IOException;
+
+    /**
+     * Flush buffered output; closing does not close the underlying stream
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,18 @@
+package com.whatsapp.chatbot.feed;
+
+import lombok.Value;
+
+/**
+ * One event for the dashboard feed, serialized once and shared by every
+ * client it goes to
+ */
+@Value
+public class FeedEvent {
+    String name;
+
+    /** The number the event concerns, for clients following one number; null goes to every client */
+    String phoneNumber;
+
+    /** JSON payload */
+    String data;
+}
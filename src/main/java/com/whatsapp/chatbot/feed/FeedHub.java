@@ -0,0 +1,221 @@
+package com.whatsapp.chatbot.feed;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Fans dashboard events out to every connected client. Publishing only
+ * appends the shared event to each client's bounded buffer, so the
+ * publisher never waits on a client; a client whose buffer is full loses
+ * its oldest event instead. Each client is drained by at most one delivery
+ * task at a time, so a slow client holds one delivery thread; with as many
+ * threads as clients, it holds up nobody else's events.
+ *
+ * A new client, and one that lost events, is sent a snapshot first so its
+ * view is whole again before the deltas resume.
+ */
+@Slf4j
+public final class FeedHub {
+
+    private final int maxClients;
+    private final int bufferSize;
+    private final Executor delivery;
+    private final Supplier<List<FeedEvent>> snapshot;
+
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger clientCount = new AtomicInteger();
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder snapshots = new LongAdder();
+    private final LongAdder rejectedClients = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+
+    /**
+     * @param delivery runs the per-client delivery tasks
+     * @param snapshot the events that bring a client's view up to date
+     */
+    public FeedHub(int maxClients, int bufferSize, Executor delivery, Supplier<List<FeedEvent>> snapshot) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.maxClients = maxClients;
+        this.bufferSize = bufferSize;
+        this.delivery = delivery;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Connect a client; it is sent a snapshot, then every event published from now on
+     *
+     * @param phoneNumber only events for this number, plus those for every client; null for all
+     * @return closes the subscription
+     * @throws IllegalStateException if the hub is full
+     */
+    public Runnable subscribe(FeedSink sink, String phoneNumber) {
+        if (clientCount.incrementAndGet() > maxClients) {
+            clientCount.decrementAndGet();
+            rejectedClients.increment();
+            throw new IllegalStateException("Dashboard feed is full (" + maxClients + " clients)");
+        }
+        Client client = new Client(sink, phoneNumber);
+        clients.add(client);
+        client.resync();
+        return client::close;
+    }
+
+    public boolean hasClients() {
+        return clientCount.get() > 0;
+    }
+
+    public void publish(FeedEvent event) {
+        published.increment();
+        for (Client client : clients) {
+            if (client.follows(event)) {
+                client.offer(event);
+            }
+        }
+    }
+
+    /**
+     * Send every client a fresh snapshot ahead of its next event, after changes the deltas did not cover
+     */
+    public void resyncAll() {
+        clients.forEach(Client::resync);
+    }
+
+    /**
+     * Disconnect every client
+     */
+    public void close() {
+        clients.forEach(Client::close);
+    }
+
+    public FeedStats stats() {
+        return new FeedStats(clientCount.get(), maxClients, bufferSize, published.sum(), delivered.sum(),
+                dropped.sum(), snapshots.sum(), rejectedClients.sum(), disconnected.sum());
+    }
+
+    private final class Client {
+
+        private final FeedSink sink;
+        private final String phoneNumber;
+        private final ArrayDeque<FeedEvent> buffer = new ArrayDeque<>();
+        /** Guarded by this */
+        private boolean scheduled;
+        private boolean needsSnapshot;
+        private boolean closed;
+
+        Client(FeedSink sink, String phoneNumber) {
+            this.sink = sink;
+            this.phoneNumber = phoneNumber;
+        }
+
+        boolean follows(FeedEvent event) {
+            return phoneNumber == null || event.getPhoneNumber() == null
+                    || phoneNumber.equals(event.getPhoneNumber());
+        }
+
+        void offer(FeedEvent event) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (buffer.size() == bufferSize) {
+                    buffer.pollFirst();
+                    dropped.increment();
+                    needsSnapshot = true;
+                }
+                buffer.addLast(event);
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            schedule();
+        }
+
+        void resync() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                // Buffered events still follow the snapshot; replaying them over it is harmless
+                needsSnapshot = true;
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            schedule();
+        }
+
+        void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                buffer.clear();
+            }
+            clients.remove(this);
+            clientCount.decrementAndGet();
+            sink.close();
+        }
+
+        private void schedule() {
+            try {
+                delivery.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                close();
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                boolean sendSnapshot;
+                FeedEvent next;
+                synchronized (this) {
+                    sendSnapshot = needsSnapshot;
+                    needsSnapshot = false;
+                    next = sendSnapshot ? null : buffer.pollFirst();
+                    if (closed || (!sendSnapshot && next == null)) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                try {
+                    if (sendSnapshot) {
+                        for (FeedEvent event : snapshot.get()) {
+                            sink.send(event);
+                        }
+                        snapshots.increment();
+                    } else {
+                        sink.send(next);
+                        delivered.increment();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.debug("Dashboard feed client disconnected: {}", e.getMessage());
+                    disconnected.increment();
+                    synchronized (this) {
+                        scheduled = false;
+                    }
+                    close();
+                    return;
+                }
+            }
+        }
+    }
+}
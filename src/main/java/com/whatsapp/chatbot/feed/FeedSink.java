@@ -0,0 +1,15 @@
+package com.whatsapp.chatbot.feed;
+
+import java.io.IOException;
+
+/**
+ * One client's connection. Called from one delivery thread at a time; a
+ * send may block while the client reads slowly, and a failed send
+ * disconnects the client.
+ */
+public interface FeedSink {
+
+    void send(FeedEvent event) throws IOException;
+
+    void close();
+}
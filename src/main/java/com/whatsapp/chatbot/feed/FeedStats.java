@@ -0,0 +1,27 @@
+package com.whatsapp.chatbot.feed;
+
+import lombok.Value;
+
+/**
+ * Point-in-time counters for the dashboard feed. Published events are
+ * counted once however many clients they go to; delivered and dropped
+ * count per client.
+ */
+@Value
+public class FeedStats {
+    int clients;
+    int maxClients;
+    int bufferSize;
+
+    long published;
+    long delivered;
+
+    /** Oldest buffered events discarded because a client fell behind */
+    long dropped;
+
+    /** Snapshots sent, on connect and after drops or a read model rebuild */
+    long snapshots;
+
+    long rejectedClients;
+    long disconnected;
+}
@@ -0,0 +1,13 @@
+package com.whatsapp.chatbot.firestore;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Commits a group of writes atomically, e.g. as one Firestore WriteBatch
+ */
+@FunctionalInterface
+public interface BatchCommitter {
+
+    CompletableFuture<?> commit(List<FirestoreWrite> writes);
+}
@@ -0,0 +1,259 @@
+package com.whatsapp.chatbot.firestore;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects Firestore writes into batches on a single thread and commits
+ * them without blocking the callers. A batch is committed once it holds
+ * the maximum number of writes or the oldest write has waited the flush
+ * interval. At most a fixed number of batches are in flight, retries
+ * included; while all are busy the queue absorbs new writes, and once it
+ * is full new writes are dropped rather than blocking the caller.
+ *
+ * Failed batches are retried with exponential backoff and jitter. Two
+ * writes to the same document never ride in different in-flight batches,
+ * so a retried batch cannot overwrite a newer write.
+ */
+@Slf4j
+public final class FirestoreBatchWriter implements Runnable, Closeable {
+
+    /** Firestore's limit on writes per batch */
+    public static final int MAX_BATCH_WRITES = 500;
+
+    private static final long IDLE_POLL_MILLIS = 200;
+    private static final long DEFERRED_POLL_MILLIS = 5;
+
+    private final BlockingQueue<Queued> queue;
+    private final BatchCommitter committer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private volatile boolean running = true;
+
+    /** Writes held back because an in-flight batch writes the same document */
+    private final Queue<Queued> deferred = new ConcurrentLinkedQueue<>();
+    private final Set<String> inFlightPaths = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder sizeFlushes = new LongAdder();
+    private final LongAdder intervalFlushes = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder commitNanos = new LongAdder();
+    private final AtomicLong maxCommitNanos = new AtomicLong();
+
+    public FirestoreBatchWriter(BatchCommitter committer, int queueCapacity, int batchSize, Duration flushInterval,
+                                int maxInFlight, int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+        if (queueCapacity < 1 || maxInFlight < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("Queue capacity, in-flight batches and attempts must be positive");
+        }
+        if (batchSize < 1 || batchSize > MAX_BATCH_WRITES) {
+            throw new IllegalArgumentException("Batch size must be between 1 and " + MAX_BATCH_WRITES);
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.committer = committer;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = Math.max(1, initialBackoff.toMillis());
+        this.maxBackoffMillis = Math.max(initialBackoffMillis, maxBackoff.toMillis());
+    }
+
+    /**
+     * Queue a write without blocking
+     *
+     * @return false if the queue is full and the write was dropped
+     */
+    public boolean offer(FirestoreWrite write) {
+        if (queue.offer(new Queued(write, System.nanoTime()))) {
+            accepted.increment();
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    @Override
+    public void run() {
+        while (running || !queue.isEmpty() || !deferred.isEmpty()) {
+            try {
+                Map<String, FirestoreWrite> batch = collect();
+                if (!batch.isEmpty()) {
+                    inFlight.acquire();
+                    commit(new ArrayList<>(batch.values()), 1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                return;
+            } catch (RuntimeException e) {
+                log.error("Firestore writer error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Wait until every batch in flight has committed or given up
+     *
+     * @return false if some were still in flight at the timeout
+     */
+    public boolean awaitIdle(Duration timeout) throws InterruptedException {
+        if (!inFlight.tryAcquire(maxInFlight, timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            return false;
+        }
+        inFlight.release(maxInFlight);
+        return true;
+    }
+
+    /**
+     * Stop taking batches once the queue is drained
+     */
+    @Override
+    public void close() {
+        running = false;
+    }
+
+    public FirestoreWriterStats stats() {
+        Queued oldest = queue.peek();
+        long batchCount = batches.sum();
+        long commitCount = commits.sum();
+        return new FirestoreWriterStats(queue.size() + deferred.size(), queue.size() + queue.remainingCapacity(),
+                oldest == null ? 0 : (System.nanoTime() - oldest.queuedNanos) / 1_000_000,
+                accepted.sum(), dropped.sum(), coalesced.sum(), written.sum(), failed.sum(),
+                batchCount, sizeFlushes.sum(), intervalFlushes.sum(), retries.sum(),
+                maxInFlight - inFlight.availablePermits(),
+                batchCount == 0 ? 0.0 : (double) (written.sum() + failed.sum()) / batchCount,
+                commitCount == 0 ? 0.0 : commitNanos.sum() / 1e6 / commitCount, maxCommitNanos.get() / 1e6);
+    }
+
+    /**
+     * Gather the next batch, waiting until it is full or its oldest write is
+     * a flush interval old; empty if nothing arrived
+     */
+    private Map<String, FirestoreWrite> collect() throws InterruptedException {
+        Map<String, FirestoreWrite> batch = new LinkedHashMap<>();
+        List<Queued> blocked = new ArrayList<>();
+        Set<String> blockedPaths = new HashSet<>();
+        long deadline = 0;
+        // Held-back writes go first, so they stay ahead of later writes to the same document
+        int pendingDeferred = deferred.size();
+        while (batch.size() < batchSize) {
+            Queued next;
+            if (pendingDeferred > 0) {
+                pendingDeferred--;
+                next = deferred.poll();
+            } else if (batch.isEmpty()) {
+                boolean waiting = !blocked.isEmpty() || !deferred.isEmpty();
+                next = queue.poll(waiting ? DEFERRED_POLL_MILLIS : IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } else {
+                long remaining = deadline - System.nanoTime();
+                next = remaining > 0 && running ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            }
+            if (next == null) {
+                break;
+            }
+            String path = next.write.path();
+            if (inFlightPaths.contains(path) || blockedPaths.contains(path)) {
+                blocked.add(next);
+                blockedPaths.add(path);
+                continue;
+            }
+            if (batch.isEmpty()) {
+                deadline = next.queuedNanos + flushIntervalNanos;
+            }
+            if (batch.put(path, next.write) != null) {
+                coalesced.increment();
+            }
+        }
+        deferred.addAll(blocked);
+        if (batch.size() >= batchSize) {
+            sizeFlushes.increment();
+        } else if (!batch.isEmpty()) {
+            intervalFlushes.increment();
+        }
+        return batch;
+    }
+
+    private void commit(List<FirestoreWrite> writes, int attempt) {
+        if (attempt == 1) {
+            batches.increment();
+            writes.forEach(write -> inFlightPaths.add(write.path()));
+        }
+        long start = System.nanoTime();
+        CompletableFuture<?> result;
+        try {
+            result = committer.commit(writes);
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((ignored, error) -> {
+            long nanos = System.nanoTime() - start;
+            commits.increment();
+            commitNanos.add(nanos);
+            maxCommitNanos.accumulateAndGet(nanos, Math::max);
+            if (error == null) {
+                written.add(writes.size());
+                finish(writes);
+            } else if (attempt < maxAttempts) {
+                retries.increment();
+                long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+                long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+                log.warn("Firestore batch of {} writes failed (attempt {} of {}), retrying in {} ms: {}",
+                        writes.size(), attempt, maxAttempts, delay, error.getMessage());
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+                        .execute(() -> commit(writes, attempt + 1));
+            } else {
+                failed.add(writes.size());
+                log.error("Firestore batch of {} writes failed after {} attempts, dropping it: {}",
+                        writes.size(), attempt, error.getMessage());
+                finish(writes);
+            }
+        });
+    }
+
+    private void finish(List<FirestoreWrite> writes) {
+        writes.forEach(write -> inFlightPaths.remove(write.path()));
+        inFlight.release();
+    }
+
+    private static final class Queued {
+        final FirestoreWrite write;
+        final long queuedNanos;
+
+        Queued(FirestoreWrite write, long queuedNanos) {
+            this.write = write;
+            this.queuedNanos = queuedNanos;
+        }
+    }
+}
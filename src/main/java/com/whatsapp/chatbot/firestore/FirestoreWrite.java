@@ -0,0 +1,54 @@
+package com.whatsapp.chatbot.firestore;
+
+import lombok.Value;
+
+import java.security.SecureRandom;
+import java.util.Map;
+
+/**
+ * One document write waiting for a batch. New documents get their id when
+ * queued rather than from the server, so a batch retried after an
+ * ambiguous failure rewrites the same documents instead of adding copies.
+ */
+@Value
+public class FirestoreWrite {
+
+    private static final String ID_CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    String collection;
+    String documentId;
+    Map<String, Object> data;
+
+    /**
+     * Write a new document with a generated id, like CollectionReference.add
+     */
+    public static FirestoreWrite add(String collection, Map<String, Object> data) {
+        return new FirestoreWrite(collection, generateId(), data);
+    }
+
+    /**
+     * Replace the document with the given id
+     */
+    public static FirestoreWrite set(String collection, String documentId, Map<String, Object> data) {
+        return new FirestoreWrite(collection, documentId, data);
+    }
+
+    /**
+     * The document's path; writes to the same path are applied in the order they were queued
+     */
+    public String path() {
+        return collection + "/" + documentId;
+    }
+
+    /**
+     * A 20-character id, as Firestore generates for new documents
+     */
+    private static String generateId() {
+        char[] id = new char[20];
+        for (int i = 0; i < id.length; i++) {
+            id[i] = ID_CHARACTERS.charAt(RANDOM.nextInt(ID_CHARACTERS.length()));
+        }
+        return new String(id);
+    }
+}
@@ -0,0 +1,35 @@
+package com.whatsapp.chatbot.firestore;
+
+import lombok.Value;
+
+/**
+ * Point-in-time counters for the batched Firestore writer. Writes are
+ * counted once committed; dropped writes never made it into the queue and
+ * failed writes gave up after the last retry.
+ */
+@Value
+public class FirestoreWriterStats {
+    int backlog;
+    int queueCapacity;
+
+    /** How long the oldest queued write has waited */
+    long oldestQueuedMillis;
+
+    long accepted;
+    long dropped;
+
+    /** Writes superseded by a later write to the same document in the same batch */
+    long coalesced;
+
+    long written;
+    long failed;
+
+    long batches;
+    long sizeFlushes;
+    long intervalFlushes;
+    long retries;
+    int inFlightBatches;
+    double meanBatchSize;
+    double meanCommitMillis;
+    double maxCommitMillis;
+}
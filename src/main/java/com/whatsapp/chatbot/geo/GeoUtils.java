@@ -0,0 +1,56 @@
+package com.whatsapp.chatbot.geo;
+
+/**
+ * Geographic helper functions shared by the in-process location engines
+ */
+public final class GeoUtils {
+
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    /** Meters per degree of latitude (constant on a sphere) */
+    public static final double METERS_PER_DEGREE = Math.toRadians(1) * EARTH_RADIUS_METERS;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Great-circle distance in meters
+     */
+    public static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /**
+     * Equirectangular approximation, accurate to well under 1% at city scale
+     * and several times cheaper than haversine. Used for ranking inner loops.
+     */
+    public static double fastDistanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double x = Math.toRadians(lon2 - lon1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = Math.toRadians(lat2 - lat1);
+        return Math.sqrt(x * x + y * y) * EARTH_RADIUS_METERS;
+    }
+
+    /**
+     * Format a distance for chat output, e.g. "850 m" or "12.4 km"
+     */
+    public static String formatDistance(double meters) {
+        if (meters < 1000) {
+            return Math.round(meters) + " m";
+        }
+        return String.format("%.1f km", meters / 1000.0);
+    }
+
+    /** Fixed-point (1e-6 degree) encoding used by the packed indexes */
+    public static int toMicroDegrees(double degrees) {
+        return (int) Math.round(degrees * 1_000_000.0);
+    }
+
+    public static double fromMicroDegrees(int microDegrees) {
+        return microDegrees / 1_000_000.0;
+    }
+}
@@ -0,0 +1,548 @@
+package com.whatsapp.chatbot.geo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Prefix autocomplete over place names as a double-array trie.
+ *
+ * Keys are the normalized full names plus each later word on its own, so
+ * "squ" finds "Times Square". Transitions use UTF-8 bytes: the child of slot
+ * {@code s} on byte {@code b} is {@code base[s] + b + 1}, valid when
+ * {@code check} of that slot is {@code s + 1}. Once only one distinct key
+ * remains below a slot its remaining bytes go to a tail array instead of a
+ * chain of slots ({@code base} holds {@code -(tailOffset + 1)}).
+ *
+ * Every slot points at a precomputed list of its best completions (full-name
+ * matches before word matches, then by popularity), so a lookup is one step
+ * per prefix byte plus a copy. Single-child chains share their descendant's
+ * list. Arrays are buffer views so the trie can be used from the heap right
+ * after a build or memory-mapped from a prebuilt file.
+ */
+public final class PlaceAutocomplete {
+
+    private static final int MAGIC = 0x50414331; // "PAC1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int MAX_KEY_BYTES = 255;
+    private static final int[] NONE = new int[0];
+
+    private final long fingerprint;
+    private final int maxCompletions;
+    private final int slots;
+    private final IntBuffer base;
+    private final IntBuffer check;
+    private final IntBuffer top;
+    private final IntBuffer pool;
+    private final ByteBuffer tail;
+
+    private PlaceAutocomplete(long fingerprint, int maxCompletions, IntBuffer base, IntBuffer check,
+                              IntBuffer top, IntBuffer pool, ByteBuffer tail) {
+        this.fingerprint = fingerprint;
+        this.maxCompletions = maxCompletions;
+        this.slots = base.limit();
+        this.base = base;
+        this.check = check;
+        this.top = top;
+        this.pool = pool;
+        this.tail = tail;
+    }
+
+    /**
+     * Build from the names and popularity of every POI in an index
+     *
+     * @param maxCompletions completions kept per trie node, the upper bound for {@link #complete}
+     */
+    public static PlaceAutocomplete build(PoiIndex index, long fingerprint, int maxCompletions) {
+        if (maxCompletions < 1) {
+            throw new IllegalArgumentException("maxCompletions must be positive: " + maxCompletions);
+        }
+        return new Builder(index, maxCompletions).build(fingerprint);
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public int maxCompletions() {
+        return maxCompletions;
+    }
+
+    public int slotCount() {
+        return slots;
+    }
+
+    public long sizeBytes() {
+        return HEADER_BYTES + 4L * (3L * slots + pool.limit()) + tail.limit();
+    }
+
+    /**
+     * POI ids completing a typed prefix, best first
+     */
+    public int[] complete(String prefix, int k) {
+        String normalized = PlaceTokenizer.normalize(prefix);
+        if (normalized.isEmpty() || k <= 0 || slots == 0) {
+            return NONE;
+        }
+
+        int state = 0;
+        byte[] bytes = normalized.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_KEY_BYTES);
+        for (int i = 0; i < length; i++) {
+            int stateBase = base.get(state);
+            if (stateBase < 0) {
+                if (!tailStartsWith(-stateBase - 1, bytes, i, length)) {
+                    return NONE;
+                }
+                break;
+            }
+            int next = stateBase + (bytes[i] & 0xFF) + 1;
+            if (next >= slots || check.get(next) != state + 1) {
+                return NONE;
+            }
+            state = next;
+        }
+
+        int offset = top.get(state);
+        int[] ids = new int[Math.min(k, pool.get(offset))];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = pool.get(offset + 1 + i);
+        }
+        return ids;
+    }
+
+    private boolean tailStartsWith(int offset, byte[] bytes, int from, int to) {
+        int tailLength = tail.get(offset) & 0xFF;
+        if (to - from > tailLength) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (tail.get(offset + 1 + i - from) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Persist in the little-endian layout read by {@link #map(Path)}.
+     * Written to a temp file and moved into place so readers never see a partial file.
+     */
+    public void write(Path path) throws IOException {
+        long total = sizeBytes();
+        if (total > Integer.MAX_VALUE) {
+            throw new IOException("Autocomplete index too large for a single mapped segment: " + total + " bytes");
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, total);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC).putInt(VERSION).putLong(fingerprint)
+                    .putInt(slots).putInt(pool.limit()).putInt(tail.limit()).putInt(maxCompletions);
+            out.position(HEADER_BYTES);
+            putInts(out, base);
+            putInts(out, check);
+            putInts(out, top);
+            putInts(out, pool);
+            for (int i = 0; i < tail.limit(); i++) {
+                out.put(tail.get(i));
+            }
+            out.force();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Open a file written by {@link #write(Path)} without copying it onto the heap
+     */
+    public static PlaceAutocomplete map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Autocomplete file too large: " + channel.size());
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            in.order(ByteOrder.LITTLE_ENDIAN);
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                throw new IOException("Not an autocomplete index file (or unsupported version): " + path);
+            }
+            long fingerprint = in.getLong();
+            int slots = in.getInt();
+            int poolSize = in.getInt();
+            int tailSize = in.getInt();
+            int maxCompletions = in.getInt();
+            if (HEADER_BYTES + 4L * (3L * slots + poolSize) + tailSize != channel.size()) {
+                throw new IOException("Corrupt autocomplete index file: " + path);
+            }
+            in.position(HEADER_BYTES);
+
+            IntBuffer base = sliceInts(in, slots);
+            IntBuffer check = sliceInts(in, slots);
+            IntBuffer top = sliceInts(in, slots);
+            IntBuffer pool = sliceInts(in, poolSize);
+            ByteBuffer tail = in.slice();
+            tail.limit(tailSize);
+            return new PlaceAutocomplete(fingerprint, maxCompletions, base, check, top, pool, tail);
+        }
+    }
+
+    /**
+     * Read only the fingerprint of an index file, or 0 if it is missing or unreadable
+     */
+    public static long readFingerprint(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < 16 || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                return 0;
+            }
+            return header.getLong();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void putInts(ByteBuffer out, IntBuffer values) {
+        for (int i = 0; i < values.limit(); i++) {
+            out.putInt(values.get(i));
+        }
+    }
+
+    private static IntBuffer sliceInts(ByteBuffer in, int count) {
+        IntBuffer view = in.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        view.limit(count);
+        in.position(in.position() + count * 4);
+        return view;
+    }
+
+    /**
+     * Places sorted keys into the double array depth-first. Child slots are
+     * reserved before recursing; completion lists are merged bottom-up.
+     */
+    private static final class Builder {
+        private static final float FULL_NAME_BONUS = 2.0f;
+        private static final int MAX_BASE_ATTEMPTS = 16;
+
+        private final int k;
+        private byte[][] keys;
+        private int[] keyPoi;
+        private float[] keyWeight;
+        private int keyCount;
+
+        private int[] base = new int[1024];
+        private int[] check = new int[1024];
+        private int[] top = new int[1024];
+        private int size = 1;
+
+        // Free slots still worth trying as the first child of a new base
+        private int[] nextCandidate = new int[1024];
+        private int[] previousCandidate = new int[1024];
+        private byte[] attempts = new byte[1024];
+
+        private byte[] tail = new byte[1024];
+        private int tailSize;
+
+        private int[] pool = new int[1024];
+        private float[] poolWeight = new float[1024];
+        private int poolSize;
+
+        private final int[] candidateIds;
+        private final float[] candidateWeights;
+        private final Integer[] order;
+
+        Builder(PoiIndex index, int k) {
+            this.k = k;
+            int capacity = Math.max(16, index.size() * 3);
+            keys = new byte[capacity][];
+            keyPoi = new int[capacity];
+            keyWeight = new float[capacity];
+            for (int poi = 0; poi < index.size(); poi++) {
+                List<String> tokens = PlaceTokenizer.tokenize(index.name(poi));
+                if (tokens.isEmpty()) {
+                    continue;
+                }
+                float popularity = index.popularity(poi);
+                addKey(String.join(" ", tokens).getBytes(StandardCharsets.UTF_8), poi, popularity + FULL_NAME_BONUS);
+                for (int i = 1; i < tokens.size(); i++) {
+                    addKey(tokens.get(i).getBytes(StandardCharsets.UTF_8), poi, popularity);
+                }
+            }
+            candidateIds = new int[257 * k];
+            candidateWeights = new float[257 * k];
+            order = new Integer[257 * k];
+        }
+
+        private void addKey(byte[] key, int poi, float weight) {
+            if (keyCount == keys.length) {
+                int capacity = keyCount * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                keyPoi = Arrays.copyOf(keyPoi, capacity);
+                keyWeight = Arrays.copyOf(keyWeight, capacity);
+            }
+            keys[keyCount] = key.length > MAX_KEY_BYTES ? Arrays.copyOf(key, MAX_KEY_BYTES) : key;
+            keyPoi[keyCount] = poi;
+            keyWeight[keyCount] = weight;
+            keyCount++;
+        }
+
+        PlaceAutocomplete build(long fingerprint) {
+            Integer[] sorted = new Integer[keyCount];
+            for (int i = 0; i < keyCount; i++) {
+                sorted[i] = i;
+            }
+            Arrays.sort(sorted, (a, b) -> Arrays.compareUnsigned(keys[a], keys[b]));
+            byte[][] sortedKeys = new byte[keyCount][];
+            int[] sortedPoi = new int[keyCount];
+            float[] sortedWeight = new float[keyCount];
+            for (int i = 0; i < keyCount; i++) {
+                sortedKeys[i] = keys[sorted[i]];
+                sortedPoi[i] = keyPoi[sorted[i]];
+                sortedWeight[i] = keyWeight[sorted[i]];
+            }
+            keys = sortedKeys;
+            keyPoi = sortedPoi;
+            keyWeight = sortedWeight;
+
+            check[0] = -1;
+            linkCandidates(1, check.length);
+            if (keyCount > 0) {
+                place(0, keyCount, 0, 0);
+            } else {
+                top[0] = appendList(0);
+            }
+            return new PlaceAutocomplete(fingerprint, k,
+                    IntBuffer.wrap(Arrays.copyOf(base, size)), IntBuffer.wrap(Arrays.copyOf(check, size)),
+                    IntBuffer.wrap(Arrays.copyOf(top, size)), IntBuffer.wrap(Arrays.copyOf(pool, poolSize)),
+                    ByteBuffer.wrap(Arrays.copyOf(tail, tailSize)));
+        }
+
+        /**
+         * Keys [lo, hi) share their first {@code depth} bytes and end at or below {@code slot}
+         */
+        private void place(int lo, int hi, int depth, int slot) {
+            if (keys[lo].length > depth && Arrays.equals(keys[lo], keys[hi - 1])) {
+                base[slot] = -(appendTail(keys[lo], depth) + 1);
+                top[slot] = appendList(collectTerminals(lo, hi, 0));
+                return;
+            }
+
+            int terminalsEnd = lo;
+            while (terminalsEnd < hi && keys[terminalsEnd].length == depth) {
+                terminalsEnd++;
+            }
+
+            int childCount = 0;
+            int[] codes = new int[Math.min(256, hi - terminalsEnd)];
+            int[] starts = new int[codes.length + 1];
+            for (int i = terminalsEnd; i < hi; i++) {
+                int code = (keys[i][depth] & 0xFF) + 1;
+                if (childCount == 0 || codes[childCount - 1] != code) {
+                    codes[childCount] = code;
+                    starts[childCount] = i;
+                    childCount++;
+                }
+            }
+            starts[childCount] = hi;
+
+            int[] children = new int[childCount];
+            if (childCount > 0) {
+                int childBase = findBase(codes, childCount);
+                base[slot] = childBase;
+                for (int c = 0; c < childCount; c++) {
+                    children[c] = childBase + codes[c];
+                    check[children[c]] = slot + 1;
+                    unlinkCandidate(children[c]);
+                }
+                size = Math.max(size, children[childCount - 1] + 1);
+                for (int c = 0; c < childCount; c++) {
+                    place(starts[c], starts[c + 1], depth + 1, children[c]);
+                }
+            }
+
+            if (terminalsEnd == lo && childCount == 1) {
+                top[slot] = top[children[0]];
+                return;
+            }
+
+            int candidates = collectTerminals(lo, terminalsEnd, 0);
+            for (int child : children) {
+                int offset = top[child];
+                for (int j = 0; j < pool[offset]; j++) {
+                    candidateIds[candidates] = pool[offset + 1 + j];
+                    candidateWeights[candidates] = poolWeight[offset + 1 + j];
+                    candidates++;
+                }
+                if (candidates > candidateIds.length - k) {
+                    candidates = compact(candidates);
+                }
+            }
+            top[slot] = appendList(compact(candidates));
+        }
+
+        /**
+         * Add the POIs of keys [lo, hi) to the candidate buffer, compacting as it fills
+         */
+        private int collectTerminals(int lo, int hi, int candidates) {
+            for (int i = lo; i < hi; i++) {
+                candidateIds[candidates] = keyPoi[i];
+                candidateWeights[candidates] = keyWeight[i];
+                candidates++;
+                if (candidates == candidateIds.length - k) {
+                    candidates = compact(candidates);
+                }
+            }
+            return compact(candidates);
+        }
+
+        private int appendTail(byte[] key, int from) {
+            int length = key.length - from;
+            if (tailSize + length + 1 > tail.length) {
+                tail = Arrays.copyOf(tail, Math.max(tail.length * 2, tailSize + length + 1));
+            }
+            int offset = tailSize;
+            tail[offset] = (byte) length;
+            System.arraycopy(key, from, tail, offset + 1, length);
+            tailSize += length + 1;
+            return offset;
+        }
+
+        /**
+         * Reduce the candidate buffer to its best k distinct POIs, best first
+         */
+        private int compact(int candidates) {
+            for (int i = 0; i < candidates; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, 0, candidates, (a, b) -> {
+                int byWeight = Float.compare(candidateWeights[b], candidateWeights[a]);
+                return byWeight != 0 ? byWeight : Integer.compare(candidateIds[a], candidateIds[b]);
+            });
+            int[] ids = new int[Math.min(candidates, k)];
+            float[] weights = new float[ids.length];
+            int kept = 0;
+            for (int i = 0; i < candidates && kept < ids.length; i++) {
+                int id = candidateIds[order[i]];
+                boolean duplicate = false;
+                for (int j = 0; j < kept && !duplicate; j++) {
+                    duplicate = ids[j] == id;
+                }
+                if (!duplicate) {
+                    ids[kept] = id;
+                    weights[kept] = candidateWeights[order[i]];
+                    kept++;
+                }
+            }
+            System.arraycopy(ids, 0, candidateIds, 0, kept);
+            System.arraycopy(weights, 0, candidateWeights, 0, kept);
+            return kept;
+        }
+
+        private int appendList(int count) {
+            ensurePool(poolSize + count + 1);
+            int offset = poolSize;
+            pool[offset] = count;
+            for (int i = 0; i < count; i++) {
+                pool[offset + 1 + i] = candidateIds[i];
+                poolWeight[offset + 1 + i] = candidateWeights[i];
+            }
+            poolSize += count + 1;
+            return offset;
+        }
+
+        /**
+         * First base at which every child code lands on a free slot. Only free
+         * slots are tried as the first child position, and slots that keep
+         * failing are dropped from the candidate list so the scan stays short.
+         */
+        private int findBase(int[] codes, int count) {
+            int position = nextCandidate[0];
+            while (true) {
+                if (position == 0) {
+                    int grownFrom = check.length;
+                    ensureSlots(grownFrom + 257);
+                    position = grownFrom;
+                    continue;
+                }
+                int candidate = position - codes[0];
+                if (candidate >= 1) {
+                    ensureSlots(candidate + 257);
+                    boolean fits = true;
+                    for (int c = 1; c < count && fits; c++) {
+                        fits = check[candidate + codes[c]] == 0;
+                    }
+                    if (fits) {
+                        return candidate;
+                    }
+                }
+                int next = nextCandidate[position];
+                if (candidate >= 1 && ++attempts[position] >= MAX_BASE_ATTEMPTS) {
+                    unlinkCandidate(position);
+                }
+                position = next;
+            }
+        }
+
+        private void ensureSlots(int capacity) {
+            if (capacity > check.length) {
+                int previous = check.length;
+                int grown = Math.max(capacity, previous + (previous >> 1));
+                base = Arrays.copyOf(base, grown);
+                check = Arrays.copyOf(check, grown);
+                top = Arrays.copyOf(top, grown);
+                nextCandidate = Arrays.copyOf(nextCandidate, grown);
+                previousCandidate = Arrays.copyOf(previousCandidate, grown);
+                attempts = Arrays.copyOf(attempts, grown);
+                linkCandidates(previous, grown);
+            }
+        }
+
+        /**
+         * Append slots [from, to) to the circular candidate list; slot 0 (the root) is its sentinel
+         */
+        private void linkCandidates(int from, int to) {
+            for (int position = from; position < to; position++) {
+                int last = previousCandidate[0];
+                nextCandidate[last] = position;
+                previousCandidate[position] = last;
+                nextCandidate[position] = 0;
+                previousCandidate[0] = position;
+            }
+        }
+
+        private void unlinkCandidate(int position) {
+            if (attempts[position] < 0) {
+                return;
+            }
+            nextCandidate[previousCandidate[position]] = nextCandidate[position];
+            previousCandidate[nextCandidate[position]] = previousCandidate[position];
+            attempts[position] = -1;
+        }
+
+        private void ensurePool(int capacity) {
+            if (capacity > pool.length) {
+                int grown = Math.max(capacity, pool.length * 2);
+                pool = Arrays.copyOf(pool, grown);
+                poolWeight = Arrays.copyOf(poolWeight, grown);
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.whatsapp.chatbot.geo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A ranked point-of-interest search result
+ */
+@Data
+@AllArgsConstructor
+public class PoiHit {
+    private int poiId;
+    private String name;
+    private String category;
+    private double latitude;
+    private double longitude;
+    private double distanceMeters;
+    private double score;
+}
@@ -0,0 +1,547 @@
+package com.whatsapp.chatbot.geo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, in-memory point-of-interest index.
+ *
+ * All per-POI attributes are stored in parallel primitive arrays ordered by
+ * grid cell, so a cell is a contiguous id range and posting lists are sorted
+ * both by id and (roughly) by location. Two access paths are provided:
+ * <ul>
+ *   <li>a uniform lat/lon grid (cell keys + start offsets, CSR style) searched
+ *       in expanding rings for nearest-neighbour queries</li>
+ *   <li>an inverted name index (term -> sorted POI ids) for text queries</li>
+ * </ul>
+ * Results are ranked by a weighted mix of text match, proximity and popularity.
+ */
+public final class PoiIndex {
+
+    /** Below this many candidates, text matches are scored directly instead of walking the grid */
+    private static final int DIRECT_SCAN_LIMIT = 4096;
+
+    /** Terms with more postings than this are ignored by the partial-match fallback */
+    private static final int PARTIAL_MATCH_TERM_LIMIT = 65_536;
+
+    /** Distance at which the proximity score halves */
+    private static final double PROXIMITY_SCALE_METERS = 2_000.0;
+
+    private static final double NAME_TEXT_WEIGHT = 0.6;
+    private static final double NAME_PROXIMITY_WEIGHT = 0.3;
+    private static final double NAME_POPULARITY_WEIGHT = 0.1;
+    private static final double NAME_MAX_RADIUS_METERS = 100_000.0;
+
+    private final int size;
+    private final int[] latE6;
+    private final int[] lonE6;
+    private final float[] popularity;
+    private final float maxPopularity;
+    private final int[] categoryIds;
+    private final String[] categories;
+    private final byte[] nameBytes;
+    private final int[] nameOffsets;
+
+    private final double cellSize;
+    private final int latCells;
+    private final int lonCells;
+    private final long[] cellKeys;
+    private final int[] cellStarts;
+
+    private final Map<String, Integer> termIds;
+    private final int[] postingOffsets;
+    private final int[] postings;
+
+    private PoiIndex(Builder builder) {
+        this.cellSize = builder.cellSize;
+        this.latCells = builder.latCells;
+        this.lonCells = builder.lonCells;
+        this.size = builder.size;
+        this.categories = builder.categories.toArray(new String[0]);
+
+        // Order POIs by grid cell so each cell is a contiguous id range
+        long[] packed = new long[size];
+        for (int i = 0; i < size; i++) {
+            packed[i] = (cellKey(builder.lat[i], builder.lon[i]) << 32) | i;
+        }
+        Arrays.sort(packed);
+
+        this.latE6 = new int[size];
+        this.lonE6 = new int[size];
+        this.popularity = new float[size];
+        this.categoryIds = new int[size];
+        this.nameOffsets = new int[size + 1];
+        this.nameBytes = new byte[builder.namesLength];
+
+        int distinctCells = 0;
+        long previousKey = -1;
+        float maxPop = 0f;
+        int namePos = 0;
+        for (int j = 0; j < size; j++) {
+            int src = (int) packed[j];
+            long key = packed[j] >>> 32;
+            if (key != previousKey) {
+                distinctCells++;
+                previousKey = key;
+            }
+            latE6[j] = builder.lat[src];
+            lonE6[j] = builder.lon[src];
+            popularity[j] = builder.popularity[src];
+            categoryIds[j] = builder.categoryIds[src];
+            maxPop = Math.max(maxPop, popularity[j]);
+
+            int from = builder.nameOffsets[src];
+            int len = builder.nameOffsets[src + 1] - from;
+            System.arraycopy(builder.names, from, nameBytes, namePos, len);
+            nameOffsets[j] = namePos;
+            namePos += len;
+        }
+        nameOffsets[size] = namePos;
+        this.maxPopularity = maxPop;
+
+        this.cellKeys = new long[distinctCells];
+        this.cellStarts = new int[distinctCells + 1];
+        int cell = -1;
+        previousKey = -1;
+        for (int j = 0; j < size; j++) {
+            long key = packed[j] >>> 32;
+            if (key != previousKey) {
+                cell++;
+                cellKeys[cell] = key;
+                cellStarts[cell] = j;
+                previousKey = key;
+            }
+        }
+        cellStarts[distinctCells] = size;
+
+        // Inverted name index, built in two passes to avoid boxing per posting
+        this.termIds = new HashMap<>();
+        int[] termCounts = new int[1024];
+        int[] poiTermStarts = new int[size + 1];
+        int[] poiTerms = new int[Math.max(16, size * 3)];
+        int termSeqLength = 0;
+        for (int j = 0; j < size; j++) {
+            poiTermStarts[j] = termSeqLength;
+            for (String token : new LinkedHashSet<>(PlaceTokenizer.tokenize(name(j) + " " + category(j)))) {
+                Integer termId = termIds.get(token);
+                if (termId == null) {
+                    termId = termIds.size();
+                    termIds.put(token, termId);
+                    if (termId == termCounts.length) {
+                        termCounts = Arrays.copyOf(termCounts, termCounts.length * 2);
+                    }
+                }
+                termCounts[termId]++;
+                if (termSeqLength == poiTerms.length) {
+                    poiTerms = Arrays.copyOf(poiTerms, poiTerms.length + (poiTerms.length >> 1));
+                }
+                poiTerms[termSeqLength++] = termId;
+            }
+        }
+        poiTermStarts[size] = termSeqLength;
+
+        int termCount = termIds.size();
+        this.postingOffsets = new int[termCount + 1];
+        for (int t = 0; t < termCount; t++) {
+            postingOffsets[t + 1] = postingOffsets[t] + termCounts[t];
+        }
+        this.postings = new int[termSeqLength];
+        int[] fill = Arrays.copyOf(postingOffsets, termCount);
+        for (int j = 0; j < size; j++) {
+            for (int p = poiTermStarts[j]; p < poiTermStarts[j + 1]; p++) {
+                postings[fill[poiTerms[p]]++] = j;
+            }
+        }
+    }
+
+    public static Builder builder(double cellSizeDegrees) {
+        return new Builder(cellSizeDegrees);
+    }
+
+    public static PoiIndex empty() {
+        return builder(0.01).build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int cellCount() {
+        return cellKeys.length;
+    }
+
+    public int termCount() {
+        return termIds.size();
+    }
+
+    public String name(int poiId) {
+        int from = nameOffsets[poiId];
+        return new String(nameBytes, from, nameOffsets[poiId + 1] - from, StandardCharsets.UTF_8);
+    }
+
+    public String category(int poiId) {
+        return categories[categoryIds[poiId]];
+    }
+
+    public double latitude(int poiId) {
+        return GeoUtils.fromMicroDegrees(latE6[poiId]);
+    }
+
+    public double longitude(int poiId) {
+        return GeoUtils.fromMicroDegrees(lonE6[poiId]);
+    }
+
+    public float popularity(int poiId) {
+        return popularity[poiId];
+    }
+
+    /**
+     * Find the k nearest POIs matching all terms of {@code what} (any POI if blank),
+     * within {@code maxRadiusMeters}, ordered by distance.
+     */
+    public List<PoiHit> nearest(String what, double latitude, double longitude, int k, double maxRadiusMeters) {
+        return query(PlaceTokenizer.tokenize(what), latitude, longitude, k, maxRadiusMeters, 0.0, 1.0, 0.0);
+    }
+
+    /**
+     * Find the top-k POIs for a name query, ranked by text match, proximity to
+     * the given point and popularity. Falls back to partial term matches when
+     * no POI contains every term.
+     */
+    public List<PoiHit> search(String query, double latitude, double longitude, int k) {
+        return query(PlaceTokenizer.tokenize(query), latitude, longitude, k, NAME_MAX_RADIUS_METERS,
+                NAME_TEXT_WEIGHT, NAME_PROXIMITY_WEIGHT, NAME_POPULARITY_WEIGHT);
+    }
+
+    private List<PoiHit> query(List<String> tokens, double latitude, double longitude, int k, double maxRadius,
+                               double textWeight, double proximityWeight, double popularityWeight) {
+        if (size == 0 || k <= 0) {
+            return List.of();
+        }
+
+        Ranker ranker = new Ranker(k, latitude, longitude, maxRadius, textWeight, proximityWeight, popularityWeight);
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokens));
+        if (terms.isEmpty()) {
+            ringSearch(null, ranker);
+            return ranker.toHits();
+        }
+
+        int[] lists = new int[terms.size()];
+        boolean allPresent = true;
+        for (int t = 0; t < terms.size(); t++) {
+            Integer termId = termIds.get(terms.get(t));
+            lists[t] = termId == null ? -1 : termId;
+            allPresent &= termId != null;
+        }
+
+        if (allPresent) {
+            int[] byLength = Arrays.stream(lists).boxed()
+                    .sorted(Comparator.comparingInt(this::postingCount))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            int driver = byLength[0];
+            if (postingCount(driver) <= DIRECT_SCAN_LIMIT) {
+                for (int p = postingOffsets[driver]; p < postingOffsets[driver + 1]; p++) {
+                    if (containsAll(byLength, 1, postings[p])) {
+                        ranker.offer(postings[p], 1.0);
+                    }
+                }
+            } else {
+                ringSearch(byLength, ranker);
+            }
+            if (ranker.size() > 0 || terms.size() == 1) {
+                return ranker.toHits();
+            }
+        }
+
+        if (terms.size() > 1) {
+            partialMatchSearch(lists, terms.size(), ranker);
+        }
+        return ranker.toHits();
+    }
+
+    private int postingCount(int termId) {
+        return termId < 0 ? 0 : postingOffsets[termId + 1] - postingOffsets[termId];
+    }
+
+    private boolean containsAll(int[] termList, int from, int poiId) {
+        for (int t = from; t < termList.length; t++) {
+            int termId = termList[t];
+            if (Arrays.binarySearch(postings, postingOffsets[termId], postingOffsets[termId + 1], poiId) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Score POIs that match some but not all terms: text score is the matched fraction
+     */
+    private void partialMatchSearch(int[] termList, int termCount, Ranker ranker) {
+        int total = 0;
+        for (int termId : termList) {
+            int count = postingCount(termId);
+            if (count <= PARTIAL_MATCH_TERM_LIMIT) {
+                total += count;
+            }
+        }
+        if (total == 0) {
+            return;
+        }
+
+        int[] merged = new int[total];
+        int pos = 0;
+        for (int termId : termList) {
+            int count = postingCount(termId);
+            if (count > 0 && count <= PARTIAL_MATCH_TERM_LIMIT) {
+                System.arraycopy(postings, postingOffsets[termId], merged, pos, count);
+                pos += count;
+            }
+        }
+        Arrays.sort(merged);
+
+        int run = 1;
+        for (int i = 1; i <= merged.length; i++) {
+            if (i < merged.length && merged[i] == merged[i - 1]) {
+                run++;
+            } else {
+                ranker.offer(merged[i - 1], (double) run / termCount);
+                run = 1;
+            }
+        }
+    }
+
+    /**
+     * Visit grid cells in expanding square rings around the query point until the
+     * best remaining score in unvisited rings cannot beat the current k-th result.
+     */
+    private void ringSearch(int[] filter, Ranker ranker) {
+        int cy0 = latCell(ranker.latitude);
+        int cx0 = lonCell(ranker.longitude);
+        double cellMeters = cellSize * GeoUtils.METERS_PER_DEGREE;
+        double bestNonProximity = ranker.textWeight + ranker.popularityWeight * maxPopularity;
+        int maxRing = latCells + lonCells / 2;
+
+        for (int r = 0; r <= maxRing; r++) {
+            double cosLat = Math.cos(Math.toRadians(Math.min(89.0, Math.abs(ranker.latitude) + (r + 1) * cellSize)));
+            double minDistance = r == 0 ? 0.0 : (r - 1) * cellMeters * cosLat;
+            if (minDistance > ranker.maxRadius) {
+                break;
+            }
+            if (ranker.isFull()
+                    && ranker.minScore() >= bestNonProximity + ranker.proximityWeight * proximity(minDistance)) {
+                break;
+            }
+
+            for (int dy = -r; dy <= r; dy++) {
+                int cy = cy0 + dy;
+                if (cy < 0 || cy >= latCells) {
+                    continue;
+                }
+                int step = (dy == -r || dy == r) ? 1 : 2 * r;
+                for (int dx = -r; dx <= r; dx += step) {
+                    int cx = Math.floorMod(cx0 + dx, lonCells);
+                    visitCell((long) cy * lonCells + cx, filter, ranker);
+                }
+            }
+        }
+    }
+
+    private void visitCell(long key, int[] filter, Ranker ranker) {
+        int cell = Arrays.binarySearch(cellKeys, key);
+        if (cell < 0) {
+            return;
+        }
+        for (int poiId = cellStarts[cell]; poiId < cellStarts[cell + 1]; poiId++) {
+            if (filter == null || containsAll(filter, 0, poiId)) {
+                ranker.offer(poiId, 1.0);
+            }
+        }
+    }
+
+    private long cellKey(int latMicro, int lonMicro) {
+        int cy = latCell(GeoUtils.fromMicroDegrees(latMicro));
+        int cx = lonCell(GeoUtils.fromMicroDegrees(lonMicro));
+        return (long) cy * lonCells + cx;
+    }
+
+    private int latCell(double latitude) {
+        return Math.min(latCells - 1, Math.max(0, (int) Math.floor((latitude + 90.0) / cellSize)));
+    }
+
+    private int lonCell(double longitude) {
+        return Math.min(lonCells - 1, Math.max(0, (int) Math.floor((longitude + 180.0) / cellSize)));
+    }
+
+    private static double proximity(double distanceMeters) {
+        return 1.0 / (1.0 + distanceMeters / PROXIMITY_SCALE_METERS);
+    }
+
+    /**
+     * Bounded top-k collector over primitive arrays, best score first
+     */
+    private final class Ranker {
+        private final int k;
+        private final double latitude;
+        private final double longitude;
+        private final double maxRadius;
+        private final double textWeight;
+        private final double proximityWeight;
+        private final double popularityWeight;
+        private final int[] ids;
+        private final double[] scores;
+        private final double[] distances;
+        private int count;
+
+        Ranker(int k, double latitude, double longitude, double maxRadius,
+               double textWeight, double proximityWeight, double popularityWeight) {
+            this.k = k;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.maxRadius = maxRadius;
+            this.textWeight = textWeight;
+            this.proximityWeight = proximityWeight;
+            this.popularityWeight = popularityWeight;
+            this.ids = new int[k];
+            this.scores = new double[k];
+            this.distances = new double[k];
+        }
+
+        void offer(int poiId, double textScore) {
+            double distance = GeoUtils.fastDistanceMeters(latitude, longitude,
+                    GeoUtils.fromMicroDegrees(latE6[poiId]), GeoUtils.fromMicroDegrees(lonE6[poiId]));
+            if (distance > maxRadius) {
+                return;
+            }
+            double score = textWeight * textScore + proximityWeight * proximity(distance)
+                    + popularityWeight * popularity[poiId];
+            if (count == k && score <= scores[k - 1]) {
+                return;
+            }
+
+            int pos = count < k ? count++ : k - 1;
+            while (pos > 0 && scores[pos - 1] < score) {
+                ids[pos] = ids[pos - 1];
+                scores[pos] = scores[pos - 1];
+                distances[pos] = distances[pos - 1];
+                pos--;
+            }
+            ids[pos] = poiId;
+            scores[pos] = score;
+            distances[pos] = distance;
+        }
+
+        int size() {
+            return count;
+        }
+
+        boolean isFull() {
+            return count == k;
+        }
+
+        double minScore() {
+            return scores[count - 1];
+        }
+
+        List<PoiHit> toHits() {
+            List<PoiHit> hits = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int poiId = ids[i];
+                hits.add(new PoiHit(poiId, name(poiId), category(poiId), PoiIndex.this.latitude(poiId),
+                        PoiIndex.this.longitude(poiId), distances[i], scores[i]));
+            }
+            return hits;
+        }
+    }
+
+    /**
+     * Accumulates POIs into growable primitive arrays; {@link #build()} packs them
+     */
+    public static final class Builder {
+        private final double cellSize;
+        private final int latCells;
+        private final int lonCells;
+        private final Map<String, Integer> categoryLookup = new HashMap<>();
+        private final List<String> categories = new ArrayList<>();
+        private int size;
+        private int[] lat = new int[1024];
+        private int[] lon = new int[1024];
+        private float[] popularity = new float[1024];
+        private int[] categoryIds = new int[1024];
+        private int[] nameOffsets = new int[1025];
+        private byte[] names = new byte[16 * 1024];
+        private int namesLength;
+
+        private Builder(double cellSizeDegrees) {
+            if (cellSizeDegrees <= 0 || cellSizeDegrees > 10) {
+                throw new IllegalArgumentException("Cell size must be in (0, 10] degrees: " + cellSizeDegrees);
+            }
+            this.cellSize = cellSizeDegrees;
+            this.latCells = (int) Math.ceil(180.0 / cellSizeDegrees);
+            this.lonCells = (int) Math.ceil(360.0 / cellSizeDegrees);
+            if ((long) latCells * lonCells > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Cell size too small: " + cellSizeDegrees);
+            }
+        }
+
+        /**
+         * Add a POI. Popularity is expected in [0, 1] and is clamped.
+         */
+        public Builder add(String name, String category, double latitude, double longitude, double popularityScore) {
+            if (name == null || name.isBlank()) {
+                throw new IllegalArgumentException("POI name is required");
+            }
+            if (Double.isNaN(latitude) || latitude < -90 || latitude > 90
+                    || Double.isNaN(longitude) || longitude < -180 || longitude > 180) {
+                throw new IllegalArgumentException("Invalid coordinates: " + latitude + "," + longitude);
+            }
+
+            if (size == lat.length) {
+                int capacity = size + (size >> 1);
+                lat = Arrays.copyOf(lat, capacity);
+                lon = Arrays.copyOf(lon, capacity);
+                popularity = Arrays.copyOf(popularity, capacity);
+                categoryIds = Arrays.copyOf(categoryIds, capacity);
+                nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+            }
+
+            byte[] encoded = name.trim().getBytes(StandardCharsets.UTF_8);
+            if (namesLength + encoded.length > names.length) {
+                names = Arrays.copyOf(names, Math.max(names.length + (names.length >> 1), namesLength + encoded.length));
+            }
+            System.arraycopy(encoded, 0, names, namesLength, encoded.length);
+            nameOffsets[size] = namesLength;
+            namesLength += encoded.length;
+            nameOffsets[size + 1] = namesLength;
+
+            String normalizedCategory = category == null ? "" : category.trim();
+            Integer categoryId = categoryLookup.get(normalizedCategory);
+            if (categoryId == null) {
+                categoryId = categories.size();
+                categories.add(normalizedCategory);
+                categoryLookup.put(normalizedCategory, categoryId);
+            }
+
+            lat[size] = GeoUtils.toMicroDegrees(latitude);
+            lon[size] = GeoUtils.toMicroDegrees(longitude);
+            popularity[size] = (float) Math.max(0.0, Math.min(1.0, popularityScore));
+            categoryIds[size] = categoryId;
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public PoiIndex build() {
+            return new PoiIndex(this);
+        }
+    }
+}
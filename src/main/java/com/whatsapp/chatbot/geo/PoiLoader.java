@@ -0,0 +1,179 @@
+package com.whatsapp.chatbot.geo;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streams POI records from CSV or GeoJSON into a {@link PoiIndex.Builder}.
+ *
+ * CSV needs a header row with {@code name}, {@code lat} and {@code lon} columns;
+ * {@code category} and {@code popularity} are optional. GeoJSON must be a
+ * FeatureCollection of Point features with {@code name}/{@code category}/
+ * {@code popularity} properties (OSM-style {@code amenity}/{@code shop}/{@code tourism}
+ * tags are accepted as the category). Invalid rows are skipped and counted.
+ */
+public final class PoiLoader {
+
+    private static final String[] OSM_CATEGORY_TAGS = {"category", "amenity", "shop", "tourism", "leisure"};
+
+    private PoiLoader() {
+    }
+
+    /**
+     * Load a dataset, choosing the format from the file name
+     *
+     * @return number of rows skipped as invalid
+     */
+    public static int load(String fileName, InputStream input, PoiIndex.Builder builder) throws IOException {
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".geojson") || lower.endsWith(".json")) {
+            return loadGeoJson(input, builder);
+        }
+        return loadCsv(input, builder);
+    }
+
+    public static int loadCsv(InputStream input, PoiIndex.Builder builder) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+        String header = reader.readLine();
+        if (header == null) {
+            return 0;
+        }
+
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> headerFields = splitCsvLine(header);
+        for (int i = 0; i < headerFields.size(); i++) {
+            columns.put(headerFields.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        int nameCol = column(columns, "name");
+        int latCol = column(columns, "lat", "latitude");
+        int lonCol = column(columns, "lon", "lng", "longitude");
+        int categoryCol = column(columns, "category", "type");
+        int popularityCol = column(columns, "popularity", "rank");
+        if (nameCol < 0 || latCol < 0 || lonCol < 0) {
+            throw new IOException("CSV header must contain name, lat and lon columns: " + header);
+        }
+
+        int skipped = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                List<String> fields = splitCsvLine(line);
+                builder.add(fields.get(nameCol),
+                        categoryCol >= 0 && categoryCol < fields.size() ? fields.get(categoryCol) : "",
+                        Double.parseDouble(fields.get(latCol).trim()),
+                        Double.parseDouble(fields.get(lonCol).trim()),
+                        popularityCol >= 0 && popularityCol < fields.size() && !fields.get(popularityCol).isBlank()
+                                ? Double.parseDouble(fields.get(popularityCol).trim()) : 0.0);
+            } catch (RuntimeException e) {
+                skipped++;
+            }
+        }
+        return skipped;
+    }
+
+    public static int loadGeoJson(InputStream input, PoiIndex.Builder builder) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonParser parser = new JsonFactory(mapper).createParser(input);
+        int skipped = 0;
+
+        // Stream the features array so large extracts are never fully materialised
+        while (parser.nextToken() != null) {
+            if (parser.currentToken() == JsonToken.FIELD_NAME && "features".equals(parser.getCurrentName())) {
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IOException("GeoJSON 'features' must be an array");
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    JsonNode feature = mapper.readTree(parser);
+                    if (!addFeature(feature, builder)) {
+                        skipped++;
+                    }
+                }
+            }
+        }
+        return skipped;
+    }
+
+    private static boolean addFeature(JsonNode feature, PoiIndex.Builder builder) {
+        JsonNode geometry = feature.path("geometry");
+        JsonNode coordinates = geometry.path("coordinates");
+        JsonNode properties = feature.path("properties");
+        if (!"Point".equals(geometry.path("type").asText()) || coordinates.size() < 2) {
+            return false;
+        }
+
+        String category = "";
+        for (String tag : OSM_CATEGORY_TAGS) {
+            if (properties.hasNonNull(tag)) {
+                category = properties.get(tag).asText();
+                break;
+            }
+        }
+
+        try {
+            builder.add(properties.path("name").asText(null), category,
+                    coordinates.get(1).asDouble(), coordinates.get(0).asDouble(),
+                    properties.path("popularity").asDouble(0.0));
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static int column(Map<String, Integer> columns, String... names) {
+        for (String name : names) {
+            Integer index = columns.get(name);
+            if (index != null) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Split a CSV line, honouring double-quoted fields and "" escapes
+     */
+    static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+}
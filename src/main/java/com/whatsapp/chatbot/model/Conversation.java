@@ -0,0 +1,53 @@
+package com.whatsapp.chatbot.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Entity summarizing one conversation: a run of messages with a user that
+ * ends after an idle gap or a session reset. Counts and timestamps are
+ * maintained as messages are written, so listing conversations never
+ * touches the message table.
+ */
+@Entity
+@Table(name = "conversations", indexes = {
+        // A number's conversations, latest first; also how the current one is found after a restart
+        @Index(name = "idx_conversations_phone_started", columnList = "phone_number, started_at DESC")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Conversation {
+
+    @Id
+    @Column(name = "conversation_id")
+    private String id;
+
+    @Column(name = "phone_number", nullable = false)
+    private String phoneNumber;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "last_message_at", nullable = false)
+    private LocalDateTime lastMessageAt;
+
+    /** Set when the session was reset or ended; an idle conversation simply stops */
+    @Column(name = "ended_at")
+    private LocalDateTime endedAt;
+
+    @Column(name = "message_count", nullable = false)
+    private long messageCount;
+
+    @Column(name = "inbound_count", nullable = false)
+    private long inboundCount;
+
+    @Column(name = "outbound_count", nullable = false)
+    private long outboundCount;
+
+    @Column(name = "final_state")
+    private String finalState;
+}
@@ -18,7 +18,8 @@ import java.time.LocalDateTime;
 public class UserSession {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_session_seq")
+    @SequenceGenerator(name = "user_session_seq", sequenceName = "user_session_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "phone_number", unique = true, nullable = false)
@@ -11,14 +11,24 @@ import java.time.LocalDateTime;
  * Stores message data for tracking and analytics
  */
 @Entity
-@Table(name = "whatsapp_messages")
+@Table(name = "whatsapp_messages", indexes = {
+        // History is read newest first per number from either side; id breaks timestamp ties for keyset paging
+        @Index(name = "idx_messages_from_timestamp", columnList = "from_number, timestamp DESC, id DESC"),
+        @Index(name = "idx_messages_to_timestamp", columnList = "to_number, timestamp DESC, id DESC"),
+        // Date-range exports
+        @Index(name = "idx_messages_timestamp", columnList = "timestamp"),
+        // A conversation is loaded as one range of this index, already in order
+        @Index(name = "idx_messages_conversation", columnList = "conversation_id, timestamp, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class WhatsAppMessage {
 
+    // Pooled sequence ids keep JDBC insert batching on; IDENTITY would force one round trip per row
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "whatsapp_message_seq")
+    @SequenceGenerator(name = "whatsapp_message_seq", sequenceName = "whatsapp_message_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "message_id", unique = true, nullable = false)
@@ -50,6 +60,8 @@ public class WhatsAppMessage {
 
     @PrePersist
     protected void onCreate() {
-        timestamp = LocalDateTime.now();
+        if (timestamp == null) {
+            timestamp = LocalDateTime.now();
+        }
     }
 }
@@ -0,0 +1,41 @@
+package com.whatsapp.chatbot.navigation;
+
+import lombok.Value;
+
+/**
+ * A driving instruction that applies from the start of a given route edge
+ */
+@Value
+public class Maneuver {
+
+    public enum Turn {
+        DEPART, CONTINUE, BEAR_LEFT, BEAR_RIGHT, TURN_LEFT, TURN_RIGHT, U_TURN, ARRIVE
+    }
+
+    /** Index into the route's edges; the arrival maneuver uses the edge count */
+    int edgeIndex;
+    Turn turn;
+    String street;
+
+    public String describe() {
+        String onto = street.isEmpty() ? "" : " onto " + street;
+        switch (turn) {
+            case DEPART:
+                return street.isEmpty() ? "Start driving" : "Start on " + street;
+            case CONTINUE:
+                return "Continue" + onto;
+            case BEAR_LEFT:
+                return "Bear left" + onto;
+            case BEAR_RIGHT:
+                return "Bear right" + onto;
+            case TURN_LEFT:
+                return "Turn left" + onto;
+            case TURN_RIGHT:
+                return "Turn right" + onto;
+            case U_TURN:
+                return "Make a U-turn" + onto;
+            default:
+                return "Arrive at your destination";
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.whatsapp.chatbot.navigation;
+
+import com.whatsapp.chatbot.routing.RoadGraph;
+import com.whatsapp.chatbot.routing.RoutePath;
+import com.whatsapp.chatbot.routing.Router;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turn-by-turn guidance from streamed location fixes.
+ *
+ * Each fix is matched onto the user's route near where the previous one
+ * matched, so a fix costs a handful of segment distance checks. A user is
+ * off route after several consecutive fixes too far from it, and is then
+ * re-routed from the nearest road node, at most once per interval.
+ * Instructions are reported only when the next maneuver changes.
+ *
+ * Sessions live in memory only, at most one per user and at most
+ * maxSessions in total; idle sessions expire, swept every so many updates
+ * and whenever a start finds the table full.
+ */
+public final class NavigationEngine {
+
+    private static final double ARRIVAL_METERS = 35;
+    private static final double REROUTE_SNAP_METERS = 500;
+    private static final int SWEEP_EVERY_UPDATES = 1024;
+
+    private final Router router;
+    private final RoadGraph graph;
+    private final int maxSessions;
+    private final long idleTimeoutMillis;
+    private final double offRouteMeters;
+    private final int offRouteFixes;
+    private final long rerouteIntervalMillis;
+
+    private final ConcurrentHashMap<String, NavigationSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong locationUpdates = new AtomicLong();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder arrived = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder staleUpdates = new LongAdder();
+    private final LongAdder instructions = new LongAdder();
+    private final LongAdder reroutes = new LongAdder();
+
+    public NavigationEngine(Router router, int maxSessions, long idleTimeoutMillis, double offRouteMeters,
+                            int offRouteFixes, long rerouteIntervalMillis) {
+        this.router = router;
+        this.graph = router.getGraph();
+        this.maxSessions = maxSessions;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.offRouteMeters = offRouteMeters;
+        this.offRouteFixes = offRouteFixes;
+        this.rerouteIntervalMillis = rerouteIntervalMillis;
+    }
+
+    /**
+     * Start (or restart) guidance along a route
+     *
+     * @return the first instruction, or empty if every session slot is in use
+     */
+    public Optional<NavigationUpdate> start(String phoneNumber, RoutePath route, String label, long nowMillis) {
+        if (!sessions.containsKey(phoneNumber) && sessions.size() >= maxSessions) {
+            expireIdle(nowMillis);
+            if (sessions.size() >= maxSessions) {
+                rejected.increment();
+                return Optional.empty();
+            }
+        }
+        NavigationSession session = new NavigationSession(label, new RouteGuide(graph, route), nowMillis);
+        sessions.put(phoneNumber, session);
+        started.increment();
+        instructions.increment();
+        synchronized (session) {
+            session.lastInstruction = session.guide.nextManeuver(0);
+            return Optional.of(session.update(NavigationUpdate.Kind.INSTRUCTION));
+        }
+    }
+
+    /**
+     * Apply a location fix
+     *
+     * @return empty if the user is not navigating
+     */
+    public Optional<NavigationUpdate> onLocation(String phoneNumber, double latitude, double longitude,
+                                                 long fixMillis, long nowMillis) {
+        if ((locationUpdates.incrementAndGet() & (SWEEP_EVERY_UPDATES - 1)) == 0) {
+            expireIdle(nowMillis);
+        }
+        NavigationSession session = sessions.get(phoneNumber);
+        if (session == null) {
+            return Optional.empty();
+        }
+
+        synchronized (session) {
+            session.lastSeenMillis = nowMillis;
+            if (fixMillis < session.lastFixMillis) {
+                staleUpdates.increment();
+                return Optional.of(session.update(NavigationUpdate.Kind.NONE));
+            }
+            session.lastFixMillis = fixMillis;
+            RouteGuide guide = session.guide;
+
+            if (guide.metersToDestination(latitude, longitude) <= ARRIVAL_METERS) {
+                sessions.remove(phoneNumber, session);
+                arrived.increment();
+                session.position = Math.max(0, guide.edgeCount() - 1);
+                session.fraction = 1;
+                return Optional.of(session.update(NavigationUpdate.Kind.ARRIVED));
+            }
+
+            RouteGuide.Match match = new RouteGuide.Match();
+            guide.match(latitude, longitude, session.position, offRouteMeters, match);
+            if (match.distanceMeters <= offRouteMeters) {
+                session.offRouteFixes = 0;
+                session.position = match.edgeIndex;
+                session.fraction = match.fraction;
+                int next = guide.nextManeuver(session.position);
+                if (next == session.lastInstruction) {
+                    return Optional.of(session.update(NavigationUpdate.Kind.NONE));
+                }
+                session.lastInstruction = next;
+                instructions.increment();
+                return Optional.of(session.update(NavigationUpdate.Kind.INSTRUCTION));
+            }
+
+            if (++session.offRouteFixes < offRouteFixes
+                    || fixMillis - session.lastRerouteMillis < rerouteIntervalMillis) {
+                return Optional.of(session.update(NavigationUpdate.Kind.NONE));
+            }
+            session.lastRerouteMillis = fixMillis;
+            int origin = graph.nearestNode(latitude, longitude, REROUTE_SNAP_METERS);
+            RoutePath path = origin < 0 ? null : router.route(origin, guide.destination());
+            if (path == null || path.getEdges().length == 0) {
+                return Optional.of(session.update(NavigationUpdate.Kind.LOST));
+            }
+            session.follow(new RouteGuide(graph, path));
+            session.lastInstruction = session.guide.nextManeuver(0);
+            reroutes.increment();
+            instructions.increment();
+            return Optional.of(session.update(NavigationUpdate.Kind.REROUTED));
+        }
+    }
+
+    public boolean stop(String phoneNumber) {
+        return sessions.remove(phoneNumber) != null;
+    }
+
+    public boolean isNavigating(String phoneNumber) {
+        return sessions.containsKey(phoneNumber);
+    }
+
+    /**
+     * Destination label of the user's session, if navigating
+     */
+    public Optional<String> label(String phoneNumber) {
+        NavigationSession session = sessions.get(phoneNumber);
+        return session == null ? Optional.empty() : Optional.of(session.label);
+    }
+
+    /**
+     * Drop sessions that have had no fix within the idle timeout
+     *
+     * @return how many were dropped
+     */
+    public int expireIdle(long nowMillis) {
+        int removed = 0;
+        for (Map.Entry<String, NavigationSession> entry : sessions.entrySet()) {
+            if (nowMillis - entry.getValue().lastSeenMillis > idleTimeoutMillis
+                    && sessions.remove(entry.getKey(), entry.getValue())) {
+                removed++;
+            }
+        }
+        expired.add(removed);
+        return removed;
+    }
+
+    public NavigationStats stats() {
+        return new NavigationStats(sessions.size(), started.sum(), arrived.sum(), expired.sum(), rejected.sum(),
+                locationUpdates.get(), staleUpdates.sum(), instructions.sum(), reroutes.sum());
+    }
+}
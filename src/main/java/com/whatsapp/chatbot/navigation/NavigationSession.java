@@ -0,0 +1,40 @@
+package com.whatsapp.chatbot.navigation;
+
+/**
+ * Guidance state for one navigating user; guarded by its own monitor.
+ * Size is fixed apart from the route itself, whatever the number of updates.
+ */
+final class NavigationSession {
+
+    final String label;
+    RouteGuide guide;
+    int position;
+    double fraction;
+    int lastInstruction = -1;
+    int offRouteFixes;
+    long lastFixMillis = Long.MIN_VALUE;
+    long lastRerouteMillis = Long.MIN_VALUE / 2;
+    volatile long lastSeenMillis;
+
+    NavigationSession(String label, RouteGuide guide, long nowMillis) {
+        this.label = label;
+        this.guide = guide;
+        this.lastSeenMillis = nowMillis;
+    }
+
+    void follow(RouteGuide replacement) {
+        guide = replacement;
+        position = 0;
+        fraction = 0;
+        lastInstruction = -1;
+        offRouteFixes = 0;
+    }
+
+    NavigationUpdate update(NavigationUpdate.Kind kind) {
+        int next = guide.nextManeuver(position);
+        Maneuver maneuver = guide.maneuver(next);
+        long along = guide.metersAlong(position, fraction);
+        return new NavigationUpdate(kind, maneuver, Math.max(0, guide.metersAt(maneuver.getEdgeIndex()) - along),
+                guide.remainingMillis(position, fraction), guide.totalMeters() - along);
+    }
+}
@@ -0,0 +1,25 @@
+package com.whatsapp.chatbot.navigation;
+
+import lombok.Value;
+
+/**
+ * Point-in-time counters for live navigation
+ */
+@Value
+public class NavigationStats {
+    int activeSessions;
+    long started;
+    long arrived;
+    long expired;
+
+    /** Starts turned away because every session slot was in use */
+    long rejected;
+
+    long locationUpdates;
+
+    /** Fixes dropped as older than one already applied */
+    long staleUpdates;
+
+    long instructionsSent;
+    long reroutes;
+}
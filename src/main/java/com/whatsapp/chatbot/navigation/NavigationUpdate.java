@@ -0,0 +1,32 @@
+package com.whatsapp.chatbot.navigation;
+
+import lombok.Value;
+
+/**
+ * Result of a location fix for a navigating user
+ */
+@Value
+public class NavigationUpdate {
+
+    public enum Kind {
+        /** On route, instruction unchanged: nothing to send */
+        NONE,
+        /** The next instruction changed */
+        INSTRUCTION,
+        /** Left the route and a new one was planned */
+        REROUTED,
+        /** Left the route and no way back to the destination was found */
+        LOST,
+        /** Reached the destination; the session has ended */
+        ARRIVED
+    }
+
+    Kind kind;
+    Maneuver next;
+
+    /** Along-route distance to the next maneuver */
+    long metersToManeuver;
+
+    long remainingMillis;
+    long remainingMeters;
+}
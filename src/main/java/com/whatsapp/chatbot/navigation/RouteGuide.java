@@ -0,0 +1,177 @@
+package com.whatsapp.chatbot.navigation;
+
+import com.whatsapp.chatbot.geo.GeoUtils;
+import com.whatsapp.chatbot.routing.RoadGraph;
+import com.whatsapp.chatbot.routing.RoutePath;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A route prepared for guidance: along-route offsets, the maneuver list and
+ * incremental matching of location fixes onto the route's edges
+ */
+final class RouteGuide {
+
+    /** Edges past the last matched one that are tried before scanning the rest of the route */
+    private static final int MATCH_WINDOW = 8;
+
+    private final RoadGraph graph;
+    private final int[] nodes;
+    private final int[] edges;
+    private final long[] meterOffsets;
+    private final long[] millisOffsets;
+    private final Maneuver[] maneuvers;
+
+    RouteGuide(RoadGraph graph, RoutePath path) {
+        this.graph = graph;
+        this.nodes = path.getNodes();
+        this.edges = path.getEdges();
+        this.meterOffsets = new long[edges.length + 1];
+        this.millisOffsets = new long[edges.length + 1];
+        for (int i = 0; i < edges.length; i++) {
+            meterOffsets[i + 1] = meterOffsets[i] + graph.edgeLengthMeters(edges[i]);
+            millisOffsets[i + 1] = millisOffsets[i] + graph.edgeWeightMillis(edges[i]);
+        }
+        this.maneuvers = buildManeuvers();
+    }
+
+    int destination() {
+        return nodes[nodes.length - 1];
+    }
+
+    int edgeCount() {
+        return edges.length;
+    }
+
+    double metersToDestination(double latitude, double longitude) {
+        int node = destination();
+        return GeoUtils.fastDistanceMeters(latitude, longitude, graph.latitude(node), graph.longitude(node));
+    }
+
+    /**
+     * Index of the first maneuver still ahead when driving along the given edge
+     */
+    int nextManeuver(int edgeIndex) {
+        int low = 0;
+        int high = maneuvers.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (maneuvers[mid].getEdgeIndex() > edgeIndex) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    Maneuver maneuver(int index) {
+        return maneuvers[index];
+    }
+
+    long metersAlong(int edgeIndex, double fraction) {
+        return meterOffsets[edgeIndex] + Math.round(fraction * (meterOffsets[edgeIndex + 1] - meterOffsets[edgeIndex]));
+    }
+
+    long metersAt(int edgeIndex) {
+        return meterOffsets[edgeIndex];
+    }
+
+    long totalMeters() {
+        return meterOffsets[edges.length];
+    }
+
+    long remainingMillis(int edgeIndex, double fraction) {
+        long along = millisOffsets[edgeIndex]
+                + Math.round(fraction * (millisOffsets[edgeIndex + 1] - millisOffsets[edgeIndex]));
+        return millisOffsets[edges.length] - along;
+    }
+
+    /**
+     * Match a fix to the nearest route edge, starting just behind the last
+     * matched edge. Only if nothing in the window is within maxMeters is the
+     * rest of the route scanned, for fixes that skipped ahead.
+     */
+    void match(double latitude, double longitude, int from, double maxMeters, Match out) {
+        out.distanceMeters = Double.POSITIVE_INFINITY;
+        int windowEnd = Math.min(edges.length, from + MATCH_WINDOW);
+        scan(latitude, longitude, Math.max(0, from - 1), windowEnd, out);
+        if (out.distanceMeters > maxMeters) {
+            scan(latitude, longitude, windowEnd, edges.length, out);
+        }
+    }
+
+    private void scan(double latitude, double longitude, int start, int end, Match out) {
+        double scale = Math.cos(Math.toRadians(latitude)) * GeoUtils.METERS_PER_DEGREE;
+        for (int i = start; i < end; i++) {
+            double ax = (graph.longitude(nodes[i]) - longitude) * scale;
+            double ay = (graph.latitude(nodes[i]) - latitude) * GeoUtils.METERS_PER_DEGREE;
+            double bx = (graph.longitude(nodes[i + 1]) - longitude) * scale;
+            double by = (graph.latitude(nodes[i + 1]) - latitude) * GeoUtils.METERS_PER_DEGREE;
+            double dx = bx - ax;
+            double dy = by - ay;
+            double lengthSquared = dx * dx + dy * dy;
+            double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSquared));
+            double x = ax + t * dx;
+            double y = ay + t * dy;
+            double distance = Math.sqrt(x * x + y * y);
+            // Ties at a shared node go to the later edge, so progress is never lost
+            if (distance <= out.distanceMeters) {
+                out.distanceMeters = distance;
+                out.edgeIndex = i;
+                out.fraction = t;
+            }
+        }
+    }
+
+    /**
+     * One maneuver per street change plus departure and arrival; the turn
+     * comes from the bearing change between the edges either side
+     */
+    private Maneuver[] buildManeuvers() {
+        List<Maneuver> list = new ArrayList<>();
+        if (edges.length > 0) {
+            list.add(new Maneuver(0, Maneuver.Turn.DEPART, graph.edgeName(edges[0])));
+        }
+        for (int i = 1; i < edges.length; i++) {
+            String street = graph.edgeName(edges[i]);
+            if (street.equals(graph.edgeName(edges[i - 1]))) {
+                continue;
+            }
+            double change = bearing(i) - bearing(i - 1);
+            change = ((change % 360) + 540) % 360 - 180;
+            list.add(new Maneuver(i, turn(change), street));
+        }
+        list.add(new Maneuver(edges.length, Maneuver.Turn.ARRIVE, ""));
+        return list.toArray(new Maneuver[0]);
+    }
+
+    private double bearing(int edgeIndex) {
+        int from = nodes[edgeIndex];
+        int to = nodes[edgeIndex + 1];
+        double dx = (graph.longitude(to) - graph.longitude(from)) * Math.cos(Math.toRadians(graph.latitude(from)));
+        double dy = graph.latitude(to) - graph.latitude(from);
+        return Math.toDegrees(Math.atan2(dx, dy));
+    }
+
+    private static Maneuver.Turn turn(double change) {
+        double magnitude = Math.abs(change);
+        if (magnitude < 20) {
+            return Maneuver.Turn.CONTINUE;
+        }
+        if (magnitude > 150) {
+            return Maneuver.Turn.U_TURN;
+        }
+        if (magnitude < 60) {
+            return change > 0 ? Maneuver.Turn.BEAR_RIGHT : Maneuver.Turn.BEAR_LEFT;
+        }
+        return change > 0 ? Maneuver.Turn.TURN_RIGHT : Maneuver.Turn.TURN_LEFT;
+    }
+
+    static final class Match {
+        int edgeIndex;
+        double fraction;
+        double distanceMeters;
+    }
+}
@@ -0,0 +1,65 @@
+package com.whatsapp.chatbot.repository;
+
+import com.whatsapp.chatbot.model.Conversation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for conversation summaries
+ */
+@Repository
+public interface ConversationRepository extends JpaRepository<Conversation, String>,
+        ConversationRepositoryCustom {
+
+    /**
+     * A number's conversations, latest first
+     */
+    List<Conversation> findByPhoneNumberOrderByStartedAtDesc(String phoneNumber, Pageable pageable);
+
+    /**
+     * A number's latest conversation
+     */
+    Optional<Conversation> findFirstByPhoneNumberOrderByStartedAtDesc(String phoneNumber);
+
+    /**
+     * Record the session state the conversation has reached
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Conversation c SET c.finalState = :state WHERE c.id = :id")
+    int updateFinalState(@Param("id") String id, @Param("state") String state);
+
+    /**
+     * Ids of conversations silent since before the cutoff, after the keyset cursor, in id order,
+     * skipping those already showing the excluded number
+     */
+    @Query("SELECT c.id FROM Conversation c WHERE c.id > :afterId AND c.lastMessageAt < :cutoff " +
+           "AND c.phoneNumber <> :excludedNumber ORDER BY c.id")
+    List<String> findExpiredIdsAfter(@Param("afterId") String afterId, @Param("cutoff") LocalDateTime cutoff,
+                                     @Param("excludedNumber") String excludedNumber, Pageable limit);
+
+    /**
+     * Replace the number on one chunk of conversation summaries
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Conversation c SET c.phoneNumber = :replacement WHERE c.id IN :ids")
+    int anonymize(@Param("ids") List<String> ids, @Param("replacement") String replacement);
+
+    /**
+     * Mark a conversation ended by a session reset
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Conversation c SET c.endedAt = :endedAt WHERE c.id = :id AND c.endedAt IS NULL")
+    int end(@Param("id") String id, @Param("endedAt") LocalDateTime endedAt);
+}
@@ -0,0 +1,65 @@
+package com.whatsapp.chatbot.repository;
+
+import com.whatsapp.chatbot.model.Conversation;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Write operations for conversation summaries on the message log path
+ */
+public interface ConversationRepositoryCustom {
+
+    /**
+     * Insert a new summary without first looking it up, as save does for an assigned id
+     */
+    void insert(Conversation conversation);
+
+    /**
+     * Add written messages to many summaries in one transaction and one JDBC batch
+     *
+     * @return the number of summaries updated
+     */
+    int addMessagesAll(List<MessageCounts> counts);
+
+    /**
+     * Messages written to one conversation
+     */
+    final class MessageCounts {
+        private final String conversationId;
+        private long inbound;
+        private long outbound;
+        private LocalDateTime lastMessageAt;
+
+        public MessageCounts(String conversationId) {
+            this.conversationId = conversationId;
+        }
+
+        public void add(boolean outboundMessage, LocalDateTime timestamp) {
+            if (outboundMessage) {
+                outbound++;
+            } else {
+                inbound++;
+            }
+            if (timestamp != null && (lastMessageAt == null || timestamp.isAfter(lastMessageAt))) {
+                lastMessageAt = timestamp;
+            }
+        }
+
+        public String getConversationId() {
+            return conversationId;
+        }
+
+        public long getInbound() {
+            return inbound;
+        }
+
+        public long getOutbound() {
+            return outbound;
+        }
+
+        public LocalDateTime getLastMessageAt() {
+            return lastMessageAt;
+        }
+    }
+}
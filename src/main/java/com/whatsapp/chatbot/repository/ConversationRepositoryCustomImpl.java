@@ -0,0 +1,66 @@
+package com.whatsapp.chatbot.repository;
+
+import com.whatsapp.chatbot.model.Conversation;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Summary updates go out as one batched UPDATE statement per written batch
+ * of messages rather than a transaction per conversation. The increments
+ * happen in the database, so concurrent writers never lose counts.
+ */
+public class ConversationRepositoryCustomImpl implements ConversationRepositoryCustom {
+
+    private static final String ADD_MESSAGES = "UPDATE conversations SET "
+            + "message_count = message_count + ? + ?, inbound_count = inbound_count + ?, "
+            + "outbound_count = outbound_count + ?, "
+            + "last_message_at = CASE WHEN last_message_at < ? THEN ? ELSE last_message_at END "
+            + "WHERE conversation_id = ?";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public void insert(Conversation conversation) {
+        entityManager.persist(conversation);
+        entityManager.flush();
+        entityManager.detach(conversation);
+    }
+
+    @Override
+    @Transactional
+    public int addMessagesAll(List<MessageCounts> counts) {
+        if (counts.isEmpty()) {
+            return 0;
+        }
+        // Pending entity changes must reach the table before the statement runs
+        entityManager.flush();
+        int[] updated = new int[1];
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(ADD_MESSAGES)) {
+                for (MessageCounts count : counts) {
+                    Timestamp last = Timestamp.valueOf(count.getLastMessageAt());
+                    statement.setLong(1, count.getInbound());
+                    statement.setLong(2, count.getOutbound());
+                    statement.setLong(3, count.getInbound());
+                    statement.setLong(4, count.getOutbound());
+                    statement.setTimestamp(5, last);
+                    statement.setTimestamp(6, last);
+                    statement.setString(7, count.getConversationId());
+                    statement.addBatch();
+                }
+                for (int rows : statement.executeBatch()) {
+                    updated[0] += Math.max(rows, 0);
+                }
+            }
+        });
+        return updated[0];
+    }
+}
@@ -1,6 +1,7 @@
 package com.whatsapp.chatbot.repository;
 
 import com.whatsapp.chatbot.model.UserSession;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -39,18 +40,55 @@ public interface UserSessionRepository extends JpaRepository<UserSession, Long>
     List<UserSession> findByUpdatedAtAfterAndSessionActiveTrue(LocalDateTime since);
 
     /**
-     * Deactivate old sessions
+     * Active sessions idle since before the cutoff with ids after the keyset cursor, in id order
+     */
+    @Query("SELECT s FROM UserSession s WHERE s.id > :afterId AND s.sessionActive = true " +
+           "AND s.updatedAt < :cutoff ORDER BY s.id")
+    List<UserSession> findIdleAfter(@Param("afterId") long afterId, @Param("cutoff") LocalDateTime cutoff,
+                                    Pageable limit);
+
+    /**
+     * Inactive sessions last updated before the cutoff with ids after the keyset cursor, in id order
+     */
+    @Query("SELECT s FROM UserSession s WHERE s.id > :afterId AND s.sessionActive = false " +
+           "AND s.updatedAt < :cutoff ORDER BY s.id")
+    List<UserSession> findInactiveAfter(@Param("afterId") long afterId, @Param("cutoff") LocalDateTime cutoff,
+                                        Pageable limit);
+
+    /**
+     * Active sessions after the keyset cursor, in id order
+     */
+    @Query("SELECT s FROM UserSession s WHERE s.id > :afterId AND s.sessionActive = true ORDER BY s.id")
+    List<UserSession> findActiveAfter(@Param("afterId") long afterId, Pageable limit);
+
+    /**
+     * Deactivate one chunk of idle sessions; a session used since it was selected is left alone
      */
     @Modifying
     @Transactional
-    @Query("UPDATE UserSession s SET s.sessionActive = false WHERE s.updatedAt < :cutoffTime")
-    int deactivateOldSessions(@Param("cutoffTime") LocalDateTime cutoffTime);
+    @Query("UPDATE UserSession s SET s.sessionActive = false WHERE s.id IN :ids " +
+           "AND s.sessionActive = true AND s.updatedAt < :cutoff")
+    int deactivateIdle(@Param("ids") List<Long> ids, @Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Delete one chunk of expired sessions; a session revived since it was selected is kept
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM UserSession s WHERE s.id IN :ids AND s.sessionActive = false AND s.updatedAt < :cutoff")
+    int deleteInactive(@Param("ids") List<Long> ids, @Param("cutoff") LocalDateTime cutoff);
 
     /**
      * Count active sessions
      */
     long countBySessionActiveTrue();
 
+    /**
+     * Session counts per (state, active flag) in one scan, for reconciling the in-memory statistics
+     */
+    @Query("SELECT s.currentState, s.sessionActive, COUNT(s) FROM UserSession s GROUP BY s.currentState, s.sessionActive")
+    List<Object[]> countByStateAndActive();
+
     /**
      * Find sessions by current state
      */
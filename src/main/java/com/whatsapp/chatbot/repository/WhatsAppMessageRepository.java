@@ -1,10 +1,13 @@
 package com.whatsapp.chatbot.repository;
 
 import com.whatsapp.chatbot.model.WhatsAppMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -14,7 +17,8 @@ import java.util.Optional;
  * Repository interface for WhatsApp message operations
  */
 @Repository
-public interface WhatsAppMessageRepository extends JpaRepository<WhatsAppMessage, Long> {
+public interface WhatsAppMessageRepository extends JpaRepository<WhatsAppMessage, Long>,
+        WhatsAppMessageRepositoryCustom {
 
     /**
      * Find message by WhatsApp message ID
@@ -22,14 +26,73 @@ public interface WhatsAppMessageRepository extends JpaRepository<WhatsAppMessage
     Optional<WhatsAppMessage> findByMessageId(String messageId);
 
     /**
-     * Find all messages for a specific phone number
+     * Messages sent by a number older than the (timestamp, id) cursor, newest
+     * first. The redundant timestamp bound and the leading sort column let
+     * the database range-scan the from_number index in order instead of sorting.
      */
-    List<WhatsAppMessage> findByFromNumberOrToNumberOrderByTimestampDesc(String fromNumber, String toNumber);
+    @Query("SELECT m FROM WhatsAppMessage m WHERE m.fromNumber = :phoneNumber AND m.timestamp <= :timestamp " +
+           "AND (m.timestamp < :timestamp OR (m.timestamp = :timestamp AND m.id < :id)) " +
+           "ORDER BY m.fromNumber, m.timestamp DESC, m.id DESC")
+    List<WhatsAppMessage> findFromNumberBefore(@Param("phoneNumber") String phoneNumber,
+                                               @Param("timestamp") LocalDateTime timestamp,
+                                               @Param("id") Long id, Pageable limit);
 
     /**
-     * Find messages by conversation ID
+     * Messages sent to a number older than the (timestamp, id) cursor, newest
+     * first, read in order from the to_number index like findFromNumberBefore
      */
-    List<WhatsAppMessage> findByConversationIdOrderByTimestampAsc(String conversationId);
+    @Query("SELECT m FROM WhatsAppMessage m WHERE m.toNumber = :phoneNumber AND m.timestamp <= :timestamp " +
+           "AND (m.timestamp < :timestamp OR (m.timestamp = :timestamp AND m.id < :id)) " +
+           "ORDER BY m.toNumber, m.timestamp DESC, m.id DESC")
+    List<WhatsAppMessage> findToNumberBefore(@Param("phoneNumber") String phoneNumber,
+                                             @Param("timestamp") LocalDateTime timestamp,
+                                             @Param("id") Long id, Pageable limit);
+
+    /**
+     * Oldest messages before a cutoff, for moving to the archive
+     */
+    @Query("SELECT m FROM WhatsAppMessage m WHERE m.timestamp < :cutoff ORDER BY m.timestamp ASC, m.id ASC")
+    List<WhatsAppMessage> findOldestBefore(@Param("cutoff") LocalDateTime cutoff, Pageable limit);
+
+    /**
+     * Messages after an id, in id order, for catching the search index up
+     */
+    List<WhatsAppMessage> findByIdGreaterThanOrderByIdAsc(Long id, Pageable limit);
+
+    /**
+     * Messages before the cutoff and after the (timestamp, id) keyset cursor,
+     * oldest first, read in order from the timestamp index
+     */
+    @Query("SELECT m FROM WhatsAppMessage m WHERE m.timestamp < :cutoff AND m.timestamp >= :afterTimestamp " +
+           "AND (m.timestamp > :afterTimestamp OR m.id > :afterId) ORDER BY m.timestamp ASC, m.id ASC")
+    List<WhatsAppMessage> findExpiredAfter(@Param("cutoff") LocalDateTime cutoff,
+                                           @Param("afterTimestamp") LocalDateTime afterTimestamp,
+                                           @Param("afterId") long afterId, Pageable limit);
+
+    /**
+     * Drop the text and the user's number from one chunk of messages, keeping the rest for statistics
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE WhatsAppMessage m SET m.messageText = NULL, " +
+           "m.fromNumber = CASE WHEN m.direction = 'OUTBOUND' THEN m.fromNumber ELSE :replacement END, " +
+           "m.toNumber = CASE WHEN m.direction = 'OUTBOUND' THEN :replacement ELSE m.toNumber END " +
+           "WHERE m.id IN :ids")
+    int anonymize(@Param("ids") List<Long> ids, @Param("replacement") String replacement);
+
+    /**
+     * A conversation's messages in order, read as one range of the conversation index
+     */
+    @Query("SELECT m FROM WhatsAppMessage m WHERE m.conversationId = :conversationId " +
+           "ORDER BY m.conversationId, m.timestamp ASC, m.id ASC")
+    List<WhatsAppMessage> findByConversationId(@Param("conversationId") String conversationId);
+
+    /**
+     * Conversations with a message since the given time, read off the timestamp index
+     */
+    @Query("SELECT DISTINCT m.conversationId FROM WhatsAppMessage m WHERE m.timestamp >= :since " +
+           "AND m.conversationId IS NOT NULL")
+    List<String> findConversationIdsSince(@Param("since") LocalDateTime since);
 
     /**
      * Find recent messages for a phone number
@@ -50,7 +113,8 @@ public interface WhatsAppMessageRepository extends JpaRepository<WhatsAppMessage
     List<WhatsAppMessage> findByDirectionOrderByTimestampDesc(String direction);
 
     /**
-     * Count messages by direction (INBOUND/OUTBOUND)
+     * Message counts per (direction, status) in one scan, for reconciling the in-memory statistics
      */
-    long countByDirection(String direction);
+    @Query("SELECT m.direction, m.status, COUNT(m) FROM WhatsAppMessage m GROUP BY m.direction, m.status")
+    List<Object[]> countByDirectionAndStatus();
 }
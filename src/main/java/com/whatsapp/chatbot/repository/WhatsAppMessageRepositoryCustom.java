@@ -0,0 +1,25 @@
+package com.whatsapp.chatbot.repository;
+
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Bulk write operations and keyset reads for WhatsApp messages
+ */
+public interface WhatsAppMessageRepositoryCustom {
+
+    /**
+     * Insert new messages in one transaction using JDBC batches
+     *
+     * @return the number of messages inserted
+     */
+    int insertAll(List<WhatsAppMessage> messages);
+
+    /**
+     * Messages older than the (timestamp, id) cursor, newest first, skipping
+     * the first rows past it; read in order from the timestamp index
+     */
+    List<WhatsAppMessage> findBefore(LocalDateTime timestamp, long id, int skip, int limit);
+}
@@ -0,0 +1,52 @@
+package com.whatsapp.chatbot.repository;
+
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Persists messages directly and flushes every JDBC batch, so Hibernate
+ * groups the inserts into batched statements and the persistence context
+ * never holds more than one batch. Unlike saveAll this skips the merge
+ * lookup for each entity.
+ */
+public class WhatsAppMessageRepositoryCustomImpl implements WhatsAppMessageRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    @Transactional
+    public int insertAll(List<WhatsAppMessage> messages) {
+        for (int i = 0; i < messages.size(); i++) {
+            entityManager.persist(messages.get(i));
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return messages.size();
+    }
+
+    @Override
+    public List<WhatsAppMessage> findBefore(LocalDateTime timestamp, long id, int skip, int limit) {
+        return entityManager.createQuery("SELECT m FROM WhatsAppMessage m WHERE m.timestamp <= :timestamp " +
+                        "AND (m.timestamp < :timestamp OR (m.timestamp = :timestamp AND m.id < :id)) " +
+                        "ORDER BY m.timestamp DESC, m.id DESC", WhatsAppMessage.class)
+                .setParameter("timestamp", timestamp)
+                .setParameter("id", id)
+                .setFirstResult(skip)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -0,0 +1,76 @@
+package com.whatsapp.chatbot.retention;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Where each retention task got to, kept in a small properties file so a
+ * run interrupted by a restart or the end of its window resumes from the
+ * last finished chunk instead of rescanning. The file is replaced
+ * atomically, so a crash leaves either the old or the new checkpoint.
+ * Without a file the cursors only last until a restart.
+ */
+public final class RetentionCheckpoint {
+
+    private final Path file;
+    private final Properties values = new Properties();
+
+    private RetentionCheckpoint(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * A checkpoint that is never saved
+     */
+    public static RetentionCheckpoint inMemory() {
+        return new RetentionCheckpoint(null);
+    }
+
+    /**
+     * Load the checkpoint from a file, or start empty if there is none yet
+     */
+    public static RetentionCheckpoint load(Path file) throws IOException {
+        RetentionCheckpoint checkpoint = new RetentionCheckpoint(file);
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                checkpoint.values.load(reader);
+            }
+        }
+        return checkpoint;
+    }
+
+    public synchronized String get(String key) {
+        return values.getProperty(key);
+    }
+
+    public synchronized long getLong(String key) {
+        String value = values.getProperty(key);
+        return value == null ? 0L : Long.parseLong(value);
+    }
+
+    public synchronized void set(String key, Object value) {
+        if (value == null) {
+            values.remove(key);
+        } else {
+            values.setProperty(key, value.toString());
+        }
+    }
+
+    public synchronized void save() throws IOException {
+        if (file == null) {
+            return;
+        }
+        Files.createDirectories(file.getParent());
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            values.store(writer, "Retention progress");
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
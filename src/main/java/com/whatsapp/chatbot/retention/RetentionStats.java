@@ -0,0 +1,41 @@
+package com.whatsapp.chatbot.retention;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Point-in-time counters for the retention job. A chunk's duration is how
+ * long its transaction held locks on the rows it touched, so the chunk
+ * times bound how long a concurrent writer can have waited on retention.
+ */
+@Value
+public class RetentionStats {
+    boolean enabled;
+    String window;
+    boolean inWindow;
+    boolean running;
+
+    long runs;
+    long interruptedRuns;
+    LocalDateTime lastRunAt;
+    long lastRunRows;
+    long lastRunMillis;
+
+    /** Rows processed per second of chunk work in the last run, pauses excluded */
+    double lastRunRowsPerSecond;
+
+    /** Rows processed per task since startup: deactivated, deleted or anonymized */
+    Map<String, Long> rowsByTask;
+
+    long chunks;
+    int currentChunkSize;
+    double meanChunkMillis;
+    long maxChunkMillis;
+
+    /** Chunks that hit a lock timeout or deadlock and were retried after backing off */
+    long lockConflicts;
+
+    long archivedRowsDropped;
+}
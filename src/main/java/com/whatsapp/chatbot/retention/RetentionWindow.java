@@ -0,0 +1,55 @@
+package com.whatsapp.chatbot.retention;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Daily time window in which retention may run, such as 02:00-05:00. A
+ * window whose end is before its start wraps past midnight; an empty
+ * specification means any time.
+ */
+public final class RetentionWindow {
+
+    private final LocalTime start;
+    private final LocalTime end;
+
+    private RetentionWindow(LocalTime start, LocalTime end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Parse "HH:mm-HH:mm", or an empty string for no restriction
+     *
+     * @throws IllegalArgumentException if the specification is malformed
+     */
+    public static RetentionWindow parse(String specification) {
+        if (specification == null || specification.isBlank()) {
+            return new RetentionWindow(null, null);
+        }
+        String[] bounds = specification.trim().split("-");
+        if (bounds.length != 2) {
+            throw new IllegalArgumentException("Retention window must look like 02:00-05:00: " + specification);
+        }
+        try {
+            return new RetentionWindow(LocalTime.parse(bounds[0].trim()), LocalTime.parse(bounds[1].trim()));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Retention window must look like 02:00-05:00: " + specification, e);
+        }
+    }
+
+    public boolean contains(LocalTime time) {
+        if (start == null || start.equals(end)) {
+            return true;
+        }
+        if (start.isBefore(end)) {
+            return !time.isBefore(start) && time.isBefore(end);
+        }
+        return !time.isBefore(start) || time.isBefore(end);
+    }
+
+    @Override
+    public String toString() {
+        return start == null ? "any time" : start + "-" + end;
+    }
+}
@@ -0,0 +1,71 @@
+package com.whatsapp.chatbot.rollup;
+
+import java.util.Arrays;
+
+/**
+ * A fixed number of time buckets, each a count. A slot is reused once its
+ * bucket falls out of the ring, so memory stays constant however long the
+ * process runs. Not thread-safe; callers serialize access.
+ */
+final class CounterRing {
+
+    private final long[] stamps;
+    private final long[] counts;
+    private long newest = Long.MIN_VALUE;
+
+    CounterRing(int buckets) {
+        this.stamps = new long[buckets];
+        this.counts = new long[buckets];
+        Arrays.fill(stamps, Long.MIN_VALUE);
+    }
+
+    /**
+     * Add to a bucket's count
+     *
+     * @return false if the bucket is older than the ring still holds
+     */
+    boolean add(long bucket, long delta) {
+        if (newest != Long.MIN_VALUE && bucket <= newest - stamps.length) {
+            return false;
+        }
+        int slot = (int) Math.floorMod(bucket, (long) stamps.length);
+        if (stamps[slot] != bucket) {
+            if (stamps[slot] > bucket) {
+                return false;
+            }
+            stamps[slot] = bucket;
+            counts[slot] = 0;
+        }
+        counts[slot] += delta;
+        newest = Math.max(newest, bucket);
+        return true;
+    }
+
+    long get(long bucket) {
+        int slot = (int) Math.floorMod(bucket, (long) stamps.length);
+        return stamps[slot] == bucket ? counts[slot] : 0;
+    }
+
+    int capacity() {
+        return stamps.length;
+    }
+
+    /**
+     * Visit every held bucket with a non-zero count, oldest first
+     */
+    void forEach(BucketConsumer consumer) {
+        if (newest == Long.MIN_VALUE) {
+            return;
+        }
+        for (long bucket = newest - stamps.length + 1; bucket <= newest; bucket++) {
+            long count = get(bucket);
+            if (count != 0) {
+                consumer.accept(bucket, count);
+            }
+        }
+    }
+
+    interface BucketConsumer {
+        void accept(long bucket, long count);
+    }
+}
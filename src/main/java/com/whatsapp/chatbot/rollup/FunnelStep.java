@@ -0,0 +1,20 @@
+package com.whatsapp.chatbot.rollup;
+
+import lombok.Value;
+
+/**
+ * One step of a state funnel over a time range
+ */
+@Value
+public class FunnelStep {
+    String state;
+
+    /** Times any session entered this state */
+    long entered;
+
+    /** Times a session moved straight here from the previous step (0 for the first step) */
+    long fromPrevious;
+
+    /** fromPrevious over the previous step's entries; 1 for the first step */
+    double conversion;
+}
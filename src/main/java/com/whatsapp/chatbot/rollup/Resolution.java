@@ -0,0 +1,41 @@
+package com.whatsapp.chatbot.rollup;
+
+import java.util.Locale;
+
+/**
+ * Bucket widths of the rollup tiers; bucket numbers count from the epoch (UTC)
+ */
+public enum Resolution {
+    MINUTE(60_000L),
+    HOUR(3_600_000L),
+    DAY(86_400_000L);
+
+    private final long millis;
+
+    Resolution(long millis) {
+        this.millis = millis;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    long bucketOf(long epochMillis) {
+        return Math.floorDiv(epochMillis, millis);
+    }
+
+    long startMillis(long bucket) {
+        return bucket * millis;
+    }
+
+    /**
+     * Parse "minute", "hour" or "day"; null if unknown
+     */
+    public static Resolution parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
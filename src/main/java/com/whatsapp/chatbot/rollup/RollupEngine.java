@@ -0,0 +1,268 @@
+package com.whatsapp.chatbot.rollup;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory time-series counters. Each named series holds one ring of
+ * buckets per {@link Resolution}; an event is counted at every resolution
+ * when recorded, so hourly and daily tiers are ready to read and keep their
+ * history long after the minute ring has wrapped. Memory is fixed by the
+ * ring sizes and the series limit.
+ *
+ * Session state changes are recorded as an entry series per state and a
+ * transition series per (from, to) pair, which is enough to answer
+ * step-to-step funnel questions without reading navigation paths.
+ */
+public final class RollupEngine {
+
+    private static final int MAGIC = 0x524F4C31; // "ROL1"
+    private static final String STATE_PREFIX = "sessions.state.";
+    private static final String TRANSITION_PREFIX = "sessions.transition.";
+
+    private final int[] capacities;
+    private final int maxSeries;
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+    private final LongAdder events = new LongAdder();
+    private final LongAdder rejectedEvents = new LongAdder();
+    private final LongAdder lateEvents = new LongAdder();
+
+    /**
+     * @param minuteBuckets how many minutes of per-minute counts to keep; likewise hours and days
+     */
+    public RollupEngine(int minuteBuckets, int hourBuckets, int dayBuckets, int maxSeries) {
+        this.capacities = new int[]{minuteBuckets, hourBuckets, dayBuckets};
+        this.maxSeries = maxSeries;
+    }
+
+    public static String stateSeries(String state) {
+        return STATE_PREFIX + state;
+    }
+
+    public static String transitionSeries(String from, String to) {
+        return TRANSITION_PREFIX + from + ">" + to;
+    }
+
+    /**
+     * Add to a series at a point in time
+     */
+    public void record(String name, long epochMillis, long delta) {
+        Series target = series.get(name);
+        if (target == null) {
+            if (series.size() >= maxSeries) {
+                rejectedEvents.increment();
+                return;
+            }
+            target = series.computeIfAbsent(name, key -> new Series(capacities));
+        }
+        if (!target.add(epochMillis, delta)) {
+            lateEvents.increment();
+        }
+        events.increment();
+    }
+
+    /**
+     * Buckets of [fromMillis, toMillis) at a resolution, oldest first. The
+     * range is trimmed to what the tier holds; unknown series read as zero.
+     */
+    public List<RollupPoint> query(Collection<String> names, Resolution resolution, long fromMillis, long toMillis) {
+        long first = resolution.bucketOf(fromMillis);
+        long last = resolution.bucketOf(toMillis - 1);
+        first = Math.max(first, last - capacities[resolution.ordinal()] + 1);
+
+        Map<String, long[]> columns = new LinkedHashMap<>();
+        for (String name : names) {
+            Series source = series.get(name);
+            columns.put(name, source == null ? new long[(int) Math.max(0, last - first + 1)]
+                                             : source.read(resolution, first, last));
+        }
+        List<RollupPoint> points = new ArrayList<>();
+        for (long bucket = first; bucket <= last; bucket++) {
+            Map<String, Long> values = new LinkedHashMap<>();
+            for (Map.Entry<String, long[]> column : columns.entrySet()) {
+                values.put(column.getKey(), column.getValue()[(int) (bucket - first)]);
+            }
+            points.add(new RollupPoint(LocalDateTime.ofEpochSecond(resolution.startMillis(bucket) / 1000, 0,
+                    ZoneOffset.UTC), values));
+        }
+        return points;
+    }
+
+    /**
+     * Total of a series over [fromMillis, toMillis) at a resolution
+     */
+    public long total(String name, Resolution resolution, long fromMillis, long toMillis) {
+        Series source = series.get(name);
+        if (source == null) {
+            return 0;
+        }
+        long last = resolution.bucketOf(toMillis - 1);
+        long first = Math.max(resolution.bucketOf(fromMillis), last - capacities[resolution.ordinal()] + 1);
+        long total = 0;
+        for (long value : source.read(resolution, first, last)) {
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * Step-to-step conversion through a sequence of session states over a
+     * time range: how often sessions entered each state, and how often they
+     * moved directly to it from the step before
+     */
+    public List<FunnelStep> funnel(List<String> states, Resolution resolution, long fromMillis, long toMillis) {
+        List<FunnelStep> steps = new ArrayList<>(states.size());
+        long previousEntered = 0;
+        for (int i = 0; i < states.size(); i++) {
+            String state = states.get(i);
+            long entered = total(stateSeries(state), resolution, fromMillis, toMillis);
+            if (i == 0) {
+                steps.add(new FunnelStep(state, entered, 0, 1.0));
+            } else {
+                long moved = total(transitionSeries(states.get(i - 1), state), resolution, fromMillis, toMillis);
+                steps.add(new FunnelStep(state, entered, moved,
+                        previousEntered == 0 ? 0.0 : (double) moved / previousEntered));
+            }
+            previousEntered = entered;
+        }
+        return steps;
+    }
+
+    public List<String> seriesNames() {
+        return series.keySet().stream().sorted().toList();
+    }
+
+    public RollupStats stats() {
+        return new RollupStats(series.size(), maxSeries, events.sum(), rejectedEvents.sum(), lateEvents.sum());
+    }
+
+    /**
+     * Write every non-zero bucket: per series and resolution the first
+     * bucket, then (bucket gap, count) varint pairs
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        Map<String, Series> current = new LinkedHashMap<>(series);
+        data.writeInt(MAGIC);
+        data.writeInt(current.size());
+        for (Map.Entry<String, Series> entry : current.entrySet()) {
+            data.writeUTF(entry.getKey());
+            for (Resolution resolution : Resolution.values()) {
+                List<long[]> buckets = entry.getValue().nonZero(resolution);
+                writeVarLong(data, buckets.size());
+                long previous = buckets.isEmpty() ? 0 : buckets.get(0)[0];
+                if (!buckets.isEmpty()) {
+                    data.writeLong(previous);
+                }
+                for (long[] bucket : buckets) {
+                    writeVarLong(data, bucket[0] - previous);
+                    writeVarLong(data, (bucket[1] << 1) ^ (bucket[1] >> 63));
+                    previous = bucket[0];
+                }
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Add counts written by {@link #writeTo}; buckets the rings no longer hold are skipped
+     */
+    public void readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a rollup snapshot");
+        }
+        int count = data.readInt();
+        for (int s = 0; s < count; s++) {
+            String name = data.readUTF();
+            Series target = series.size() < maxSeries || series.containsKey(name)
+                    ? series.computeIfAbsent(name, key -> new Series(capacities)) : null;
+            for (Resolution resolution : Resolution.values()) {
+                long buckets = readVarLong(data);
+                long bucket = buckets == 0 ? 0 : data.readLong();
+                for (long b = 0; b < buckets; b++) {
+                    bucket += readVarLong(data);
+                    long zigZag = readVarLong(data);
+                    long value = (zigZag >>> 1) ^ -(zigZag & 1);
+                    if (target != null) {
+                        target.addBucket(resolution, bucket, value);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    /**
+     * One ring per resolution, guarded by the series' monitor
+     */
+    private static final class Series {
+        final CounterRing[] rings;
+
+        Series(int[] capacities) {
+            rings = new CounterRing[capacities.length];
+            for (int r = 0; r < capacities.length; r++) {
+                rings[r] = new CounterRing(capacities[r]);
+            }
+        }
+
+        synchronized boolean add(long epochMillis, long delta) {
+            boolean held = false;
+            for (Resolution resolution : Resolution.values()) {
+                held |= rings[resolution.ordinal()].add(resolution.bucketOf(epochMillis), delta);
+            }
+            return held;
+        }
+
+        synchronized void addBucket(Resolution resolution, long bucket, long delta) {
+            rings[resolution.ordinal()].add(bucket, delta);
+        }
+
+        synchronized long[] read(Resolution resolution, long first, long last) {
+            long[] values = new long[(int) Math.max(0, last - first + 1)];
+            for (long bucket = first; bucket <= last; bucket++) {
+                values[(int) (bucket - first)] = rings[resolution.ordinal()].get(bucket);
+            }
+            return values;
+        }
+
+        synchronized List<long[]> nonZero(Resolution resolution) {
+            List<long[]> buckets = new ArrayList<>();
+            rings[resolution.ordinal()].forEach((bucket, count) -> buckets.add(new long[]{bucket, count}));
+            return buckets;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.whatsapp.chatbot.rollup;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Counts of the requested series in one bucket, starting at {@code start} (UTC)
+ */
+@Value
+public class RollupPoint {
+    LocalDateTime start;
+    Map<String, Long> values;
+}
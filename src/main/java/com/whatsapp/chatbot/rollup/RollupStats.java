@@ -0,0 +1,19 @@
+package com.whatsapp.chatbot.rollup;
+
+import lombok.Value;
+
+/**
+ * Point-in-time counters for the rollup engine
+ */
+@Value
+public class RollupStats {
+    int series;
+    int maxSeries;
+    long events;
+
+    /** Events dropped because the series limit was reached */
+    long rejectedEvents;
+
+    /** Events older than every tier still holds */
+    long lateEvents;
+}
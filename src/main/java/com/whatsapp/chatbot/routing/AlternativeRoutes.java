@@ -0,0 +1,180 @@
+package com.whatsapp.chatbot.routing;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * k diverse routes by the penalty method, with the candidate searches run in parallel.
+ *
+ * After the fastest path is known, each candidate search raises the cost of
+ * part of it: the whole path at several strengths, or one stretch of it at a
+ * time, which pushes out detours around different parts of the route.
+ * The searches are independent, so they run as fork-join tasks under a
+ * shared deadline; whatever has finished by then is priced with the real
+ * weights and filtered greedily, fastest first, for a bounded detour and
+ * limited overlap with every route already chosen.
+ */
+public final class AlternativeRoutes {
+
+    /** Alternatives may take at most this multiple of the fastest time */
+    private static final double MAX_STRETCH = 1.4;
+
+    /** Share of an alternative's length that may overlap any chosen route */
+    private static final double MAX_SHARED = 0.7;
+
+    private static final double[] WHOLE_ROUTE_PENALTIES = {1.3, 1.6, 2.2, 3.0};
+    private static final double STRETCH_PENALTY = 4.0;
+
+    private final Router router;
+    private final ForkJoinPool pool;
+
+    public AlternativeRoutes(Router router, ForkJoinPool pool) {
+        this.router = router;
+        this.pool = pool;
+    }
+
+    /**
+     * Up to k routes, fastest first. The fastest path is always included when
+     * the target is reachable; alternatives are the best found before the timeout.
+     */
+    public List<RoutePath> find(int source, int target, int k, EdgeWeights weights, Duration timeout) {
+        RoutePath fastest = router.route(source, target, weights);
+        if (fastest == null) {
+            return List.of();
+        }
+        if (k <= 1 || fastest.getEdges().length == 0) {
+            return List.of(fastest);
+        }
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        List<ForkJoinTask<RoutePath>> tasks = new ArrayList<>();
+        for (EdgeWeights penalized : penaltySchemes(fastest, weights, k)) {
+            tasks.add(pool.submit(() -> router.route(source, target, penalized, deadline)));
+        }
+
+        List<RoutePath> candidates = new ArrayList<>();
+        for (ForkJoinTask<RoutePath> task : tasks) {
+            try {
+                RoutePath path = task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (path != null) {
+                    candidates.add(reprice(path, weights));
+                }
+            } catch (TimeoutException e) {
+                // Searches that are still running stop themselves at the deadline
+                task.cancel(false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                // A failed candidate only means one fewer alternative
+            }
+        }
+        return select(fastest, candidates, k);
+    }
+
+    private List<EdgeWeights> penaltySchemes(RoutePath fastest, EdgeWeights weights, int k) {
+        int[] edges = fastest.getEdges();
+        int edgeCount = router.getGraph().edgeCount();
+        List<EdgeWeights> schemes = new ArrayList<>();
+
+        BitSet wholeRoute = new BitSet(edgeCount);
+        for (int edge : edges) {
+            wholeRoute.set(edge);
+        }
+        for (double factor : WHOLE_ROUTE_PENALTIES) {
+            schemes.add(penalize(weights, wholeRoute, factor));
+        }
+
+        // Equal-time stretches of the fastest route, each penalized on its own
+        int stretches = Math.min(edges.length, Math.max(4, 2 * k));
+        double perStretch = (double) fastest.getDurationMillis() / stretches;
+        BitSet current = new BitSet(edgeCount);
+        long elapsed = 0;
+        int index = 0;
+        for (int edge : edges) {
+            current.set(edge);
+            elapsed += weights.weightMillis(edge);
+            if (elapsed >= perStretch * (index + 1) && index < stretches - 1) {
+                schemes.add(penalize(weights, current, STRETCH_PENALTY));
+                current = new BitSet(edgeCount);
+                index++;
+            }
+        }
+        if (!current.isEmpty()) {
+            schemes.add(penalize(weights, current, STRETCH_PENALTY));
+        }
+        return schemes;
+    }
+
+    private static EdgeWeights penalize(EdgeWeights weights, BitSet edges, double factor) {
+        return edge -> {
+            int weight = weights.weightMillis(edge);
+            return edges.get(edge) ? (int) Math.min(Integer.MAX_VALUE, Math.round(weight * factor)) : weight;
+        };
+    }
+
+    /**
+     * Replace penalized totals with the path's cost under the real weights
+     */
+    private RoutePath reprice(RoutePath path, EdgeWeights weights) {
+        RoadGraph graph = router.getGraph();
+        long duration = 0;
+        long length = 0;
+        for (int edge : path.getEdges()) {
+            duration += weights.weightMillis(edge);
+            length += graph.edgeLengthMeters(edge);
+        }
+        return new RoutePath(path.getNodes(), path.getEdges(), duration, length, path.getSettledNodes());
+    }
+
+    private List<RoutePath> select(RoutePath fastest, List<RoutePath> candidates, int k) {
+        RoadGraph graph = router.getGraph();
+        List<RoutePath> chosen = new ArrayList<>(List.of(fastest));
+        List<BitSet> chosenEdges = new ArrayList<>(List.of(edgeSet(fastest, graph)));
+        candidates.sort(Comparator.comparingLong(RoutePath::getDurationMillis));
+
+        for (RoutePath candidate : candidates) {
+            if (chosen.size() >= k) {
+                break;
+            }
+            if (candidate.getDurationMillis() > fastest.getDurationMillis() * MAX_STRETCH
+                    || candidate.getLengthMeters() == 0) {
+                continue;
+            }
+            boolean distinct = true;
+            for (BitSet edges : chosenEdges) {
+                long shared = 0;
+                for (int edge : candidate.getEdges()) {
+                    if (edges.get(edge)) {
+                        shared += graph.edgeLengthMeters(edge);
+                    }
+                }
+                if (shared > MAX_SHARED * candidate.getLengthMeters()) {
+                    distinct = false;
+                    break;
+                }
+            }
+            if (distinct) {
+                chosen.add(candidate);
+                chosenEdges.add(edgeSet(candidate, graph));
+            }
+        }
+        return chosen;
+    }
+
+    private static BitSet edgeSet(RoutePath path, RoadGraph graph) {
+        BitSet edges = new BitSet(graph.edgeCount());
+        for (int edge : path.getEdges()) {
+            edges.set(edge);
+        }
+        return edges;
+    }
+}
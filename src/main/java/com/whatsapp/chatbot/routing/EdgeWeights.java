@@ -0,0 +1,16 @@
+package com.whatsapp.chatbot.routing;
+
+/**
+ * Travel-time cost of traversing an edge, in milliseconds. Implementations may
+ * only raise costs above the graph's free-flow weights, otherwise the A*
+ * heuristic stops being admissible.
+ */
+@FunctionalInterface
+public interface EdgeWeights {
+
+    int weightMillis(int edge);
+
+    static EdgeWeights freeFlow(RoadGraph graph) {
+        return graph::edgeWeightMillis;
+    }
+}
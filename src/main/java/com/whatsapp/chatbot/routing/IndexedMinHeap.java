@@ -0,0 +1,119 @@
+package com.whatsapp.chatbot.routing;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of node ids keyed by double, with decrease-key.
+ * Sized once for the graph and reused across queries; {@link #clear()} only
+ * touches the entries still queued.
+ */
+final class IndexedMinHeap {
+
+    private final int[] nodes;
+    private final double[] keys;
+    private final int[] positions;
+    private int size;
+
+    IndexedMinHeap(int capacity) {
+        this.nodes = new int[capacity];
+        this.keys = new double[capacity];
+        this.positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    double peekKey() {
+        return keys[0];
+    }
+
+    boolean contains(int node) {
+        return positions[node] >= 0;
+    }
+
+    /**
+     * Insert the node, or lower its key if already queued with a larger one
+     */
+    void pushOrDecrease(int node, double key) {
+        int pos = positions[node];
+        if (pos < 0) {
+            pos = size++;
+            nodes[pos] = node;
+            positions[node] = pos;
+        } else if (key >= keys[pos]) {
+            return;
+        }
+        keys[pos] = key;
+        siftUp(pos);
+    }
+
+    int pop() {
+        int top = nodes[0];
+        positions[top] = -1;
+        size--;
+        if (size > 0) {
+            nodes[0] = nodes[size];
+            keys[0] = keys[size];
+            positions[nodes[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[nodes[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int pos) {
+        int node = nodes[pos];
+        double key = keys[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            move(parent, pos);
+            pos = parent;
+        }
+        place(node, key, pos);
+    }
+
+    private void siftDown(int pos) {
+        int node = nodes[pos];
+        double key = keys[pos];
+        int half = size >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            move(child, pos);
+            pos = child;
+        }
+        place(node, key, pos);
+    }
+
+    private void move(int from, int to) {
+        nodes[to] = nodes[from];
+        keys[to] = keys[from];
+        positions[nodes[to]] = to;
+    }
+
+    private void place(int node, double key, int pos) {
+        nodes[pos] = node;
+        keys[pos] = key;
+        positions[node] = pos;
+    }
+}
@@ -0,0 +1,13 @@
+package com.whatsapp.chatbot.routing;
+
+import lombok.Value;
+
+/**
+ * A route a user asked for, with the place names they were shown
+ */
+@Value
+public class PlannedRoute {
+    String fromName;
+    String toName;
+    RoutePath path;
+}
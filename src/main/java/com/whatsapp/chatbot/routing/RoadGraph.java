@@ -0,0 +1,364 @@
+package com.whatsapp.chatbot.routing;
+
+import com.whatsapp.chatbot.geo.GeoUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Immutable road network in compressed sparse row (CSR) form.
+ *
+ * Nodes are numbered in grid-cell order so spatially close nodes have close
+ * ids. Outgoing edges of node {@code v} are {@code [firstEdge(v), firstEdge(v + 1))};
+ * a second CSR over incoming edges supports backward search. All arrays are
+ * {@link IntBuffer}/{@link LongBuffer} views so the same code runs over heap
+ * arrays (fresh build) or a memory-mapped file (fast startup, shared page cache).
+ */
+public final class RoadGraph {
+
+    private static final int MAGIC = 0x52475231; // "RGR1"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 64;
+
+    private final long fingerprint;
+    private final int nodeCount;
+    private final int edgeCount;
+    private final double cellSize;
+    private final int lonCells;
+    private final IntBuffer latE6;
+    private final IntBuffer lonE6;
+    private final IntBuffer firstEdge;
+    private final IntBuffer edgeTarget;
+    private final IntBuffer edgeWeight;
+    private final IntBuffer edgeLength;
+    private final IntBuffer edgeName;
+    private final IntBuffer firstInEdge;
+    private final IntBuffer inEdgeSource;
+    private final IntBuffer inEdgeId;
+    private final LongBuffer externalIds;
+    private final LongBuffer cellKeys;
+    private final IntBuffer cellStarts;
+    private final String[] names;
+    private final int maxSpeedMetersPerSecond;
+
+    RoadGraph(long fingerprint, int nodeCount, int edgeCount, double cellSize,
+              IntBuffer latE6, IntBuffer lonE6, LongBuffer externalIds,
+              IntBuffer firstEdge, IntBuffer edgeTarget, IntBuffer edgeWeight, IntBuffer edgeLength, IntBuffer edgeName,
+              IntBuffer firstInEdge, IntBuffer inEdgeSource, IntBuffer inEdgeId,
+              LongBuffer cellKeys, IntBuffer cellStarts, String[] names, int maxSpeedMetersPerSecond) {
+        this.fingerprint = fingerprint;
+        this.nodeCount = nodeCount;
+        this.edgeCount = edgeCount;
+        this.cellSize = cellSize;
+        this.lonCells = (int) Math.ceil(360.0 / cellSize);
+        this.latE6 = latE6;
+        this.lonE6 = lonE6;
+        this.externalIds = externalIds;
+        this.firstEdge = firstEdge;
+        this.edgeTarget = edgeTarget;
+        this.edgeWeight = edgeWeight;
+        this.edgeLength = edgeLength;
+        this.edgeName = edgeName;
+        this.firstInEdge = firstInEdge;
+        this.inEdgeSource = inEdgeSource;
+        this.inEdgeId = inEdgeId;
+        this.cellKeys = cellKeys;
+        this.cellStarts = cellStarts;
+        this.names = names;
+        this.maxSpeedMetersPerSecond = Math.max(1, maxSpeedMetersPerSecond);
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    public double latitude(int node) {
+        return GeoUtils.fromMicroDegrees(latE6.get(node));
+    }
+
+    public double longitude(int node) {
+        return GeoUtils.fromMicroDegrees(lonE6.get(node));
+    }
+
+    /** Id of the node in the source data (e.g. OSM node id) */
+    public long externalId(int node) {
+        return externalIds.get(node);
+    }
+
+    public int firstEdge(int node) {
+        return firstEdge.get(node);
+    }
+
+    public int edgeTarget(int edge) {
+        return edgeTarget.get(edge);
+    }
+
+    /** Free-flow travel time in milliseconds */
+    public int edgeWeightMillis(int edge) {
+        return edgeWeight.get(edge);
+    }
+
+    public int edgeLengthMeters(int edge) {
+        return edgeLength.get(edge);
+    }
+
+    public String edgeName(int edge) {
+        return names[edgeName.get(edge)];
+    }
+
+    public int firstInEdge(int node) {
+        return firstInEdge.get(node);
+    }
+
+    public int inEdgeSource(int inEdge) {
+        return inEdgeSource.get(inEdge);
+    }
+
+    /** Forward edge id of an incoming-edge slot, for weight/length/name lookups */
+    public int inEdgeId(int inEdge) {
+        return inEdgeId.get(inEdge);
+    }
+
+    /**
+     * Fastest edge speed in the graph; the A* heuristic divides straight-line
+     * distance by this to stay admissible.
+     */
+    public int maxSpeedMetersPerSecond() {
+        return maxSpeedMetersPerSecond;
+    }
+
+    /**
+     * Snap a coordinate to the closest node within {@code maxRadiusMeters}, or -1
+     */
+    public int nearestNode(double latitude, double longitude, double maxRadiusMeters) {
+        if (nodeCount == 0) {
+            return -1;
+        }
+        int latCells = (int) Math.ceil(180.0 / cellSize);
+        int cy0 = Math.min(latCells - 1, Math.max(0, (int) Math.floor((latitude + 90.0) / cellSize)));
+        int cx0 = Math.min(lonCells - 1, Math.max(0, (int) Math.floor((longitude + 180.0) / cellSize)));
+        double cellMeters = cellSize * GeoUtils.METERS_PER_DEGREE
+                * Math.cos(Math.toRadians(Math.min(89.0, Math.abs(latitude) + cellSize)));
+        int maxRing = (int) Math.ceil(maxRadiusMeters / cellMeters) + 1;
+
+        int best = -1;
+        double bestDistance = maxRadiusMeters;
+        for (int r = 0; r <= maxRing; r++) {
+            if (best >= 0 && (r - 1) * cellMeters > bestDistance) {
+                break;
+            }
+            for (int dy = -r; dy <= r; dy++) {
+                int cy = cy0 + dy;
+                if (cy < 0 || cy >= latCells) {
+                    continue;
+                }
+                int step = (dy == -r || dy == r) ? 1 : 2 * r;
+                for (int dx = -r; dx <= r; dx += step) {
+                    int cell = findCell((long) cy * lonCells + Math.floorMod(cx0 + dx, lonCells));
+                    if (cell < 0) {
+                        continue;
+                    }
+                    for (int node = cellStarts.get(cell); node < cellStarts.get(cell + 1); node++) {
+                        double distance = GeoUtils.fastDistanceMeters(latitude, longitude, latitude(node), longitude(node));
+                        if (distance <= bestDistance) {
+                            bestDistance = distance;
+                            best = node;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private int findCell(long key) {
+        int low = 0;
+        int high = cellKeys.limit() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = cellKeys.get(mid);
+            if (value < key) {
+                low = mid + 1;
+            } else if (value > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Persist the graph in the little-endian layout read by {@link #map(Path)}.
+     * Written to a temp file and moved into place so readers never see a partial file.
+     */
+    public void write(Path path) throws IOException {
+        byte[][] encodedNames = new byte[names.length][];
+        long nameBytes = 4;
+        for (int i = 0; i < names.length; i++) {
+            encodedNames[i] = names[i].getBytes(StandardCharsets.UTF_8);
+            nameBytes += 4 + encodedNames[i].length;
+        }
+
+        long intsBefore = 2L * nodeCount + 2L * (nodeCount + 1) + 4L * edgeCount + 2L * edgeCount;
+        long cellBytes = 8L * nodeCount + 8L * cellKeys.limit() + 4L * cellStarts.limit();
+        long total = HEADER_BYTES + intsBefore * 4 + (intsBefore % 2 == 0 ? 0 : 4) + cellBytes + nameBytes;
+        if (total > Integer.MAX_VALUE) {
+            throw new IOException("Graph too large for a single mapped segment: " + total + " bytes");
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, total);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC).putInt(VERSION).putLong(fingerprint)
+                    .putInt(nodeCount).putInt(edgeCount).putInt(cellKeys.limit()).putInt(names.length)
+                    .putDouble(cellSize).putInt(maxSpeedMetersPerSecond);
+            out.position(HEADER_BYTES);
+
+            putInts(out, latE6);
+            putInts(out, lonE6);
+            putInts(out, firstEdge);
+            putInts(out, edgeTarget);
+            putInts(out, edgeWeight);
+            putInts(out, edgeLength);
+            putInts(out, edgeName);
+            putInts(out, firstInEdge);
+            putInts(out, inEdgeSource);
+            putInts(out, inEdgeId);
+            if (out.position() % 8 != 0) {
+                out.putInt(0);
+            }
+            for (int i = 0; i < nodeCount; i++) {
+                out.putLong(externalIds.get(i));
+            }
+            for (int i = 0; i < cellKeys.limit(); i++) {
+                out.putLong(cellKeys.get(i));
+            }
+            putInts(out, cellStarts);
+            out.putInt(encodedNames.length);
+            for (byte[] name : encodedNames) {
+                out.putInt(name.length).put(name);
+            }
+            out.force();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Open a graph file written by {@link #write(Path)} without copying the
+     * arrays onto the heap; only street names are decoded eagerly.
+     */
+    public static RoadGraph map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Graph file too large: " + channel.size());
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            in.order(ByteOrder.LITTLE_ENDIAN);
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                throw new IOException("Not a road graph file (or unsupported version): " + path);
+            }
+            long fingerprint = in.getLong();
+            int nodes = in.getInt();
+            int edges = in.getInt();
+            int cells = in.getInt();
+            int nameCount = in.getInt();
+            double cellSize = in.getDouble();
+            int maxSpeed = in.getInt();
+            in.position(HEADER_BYTES);
+
+            IntBuffer lat = sliceInts(in, nodes);
+            IntBuffer lon = sliceInts(in, nodes);
+            IntBuffer first = sliceInts(in, nodes + 1);
+            IntBuffer target = sliceInts(in, edges);
+            IntBuffer weight = sliceInts(in, edges);
+            IntBuffer length = sliceInts(in, edges);
+            IntBuffer name = sliceInts(in, edges);
+            IntBuffer firstIn = sliceInts(in, nodes + 1);
+            IntBuffer inSource = sliceInts(in, edges);
+            IntBuffer inId = sliceInts(in, edges);
+            if (in.position() % 8 != 0) {
+                in.getInt();
+            }
+            LongBuffer externalIds = sliceLongs(in, nodes);
+            LongBuffer cellKeys = sliceLongs(in, cells);
+            IntBuffer cellStarts = sliceInts(in, cells + 1);
+
+            String[] names = new String[in.getInt()];
+            if (names.length != nameCount) {
+                throw new IOException("Corrupt road graph file: " + path);
+            }
+            for (int i = 0; i < names.length; i++) {
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                names[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            return new RoadGraph(fingerprint, nodes, edges, cellSize, lat, lon, externalIds, first, target, weight, length, name,
+                    firstIn, inSource, inId, cellKeys, cellStarts, names, maxSpeed);
+        }
+    }
+
+    /**
+     * Read only the fingerprint of a graph file, or 0 if it is missing or unreadable
+     */
+    public static long readFingerprint(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < 16 || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                return 0;
+            }
+            return header.getLong();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void putInts(ByteBuffer out, IntBuffer values) {
+        for (int i = 0; i < values.limit(); i++) {
+            out.putInt(values.get(i));
+        }
+    }
+
+    private static LongBuffer sliceLongs(ByteBuffer in, int count) {
+        LongBuffer view = in.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        view.limit(count);
+        in.position(in.position() + count * 8);
+        return view;
+    }
+
+    private static IntBuffer sliceInts(ByteBuffer in, int count) {
+        IntBuffer view = in.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        view.limit(count);
+        in.position(in.position() + count * 4);
+        return view;
+    }
+}
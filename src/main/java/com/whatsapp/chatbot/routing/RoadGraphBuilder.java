@@ -0,0 +1,229 @@
+package com.whatsapp.chatbot.routing;
+
+import com.whatsapp.chatbot.geo.GeoUtils;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects nodes and edges keyed by external (e.g. OSM) ids and packs them into a {@link RoadGraph}
+ */
+public final class RoadGraphBuilder {
+
+    private final double cellSize;
+    private final Map<Long, Integer> nodeIndex = new HashMap<>();
+    private final Map<String, Integer> nameIndex = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private int nodeCount;
+    private int[] lat = new int[1024];
+    private int[] lon = new int[1024];
+    private long[] externalIds = new long[1024];
+    private int edgeCount;
+    private int[] edgeFrom = new int[4096];
+    private int[] edgeTo = new int[4096];
+    private int[] edgeWeight = new int[4096];
+    private int[] edgeLength = new int[4096];
+    private int[] edgeName = new int[4096];
+    private int maxSpeed = 1;
+
+    public RoadGraphBuilder(double cellSizeDegrees) {
+        if (cellSizeDegrees <= 0 || cellSizeDegrees > 10) {
+            throw new IllegalArgumentException("Cell size must be in (0, 10] degrees: " + cellSizeDegrees);
+        }
+        this.cellSize = cellSizeDegrees;
+        names.add("");
+        nameIndex.put("", 0);
+    }
+
+    public RoadGraphBuilder addNode(long externalId, double latitude, double longitude) {
+        if (Double.isNaN(latitude) || latitude < -90 || latitude > 90
+                || Double.isNaN(longitude) || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Invalid coordinates: " + latitude + "," + longitude);
+        }
+        if (nodeIndex.putIfAbsent(externalId, nodeCount) != null) {
+            throw new IllegalArgumentException("Duplicate node id: " + externalId);
+        }
+        if (nodeCount == lat.length) {
+            lat = Arrays.copyOf(lat, nodeCount * 2);
+            lon = Arrays.copyOf(lon, nodeCount * 2);
+            externalIds = Arrays.copyOf(externalIds, nodeCount * 2);
+        }
+        lat[nodeCount] = GeoUtils.toMicroDegrees(latitude);
+        lon[nodeCount] = GeoUtils.toMicroDegrees(longitude);
+        externalIds[nodeCount] = externalId;
+        nodeCount++;
+        return this;
+    }
+
+    /**
+     * Add a road segment. A non-positive length is replaced by the straight-line
+     * distance between the endpoints; two-way roads produce one edge per direction.
+     */
+    public RoadGraphBuilder addEdge(long fromId, long toId, double lengthMeters, double speedKmh,
+                                    boolean oneway, String name) {
+        Integer from = nodeIndex.get(fromId);
+        Integer to = nodeIndex.get(toId);
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Edge references unknown node: " + fromId + " -> " + toId);
+        }
+        if (!(speedKmh > 0)) {
+            throw new IllegalArgumentException("Speed must be positive: " + speedKmh);
+        }
+        if (from.intValue() == to.intValue()) {
+            return this;
+        }
+
+        double straightLine = GeoUtils.haversineMeters(
+                GeoUtils.fromMicroDegrees(lat[from]), GeoUtils.fromMicroDegrees(lon[from]),
+                GeoUtils.fromMicroDegrees(lat[to]), GeoUtils.fromMicroDegrees(lon[to]));
+        double length = lengthMeters > 0 ? lengthMeters : straightLine;
+        int lengthInt = (int) Math.max(1, Math.round(length));
+        int weightMillis = (int) Math.max(1, Math.round(length / (speedKmh / 3.6) * 1000.0));
+        // Track the fastest straight-line speed so the A* heuristic never overestimates
+        maxSpeed = Math.max(maxSpeed, (int) Math.ceil(straightLine * 1000.0 / weightMillis));
+
+        String normalizedName = name == null ? "" : name.trim();
+        Integer nameId = nameIndex.get(normalizedName);
+        if (nameId == null) {
+            nameId = names.size();
+            names.add(normalizedName);
+            nameIndex.put(normalizedName, nameId);
+        }
+
+        appendEdge(from, to, weightMillis, lengthInt, nameId);
+        if (!oneway) {
+            appendEdge(to, from, weightMillis, lengthInt, nameId);
+        }
+        return this;
+    }
+
+    private void appendEdge(int from, int to, int weight, int length, int name) {
+        if (edgeCount == edgeFrom.length) {
+            int capacity = edgeCount * 2;
+            edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+            edgeTo = Arrays.copyOf(edgeTo, capacity);
+            edgeWeight = Arrays.copyOf(edgeWeight, capacity);
+            edgeLength = Arrays.copyOf(edgeLength, capacity);
+            edgeName = Arrays.copyOf(edgeName, capacity);
+        }
+        edgeFrom[edgeCount] = from;
+        edgeTo[edgeCount] = to;
+        edgeWeight[edgeCount] = weight;
+        edgeLength[edgeCount] = length;
+        edgeName[edgeCount] = name;
+        edgeCount++;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Renumber nodes in grid-cell order and build forward and reverse CSR arrays
+     *
+     * @param fingerprint identifies the source data, stored with the graph to detect stale cache files
+     */
+    public RoadGraph build(long fingerprint) {
+        int latCells = (int) Math.ceil(180.0 / cellSize);
+        int lonCells = (int) Math.ceil(360.0 / cellSize);
+        if ((long) latCells * lonCells > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cell size too small: " + cellSize);
+        }
+
+        long[] packed = new long[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            int cy = Math.min(latCells - 1, (int) Math.floor((GeoUtils.fromMicroDegrees(lat[i]) + 90.0) / cellSize));
+            int cx = Math.min(lonCells - 1, (int) Math.floor((GeoUtils.fromMicroDegrees(lon[i]) + 180.0) / cellSize));
+            packed[i] = (((long) cy * lonCells + cx) << 32) | i;
+        }
+        Arrays.sort(packed);
+
+        int[] newId = new int[nodeCount];
+        int[] sortedLat = new int[nodeCount];
+        int[] sortedLon = new int[nodeCount];
+        long[] sortedExternalIds = new long[nodeCount];
+        int distinctCells = 0;
+        long previousKey = -1;
+        for (int j = 0; j < nodeCount; j++) {
+            int old = (int) packed[j];
+            newId[old] = j;
+            sortedLat[j] = lat[old];
+            sortedLon[j] = lon[old];
+            sortedExternalIds[j] = externalIds[old];
+            if ((packed[j] >>> 32) != previousKey) {
+                distinctCells++;
+                previousKey = packed[j] >>> 32;
+            }
+        }
+
+        long[] cellKeys = new long[distinctCells];
+        int[] cellStarts = new int[distinctCells + 1];
+        int cell = -1;
+        previousKey = -1;
+        for (int j = 0; j < nodeCount; j++) {
+            long key = packed[j] >>> 32;
+            if (key != previousKey) {
+                cellKeys[++cell] = key;
+                cellStarts[cell] = j;
+                previousKey = key;
+            }
+        }
+        cellStarts[distinctCells] = nodeCount;
+
+        // Forward CSR: counting sort of edges by (renumbered) source node
+        int[] firstEdge = new int[nodeCount + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            firstEdge[newId[edgeFrom[e]] + 1]++;
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            firstEdge[v + 1] += firstEdge[v];
+        }
+        int[] target = new int[edgeCount];
+        int[] weight = new int[edgeCount];
+        int[] length = new int[edgeCount];
+        int[] name = new int[edgeCount];
+        int[] fill = Arrays.copyOf(firstEdge, nodeCount);
+        for (int e = 0; e < edgeCount; e++) {
+            int slot = fill[newId[edgeFrom[e]]]++;
+            target[slot] = newId[edgeTo[e]];
+            weight[slot] = edgeWeight[e];
+            length[slot] = edgeLength[e];
+            name[slot] = edgeName[e];
+        }
+
+        // Reverse CSR over the forward edge ids
+        int[] firstInEdge = new int[nodeCount + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            firstInEdge[target[e] + 1]++;
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            firstInEdge[v + 1] += firstInEdge[v];
+        }
+        int[] inSource = new int[edgeCount];
+        int[] inEdgeId = new int[edgeCount];
+        int[] inFill = Arrays.copyOf(firstInEdge, nodeCount);
+        for (int v = 0; v < nodeCount; v++) {
+            for (int e = firstEdge[v]; e < firstEdge[v + 1]; e++) {
+                int slot = inFill[target[e]]++;
+                inSource[slot] = v;
+                inEdgeId[slot] = e;
+            }
+        }
+
+        return new RoadGraph(fingerprint, nodeCount, edgeCount, cellSize,
+                IntBuffer.wrap(sortedLat), IntBuffer.wrap(sortedLon), LongBuffer.wrap(sortedExternalIds),
+                IntBuffer.wrap(firstEdge), IntBuffer.wrap(target), IntBuffer.wrap(weight),
+                IntBuffer.wrap(length), IntBuffer.wrap(name),
+                IntBuffer.wrap(firstInEdge), IntBuffer.wrap(inSource), IntBuffer.wrap(inEdgeId),
+                LongBuffer.wrap(cellKeys), IntBuffer.wrap(cellStarts), names.toArray(new String[0]), maxSpeed);
+    }
+}
@@ -0,0 +1,118 @@
+package com.whatsapp.chatbot.routing;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads a road network from two CSV extracts into a {@link RoadGraphBuilder}.
+ *
+ * <pre>
+ * nodes: id,lat,lon
+ * edges: from,to,length_m,speed_kmh,oneway,name   (length_m may be blank; oneway is true/false/yes/no/1/0)
+ * </pre>
+ * Rows that fail to parse or reference unknown nodes are skipped and counted.
+ */
+public final class RoadGraphLoader {
+
+    private static final double DEFAULT_SPEED_KMH = 50.0;
+
+    private RoadGraphLoader() {
+    }
+
+    /**
+     * @return number of skipped rows across both files
+     */
+    public static int loadCsv(InputStream nodes, InputStream edges, RoadGraphBuilder builder) throws IOException {
+        int skipped = 0;
+
+        try (BufferedReader reader = reader(nodes)) {
+            Map<String, Integer> columns = header(reader.readLine());
+            int idCol = require(columns, "id");
+            int latCol = require(columns, "lat");
+            int lonCol = require(columns, "lon");
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    String[] fields = line.split(",", -1);
+                    builder.addNode(Long.parseLong(fields[idCol].trim()),
+                            Double.parseDouble(fields[latCol].trim()), Double.parseDouble(fields[lonCol].trim()));
+                } catch (RuntimeException e) {
+                    skipped++;
+                }
+            }
+        }
+
+        try (BufferedReader reader = reader(edges)) {
+            Map<String, Integer> columns = header(reader.readLine());
+            int fromCol = require(columns, "from");
+            int toCol = require(columns, "to");
+            int lengthCol = columns.getOrDefault("length_m", -1);
+            int speedCol = columns.getOrDefault("speed_kmh", -1);
+            int onewayCol = columns.getOrDefault("oneway", -1);
+            int nameCol = columns.getOrDefault("name", -1);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    // Name is the last column so it may itself contain commas
+                    String[] fields = line.split(",", nameCol >= 0 ? nameCol + 1 : -1);
+                    builder.addEdge(Long.parseLong(fields[fromCol].trim()), Long.parseLong(fields[toCol].trim()),
+                            optionalDouble(fields, lengthCol, 0.0),
+                            optionalDouble(fields, speedCol, DEFAULT_SPEED_KMH),
+                            onewayCol >= 0 && onewayCol < fields.length && isTrue(fields[onewayCol]),
+                            nameCol >= 0 && nameCol < fields.length ? fields[nameCol] : "");
+                } catch (RuntimeException e) {
+                    skipped++;
+                }
+            }
+        }
+        return skipped;
+    }
+
+    private static BufferedReader reader(InputStream input) {
+        return new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    private static Map<String, Integer> header(String line) throws IOException {
+        if (line == null) {
+            throw new IOException("Missing CSV header");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        String[] names = line.split(",");
+        for (int i = 0; i < names.length; i++) {
+            columns.put(names[i].trim().toLowerCase(Locale.ROOT), i);
+        }
+        return columns;
+    }
+
+    private static int require(Map<String, Integer> columns, String name) throws IOException {
+        Integer index = columns.get(name);
+        if (index == null) {
+            throw new IOException("CSV header is missing column '" + name + "'");
+        }
+        return index;
+    }
+
+    private static double optionalDouble(String[] fields, int column, double fallback) {
+        if (column < 0 || column >= fields.length || fields[column].isBlank()) {
+            return fallback;
+        }
+        return Double.parseDouble(fields[column].trim());
+    }
+
+    private static boolean isTrue(String value) {
+        String v = value.trim().toLowerCase(Locale.ROOT);
+        return v.equals("true") || v.equals("yes") || v.equals("1");
+    }
+}
@@ -0,0 +1,34 @@
+package com.whatsapp.chatbot.routing;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A computed route: node and edge sequence plus totals
+ */
+@Data
+@AllArgsConstructor
+public class RoutePath {
+    private int[] nodes;
+    private int[] edges;
+    private long durationMillis;
+    private long lengthMeters;
+    private int settledNodes;
+
+    /**
+     * Street names along the route in driving order, consecutive repeats and unnamed edges removed
+     */
+    public List<String> streetNames(RoadGraph graph) {
+        List<String> streets = new ArrayList<>();
+        for (int edge : edges) {
+            String name = graph.edgeName(edge);
+            if (!name.isEmpty() && (streets.isEmpty() || !streets.get(streets.size() - 1).equals(name))) {
+                streets.add(name);
+            }
+        }
+        return streets;
+    }
+}
@@ -0,0 +1,317 @@
+package com.whatsapp.chatbot.routing;
+
+import com.whatsapp.chatbot.geo.GeoUtils;
+
+import java.util.Arrays;
+
+/**
+ * Point-to-point shortest travel time queries using bidirectional A*.
+ *
+ * Both searches use the averaged potential {@code p(v) = (h(v, t) - h(s, v)) / 2}
+ * (straight-line distance over the graph's top speed), which keeps the forward
+ * and backward reduced costs identical so the plain bidirectional Dijkstra
+ * stopping rule stays exact. Search state is per thread and reused between
+ * queries, so a query allocates only its result.
+ */
+public final class Router {
+
+    /** Passed as a deadline to search without one */
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    /** Keeps the straight-line heuristic safely below true cost despite rounding */
+    private static final double HEURISTIC_SLACK = 0.995;
+
+    private final RoadGraph graph;
+    private final ThreadLocal<SearchSpace> searchSpaces;
+
+    /**
+     * Longitude scale for the planar heuristic: cosine of the graph's highest
+     * absolute latitude, so east-west distances are never overestimated.
+     */
+    private final double longitudeScale;
+
+    public Router(RoadGraph graph) {
+        this.graph = graph;
+        this.searchSpaces = ThreadLocal.withInitial(() -> new SearchSpace(graph.nodeCount()));
+        double maxAbsLatitude = 0;
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            maxAbsLatitude = Math.max(maxAbsLatitude, Math.abs(graph.latitude(node)));
+        }
+        this.longitudeScale = Math.cos(Math.toRadians(Math.min(89.0, maxAbsLatitude)));
+    }
+
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    public RoutePath route(int source, int target) {
+        return route(source, target, EdgeWeights.freeFlow(graph));
+    }
+
+    /**
+     * Fastest path under the given weights, or {@code null} if target is unreachable
+     */
+    public RoutePath route(int source, int target, EdgeWeights weights) {
+        return route(source, target, weights, NO_DEADLINE);
+    }
+
+    /**
+     * As {@link #route(int, int, EdgeWeights)}, but gives up and returns
+     * {@code null} once {@link System#nanoTime()} passes {@code deadlineNanos}
+     */
+    public RoutePath route(int source, int target, EdgeWeights weights, long deadlineNanos) {
+        if (source < 0 || target < 0) {
+            return null;
+        }
+        if (source == target) {
+            return new RoutePath(new int[]{source}, new int[0], 0, 0, 0);
+        }
+
+        SearchSpace space = searchSpaces.get();
+        space.reset();
+        space.prepareHeuristic(source, target);
+
+        space.visitForward(source, 0.0, -1, -1);
+        space.forwardHeap.pushOrDecrease(source, space.potential(source));
+        space.visitBackward(target, 0.0, -1, -1);
+        space.backwardHeap.pushOrDecrease(target, -space.potential(target));
+
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = -1;
+        int settled = 0;
+
+        while (!space.forwardHeap.isEmpty() && !space.backwardHeap.isEmpty()) {
+            if (space.forwardHeap.peekKey() + space.backwardHeap.peekKey() >= best) {
+                break;
+            }
+            settled++;
+            if (deadlineNanos != NO_DEADLINE && (settled & 255) == 0 && System.nanoTime() - deadlineNanos > 0) {
+                return null;
+            }
+            if (space.forwardHeap.peekKey() <= space.backwardHeap.peekKey()) {
+                int u = space.forwardHeap.pop();
+                double du = space.forwardDistance[u];
+                for (int e = graph.firstEdge(u), end = graph.firstEdge(u + 1); e < end; e++) {
+                    int v = graph.edgeTarget(e);
+                    double dv = du + weights.weightMillis(e);
+                    if (!space.seenForward(v) || dv < space.forwardDistance[v]) {
+                        space.visitForward(v, dv, u, e);
+                        space.forwardHeap.pushOrDecrease(v, dv + space.potential(v));
+                    }
+                    if (space.seenBackward(v) && dv + space.backwardDistance[v] < best) {
+                        best = dv + space.backwardDistance[v];
+                        meeting = v;
+                    }
+                }
+            } else {
+                int u = space.backwardHeap.pop();
+                double du = space.backwardDistance[u];
+                for (int i = graph.firstInEdge(u), end = graph.firstInEdge(u + 1); i < end; i++) {
+                    int v = graph.inEdgeSource(i);
+                    int e = graph.inEdgeId(i);
+                    double dv = du + weights.weightMillis(e);
+                    if (!space.seenBackward(v) || dv < space.backwardDistance[v]) {
+                        space.visitBackward(v, dv, u, e);
+                        space.backwardHeap.pushOrDecrease(v, dv - space.potential(v));
+                    }
+                    if (space.seenForward(v) && dv + space.forwardDistance[v] < best) {
+                        best = dv + space.forwardDistance[v];
+                        meeting = v;
+                    }
+                }
+            }
+        }
+
+        if (meeting < 0) {
+            return null;
+        }
+        return space.unpack(source, target, meeting, settled);
+    }
+
+    /**
+     * Travel times from one source to many targets with a single Dijkstra
+     * search that stops once every target is settled. Unreachable targets
+     * get {@code Long.MAX_VALUE}.
+     */
+    public long[] durationsFrom(int source, int[] targets, EdgeWeights weights) {
+        long[] durations = new long[targets.length];
+        Arrays.fill(durations, Long.MAX_VALUE);
+        if (source < 0) {
+            return durations;
+        }
+
+        SearchSpace space = searchSpaces.get();
+        space.reset();
+        // Targets are marked in the backward stamps, which a one-to-many search does not otherwise use
+        int remaining = 0;
+        for (int target : targets) {
+            if (target >= 0 && !space.seenBackward(target)) {
+                space.visitBackward(target, 0.0, -1, -1);
+                remaining++;
+            }
+        }
+
+        space.visitForward(source, 0.0, -1, -1);
+        space.forwardHeap.pushOrDecrease(source, 0.0);
+        while (remaining > 0 && !space.forwardHeap.isEmpty()) {
+            int u = space.forwardHeap.pop();
+            double du = space.forwardDistance[u];
+            if (space.seenBackward(u)) {
+                remaining--;
+            }
+            for (int e = graph.firstEdge(u), end = graph.firstEdge(u + 1); e < end; e++) {
+                int v = graph.edgeTarget(e);
+                double dv = du + weights.weightMillis(e);
+                if (!space.seenForward(v) || dv < space.forwardDistance[v]) {
+                    space.visitForward(v, dv, u, e);
+                    space.forwardHeap.pushOrDecrease(v, dv);
+                }
+            }
+        }
+
+        for (int i = 0; i < targets.length; i++) {
+            int target = targets[i];
+            if (target >= 0 && space.seenForward(target)) {
+                durations[i] = Math.round(space.forwardDistance[target]);
+            }
+        }
+        return durations;
+    }
+
+    /**
+     * Per-thread search arrays; a stamp marks which entries belong to the current query
+     */
+    private final class SearchSpace {
+        final double[] forwardDistance;
+        final double[] backwardDistance;
+        final int[] forwardParent;
+        final int[] forwardEdge;
+        final int[] backwardNext;
+        final int[] backwardEdge;
+        final int[] forwardStamp;
+        final int[] backwardStamp;
+        final double[] potentials;
+        final int[] potentialStamp;
+        final IndexedMinHeap forwardHeap;
+        final IndexedMinHeap backwardHeap;
+        int stamp;
+        double sourceX;
+        double sourceY;
+        double targetX;
+        double targetY;
+        double millisPerMeter;
+
+        SearchSpace(int nodeCount) {
+            forwardDistance = new double[nodeCount];
+            backwardDistance = new double[nodeCount];
+            forwardParent = new int[nodeCount];
+            forwardEdge = new int[nodeCount];
+            backwardNext = new int[nodeCount];
+            backwardEdge = new int[nodeCount];
+            forwardStamp = new int[nodeCount];
+            backwardStamp = new int[nodeCount];
+            potentials = new double[nodeCount];
+            potentialStamp = new int[nodeCount];
+            forwardHeap = new IndexedMinHeap(nodeCount);
+            backwardHeap = new IndexedMinHeap(nodeCount);
+        }
+
+        void reset() {
+            forwardHeap.clear();
+            backwardHeap.clear();
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(forwardStamp, 0);
+                Arrays.fill(backwardStamp, 0);
+                Arrays.fill(potentialStamp, 0);
+                stamp = 1;
+            }
+        }
+
+        void prepareHeuristic(int source, int target) {
+            millisPerMeter = HEURISTIC_SLACK * 1000.0 / graph.maxSpeedMetersPerSecond();
+            sourceX = projectX(source);
+            sourceY = projectY(source);
+            targetX = projectX(target);
+            targetY = projectY(target);
+        }
+
+        /**
+         * Averaged potential (h(v, t) - h(s, v)) / 2 in milliseconds, computed once per node per query
+         */
+        double potential(int node) {
+            if (potentialStamp[node] == stamp) {
+                return potentials[node];
+            }
+            double x = projectX(node);
+            double y = projectY(node);
+            double toTarget = Math.sqrt((targetX - x) * (targetX - x) + (targetY - y) * (targetY - y));
+            double fromSource = Math.sqrt((x - sourceX) * (x - sourceX) + (y - sourceY) * (y - sourceY));
+            double value = 0.5 * (toTarget - fromSource) * millisPerMeter;
+            potentials[node] = value;
+            potentialStamp[node] = stamp;
+            return value;
+        }
+
+        private double projectX(int node) {
+            return graph.longitude(node) * longitudeScale * GeoUtils.METERS_PER_DEGREE;
+        }
+
+        private double projectY(int node) {
+            return graph.latitude(node) * GeoUtils.METERS_PER_DEGREE;
+        }
+
+        boolean seenForward(int node) {
+            return forwardStamp[node] == stamp;
+        }
+
+        boolean seenBackward(int node) {
+            return backwardStamp[node] == stamp;
+        }
+
+        void visitForward(int node, double distance, int parent, int edge) {
+            forwardStamp[node] = stamp;
+            forwardDistance[node] = distance;
+            forwardParent[node] = parent;
+            forwardEdge[node] = edge;
+        }
+
+        void visitBackward(int node, double distance, int next, int edge) {
+            backwardStamp[node] = stamp;
+            backwardDistance[node] = distance;
+            backwardNext[node] = next;
+            backwardEdge[node] = edge;
+        }
+
+        RoutePath unpack(int source, int target, int meeting, int settled) {
+            int forwardHops = 0;
+            for (int v = meeting; v != source; v = forwardParent[v]) {
+                forwardHops++;
+            }
+            int backwardHops = 0;
+            for (int v = meeting; v != target; v = backwardNext[v]) {
+                backwardHops++;
+            }
+
+            int[] nodes = new int[forwardHops + backwardHops + 1];
+            int[] edges = new int[forwardHops + backwardHops];
+            int index = forwardHops;
+            for (int v = meeting; v != source; v = forwardParent[v]) {
+                nodes[index] = v;
+                edges[--index] = forwardEdge[v];
+            }
+            nodes[0] = source;
+            index = forwardHops;
+            for (int v = meeting; v != target; v = backwardNext[v]) {
+                edges[index++] = backwardEdge[v];
+                nodes[index] = backwardNext[v];
+            }
+
+            long length = 0;
+            for (int edge : edges) {
+                length += graph.edgeLengthMeters(edge);
+            }
+            long duration = Math.round(forwardDistance[meeting] + backwardDistance[meeting]);
+            return new RoutePath(nodes, edges, duration, length, settled);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.whatsapp.chatbot.routing;
+
+import lombok.Value;
+
+/**
+ * A visiting order for a list of stops, as indexes into that list starting with 0
+ */
+@Value
+public class Tour {
+    int[] order;
+    long durationMillis;
+    long givenOrderMillis;
+    long iterations;
+
+    /**
+     * False when some leg has no drivable path
+     */
+    public boolean isComplete() {
+        return durationMillis < TravelTimeMatrix.UNREACHABLE;
+    }
+}
@@ -0,0 +1,332 @@
+package com.whatsapp.chatbot.routing;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Time-boxed multi-stop ordering by iterated local search.
+ *
+ * Each worker starts from a nearest-neighbour tour (randomized for all but
+ * the first), improves it with 2-opt and Or-opt moves until neither helps,
+ * then repeatedly kicks its best tour and improves it again. Workers use
+ * different seeds, run in parallel, and stop at the deadline or after a run
+ * of kicks without improvement; the best tour across workers wins.
+ *
+ * Stop 0 is the fixed start. An open tour ends wherever is cheapest; this is
+ * modelled by a dummy end stop pinned to the last position, whose incoming
+ * cost is zero (or the way back to the start for a round trip), so both
+ * cases share the same moves. Costs may be asymmetric.
+ */
+public final class TourOptimizer {
+
+    /** Kicks without improvement, per stop, after which a worker stops early */
+    private static final int STAGNATION_KICKS_PER_STOP = 40;
+
+    /** Or-opt moves segments of up to this many stops */
+    private static final int MAX_SEGMENT = 3;
+
+    private final ForkJoinPool pool;
+
+    public TourOptimizer(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Best order found within the time box, starting at stop 0
+     */
+    public Tour optimize(TravelTimeMatrix matrix, boolean roundTrip, Duration timeBox) {
+        int stops = matrix.size();
+        int[] given = new int[stops];
+        for (int i = 0; i < stops; i++) {
+            given[i] = i;
+        }
+        Problem problem = new Problem(matrix, roundTrip);
+        long givenCost = problem.cost(problem.extend(given));
+
+        long deadline = System.nanoTime() + timeBox.toNanos();
+        // With two stops or fewer after the start, one local search already tries every order
+        int workers = stops <= 3 ? 1 : Math.max(1, pool.getParallelism());
+        List<ForkJoinTask<Worker.Result>> tasks = new ArrayList<>();
+        for (int w = 1; w < workers; w++) {
+            Worker worker = new Worker(problem, w, deadline);
+            tasks.add(pool.submit(worker::run));
+        }
+        // The caller searches too, so there is always a result even when the pool is busy
+        Worker.Result best = new Worker(problem, 0, deadline).run();
+        long iterations = best.iterations;
+        for (ForkJoinTask<Worker.Result> task : tasks) {
+            Worker.Result result = task.join();
+            iterations += result.iterations;
+            if (result.cost < best.cost) {
+                best = result;
+            }
+        }
+        return new Tour(problem.strip(best.tour), best.cost, givenCost, iterations);
+    }
+
+    /**
+     * Cost matrix extended with the dummy end stop
+     */
+    private static final class Problem {
+        final int size;
+        final long[] cost;
+
+        Problem(TravelTimeMatrix matrix, boolean roundTrip) {
+            int stops = matrix.size();
+            size = stops + 1;
+            cost = new long[size * size];
+            for (int from = 0; from < stops; from++) {
+                for (int to = 0; to < stops; to++) {
+                    cost[from * size + to] = matrix.millis(from, to);
+                }
+                cost[from * size + stops] = roundTrip ? matrix.millis(from, 0) : 0;
+            }
+        }
+
+        long arc(int from, int to) {
+            return cost[from * size + to];
+        }
+
+        long cost(int[] tour) {
+            long total = 0;
+            for (int p = 0; p + 1 < tour.length; p++) {
+                total += arc(tour[p], tour[p + 1]);
+            }
+            return total;
+        }
+
+        int[] extend(int[] order) {
+            int[] tour = new int[order.length + 1];
+            System.arraycopy(order, 0, tour, 0, order.length);
+            tour[order.length] = size - 1;
+            return tour;
+        }
+
+        int[] strip(int[] tour) {
+            int[] order = new int[tour.length - 1];
+            System.arraycopy(tour, 0, order, 0, order.length);
+            return order;
+        }
+    }
+
+    private static final class Worker {
+        final Problem problem;
+        final int seed;
+        final long deadline;
+        final Random random;
+        final int last;
+        final long[] forward;
+        final long[] backward;
+        final int[] scratch;
+
+        Worker(Problem problem, int seed, long deadline) {
+            this.problem = problem;
+            this.seed = seed;
+            this.deadline = deadline;
+            this.random = new Random(seed * 0x9E3779B97F4A7C15L + 1);
+            this.last = problem.size - 1;
+            this.forward = new long[problem.size];
+            this.backward = new long[problem.size];
+            this.scratch = new int[problem.size];
+        }
+
+        Result run() {
+            int[] best = nearestNeighbour();
+            improve(best);
+            long bestCost = problem.cost(best);
+            long iterations = 1;
+
+            int interior = last - 1;
+            int stagnationLimit = STAGNATION_KICKS_PER_STOP * Math.max(1, interior);
+            int sinceImprovement = 0;
+            int[] candidate = new int[best.length];
+            while (interior >= 3 && sinceImprovement < stagnationLimit && System.nanoTime() - deadline < 0) {
+                System.arraycopy(best, 0, candidate, 0, best.length);
+                kick(candidate);
+                improve(candidate);
+                iterations++;
+                long candidateCost = problem.cost(candidate);
+                if (candidateCost < bestCost) {
+                    int[] swap = best;
+                    best = candidate;
+                    candidate = swap;
+                    bestCost = candidateCost;
+                    sinceImprovement = 0;
+                } else {
+                    sinceImprovement++;
+                }
+            }
+            return new Result(best, bestCost, iterations);
+        }
+
+        /**
+         * Greedy tour from stop 0; all but the first worker pick among the few nearest at random
+         */
+        private int[] nearestNeighbour() {
+            int[] tour = new int[problem.size];
+            boolean[] visited = new boolean[problem.size];
+            visited[0] = true;
+            tour[last] = last;
+            int current = 0;
+            for (int position = 1; position < last; position++) {
+                int first = -1;
+                int second = -1;
+                for (int next = 1; next < last; next++) {
+                    if (visited[next]) {
+                        continue;
+                    }
+                    if (first < 0 || problem.arc(current, next) < problem.arc(current, first)) {
+                        second = first;
+                        first = next;
+                    } else if (second < 0 || problem.arc(current, next) < problem.arc(current, second)) {
+                        second = next;
+                    }
+                }
+                int chosen = seed > 0 && second >= 0 && random.nextInt(3) == 0 ? second : first;
+                tour[position] = chosen;
+                visited[chosen] = true;
+                current = chosen;
+            }
+            return tour;
+        }
+
+        /**
+         * Apply improving 2-opt and Or-opt moves until none is left
+         */
+        private void improve(int[] tour) {
+            boolean improved = true;
+            while (improved && System.nanoTime() - deadline < 0) {
+                prefixSums(tour);
+                improved = twoOpt(tour) || orOpt(tour);
+            }
+        }
+
+        private void prefixSums(int[] tour) {
+            forward[0] = 0;
+            backward[0] = 0;
+            for (int p = 0; p < last; p++) {
+                forward[p + 1] = forward[p] + problem.arc(tour[p], tour[p + 1]);
+                backward[p + 1] = backward[p] + problem.arc(tour[p + 1], tour[p]);
+            }
+        }
+
+        /**
+         * Reverse tour[i..j]; with asymmetric costs the reversed segment's inner cost changes too
+         */
+        private boolean twoOpt(int[] tour) {
+            for (int i = 1; i < last - 1; i++) {
+                for (int j = i + 1; j < last; j++) {
+                    long delta = problem.arc(tour[i - 1], tour[j]) + problem.arc(tour[i], tour[j + 1])
+                            + (backward[j] - backward[i])
+                            - problem.arc(tour[i - 1], tour[i]) - problem.arc(tour[j], tour[j + 1])
+                            - (forward[j] - forward[i]);
+                    if (delta < 0) {
+                        for (int a = i, b = j; a < b; a++, b--) {
+                            int swap = tour[a];
+                            tour[a] = tour[b];
+                            tour[b] = swap;
+                        }
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Move a run of up to MAX_SEGMENT stops elsewhere, either way round
+         */
+        private boolean orOpt(int[] tour) {
+            for (int length = 1; length <= MAX_SEGMENT; length++) {
+                for (int i = 1; i + length - 1 < last; i++) {
+                    int end = i + length - 1;
+                    int first = tour[i];
+                    int lastStop = tour[end];
+                    long removed = problem.arc(tour[i - 1], first) + problem.arc(lastStop, tour[end + 1])
+                            - problem.arc(tour[i - 1], tour[end + 1]);
+                    long reversal = (backward[end] - backward[i]) - (forward[end] - forward[i]);
+                    for (int p = 0; p < last; p++) {
+                        if (p >= i - 1 && p <= end) {
+                            continue;
+                        }
+                        long gap = problem.arc(tour[p], tour[p + 1]);
+                        long straight = problem.arc(tour[p], first) + problem.arc(lastStop, tour[p + 1]) - gap;
+                        long reversed = problem.arc(tour[p], lastStop) + problem.arc(first, tour[p + 1]) - gap
+                                + reversal;
+                        if (straight - removed < 0 || reversed - removed < 0) {
+                            moveSegment(tour, i, end, p, reversed < straight);
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        private void moveSegment(int[] tour, int start, int end, int after, boolean reversed) {
+            int k = 0;
+            for (int p = 0; p < tour.length; p++) {
+                if (p >= start && p <= end) {
+                    continue;
+                }
+                scratch[k++] = tour[p];
+                if (p == after) {
+                    for (int s = 0; s <= end - start; s++) {
+                        scratch[k++] = tour[reversed ? end - s : start + s];
+                    }
+                }
+            }
+            System.arraycopy(scratch, 0, tour, 0, tour.length);
+        }
+
+        /**
+         * Double-bridge kick (segments B and C swap places), or a random reversal on short tours
+         */
+        private void kick(int[] tour) {
+            int interior = last - 1;
+            if (interior < 8) {
+                int i = 1 + random.nextInt(interior);
+                int j = 1 + random.nextInt(interior);
+                for (int a = Math.min(i, j), b = Math.max(i, j); a < b; a++, b--) {
+                    int swap = tour[a];
+                    tour[a] = tour[b];
+                    tour[b] = swap;
+                }
+                return;
+            }
+            int a = 1 + random.nextInt(interior - 2);
+            int b = a + 1 + random.nextInt(interior - a - 1);
+            int c = b + 1 + random.nextInt(interior - b);
+            int k = 0;
+            for (int p = 0; p < a; p++) {
+                scratch[k++] = tour[p];
+            }
+            for (int p = b; p < c; p++) {
+                scratch[k++] = tour[p];
+            }
+            for (int p = a; p < b; p++) {
+                scratch[k++] = tour[p];
+            }
+            for (int p = c; p < tour.length; p++) {
+                scratch[k++] = tour[p];
+            }
+            System.arraycopy(scratch, 0, tour, 0, tour.length);
+        }
+
+        private static final class Result {
+            final int[] tour;
+            final long cost;
+            final long iterations;
+
+            Result(int[] tour, long cost, long iterations) {
+                this.tour = tour;
+                this.cost = cost;
+                this.iterations = iterations;
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.whatsapp.chatbot.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Square matrix of travel times between stops, in milliseconds
+ */
+public final class TravelTimeMatrix {
+
+    /** Cost used for pairs with no path: dearer than any real tour, yet safe to add up */
+    public static final long UNREACHABLE = Integer.MAX_VALUE;
+
+    private final int size;
+    private final long[] millis;
+
+    public TravelTimeMatrix(long[][] rows) {
+        this.size = rows.length;
+        this.millis = new long[size * size];
+        for (int from = 0; from < size; from++) {
+            for (int to = 0; to < size; to++) {
+                millis[from * size + to] = from == to ? 0 : Math.min(UNREACHABLE, rows[from][to]);
+            }
+        }
+    }
+
+    /**
+     * One one-to-many search per stop, run in parallel on the pool
+     */
+    public static TravelTimeMatrix compute(Router router, int[] nodes, EdgeWeights weights, ForkJoinPool pool) {
+        List<ForkJoinTask<long[]>> tasks = new ArrayList<>(nodes.length);
+        for (int node : nodes) {
+            tasks.add(pool.submit(() -> router.durationsFrom(node, nodes, weights)));
+        }
+        long[][] rows = new long[nodes.length][];
+        for (int i = 0; i < nodes.length; i++) {
+            rows[i] = tasks.get(i).join();
+        }
+        return new TravelTimeMatrix(rows);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long millis(int from, int to) {
+        return millis[from * size + to];
+    }
+}
@@ -0,0 +1,278 @@
+package com.whatsapp.chatbot.search;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * An immutable, memory-mapped index file: postings for every term, then
+ * the term dictionary, then a fixed-size footer. Terms are sorted and
+ * prefix-compressed; every {@value #INDEX_INTERVAL}th term is written in
+ * full and kept on the heap, so a lookup is a binary search over those and
+ * a scan of at most {@value #INDEX_INTERVAL} dictionary entries.
+ *
+ * The empty term lists every message in the segment, which gives the
+ * segment's size, tells a merge which ids it holds and carries lengths.
+ *
+ * Footer: dictionary offset, term count, docs, min/max id, total tokens,
+ * generation, magic.
+ */
+final class IndexSegment {
+
+    static final String SUFFIX = ".idx";
+
+    private static final long MAGIC = 0x57414D4958303031L; // "WAMIX001"
+    private static final int INDEX_INTERVAL = 64;
+    private static final int FOOTER_BYTES = 8 * 8;
+
+    private final Path path;
+    private final long generation;
+    private final ByteBuffer buffer;
+    private final int dictionaryOffset;
+    private final int termCount;
+    private final long docs;
+    private final long minDoc;
+    private final long maxDoc;
+    private final long totalTokens;
+    private final String[] indexTerms;
+    private final int[] indexOffsets;
+
+    private IndexSegment(Path path, long generation, ByteBuffer buffer, int dictionaryOffset, int termCount,
+                         long docs, long minDoc, long maxDoc, long totalTokens) {
+        this.path = path;
+        this.generation = generation;
+        this.buffer = buffer;
+        this.dictionaryOffset = dictionaryOffset;
+        this.termCount = termCount;
+        this.docs = docs;
+        this.minDoc = minDoc;
+        this.maxDoc = maxDoc;
+        this.totalTokens = totalTokens;
+
+        int indexed = (termCount + INDEX_INTERVAL - 1) / INDEX_INTERVAL;
+        indexTerms = new String[indexed];
+        indexOffsets = new int[indexed];
+        Terms terms = new Terms(dictionaryOffset, 0);
+        for (int t = 0; t < termCount; t++) {
+            int entryOffset = terms.position;
+            terms.next();
+            if (t % INDEX_INTERVAL == 0) {
+                indexTerms[t / INDEX_INTERVAL] = terms.term;
+                indexOffsets[t / INDEX_INTERVAL] = entryOffset;
+            }
+        }
+    }
+
+    static IndexSegment open(Path path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int footer = buffer.limit() - FOOTER_BYTES;
+        if (footer < 0 || buffer.getLong(footer + 7 * 8) != MAGIC) {
+            throw new IOException("Not a search index segment: " + path);
+        }
+        return new IndexSegment(path, buffer.getLong(footer + 6 * 8), buffer, (int) buffer.getLong(footer),
+                (int) buffer.getLong(footer + 8), buffer.getLong(footer + 2 * 8), buffer.getLong(footer + 3 * 8),
+                buffer.getLong(footer + 4 * 8), buffer.getLong(footer + 5 * 8));
+    }
+
+    /**
+     * Postings for a term, or null if no message in the segment contains it
+     */
+    Postings postings(String term) {
+        int slot = Arrays.binarySearch(indexTerms, term);
+        if (slot >= 0) {
+            Terms terms = new Terms(indexOffsets[slot], slot * INDEX_INTERVAL);
+            terms.next();
+            return terms.postings();
+        }
+        slot = -slot - 2;
+        if (slot < 0) {
+            return null;
+        }
+        Terms terms = new Terms(indexOffsets[slot], slot * INDEX_INTERVAL);
+        int remaining = Math.min(INDEX_INTERVAL, termCount - slot * INDEX_INTERVAL);
+        for (int i = 0; i < remaining; i++) {
+            terms.next();
+            int order = terms.term.compareTo(term);
+            if (order == 0) {
+                return terms.postings();
+            }
+            if (order > 0) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Every term in order, for merging
+     */
+    Terms terms() {
+        return new Terms(dictionaryOffset, 0);
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    long getDocs() {
+        return docs;
+    }
+
+    long getMinDoc() {
+        return minDoc;
+    }
+
+    long getMaxDoc() {
+        return maxDoc;
+    }
+
+    long getTotalTokens() {
+        return totalTokens;
+    }
+
+    int getTermCount() {
+        return termCount;
+    }
+
+    long getSizeBytes() {
+        return buffer.limit();
+    }
+
+    /**
+     * Cursor over dictionary entries: shared prefix length, suffix, then the
+     * postings offset, in full for indexed entries and as a delta otherwise
+     */
+    final class Terms {
+
+        private int position;
+        private int ordinal;
+        private byte[] bytes = new byte[64];
+        private long postingsOffset;
+        String term;
+
+        private Terms(int position, int ordinal) {
+            this.position = position;
+            this.ordinal = ordinal;
+        }
+
+        boolean hasNext() {
+            return ordinal < termCount;
+        }
+
+        void next() {
+            int[] p = {position};
+            int shared = (int) Postings.readVarLong(buffer, p);
+            int suffix = (int) Postings.readVarLong(buffer, p);
+            if (shared + suffix > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, shared + suffix));
+            }
+            buffer.get(p[0], bytes, shared, suffix);
+            p[0] += suffix;
+            long delta = Postings.readVarLong(buffer, p);
+            postingsOffset = ordinal % INDEX_INTERVAL == 0 ? delta : postingsOffset + delta;
+            position = p[0];
+            ordinal++;
+            term = new String(bytes, 0, shared + suffix, StandardCharsets.UTF_8);
+        }
+
+        Postings postings() {
+            return new Postings.Encoded(buffer, (int) postingsOffset);
+        }
+    }
+
+    /**
+     * Writes a segment from terms added in sorted order
+     */
+    static final class Writer {
+
+        private final Path path;
+        private final Path temporary;
+        private final OutputStream out;
+        private final ByteSink postings = new ByteSink(1 << 16);
+        private final ByteSink dictionary = new ByteSink(1 << 16);
+        private byte[] previous = new byte[0];
+        private long position;
+        private long previousOffset;
+        private int termCount;
+
+        Writer(Path path) throws IOException {
+            this.path = path;
+            this.temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.createDirectories(path.getParent());
+            this.out = new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16);
+        }
+
+        /**
+         * Add a term and its postings; empty postings are skipped
+         */
+        void add(String term, Postings.Encoder encoder) throws IOException {
+            boolean empty = encoder.docFreq() == 0;
+            encoder.finishTo(postings);
+            if (empty) {
+                postings.clear();
+                return;
+            }
+            long offset = position;
+            postings.writeTo(out);
+            position += postings.size();
+            postings.clear();
+
+            byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+            boolean full = termCount % INDEX_INTERVAL == 0;
+            int shared = 0;
+            if (!full) {
+                int max = Math.min(previous.length, bytes.length);
+                while (shared < max && previous[shared] == bytes[shared]) {
+                    shared++;
+                }
+            }
+            dictionary.writeVarLong(shared);
+            dictionary.writeVarLong(bytes.length - shared);
+            dictionary.write(bytes, shared, bytes.length - shared);
+            dictionary.writeVarLong(full ? offset : offset - previousOffset);
+            previous = bytes;
+            previousOffset = offset;
+            termCount++;
+        }
+
+        IndexSegment finish(long generation, long docs, long minDoc, long maxDoc, long totalTokens)
+                throws IOException {
+            long dictionaryOffset = position;
+            dictionary.writeTo(out);
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_BYTES);
+            footer.putLong(dictionaryOffset).putLong(termCount).putLong(docs).putLong(minDoc).putLong(maxDoc)
+                    .putLong(totalTokens).putLong(generation).putLong(MAGIC);
+            out.write(footer.array());
+            out.close();
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return open(path);
+        }
+
+        void abort() {
+            try {
+                out.close();
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // Leftover temporary files are removed when the index is next opened
+            }
+        }
+    }
+}
@@ -0,0 +1,867 @@
+package com.whatsapp.chatbot.search;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Embedded inverted index over message text, built like a small LSM tree.
+ * New messages go into an in-memory segment; once it holds enough messages
+ * it is written out as an immutable, memory-mapped {@link IndexSegment}.
+ * Segments of similar size are merged a tier at a time, so a message is
+ * rewritten only a logarithmic number of times and a query visits a
+ * handful of segments.
+ *
+ * Deleted messages are recorded as tombstones, filtered at query time and
+ * dropped from the postings when their segment is next merged; a segment
+ * with many tombstones is rewritten on its own.
+ *
+ * Queries match messages containing every query term. Newest-first queries
+ * walk postings backwards from the newest block and stop as soon as the
+ * page is full; relevance queries score the newest matches with BM25.
+ * Safe for one writer and any number of concurrent readers; flushes and
+ * merges are serialized with each other but not with queries.
+ */
+public final class MessageIndex {
+
+    /** Term listing every message in a segment; the tokenizer never produces it */
+    static final String ALL = "";
+
+    private static final String MANIFEST = "segments";
+    private static final String DELETES = "deleted";
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double EXPUNGE_RATIO = 0.1;
+
+    private final Path directory;
+    private final int flushDocs;
+    private final int mergeFactor;
+    private final long maxSegmentDocs;
+
+    private volatile State state;
+    private final Set<Long> deleted = ConcurrentHashMap.newKeySet();
+    private volatile boolean deletesDirty;
+    private final Object maintenance = new Object();
+    private long nextGeneration;
+
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder merges = new LongAdder();
+    private final LongAdder mergedDocs = new LongAdder();
+
+    private MessageIndex(Path directory, int flushDocs, int mergeFactor, long maxSegmentDocs) {
+        this.directory = directory;
+        this.flushDocs = flushDocs;
+        this.mergeFactor = mergeFactor;
+        this.maxSegmentDocs = maxSegmentDocs;
+    }
+
+    /**
+     * Open or create the index in a directory, discarding files a crash left behind
+     */
+    public static MessageIndex open(Path directory, int flushDocs, int mergeFactor, long maxSegmentDocs)
+            throws IOException {
+        Files.createDirectories(directory);
+        MessageIndex index = new MessageIndex(directory, flushDocs, mergeFactor, maxSegmentDocs);
+
+        Path manifest = directory.resolve(MANIFEST);
+        Set<String> live = new HashSet<>();
+        if (Files.exists(manifest)) {
+            live.addAll(Files.readAllLines(manifest, StandardCharsets.UTF_8));
+            live.remove("");
+        }
+        List<IndexSegment> segments = new ArrayList<>();
+        for (String name : live) {
+            segments.add(IndexSegment.open(directory.resolve(name)));
+        }
+        segments.sort(Comparator.comparingLong(IndexSegment::getGeneration));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp") || (name.endsWith(IndexSegment.SUFFIX) && !live.contains(name))) {
+                    Files.delete(file);
+                }
+            }
+        }
+        index.nextGeneration = segments.isEmpty() ? 1 : segments.get(segments.size() - 1).getGeneration() + 1;
+        index.state = new State(new MemorySegment(), null, List.copyOf(segments));
+        index.readDeletes();
+        return index;
+    }
+
+    /**
+     * Index a message's tokens under its id
+     */
+    public void add(long id, List<String> tokens) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        synchronized (this) {
+            state.memory.add(id, frequencies, tokens.size());
+        }
+    }
+
+    /**
+     * Remove messages from search results from now on
+     */
+    public void delete(Collection<Long> ids) {
+        if (deleted.addAll(ids)) {
+            deletesDirty = true;
+        }
+    }
+
+    public boolean needsFlush() {
+        return state.memory.docs() >= flushDocs;
+    }
+
+    /**
+     * Write the in-memory segment to disk, then persist pending deletes
+     */
+    public void flush() throws IOException {
+        synchronized (maintenance) {
+            MemorySegment frozen;
+            synchronized (this) {
+                State current = state;
+                frozen = current.flushing;
+                if (frozen == null && current.memory.docs() > 0) {
+                    // The frozen segment stays searchable until its file replaces it
+                    frozen = current.memory;
+                    state = new State(new MemorySegment(), frozen, current.segments);
+                }
+            }
+            if (frozen != null) {
+                IndexSegment written = writeMemory(frozen, nextGeneration++);
+                synchronized (this) {
+                    List<IndexSegment> segments = new ArrayList<>(state.segments);
+                    if (written != null) {
+                        segments.add(written);
+                    }
+                    state = new State(state.memory, null, List.copyOf(segments));
+                }
+                writeManifest();
+                flushes.increment();
+            }
+            if (frozen != null || deletesDirty) {
+                purgeDeletes();
+                writeDeletes();
+            }
+        }
+    }
+
+    /**
+     * Merge one group of segments if the merge policy picks any
+     *
+     * @return whether a merge happened, so the caller can ask again
+     */
+    public boolean maybeMerge() throws IOException {
+        synchronized (maintenance) {
+            List<IndexSegment> chosen = chooseMerge(state.segments);
+            if (chosen.isEmpty()) {
+                return false;
+            }
+            IndexSegment merged = merge(chosen, nextGeneration++);
+            synchronized (this) {
+                List<IndexSegment> segments = new ArrayList<>(state.segments);
+                segments.removeAll(chosen);
+                if (merged != null) {
+                    segments.add(merged);
+                }
+                segments.sort(Comparator.comparingLong(IndexSegment::getGeneration));
+                state = new State(state.memory, state.flushing, List.copyOf(segments));
+            }
+            writeManifest();
+            for (IndexSegment segment : chosen) {
+                Files.deleteIfExists(segment.getPath());
+            }
+            purgeDeletes();
+            writeDeletes();
+            merges.increment();
+            return true;
+        }
+    }
+
+    /**
+     * Ids of messages containing every term, ranked, starting below an id
+     *
+     * @param beforeId only messages with smaller ids; Long.MAX_VALUE for no bound
+     * @param maxScored for relevance ranking, how many of the newest matches are scored
+     */
+    public List<SearchHit> search(List<String> terms, SearchOrder order, long beforeId, int limit, int maxScored) {
+        List<String> distinct = terms.stream().distinct().toList();
+        if (distinct.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        State current = state;
+        List<Source> sources = new ArrayList<>();
+        sources.add(current.memory.source(distinct));
+        if (current.flushing != null) {
+            sources.add(current.flushing.source(distinct));
+        }
+        for (IndexSegment segment : current.segments) {
+            Postings[] postings = new Postings[distinct.size()];
+            for (int t = 0; t < postings.length; t++) {
+                postings[t] = segment.postings(distinct.get(t));
+            }
+            sources.add(new Source(postings, segment.getMaxDoc(), segment.getDocs(), segment.getTotalTokens()));
+        }
+        sources.sort(Comparator.comparingLong((Source source) -> source.maxDoc).reversed());
+
+        Scorer scorer = new Scorer(sources, distinct.size());
+        return order == SearchOrder.RECENT
+                ? newest(sources, scorer, beforeId, limit)
+                : bestScored(sources, scorer, beforeId, limit, maxScored);
+    }
+
+    /**
+     * Highest message id indexed, or 0 when empty
+     */
+    public long maxDoc() {
+        State current = state;
+        long max = Math.max(current.memory.maxDoc(), current.flushing == null ? 0 : current.flushing.maxDoc());
+        for (IndexSegment segment : current.segments) {
+            max = Math.max(max, segment.getMaxDoc());
+        }
+        return max;
+    }
+
+    public int getSegmentCount() {
+        return state.segments.size();
+    }
+
+    public long getDocs() {
+        State current = state;
+        long docs = current.memory.docs() + (current.flushing == null ? 0 : current.flushing.docs());
+        for (IndexSegment segment : current.segments) {
+            docs += segment.getDocs();
+        }
+        return docs;
+    }
+
+    public long getMemoryDocs() {
+        return state.memory.docs();
+    }
+
+    public long getTerms() {
+        return state.segments.stream().mapToLong(IndexSegment::getTermCount).sum();
+    }
+
+    public long getSizeBytes() {
+        return state.segments.stream().mapToLong(IndexSegment::getSizeBytes).sum();
+    }
+
+    public long getDeletedDocs() {
+        return deleted.size();
+    }
+
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    public long getMerges() {
+        return merges.sum();
+    }
+
+    public long getMergedDocs() {
+        return mergedDocs.sum();
+    }
+
+    private List<SearchHit> newest(List<Source> sources, Scorer scorer, long beforeId, int limit) {
+        TreeSet<Long> newest = new TreeSet<>();
+        Map<Long, Double> scores = new HashMap<>();
+        for (Source source : sources) {
+            if (newest.size() == limit && source.maxDoc <= newest.first()) {
+                // Sources come newest first; nothing further can make the page
+                break;
+            }
+            intersect(source.postings, beforeId, (doc, values) -> {
+                if (newest.size() == limit && doc <= newest.first()) {
+                    return false;
+                }
+                if (!deleted.contains(doc) && newest.add(doc)) {
+                    scores.put(doc, scorer.score(values));
+                    if (newest.size() > limit) {
+                        scores.remove(newest.pollFirst());
+                    }
+                }
+                return true;
+            });
+        }
+        List<SearchHit> hits = new ArrayList<>(newest.size());
+        for (Long doc : newest.descendingSet()) {
+            hits.add(new SearchHit(doc, scores.get(doc)));
+        }
+        return hits;
+    }
+
+    private List<SearchHit> bestScored(List<Source> sources, Scorer scorer, long beforeId, int limit, int maxScored) {
+        Comparator<SearchHit> worstFirst = Comparator.comparingDouble(SearchHit::getScore)
+                .thenComparingLong(SearchHit::getId);
+        PriorityQueue<SearchHit> best = new PriorityQueue<>(worstFirst);
+        Set<Long> seen = new HashSet<>();
+        for (Source source : sources) {
+            if (seen.size() >= maxScored) {
+                break;
+            }
+            intersect(source.postings, beforeId, (doc, values) -> {
+                if (deleted.contains(doc) || !seen.add(doc)) {
+                    return true;
+                }
+                best.add(new SearchHit(doc, scorer.score(values)));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+                return seen.size() < maxScored;
+            });
+        }
+        List<SearchHit> hits = new ArrayList<>(best);
+        hits.sort(worstFirst.reversed());
+        return hits;
+    }
+
+    /**
+     * Visit messages containing every term, newest first, until the visitor says stop
+     */
+    private static void intersect(Postings[] postings, long beforeId, Visitor visitor) {
+        for (Postings term : postings) {
+            if (term == null) {
+                return;
+            }
+        }
+        Integer[] order = new Integer[postings.length];
+        for (int t = 0; t < order.length; t++) {
+            order[t] = t;
+        }
+        // Lead with the rarest term and probe the others for each of its messages
+        Arrays.sort(order, Comparator.comparingInt(t -> postings[t].docFreq()));
+        Postings lead = postings[order[0]];
+        long[] docs = new long[Postings.BLOCK];
+        int[] values = new int[Postings.BLOCK];
+        int[] termValues = new int[postings.length];
+        for (int block = lead.blocks() - 1; block >= 0; block--) {
+            if (block > 0 && lead.blockLastDoc(block - 1) + 1 >= beforeId) {
+                continue;
+            }
+            int count = lead.decodeBlock(block, docs, values);
+            for (int i = count - 1; i >= 0; i--) {
+                long doc = docs[i];
+                if (doc >= beforeId) {
+                    continue;
+                }
+                termValues[order[0]] = values[i];
+                boolean all = true;
+                for (int t = 1; t < order.length && all; t++) {
+                    int value = postings[order[t]].find(doc);
+                    termValues[order[t]] = value;
+                    all = value >= 0;
+                }
+                if (all && !visitor.visit(doc, termValues)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Smallest group of same-tier segments that fills a merge, or else one segment with many tombstones
+     */
+    private List<IndexSegment> chooseMerge(List<IndexSegment> segments) {
+        Map<Integer, List<IndexSegment>> tiers = new HashMap<>();
+        for (IndexSegment segment : segments) {
+            tiers.computeIfAbsent(tier(segment.getDocs()), t -> new ArrayList<>()).add(segment);
+        }
+        for (int tier = 0; tier <= 64; tier++) {
+            List<IndexSegment> group = tiers.get(tier);
+            if (group == null || group.size() < mergeFactor) {
+                continue;
+            }
+            List<IndexSegment> chosen = group.subList(0, mergeFactor);
+            if (chosen.stream().mapToLong(IndexSegment::getDocs).sum() <= maxSegmentDocs) {
+                return List.copyOf(chosen);
+            }
+        }
+        if (deleted.isEmpty()) {
+            return List.of();
+        }
+        long[] tombstones = sortedDeletes();
+        for (IndexSegment segment : segments) {
+            long inSegment = countContained(segment.postings(ALL), tombstones);
+            if (inSegment > 0 && inSegment >= segment.getDocs() * EXPUNGE_RATIO) {
+                return List.of(segment);
+            }
+        }
+        return List.of();
+    }
+
+    private int tier(long docs) {
+        int tier = 0;
+        for (long size = flushDocs; docs > size && tier < 64; size *= mergeFactor) {
+            tier++;
+        }
+        return tier;
+    }
+
+    /**
+     * Merge segments term by term, dropping deleted messages
+     *
+     * @return the merged segment, or null if every message was deleted
+     */
+    private IndexSegment merge(List<IndexSegment> inputs, long generation) throws IOException {
+        IndexSegment.Writer writer = new IndexSegment.Writer(segmentPath(generation));
+        try {
+            PriorityQueue<IndexSegment.Terms> queue = new PriorityQueue<>(Comparator.comparing(t -> t.term));
+            for (IndexSegment segment : inputs) {
+                IndexSegment.Terms terms = segment.terms();
+                if (terms.hasNext()) {
+                    terms.next();
+                    queue.add(terms);
+                }
+            }
+            Postings.Encoder encoder = new Postings.Encoder();
+            List<Cursor> cursors = new ArrayList<>();
+            DocStats docStats = null;
+            while (!queue.isEmpty()) {
+                String term = queue.peek().term;
+                cursors.clear();
+                List<IndexSegment.Terms> same = new ArrayList<>();
+                while (!queue.isEmpty() && queue.peek().term.equals(term)) {
+                    IndexSegment.Terms terms = queue.poll();
+                    same.add(terms);
+                    cursors.add(new Cursor(terms.postings()));
+                }
+                DocStats termStats = term.equals(ALL) ? new DocStats() : null;
+                mergeInto(cursors, encoder, termStats);
+                if (termStats != null) {
+                    termStats.maxDoc = encoder.lastDoc();
+                    termStats.docs = encoder.docFreq();
+                    docStats = termStats;
+                }
+                writer.add(term, encoder);
+                for (IndexSegment.Terms terms : same) {
+                    if (terms.hasNext()) {
+                        terms.next();
+                        queue.add(terms);
+                    }
+                }
+            }
+            if (docStats == null || docStats.docs == 0) {
+                writer.abort();
+                return null;
+            }
+            mergedDocs.add(docStats.docs);
+            return writer.finish(generation, docStats.docs, docStats.minDoc, docStats.maxDoc, docStats.tokens);
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+    }
+
+    private void mergeInto(List<Cursor> cursors, Postings.Encoder encoder, DocStats stats) {
+        for (Cursor cursor : cursors) {
+            cursor.next();
+        }
+        while (true) {
+            Cursor lowest = null;
+            for (Cursor cursor : cursors) {
+                if (!cursor.done && (lowest == null || cursor.doc < lowest.doc)) {
+                    lowest = cursor;
+                }
+            }
+            if (lowest == null) {
+                return;
+            }
+            long doc = lowest.doc;
+            if (!deleted.contains(doc)) {
+                encoder.add(doc, lowest.value);
+                if (stats != null) {
+                    stats.record(doc, lowest.value);
+                }
+            }
+            for (Cursor cursor : cursors) {
+                // A message indexed twice keeps one posting
+                while (!cursor.done && cursor.doc == doc) {
+                    cursor.next();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the written segment, or null if every message in it was deleted
+     */
+    private IndexSegment writeMemory(MemorySegment memory, long generation) throws IOException {
+        IndexSegment.Writer writer = new IndexSegment.Writer(segmentPath(generation));
+        try {
+            Postings.Encoder encoder = new Postings.Encoder();
+            DocStats docStats = new DocStats();
+            for (String term : memory.sortedTerms()) {
+                Postings.Sorted postings = memory.sortedPostings(term);
+                Cursor cursor = new Cursor(postings);
+                boolean all = term.equals(ALL);
+                for (cursor.next(); !cursor.done; cursor.next()) {
+                    if (!deleted.contains(cursor.doc)) {
+                        encoder.add(cursor.doc, cursor.value);
+                        if (all) {
+                            docStats.record(cursor.doc, cursor.value);
+                        }
+                    }
+                }
+                if (all) {
+                    docStats.docs = encoder.docFreq();
+                    docStats.maxDoc = encoder.lastDoc();
+                }
+                writer.add(term, encoder);
+            }
+            if (docStats.docs == 0) {
+                writer.abort();
+                return null;
+            }
+            return writer.finish(generation, docStats.docs, docStats.minDoc, docStats.maxDoc, docStats.tokens);
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Forget tombstones for messages no segment holds any more
+     */
+    private void purgeDeletes() {
+        if (deleted.isEmpty()) {
+            return;
+        }
+        long[] tombstones = sortedDeletes();
+        boolean[] held = new boolean[tombstones.length];
+        State current = state;
+        List<Postings> sources = new ArrayList<>();
+        sources.add(current.memory.sortedPostings(ALL));
+        if (current.flushing != null) {
+            sources.add(current.flushing.sortedPostings(ALL));
+        }
+        for (IndexSegment segment : current.segments) {
+            sources.add(segment.postings(ALL));
+        }
+        for (Postings all : sources) {
+            if (all == null || all.docFreq() == 0) {
+                continue;
+            }
+            for (int i = 0; i < tombstones.length; i++) {
+                held[i] = held[i] || all.find(tombstones[i]) >= 0;
+            }
+        }
+        for (int i = 0; i < tombstones.length; i++) {
+            if (!held[i]) {
+                deleted.remove(tombstones[i]);
+                deletesDirty = true;
+            }
+        }
+    }
+
+    private static long countContained(Postings all, long[] sortedIds) {
+        if (all == null) {
+            return 0;
+        }
+        long count = 0;
+        for (long id : sortedIds) {
+            if (all.find(id) >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private long[] sortedDeletes() {
+        long[] ids = deleted.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private Path segmentPath(long generation) {
+        return directory.resolve(String.format("segment-%012d%s", generation, IndexSegment.SUFFIX));
+    }
+
+    private void writeManifest() throws IOException {
+        List<String> names = state.segments.stream().map(s -> s.getPath().getFileName().toString()).toList();
+        Path temporary = directory.resolve(MANIFEST + ".tmp");
+        Files.write(temporary, names, StandardCharsets.UTF_8);
+        Files.move(temporary, directory.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Tombstones as a count and delta-encoded ids
+     */
+    private void writeDeletes() throws IOException {
+        if (!deletesDirty) {
+            return;
+        }
+        deletesDirty = false;
+        long[] ids = sortedDeletes();
+        ByteSink sink = new ByteSink(16 + ids.length * 2);
+        sink.writeVarLong(ids.length);
+        long previous = 0;
+        for (long id : ids) {
+            sink.writeVarLong(id - previous);
+            previous = id;
+        }
+        Path temporary = directory.resolve(DELETES + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            sink.writeTo(out);
+        }
+        Files.move(temporary, directory.resolve(DELETES), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void readDeletes() throws IOException {
+        Path file = directory.resolve(DELETES);
+        if (!Files.exists(file)) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        int[] position = {0};
+        long count = Postings.readVarLong(buffer, position);
+        long id = 0;
+        for (long i = 0; i < count; i++) {
+            id += Postings.readVarLong(buffer, position);
+            deleted.add(id);
+        }
+    }
+
+    private interface Visitor {
+        /**
+         * @param values each term's posted value for the message, by query term
+         * @return whether to keep going
+         */
+        boolean visit(long doc, int[] values);
+    }
+
+    /**
+     * BM25 over every searched source: term weights from document frequencies, lengths normalized to the mean
+     */
+    private static final class Scorer {
+
+        private final double[] idf;
+        private final double meanLength;
+
+        Scorer(List<Source> sources, int terms) {
+            long docs = 0;
+            long tokens = 0;
+            long[] docFreqs = new long[terms];
+            for (Source source : sources) {
+                docs += source.docs;
+                tokens += source.tokens;
+                for (int t = 0; t < terms; t++) {
+                    docFreqs[t] += source.postings[t] == null ? 0 : source.postings[t].docFreq();
+                }
+            }
+            idf = new double[terms];
+            for (int t = 0; t < terms; t++) {
+                idf[t] = Math.log(1 + (docs - docFreqs[t] + 0.5) / (docFreqs[t] + 0.5));
+            }
+            meanLength = docs == 0 ? 1 : Math.max(1.0, (double) tokens / docs);
+        }
+
+        double score(int[] values) {
+            double score = 0;
+            for (int t = 0; t < values.length; t++) {
+                int frequency = Postings.frequency(values[t]);
+                double norm = K1 * (1 - B + B * Postings.length(values[t]) / meanLength);
+                score += idf[t] * frequency * (K1 + 1) / (frequency + norm);
+            }
+            return score;
+        }
+    }
+
+    /**
+     * One segment's postings for each query term, null where a term is absent
+     */
+    private static final class Source {
+        final Postings[] postings;
+        final long maxDoc;
+        final long docs;
+        final long tokens;
+
+        Source(Postings[] postings, long maxDoc, long docs, long tokens) {
+            this.postings = postings;
+            this.maxDoc = maxDoc;
+            this.docs = docs;
+            this.tokens = tokens;
+        }
+    }
+
+    /**
+     * Sequential reader over postings, a block at a time
+     */
+    private static final class Cursor {
+        private final Postings postings;
+        private final long[] docs = new long[Postings.BLOCK];
+        private final int[] values = new int[Postings.BLOCK];
+        private int block = -1;
+        private int count;
+        private int index;
+        long doc;
+        int value;
+        boolean done;
+
+        Cursor(Postings postings) {
+            this.postings = postings;
+        }
+
+        void next() {
+            while (index >= count) {
+                if (++block >= postings.blocks()) {
+                    done = true;
+                    return;
+                }
+                count = postings.decodeBlock(block, docs, values);
+                index = 0;
+            }
+            doc = docs[index];
+            value = values[index++];
+        }
+    }
+
+    private static final class DocStats {
+        long docs;
+        long minDoc = -1;
+        long maxDoc;
+        long tokens;
+
+        void record(long doc, int value) {
+            if (minDoc < 0) {
+                minDoc = doc;
+            }
+            tokens += Postings.length(value);
+        }
+    }
+
+    /**
+     * What queries see: the segment being filled, the one being written out, and the files
+     */
+    private static final class State {
+        final MemorySegment memory;
+        final MemorySegment flushing;
+        final List<IndexSegment> segments;
+
+        State(MemorySegment memory, MemorySegment flushing, List<IndexSegment> segments) {
+            this.memory = memory;
+            this.flushing = flushing;
+            this.segments = segments;
+        }
+    }
+
+    /**
+     * Postings being collected in memory, in arrival order
+     */
+    private static final class MemorySegment {
+
+        private final Map<String, Growing> postings = new HashMap<>();
+        private long docs;
+        private long maxDoc;
+        private long tokens;
+
+        synchronized void add(long id, Map<String, Integer> frequencies, int length) {
+            postings.computeIfAbsent(ALL, t -> new Growing()).add(id, Postings.value(1, length));
+            frequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, t -> new Growing()).add(id, Postings.value(frequency, length)));
+            docs++;
+            tokens += Math.min(length, 255);
+            maxDoc = Math.max(maxDoc, id);
+        }
+
+        synchronized long docs() {
+            return docs;
+        }
+
+        synchronized long maxDoc() {
+            return maxDoc;
+        }
+
+        synchronized List<String> sortedTerms() {
+            List<String> terms = new ArrayList<>(postings.keySet());
+            terms.sort(null);
+            return terms;
+        }
+
+        synchronized Postings.Sorted sortedPostings(String term) {
+            Growing growing = postings.get(term);
+            return growing == null ? new Postings.Sorted(new long[0], new int[0], 0) : growing.snapshot();
+        }
+
+        Source source(List<String> terms) {
+            Postings[] found = new Postings[terms.size()];
+            synchronized (this) {
+                for (int t = 0; t < found.length; t++) {
+                    Growing growing = postings.get(terms.get(t));
+                    found[t] = growing == null ? null : growing.snapshot();
+                }
+                return new Source(found, maxDoc, docs, tokens);
+            }
+        }
+    }
+
+    private static final class Growing {
+        private long[] docs = new long[4];
+        private int[] values = new int[4];
+        private int size;
+        private boolean sorted = true;
+
+        void add(long doc, int value) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            if (size > 0 && doc <= docs[size - 1]) {
+                sorted = false;
+            }
+            docs[size] = doc;
+            values[size++] = value;
+        }
+
+        /**
+         * Ascending by id with repeats removed. Ids usually arrive in order, and
+         * then the arrays are shared: later adds only write past the snapshot's count.
+         */
+        Postings.Sorted snapshot() {
+            if (sorted) {
+                return new Postings.Sorted(docs, values, size);
+            }
+            long[] copyDocs = Arrays.copyOf(docs, size);
+            int[] copyValues = Arrays.copyOf(values, size);
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingLong(i -> copyDocs[i]));
+            long[] sortedDocs = new long[size];
+            int[] sortedValues = new int[size];
+            int count = 0;
+            for (Integer i : order) {
+                if (count > 0 && sortedDocs[count - 1] == copyDocs[i]) {
+                    sortedValues[count - 1] = copyValues[i];
+                    continue;
+                }
+                sortedDocs[count] = copyDocs[i];
+                sortedValues[count++] = copyValues[i];
+            }
+            return new Postings.Sorted(sortedDocs, sortedValues, count);
+        }
+    }
+}
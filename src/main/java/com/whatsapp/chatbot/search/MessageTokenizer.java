@@ -0,0 +1,151 @@
+package com.whatsapp.chatbot.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Tokenizer for chat message text in any language.
+ * Text is NFKC-normalized and lowercased; accents are folded for Latin,
+ * Greek and Cyrillic ("Café" -> "cafe") but kept where the marks are part
+ * of the letter, as in Devanagari or Thai. Words are runs of letters, digits
+ * and marks in one script. Scripts written without spaces (Han, kana, Thai,
+ * Lao, Khmer, Myanmar) are split into overlapping character bigrams, so a
+ * query word matches wherever it occurs in a sentence. Every emoji is a
+ * token of its own, with skin tones, variation selectors and joiners dropped.
+ */
+public final class MessageTokenizer {
+
+    /** Longer words are truncated; nobody searches for them in full */
+    static final int MAX_TOKEN_CHARS = 40;
+
+    private MessageTokenizer() {
+    }
+
+    /**
+     * Split text into tokens in order, duplicates preserved
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String folded = fold(text);
+        StringBuilder word = new StringBuilder();
+        Character.UnicodeScript wordScript = null;
+        int i = 0;
+        while (i < folded.length()) {
+            int codePoint = folded.codePointAt(i);
+            i += Character.charCount(codePoint);
+
+            if (isEmoji(codePoint)) {
+                flush(word, wordScript, tokens);
+                wordScript = null;
+                tokens.add(new String(Character.toChars(codePoint)));
+                continue;
+            }
+            boolean mark = isMark(codePoint);
+            if (!Character.isLetterOrDigit(codePoint) && !(mark && word.length() > 0)) {
+                flush(word, wordScript, tokens);
+                wordScript = null;
+                continue;
+            }
+            Character.UnicodeScript script = mark ? wordScript : scriptOf(codePoint);
+            if (word.length() > 0 && script != wordScript) {
+                flush(word, wordScript, tokens);
+            }
+            wordScript = script;
+            word.appendCodePoint(codePoint);
+        }
+        flush(word, wordScript, tokens);
+        return tokens;
+    }
+
+    private static void flush(StringBuilder word, Character.UnicodeScript script, List<String> tokens) {
+        if (word.length() == 0) {
+            return;
+        }
+        if (isUnsegmented(script)) {
+            int[] codePoints = word.codePoints().toArray();
+            if (codePoints.length == 1) {
+                tokens.add(new String(codePoints, 0, 1));
+            }
+            for (int c = 0; c + 1 < codePoints.length; c++) {
+                tokens.add(new String(codePoints, c, 2));
+            }
+        } else if (word.length() > MAX_TOKEN_CHARS) {
+            int end = Character.isHighSurrogate(word.charAt(MAX_TOKEN_CHARS - 1))
+                    ? MAX_TOKEN_CHARS - 1 : MAX_TOKEN_CHARS;
+            tokens.add(word.substring(0, end));
+        } else {
+            tokens.add(word.toString());
+        }
+        word.setLength(0);
+    }
+
+    /**
+     * NFKC, lowercase, and accents removed from letters of scripts where they are optional in practice
+     */
+    private static String fold(String text) {
+        boolean ascii = true;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7F) {
+                ascii = false;
+                break;
+            }
+        }
+        if (ascii) {
+            return text.toLowerCase(Locale.ROOT);
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        StringBuilder kept = new StringBuilder(decomposed.length());
+        Character.UnicodeScript base = null;
+        int i = 0;
+        while (i < decomposed.length()) {
+            int codePoint = decomposed.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.getType(codePoint) == Character.NON_SPACING_MARK) {
+                if (base == Character.UnicodeScript.LATIN || base == Character.UnicodeScript.GREEK
+                        || base == Character.UnicodeScript.CYRILLIC) {
+                    continue;
+                }
+            } else {
+                base = Character.UnicodeScript.of(codePoint);
+            }
+            kept.appendCodePoint(codePoint);
+        }
+        return Normalizer.normalize(kept, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+    }
+
+    private static Character.UnicodeScript scriptOf(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        // Digits are COMMON; keep "a4" or "5th" together with the letters around them
+        return script == Character.UnicodeScript.COMMON ? Character.UnicodeScript.LATIN : script;
+    }
+
+    private static boolean isUnsegmented(Character.UnicodeScript script) {
+        return script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA || script == Character.UnicodeScript.THAI
+                || script == Character.UnicodeScript.LAO || script == Character.UnicodeScript.KHMER
+                || script == Character.UnicodeScript.MYANMAR;
+    }
+
+    private static boolean isMark(int codePoint) {
+        int type = Character.getType(codePoint);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+                || type == Character.ENCLOSING_MARK;
+    }
+
+    /**
+     * Pictographic symbols; modifiers and joiners that only change how one renders are not emoji themselves
+     */
+    private static boolean isEmoji(int codePoint) {
+        if ((codePoint >= 0x1F3FB && codePoint <= 0x1F3FF) || codePoint == 0x200D || codePoint == 0xFE0F) {
+            return false;
+        }
+        return (codePoint >= 0x1F000 && codePoint <= 0x1FAFF)
+                || (codePoint >= 0x2600 && codePoint <= 0x27BF)
+                || (codePoint >= 0x2B00 && codePoint <= 0x2BFF);
+    }
+}
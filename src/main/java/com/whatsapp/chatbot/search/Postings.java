@@ -0,0 +1,262 @@
+package com.whatsapp.chatbot.search;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * One term's postings: the ids of the messages containing it, ascending,
+ * each with a packed value holding the term's frequency in the message and
+ * the message's length. Postings come in blocks of {@value #BLOCK} and the
+ * last id of every block is known without decoding, so intersections and
+ * newest-first scans decode only the blocks they need.
+ *
+ * Encoded layout: doc count, block count, then per block the delta of its
+ * last id from the previous block's and its byte length, then the blocks:
+ * per posting the delta from the previous id and the value, as varints.
+ */
+abstract class Postings {
+
+    static final int BLOCK = 128;
+
+    private int cachedBlock = -1;
+    private final long[] cachedDocs = new long[BLOCK];
+    private final int[] cachedValues = new int[BLOCK];
+    private int cachedCount;
+
+    abstract int docFreq();
+
+    abstract int blocks();
+
+    abstract long blockLastDoc(int block);
+
+    /**
+     * Decode a block into the arrays, which must hold {@value #BLOCK} entries
+     *
+     * @return the number of postings in the block
+     */
+    abstract int decodeBlock(int block, long[] docs, int[] values);
+
+    long lastDoc() {
+        return blockLastDoc(blocks() - 1);
+    }
+
+    /**
+     * The value posted for a message, or -1 if the term does not occur in it.
+     * The last block decoded is kept, so probes in order stay cheap.
+     */
+    int find(long doc) {
+        int low = 0;
+        int high = blocks() - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (blockLastDoc(middle) < doc) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (blocks() == 0 || blockLastDoc(low) < doc) {
+            return -1;
+        }
+        if (low != cachedBlock) {
+            cachedCount = decodeBlock(low, cachedDocs, cachedValues);
+            cachedBlock = low;
+        }
+        int index = Arrays.binarySearch(cachedDocs, 0, cachedCount, doc);
+        return index >= 0 ? cachedValues[index] : -1;
+    }
+
+    static int value(int frequency, int length) {
+        return Math.min(frequency, 0x7FFFFF) << 8 | Math.min(length, 255);
+    }
+
+    static int frequency(int value) {
+        return value >>> 8;
+    }
+
+    static int length(int value) {
+        return value & 0xFF;
+    }
+
+    /**
+     * Postings decoded from a buffer, usually a memory-mapped segment
+     */
+    static final class Encoded extends Postings {
+
+        private final ByteBuffer buffer;
+        private final int docFreq;
+        private final long[] lastDocs;
+        private final int[] blockOffsets;
+
+        Encoded(ByteBuffer buffer, int offset) {
+            this.buffer = buffer;
+            int[] position = {offset};
+            docFreq = (int) readVarLong(buffer, position);
+            int blocks = (int) readVarLong(buffer, position);
+            lastDocs = new long[blocks];
+            int[] lengths = new int[blocks];
+            long last = 0;
+            for (int b = 0; b < blocks; b++) {
+                last += readVarLong(buffer, position);
+                lastDocs[b] = last;
+                lengths[b] = (int) readVarLong(buffer, position);
+            }
+            blockOffsets = new int[blocks];
+            int blockOffset = position[0];
+            for (int b = 0; b < blocks; b++) {
+                blockOffsets[b] = blockOffset;
+                blockOffset += lengths[b];
+            }
+        }
+
+        @Override
+        int docFreq() {
+            return docFreq;
+        }
+
+        @Override
+        int blocks() {
+            return lastDocs.length;
+        }
+
+        @Override
+        long blockLastDoc(int block) {
+            return lastDocs[block];
+        }
+
+        @Override
+        int decodeBlock(int block, long[] docs, int[] values) {
+            int count = block == lastDocs.length - 1 ? docFreq - block * BLOCK : BLOCK;
+            int[] position = {blockOffsets[block]};
+            long doc = block == 0 ? 0 : lastDocs[block - 1];
+            for (int i = 0; i < count; i++) {
+                doc += readVarLong(buffer, position);
+                docs[i] = doc;
+                values[i] = (int) readVarLong(buffer, position);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Postings over sorted arrays, for the segment still being filled in memory
+     */
+    static final class Sorted extends Postings {
+
+        private final long[] docs;
+        private final int[] values;
+        private final int count;
+
+        Sorted(long[] docs, int[] values, int count) {
+            this.docs = docs;
+            this.values = values;
+            this.count = count;
+        }
+
+        @Override
+        int docFreq() {
+            return count;
+        }
+
+        @Override
+        int blocks() {
+            return (count + BLOCK - 1) / BLOCK;
+        }
+
+        @Override
+        long blockLastDoc(int block) {
+            return docs[Math.min(count, (block + 1) * BLOCK) - 1];
+        }
+
+        @Override
+        int decodeBlock(int block, long[] into, int[] intoValues) {
+            int from = block * BLOCK;
+            int length = Math.min(count, from + BLOCK) - from;
+            System.arraycopy(docs, from, into, 0, length);
+            System.arraycopy(values, from, intoValues, 0, length);
+            return length;
+        }
+    }
+
+    /**
+     * Encodes postings added in ascending id order; a repeated id is ignored
+     */
+    static final class Encoder {
+
+        private final ByteSink blocks = new ByteSink(256);
+        private final ByteSink skips = new ByteSink(64);
+        private int docFreq;
+        private int blockCount;
+        private int inBlock;
+        private int blockStart;
+        private long previous = -1;
+        private long previousBlockLast;
+
+        void add(long doc, int value) {
+            if (doc <= previous) {
+                return;
+            }
+            long base = inBlock == 0 ? previousBlockLast : previous;
+            blocks.writeVarLong(doc - base);
+            blocks.writeVarLong(value);
+            previous = doc;
+            docFreq++;
+            if (++inBlock == BLOCK) {
+                endBlock();
+            }
+        }
+
+        int docFreq() {
+            return docFreq;
+        }
+
+        long lastDoc() {
+            return previous;
+        }
+
+        /**
+         * Write the encoded postings and reset for the next term
+         */
+        void finishTo(ByteSink out) {
+            if (inBlock > 0) {
+                endBlock();
+            }
+            out.writeVarLong(docFreq);
+            out.writeVarLong(blockCount);
+            out.write(skips);
+            out.write(blocks);
+            blocks.clear();
+            skips.clear();
+            docFreq = 0;
+            blockCount = 0;
+            inBlock = 0;
+            blockStart = 0;
+            previous = -1;
+            previousBlockLast = 0;
+        }
+
+        private void endBlock() {
+            skips.writeVarLong(previous - previousBlockLast);
+            skips.writeVarLong(blocks.size() - blockStart);
+            previousBlockLast = previous;
+            blockStart = blocks.size();
+            blockCount++;
+            inBlock = 0;
+        }
+    }
+
+    static long readVarLong(ByteBuffer buffer, int[] position) {
+        long value = 0;
+        int shift = 0;
+        int p = position[0];
+        while (true) {
+            byte b = buffer.get(p++);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                position[0] = p;
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
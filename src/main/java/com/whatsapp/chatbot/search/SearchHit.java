@@ -0,0 +1,12 @@
+package com.whatsapp.chatbot.search;
+
+import lombok.Value;
+
+/**
+ * A matching message: its row id and its relevance to the query
+ */
+@Value
+public class SearchHit {
+    long id;
+    double score;
+}
@@ -0,0 +1,24 @@
+package com.whatsapp.chatbot.search;
+
+import java.util.Locale;
+
+/**
+ * How matching messages are ranked
+ */
+public enum SearchOrder {
+    /** Newest first */
+    RECENT,
+    /** Best BM25 score first, newest first among equal scores */
+    RELEVANCE;
+
+    /**
+     * Parse "recent" or "relevance"; null if unknown
+     */
+    public static SearchOrder parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
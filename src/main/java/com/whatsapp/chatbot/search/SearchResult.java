@@ -0,0 +1,18 @@
+package com.whatsapp.chatbot.search;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * One page of search hits. Pass nextBeforeId back to continue a
+ * newest-first search; it is null on the last page and for relevance order.
+ */
+@Value
+public class SearchResult {
+    String query;
+    SearchOrder order;
+    List<SearchHit> hits;
+    Long nextBeforeId;
+    long tookMicros;
+}
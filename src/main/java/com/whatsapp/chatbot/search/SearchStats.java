@@ -0,0 +1,36 @@
+package com.whatsapp.chatbot.search;
+
+import lombok.Value;
+
+/**
+ * Point-in-time counters for the message search index. Documents held in
+ * memory are searchable but only reach disk on the next flush; until then a
+ * restart re-indexes them from the database.
+ */
+@Value
+public class SearchStats {
+    boolean available;
+
+    /** Whether the index has caught up with messages written before startup */
+    boolean caughtUp;
+
+    long documents;
+    long memoryDocuments;
+    long deletedDocuments;
+    int segments;
+    long terms;
+    long sizeBytes;
+
+    /** Index bytes on disk per document in segments */
+    double bytesPerDocument;
+
+    long maxIndexedId;
+    long flushes;
+    long merges;
+    long mergedDocuments;
+    long indexFailures;
+
+    long searches;
+    double meanSearchMicros;
+    long maxSearchMicros;
+}
@@ -0,0 +1,369 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.archive.ArchiveStats;
+import com.whatsapp.chatbot.archive.MessageArchive;
+import com.whatsapp.chatbot.archive.Segment;
+import com.whatsapp.chatbot.config.DurableDirectories;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Service for tiering old messages out of the database into the on-disk
+ * archive. A background job periodically moves messages older than the
+ * configured age, oldest first and a batch at a time: each batch is written
+ * as segments, then deleted from the table, then committed. After a crash
+ * between those steps, startup finishes the deletes for uncommitted segments.
+ *
+ * The archive is the only copy of the messages it holds, so archiving does
+ * not start until the directory is set explicitly to durable storage.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ArchiveService {
+
+    private static final int DELETE_CHUNK = 1_000;
+
+    private final WhatsAppMessageRepository messageRepository;
+    private final StatisticsService statisticsService;
+    private final ReadModelService readModelService;
+
+    @Value("${archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${archive.directory:}")
+    private String directory;
+
+    @Value("${storage.allow-temp-directories:false}")
+    private boolean allowTempDirectories;
+
+    @Value("${archive.max-age-days:90}")
+    private long maxAgeDays;
+
+    @Value("${archive.batch-size:50000}")
+    private int batchSize;
+
+    @Value("${archive.interval-minutes:60}")
+    private long intervalMinutes;
+
+    @Value("${archive.bloom-bits-per-key:10}")
+    private int bloomBitsPerKey;
+
+    private volatile MessageArchive archive;
+    private ScheduledExecutorService scheduler;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder failedRuns = new LongAdder();
+    private final LongAdder archivedRows = new LongAdder();
+    private final AtomicLong lastRunMillis = new AtomicLong();
+    private final AtomicBoolean requestedRun = new AtomicBoolean();
+
+    @PostConstruct
+    public void initialize() {
+        if (!enabled) {
+            log.info("Message archive disabled");
+            return;
+        }
+        Optional<String> problem = DurableDirectories.problem(directory, allowTempDirectories);
+        if (problem.isPresent()) {
+            log.warn("Message archive disabled: {}. Set archive.directory to durable storage to archive "
+                    + "old messages.", problem.get());
+            return;
+        }
+        try {
+            MessageArchive opened = MessageArchive.open(Path.of(directory), bloomBitsPerKey);
+            recover(opened);
+            archive = opened;
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not open message archive at {}, archiving disabled: {}", directory, e.getMessage());
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::scheduledRun, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        log.info("Message archive ready at {}: {} segments, {} rows; archiving messages older than {} days",
+                directory, archive.getSegments().size(), archive.getRows(), maxAgeDays);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Move every message older than the configured age into the archive
+     *
+     * @return the number of messages archived
+     */
+    public long archiveExpired() {
+        return archiveOlderThan(expiryCutoff());
+    }
+
+    /**
+     * Messages timestamped before this are past the configured age
+     */
+    public LocalDateTime expiryCutoff() {
+        return LocalDateTime.now().minus(Duration.ofDays(maxAgeDays));
+    }
+
+    /**
+     * Archive messages older than the cutoff on the archiver thread
+     *
+     * @return false if the archive is disabled or a run requested earlier has not finished yet
+     */
+    public boolean requestRun(LocalDateTime cutoff) {
+        if (archive == null || !requestedRun.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            scheduler.execute(() -> {
+                try {
+                    archiveOlderThan(cutoff);
+                } catch (RuntimeException e) {
+                    log.error("Requested archive run failed: {}", e.getMessage(), e);
+                } finally {
+                    requestedRun.set(false);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            requestedRun.set(false);
+            return false;
+        }
+    }
+
+    /**
+     * Move every message with a timestamp before the cutoff into the archive
+     *
+     * @return the number of messages archived
+     */
+    public synchronized long archiveOlderThan(LocalDateTime cutoff) {
+        MessageArchive current = archive;
+        if (current == null) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        long moved = 0;
+        try {
+            List<WhatsAppMessage> batch;
+            while (!(batch = messageRepository.findOldestBefore(cutoff, PageRequest.of(0, batchSize))).isEmpty()) {
+                List<Segment> written = current.append(batch);
+                deleteFromTable(written);
+                statisticsService.messagesRemoved(batch);
+                readModelService.messagesRemoved(batch);
+                current.commit(written.get(written.size() - 1).getSequence());
+                moved += batch.size();
+                archivedRows.add(batch.size());
+            }
+            runs.increment();
+        } catch (IOException | RuntimeException e) {
+            failedRuns.increment();
+            log.error("Archiving messages before {} failed after {} rows: {}", cutoff, moved, e.getMessage(), e);
+        }
+        lastRunMillis.set((System.nanoTime() - start) / 1_000_000);
+        if (moved > 0) {
+            log.info("Archived {} messages older than {} in {} ms", moved, cutoff, lastRunMillis.get());
+        }
+        return moved;
+    }
+
+    /**
+     * Archived messages to or from a number older than the cursor, newest first; empty when disabled
+     */
+    public List<WhatsAppMessage> history(String phoneNumber, LocalDateTime before, long beforeId, int limit) {
+        MessageArchive current = archive;
+        if (current == null) {
+            return List.of();
+        }
+        try {
+            return current.history(phoneNumber, before, beforeId, limit);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read message archive", e);
+        }
+    }
+
+    /**
+     * Delete archived messages older than the cutoff, a whole segment at a time
+     *
+     * @param dropped told the id of every message deleted
+     * @return the number of messages deleted
+     */
+    public synchronized long dropBefore(LocalDateTime cutoff, LongConsumer dropped) {
+        MessageArchive current = archive;
+        if (current == null) {
+            return 0;
+        }
+        try {
+            return current.dropBefore(cutoff, dropped);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not drop archive segments", e);
+        }
+    }
+
+    /**
+     * Rewrite archived messages whose segments end in [from, cutoff), compacting each day into one segment
+     *
+     * @return the number of messages rewritten
+     */
+    public synchronized long rewriteBetween(LocalDateTime from, LocalDateTime cutoff,
+                                            UnaryOperator<WhatsAppMessage> rewrite) {
+        MessageArchive current = archive;
+        if (current == null) {
+            return 0;
+        }
+        try {
+            return current.rewriteBetween(from, cutoff, rewrite);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not rewrite archive segments", e);
+        }
+    }
+
+    /**
+     * Hand every archived message with an id above the given one to the consumer, a segment at a time
+     *
+     * @return the number of messages handed over
+     */
+    public long replayAfter(long afterId, Consumer<List<WhatsAppMessage>> consumer) {
+        MessageArchive current = archive;
+        if (current == null) {
+            return 0;
+        }
+        long replayed = 0;
+        try (MessageArchive.Read read = current.openRead()) {
+            for (Segment segment : read.getSegments()) {
+                if (Arrays.stream(segment.ids()).noneMatch(id -> id > afterId)) {
+                    continue;
+                }
+                List<WhatsAppMessage> messages = segment.readAll().stream()
+                        .filter(message -> message.getId() > afterId)
+                        .toList();
+                consumer.accept(messages);
+                replayed += messages.size();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read message archive", e);
+        }
+        return replayed;
+    }
+
+    /**
+     * Hand archived messages timestamped within [from, to) to the consumer a
+     * segment at a time, oldest segment first; a null bound is open
+     *
+     * @return the number of messages handed over
+     */
+    public long replayBetween(LocalDateTime from, LocalDateTime to, Consumer<List<WhatsAppMessage>> consumer) {
+        MessageArchive current = archive;
+        if (current == null) {
+            return 0;
+        }
+        long replayed = 0;
+        try (MessageArchive.Read read = current.openRead()) {
+            List<Segment> oldestFirst = new ArrayList<>(read.getSegments());
+            Collections.reverse(oldestFirst);
+            for (Segment segment : oldestFirst) {
+                if ((from != null && segment.getMaxTimestamp().isBefore(from))
+                        || (to != null && !segment.getMinTimestamp().isBefore(to))) {
+                    continue;
+                }
+                List<WhatsAppMessage> messages = segment.readAll().stream()
+                        .filter(message -> (from == null || !message.getTimestamp().isBefore(from))
+                                && (to == null || message.getTimestamp().isBefore(to)))
+                        .toList();
+                consumer.accept(messages);
+                replayed += messages.size();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read message archive", e);
+        }
+        return replayed;
+    }
+
+    public boolean isAvailable() {
+        return archive != null;
+    }
+
+    public Optional<ArchiveStats> getStats() {
+        MessageArchive current = archive;
+        if (current == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new ArchiveStats(current.getSegments().size(), current.getPartitions(),
+                current.getRows(), current.getSizeBytes(), current.getRawBytes(), runs.sum(),
+                archivedRows.sum(), lastRunMillis.get(), failedRuns.sum()));
+    }
+
+    private void scheduledRun() {
+        try {
+            archiveExpired();
+        } catch (RuntimeException e) {
+            log.error("Scheduled archive run failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Finish deleting the rows of segments written before a crash, then commit them
+     */
+    private void recover(MessageArchive opened) throws IOException {
+        List<Segment> pending = opened.uncommitted();
+        if (pending.isEmpty()) {
+            return;
+        }
+        log.warn("Completing {} uncommitted archive segments", pending.size());
+        deleteFromTable(pending);
+        opened.commit(pending.get(pending.size() - 1).getSequence());
+        statisticsService.reconcile();
+        readModelService.requestRebuild();
+    }
+
+    private void deleteFromTable(List<Segment> segments) throws IOException {
+        List<Long> ids = new ArrayList<>(DELETE_CHUNK);
+        for (Segment segment : segments) {
+            for (long id : segment.ids()) {
+                ids.add(id);
+                if (ids.size() == DELETE_CHUNK) {
+                    messageRepository.deleteAllByIdInBatch(ids);
+                    ids.clear();
+                }
+            }
+        }
+        if (!ids.isEmpty()) {
+            messageRepository.deleteAllByIdInBatch(ids);
+        }
+    }
+}
@@ -1,10 +1,24 @@
 package com.whatsapp.chatbot.service;
 
+import com.whatsapp.chatbot.geo.GeoUtils;
+import com.whatsapp.chatbot.geo.PoiHit;
+import com.whatsapp.chatbot.navigation.NavigationUpdate;
+import com.whatsapp.chatbot.routing.PlannedRoute;
+import com.whatsapp.chatbot.routing.RoutePath;
+import com.whatsapp.chatbot.routing.Tour;
+import com.whatsapp.chatbot.traffic.RouteTraffic;
+import com.whatsapp.chatbot.traffic.TrafficReading;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 /**
  * Service for handling chatbot conversation logic and navigation
  */
@@ -13,8 +27,21 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class ChatbotService {
 
+    private static final Pattern ROUTE_REQUEST =
+            Pattern.compile("^\\s*(?:from\\s+)?(.+?)\\s+to\\s+(.+?)\\s*$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PLACE_CHOICE = Pattern.compile("^place_(\\d{1,9})$");
+    private static final int MAX_PLACE_CHOICES = 10;
+    private static final Pattern ROUTE_CHOICE = Pattern.compile("^route_(\\d)$");
+    private static final Pattern STOP_SEPARATOR = Pattern.compile("\\s*(?:\\n|;)\\s*");
+    private static final String ROUND_TRIP_MARKER = "back to start";
+
     private final WhatsAppService whatsAppService;
     private final UserSessionService sessionService;
+    private final LocationSearchService locationSearchService;
+    private final RoutingService routingService;
+    private final TrafficService trafficService;
+    private final TrafficAlertService trafficAlertService;
+    private final NavigationService navigationService;
 
     /**
      * Process incoming message and generate appropriate response
@@ -50,9 +77,18 @@ public class ChatbotService {
             case "ROUTE_PLANNING":
                 return handleRoutePlanningState(phoneNumber, userInput);
                 
+            case "ROUTE_OPTIMIZATION":
+                return handleRouteOptimizationState(phoneNumber, userInput);
+                
+            case "NAVIGATING":
+                return handleNavigatingState(phoneNumber, userInput);
+                
             case "TRAFFIC_INFO":
                 return handleTrafficInfoState(phoneNumber, userInput);
                 
+            case "TRAFFIC_ALERT_AREA":
+                return handleTrafficAlertAreaState(phoneNumber, userInput);
+                
             case "SETTINGS":
                 return handleSettingsState(phoneNumber, userInput);
                 
@@ -61,6 +97,17 @@ public class ChatbotService {
         }
     }
 
+    /**
+     * Process a shared location: remember it, and finish an area alert subscription waiting for one
+     */
+    public Mono<Void> processLocation(String phoneNumber, double latitude, double longitude) {
+        locationSearchService.rememberLocation(phoneNumber, latitude, longitude);
+        if (!"TRAFFIC_ALERT_AREA".equals(sessionService.getCurrentState(phoneNumber))) {
+            return Mono.empty();
+        }
+        return subscribeAreaAlerts(phoneNumber);
+    }
+
     /**
      * Handle welcome state - send initial greeting and main menu
      */
@@ -185,21 +232,68 @@ public class ChatbotService {
      * Handle location search state
      */
     private Mono<Void> handleLocationSearchState(String phoneNumber, String userInput) {
-        // Simulate location search (in real implementation, integrate with Google Maps API)
-        String responseMessage = "🔍 Searching for: " + userInput + "\n\n" +
-                                "Found these locations:\n" +
-                                "1. " + userInput + " - Main Location\n" +
-                                "2. " + userInput + " - Secondary Location\n" +
-                                "3. Nearby alternatives\n\n" +
-                                "Would you like directions to any of these?";
-        
-        String[] buttonIds = {"get_directions_1", "get_directions_2", "search_again"};
-        String[] buttonTitles = {"Directions to #1", "Directions to #2", "Search Again"};
-        
-        return whatsAppService.sendButtonMessage(phoneNumber, responseMessage, buttonIds, buttonTitles)
+        if ("search_again".equalsIgnoreCase(userInput)) {
+            return handleLocationSearch(phoneNumber);
+        }
+
+        Matcher picked = PLACE_CHOICE.matcher(userInput.trim());
+        if (picked.matches()) {
+            Optional<PoiHit> place = locationSearchService.place(Integer.parseInt(picked.group(1)));
+            Optional<PoiHit> origin = locationSearchService.resolve("current location");
+            if (place.isPresent() && origin.isPresent()) {
+                sessionService.updateSessionState(phoneNumber, "ROUTE_PLANNING");
+                return planRoute(phoneNumber, origin.get(), place.get());
+            }
+            // The place list was reloaded since this pick was offered: never search for the id itself
+            Mono<Void> unavailable = whatsAppService.sendTextMessage(phoneNumber,
+                    "📍 Sorry, that place is no longer available.").then();
+            Optional<String> lastSearch = locationSearchService.lastSearch(phoneNumber);
+            return unavailable.then(lastSearch.isPresent()
+                    ? showPlaceChoices(phoneNumber, lastSearch.get())
+                    : handleLocationSearch(phoneNumber));
+        }
+
+        return showPlaceChoices(phoneNumber, userInput);
+    }
+
+    /**
+     * Search for places and offer the matches as a list to pick from
+     */
+    private Mono<Void> showPlaceChoices(String phoneNumber, String userInput) {
+        List<PoiHit> results = locationSearchService.suggest(userInput, MAX_PLACE_CHOICES);
+        if (results.isEmpty()) {
+            String noResultsMessage = "🔍 Searching for: " + userInput + "\n\n" +
+                                     "Sorry, I couldn't find any matching places.\n" +
+                                     "Try a business name, landmark or 'nearest <place type>'.";
+            return whatsAppService.sendTextMessage(phoneNumber, noResultsMessage)
+                    .then();
+        }
+
+        String[] optionIds = new String[results.size()];
+        String[] optionTitles = new String[results.size()];
+        String[] optionDescriptions = new String[results.size()];
+        for (int i = 0; i < results.size(); i++) {
+            PoiHit hit = results.get(i);
+            optionIds[i] = "place_" + hit.getPoiId();
+            optionTitles[i] = truncate(hit.getName(), 24);
+            String distance = GeoUtils.formatDistance(hit.getDistanceMeters());
+            optionDescriptions[i] = truncate(hit.getCategory().isEmpty() ? distance
+                    : hit.getCategory().replace('_', ' ') + " · " + distance, 72);
+        }
+        locationSearchService.rememberSearch(phoneNumber, userInput);
+        String listMessage = "🔍 Searching for: " + userInput + "\n\n" +
+                            "Found " + results.size() + (results.size() == 1 ? " place" : " places") +
+                            ". Pick one to get directions, or type again to refine.";
+
+        return whatsAppService.sendListMessage(phoneNumber, listMessage, "Choose Place",
+                                             "Matching Places", optionIds, optionTitles, optionDescriptions)
                 .then();
     }
 
+    private static String truncate(String text, int maxLength) {
+        return text.length() <= maxLength ? text : text.substring(0, maxLength - 1) + "…";
+    }
+
     /**
      * Start directions flow
      */
@@ -242,14 +336,69 @@ public class ChatbotService {
     }
 
     /**
-     * Handle other states (placeholder implementations)
+     * Handle route planning state: parse "From X to Y", geocode both ends and route
      */
     private Mono<Void> handleRoutePlanningState(String phoneNumber, String userInput) {
+        switch (userInput.toLowerCase()) {
+            case "main_menu":
+                return showMainMenu(phoneNumber);
+
+            case "alternative_route":
+                return showAlternativeRoutes(phoneNumber);
+
+            case "start_navigation":
+                return startRealTimeNavigation(phoneNumber);
+
+            default:
+                break;
+        }
+
+        Matcher choice = ROUTE_CHOICE.matcher(userInput.trim());
+        if (choice.matches()) {
+            return chooseAlternativeRoute(phoneNumber, Integer.parseInt(choice.group(1)) - 1);
+        }
+
+        Matcher request = ROUTE_REQUEST.matcher(userInput);
+        if (!request.matches()) {
+            return whatsAppService.sendTextMessage(phoneNumber,
+                    "🗺️ Please send your route as 'From [Start] to [Destination]'\n" +
+                    "Example: 'From current location to Times Square'")
+                    .then();
+        }
+
+        Optional<PoiHit> from = locationSearchService.resolve(request.group(1));
+        Optional<PoiHit> to = locationSearchService.resolve(request.group(2));
+        if (from.isEmpty() || to.isEmpty()) {
+            String missing = from.isEmpty() ? request.group(1) : request.group(2);
+            return whatsAppService.sendTextMessage(phoneNumber,
+                    "📍 Sorry, I couldn't find '" + missing + "'. Please try a more specific place name.")
+                    .then();
+        }
+
+        return planRoute(phoneNumber, from.get(), to.get());
+    }
+
+    /**
+     * Route between two resolved places and offer to start navigation
+     */
+    private Mono<Void> planRoute(String phoneNumber, PoiHit from, PoiHit to) {
+        Optional<RoutePath> route = routingService.route(from.getLatitude(), from.getLongitude(),
+                to.getLatitude(), to.getLongitude());
+        if (route.isEmpty()) {
+            return whatsAppService.sendTextMessage(phoneNumber,
+                    "🚧 Sorry, I couldn't find a drivable route from " + from.getName() +
+                    " to " + to.getName() + ".")
+                    .then();
+        }
+
+        routingService.rememberRoute(phoneNumber, new PlannedRoute(from.getName(), to.getName(), route.get()));
+
         String routeMessage = "🚗 Route Planning\n\n" +
-                            "Processing your route request: " + userInput + "\n\n" +
-                            "Estimated time: 25 minutes\n" +
-                            "Distance: 15.2 km\n" +
-                            "Traffic: Light traffic\n\n" +
+                            "From: " + from.getName() + "\n" +
+                            "To: " + to.getName() + "\n\n" +
+                            "Estimated time: " + formatDuration(route.get().getDurationMillis()) + "\n" +
+                            "Distance: " + GeoUtils.formatDistance(route.get().getLengthMeters()) + "\n" +
+                            formatVia(route.get()) + "\n" +
                             "Would you like to start navigation?";
         
         String[] buttonIds = {"start_navigation", "alternative_route", "main_menu"};
@@ -259,34 +408,375 @@ public class ChatbotService {
                 .then();
     }
 
+    private String formatVia(RoutePath route) {
+        List<String> streets = route.streetNames(routingService.getGraph());
+        if (streets.isEmpty()) {
+            return "";
+        }
+        return "Via: " + String.join(" → ", streets.subList(0, Math.min(3, streets.size()))) + "\n";
+    }
+
+    private static String formatDuration(long millis) {
+        long minutes = Math.max(1, Math.round(millis / 60_000.0));
+        if (minutes < 60) {
+            return minutes + " minutes";
+        }
+        return (minutes / 60) + " h " + (minutes % 60) + " min";
+    }
+
+    /**
+     * Handle traffic info state: answer from the live traffic aggregates
+     */
     private Mono<Void> handleTrafficInfoState(String phoneNumber, String userInput) {
-        String trafficResponse = "🚦 Traffic Update\n\n" +
-                               "Current traffic conditions:\n" +
-                               "• Main routes: Light traffic\n" +
-                               "• Highway 101: Moderate delays\n" +
-                               "• Downtown area: Heavy traffic\n\n" +
-                               "Recommended: Use alternative routes";
-        
+        String input = userInput == null ? "" : userInput.trim().toLowerCase();
+        if (trafficAlertService.isAvailable()) {
+            switch (input) {
+                case "traffic_alerts":
+                    return showTrafficAlertOptions(phoneNumber);
+                case "alert_area":
+                    return subscribeAreaAlerts(phoneNumber);
+                case "alert_route":
+                case "alert_stop":
+                    return whatsAppService.sendTextMessage(phoneNumber, updateTrafficAlerts(phoneNumber, input))
+                            .then(showMainMenu(phoneNumber));
+                default:
+                    break;
+            }
+        }
+
+        String trafficResponse;
+        if (!trafficService.isAvailable()) {
+            trafficResponse = "🚦 Live traffic data is not available right now. Please try again later.";
+        } else if ("route_traffic".equalsIgnoreCase(userInput)) {
+            trafficResponse = buildRouteTrafficMessage(phoneNumber);
+        } else {
+            trafficResponse = buildCurrentTrafficMessage();
+        }
+
         return whatsAppService.sendTextMessage(phoneNumber, trafficResponse)
                 .then(showMainMenu(phoneNumber));
     }
 
+    private Mono<Void> showTrafficAlertOptions(String phoneNumber) {
+        String status = trafficAlertService.isSubscribed(phoneNumber)
+                ? "You are currently subscribed to traffic alerts."
+                : "You are not subscribed to traffic alerts yet.";
+        String message = "🔔 Traffic Alerts\n\n" +
+                        "Get a message when an incident or heavy traffic hits your area or your last planned route.\n\n" +
+                        status;
+
+        String[] buttonIds = {"alert_area", "alert_route", "alert_stop"};
+        String[] buttonTitles = {"Alert My Area", "Alert My Route", "Stop Alerts"};
+
+        return whatsAppService.sendButtonMessage(phoneNumber, message, buttonIds, buttonTitles)
+                .then();
+    }
+
+    /**
+     * Watch the traffic around the user's last shared location, or ask for one
+     */
+    private Mono<Void> subscribeAreaAlerts(String phoneNumber) {
+        Optional<PoiHit> location = locationSearchService.lastLocation(phoneNumber);
+        if (location.isEmpty()) {
+            sessionService.updateSessionState(phoneNumber, "TRAFFIC_ALERT_AREA");
+            return whatsAppService.sendButtonMessage(phoneNumber,
+                    "📍 Share your location (📎 → Location) and I'll watch the traffic around it.",
+                    new String[]{"main_menu"}, new String[]{"Main Menu"})
+                    .then();
+        }
+
+        String reply = trafficAlertService.subscribeArea(phoneNumber,
+                location.get().getLatitude(), location.get().getLongitude())
+                ? "🔔 Alerts on! I'll message you about incidents and heavy traffic near you."
+                : "Sorry, your area isn't covered by live traffic yet.";
+        return whatsAppService.sendTextMessage(phoneNumber, reply)
+                .then(showMainMenu(phoneNumber));
+    }
+
+    /**
+     * Handle text while waiting for the location to watch: anything but the menu asks again
+     */
+    private Mono<Void> handleTrafficAlertAreaState(String phoneNumber, String userInput) {
+        if ("main_menu".equalsIgnoreCase(userInput.trim())) {
+            return showMainMenu(phoneNumber);
+        }
+        return subscribeAreaAlerts(phoneNumber);
+    }
+
+    private String updateTrafficAlerts(String phoneNumber, String choice) {
+        switch (choice) {
+            case "alert_route":
+                Optional<PlannedRoute> planned = routingService.getLastRoute(phoneNumber);
+                if (planned.isEmpty()) {
+                    return "🗺️ Plan a route first (Navigation Help → Get Directions) and I'll watch the traffic along it.";
+                }
+                trafficAlertService.subscribeRoute(phoneNumber, planned.get());
+                return "🔔 Alerts on! I'll message you about incidents and heavy traffic on your route from " +
+                       planned.get().getFromName() + " to " + planned.get().getToName() + ".";
+            default:
+                trafficAlertService.unsubscribe(phoneNumber);
+                return "🔕 Traffic alerts are off. You can turn them back on from Traffic Info anytime.";
+        }
+    }
+
+    private String buildCurrentTrafficMessage() {
+        Optional<TrafficReading> nearby = trafficService.areaTraffic(
+                locationSearchService.getDefaultLatitude(), locationSearchService.getDefaultLongitude());
+        TrafficReading citywide = trafficService.citywideTraffic().orElseThrow();
+
+        StringBuilder message = new StringBuilder("🚦 Traffic Update\n\nCurrent traffic conditions:\n");
+        nearby.ifPresent(reading -> message.append("• Near you: ").append(describe(reading)).append("\n"));
+        message.append("• Citywide: ").append(describe(citywide)).append("\n");
+        if (nearby.isPresent() && nearby.get().getIncidents() > 0) {
+            message.append("• Incident reports nearby: ").append(nearby.get().getIncidents()).append("\n");
+        }
+        message.append("\n").append(describeFreshness(citywide.getSamples()));
+        return message.toString();
+    }
+
+    private String buildRouteTrafficMessage(String phoneNumber) {
+        Optional<PlannedRoute> planned = routingService.getLastRoute(phoneNumber);
+        if (planned.isEmpty()) {
+            return "🗺️ Plan a route first (Navigation Help → Get Directions) and I'll check the traffic along it.";
+        }
+
+        RouteTraffic traffic = trafficService.routeTraffic(planned.get().getPath()).orElseThrow();
+        StringBuilder message = new StringBuilder("🚦 Route Traffic\n\n")
+                .append("From: ").append(planned.get().getFromName()).append("\n")
+                .append("To: ").append(planned.get().getToName()).append("\n\n")
+                .append("Usual time: ").append(formatDuration(traffic.getFreeFlowMillis())).append("\n")
+                .append("With current traffic: ").append(formatDuration(traffic.getLiveMillis()));
+        if (traffic.getDelayMillis() >= 60_000) {
+            message.append(" (+").append(formatDuration(traffic.getDelayMillis())).append(")");
+        }
+        message.append("\n");
+        if (!traffic.getSlowestStreet().isEmpty()) {
+            message.append("Slowest: ").append(traffic.getSlowestStreet())
+                    .append(" at ").append(Math.round(traffic.getSlowestSpeedKmh())).append(" km/h\n");
+        }
+        if (traffic.getIncidents() > 0) {
+            message.append("Incident reports on route: ").append(traffic.getIncidents()).append("\n");
+        }
+        message.append("Live coverage: ").append(Math.round(traffic.getCoverage() * 100)).append("% of the route");
+        return message.toString();
+    }
+
+    private static String describe(TrafficReading reading) {
+        if (reading.getSamples() == 0) {
+            return reading.getLevel().getLabel();
+        }
+        return reading.getLevel().getLabel() + " (" + Math.round(reading.getSpeedRatio() * 100) + "% of normal speed)";
+    }
+
+    private String describeFreshness(int samples) {
+        long ageSeconds = trafficService.getStats().map(stats -> stats.getDataAgeMillis() / 1000).orElse(-1L);
+        if (samples == 0 || ageSeconds < 0) {
+            return "No live reports in the last few minutes.";
+        }
+        return "Based on " + samples + " live reports, last update " + ageSeconds + " s ago.";
+    }
+
     private Mono<Void> handleSettingsState(String phoneNumber, String userInput) {
         return showMainMenu(phoneNumber);
     }
 
     private Mono<Void> startRouteOptimization(String phoneNumber) {
-        return whatsAppService.sendTextMessage(phoneNumber, "🔄 Route optimization feature coming soon!")
-                .then(showMainMenu(phoneNumber));
+        sessionService.updateSessionState(phoneNumber, "ROUTE_OPTIMIZATION");
+
+        String optimizationMessage = "🔄 Route Optimization\n\n" +
+                                   "Send your stops in one message, one per line (or separated by ';'), " +
+                                   "starting point first. Up to " + routingService.getMaxOptimizedStops() +
+                                   " stops.\n" +
+                                   "Add a last line '" + ROUND_TRIP_MARKER + "' to finish where you started.\n\n" +
+                                   "Example:\ncurrent location\nTimes Square\nCentral Park\nBrooklyn Bridge";
+
+        return whatsAppService.sendTextMessage(phoneNumber, optimizationMessage)
+                .then();
+    }
+
+    /**
+     * Handle route optimization state: resolve the stops and reply with the best visiting order
+     */
+    private Mono<Void> handleRouteOptimizationState(String phoneNumber, String userInput) {
+        switch (userInput.toLowerCase()) {
+            case "main_menu":
+                return showMainMenu(phoneNumber);
+
+            case "optimize_route":
+                return startRouteOptimization(phoneNumber);
+
+            default:
+                break;
+        }
+
+        List<String> names = new ArrayList<>();
+        for (String name : STOP_SEPARATOR.split(userInput.trim())) {
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+        boolean roundTrip = !names.isEmpty() && names.get(names.size() - 1).equalsIgnoreCase(ROUND_TRIP_MARKER);
+        if (roundTrip) {
+            names.remove(names.size() - 1);
+        }
+        if (names.size() < 2 || names.size() > routingService.getMaxOptimizedStops()) {
+            return whatsAppService.sendTextMessage(phoneNumber,
+                    "🔄 Please send between 2 and " + routingService.getMaxOptimizedStops() +
+                    " stops, one per line, starting point first.")
+                    .then();
+        }
+
+        List<PoiHit> stops = new ArrayList<>();
+        for (String name : names) {
+            Optional<PoiHit> stop = locationSearchService.resolve(name);
+            if (stop.isEmpty()) {
+                return whatsAppService.sendTextMessage(phoneNumber,
+                        "📍 Sorry, I couldn't find '" + name + "'. Please try a more specific place name.")
+                        .then();
+            }
+            stops.add(stop.get());
+        }
+
+        Optional<Tour> tour = routingService.optimizeStops(stops, roundTrip);
+        if (tour.isEmpty() || !tour.get().isComplete()) {
+            return whatsAppService.sendTextMessage(phoneNumber,
+                    "🚧 Sorry, I couldn't find drivable routes between all of these stops.")
+                    .then();
+        }
+
+        StringBuilder message = new StringBuilder("🔄 Optimized Route\n\n");
+        int[] order = tour.get().getOrder();
+        for (int i = 0; i < order.length; i++) {
+            message.append(i + 1).append(". ").append(stops.get(order[i]).getName()).append("\n");
+        }
+        if (roundTrip) {
+            message.append(order.length + 1).append(". ").append(stops.get(0).getName()).append("\n");
+        }
+        message.append("\nTotal driving time: ").append(formatDuration(tour.get().getDurationMillis()));
+        long saved = tour.get().getGivenOrderMillis() - tour.get().getDurationMillis();
+        if (saved >= 60_000) {
+            message.append("\nSaves ").append(formatDuration(saved)).append(" over the order you sent");
+        }
+
+        String[] buttonIds = {"optimize_route", "main_menu"};
+        String[] buttonTitles = {"New Stop List", "Main Menu"};
+
+        return whatsAppService.sendButtonMessage(phoneNumber, message.toString(), buttonIds, buttonTitles)
+                .then();
     }
 
+    /**
+     * Offer diverse routes for the last planned trip as a list message
+     */
     private Mono<Void> showAlternativeRoutes(String phoneNumber) {
-        return whatsAppService.sendTextMessage(phoneNumber, "🛣️ Alternative routes feature coming soon!")
-                .then(showMainMenu(phoneNumber));
+        Optional<PlannedRoute> planned = routingService.getLastRoute(phoneNumber);
+        if (planned.isEmpty()) {
+            return startDirectionsFlow(phoneNumber);
+        }
+
+        sessionService.updateSessionState(phoneNumber, "ROUTE_PLANNING");
+        List<RoutePath> routes = routingService.alternatives(planned.get().getPath());
+        if (routes.size() < 2) {
+            return whatsAppService.sendTextMessage(phoneNumber,
+                    "🛣️ No reasonable alternative to this route right now - it's already your best option.")
+                    .then();
+        }
+        routingService.rememberAlternatives(phoneNumber, routes);
+
+        long fastest = routes.get(0).getDurationMillis();
+        String[] optionIds = new String[routes.size()];
+        String[] optionTitles = new String[routes.size()];
+        String[] optionDescriptions = new String[routes.size()];
+        for (int i = 0; i < routes.size(); i++) {
+            RoutePath route = routes.get(i);
+            optionIds[i] = "route_" + (i + 1);
+            optionTitles[i] = truncate("Route " + (i + 1) + " · " + formatDuration(route.getDurationMillis()), 24);
+            List<String> streets = route.streetNames(routingService.getGraph());
+            String via = streets.isEmpty() ? ""
+                    : "via " + String.join(", ", streets.subList(0, Math.min(2, streets.size()))) + " · ";
+            String delay = i == 0 ? " (fastest)" : " (+" + formatDuration(route.getDurationMillis() - fastest) + ")";
+            optionDescriptions[i] = truncate(via + GeoUtils.formatDistance(route.getLengthMeters()) + delay, 72);
+        }
+        String listMessage = "🛣️ Routes from " + planned.get().getFromName() + " to " + planned.get().getToName() +
+                            "\n\nPick the one you'd like to take.";
+
+        return whatsAppService.sendListMessage(phoneNumber, listMessage, "Choose Route",
+                                             "Available Routes", optionIds, optionTitles, optionDescriptions)
+                .then();
+    }
+
+    private Mono<Void> chooseAlternativeRoute(String phoneNumber, int index) {
+        Optional<PlannedRoute> planned = routingService.getLastRoute(phoneNumber);
+        Optional<RoutePath> route = routingService.getAlternative(phoneNumber, index);
+        if (planned.isEmpty() || route.isEmpty()) {
+            return showAlternativeRoutes(phoneNumber);
+        }
+
+        routingService.rememberRoute(phoneNumber,
+                new PlannedRoute(planned.get().getFromName(), planned.get().getToName(), route.get()));
+
+        String routeMessage = "🛣️ Route " + (index + 1) + " selected\n\n" +
+                            "From: " + planned.get().getFromName() + "\n" +
+                            "To: " + planned.get().getToName() + "\n\n" +
+                            "Estimated time: " + formatDuration(route.get().getDurationMillis()) + "\n" +
+                            "Distance: " + GeoUtils.formatDistance(route.get().getLengthMeters()) + "\n" +
+                            formatVia(route.get()) + "\n" +
+                            "Would you like to start navigation?";
+
+        String[] buttonIds = {"start_navigation", "main_menu"};
+        String[] buttonTitles = {"Start Navigation", "Main Menu"};
+
+        return whatsAppService.sendButtonMessage(phoneNumber, routeMessage, buttonIds, buttonTitles)
+                .then();
     }
 
+    /**
+     * Start live guidance along the last planned route; updates then arrive as live location messages
+     */
     private Mono<Void> startRealTimeNavigation(String phoneNumber) {
-        return whatsAppService.sendTextMessage(phoneNumber, "📱 Real-time navigation feature coming soon!")
-                .then(showMainMenu(phoneNumber));
+        Optional<PlannedRoute> planned = routingService.getLastRoute(phoneNumber);
+        if (planned.isEmpty()) {
+            return whatsAppService.sendTextMessage(phoneNumber, "📱 Plan a route first, then start navigation.")
+                    .then(startDirectionsFlow(phoneNumber));
+        }
+
+        Optional<NavigationUpdate> first = navigationService.start(phoneNumber, planned.get());
+        if (first.isEmpty()) {
+            return whatsAppService.sendTextMessage(phoneNumber,
+                    "📱 Live navigation is unavailable right now. Please try again in a few minutes.")
+                    .then(showMainMenu(phoneNumber));
+        }
+        sessionService.updateSessionState(phoneNumber, "NAVIGATING");
+
+        String navigationMessage = "📱 Navigating to " + planned.get().getToName() + "\n\n" +
+                                 navigationService.describe(first.get(), planned.get().getToName()) + "\n\n" +
+                                 "Share your live location (📎 → Location → Share live location) " +
+                                 "and I'll send the next instruction as you drive.";
+
+        String[] buttonIds = {"stop_navigation"};
+        String[] buttonTitles = {"Stop Navigation"};
+
+        return whatsAppService.sendButtonMessage(phoneNumber, navigationMessage, buttonIds, buttonTitles)
+                .then();
+    }
+
+    /**
+     * Handle navigating state: location updates bypass this; text either stops guidance or asks for status
+     */
+    private Mono<Void> handleNavigatingState(String phoneNumber, String userInput) {
+        String input = userInput.trim().toLowerCase();
+        if ("stop_navigation".equals(input) || "stop".equals(input) || "main_menu".equals(input)
+                || !navigationService.isNavigating(phoneNumber)) {
+            boolean stopped = navigationService.stop(phoneNumber);
+            Mono<Void> ended = stopped
+                    ? whatsAppService.sendTextMessage(phoneNumber, "🛑 Navigation ended.").then()
+                    : Mono.empty();
+            return ended.then(showMainMenu(phoneNumber));
+        }
+
+        return whatsAppService.sendButtonMessage(phoneNumber,
+                "📱 Navigation is running. Keep sharing your live location for turn-by-turn instructions.",
+                new String[]{"stop_navigation"}, new String[]{"Stop Navigation"})
+                .then();
     }
 }
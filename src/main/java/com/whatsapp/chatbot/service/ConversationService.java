@@ -0,0 +1,230 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.model.Conversation;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.ConversationRepository;
+import com.whatsapp.chatbot.repository.ConversationRepositoryCustom.MessageCounts;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service threading messages into conversations. Every message gets the
+ * conversation id of its user's current conversation when it is logged; a
+ * new conversation starts after an idle gap or once the session was reset
+ * or ended. Every conversation active within the idle gap is cached in
+ * memory, loaded once at startup, so assigning an id never touches the
+ * database.
+ *
+ * The summary row writes (insert when the conversation starts, final state,
+ * end) are queued in order and run by the message log writer's thread
+ * ahead of each batch, which then updates the counts with one batched
+ * statement, so neither the message path nor the session's transaction
+ * waits on them.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ConversationService {
+
+    private final ConversationRepository conversationRepository;
+    private final WhatsAppMessageRepository messageRepository;
+
+    @Value("${conversations.idle-gap-minutes:30}")
+    private long idleGapMinutes;
+
+    private final Map<String, Current> current = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Runnable> pendingWrites = new ConcurrentLinkedQueue<>();
+    private final LongAdder started = new LongAdder();
+    private Duration idleGap;
+    private ScheduledExecutorService sweeper;
+
+    @PostConstruct
+    public void initialize() {
+        idleGap = Duration.ofMinutes(idleGapMinutes);
+        loadRecent();
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "conversation-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, idleGapMinutes, idleGapMinutes, TimeUnit.MINUTES);
+        log.info("Conversations split after {} idle minutes", idleGapMinutes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    /**
+     * Set the message's conversation id, starting a new conversation if needed
+     */
+    public void assign(WhatsAppMessage message) {
+        String phoneNumber = counterpart(message);
+        LocalDateTime at = message.getTimestamp() != null ? message.getTimestamp() : LocalDateTime.now();
+        Current conversation = current.compute(phoneNumber, (key, existing) -> {
+            if (existing == null || existing.ended || Duration.between(existing.lastMessageAt, at).compareTo(idleGap) > 0) {
+                Current created = new Current(UUID.randomUUID().toString(), at, false, null);
+                // Queued inside the compute, so it goes ahead of any other write for the new conversation
+                Conversation row = new Conversation(created.id, phoneNumber, at, at, null, 0, 0, 0, null);
+                pendingWrites.add(() -> conversationRepository.insert(row));
+                started.increment();
+                return created;
+            }
+            if (at.isAfter(existing.lastMessageAt)) {
+                existing.lastMessageAt = at;
+            }
+            return existing;
+        });
+        message.setConversationId(conversation.id);
+    }
+
+    /**
+     * Add written messages to their conversations' summaries, one update per
+     * conversation, after the queued writes that start those conversations
+     */
+    public void messagesWritten(List<WhatsAppMessage> messages) {
+        writePending();
+        Map<String, MessageCounts> counts = new LinkedHashMap<>();
+        for (WhatsAppMessage message : messages) {
+            if (message.getConversationId() != null && message.getTimestamp() != null) {
+                counts.computeIfAbsent(message.getConversationId(), MessageCounts::new)
+                        .add("OUTBOUND".equals(message.getDirection()), message.getTimestamp());
+            }
+        }
+        try {
+            conversationRepository.addMessagesAll(new ArrayList<>(counts.values()));
+        } catch (RuntimeException e) {
+            log.error("Could not update {} conversation summaries: {}", counts.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Record the state a user's current conversation has reached
+     */
+    public void stateChanged(String phoneNumber, String state) {
+        Current conversation = current.get(phoneNumber);
+        if (conversation == null || conversation.ended || state == null || state.equals(conversation.finalState)) {
+            return;
+        }
+        conversation.finalState = state;
+        pendingWrites.add(() -> conversationRepository.updateFinalState(conversation.id, state));
+    }
+
+    /**
+     * End a user's current conversation; their next message starts a new one
+     */
+    public void endConversation(String phoneNumber) {
+        Current conversation = current.computeIfPresent(phoneNumber, (key, existing) -> {
+            existing.ended = true;
+            return existing;
+        });
+        LocalDateTime endedAt = LocalDateTime.now();
+        pendingWrites.add(() -> {
+            String id = conversation != null ? conversation.id
+                    : conversationRepository.findFirstByPhoneNumberOrderByStartedAtDesc(phoneNumber)
+                            .map(Conversation::getId).orElse(null);
+            if (id != null) {
+                conversationRepository.end(id, endedAt);
+            }
+        });
+    }
+
+    /**
+     * Run the queued summary writes in order; called from the message log writer's thread
+     */
+    public synchronized void writePending() {
+        Runnable write;
+        while ((write = pendingWrites.poll()) != null) {
+            try {
+                write.run();
+            } catch (RuntimeException e) {
+                log.error("Could not write conversation summary: {}", e.getMessage());
+            }
+        }
+    }
+
+    public long getStarted() {
+        return started.sum();
+    }
+
+    public int getCached() {
+        return current.size();
+    }
+
+    public int getPendingWrites() {
+        return pendingWrites.size();
+    }
+
+    /**
+     * Cache the conversations that had a message within the idle gap, so
+     * they continue across a restart; each user keeps their latest one
+     */
+    void loadRecent() {
+        try {
+            List<String> ids = messageRepository.findConversationIdsSince(LocalDateTime.now().minus(idleGap));
+            for (Conversation c : conversationRepository.findAllById(ids)) {
+                Current loaded = new Current(c.getId(), c.getLastMessageAt(), c.getEndedAt() != null,
+                        c.getFinalState());
+                current.merge(c.getPhoneNumber(), loaded,
+                        (existing, candidate) -> candidate.lastMessageAt.isAfter(existing.lastMessageAt)
+                                ? candidate : existing);
+            }
+            log.info("Loaded {} recent conversations", ids.size());
+        } catch (RuntimeException e) {
+            log.warn("Could not load recent conversations, the next message of each user starts a new one: {}",
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Drop conversations idle past the gap; their next message starts a new one anyway
+     */
+    private void sweep() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(idleGap);
+        current.values().removeIf(conversation -> conversation.lastMessageAt.isBefore(cutoff));
+    }
+
+    private static String counterpart(WhatsAppMessage message) {
+        return "OUTBOUND".equals(message.getDirection()) ? message.getToNumber() : message.getFromNumber();
+    }
+
+    /**
+     * A user's current conversation; fields change only inside the map's compute
+     * for its key, except the final state, which the session's own writes update
+     */
+    private static final class Current {
+        final String id;
+        volatile LocalDateTime lastMessageAt;
+        volatile boolean ended;
+        volatile String finalState;
+
+        Current(String id, LocalDateTime lastMessageAt, boolean ended, String finalState) {
+            this.id = id;
+            this.lastMessageAt = lastMessageAt;
+            this.ended = ended;
+            this.finalState = finalState;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.whatsapp.chatbot.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.whatsapp.chatbot.feed.FeedEvent;
+import com.whatsapp.chatbot.feed.FeedHub;
+import com.whatsapp.chatbot.feed.FeedSink;
+import com.whatsapp.chatbot.feed.FeedStats;
+import com.whatsapp.chatbot.model.UserSession;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service pushing live dashboard updates over server-sent events, instead
+ * of dashboards polling stats, sessions and messages.
+ *
+ * Message, status and session deltas come from the read model's projector
+ * as it applies them, so the feed agrees with the management API; stats
+ * deltas (only the counters that changed) come from a periodic tick over
+ * the in-memory counters. Each event is serialized once and shared by
+ * every dashboard through one {@link FeedHub}, so fifty dashboards cost
+ * fifty buffer appends and socket writes per event, not fifty queries.
+ * A send blocks while its dashboard reads slowly, so there is a delivery
+ * thread for every dashboard that may connect, started on demand: a
+ * stalled dashboard holds only its own thread, never another's events.
+ *
+ * Events: "snapshot" (stats and the latest active sessions, on connect and
+ * after the dashboard lost events), "stats", "message", "status",
+ * "session" and "ping".
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class DashboardFeedService implements ReadModelService.ChangeListener {
+
+    private final ReadModelService readModelService;
+    private final StatisticsService statisticsService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${dashboard.feed.max-clients:100}")
+    private int maxClients;
+
+    @Value("${dashboard.feed.buffer-size:1000}")
+    private int bufferSize;
+
+    @Value("${dashboard.feed.stats-interval-millis:1000}")
+    private long statsIntervalMillis;
+
+    @Value("${dashboard.feed.heartbeat-seconds:15}")
+    private long heartbeatSeconds;
+
+    @Value("${dashboard.feed.timeout-millis:1800000}")
+    private long timeoutMillis;
+
+    @Value("${dashboard.feed.snapshot-sessions:100}")
+    private int snapshotSessions;
+
+    private FeedHub hub;
+    private ExecutorService delivery;
+    private ScheduledExecutorService ticker;
+
+    /** Last stats sent, touched by the ticker thread only */
+    private Map<String, Object> lastStats = Map.of();
+
+    /** Bumped on every change the snapshot covers, so one snapshot serves all clients until the next */
+    private final AtomicLong version = new AtomicLong();
+    private volatile CachedSnapshot cachedSnapshot;
+
+    @PostConstruct
+    public void initialize() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Each client is drained by at most one task at a time, so tasks never queue behind a blocked send
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxClients, maxClients, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "dashboard-feed-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        delivery = pool;
+        hub = new FeedHub(maxClients, bufferSize, delivery, this::snapshot);
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-feed-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::publishStats, statsIntervalMillis, statsIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        ticker.scheduleWithFixedDelay(() -> publish("ping", null, Map.of()), heartbeatSeconds, heartbeatSeconds,
+                TimeUnit.SECONDS);
+        readModelService.setChangeListener(this);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        readModelService.setChangeListener(null);
+        ticker.shutdownNow();
+        hub.close();
+        delivery.shutdownNow();
+    }
+
+    /**
+     * Open a feed for one dashboard
+     *
+     * @param phoneNumber only message events for this number; null for every number
+     * @throws IllegalStateException if the feed already has its maximum of dashboards
+     */
+    public SseEmitter subscribe(String phoneNumber) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Runnable unsubscribe = hub.subscribe(new FeedSink() {
+            @Override
+            public void send(FeedEvent event) throws IOException {
+                emitter.send(SseEmitter.event().name(event.getName()).data(event.getData()));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        }, phoneNumber == null || phoneNumber.isBlank() ? null : phoneNumber);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+        return emitter;
+    }
+
+    public FeedStats getStats() {
+        return hub.stats();
+    }
+
+    @Override
+    public void messagesAdded(List<WhatsAppMessage> messages) {
+        if (!hub.hasClients()) {
+            return;
+        }
+        for (WhatsAppMessage message : messages) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("id", message.getMessageId());
+            data.put("phoneNumber", userNumber(message));
+            data.put("direction", message.getDirection());
+            data.put("messageType", message.getMessageType());
+            data.put("messageText", message.getMessageText());
+            data.put("status", message.getStatus());
+            data.put("timestamp", message.getTimestamp());
+            publish("message", userNumber(message), data);
+        }
+    }
+
+    @Override
+    public void messageStatusChanged(WhatsAppMessage message) {
+        if (!hub.hasClients()) {
+            return;
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("id", message.getMessageId());
+        data.put("phoneNumber", userNumber(message));
+        data.put("status", message.getStatus());
+        publish("status", userNumber(message), data);
+    }
+
+    @Override
+    public void sessionChanged(UserSession session) {
+        version.incrementAndGet();
+        if (hub.hasClients()) {
+            publish("session", null, session(session));
+        }
+    }
+
+    @Override
+    public void rebuilt() {
+        version.incrementAndGet();
+        hub.resyncAll();
+    }
+
+    /**
+     * Publish the counters that changed since the last tick. Ticks run
+     * without clients too, so a new client's first delta follows its snapshot.
+     */
+    private void publishStats() {
+        try {
+            Map<String, Object> stats = statisticsService.snapshot();
+            Map<String, Object> changed = new LinkedHashMap<>();
+            stats.forEach((key, value) -> {
+                if (!Objects.equals(lastStats.get(key), value)) {
+                    changed.put(key, value);
+                }
+            });
+            lastStats = stats;
+            if (!changed.isEmpty()) {
+                version.incrementAndGet();
+                publish("stats", null, changed);
+            }
+        } catch (RuntimeException e) {
+            log.error("Dashboard feed stats tick failed: {}", e.getMessage());
+        }
+    }
+
+    private void publish(String name, String phoneNumber, Object data) {
+        hub.publish(new FeedEvent(name, phoneNumber, json(data)));
+    }
+
+    /**
+     * Current stats and the latest active sessions, shared by every client until something changes
+     */
+    private List<FeedEvent> snapshot() {
+        long current = version.get();
+        CachedSnapshot cached = cachedSnapshot;
+        if (cached != null && cached.version == current) {
+            return cached.events;
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("stats", statisticsService.snapshot());
+        data.put("sessions", readModelService.getActiveSessions().stream()
+                .limit(snapshotSessions)
+                .map(DashboardFeedService::session)
+                .toList());
+        List<FeedEvent> events = List.of(new FeedEvent("snapshot", null, json(data)));
+        cachedSnapshot = new CachedSnapshot(current, events);
+        return events;
+    }
+
+    private String json(Object data) {
+        try {
+            return objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Dashboard event is not serializable: " + e.getMessage(), e);
+        }
+    }
+
+    private static Map<String, Object> session(UserSession session) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("phoneNumber", session.getPhoneNumber());
+        data.put("currentState", session.getCurrentState());
+        data.put("sessionActive", session.getSessionActive());
+        data.put("updatedAt", session.getUpdatedAt());
+        return data;
+    }
+
+    /**
+     * The user's side of a message: the sender of an inbound one, the recipient of an outbound one
+     */
+    private static String userNumber(WhatsAppMessage message) {
+        return "OUTBOUND".equals(message.getDirection()) ? message.getToNumber() : message.getFromNumber();
+    }
+
+    private static final class CachedSnapshot {
+        final long version;
+        final List<FeedEvent> events;
+
+        CachedSnapshot(long version, List<FeedEvent> events) {
+            this.version = version;
+            this.events = events;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.export.CountingOutputStream;
+import com.whatsapp.chatbot.export.ExportFormat;
+import com.whatsapp.chatbot.export.ExportStats;
+import com.whatsapp.chatbot.export.RowWriter;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service for streaming exports of the message log and user sessions.
+ *
+ * Rows are read through a forward-only JDBC cursor with a bounded fetch size
+ * and written straight to the output as they arrive, so memory use does not
+ * depend on how many rows are exported. No entities are created and no count
+ * query is run. Message exports also cover messages moved to the archive,
+ * streamed from the archive segments through the same writer.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ExportService {
+
+    private static final String MESSAGE_COLUMNS = "id, message_id, from_number, to_number, message_text, " +
+            "message_type, timestamp, status, direction, conversation_id";
+
+    private static final String SESSION_COLUMNS = "id, phone_number, current_state, navigation_path, " +
+            "user_preferences, created_at, updated_at, session_active";
+
+    private final DataSource dataSource;
+    private final ArchiveService archiveService;
+
+    @Value("${export.fetch-size:1000}")
+    private int fetchSize;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private final LongAdder exports = new LongAdder();
+    private final LongAdder exportedRows = new LongAdder();
+    private final LongAdder exportedBytes = new LongAdder();
+    private final AtomicReference<ExportStats> last = new AtomicReference<>();
+
+    @PostConstruct
+    public void initialize() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Stream messages, optionally limited to a time range [from, to) and a
+     * direction: archived messages first, oldest first, then those still in
+     * the database in id order
+     */
+    public ExportStats exportMessages(OutputStream out, ExportFormat format, boolean gzip,
+                                      LocalDateTime from, LocalDateTime to, String direction) throws IOException {
+        StringBuilder sql = new StringBuilder("SELECT ").append(MESSAGE_COLUMNS).append(" FROM whatsapp_messages");
+        List<Object> args = new ArrayList<>();
+        String separator = " WHERE ";
+        if (from != null) {
+            sql.append(separator).append("timestamp >= ?");
+            args.add(Timestamp.valueOf(from));
+            separator = " AND ";
+        }
+        if (to != null) {
+            sql.append(separator).append("timestamp < ?");
+            args.add(Timestamp.valueOf(to));
+            separator = " AND ";
+        }
+        String wanted = direction == null || direction.isEmpty() ? null : direction.toUpperCase();
+        if (wanted != null) {
+            sql.append(separator).append("direction = ?");
+            args.add(wanted);
+        }
+        sql.append(" ORDER BY id");
+        RowSource archived = writer -> {
+            long[] written = new long[1];
+            archiveService.replayBetween(from, to, messages -> {
+                for (WhatsAppMessage message : messages) {
+                    if (wanted != null && !wanted.equals(message.getDirection())) {
+                        continue;
+                    }
+                    try {
+                        writer.write(row(message));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    written[0]++;
+                }
+            });
+            return written[0];
+        };
+        return export("messages", MESSAGE_COLUMNS, sql.toString(), args.toArray(), archived, out, format, gzip);
+    }
+
+    /**
+     * Stream all user sessions in id order
+     */
+    public ExportStats exportSessions(OutputStream out, ExportFormat format, boolean gzip) throws IOException {
+        return export("sessions", SESSION_COLUMNS, "SELECT " + SESSION_COLUMNS + " FROM user_sessions ORDER BY id",
+                new Object[0], writer -> 0, out, format, gzip);
+    }
+
+    public ExportStats getLastExport() {
+        return last.get();
+    }
+
+    public long getExports() {
+        return exports.sum();
+    }
+
+    public long getExportedRows() {
+        return exportedRows.sum();
+    }
+
+    public long getExportedBytes() {
+        return exportedBytes.sum();
+    }
+
+    private ExportStats export(String dataset, String columns, String sql, Object[] args, RowSource before,
+                               OutputStream out, ExportFormat format, boolean gzip) throws IOException {
+        long start = System.nanoTime();
+        CountingOutputStream counted = new CountingOutputStream(out);
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(counted, 64 * 1024) : null;
+        OutputStream target = gzip ? compressed : counted;
+
+        long[] rows = new long[1];
+        long archivedRows = 0;
+        boolean completed = false;
+        ExportStats stats = null;
+        try {
+            RowWriter writer = format.open(target, columns.split(", "));
+            archivedRows = before.writeTo(writer);
+            rows[0] = archivedRows;
+            jdbcTemplate.query(sql, (ResultSet rs) -> {
+                ResultSetMetaData meta = rs.getMetaData();
+                int count = meta.getColumnCount();
+                int[] types = new int[count];
+                for (int i = 0; i < count; i++) {
+                    types[i] = meta.getColumnType(i + 1);
+                }
+                Object[] values = new Object[count];
+                while (rs.next()) {
+                    for (int i = 0; i < count; i++) {
+                        values[i] = value(rs, i + 1, types[i]);
+                    }
+                    try {
+                        writer.write(values);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    rows[0]++;
+                }
+                return null;
+            }, args);
+            writer.close();
+            if (compressed != null) {
+                compressed.finish();
+            }
+            out.flush();
+            completed = true;
+        } catch (UncheckedIOException e) {
+            // Usually the client went away mid-download
+            throw e.getCause();
+        } finally {
+            stats = new ExportStats(dataset, format, gzip, rows[0], archivedRows, counted.getCount(),
+                    (System.nanoTime() - start) / 1_000_000, completed);
+            exports.increment();
+            exportedRows.add(stats.getRows());
+            exportedBytes.add(stats.getBytes());
+            last.set(stats);
+            log.info("Export of {} as {}{}: {} rows ({} archived), {} bytes in {} ms ({} rows/s, {} bytes/s){}",
+                    dataset, format, gzip ? "+gzip" : "", stats.getRows(), stats.getArchivedRows(), stats.getBytes(),
+                    stats.getMillis(),
+                    Math.round(stats.getRowsPerSecond()), Math.round(stats.getBytesPerSecond()),
+                    completed ? "" : ", aborted");
+        }
+        return stats;
+    }
+
+    /**
+     * An archived message as a row of MESSAGE_COLUMNS, valued as the database rows are
+     */
+    private static Object[] row(WhatsAppMessage message) {
+        return new Object[] {message.getId(), message.getMessageId(), message.getFromNumber(),
+                message.getToNumber(), message.getMessageText(), message.getMessageType(),
+                message.getTimestamp() == null ? null : message.getTimestamp().toString(), message.getStatus(),
+                message.getDirection(), message.getConversationId()};
+    }
+
+    private static Object value(ResultSet rs, int column, int type) throws SQLException {
+        switch (type) {
+            case Types.BIGINT:
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT: {
+                long value = rs.getLong(column);
+                return rs.wasNull() ? null : value;
+            }
+            case Types.BOOLEAN:
+            case Types.BIT: {
+                boolean value = rs.getBoolean(column);
+                return rs.wasNull() ? null : value;
+            }
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE: {
+                Timestamp value = rs.getTimestamp(column);
+                return value == null ? null : value.toLocalDateTime().toString();
+            }
+            default:
+                return rs.getString(column);
+        }
+    }
+
+    /**
+     * Rows written ahead of the query's
+     */
+    private interface RowSource {
+        long writeTo(RowWriter writer) throws IOException;
+    }
+}
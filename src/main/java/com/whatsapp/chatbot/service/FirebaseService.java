@@ -1,33 +1,170 @@
 package com.whatsapp.chatbot.service;
 
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.rpc.ApiException;
+import com.google.cloud.BaseServiceException;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.FirestoreOptions;
+import com.google.cloud.firestore.WriteBatch;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.whatsapp.chatbot.analytics.AnalyticsEvent;
+import com.whatsapp.chatbot.analytics.AnalyticsPipeline;
+import com.whatsapp.chatbot.analytics.AnalyticsSink;
+import com.whatsapp.chatbot.analytics.AnalyticsSinkType;
+import com.whatsapp.chatbot.analytics.AnalyticsStats;
+import com.whatsapp.chatbot.analytics.FirestoreAnalyticsSink;
+import com.whatsapp.chatbot.analytics.NdjsonAnalyticsSink;
+import com.whatsapp.chatbot.analytics.NoopAnalyticsSink;
+import com.whatsapp.chatbot.config.DurableDirectories;
+import com.whatsapp.chatbot.dto.UserPreferences;
+import com.whatsapp.chatbot.firestore.FirestoreBatchWriter;
+import com.whatsapp.chatbot.firestore.FirestoreWrite;
+import com.whatsapp.chatbot.firestore.FirestoreWriterStats;
+import com.whatsapp.chatbot.spool.SpoolLog;
+import com.whatsapp.chatbot.spool.SpoolOverflow;
+import com.whatsapp.chatbot.spool.SpoolShipper;
+import com.whatsapp.chatbot.spool.SpoolSink;
+import com.whatsapp.chatbot.spool.SpoolStats;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
- * Service for Firebase Firestore operations
+ * Service for Firebase Firestore operations. Callers (including the
+ * webhook request thread) never wait on Firestore: writes are appended to a
+ * local spool on disk and shipped in batches by a background thread,
+ * which keeps retrying while Firestore is slow, down or not yet connected
+ * and resumes from its checkpoint after a restart. With the spool
+ * disabled, writes go through a bounded in-memory queue instead and are
+ * dropped when it is full.
+ *
+ * Interactions, navigation requests and analytics events are not written
+ * one document each: they go through an analytics pipeline that counts
+ * them per minute and keeps a sample, and writes that to the configured
+ * sink (Firestore, local NDJSON files or nowhere).
  */
 @Service
 @Slf4j
 public class FirebaseService {
 
+    private static final ObjectMapper SPOOL_JSON = new ObjectMapper()
+            .enable(DeserializationFeature.USE_LONG_FOR_INTS);
+
     @Value("${firebase.config.path}")
     private String firebaseConfigPath;
 
     @Value("${firebase.database.url}")
     private String firebaseDatabaseUrl;
 
-    private Firestore firestore;
+    @Value("${firebase.writer.queue-capacity:50000}")
+    private int writerQueueCapacity;
+
+    @Value("${firebase.writer.batch-size:500}")
+    private int writerBatchSize;
+
+    @Value("${firebase.writer.flush-interval-millis:500}")
+    private long writerFlushIntervalMillis;
+
+    @Value("${firebase.writer.max-in-flight-batches:4}")
+    private int writerMaxInFlightBatches;
+
+    @Value("${firebase.writer.max-attempts:5}")
+    private int writerMaxAttempts;
+
+    @Value("${firebase.writer.initial-backoff-millis:200}")
+    private long writerInitialBackoffMillis;
+
+    @Value("${firebase.writer.max-backoff-millis:10000}")
+    private long writerMaxBackoffMillis;
+
+    @Value("${firebase.writer.shutdown-timeout-seconds:10}")
+    private long writerShutdownTimeoutSeconds;
+
+    @Value("${firebase.spool.enabled:true}")
+    private boolean spoolEnabled;
+
+    @Value("${firebase.spool.directory:}")
+    private String spoolDirectory;
+
+    @Value("${storage.allow-temp-directories:false}")
+    private boolean allowTempDirectories;
+
+    @Value("${firebase.spool.segment-bytes:67108864}")
+    private int spoolSegmentBytes;
+
+    @Value("${firebase.spool.max-bytes:1073741824}")
+    private long spoolMaxBytes;
+
+    @Value("${firebase.spool.overflow:DROP_OLDEST}")
+    private SpoolOverflow spoolOverflow;
+
+    @Value("${firebase.spool.sync-interval-millis:1000}")
+    private long spoolSyncIntervalMillis;
+
+    @Value("${firebase.spool.poll-interval-millis:100}")
+    private long spoolPollIntervalMillis;
+
+    @Value("${firebase.spool.max-attempts:5}")
+    private int spoolMaxAttempts;
+
+    @Value("${analytics.sink:FIRESTORE}")
+    private AnalyticsSinkType analyticsSinkType;
+
+    @Value("${analytics.sample-rate:0.01}")
+    private double analyticsSampleRate;
+
+    @Value("${analytics.flush-interval-seconds:10}")
+    private long analyticsFlushIntervalSeconds;
+
+    @Value("${analytics.late-grace-seconds:5}")
+    private long analyticsLateGraceSeconds;
+
+    @Value("${analytics.max-kinds-per-minute:1000}")
+    private int analyticsMaxKindsPerMinute;
+
+    @Value("${analytics.max-sampled-per-flush:10000}")
+    private int analyticsMaxSampledPerFlush;
+
+    @Value("${analytics.late-window-minutes:60}")
+    private long analyticsLateWindowMinutes;
+
+    @Value("${analytics.directory:}")
+    private String analyticsDirectory;
+
+    private volatile Firestore firestore;
+    private FirestoreBatchWriter writer;
+    private Thread writerThread;
+    private SpoolLog spool;
+    private SpoolShipper shipper;
+    private Thread shipperThread;
+    private ScheduledExecutorService spoolSync;
+    private AnalyticsPipeline analytics;
+    private ScheduledExecutorService analyticsFlusher;
 
     @PostConstruct
     public void initialize() {
@@ -37,6 +174,180 @@ public class FirebaseService {
         } catch (Exception e) {
             log.warn("Firebase initialization failed: {}. Running without Firebase integration.", e.getMessage());
         }
+        if (!(spoolEnabled && openSpool()) && firestore != null) {
+            startWriter();
+        }
+        openAnalytics();
+    }
+
+    private void startWriter() {
+        writer = new FirestoreBatchWriter(this::commit, writerQueueCapacity, writerBatchSize,
+                Duration.ofMillis(writerFlushIntervalMillis), writerMaxInFlightBatches, writerMaxAttempts,
+                Duration.ofMillis(writerInitialBackoffMillis), Duration.ofMillis(writerMaxBackoffMillis));
+        writerThread = new Thread(writer, "firestore-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Commit what is queued before the application stops, within the shutdown timeout
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (analytics != null) {
+            closeAnalytics();
+        }
+        if (spool != null) {
+            closeSpool();
+        }
+        if (writer == null) {
+            return;
+        }
+        writer.close();
+        try {
+            Duration timeout = Duration.ofSeconds(writerShutdownTimeoutSeconds);
+            writerThread.join(timeout.toMillis());
+            if (!writer.awaitIdle(timeout)) {
+                log.warn("Firestore batches still in flight at shutdown: {}", writer.stats());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Start the analytics pipeline and its flushes into the configured sink
+     */
+    private void openAnalytics() {
+        if (analyticsSinkType == AnalyticsSinkType.NDJSON) {
+            // The files are the only copy of the events
+            Optional<String> problem = DurableDirectories.problem(analyticsDirectory, allowTempDirectories);
+            if (problem.isPresent()) {
+                log.warn("Analytics not recorded: {}. Set analytics.directory to durable storage for the NDJSON "
+                        + "sink.", problem.get());
+                return;
+            }
+        }
+        AnalyticsSink sink;
+        try {
+            sink = switch (analyticsSinkType) {
+                case FIRESTORE -> isAcceptingWrites() ? new FirestoreAnalyticsSink(this::queue) : null;
+                case NDJSON -> new NdjsonAnalyticsSink(Path.of(analyticsDirectory), Clock.systemUTC());
+                case NONE -> new NoopAnalyticsSink();
+            };
+        } catch (IOException e) {
+            log.error("Could not open analytics sink {}, analytics not recorded: {}", analyticsSinkType,
+                    e.getMessage());
+            return;
+        }
+        if (sink == null) {
+            log.info("Analytics not recorded: the Firestore sink has no Firestore write path");
+            return;
+        }
+        analytics = new AnalyticsPipeline(analyticsSinkType, sink, analyticsSampleRate, analyticsMaxSampledPerFlush,
+                analyticsMaxKindsPerMinute, Duration.ofSeconds(analyticsLateGraceSeconds).toMillis(),
+                Duration.ofMinutes(analyticsLateWindowMinutes).toMillis());
+        analyticsFlusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "analytics-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        analyticsFlusher.scheduleWithFixedDelay(() -> analytics.flush(System.currentTimeMillis(), false),
+                analyticsFlushIntervalSeconds, analyticsFlushIntervalSeconds, TimeUnit.SECONDS);
+        log.info("Analytics to {}: per-minute counters, {} of raw events sampled", analyticsSinkType,
+                analyticsSampleRate);
+    }
+
+    /**
+     * Flush every open minute and the sample, ahead of the write path closing
+     */
+    private void closeAnalytics() {
+        analyticsFlusher.shutdown();
+        try {
+            analyticsFlusher.awaitTermination(writerShutdownTimeoutSeconds, TimeUnit.SECONDS);
+            analytics.close();
+        } catch (IOException e) {
+            log.warn("Could not close analytics sink: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Open the spool and start shipping it; false if it cannot be opened, e.g. another instance holds it,
+     * or its directory is not durable storage
+     */
+    private boolean openSpool() {
+        Optional<String> problem = DurableDirectories.problem(spoolDirectory, allowTempDirectories);
+        if (problem.isPresent()) {
+            log.warn("Firestore spool disabled: {}. Set firebase.spool.directory to durable storage to keep "
+                    + "writes across outages and restarts.", problem.get());
+            return false;
+        }
+        try {
+            Path directory = Path.of(spoolDirectory);
+            SpoolLog opened = SpoolLog.open(directory, spoolSegmentBytes, spoolMaxBytes, spoolOverflow);
+            try {
+                SpoolSink sink = new SpoolSink() {
+                    @Override
+                    public CompletableFuture<?> ship(List<byte[]> records) {
+                        return FirebaseService.this.ship(records);
+                    }
+
+                    @Override
+                    public boolean isRetryable(Throwable error) {
+                        return FirebaseService.isRetryable(error);
+                    }
+                };
+                shipper = new SpoolShipper(opened, sink, directory.resolve("shipped.checkpoint"),
+                        directory.resolve("dead-letter.jsonl"), writerBatchSize, spoolMaxAttempts,
+                        Duration.ofMillis(spoolPollIntervalMillis), Duration.ofMillis(writerInitialBackoffMillis),
+                        Duration.ofMillis(writerMaxBackoffMillis));
+            } catch (IOException | RuntimeException e) {
+                opened.close();
+                throw e;
+            }
+            spool = opened;
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not open Firestore spool at {}, writes are not spooled: {}", spoolDirectory,
+                    e.getMessage());
+            return false;
+        }
+        shipperThread = new Thread(shipper, "firestore-spool-shipper");
+        shipperThread.setDaemon(true);
+        shipperThread.start();
+        if (spoolSyncIntervalMillis > 0) {
+            spoolSync = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "firestore-spool-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            spoolSync.scheduleWithFixedDelay(spool::force, spoolSyncIntervalMillis, spoolSyncIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+        log.info("Firestore spool ready at {}: {} segments, {} bytes to ship", spoolDirectory,
+                spool.getSegmentCount(), shipper.stats().getBacklogBytes());
+        return true;
+    }
+
+    /**
+     * Stop shipping after the batch in flight; what is left ships after the next start
+     */
+    private void closeSpool() {
+        shipper.close();
+        if (spoolSync != null) {
+            spoolSync.shutdownNow();
+        }
+        try {
+            shipperThread.join(Duration.ofSeconds(writerShutdownTimeoutSeconds).toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            spool.close();
+        } catch (IOException e) {
+            log.warn("Could not close Firestore spool: {}", e.getMessage());
+        }
     }
 
     /**
@@ -54,134 +365,110 @@ public class FirebaseService {
     }
 
     /**
-     * Save user interaction data to Firestore
+     * Record a user interaction for analytics
      */
     public void saveUserInteraction(String phoneNumber, String messageText, String messageType, String timestamp) {
-        if (firestore == null) {
-            log.debug("Firestore not initialized, skipping save operation");
+        if (analytics == null) {
+            log.debug("Analytics not recorded, skipping save operation");
             return;
         }
 
-        try {
-            Map<String, Object> data = new HashMap<>();
-            data.put("phoneNumber", phoneNumber);
-            data.put("messageText", messageText);
-            data.put("messageType", messageType);
-            data.put("timestamp", timestamp);
-            data.put("platform", "whatsapp");
-
-            firestore.collection("user_interactions")
-                    .add(data)
-                    .get();
+        Map<String, Object> data = new HashMap<>();
+        data.put("phoneNumber", phoneNumber);
+        data.put("messageText", messageText);
+        data.put("messageType", messageType);
+        data.put("timestamp", timestamp);
+        data.put("platform", "whatsapp");
 
-            log.debug("Saved user interaction to Firestore");
-        } catch (InterruptedException | ExecutionException e) {
-            log.error("Failed to save user interaction to Firestore: {}", e.getMessage());
-        }
+        analytics.record(new AnalyticsEvent("user_interactions", messageType, System.currentTimeMillis(), data));
     }
 
     /**
-     * Save navigation request to Firestore
+     * Record a navigation request for analytics
      */
     public void saveNavigationRequest(String phoneNumber, String fromLocation, String toLocation, String requestType) {
-        if (firestore == null) {
-            log.debug("Firestore not initialized, skipping save operation");
+        if (analytics == null) {
+            log.debug("Analytics not recorded, skipping save operation");
             return;
         }
 
-        try {
-            Map<String, Object> data = new HashMap<>();
-            data.put("phoneNumber", phoneNumber);
-            data.put("fromLocation", fromLocation);
-            data.put("toLocation", toLocation);
-            data.put("requestType", requestType);
-            data.put("timestamp", System.currentTimeMillis());
-
-            firestore.collection("navigation_requests")
-                    .add(data)
-                    .get();
+        Map<String, Object> data = new HashMap<>();
+        data.put("phoneNumber", phoneNumber);
+        data.put("fromLocation", fromLocation);
+        data.put("toLocation", toLocation);
+        data.put("requestType", requestType);
+        data.put("timestamp", System.currentTimeMillis());
 
-            log.debug("Saved navigation request to Firestore");
-        } catch (InterruptedException | ExecutionException e) {
-            log.error("Failed to save navigation request to Firestore: {}", e.getMessage());
-        }
+        analytics.record(new AnalyticsEvent("navigation_requests", requestType, System.currentTimeMillis(), data));
     }
 
     /**
-     * Save user preferences to Firestore
+     * Queue user preferences for Firestore, replacing the stored ones. Use
+     * PreferenceService, which keeps its cache and the session copy in step.
      */
-    public void saveUserPreferences(String phoneNumber, Map<String, Object> preferences) {
-        if (firestore == null) {
+    public void saveUserPreferences(String phoneNumber, UserPreferences preferences) {
+        if (!isAcceptingWrites()) {
             log.debug("Firestore not initialized, skipping save operation");
             return;
         }
 
-        try {
-            Map<String, Object> data = new HashMap<>();
-            data.put("phoneNumber", phoneNumber);
-            data.put("preferences", preferences);
-            data.put("updatedAt", System.currentTimeMillis());
-
-            firestore.collection("user_preferences")
-                    .document(phoneNumber)
-                    .set(data)
-                    .get();
+        Map<String, Object> data = new HashMap<>();
+        data.put("phoneNumber", phoneNumber);
+        data.put("preferences", preferences.getValues());
+        data.put("updatedAt", preferences.getUpdatedAt());
 
-            log.debug("Saved user preferences to Firestore");
-        } catch (InterruptedException | ExecutionException e) {
-            log.error("Failed to save user preferences to Firestore: {}", e.getMessage());
-        }
+        queue(FirestoreWrite.set("user_preferences", phoneNumber, data));
     }
 
     /**
-     * Get user preferences from Firestore
+     * Read user preferences from Firestore, waiting at most the timeout. Use
+     * PreferenceService, which caches them.
+     *
+     * @return empty if Firestore is not initialized or holds none for the number
+     * @throws IllegalStateException if the read fails or times out
      */
-    public Map<String, Object> getUserPreferences(String phoneNumber) {
+    public Optional<UserPreferences> readUserPreferences(String phoneNumber, Duration timeout) {
         if (firestore == null) {
-            log.debug("Firestore not initialized, returning empty preferences");
-            return new HashMap<>();
+            return Optional.empty();
         }
 
         try {
             var document = firestore.collection("user_preferences")
                     .document(phoneNumber)
                     .get()
-                    .get();
+                    .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
 
-            if (document.exists()) {
-                Map<String, Object> data = document.getData();
-                return (Map<String, Object>) data.get("preferences");
+            if (!document.exists()) {
+                return Optional.empty();
             }
-        } catch (InterruptedException | ExecutionException e) {
-            log.error("Failed to get user preferences from Firestore: {}", e.getMessage());
+            @SuppressWarnings("unchecked")
+            Map<String, Object> values = (Map<String, Object>) document.get("preferences");
+            Long updatedAt = document.getLong("updatedAt");
+            return Optional.of(new UserPreferences(values == null ? Map.of() : values,
+                    updatedAt == null ? 0L : updatedAt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted reading user preferences", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Failed to read user preferences from Firestore: " + e.getMessage(), e);
         }
-
-        return new HashMap<>();
     }
 
     /**
-     * Save analytics data to Firestore
+     * Record an analytics event
      */
     public void saveAnalyticsData(String eventType, Map<String, Object> eventData) {
-        if (firestore == null) {
-            log.debug("Firestore not initialized, skipping analytics save");
+        if (analytics == null) {
+            log.debug("Analytics not recorded, skipping analytics save");
             return;
         }
 
-        try {
-            Map<String, Object> data = new HashMap<>();
-            data.put("eventType", eventType);
-            data.put("eventData", eventData);
-            data.put("timestamp", System.currentTimeMillis());
+        Map<String, Object> data = new HashMap<>();
+        data.put("eventType", eventType);
+        data.put("eventData", eventData);
+        data.put("timestamp", System.currentTimeMillis());
 
-            firestore.collection("analytics")
-                    .add(data)
-                    .get();
-
-            log.debug("Saved analytics data to Firestore");
-        } catch (InterruptedException | ExecutionException e) {
-            log.error("Failed to save analytics data to Firestore: {}", e.getMessage());
-        }
+        analytics.record(new AnalyticsEvent("analytics", eventType, System.currentTimeMillis(), data));
     }
 
     /**
@@ -190,4 +477,125 @@ public class FirebaseService {
     public boolean isFirebaseInitialized() {
         return firestore != null;
     }
+
+    /**
+     * Write queue and batch commit metrics; empty when Firebase is not initialized
+     */
+    public Optional<FirestoreWriterStats> getWriterStats() {
+        return writer == null ? Optional.empty() : Optional.of(writer.stats());
+    }
+
+    /**
+     * Spool size and shipping metrics; empty when the spool is disabled or could not be opened
+     */
+    public Optional<SpoolStats> getSpoolStats() {
+        return shipper == null || spool == null ? Optional.empty() : Optional.of(shipper.stats());
+    }
+
+    /**
+     * Analytics event, sampling and sink metrics; empty when analytics are not recorded
+     */
+    public Optional<AnalyticsStats> getAnalyticsStats() {
+        return analytics == null ? Optional.empty() : Optional.of(analytics.stats());
+    }
+
+    private boolean isAcceptingWrites() {
+        return spool != null || writer != null;
+    }
+
+    private void queue(FirestoreWrite write) {
+        if (spool != null) {
+            try {
+                if (!spool.append(SPOOL_JSON.writeValueAsBytes(write))) {
+                    log.debug("Firestore spool full, dropped write to {}", write.getCollection());
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                log.warn("Could not spool write to {}: {}", write.getCollection(), e.getMessage());
+            }
+        } else if (writer != null && !writer.offer(write)) {
+            log.debug("Firestore write queue full, dropped write to {}", write.getCollection());
+        }
+    }
+
+    /**
+     * Commit spooled writes as one batch, connecting to Firestore first if
+     * that failed so far. A later write to the same document replaces an
+     * earlier one in the batch.
+     */
+    private CompletableFuture<?> ship(List<byte[]> records) {
+        if (firestore == null && !reconnect()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Firestore not initialized"));
+        }
+        Map<String, FirestoreWrite> writes = new LinkedHashMap<>();
+        for (byte[] record : records) {
+            try {
+                Map<?, ?> fields = SPOOL_JSON.readValue(record, Map.class);
+                @SuppressWarnings("unchecked")
+                FirestoreWrite write = FirestoreWrite.set((String) fields.get("collection"),
+                        (String) fields.get("documentId"), (Map<String, Object>) fields.get("data"));
+                writes.put(write.path(), write);
+            } catch (IOException | RuntimeException e) {
+                log.error("Skipping unreadable spooled write: {}", e.getMessage());
+            }
+        }
+        return writes.isEmpty() ? CompletableFuture.completedFuture(null) : commit(new ArrayList<>(writes.values()));
+    }
+
+    private synchronized boolean reconnect() {
+        if (firestore != null) {
+            return true;
+        }
+        try {
+            initializeFirebase();
+            log.info("Firebase connected, shipping spooled writes");
+            return true;
+        } catch (Exception e) {
+            log.debug("Firebase still unavailable: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Commit writes as one WriteBatch; set with the queued document ids, so a retry is idempotent
+     */
+    private CompletableFuture<?> commit(List<FirestoreWrite> writes) {
+        WriteBatch batch = firestore.batch();
+        for (FirestoreWrite write : writes) {
+            batch.set(firestore.collection(write.getCollection()).document(write.getDocumentId()), write.getData());
+        }
+        return toCompletableFuture(batch.commit());
+    }
+
+    /**
+     * Whether Firestore rejected a write in a way that may pass on a later
+     * attempt; failures that are not Firestore errors, such as having no
+     * connection yet, count as retryable
+     */
+    private static boolean isRetryable(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ApiException api) {
+                return api.isRetryable();
+            }
+            if (cause instanceof BaseServiceException service) {
+                return service.isRetryable();
+            }
+        }
+        return true;
+    }
+
+    private static <T> CompletableFuture<T> toCompletableFuture(ApiFuture<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ApiFutures.addCallback(future, new ApiFutureCallback<>() {
+            @Override
+            public void onFailure(Throwable error) {
+                result.completeExceptionally(error);
+            }
+
+            @Override
+            public void onSuccess(T value) {
+                result.complete(value);
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
 }
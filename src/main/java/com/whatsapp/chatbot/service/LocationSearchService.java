@@ -0,0 +1,326 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.cache.CacheStats;
+import com.whatsapp.chatbot.cache.QueryCache;
+import com.whatsapp.chatbot.geo.GeoUtils;
+import com.whatsapp.chatbot.geo.PlaceAutocomplete;
+import com.whatsapp.chatbot.geo.PlaceTokenizer;
+import com.whatsapp.chatbot.geo.PoiHit;
+import com.whatsapp.chatbot.geo.PoiIndex;
+import com.whatsapp.chatbot.geo.PoiLoader;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Service for local place search backed by the in-memory POI index and the
+ * memory-mapped place-name autocomplete index
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class LocationSearchService {
+
+    private static final Pattern NEAREST_PREFIX =
+            Pattern.compile("^(?:find\\s+)?(?:the\\s+|a\\s+)?(?:nearest|closest|nearby)\\s+(.+)$");
+    private static final Pattern NEAREST_SUFFIX =
+            Pattern.compile("^(.+?)\\s+(?:near me|near here|nearby|around me|close by)$");
+    private static final Pattern CURRENT_LOCATION =
+            Pattern.compile("^(?:my\\s+)?(?:current\\s+location|location|here|me)$");
+
+    private final ResourceLoader resourceLoader;
+
+    @Value("${location.poi.data-path:classpath:data/pois.csv}")
+    private String dataPath;
+
+    @Value("${location.poi.cell-size-degrees:0.01}")
+    private double cellSizeDegrees;
+
+    @Value("${location.search.default-latitude:40.7580}")
+    private double defaultLatitude;
+
+    @Value("${location.search.default-longitude:-73.9855}")
+    private double defaultLongitude;
+
+    @Value("${location.search.nearest-radius-meters:25000}")
+    private double nearestRadiusMeters;
+
+    @Value("${location.autocomplete.index-path:${java.io.tmpdir}/whatsapp-chatbot/place-autocomplete.bin}")
+    private String autocompletePath;
+
+    @Value("${location.autocomplete.max-completions:10}")
+    private int maxCompletions;
+
+    @Value("${cache.geocode.maximum-size:10000}")
+    private int cacheMaximumSize;
+
+    @Value("${cache.geocode.ttl-seconds:3600}")
+    private long cacheTtlSeconds;
+
+    @Value("${cache.geocode.coordinate-precision-degrees:0.001}")
+    private double coordinatePrecisionDegrees;
+
+    @Value("${location.last-known.maximum-size:100000}")
+    private int lastKnownMaximumSize;
+
+    @Value("${location.last-known.ttl-minutes:1440}")
+    private long lastKnownTtlMinutes;
+
+    private volatile PoiIndex index = PoiIndex.empty();
+
+    private volatile PlaceAutocomplete autocomplete;
+
+    private QueryCache<String, List<PoiHit>> searchCache;
+
+    /** Last location each user shared, by phone number */
+    private QueryCache<String, PoiHit> lastKnown;
+
+    /** Last search each user was offered a place list for, by phone number */
+    private QueryCache<String, String> lastSearches;
+
+    @PostConstruct
+    public void initialize() {
+        searchCache = new QueryCache<>("geocode", cacheMaximumSize, Duration.ofSeconds(cacheTtlSeconds));
+        lastKnown = new QueryCache<>("last-location", lastKnownMaximumSize, Duration.ofMinutes(lastKnownTtlMinutes));
+        lastSearches = new QueryCache<>("last-search", lastKnownMaximumSize, Duration.ofMinutes(lastKnownTtlMinutes));
+
+        if (dataPath == null || dataPath.isBlank()) {
+            log.info("No POI dataset configured, location search disabled");
+            return;
+        }
+
+        try {
+            Resource resource = resourceLoader.getResource(dataPath);
+            long started = System.nanoTime();
+            PoiIndex.Builder builder = PoiIndex.builder(cellSizeDegrees);
+            int skipped;
+            try (InputStream input = resource.getInputStream()) {
+                skipped = PoiLoader.load(dataPath, input, builder);
+            }
+            index = builder.build();
+            log.info("Loaded {} POIs ({} skipped, {} cells, {} terms) from {} in {} ms",
+                    index.size(), skipped, index.cellCount(), index.termCount(), dataPath,
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (Exception e) {
+            log.warn("POI dataset load failed: {}. Location search will return no results.", e.getMessage());
+            return;
+        }
+
+        try {
+            long started = System.nanoTime();
+            autocomplete = loadAutocomplete(resourceLoader.getResource(dataPath));
+            log.info("Place autocomplete ready: {} slots, {} KB in {} ms", autocomplete.slotCount(),
+                    autocomplete.sizeBytes() / 1024, (System.nanoTime() - started) / 1_000_000);
+        } catch (Exception e) {
+            log.warn("Place autocomplete setup failed: {}. Only full-text search will be used.", e.getMessage());
+        }
+    }
+
+    /**
+     * Map the prebuilt autocomplete file if it was built from the same POI
+     * dataset, otherwise build it from the loaded index and refresh the file.
+     */
+    private PlaceAutocomplete loadAutocomplete(Resource resource) throws IOException {
+        long fingerprint = fingerprint(resource);
+        Path indexFile = Path.of(autocompletePath);
+        if (PlaceAutocomplete.readFingerprint(indexFile) == fingerprint) {
+            log.debug("Mapping prebuilt autocomplete index from {}", indexFile);
+            return PlaceAutocomplete.map(indexFile);
+        }
+
+        PlaceAutocomplete built = PlaceAutocomplete.build(index, fingerprint, maxCompletions);
+        try {
+            built.write(indexFile);
+            log.info("Wrote place autocomplete index to {}", indexFile);
+        } catch (IOException e) {
+            log.warn("Could not write autocomplete index {}: {}", indexFile, e.getMessage());
+        }
+        return built;
+    }
+
+    private long fingerprint(Resource resource) throws IOException {
+        long hash = maxCompletions;
+        hash = 31 * hash + resource.getDescription().hashCode();
+        hash = 31 * hash + resource.contentLength();
+        try {
+            hash = 31 * hash + resource.lastModified();
+        } catch (IOException e) {
+            // Not all resource types expose a modification time
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Search around the default location
+     */
+    public List<PoiHit> search(String query, int limit) {
+        return search(query, defaultLatitude, defaultLongitude, limit);
+    }
+
+    /**
+     * Search from a given point. "nearest X" / "X near me" style queries are
+     * ranked purely by distance; anything else is a ranked name search.
+     * Results are cached by normalized query text and the origin snapped to
+     * the configured coordinate precision.
+     */
+    public List<PoiHit> search(String query, double latitude, double longitude, int limit) {
+        String normalized = PlaceTokenizer.normalize(query);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+
+        long latitudeCell = Math.round(latitude / coordinatePrecisionDegrees);
+        long longitudeCell = Math.round(longitude / coordinatePrecisionDegrees);
+        String key = normalized + '|' + latitudeCell + '|' + longitudeCell + '|' + limit;
+        return searchCache.get(key, () -> runSearch(normalized,
+                latitudeCell * coordinatePrecisionDegrees, longitudeCell * coordinatePrecisionDegrees, limit));
+    }
+
+    private List<PoiHit> runSearch(String normalized, double latitude, double longitude, int limit) {
+        String nearestTarget = extractNearestTarget(normalized);
+        List<PoiHit> hits = nearestTarget != null
+                ? index.nearest(nearestTarget, latitude, longitude, limit, nearestRadiusMeters)
+                : index.search(normalized, latitude, longitude, limit);
+
+        log.debug("Location search '{}' returned {} results", normalized, hits.size());
+        return List.copyOf(hits);
+    }
+
+    /**
+     * Places whose name (or a later word of it) starts with the typed text,
+     * best first, with distances from the default location
+     */
+    public List<PoiHit> complete(String prefix, int limit) {
+        PlaceAutocomplete current = autocomplete;
+        if (current == null) {
+            return List.of();
+        }
+        List<PoiHit> hits = new ArrayList<>();
+        for (int poiId : current.complete(prefix, limit)) {
+            hits.add(toHit(poiId));
+        }
+        return hits;
+    }
+
+    /**
+     * Choices for a typed place name: prefix completions first, then ranked
+     * search hits for whole-word and partial matches, without duplicates
+     */
+    public List<PoiHit> suggest(String query, int limit) {
+        Map<Integer, PoiHit> merged = new LinkedHashMap<>();
+        for (PoiHit hit : complete(query, limit)) {
+            merged.putIfAbsent(hit.getPoiId(), hit);
+        }
+        for (PoiHit hit : search(query, limit)) {
+            if (merged.size() >= limit) {
+                break;
+            }
+            merged.putIfAbsent(hit.getPoiId(), hit);
+        }
+        return List.copyOf(merged.values());
+    }
+
+    /**
+     * Look up a place picked from a suggestion list
+     */
+    public Optional<PoiHit> place(int poiId) {
+        PoiIndex current = index;
+        if (poiId < 0 || poiId >= current.size()) {
+            return Optional.empty();
+        }
+        return Optional.of(toHit(poiId));
+    }
+
+    private PoiHit toHit(int poiId) {
+        PoiIndex current = index;
+        double latitude = current.latitude(poiId);
+        double longitude = current.longitude(poiId);
+        return new PoiHit(poiId, current.name(poiId), current.category(poiId), latitude, longitude,
+                GeoUtils.haversineMeters(defaultLatitude, defaultLongitude, latitude, longitude),
+                current.popularity(poiId));
+    }
+
+    /**
+     * Resolve a place description to a single point: "current location" maps to the
+     * user's origin, anything else to the best search hit.
+     */
+    public Optional<PoiHit> resolve(String placeQuery) {
+        if (placeQuery == null || placeQuery.isBlank()) {
+            return Optional.empty();
+        }
+        if (CURRENT_LOCATION.matcher(placeQuery.trim().toLowerCase(Locale.ROOT)).matches()) {
+            return Optional.of(new PoiHit(-1, "Your location", "", defaultLatitude, defaultLongitude, 0.0, 1.0));
+        }
+        return search(placeQuery, 1).stream().findFirst();
+    }
+
+    /**
+     * Remember a location the user shared, for answers about "near you"
+     */
+    public void rememberLocation(String phoneNumber, double latitude, double longitude) {
+        lastKnown.put(phoneNumber, new PoiHit(-1, "Your location", "", latitude, longitude, 0.0, 1.0));
+    }
+
+    /**
+     * The last location the user shared, if it is still fresh
+     */
+    public Optional<PoiHit> lastLocation(String phoneNumber) {
+        return Optional.ofNullable(lastKnown.getIfPresent(phoneNumber));
+    }
+
+    /**
+     * Remember the search a user was offered a place list for, so a stale pick can show it again
+     */
+    public void rememberSearch(String phoneNumber, String query) {
+        lastSearches.put(phoneNumber, query);
+    }
+
+    public Optional<String> lastSearch(String phoneNumber) {
+        return Optional.ofNullable(lastSearches.getIfPresent(phoneNumber));
+    }
+
+    public boolean isAvailable() {
+        return index.size() > 0;
+    }
+
+    public CacheStats getCacheStats() {
+        return searchCache.stats();
+    }
+
+    public double getDefaultLatitude() {
+        return defaultLatitude;
+    }
+
+    public double getDefaultLongitude() {
+        return defaultLongitude;
+    }
+
+    private static String extractNearestTarget(String query) {
+        Matcher prefix = NEAREST_PREFIX.matcher(query);
+        if (prefix.matches()) {
+            return prefix.group(1);
+        }
+        Matcher suffix = NEAREST_SUFFIX.matcher(query);
+        if (suffix.matches()) {
+            return suffix.group(1);
+        }
+        return null;
+    }
+}
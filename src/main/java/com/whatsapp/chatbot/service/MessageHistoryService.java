@@ -0,0 +1,158 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.dto.ConversationThread;
+import com.whatsapp.chatbot.dto.MessageHistoryPage;
+import com.whatsapp.chatbot.model.Conversation;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.ConversationRepository;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Service for paging through a number's message history with keyset cursors.
+ *
+ * A page is the newest messages strictly older than the cursor's
+ * (timestamp, id). Rather than one query with an OR across from_number and
+ * to_number, which no single index serves, each side is read from its own
+ * (number, timestamp, id) index and the two sorted runs are merged. Each
+ * query touches at most one page of rows however deep the cursor is, so a
+ * page costs the same on the first page and the millionth.
+ *
+ * Messages moved to the archive are read from there with the same cursor
+ * and merged in, so history runs on past the hot table without a seam.
+ *
+ * A conversation is read from its summary row and one range of the
+ * conversation index; only when the summary counts more messages than the
+ * table holds is the archive read for the older part.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class MessageHistoryService {
+
+    /** Cursor for the first page: later than any stored message */
+    private static final LocalDateTime NEWEST = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private final WhatsAppMessageRepository messageRepository;
+    private final ArchiveService archiveService;
+    private final ConversationRepository conversationRepository;
+
+    @Value("${messages.history.max-page-size:100}")
+    private int maxPageSize;
+
+    /**
+     * Messages to or from a number, newest first
+     *
+     * @param before cursor from the previous page, or null for the newest messages
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public MessageHistoryPage history(String phoneNumber, String before, int size) {
+        int limit = Math.max(1, Math.min(size, maxPageSize));
+        LocalDateTime timestamp = NEWEST;
+        long id = Long.MAX_VALUE;
+        if (before != null && !before.isEmpty()) {
+            try {
+                String[] cursor = new String(Base64.getUrlDecoder().decode(before), StandardCharsets.UTF_8)
+                        .split(",", 2);
+                timestamp = LocalDateTime.parse(cursor[0]);
+                id = Long.parseLong(cursor[cursor.length - 1]);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid history cursor: " + before, e);
+            }
+        }
+
+        // One extra row per side tells whether there is another page
+        PageRequest rows = PageRequest.of(0, limit + 1);
+        List<WhatsAppMessage> sent = messageRepository.findFromNumberBefore(phoneNumber, timestamp, id, rows);
+        List<WhatsAppMessage> received = messageRepository.findToNumberBefore(phoneNumber, timestamp, id, rows);
+        List<WhatsAppMessage> hot = merge(sent, received, limit + 1);
+        List<WhatsAppMessage> archived = archiveService.history(phoneNumber, timestamp, id, limit + 1);
+        List<WhatsAppMessage> merged = archived.isEmpty() ? hot : merge(hot, archived, limit + 1);
+
+        if (merged.size() <= limit) {
+            return new MessageHistoryPage(merged, null);
+        }
+        List<WhatsAppMessage> page = new ArrayList<>(merged.subList(0, limit));
+        return new MessageHistoryPage(page, encode(page.get(limit - 1)));
+    }
+
+    /**
+     * A number's conversation summaries, latest first
+     */
+    public List<Conversation> conversations(String phoneNumber, int size) {
+        int limit = Math.max(1, Math.min(size, maxPageSize));
+        return conversationRepository.findByPhoneNumberOrderByStartedAtDesc(phoneNumber, PageRequest.of(0, limit));
+    }
+
+    /**
+     * A conversation's summary and messages, oldest first
+     */
+    public Optional<ConversationThread> conversation(String conversationId) {
+        return conversationRepository.findById(conversationId).map(conversation -> {
+            List<WhatsAppMessage> hot = messageRepository.findByConversationId(conversationId);
+            long missing = conversation.getMessageCount() - hot.size();
+            if (missing <= 0 || !archiveService.isAvailable()) {
+                return new ConversationThread(conversation, hot);
+            }
+
+            // Archiving moves the oldest messages first, so what is missing comes right before the hot part
+            LocalDateTime timestamp = hot.isEmpty() ? conversation.getLastMessageAt().plusNanos(1000)
+                    : hot.get(0).getTimestamp();
+            long id = hot.isEmpty() ? Long.MAX_VALUE : hot.get(0).getId();
+            List<WhatsAppMessage> archived = new ArrayList<>(archiveService.history(conversation.getPhoneNumber(),
+                    timestamp, id, (int) Math.min(missing, Integer.MAX_VALUE)));
+            archived.removeIf(message -> !conversationId.equals(message.getConversationId())
+                    || message.getTimestamp().isBefore(conversation.getStartedAt()));
+            Collections.reverse(archived);
+            archived.addAll(hot);
+            return new ConversationThread(conversation, archived);
+        });
+    }
+
+    /**
+     * Merge two runs sorted newest first, keeping at most limit messages; a
+     * message in both runs (to and from the same number, or not yet deleted
+     * from the table after archiving) appears only once here
+     */
+    static List<WhatsAppMessage> merge(List<WhatsAppMessage> a, List<WhatsAppMessage> b, int limit) {
+        List<WhatsAppMessage> merged = new ArrayList<>(Math.min(limit, a.size() + b.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < a.size() || j < b.size())) {
+            WhatsAppMessage next;
+            if (j >= b.size() || (i < a.size() && newer(a.get(i), b.get(j)) >= 0)) {
+                next = a.get(i++);
+                if (j < b.size() && b.get(j).getId().equals(next.getId())) {
+                    j++;
+                }
+            } else {
+                next = b.get(j++);
+            }
+            merged.add(next);
+        }
+        return merged;
+    }
+
+    private static int newer(WhatsAppMessage x, WhatsAppMessage y) {
+        int byTime = x.getTimestamp().compareTo(y.getTimestamp());
+        return byTime != 0 ? byTime : Long.compare(x.getId(), y.getId());
+    }
+
+    private static String encode(WhatsAppMessage last) {
+        String cursor = last.getTimestamp() + "," + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,291 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service for writing the message log off the request path: records are
+ * queued and a background thread inserts them in bulk once a batch fills up
+ * or the flush interval passes. When the queue is full the caller waits a
+ * short while for room; if there is still none, the caller writes what is
+ * queued and then its own record under the writer's lock, so records are
+ * slowed down rather than lost and stay in order.
+ *
+ * A status callback can arrive while its message is still queued; the
+ * status is then held in a small pending map and applied by the writer
+ * right after it inserts the message.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class MessageLogWriter {
+
+    private final WhatsAppMessageRepository messageRepository;
+    private final StatisticsService statisticsService;
+    private final RollupService rollupService;
+    private final ConversationService conversationService;
+    private final ReadModelService readModelService;
+    private final SearchService searchService;
+
+    @Value("${messages.log.batch-size:500}")
+    private int batchSize;
+
+    @Value("${messages.log.flush-interval-millis:200}")
+    private long flushIntervalMillis;
+
+    @Value("${messages.log.queue-capacity:100000}")
+    private int queueCapacity;
+
+    @Value("${messages.log.offer-timeout-millis:500}")
+    private long offerTimeoutMillis;
+
+    @Value("${messages.log.pending-status-capacity:10000}")
+    private int pendingStatusCapacity;
+
+    private BlockingQueue<WhatsAppMessage> queue;
+    /** Latest status for message ids not in the database yet, oldest evicted first */
+    private Map<String, String> pendingStatuses;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+
+    @PostConstruct
+    public void initialize() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        pendingStatuses = Collections.synchronizedMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > pendingStatusCapacity;
+            }
+        });
+        running = true;
+        flusher = new Thread(this::run, "message-log-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Message log writer ready: batches of {}, flushed every {} ms", batchSize, flushIntervalMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // No interrupt: the writer sees the flag within one flush interval and finishes its batch first
+        running = false;
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Queue a message record for the next bulk insert
+     */
+    public void append(WhatsAppMessage message) {
+        conversationService.assign(message);
+        rollupService.messageLogged(message);
+        boolean queued;
+        try {
+            queued = queue.offer(message, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = queue.offer(message);
+        }
+        if (!queued) {
+            overflowed.increment();
+            log.debug("Message log queue full, writing {} through", message.getMessageId());
+            writeThrough(message);
+        }
+    }
+
+    /**
+     * Apply a delivery status callback. If the message is not in the
+     * database yet the status waits for the writer to insert it, so the
+     * caller never waits on a batch write.
+     */
+    public void updateStatus(String messageId, String status) {
+        Optional<WhatsAppMessage> stored = messageRepository.findByMessageId(messageId);
+        if (stored.isPresent()) {
+            applyStatus(stored.get(), status);
+            return;
+        }
+        pendingStatuses.put(messageId, status);
+        // The writer may have inserted the message, and checked for a status, since the lookup above;
+        // whichever side removes the pending status applies it
+        stored = messageRepository.findByMessageId(messageId);
+        if (stored.isPresent() && pendingStatuses.remove(messageId, status)) {
+            applyStatus(stored.get(), status);
+        }
+    }
+
+    /**
+     * Write everything queued so far; returns once it is in the database
+     */
+    public synchronized void flush() {
+        List<WhatsAppMessage> batch = new ArrayList<>(Math.min(batchSize, queue.size()));
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+        conversationService.writePending();
+    }
+
+    public int getPending() {
+        return queue.size();
+    }
+
+    public int getPendingStatuses() {
+        return pendingStatuses.size();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getOverflowed() {
+        return overflowed.sum();
+    }
+
+    private void run() {
+        List<WhatsAppMessage> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                WhatsAppMessage first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    // Session state changes queue conversation writes without any message
+                    conversationService.writePending();
+                    continue;
+                }
+                batch.add(first);
+                // Give a partial batch the rest of the interval to fill up, waking as records arrive
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                long remaining;
+                while (batch.size() < batchSize && (remaining = deadline - System.nanoTime()) > 0) {
+                    WhatsAppMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            try {
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                }
+            } catch (RuntimeException e) {
+                log.error("Message log writer error: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private synchronized void writeBatch(List<WhatsAppMessage> batch) {
+        write(batch);
+        flush();
+    }
+
+    /**
+     * Write everything queued, then queue the message behind it, so it is
+     * not written ahead of earlier messages of its conversation
+     */
+    private synchronized void writeThrough(WhatsAppMessage message) {
+        flush();
+        if (!queue.offer(message)) {
+            writeBatch(List.of(message));
+        }
+    }
+
+    /**
+     * Bulk insert one batch; if that fails (for example on a duplicate
+     * message id) fall back to row by row so one bad record doesn't lose the rest
+     */
+    private void write(List<WhatsAppMessage> batch) {
+        try {
+            messageRepository.insertAll(batch);
+            statisticsService.messagesAdded(batch);
+            conversationService.messagesWritten(batch);
+            readModelService.messagesWritten(batch);
+            searchService.messagesWritten(batch);
+            written.add(batch.size());
+            batches.increment();
+            log.debug("Wrote {} message records", batch.size());
+            applyPendingStatuses(batch);
+            return;
+        } catch (Exception e) {
+            log.warn("Bulk insert of {} message records failed, retrying one by one: {}",
+                    batch.size(), e.getMessage());
+        }
+        for (WhatsAppMessage message : batch) {
+            try {
+                message.setId(null);
+                messageRepository.save(message);
+                statisticsService.messagesAdded(List.of(message));
+                conversationService.messagesWritten(List.of(message));
+                readModelService.messagesWritten(List.of(message));
+                searchService.messagesWritten(List.of(message));
+                written.increment();
+                applyPendingStatuses(List.of(message));
+            } catch (Exception e) {
+                failed.increment();
+                log.error("Failed to save message {}: {}", message.getMessageId(), e.getMessage());
+            }
+        }
+    }
+
+    private void applyPendingStatuses(List<WhatsAppMessage> written) {
+        if (pendingStatuses.isEmpty()) {
+            return;
+        }
+        for (WhatsAppMessage message : written) {
+            String status = pendingStatuses.remove(message.getMessageId());
+            if (status != null) {
+                try {
+                    applyStatus(message, status);
+                } catch (RuntimeException e) {
+                    log.error("Failed to update status of message {}: {}", message.getMessageId(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void applyStatus(WhatsAppMessage message, String status) {
+        String previousStatus = message.getStatus();
+        message.setStatus(status);
+        messageRepository.save(message);
+        statisticsService.messageStatusChanged(previousStatus, status);
+        readModelService.messageStatusChanged(message);
+    }
+}
@@ -0,0 +1,161 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.geo.GeoUtils;
+import com.whatsapp.chatbot.navigation.NavigationEngine;
+import com.whatsapp.chatbot.navigation.NavigationStats;
+import com.whatsapp.chatbot.navigation.NavigationUpdate;
+import com.whatsapp.chatbot.routing.PlannedRoute;
+import com.whatsapp.chatbot.routing.Router;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Service for live navigation: streams users' shared live location through
+ * the in-memory guidance engine and messages them when the next instruction
+ * changes. Location updates are never written to the database.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class NavigationService {
+
+    private final RoutingService routingService;
+    private final WhatsAppService whatsAppService;
+    private final UserSessionService sessionService;
+
+    @Value("${navigation.max-sessions:10000}")
+    private int maxSessions;
+
+    @Value("${navigation.idle-timeout-minutes:30}")
+    private long idleTimeoutMinutes;
+
+    @Value("${navigation.off-route-meters:60}")
+    private double offRouteMeters;
+
+    @Value("${navigation.off-route-fixes:2}")
+    private int offRouteFixes;
+
+    @Value("${navigation.reroute-interval-seconds:15}")
+    private long rerouteIntervalSeconds;
+
+    private volatile NavigationEngine engine;
+
+    @PostConstruct
+    public void initialize() {
+        Router router = routingService.getRouter();
+        if (router == null) {
+            log.info("Routing unavailable, live navigation disabled");
+            return;
+        }
+
+        engine = new NavigationEngine(router, maxSessions, Duration.ofMinutes(idleTimeoutMinutes).toMillis(),
+                offRouteMeters, offRouteFixes, Duration.ofSeconds(rerouteIntervalSeconds).toMillis());
+        log.info("Live navigation ready: up to {} sessions, off route beyond {} m", maxSessions, offRouteMeters);
+    }
+
+    /**
+     * Start guidance along a planned route
+     *
+     * @return the first instruction, or empty if navigation is unavailable or at capacity
+     */
+    public Optional<NavigationUpdate> start(String phoneNumber, PlannedRoute route) {
+        NavigationEngine current = engine;
+        if (current == null) {
+            return Optional.empty();
+        }
+        Optional<NavigationUpdate> first = current.start(phoneNumber, route.getPath(), route.getToName(),
+                System.currentTimeMillis());
+        if (first.isEmpty()) {
+            log.warn("Navigation at capacity ({} sessions), could not start for {}", maxSessions, phoneNumber);
+        }
+        return first;
+    }
+
+    /**
+     * Feed a location fix from a navigating user and send any resulting message
+     *
+     * @param timestampSeconds the message timestamp, used to drop out-of-order fixes
+     * @return false if the user is not navigating, so the location is not a live update
+     */
+    public boolean onLocation(String phoneNumber, double latitude, double longitude, long timestampSeconds) {
+        NavigationEngine current = engine;
+        if (current == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        long fixMillis = timestampSeconds > 0 ? timestampSeconds * 1000 : now;
+        Optional<String> destination = current.label(phoneNumber);
+        Optional<NavigationUpdate> update = current.onLocation(phoneNumber, latitude, longitude, fixMillis, now);
+        if (update.isEmpty()) {
+            return false;
+        }
+
+        String message = describe(update.get(), destination.orElse("your destination"));
+        if (message != null) {
+            if (update.get().getKind() == NavigationUpdate.Kind.ARRIVED) {
+                sessionService.updateSessionState(phoneNumber, "MAIN_MENU");
+            }
+            whatsAppService.sendTextMessage(phoneNumber, message)
+                    .subscribe(null, error -> log.warn("Navigation message to {} failed: {}",
+                            phoneNumber, error.getMessage()));
+        }
+        return true;
+    }
+
+    public boolean stop(String phoneNumber) {
+        NavigationEngine current = engine;
+        return current != null && current.stop(phoneNumber);
+    }
+
+    public boolean isNavigating(String phoneNumber) {
+        NavigationEngine current = engine;
+        return current != null && current.isNavigating(phoneNumber);
+    }
+
+    /**
+     * Message text for an update, or null when there is nothing new to say
+     */
+    public String describe(NavigationUpdate update, String destination) {
+        switch (update.getKind()) {
+            case INSTRUCTION:
+                return "➡️ " + instruction(update);
+            case REROUTED:
+                return "🔄 New route to " + destination + "\n" + instruction(update) + "\n" +
+                       "Remaining: " + minutes(update.getRemainingMillis()) + ", " +
+                       GeoUtils.formatDistance(update.getRemainingMeters());
+            case LOST:
+                return "🚧 You seem to be off the road network. Head back to a road and I'll re-route you.";
+            case ARRIVED:
+                return "🏁 You have arrived at " + destination + ". Navigation ended.";
+            default:
+                return null;
+        }
+    }
+
+    private static String instruction(NavigationUpdate update) {
+        String text = update.getNext().describe();
+        if (update.getMetersToManeuver() < 30) {
+            return text;
+        }
+        return "In " + GeoUtils.formatDistance(update.getMetersToManeuver()) + ": " + text;
+    }
+
+    private static String minutes(long millis) {
+        return Math.max(1, Math.round(millis / 60_000.0)) + " min";
+    }
+
+    public boolean isAvailable() {
+        return engine != null;
+    }
+
+    public Optional<NavigationStats> getStats() {
+        NavigationEngine current = engine;
+        return current == null ? Optional.empty() : Optional.of(current.stats());
+    }
+}
@@ -0,0 +1,155 @@
+package com.whatsapp.chatbot.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.whatsapp.chatbot.cache.CacheStats;
+import com.whatsapp.chatbot.cache.QueryCache;
+import com.whatsapp.chatbot.dto.UserPreferences;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service for user preferences, read through an in-process cache in front
+ * of Firestore. Reads of a cached number never leave the process; entries
+ * older than the refresh age are reloaded in the background while readers
+ * keep the cached copy, and concurrent misses for a number share one load.
+ *
+ * Saves write through: the session's copy in the database, then the cache,
+ * then Firestore through its write queue. A load takes whichever of the
+ * Firestore and database copies was saved last, so a save not yet shipped
+ * to Firestore is not undone by a reload, and the session copy no longer
+ * drifts from Firestore.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PreferenceService {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final UserPreferences NONE = new UserPreferences(Map.of(), 0L);
+
+    private final FirebaseService firebaseService;
+    private final UserSessionService userSessionService;
+
+    @Value("${preferences.cache.maximum-size:100000}")
+    private int cacheMaximumSize;
+
+    @Value("${preferences.cache.ttl-seconds:900}")
+    private long cacheTtlSeconds;
+
+    @Value("${preferences.cache.refresh-after-seconds:300}")
+    private long refreshAfterSeconds;
+
+    @Value("${preferences.load-timeout-millis:2000}")
+    private long loadTimeoutMillis;
+
+    @Value("${preferences.refresh-threads:2}")
+    private int refreshThreads;
+
+    private QueryCache<String, UserPreferences> cache;
+    private ThreadPoolExecutor refresher;
+    private final LongAdder firestoreReadFailures = new LongAdder();
+
+    @PostConstruct
+    public void initialize() {
+        // Refreshes beyond the queue are skipped; the next read of the key tries again
+        refresher = new ThreadPoolExecutor(refreshThreads, refreshThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1_000), runnable -> {
+                    Thread thread = new Thread(runnable, "preference-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        cache = new QueryCache<>("preferences", cacheMaximumSize, Duration.ofSeconds(cacheTtlSeconds),
+                Duration.ofSeconds(refreshAfterSeconds), refresher);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * A number's preferences; empty if none were ever saved
+     */
+    public Map<String, Object> getPreferences(String phoneNumber) {
+        return get(phoneNumber).getValues();
+    }
+
+    public UserPreferences get(String phoneNumber) {
+        return cache.get(phoneNumber, () -> load(phoneNumber));
+    }
+
+    /**
+     * Replace a number's preferences in every tier
+     */
+    public UserPreferences save(String phoneNumber, Map<String, Object> values) {
+        UserPreferences preferences = new UserPreferences(
+                Collections.unmodifiableMap(new LinkedHashMap<>(values)), System.currentTimeMillis());
+        userSessionService.updateUserPreferences(phoneNumber, toJson(preferences));
+        cache.put(phoneNumber, preferences);
+        firebaseService.saveUserPreferences(phoneNumber, preferences);
+        return preferences;
+    }
+
+    public CacheStats getCacheStats() {
+        return cache.stats();
+    }
+
+    public long getFirestoreReadFailures() {
+        return firestoreReadFailures.sum();
+    }
+
+    /**
+     * Load from both stores and keep the newer; Firestore being down or slow falls back to the database copy
+     */
+    private UserPreferences load(String phoneNumber) {
+        UserPreferences stored = fromJson(phoneNumber, userSessionService.getUserPreferences(phoneNumber));
+        Optional<UserPreferences> remote;
+        try {
+            remote = firebaseService.readUserPreferences(phoneNumber, Duration.ofMillis(loadTimeoutMillis));
+        } catch (IllegalStateException e) {
+            firestoreReadFailures.increment();
+            log.warn("Using stored preferences for {}: {}", phoneNumber, e.getMessage());
+            remote = Optional.empty();
+        }
+        return remote.filter(preferences -> preferences.getUpdatedAt() > stored.getUpdatedAt()).orElse(stored);
+    }
+
+    private static String toJson(UserPreferences preferences) {
+        try {
+            return JSON.writeValueAsString(preferences);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Preferences are not serializable: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The session copy, or none if it is missing or not in this format
+     */
+    private static UserPreferences fromJson(String phoneNumber, String json) {
+        if (json == null || json.isBlank()) {
+            return NONE;
+        }
+        try {
+            UserPreferences preferences = JSON.readValue(json, UserPreferences.class);
+            return preferences.getValues() == null ? NONE : preferences;
+        } catch (JsonProcessingException e) {
+            log.debug("Ignoring unreadable stored preferences for {}: {}", phoneNumber, e.getMessage());
+            return NONE;
+        }
+    }
+}
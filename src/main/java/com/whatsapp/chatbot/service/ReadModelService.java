@@ -0,0 +1,632 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.model.UserSession;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.UserSessionRepository;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Service keeping in-memory views of sessions and recent messages for the
+ * management API, so dashboard reads never touch the tables the webhook
+ * path writes to.
+ *
+ * Writers hand changes to a bounded queue and return; one projector thread
+ * applies them to the views in order. The views therefore lag the database
+ * by the age of the oldest unapplied change, which is reported as the
+ * staleness alongside a configured bound. Bulk updates report what they
+ * changed through hooks too; only when changes were actually lost (queue
+ * overflow, crash recovery) are the views rebuilt from the database, and
+ * periodically only if configured, for instances sharing a database.
+ *
+ * The session view holds active sessions plus those changed since the last
+ * rebuild; a lookup of any other session reads its row by number. Message
+ * pages past the recent window are read with a keyset query from the
+ * window's oldest message, or from where the previous deep page ended.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ReadModelService {
+
+    private static final Comparator<UserSession> LATEST_FIRST = Comparator.comparing(UserSession::getUpdatedAt,
+            Comparator.nullsLast(Comparator.reverseOrder())).thenComparing(UserSession::getPhoneNumber);
+    private static final long RETRY_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final int MAX_DEEP_CURSORS = 1_000;
+
+    private final UserSessionRepository sessionRepository;
+    private final WhatsAppMessageRepository messageRepository;
+    private final StatisticsService statisticsService;
+
+    @Value("${read-model.recent-messages:10000}")
+    private int recentMessages;
+
+    @Value("${read-model.queue-capacity:100000}")
+    private int queueCapacity;
+
+    @Value("${read-model.max-staleness-millis:1000}")
+    private long maxStalenessMillis;
+
+    @Value("${read-model.rebuild-interval-seconds:0}")
+    private long rebuildIntervalSeconds;
+
+    @Value("${read-model.rebuild-page-size:1000}")
+    private int rebuildPageSize;
+
+    private volatile Sessions sessions = new Sessions();
+    private final Object activeSessionsLock = new Object();
+    private volatile List<UserSession> activeSessions = List.of();
+    private volatile boolean activeSessionsDirty = true;
+    private volatile RecentMessages recent = new RecentMessages(0);
+    /** Where pages past the recent window start: position from the newest message to the key just before it */
+    private final ConcurrentNavigableMap<Long, MessageKey> deepCursors = new ConcurrentSkipListMap<>();
+
+    private volatile ChangeListener listener;
+
+    private BlockingQueue<Change> queue;
+    private Thread projector;
+    private volatile boolean running;
+    private volatile boolean rebuildRequested;
+    /** When the change being applied was submitted, 0 between changes */
+    private volatile long applyingSinceNanos;
+    /** When changes were first lost, 0 while none are; the views are that old until rebuilt */
+    private final AtomicLong lostSinceNanos = new AtomicLong();
+
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private volatile LocalDateTime lastRebuiltAt;
+    private volatile long lastRebuildMillis;
+
+    @PostConstruct
+    public void initialize() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        rebuildRequested = !rebuild();
+        running = true;
+        projector = new Thread(this::run, "read-model-projector");
+        projector.setDaemon(true);
+        projector.start();
+        log.info("Read model ready: {} sessions, {} recent messages; staleness bound {} ms",
+                sessions.byPhone.size(), recent.size(), maxStalenessMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (projector != null) {
+            projector.interrupt();
+        }
+    }
+
+    /**
+     * Notified on the projector thread once a change is in the views, in the
+     * order changes were applied. Implementations must be quick.
+     */
+    public interface ChangeListener {
+
+        void messagesAdded(List<WhatsAppMessage> messages);
+
+        void messageStatusChanged(WhatsAppMessage message);
+
+        void sessionChanged(UserSession session);
+
+        /** The views were reloaded; changes may have been missed */
+        void rebuilt();
+    }
+
+    public void setChangeListener(ChangeListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Project a saved session once its transaction commits
+     */
+    public void sessionSaved(UserSession session) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    UserSession copy = copy(session);
+                    submit(() -> applySession(copy));
+                }
+            });
+        } else {
+            UserSession copy = copy(session);
+            submit(() -> applySession(copy));
+        }
+    }
+
+    /**
+     * Project messages just written to the message table
+     */
+    public void messagesWritten(List<WhatsAppMessage> written) {
+        List<WhatsAppMessage> copies = new ArrayList<>(written.size());
+        written.forEach(message -> copies.add(copy(message)));
+        submit(() -> {
+            copies.forEach(message -> recent.put(message));
+            notifyListener(changes -> changes.messagesAdded(copies));
+        });
+    }
+
+    /**
+     * Project a message's new delivery status
+     */
+    public void messageStatusChanged(WhatsAppMessage message) {
+        WhatsAppMessage copy = copy(message);
+        submit(() -> {
+            recent.replace(copy);
+            notifyListener(changes -> changes.messageStatusChanged(copy));
+        });
+    }
+
+    /**
+     * Drop messages removed from the message table
+     */
+    public void messagesRemoved(List<WhatsAppMessage> removed) {
+        List<String> ids = removed.stream().map(WhatsAppMessage::getMessageId).toList();
+        submit(() -> ids.forEach(id -> recent.remove(id)));
+    }
+
+    /**
+     * Project sessions a bulk update deactivated; one used since the cutoff stays active
+     */
+    public void sessionsDeactivated(List<UserSession> deactivated, LocalDateTime cutoff) {
+        List<String> phoneNumbers = deactivated.stream().map(UserSession::getPhoneNumber).toList();
+        submit(() -> phoneNumbers.forEach(phoneNumber -> {
+            UserSession current = sessions.byPhone.get(phoneNumber);
+            if (current != null && Boolean.TRUE.equals(current.getSessionActive()) && idleSince(current, cutoff)) {
+                UserSession inactive = copy(current);
+                inactive.setSessionActive(false);
+                sessions.put(inactive);
+                activeSessionsDirty = true;
+                notifyListener(changes -> changes.sessionChanged(inactive));
+            }
+        }));
+    }
+
+    /**
+     * Drop sessions a bulk delete removed; one revived since the cutoff stays
+     */
+    public void sessionsDeleted(List<UserSession> deleted, LocalDateTime cutoff) {
+        List<String> phoneNumbers = deleted.stream().map(UserSession::getPhoneNumber).toList();
+        submit(() -> phoneNumbers.forEach(phoneNumber -> {
+            UserSession current = sessions.byPhone.get(phoneNumber);
+            if (current != null && !Boolean.TRUE.equals(current.getSessionActive()) && idleSince(current, cutoff)) {
+                sessions.remove(phoneNumber);
+            }
+        }));
+    }
+
+    /**
+     * Project messages whose content a bulk update changed, such as anonymization
+     */
+    public void messagesUpdated(List<WhatsAppMessage> updated) {
+        List<WhatsAppMessage> copies = new ArrayList<>(updated.size());
+        updated.forEach(message -> copies.add(copy(message)));
+        submit(() -> copies.forEach(message -> recent.replace(message)));
+    }
+
+    /**
+     * Rebuild the views from the database, after changes that could not be reported
+     */
+    public void requestRebuild() {
+        rebuildRequested = true;
+    }
+
+    /**
+     * A session from the view, or read by number if the view does not hold it
+     */
+    public Optional<UserSession> getSession(String phoneNumber) {
+        UserSession held = sessions.byPhone.get(phoneNumber);
+        if (held != null) {
+            return Optional.of(held);
+        }
+        return sessionRepository.findByPhoneNumber(phoneNumber).map(ReadModelService::copy);
+    }
+
+    /**
+     * Active sessions, most recently updated first
+     */
+    public List<UserSession> getActiveSessions() {
+        if (activeSessionsDirty) {
+            synchronized (activeSessionsLock) {
+                if (activeSessionsDirty) {
+                    // Cleared first: a change landing during the copy marks the list dirty again
+                    activeSessionsDirty = false;
+                    activeSessions = List.copyOf(sessions.active);
+                }
+            }
+        }
+        return activeSessions;
+    }
+
+    /**
+     * A page of messages, newest first; the part beyond the recent window is
+     * read from the database
+     */
+    public Page<WhatsAppMessage> getMessages(int page, int size) {
+        PageRequest pageRequest = PageRequest.of(page, size, Sort.by("timestamp").descending());
+        RecentMessages window = recent;
+        int held = window.size();
+        long total = Math.max(statisticsService.getTotalMessages(), held);
+        long offset = (long) page * size;
+        List<WhatsAppMessage> content = window.page(offset, size);
+        if (content.size() < size && total > held) {
+            content.addAll(pastWindow(window, Math.max(offset, held), size - content.size()));
+        }
+        return new PageImpl<>(content, pageRequest, total);
+    }
+
+    /**
+     * How far the views lag the database, in milliseconds
+     */
+    public long getStalenessMillis() {
+        long now = System.nanoTime();
+        long oldest = now;
+        long applying = applyingSinceNanos;
+        Change pending = queue.peek();
+        if (applying != 0) {
+            oldest = applying;
+        } else if (pending != null) {
+            oldest = pending.submittedNanos;
+        }
+        long lost = lostSinceNanos.get();
+        if (lost != 0 && lost - oldest < 0) {
+            oldest = lost;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(now - oldest);
+    }
+
+    public long getMaxStalenessMillis() {
+        return maxStalenessMillis;
+    }
+
+    /**
+     * Whether every change handed over so far has been applied
+     */
+    public boolean isCaughtUp() {
+        return queue.isEmpty() && applyingSinceNanos == 0 && lostSinceNanos.get() == 0 && !rebuildRequested;
+    }
+
+    public Map<String, Object> status() {
+        long staleness = getStalenessMillis();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("stalenessMillis", staleness);
+        status.put("maxStalenessMillis", maxStalenessMillis);
+        status.put("withinBound", staleness <= maxStalenessMillis);
+        status.put("pending", queue.size());
+        status.put("applied", applied.sum());
+        status.put("dropped", dropped.sum());
+        status.put("sessions", sessions.byPhone.size());
+        status.put("recentMessages", recent.size());
+        status.put("rebuilds", rebuilds.sum());
+        status.put("lastRebuiltAt", lastRebuiltAt);
+        status.put("lastRebuildMillis", lastRebuildMillis);
+        return status;
+    }
+
+    private void submit(Runnable apply) {
+        if (!queue.offer(new Change(System.nanoTime(), apply))) {
+            // Never block the write path: note the loss and rebuild instead
+            dropped.increment();
+            lostSinceNanos.compareAndSet(0, System.nanoTime());
+            rebuildRequested = true;
+        }
+    }
+
+    private void run() {
+        boolean periodic = rebuildIntervalSeconds > 0;
+        long interval = TimeUnit.SECONDS.toNanos(rebuildIntervalSeconds);
+        long nextRebuild = System.nanoTime() + interval;
+        while (running) {
+            try {
+                if (rebuildRequested || (periodic && System.nanoTime() - nextRebuild >= 0)) {
+                    nextRebuild = System.nanoTime() + (rebuild() ? interval : RETRY_NANOS);
+                }
+                Change change = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (change != null) {
+                    applyingSinceNanos = change.submittedNanos;
+                    try {
+                        change.apply.run();
+                        applied.increment();
+                    } finally {
+                        applyingSinceNanos = 0;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Read model projector error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Messages from a position past the window, by keyset from the nearest
+     * known position at or before it; sequential paging never skips rows
+     */
+    private List<WhatsAppMessage> pastWindow(RecentMessages window, long position, int limit) {
+        Map.Entry<Long, MessageKey> start = deepCursors.floorEntry(position);
+        if (start == null || start.getKey() < window.size()) {
+            MessageKey oldest = window.oldest();
+            start = Map.entry((long) window.size(), oldest != null ? oldest : MessageKey.NEWEST);
+        }
+        int skip = (int) Math.min(position - start.getKey(), Integer.MAX_VALUE);
+        List<WhatsAppMessage> rows = new ArrayList<>(limit);
+        messageRepository.findBefore(start.getValue().timestamp, start.getValue().id, skip, limit)
+                .forEach(message -> rows.add(copy(message)));
+        if (!rows.isEmpty()) {
+            if (deepCursors.size() >= MAX_DEEP_CURSORS) {
+                deepCursors.clear();
+            }
+            WhatsAppMessage last = rows.get(rows.size() - 1);
+            deepCursors.put(position + rows.size(), new MessageKey(last.getTimestamp(), last.getId()));
+        }
+        return rows;
+    }
+
+    /**
+     * Reload the views from the database. Changes queued meanwhile are
+     * applied afterwards; applying them again is harmless, and a session
+     * change older than the reloaded row is ignored.
+     */
+    private boolean rebuild() {
+        rebuildRequested = false;
+        long start = System.nanoTime();
+        long lostSince = lostSinceNanos.get();
+        // The views count as stale for the rebuild, or since changes were lost if that was earlier
+        applyingSinceNanos = lostSince != 0 ? lostSince : start;
+        lostSinceNanos.set(0);
+        try {
+            Sessions loaded = new Sessions();
+            long afterId = 0;
+            List<UserSession> chunk;
+            do {
+                chunk = sessionRepository.findActiveAfter(afterId, PageRequest.of(0, rebuildPageSize));
+                chunk.forEach(session -> loaded.put(copy(session)));
+                if (!chunk.isEmpty()) {
+                    afterId = chunk.get(chunk.size() - 1).getId();
+                }
+            } while (chunk.size() == rebuildPageSize);
+            sessions = loaded;
+            activeSessionsDirty = true;
+
+            RecentMessages reloaded = new RecentMessages(recentMessages);
+            messageRepository.findAll(PageRequest.of(0, recentMessages,
+                    Sort.by(Sort.Order.desc("timestamp"), Sort.Order.desc("id"))))
+                    .forEach(message -> reloaded.put(copy(message)));
+            recent = reloaded;
+            deepCursors.clear();
+
+            rebuilds.increment();
+            notifyListener(ChangeListener::rebuilt);
+            lastRebuiltAt = LocalDateTime.now();
+            lastRebuildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            log.debug("Read model rebuilt in {} ms", lastRebuildMillis);
+            return true;
+        } catch (RuntimeException e) {
+            // Still stale; the projector retries shortly
+            lostSinceNanos.compareAndSet(0, lostSince != 0 ? lostSince : start);
+            log.error("Read model rebuild failed: {}", e.getMessage());
+            return false;
+        } finally {
+            applyingSinceNanos = 0;
+        }
+    }
+
+    private void applySession(UserSession session) {
+        UserSession current = sessions.byPhone.get(session.getPhoneNumber());
+        if (current != null && current.getUpdatedAt() != null && session.getUpdatedAt() != null
+                && session.getUpdatedAt().isBefore(current.getUpdatedAt())) {
+            return;
+        }
+        sessions.put(session);
+        activeSessionsDirty = true;
+        notifyListener(changes -> changes.sessionChanged(session));
+    }
+
+    private static boolean idleSince(UserSession session, LocalDateTime cutoff) {
+        return session.getUpdatedAt() != null && session.getUpdatedAt().isBefore(cutoff);
+    }
+
+    private void notifyListener(Consumer<ChangeListener> notification) {
+        ChangeListener current = listener;
+        if (current == null) {
+            return;
+        }
+        try {
+            notification.accept(current);
+        } catch (RuntimeException e) {
+            // The views are applied either way
+            log.warn("Read model change listener failed: {}", e.getMessage());
+        }
+    }
+
+    private static UserSession copy(UserSession session) {
+        return new UserSession(session.getId(), session.getPhoneNumber(), session.getCurrentState(),
+                session.getNavigationPath(), session.getUserPreferences(), session.getCreatedAt(),
+                session.getUpdatedAt(), session.getSessionActive());
+    }
+
+    private static WhatsAppMessage copy(WhatsAppMessage message) {
+        return new WhatsAppMessage(message.getId(), message.getMessageId(), message.getFromNumber(),
+                message.getToNumber(), message.getMessageText(), message.getMessageType(), message.getTimestamp(),
+                message.getStatus(), message.getDirection(), message.getConversationId());
+    }
+
+    /**
+     * Sessions by number, with the active ones kept in listing order so a
+     * change costs a log-time update rather than a re-sort on the next read.
+     * Written by the projector only; a rebuild swaps in a new instance.
+     */
+    private static final class Sessions {
+        final Map<String, UserSession> byPhone = new ConcurrentHashMap<>();
+        final ConcurrentSkipListSet<UserSession> active = new ConcurrentSkipListSet<>(LATEST_FIRST);
+
+        void put(UserSession session) {
+            UserSession previous = byPhone.put(session.getPhoneNumber(), session);
+            if (previous != null) {
+                active.remove(previous);
+            }
+            if (Boolean.TRUE.equals(session.getSessionActive())) {
+                active.add(session);
+            }
+        }
+
+        void remove(String phoneNumber) {
+            UserSession previous = byPhone.remove(phoneNumber);
+            if (previous != null) {
+                active.remove(previous);
+            }
+        }
+    }
+
+    /**
+     * The newest messages, newest first. Only the projector writes; readers
+     * iterate the skip list concurrently. A rebuild fills a new instance and
+     * swaps it in, so readers never see a half-loaded window.
+     */
+    private static final class RecentMessages {
+        final int capacity;
+        final ConcurrentSkipListMap<MessageKey, WhatsAppMessage> byTime = new ConcurrentSkipListMap<>();
+        final Map<String, MessageKey> keys = new ConcurrentHashMap<>();
+        final AtomicInteger count = new AtomicInteger();
+
+        RecentMessages(int capacity) {
+            this.capacity = capacity;
+        }
+
+        int size() {
+            return count.get();
+        }
+
+        void put(WhatsAppMessage message) {
+            MessageKey key = new MessageKey(message.getTimestamp(), message.getId() != null ? message.getId() : 0L);
+            MessageKey previous = keys.put(message.getMessageId(), key);
+            if (previous == null) {
+                count.incrementAndGet();
+            } else if (!previous.equals(key)) {
+                byTime.remove(previous);
+            }
+            byTime.put(key, message);
+            while (count.get() > capacity) {
+                Map.Entry<MessageKey, WhatsAppMessage> oldest = byTime.pollLastEntry();
+                if (oldest == null) {
+                    break;
+                }
+                keys.remove(oldest.getValue().getMessageId());
+                count.decrementAndGet();
+            }
+        }
+
+        /** Update a message still in the window; one that has left it stays out */
+        void replace(WhatsAppMessage message) {
+            if (keys.containsKey(message.getMessageId())) {
+                put(message);
+            }
+        }
+
+        void remove(String messageId) {
+            MessageKey key = keys.remove(messageId);
+            if (key != null) {
+                byTime.remove(key);
+                count.decrementAndGet();
+            }
+        }
+
+        /** The oldest message's key, or null while the window is empty */
+        MessageKey oldest() {
+            Map.Entry<MessageKey, WhatsAppMessage> last = byTime.lastEntry();
+            return last != null ? last.getKey() : null;
+        }
+
+        List<WhatsAppMessage> page(long offset, int size) {
+            List<WhatsAppMessage> content = new ArrayList<>(size);
+            Iterator<WhatsAppMessage> newest = byTime.values().iterator();
+            for (long skip = offset; skip > 0 && newest.hasNext(); skip--) {
+                newest.next();
+            }
+            while (content.size() < size && newest.hasNext()) {
+                content.add(newest.next());
+            }
+            return content;
+        }
+    }
+
+    /**
+     * A queued change and when it was handed over
+     */
+    private static final class Change {
+        final long submittedNanos;
+        final Runnable apply;
+
+        Change(long submittedNanos, Runnable apply) {
+            this.submittedNanos = submittedNanos;
+            this.apply = apply;
+        }
+    }
+
+    /**
+     * Orders recent messages newest first, as the management API lists them
+     */
+    private static final class MessageKey implements Comparable<MessageKey> {
+        /** Later than any stored message */
+        static final MessageKey NEWEST = new MessageKey(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+        final LocalDateTime timestamp;
+        final long id;
+
+        MessageKey(LocalDateTime timestamp, long id) {
+            this.timestamp = timestamp;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(MessageKey other) {
+            int byTime = other.timestamp.compareTo(timestamp);
+            return byTime != 0 ? byTime : Long.compare(other.id, id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof MessageKey other && id == other.id && timestamp.equals(other.timestamp);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(id) * 31 + timestamp.hashCode();
+        }
+    }
+}
@@ -0,0 +1,543 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.config.DurableDirectories;
+import com.whatsapp.chatbot.model.UserSession;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.ConversationRepository;
+import com.whatsapp.chatbot.repository.UserSessionRepository;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import com.whatsapp.chatbot.retention.RetentionCheckpoint;
+import com.whatsapp.chatbot.retention.RetentionStats;
+import com.whatsapp.chatbot.retention.RetentionWindow;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service purging data past its retention period: idle sessions are
+ * deactivated, long-inactive sessions deleted, and old messages and
+ * conversation summaries deleted or anonymized, in the database and in the
+ * message archive.
+ *
+ * Rows are processed in keyset-ordered chunks, one short transaction each,
+ * so a concurrent writer waits at most one chunk for a row lock. Chunks
+ * shrink when they run long or hit lock conflicts, and are paced by a pause
+ * and a rows-per-second cap. The job only runs inside its daily window and
+ * stops when the window closes; each task's cursor is checkpointed after
+ * every chunk, so the next run resumes where the last one stopped.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RetentionService {
+
+    /** What anonymized numbers are replaced with */
+    public static final String ANONYMIZED = "anonymized";
+
+    private static final int MIN_CHUNK = 10;
+    private static final int MAX_LOCK_RETRIES = 5;
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final UserSessionRepository sessionRepository;
+    private final WhatsAppMessageRepository messageRepository;
+    private final ConversationRepository conversationRepository;
+    private final ArchiveService archiveService;
+    private final StatisticsService statisticsService;
+    private final ReadModelService readModelService;
+    private final SearchService searchService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${retention.window:02:00-05:00}")
+    private String window;
+
+    @Value("${retention.messages-days:365}")
+    private long messagesDays;
+
+    @Value("${retention.messages-mode:delete}")
+    private String messagesMode;
+
+    @Value("${retention.sessions-days:180}")
+    private long sessionsDays;
+
+    @Value("${retention.session-idle-hours:24}")
+    private long sessionIdleHours;
+
+    @Value("${retention.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${retention.chunk-pause-millis:50}")
+    private long chunkPauseMillis;
+
+    @Value("${retention.max-chunk-millis:200}")
+    private long maxChunkMillis;
+
+    @Value("${retention.max-rows-per-second:5000}")
+    private long maxRowsPerSecond;
+
+    @Value("${retention.check-interval-minutes:15}")
+    private long checkIntervalMinutes;
+
+    @Value("${retention.directory:}")
+    private String directory;
+
+    @Value("${storage.allow-temp-directories:false}")
+    private boolean allowTempDirectories;
+
+    private RetentionWindow runWindow;
+    private boolean anonymize;
+    private RetentionCheckpoint checkpoint;
+    private TransactionTemplate transactions;
+    private ScheduledExecutorService scheduler;
+    private volatile int currentChunk;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder interruptedRuns = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder chunkNanos = new LongAdder();
+    private final AtomicLong maxChunkNanos = new AtomicLong();
+    private final LongAdder lockConflicts = new LongAdder();
+    private final LongAdder archivedRowsDropped = new LongAdder();
+    private final Map<String, LongAdder> rowsByTask = new ConcurrentHashMap<>();
+    private volatile LocalDateTime lastRunAt;
+    private volatile long lastRunRows;
+    private volatile long lastRunMillis;
+    private volatile double lastRunRowsPerSecond;
+
+    @PostConstruct
+    public void initialize() throws IOException {
+        runWindow = RetentionWindow.parse(window);
+        if (!"delete".equals(messagesMode) && !"anonymize".equals(messagesMode)) {
+            throw new IllegalArgumentException("retention.messages-mode must be delete or anonymize: " + messagesMode);
+        }
+        anonymize = "anonymize".equals(messagesMode);
+        Optional<String> problem = DurableDirectories.problem(directory, allowTempDirectories);
+        if (problem.isPresent()) {
+            // Losing the cursors only means the next run after a restart rescans from the start
+            log.warn("Retention checkpoints kept in memory: {}. Set retention.directory to durable storage to "
+                    + "resume across restarts.", problem.get());
+            checkpoint = RetentionCheckpoint.inMemory();
+        } else {
+            checkpoint = RetentionCheckpoint.load(Path.of(directory, "checkpoint.properties"));
+        }
+        transactions = new TransactionTemplate(transactionManager);
+        currentChunk = chunkSize;
+        // Also runs requested runs, which are allowed while scheduled runs are disabled
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!enabled) {
+            log.info("Data retention disabled");
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::scheduledRun, checkIntervalMinutes, checkIntervalMinutes,
+                TimeUnit.MINUTES);
+        log.info("Data retention runs {}: messages {} after {} days, sessions deleted {} days after going inactive",
+                runWindow, anonymize ? "anonymized" : "deleted", messagesDays, sessionsDays);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Start a run on the retention thread, stopping early when the window closes unless forced
+     *
+     * @return false if a run is already in progress
+     */
+    public boolean requestRun(boolean force) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            scheduler.execute(() -> {
+                try {
+                    runClaimed(force);
+                } catch (RuntimeException e) {
+                    log.error("Requested retention run failed: {}", e.getMessage(), e);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            running.set(false);
+            return false;
+        }
+    }
+
+    /**
+     * Run every retention task, stopping early when the window closes unless forced
+     *
+     * @return the number of rows processed, or -1 if a run was already in progress
+     */
+    public long run(boolean force) {
+        if (!running.compareAndSet(false, true)) {
+            return -1;
+        }
+        return runClaimed(force);
+    }
+
+    /**
+     * The run itself, once this thread has set the running flag; clears it when done
+     */
+    private long runClaimed(boolean force) {
+        Run run = new Run(force);
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            boolean finished = deactivateIdleSessions(run, now.minusHours(sessionIdleHours))
+                    && (sessionsDays <= 0 || deleteInactiveSessions(run, now.minusDays(sessionsDays)))
+                    && (messagesDays <= 0 || purgeMessages(run, now.minusDays(messagesDays)));
+            if (finished) {
+                runs.increment();
+            } else {
+                interruptedRuns.increment();
+                log.info("Retention run stopped at the end of its window; it resumes from the checkpoint");
+            }
+        } catch (InterruptedException e) {
+            interruptedRuns.increment();
+            Thread.currentThread().interrupt();
+        } finally {
+            long millis = (System.nanoTime() - run.startNanos) / 1_000_000;
+            lastRunAt = now;
+            lastRunRows = run.rows;
+            lastRunMillis = millis;
+            lastRunRowsPerSecond = run.workNanos > 0 ? run.rows / (run.workNanos / 1e9) : 0;
+            if (run.rows > 0) {
+                // Chunks bypass the per-row statistics hooks; recount once at the end
+                statisticsService.reconcile();
+                log.info("Retention processed {} rows in {} ms", run.rows, millis);
+            }
+            running.set(false);
+        }
+        return run.rows;
+    }
+
+    public RetentionStats getStats() {
+        long chunkCount = chunks.sum();
+        Map<String, Long> byTask = new TreeMap<>();
+        rowsByTask.forEach((task, rows) -> byTask.put(task, rows.sum()));
+        return new RetentionStats(enabled, runWindow.toString(), runWindow.contains(LocalTime.now()), running.get(),
+                runs.sum(), interruptedRuns.sum(), lastRunAt, lastRunRows, lastRunMillis, lastRunRowsPerSecond,
+                byTask, chunkCount, currentChunk,
+                chunkCount == 0 ? 0 : chunkNanos.sum() / 1e6 / chunkCount, maxChunkNanos.get() / 1_000_000,
+                lockConflicts.sum(), archivedRowsDropped.sum());
+    }
+
+    private void scheduledRun() {
+        if (!runWindow.contains(LocalTime.now())) {
+            return;
+        }
+        try {
+            run(false);
+        } catch (RuntimeException e) {
+            log.error("Scheduled retention run failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Deactivate sessions idle since before the cutoff. Session ids are not
+     * in update order, so the cursor only spans one pass.
+     */
+    private boolean deactivateIdleSessions(Run run, LocalDateTime cutoff) throws InterruptedException {
+        String key = "sessions.idle.after-id";
+        return runTask(run, "sessions.deactivated", limit -> {
+            List<UserSession> idle = sessionRepository.findIdleAfter(checkpoint.getLong(key), cutoff,
+                    PageRequest.of(0, limit));
+            List<Long> ids = idle.stream().map(UserSession::getId).toList();
+            int changed = ids.isEmpty() ? 0 : sessionRepository.deactivateIdle(ids, cutoff);
+            return new ChunkResult(ids.size(), changed, () -> {
+                readModelService.sessionsDeactivated(idle, cutoff);
+                checkpoint.set(key, ids.size() < limit ? null : ids.get(ids.size() - 1));
+            });
+        });
+    }
+
+    private boolean deleteInactiveSessions(Run run, LocalDateTime cutoff) throws InterruptedException {
+        String key = "sessions.expired.after-id";
+        return runTask(run, "sessions.deleted", limit -> {
+            List<UserSession> expired = sessionRepository.findInactiveAfter(checkpoint.getLong(key), cutoff,
+                    PageRequest.of(0, limit));
+            List<Long> ids = expired.stream().map(UserSession::getId).toList();
+            int changed = ids.isEmpty() ? 0 : sessionRepository.deleteInactive(ids, cutoff);
+            return new ChunkResult(ids.size(), changed, () -> {
+                readModelService.sessionsDeleted(expired, cutoff);
+                checkpoint.set(key, ids.size() < limit ? null : ids.get(ids.size() - 1));
+            });
+        });
+    }
+
+    private boolean purgeMessages(Run run, LocalDateTime cutoff) throws InterruptedException {
+        return purgeMessageRows(run, cutoff) && purgeConversations(run, cutoff) && purgeArchive(run, cutoff);
+    }
+
+    /**
+     * Delete or anonymize messages in (timestamp, id) order. Deleted rows are
+     * gone, so deletes always start from the oldest; anonymized rows stay, so
+     * their cursor carries over between runs.
+     */
+    private boolean purgeMessageRows(Run run, LocalDateTime cutoff) throws InterruptedException {
+        String timestampKey = "messages.anonymized.after-timestamp";
+        String idKey = "messages.anonymized.after-id";
+        return runTask(run, anonymize ? "messages.anonymized" : "messages.deleted", limit -> {
+            String afterTimestamp = anonymize ? checkpoint.get(timestampKey) : null;
+            long afterId = anonymize ? checkpoint.getLong(idKey) : 0L;
+            List<WhatsAppMessage> batch = messageRepository.findExpiredAfter(cutoff,
+                    afterTimestamp == null ? EPOCH : LocalDateTime.parse(afterTimestamp), afterId,
+                    PageRequest.of(0, limit));
+            if (batch.isEmpty()) {
+                return new ChunkResult(0, 0, () -> { });
+            }
+            List<Long> ids = batch.stream().map(WhatsAppMessage::getId).toList();
+            int changed;
+            if (anonymize) {
+                changed = messageRepository.anonymize(ids, ANONYMIZED);
+            } else {
+                messageRepository.deleteAllByIdInBatch(ids);
+                changed = ids.size();
+            }
+            WhatsAppMessage last = batch.get(batch.size() - 1);
+            return new ChunkResult(batch.size(), changed, () -> {
+                searchService.messagesRemoved(ids);
+                if (anonymize) {
+                    // Committed by now, so changing the loaded rows no longer reaches the database
+                    readModelService.messagesUpdated(batch.stream().map(RetentionService::anonymized).toList());
+                    checkpoint.set(timestampKey, last.getTimestamp());
+                    checkpoint.set(idKey, last.getId());
+                } else {
+                    statisticsService.messagesRemoved(batch);
+                    readModelService.messagesRemoved(batch);
+                }
+            });
+        });
+    }
+
+    /**
+     * Delete or anonymize conversation summaries. Their ids are random, so
+     * the cursor only spans one pass and anonymized rows are skipped instead.
+     */
+    private boolean purgeConversations(Run run, LocalDateTime cutoff) throws InterruptedException {
+        String key = "conversations.after-id";
+        return runTask(run, anonymize ? "conversations.anonymized" : "conversations.deleted", limit -> {
+            String afterId = checkpoint.get(key);
+            List<String> ids = conversationRepository.findExpiredIdsAfter(afterId == null ? "" : afterId, cutoff,
+                    anonymize ? ANONYMIZED : "", PageRequest.of(0, limit));
+            int changed = 0;
+            if (!ids.isEmpty() && anonymize) {
+                changed = conversationRepository.anonymize(ids, ANONYMIZED);
+            } else if (!ids.isEmpty()) {
+                conversationRepository.deleteAllByIdInBatch(ids);
+                changed = ids.size();
+            }
+            return new ChunkResult(ids.size(), changed,
+                    () -> checkpoint.set(key, ids.size() < limit ? null : ids.get(ids.size() - 1)));
+        });
+    }
+
+    /**
+     * Drop whole expired archive segments, or rewrite the ones that expired
+     * since the last run with anonymized messages
+     */
+    private boolean purgeArchive(Run run, LocalDateTime cutoff) throws InterruptedException {
+        if (!archiveService.isAvailable()) {
+            return true;
+        }
+        if (!run.mayContinue()) {
+            return false;
+        }
+        long start = System.nanoTime();
+        long rows;
+        if (anonymize) {
+            String rewrittenBefore = checkpoint.get("archive.rewritten-before");
+            List<Long> rewritten = new ArrayList<>();
+            rows = archiveService.rewriteBetween(rewrittenBefore == null ? EPOCH : LocalDateTime.parse(rewrittenBefore),
+                    cutoff, message -> {
+                        rewritten.add(message.getId());
+                        return anonymized(message);
+                    });
+            searchService.messagesRemoved(rewritten);
+            checkpoint.set("archive.rewritten-before", cutoff);
+            saveCheckpoint();
+            rowsByTask.computeIfAbsent("archive.anonymized", task -> new LongAdder()).add(rows);
+        } else {
+            List<Long> dropped = new ArrayList<>();
+            rows = archiveService.dropBefore(cutoff, dropped::add);
+            searchService.messagesRemoved(dropped);
+            archivedRowsDropped.add(rows);
+            rowsByTask.computeIfAbsent("archive.deleted", task -> new LongAdder()).add(rows);
+        }
+        run.rows += rows;
+        run.workNanos += System.nanoTime() - start;
+        return true;
+    }
+
+    private static WhatsAppMessage anonymized(WhatsAppMessage message) {
+        message.setMessageText(null);
+        if ("OUTBOUND".equals(message.getDirection())) {
+            message.setToNumber(ANONYMIZED);
+        } else {
+            message.setFromNumber(ANONYMIZED);
+        }
+        return message;
+    }
+
+    /**
+     * Run chunks of a task until one comes back short
+     *
+     * @return false if the run has to stop before the task finished
+     */
+    private boolean runTask(Run run, String task, Chunk chunk) throws InterruptedException {
+        while (true) {
+            if (!run.mayContinue()) {
+                return false;
+            }
+            if (!runChunk(run, task, chunk)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Run one chunk in its own transaction, retrying with a smaller chunk after a lock conflict
+     *
+     * @return whether the chunk was full, so there may be more to do
+     */
+    private boolean runChunk(Run run, String task, Chunk chunk) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            int limit = currentChunk;
+            long start = System.nanoTime();
+            ChunkResult result;
+            try {
+                result = transactions.execute(status -> chunk.apply(limit));
+            } catch (PessimisticLockingFailureException e) {
+                lockConflicts.increment();
+                currentChunk = Math.max(MIN_CHUNK, currentChunk / 2);
+                if (attempt == MAX_LOCK_RETRIES) {
+                    throw e;
+                }
+                log.warn("Retention chunk for {} hit a lock conflict, retrying with {} rows: {}",
+                        task, currentChunk, e.getMessage());
+                Thread.sleep(Math.max(chunkPauseMillis, 1) << attempt);
+                continue;
+            }
+            long nanos = System.nanoTime() - start;
+            result.afterCommit.run();
+            saveCheckpoint();
+
+            chunks.increment();
+            chunkNanos.add(nanos);
+            maxChunkNanos.accumulateAndGet(nanos, Math::max);
+            rowsByTask.computeIfAbsent(task, key -> new LongAdder()).add(result.changed);
+            run.rows += result.changed;
+            run.workNanos += nanos;
+            resize(nanos);
+            if (result.selected < limit) {
+                return false;
+            }
+            pause(result.changed, nanos);
+            return true;
+        }
+    }
+
+    /**
+     * Halve the chunk when it held its locks too long, grow it back towards the configured size otherwise
+     */
+    private void resize(long chunkNanos) {
+        long millis = chunkNanos / 1_000_000;
+        if (millis > maxChunkMillis) {
+            currentChunk = Math.max(MIN_CHUNK, currentChunk / 2);
+        } else if (millis < maxChunkMillis / 2 && currentChunk < chunkSize) {
+            currentChunk = Math.min(chunkSize, currentChunk + Math.max(1, currentChunk / 4));
+        }
+    }
+
+    /**
+     * Give concurrent writers room between chunks, at least long enough to keep under the rate cap
+     */
+    private void pause(int rows, long chunkNanos) throws InterruptedException {
+        long millis = chunkPauseMillis;
+        if (maxRowsPerSecond > 0) {
+            long capNanos = rows * 1_000_000_000L / maxRowsPerSecond;
+            millis = Math.max(millis, (capNanos - chunkNanos) / 1_000_000);
+        }
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    private void saveCheckpoint() {
+        try {
+            checkpoint.save();
+        } catch (IOException e) {
+            // The cursors are still held in memory; only a restart would lose them
+            log.warn("Could not save retention checkpoint in {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * One chunk of a task, run inside a transaction
+     */
+    private interface Chunk {
+        ChunkResult apply(int limit);
+    }
+
+    private static final class ChunkResult {
+        final int selected;
+        final int changed;
+        /** Advances the task's cursor and notifies the in-memory views once the chunk has committed */
+        final Runnable afterCommit;
+
+        ChunkResult(int selected, int changed, Runnable afterCommit) {
+            this.selected = selected;
+            this.changed = changed;
+            this.afterCommit = afterCommit;
+        }
+    }
+
+    private final class Run {
+        final boolean force;
+        final long startNanos = System.nanoTime();
+        long rows;
+        long workNanos;
+
+        Run(boolean force) {
+            this.force = force;
+        }
+
+        boolean mayContinue() {
+            return !Thread.currentThread().isInterrupted() && (force || runWindow.contains(LocalTime.now()));
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.config.DurableDirectories;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.rollup.FunnelStep;
+import com.whatsapp.chatbot.rollup.Resolution;
+import com.whatsapp.chatbot.rollup.RollupEngine;
+import com.whatsapp.chatbot.rollup.RollupPoint;
+import com.whatsapp.chatbot.rollup.RollupStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service recording conversation traffic and session state changes into
+ * in-memory rollups (per minute, hour and day), so traffic and funnel
+ * questions are answered without touching the message or session tables.
+ * Rollups are snapshotted to a local file periodically and on shutdown,
+ * and reloaded at startup; the snapshot is their only copy, so without a
+ * durable directory they are kept in memory only. Buckets are UTC.
+ */
+@Service
+@Slf4j
+public class RollupService {
+
+    private static final String SNAPSHOT_FILE = "rollups.bin.gz";
+
+    @Value("${rollups.minute-buckets:1440}")
+    private int minuteBuckets;
+
+    @Value("${rollups.hour-buckets:720}")
+    private int hourBuckets;
+
+    @Value("${rollups.day-buckets:365}")
+    private int dayBuckets;
+
+    @Value("${rollups.max-series:256}")
+    private int maxSeries;
+
+    @Value("${rollups.directory:}")
+    private String directory;
+
+    @Value("${storage.allow-temp-directories:false}")
+    private boolean allowTempDirectories;
+
+    @Value("${rollups.persist-interval-seconds:60}")
+    private long persistIntervalSeconds;
+
+    private RollupEngine engine;
+    private ScheduledExecutorService scheduler;
+    private boolean persistent;
+
+    private final AtomicLong persistedBytes = new AtomicLong();
+    private final AtomicLong lastPersistMillis = new AtomicLong();
+
+    @PostConstruct
+    public void initialize() {
+        engine = new RollupEngine(minuteBuckets, hourBuckets, dayBuckets, maxSeries);
+        Optional<String> problem = DurableDirectories.problem(directory, allowTempDirectories);
+        if (problem.isPresent()) {
+            log.warn("Rollups kept in memory only: {}. Set rollups.directory to durable storage to keep "
+                    + "rollup history across restarts.", problem.get());
+            return;
+        }
+        persistent = true;
+        Path snapshot = Path.of(directory, SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(snapshot), 64 * 1024)) {
+                engine.readFrom(in);
+                log.info("Loaded {} rollup series from {}", engine.seriesNames().size(), snapshot);
+            } catch (IOException | RuntimeException e) {
+                log.error("Could not load rollups from {}, starting empty: {}", snapshot, e.getMessage());
+                engine = new RollupEngine(minuteBuckets, hourBuckets, dayBuckets, maxSeries);
+            }
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rollup-persister");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::persistQuietly, persistIntervalSeconds, persistIntervalSeconds,
+                TimeUnit.SECONDS);
+        log.info("Rollups ready: {} minutes, {} hours, {} days; persisted every {} s to {}",
+                minuteBuckets, hourBuckets, dayBuckets, persistIntervalSeconds, directory);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (persistent) {
+            persistQuietly();
+        }
+    }
+
+    /**
+     * Count a message in the direction and type series
+     */
+    public void messageLogged(WhatsAppMessage message) {
+        long now = System.currentTimeMillis();
+        if (message.getDirection() != null) {
+            engine.record("messages." + message.getDirection().toLowerCase(Locale.ROOT), now, 1);
+        }
+        if (message.getMessageType() != null) {
+            engine.record("messages.type." + message.getMessageType(), now, 1);
+        }
+    }
+
+    /**
+     * Count a session entering a state, and the transition when it came from another one
+     *
+     * @param previousState null for a new session
+     */
+    public void stateChanged(String previousState, String newState) {
+        if (newState == null || Objects.equals(previousState, newState)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        engine.record(RollupEngine.stateSeries(newState), now, 1);
+        if (previousState != null) {
+            engine.record(RollupEngine.transitionSeries(previousState, newState), now, 1);
+        }
+    }
+
+    public List<RollupPoint> query(Collection<String> series, Resolution resolution, long fromMillis, long toMillis) {
+        return engine.query(series, resolution, fromMillis, toMillis);
+    }
+
+    public List<FunnelStep> funnel(List<String> states, Resolution resolution, long fromMillis, long toMillis) {
+        return engine.funnel(states, resolution, fromMillis, toMillis);
+    }
+
+    public List<String> getSeriesNames() {
+        return engine.seriesNames();
+    }
+
+    public RollupStats getStats() {
+        return engine.stats();
+    }
+
+    /**
+     * How far back a resolution's tier reaches
+     */
+    public long getRetentionMillis(Resolution resolution) {
+        int buckets = switch (resolution) {
+            case MINUTE -> minuteBuckets;
+            case HOUR -> hourBuckets;
+            case DAY -> dayBuckets;
+        };
+        return buckets * resolution.getMillis();
+    }
+
+    public boolean isPersistent() {
+        return persistent;
+    }
+
+    public long getPersistedBytes() {
+        return persistedBytes.get();
+    }
+
+    public long getLastPersistMillis() {
+        return lastPersistMillis.get();
+    }
+
+    /**
+     * Write a snapshot beside the current one, then swap it in; nothing
+     * without a durable directory
+     */
+    public synchronized void persist() throws IOException {
+        if (!persistent) {
+            return;
+        }
+        long start = System.nanoTime();
+        Path target = Path.of(directory, SNAPSHOT_FILE);
+        Path temporary = Path.of(directory, SNAPSHOT_FILE + ".tmp");
+        Files.createDirectories(target.getParent());
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temporary), 64 * 1024)) {
+            engine.writeTo(out);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        persistedBytes.set(Files.size(target));
+        lastPersistMillis.set((System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void persistQuietly() {
+        try {
+            persist();
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not persist rollups to {}: {}", directory, e.getMessage());
+        }
+    }
+}
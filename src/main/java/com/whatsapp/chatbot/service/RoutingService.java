@@ -0,0 +1,297 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.cache.CacheStats;
+import com.whatsapp.chatbot.cache.QueryCache;
+import com.whatsapp.chatbot.geo.PoiHit;
+import com.whatsapp.chatbot.routing.AlternativeRoutes;
+import com.whatsapp.chatbot.routing.EdgeWeights;
+import com.whatsapp.chatbot.routing.PlannedRoute;
+import com.whatsapp.chatbot.routing.RoadGraph;
+import com.whatsapp.chatbot.routing.RoadGraphBuilder;
+import com.whatsapp.chatbot.routing.RoadGraphLoader;
+import com.whatsapp.chatbot.routing.RoutePath;
+import com.whatsapp.chatbot.routing.Router;
+import com.whatsapp.chatbot.routing.Tour;
+import com.whatsapp.chatbot.routing.TourOptimizer;
+import com.whatsapp.chatbot.routing.TravelTimeMatrix;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Service for road routing on the embedded road graph
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RoutingService {
+
+    private final ResourceLoader resourceLoader;
+
+    @Value("${routing.graph.nodes-path:classpath:data/road-nodes.csv}")
+    private String nodesPath;
+
+    @Value("${routing.graph.edges-path:classpath:data/road-edges.csv}")
+    private String edgesPath;
+
+    @Value("${routing.graph.cache-path:${java.io.tmpdir}/whatsapp-chatbot/road-graph.bin}")
+    private String cachePath;
+
+    @Value("${routing.graph.cell-size-degrees:0.01}")
+    private double cellSizeDegrees;
+
+    @Value("${routing.snap-radius-meters:2000}")
+    private double snapRadiusMeters;
+
+    @Value("${cache.route.maximum-size:20000}")
+    private int cacheMaximumSize;
+
+    @Value("${cache.route.ttl-seconds:120}")
+    private long cacheTtlSeconds;
+
+    @Value("${routing.planned-route.ttl-minutes:60}")
+    private long plannedRouteTtlMinutes;
+
+    @Value("${routing.alternatives.count:3}")
+    private int alternativeCount;
+
+    @Value("${routing.alternatives.deadline-millis:200}")
+    private long alternativesDeadlineMillis;
+
+    @Value("${routing.optimization.max-stops:25}")
+    private int maxOptimizedStops;
+
+    @Value("${routing.optimization.time-box-millis:1000}")
+    private long optimizationTimeBoxMillis;
+
+    @Value("${routing.parallelism:0}")
+    private int parallelism;
+
+    private volatile Router router;
+
+    private volatile AlternativeRoutes alternativeRoutes;
+
+    private volatile TourOptimizer tourOptimizer;
+
+    private ForkJoinPool searchPool;
+
+    private QueryCache<Long, Optional<RoutePath>> routeCache;
+
+    private QueryCache<String, PlannedRoute> plannedRoutes;
+
+    private QueryCache<String, List<RoutePath>> shownAlternatives;
+
+    @PostConstruct
+    public void initialize() {
+        routeCache = new QueryCache<>("route", cacheMaximumSize, Duration.ofSeconds(cacheTtlSeconds));
+        plannedRoutes = new QueryCache<>("planned-route", cacheMaximumSize, Duration.ofMinutes(plannedRouteTtlMinutes));
+        shownAlternatives = new QueryCache<>("alternative-routes", cacheMaximumSize,
+                Duration.ofMinutes(plannedRouteTtlMinutes));
+
+        if (nodesPath == null || nodesPath.isBlank() || edgesPath == null || edgesPath.isBlank()) {
+            log.info("No road graph configured, routing disabled");
+            return;
+        }
+
+        try {
+            long started = System.nanoTime();
+            RoadGraph graph = loadGraph();
+            router = new Router(graph);
+            searchPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+            alternativeRoutes = new AlternativeRoutes(router, searchPool);
+            tourOptimizer = new TourOptimizer(searchPool);
+            log.info("Road graph ready: {} nodes, {} edges in {} ms",
+                    graph.nodeCount(), graph.edgeCount(), (System.nanoTime() - started) / 1_000_000);
+        } catch (Exception e) {
+            log.warn("Road graph load failed: {}. Route planning will be unavailable.", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (searchPool != null) {
+            searchPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Map the preprocessed graph file if it was built from the same sources,
+     * otherwise rebuild from the CSV extracts and refresh the file.
+     */
+    private RoadGraph loadGraph() throws IOException {
+        Resource nodes = resourceLoader.getResource(nodesPath);
+        Resource edges = resourceLoader.getResource(edgesPath);
+        long fingerprint = fingerprint(nodes, edges);
+        Path cacheFile = Path.of(cachePath);
+
+        if (RoadGraph.readFingerprint(cacheFile) == fingerprint) {
+            log.debug("Mapping preprocessed road graph from {}", cacheFile);
+            return RoadGraph.map(cacheFile);
+        }
+
+        RoadGraphBuilder builder = new RoadGraphBuilder(cellSizeDegrees);
+        int skipped;
+        try (InputStream nodeInput = nodes.getInputStream(); InputStream edgeInput = edges.getInputStream()) {
+            skipped = RoadGraphLoader.loadCsv(nodeInput, edgeInput, builder);
+        }
+        RoadGraph graph = builder.build(fingerprint);
+        log.info("Built road graph from CSV ({} rows skipped)", skipped);
+
+        try {
+            graph.write(cacheFile);
+            log.info("Wrote preprocessed road graph to {}", cacheFile);
+        } catch (IOException e) {
+            log.warn("Could not write road graph cache {}: {}", cacheFile, e.getMessage());
+        }
+        return graph;
+    }
+
+    private long fingerprint(Resource... resources) throws IOException {
+        long hash = Double.doubleToLongBits(cellSizeDegrees);
+        for (Resource resource : resources) {
+            hash = 31 * hash + resource.getDescription().hashCode();
+            hash = 31 * hash + resource.contentLength();
+            try {
+                hash = 31 * hash + resource.lastModified();
+            } catch (IOException e) {
+                // Not all resource types expose a modification time
+            }
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Fastest route between two coordinates, each snapped to the nearest road node.
+     * Results are cached per snapped node pair for the configured TTL.
+     */
+    public Optional<RoutePath> route(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude) {
+        Router current = router;
+        if (current == null) {
+            return Optional.empty();
+        }
+
+        RoadGraph graph = current.getGraph();
+        int source = graph.nearestNode(fromLatitude, fromLongitude, snapRadiusMeters);
+        int target = graph.nearestNode(toLatitude, toLongitude, snapRadiusMeters);
+        if (source < 0 || target < 0) {
+            log.debug("Could not snap route endpoints to the road graph");
+            return Optional.empty();
+        }
+
+        long key = ((long) source << 32) | (target & 0xFFFFFFFFL);
+        return routeCache.get(key, () -> {
+            long started = System.nanoTime();
+            RoutePath path = current.route(source, target);
+            log.debug("Route {} -> {} computed in {} us ({} nodes settled)", source, target,
+                    (System.nanoTime() - started) / 1_000, path == null ? 0 : path.getSettledNodes());
+            return Optional.ofNullable(path);
+        });
+    }
+
+    /**
+     * Up to the configured number of routes between the endpoints of a planned
+     * path, fastest first, with whatever alternatives were found before the deadline
+     */
+    public List<RoutePath> alternatives(RoutePath path) {
+        AlternativeRoutes current = alternativeRoutes;
+        int[] nodes = path.getNodes();
+        if (current == null || nodes.length == 0) {
+            return List.of(path);
+        }
+
+        long started = System.nanoTime();
+        List<RoutePath> routes = current.find(nodes[0], nodes[nodes.length - 1], alternativeCount,
+                EdgeWeights.freeFlow(router.getGraph()), Duration.ofMillis(alternativesDeadlineMillis));
+        log.debug("Found {} routes {} -> {} in {} ms", routes.size(), nodes[0], nodes[nodes.length - 1],
+                (System.nanoTime() - started) / 1_000_000);
+        return routes.isEmpty() ? List.of(path) : routes;
+    }
+
+    /**
+     * Best visiting order for the stops, starting at the first one, found within
+     * the configured time box. Empty if routing is unavailable or a stop is off the road graph.
+     */
+    public Optional<Tour> optimizeStops(List<PoiHit> stops, boolean roundTrip) {
+        Router current = router;
+        TourOptimizer optimizer = tourOptimizer;
+        if (current == null || optimizer == null) {
+            return Optional.empty();
+        }
+
+        RoadGraph graph = current.getGraph();
+        int[] nodes = new int[stops.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = graph.nearestNode(stops.get(i).getLatitude(), stops.get(i).getLongitude(), snapRadiusMeters);
+            if (nodes[i] < 0) {
+                log.debug("Could not snap stop '{}' to the road graph", stops.get(i).getName());
+                return Optional.empty();
+            }
+        }
+
+        long started = System.nanoTime();
+        TravelTimeMatrix matrix = TravelTimeMatrix.compute(current, nodes, EdgeWeights.freeFlow(graph), searchPool);
+        long matrixDone = System.nanoTime();
+        Tour tour = optimizer.optimize(matrix, roundTrip, Duration.ofMillis(optimizationTimeBoxMillis));
+        log.debug("Optimized {} stops: matrix {} ms, search {} ms ({} iterations), {} -> {} ms",
+                nodes.length, (matrixDone - started) / 1_000_000, (System.nanoTime() - matrixDone) / 1_000_000,
+                tour.getIterations(), tour.getGivenOrderMillis(), tour.getDurationMillis());
+        return Optional.of(tour);
+    }
+
+    /**
+     * Remember the last route shown to a user so follow-up questions can refer to it
+     */
+    public void rememberRoute(String phoneNumber, PlannedRoute route) {
+        plannedRoutes.put(phoneNumber, route);
+    }
+
+    public Optional<PlannedRoute> getLastRoute(String phoneNumber) {
+        return Optional.ofNullable(plannedRoutes.getIfPresent(phoneNumber));
+    }
+
+    /**
+     * Remember the alternatives offered to a user so a later pick can refer to them by position
+     */
+    public void rememberAlternatives(String phoneNumber, List<RoutePath> routes) {
+        shownAlternatives.put(phoneNumber, List.copyOf(routes));
+    }
+
+    public Optional<RoutePath> getAlternative(String phoneNumber, int index) {
+        List<RoutePath> routes = shownAlternatives.getIfPresent(phoneNumber);
+        return routes == null || index < 0 || index >= routes.size() ? Optional.empty() : Optional.of(routes.get(index));
+    }
+
+    public CacheStats getCacheStats() {
+        return routeCache.stats();
+    }
+
+    public int getMaxOptimizedStops() {
+        return maxOptimizedStops;
+    }
+
+    public boolean isAvailable() {
+        return router != null;
+    }
+
+    public Router getRouter() {
+        return router;
+    }
+
+    public RoadGraph getGraph() {
+        Router current = router;
+        return current == null ? null : current.getGraph();
+    }
+}
@@ -0,0 +1,290 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.config.DurableDirectories;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import com.whatsapp.chatbot.search.MessageIndex;
+import com.whatsapp.chatbot.search.MessageTokenizer;
+import com.whatsapp.chatbot.search.SearchHit;
+import com.whatsapp.chatbot.search.SearchOrder;
+import com.whatsapp.chatbot.search.SearchResult;
+import com.whatsapp.chatbot.search.SearchStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service for full-text search over message history. Messages are indexed
+ * as the message log writer saves them and drop out of results when
+ * retention deletes or anonymizes them; archiving leaves them searchable.
+ *
+ * The index lives on local disk. On startup, messages written since its
+ * last flush are indexed again from the archive and the database in the
+ * background, so an index lost with the host is simply rebuilt; until that
+ * catch-up finishes, older matches may be missing. Being rebuildable, the
+ * index may live under the temp directory, but files removed there while
+ * running are only rebuilt at the next startup, so startup warns about it.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SearchService {
+
+    /** Prefix of the term holding a number's messages; the tokenizer never produces it */
+    private static final String NUMBER_TERM = "@";
+    private static final int MAX_LIMIT = 100;
+
+    private final WhatsAppMessageRepository messageRepository;
+    private final ArchiveService archiveService;
+
+    @Value("${search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.directory:${java.io.tmpdir}/whatsapp-chatbot/search}")
+    private String directory;
+
+    @Value("${storage.allow-temp-directories:false}")
+    private boolean allowTempDirectories;
+
+    @Value("${search.flush-docs:100000}")
+    private int flushDocs;
+
+    @Value("${search.merge-factor:10}")
+    private int mergeFactor;
+
+    @Value("${search.max-segment-docs:5000000}")
+    private long maxSegmentDocs;
+
+    @Value("${search.max-scored-matches:100000}")
+    private int maxScoredMatches;
+
+    @Value("${search.flush-interval-seconds:60}")
+    private long flushIntervalSeconds;
+
+    @Value("${search.catch-up-batch-size:5000}")
+    private int catchUpBatchSize;
+
+    private volatile MessageIndex index;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean caughtUp;
+    /** Lowest id indexed from the write path since startup; catch-up stops below it */
+    private final AtomicLong firstLiveId = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicBoolean maintenanceQueued = new AtomicBoolean();
+
+    private final LongAdder indexFailures = new LongAdder();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchMicros = new LongAdder();
+    private final AtomicLong maxSearchMicros = new AtomicLong();
+
+    @PostConstruct
+    public void initialize() {
+        if (!enabled) {
+            log.info("Message search disabled");
+            return;
+        }
+        try {
+            index = MessageIndex.open(Path.of(directory), flushDocs, mergeFactor, maxSegmentDocs);
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not open search index at {}, search disabled: {}", directory, e.getMessage());
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.execute(this::catchUp);
+        scheduler.scheduleWithFixedDelay(this::maintain, flushIntervalSeconds, flushIntervalSeconds, TimeUnit.SECONDS);
+        log.info("Search index ready at {}: {} segments, {} messages", directory, index.getSegmentCount(),
+                index.getDocs());
+        DurableDirectories.problem(directory, allowTempDirectories).ifPresent(problem -> log.warn(
+                "{}: if a temp cleaner removes index files, search results are missing until the next startup "
+                        + "rebuilds them. Set search.directory to durable storage to avoid that.", problem));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+            index.flush();
+        } catch (IOException e) {
+            log.warn("Could not flush search index on shutdown: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Index messages just written to the message table
+     */
+    public void messagesWritten(List<WhatsAppMessage> written) {
+        MessageIndex current = index;
+        if (current == null || written.isEmpty()) {
+            return;
+        }
+        written.forEach(message -> firstLiveId.accumulateAndGet(message.getId(), Math::min));
+        add(current, written);
+        if (current.needsFlush() && maintenanceQueued.compareAndSet(false, true)) {
+            scheduler.execute(this::maintain);
+        }
+    }
+
+    /**
+     * Drop deleted or anonymized messages from search results
+     */
+    public void messagesRemoved(Collection<Long> ids) {
+        MessageIndex current = index;
+        if (current != null && !ids.isEmpty()) {
+            current.delete(ids);
+        }
+    }
+
+    /**
+     * Messages containing every word of the query, optionally only those to or from one number
+     *
+     * @param beforeId only messages with smaller ids, to page through newest-first results
+     * @return empty when search is disabled
+     * @throws IllegalArgumentException if neither query words nor a number are given
+     */
+    public Optional<SearchResult> search(String query, String phoneNumber, SearchOrder order, Long beforeId,
+                                         int limit) {
+        MessageIndex current = index;
+        if (current == null) {
+            return Optional.empty();
+        }
+        List<String> terms = new ArrayList<>(MessageTokenizer.tokenize(query == null ? "" : query));
+        if (phoneNumber != null && !phoneNumber.isBlank()) {
+            terms.add(NUMBER_TERM + phoneNumber.trim());
+        }
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to search for");
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_LIMIT));
+
+        long start = System.nanoTime();
+        List<SearchHit> hits = current.search(terms, order, beforeId == null ? Long.MAX_VALUE : beforeId,
+                pageSize, maxScoredMatches);
+        long micros = (System.nanoTime() - start) / 1_000;
+        searches.increment();
+        searchMicros.add(micros);
+        maxSearchMicros.accumulateAndGet(micros, Math::max);
+
+        Long nextBeforeId = order == SearchOrder.RECENT && hits.size() == pageSize
+                ? hits.get(hits.size() - 1).getId() : null;
+        return Optional.of(new SearchResult(query, order, hits, nextBeforeId, micros));
+    }
+
+    public boolean isAvailable() {
+        return index != null;
+    }
+
+    public SearchStats getStats() {
+        MessageIndex current = index;
+        if (current == null) {
+            return new SearchStats(false, false, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, indexFailures.sum(),
+                    0, 0, 0);
+        }
+        long segmentDocs = current.getDocs() - current.getMemoryDocs();
+        long count = searches.sum();
+        return new SearchStats(true, caughtUp, current.getDocs(), current.getMemoryDocs(),
+                current.getDeletedDocs(), current.getSegmentCount(), current.getTerms(), current.getSizeBytes(),
+                segmentDocs == 0 ? 0 : (double) current.getSizeBytes() / segmentDocs, current.maxDoc(),
+                current.getFlushes(), current.getMerges(), current.getMergedDocs(), indexFailures.sum(),
+                count, count == 0 ? 0 : (double) searchMicros.sum() / count, maxSearchMicros.get());
+    }
+
+    /**
+     * Index what the index missed while the application was down: archived
+     * messages first, then the table, stopping where live indexing took over
+     */
+    private void catchUp() {
+        long start = System.nanoTime();
+        long indexedBefore = index.maxDoc();
+        try {
+            long fromArchive = archiveService.replayAfter(indexedBefore, messages -> {
+                add(index, messages);
+                if (index.needsFlush()) {
+                    maintain();
+                }
+            });
+            long fromTable = 0;
+            long afterId = indexedBefore;
+            List<WhatsAppMessage> batch;
+            while (!Thread.currentThread().isInterrupted() && afterId < firstLiveId.get()
+                    && !(batch = messageRepository.findByIdGreaterThanOrderByIdAsc(afterId,
+                            PageRequest.of(0, catchUpBatchSize))).isEmpty()) {
+                long liveFrom = firstLiveId.get();
+                List<WhatsAppMessage> missed = batch.stream().filter(message -> message.getId() < liveFrom).toList();
+                add(index, missed);
+                fromTable += missed.size();
+                afterId = batch.get(batch.size() - 1).getId();
+                if (index.needsFlush()) {
+                    maintain();
+                }
+            }
+            caughtUp = true;
+            if (fromArchive + fromTable > 0) {
+                log.info("Search index caught up in {} ms: {} archived and {} stored messages",
+                        (System.nanoTime() - start) / 1_000_000, fromArchive, fromTable);
+            }
+        } catch (RuntimeException e) {
+            log.error("Search index catch-up failed after id {}: {}", indexedBefore, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Flush the in-memory segment once it is full or on schedule, then merge and persist deletes
+     */
+    private void maintain() {
+        maintenanceQueued.set(false);
+        try {
+            index.flush();
+            while (index.maybeMerge()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Search index maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void add(MessageIndex current, List<WhatsAppMessage> messages) {
+        for (WhatsAppMessage message : messages) {
+            try {
+                List<String> tokens = new ArrayList<>(MessageTokenizer.tokenize(message.getMessageText()));
+                String number = "OUTBOUND".equals(message.getDirection())
+                        ? message.getToNumber() : message.getFromNumber();
+                if (number != null) {
+                    tokens.add(NUMBER_TERM + number);
+                }
+                current.add(message.getId(), tokens);
+            } catch (RuntimeException e) {
+                indexFailures.increment();
+                log.warn("Could not index message {}: {}", message.getId(), e.getMessage());
+            }
+        }
+    }
+}
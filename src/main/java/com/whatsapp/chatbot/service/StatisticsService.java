@@ -0,0 +1,247 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.model.UserSession;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.UserSessionRepository;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service keeping message and session counts in memory so the dashboard
+ * statistics never scan the tables. Counters are bumped where messages and
+ * sessions are written; a background job periodically recounts from the
+ * database and corrects any drift (rolled back transactions, bulk updates,
+ * writes by other instances).
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class StatisticsService {
+
+    private static final String UNKNOWN = "UNKNOWN";
+
+    private final WhatsAppMessageRepository messageRepository;
+    private final UserSessionRepository sessionRepository;
+
+    @Value("${stats.reconcile-interval-seconds:300}")
+    private long reconcileIntervalSeconds;
+
+    private final Map<String, LongAdder> messagesByDirection = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> messagesByStatus = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> activeSessionsByState = new ConcurrentHashMap<>();
+    private final LongAdder totalSessions = new LongAdder();
+    private final LongAdder activeSessions = new LongAdder();
+
+    private final AtomicLong reconciliations = new AtomicLong();
+    private final AtomicLong lastDrift = new AtomicLong();
+    private final AtomicLong lastReconcileMillis = new AtomicLong();
+    private volatile LocalDateTime lastReconciledAt;
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void initialize() {
+        reconcile();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "statistics-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::scheduledReconcile, reconcileIntervalSeconds,
+                reconcileIntervalSeconds, TimeUnit.SECONDS);
+        log.info("Statistics ready: {} messages, {} sessions; reconciled every {} s",
+                sum(messagesByDirection), totalSessions.sum(), reconcileIntervalSeconds);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Count messages just written to the message table
+     */
+    public void messagesAdded(List<WhatsAppMessage> messages) {
+        messages.forEach(message -> messageAdded(message, 1));
+    }
+
+    /**
+     * Uncount messages just removed from the message table
+     */
+    public void messagesRemoved(List<WhatsAppMessage> messages) {
+        messages.forEach(message -> messageAdded(message, -1));
+    }
+
+    /**
+     * Move a message from one status count to another
+     */
+    public void messageStatusChanged(String previousStatus, String newStatus) {
+        counter(messagesByStatus, previousStatus).decrement();
+        counter(messagesByStatus, newStatus).increment();
+    }
+
+    /**
+     * Count a session save, given whether the row is new and the active flag
+     * and state it had before the change
+     */
+    public void sessionSaved(boolean created, boolean wasActive, String previousState, UserSession saved) {
+        if (created) {
+            totalSessions.increment();
+        } else if (wasActive) {
+            activeSessions.decrement();
+            counter(activeSessionsByState, previousState).decrement();
+        }
+        if (Boolean.TRUE.equals(saved.getSessionActive())) {
+            activeSessions.increment();
+            counter(activeSessionsByState, saved.getCurrentState()).increment();
+        }
+    }
+
+    public long getTotalMessages() {
+        return sum(messagesByDirection);
+    }
+
+    /**
+     * Current counts; reads the counters only
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalMessages", sum(messagesByDirection));
+        stats.put("inboundMessages", counter(messagesByDirection, "INBOUND").sum());
+        stats.put("outboundMessages", counter(messagesByDirection, "OUTBOUND").sum());
+        stats.put("messagesByStatus", nonZero(messagesByStatus));
+        stats.put("totalSessions", totalSessions.sum());
+        stats.put("activeSessions", activeSessions.sum());
+        stats.put("activeSessionsByState", nonZero(activeSessionsByState));
+        stats.put("reconciledAt", lastReconciledAt);
+        stats.put("reconciliations", reconciliations.get());
+        stats.put("lastReconcileDrift", lastDrift.get());
+        stats.put("lastReconcileMillis", lastReconcileMillis.get());
+        return stats;
+    }
+
+    /**
+     * Recount from the database and correct the counters. Each counter is
+     * read before the query and moved by (database count - that reading), so
+     * increments made while the query runs are kept rather than overwritten.
+     */
+    public synchronized void reconcile() {
+        long start = System.nanoTime();
+        Map<String, Long> directionsBefore = values(messagesByDirection);
+        Map<String, Long> statusesBefore = values(messagesByStatus);
+        Map<String, Long> statesBefore = values(activeSessionsByState);
+        long totalBefore = totalSessions.sum();
+        long activeBefore = activeSessions.sum();
+
+        Map<String, Long> directions = new HashMap<>();
+        Map<String, Long> statuses = new HashMap<>();
+        for (Object[] row : messageRepository.countByDirectionAndStatus()) {
+            long count = ((Number) row[2]).longValue();
+            directions.merge(key((String) row[0]), count, Long::sum);
+            statuses.merge(key((String) row[1]), count, Long::sum);
+        }
+        Map<String, Long> states = new HashMap<>();
+        long total = 0;
+        long active = 0;
+        for (Object[] row : sessionRepository.countByStateAndActive()) {
+            long count = ((Number) row[2]).longValue();
+            total += count;
+            if (Boolean.TRUE.equals(row[1])) {
+                active += count;
+                states.merge(key((String) row[0]), count, Long::sum);
+            }
+        }
+
+        long drift = correct(messagesByDirection, directionsBefore, directions)
+                + correct(messagesByStatus, statusesBefore, statuses)
+                + correct(activeSessionsByState, statesBefore, states)
+                + Math.abs(total - totalBefore) + Math.abs(active - activeBefore);
+        totalSessions.add(total - totalBefore);
+        activeSessions.add(active - activeBefore);
+
+        reconciliations.incrementAndGet();
+        lastDrift.set(drift);
+        lastReconcileMillis.set((System.nanoTime() - start) / 1_000_000);
+        lastReconciledAt = LocalDateTime.now();
+        if (drift > 0 && reconciliations.get() > 1) {
+            log.info("Statistics reconciled in {} ms, corrected a drift of {}", lastReconcileMillis.get(), drift);
+        }
+    }
+
+    private void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.error("Statistics reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void messageAdded(WhatsAppMessage message, int delta) {
+        counter(messagesByDirection, message.getDirection()).add(delta);
+        counter(messagesByStatus, message.getStatus()).add(delta);
+    }
+
+    private static long correct(Map<String, LongAdder> counters, Map<String, Long> before, Map<String, Long> actual) {
+        Set<String> keys = new HashSet<>(before.keySet());
+        keys.addAll(actual.keySet());
+        long drift = 0;
+        for (String key : keys) {
+            long delta = actual.getOrDefault(key, 0L) - before.getOrDefault(key, 0L);
+            if (delta != 0) {
+                counter(counters, key).add(delta);
+                drift += Math.abs(delta);
+            }
+        }
+        return drift;
+    }
+
+    private static LongAdder counter(Map<String, LongAdder> counters, String key) {
+        return counters.computeIfAbsent(key(key), k -> new LongAdder());
+    }
+
+    private static String key(String value) {
+        return value == null ? UNKNOWN : value;
+    }
+
+    private static Map<String, Long> values(Map<String, LongAdder> counters) {
+        Map<String, Long> values = new HashMap<>();
+        counters.forEach((key, counter) -> values.put(key, counter.sum()));
+        return values;
+    }
+
+    private static Map<String, Long> nonZero(Map<String, LongAdder> counters) {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((key, counter) -> {
+            long value = counter.sum();
+            if (value != 0) {
+                values.put(key, value);
+            }
+        });
+        return values;
+    }
+
+    private static long sum(Map<String, LongAdder> counters) {
+        return counters.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+}
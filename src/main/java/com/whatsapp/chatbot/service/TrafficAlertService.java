@@ -0,0 +1,139 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.alerts.AlertDispatcher;
+import com.whatsapp.chatbot.alerts.AlertStats;
+import com.whatsapp.chatbot.alerts.TrafficAlertEngine;
+import com.whatsapp.chatbot.routing.PlannedRoute;
+import com.whatsapp.chatbot.traffic.TrafficAggregator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Service for traffic alert subscriptions: users watch an area or a planned
+ * route and are messaged when incidents or heavy traffic show up on it
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TrafficAlertService {
+
+    private final TrafficService trafficService;
+    private final WhatsAppService whatsAppService;
+
+    @Value("${alerts.cooldown-seconds:600}")
+    private long cooldownSeconds;
+
+    @Value("${alerts.rate-per-second:20}")
+    private double ratePerSecond;
+
+    @Value("${alerts.batch-size:50}")
+    private int batchSize;
+
+    @Value("${alerts.queue-capacity:100000}")
+    private int queueCapacity;
+
+    @Value("${alerts.send-timeout-seconds:30}")
+    private long sendTimeoutSeconds;
+
+    @Value("${routing.snap-radius-meters:2000}")
+    private double snapRadiusMeters;
+
+    private volatile TrafficAlertEngine engine;
+
+    private AlertDispatcher dispatcher;
+
+    @PostConstruct
+    public void initialize() {
+        TrafficAggregator aggregator = trafficService.getAggregator();
+        if (aggregator == null) {
+            log.info("Live traffic unavailable, traffic alerts disabled");
+            return;
+        }
+
+        try {
+            dispatcher = new AlertDispatcher(whatsAppService::sendTextMessage, queueCapacity, batchSize,
+                    ratePerSecond, Duration.ofSeconds(sendTimeoutSeconds));
+            Thread thread = new Thread(dispatcher, "traffic-alert-dispatcher");
+            thread.setDaemon(true);
+            thread.start();
+
+            TrafficAlertEngine created = new TrafficAlertEngine(aggregator, dispatcher,
+                    Duration.ofSeconds(cooldownSeconds).toMillis());
+            trafficService.setEventListener(created);
+            engine = created;
+            log.info("Traffic alerts ready: {} msg/s, {} s cooldown", ratePerSecond, cooldownSeconds);
+        } catch (Exception e) {
+            log.warn("Traffic alert setup failed: {}. Alerts will be unavailable.", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        trafficService.setEventListener(null);
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+    }
+
+    /**
+     * Watch the traffic area around a coordinate
+     *
+     * @return false if alerts are unavailable or the point is off the road network
+     */
+    public boolean subscribeArea(String phoneNumber, double latitude, double longitude) {
+        TrafficAlertEngine current = engine;
+        TrafficAggregator aggregator = trafficService.getAggregator();
+        if (current == null || aggregator == null) {
+            return false;
+        }
+        int area = aggregator.areaAt(latitude, longitude, snapRadiusMeters);
+        if (area < 0) {
+            return false;
+        }
+        current.subscribeArea(phoneNumber, area);
+        log.info("{} subscribed to traffic alerts for area {}", phoneNumber, area);
+        return true;
+    }
+
+    /**
+     * Watch every segment of a planned route
+     */
+    public boolean subscribeRoute(String phoneNumber, PlannedRoute route) {
+        TrafficAlertEngine current = engine;
+        if (current == null) {
+            return false;
+        }
+        current.subscribeRoute(phoneNumber, route.getPath(), route.getFromName() + " → " + route.getToName());
+        log.info("{} subscribed to traffic alerts for route {} → {}", phoneNumber,
+                route.getFromName(), route.getToName());
+        return true;
+    }
+
+    public void unsubscribe(String phoneNumber) {
+        TrafficAlertEngine current = engine;
+        if (current != null) {
+            current.unsubscribe(phoneNumber);
+        }
+    }
+
+    public boolean isSubscribed(String phoneNumber) {
+        TrafficAlertEngine current = engine;
+        return current != null && current.isSubscribed(phoneNumber);
+    }
+
+    public boolean isAvailable() {
+        return engine != null;
+    }
+
+    public Optional<AlertStats> getStats() {
+        TrafficAlertEngine current = engine;
+        return current == null ? Optional.empty() : Optional.of(current.stats());
+    }
+}
@@ -0,0 +1,175 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.routing.RoadGraph;
+import com.whatsapp.chatbot.routing.RoutePath;
+import com.whatsapp.chatbot.traffic.FileTailFeed;
+import com.whatsapp.chatbot.traffic.RouteTraffic;
+import com.whatsapp.chatbot.traffic.SocketLineFeed;
+import com.whatsapp.chatbot.traffic.TrafficAggregator;
+import com.whatsapp.chatbot.traffic.TrafficEventListener;
+import com.whatsapp.chatbot.traffic.TrafficIngestStats;
+import com.whatsapp.chatbot.traffic.TrafficIngestor;
+import com.whatsapp.chatbot.traffic.TrafficReading;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Service for live traffic: ingests the speed/incident feed and answers
+ * traffic questions from the windowed per-segment and per-area state
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TrafficService {
+
+    private final RoutingService routingService;
+
+    @Value("${traffic.feed.file-path:}")
+    private String feedFilePath;
+
+    @Value("${traffic.feed.socket-port:-1}")
+    private int feedSocketPort;
+
+    @Value("${traffic.feed.poll-millis:250}")
+    private long feedPollMillis;
+
+    @Value("${traffic.window-seconds:300}")
+    private long windowSeconds;
+
+    @Value("${traffic.bucket-seconds:60}")
+    private long bucketSeconds;
+
+    @Value("${traffic.area-cell-size-degrees:0.02}")
+    private double areaCellSizeDegrees;
+
+    @Value("${routing.snap-radius-meters:2000}")
+    private double snapRadiusMeters;
+
+    private final List<Closeable> feeds = new ArrayList<>();
+
+    private volatile TrafficAggregator aggregator;
+
+    private volatile TrafficIngestor ingestor;
+
+    @PostConstruct
+    public void initialize() {
+        RoadGraph graph = routingService.getGraph();
+        if (graph == null) {
+            log.info("No road graph available, live traffic disabled");
+            return;
+        }
+
+        try {
+            int buckets = (int) Math.max(1, (windowSeconds + bucketSeconds - 1) / bucketSeconds);
+            long epoch = System.currentTimeMillis() - Duration.ofDays(1).toMillis();
+            TrafficAggregator created = new TrafficAggregator(graph, areaCellSizeDegrees,
+                    bucketSeconds * 1000, buckets, epoch);
+            ingestor = new TrafficIngestor(created);
+            aggregator = created;
+            log.info("Live traffic ready: {} segments, {} areas, {} s window",
+                    graph.edgeCount(), created.areaCount(), created.windowMillis() / 1000);
+        } catch (Exception e) {
+            log.warn("Live traffic setup failed: {}. Traffic info will be unavailable.", e.getMessage());
+            return;
+        }
+
+        if (feedFilePath != null && !feedFilePath.isBlank()) {
+            startFeed(new FileTailFeed(Path.of(feedFilePath), ingestor, feedPollMillis), "traffic-file-feed");
+        }
+        if (feedSocketPort >= 0) {
+            try {
+                startFeed(new SocketLineFeed(feedSocketPort, ingestor), "traffic-socket-feed");
+            } catch (IOException e) {
+                log.warn("Could not open traffic feed port {}: {}", feedSocketPort, e.getMessage());
+            }
+        }
+    }
+
+    private <T extends Runnable & Closeable> void startFeed(T feed, String threadName) {
+        feeds.add(feed);
+        Thread thread = new Thread(feed, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Closeable feed : feeds) {
+            try {
+                feed.close();
+            } catch (IOException e) {
+                log.debug("Error closing traffic feed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Ingest one feed line directly (same format as the file and socket feeds)
+     */
+    public void ingest(String line) {
+        TrafficIngestor current = ingestor;
+        if (current != null) {
+            current.accept(line);
+        }
+    }
+
+    /**
+     * Traffic in the area around a coordinate
+     */
+    public Optional<TrafficReading> areaTraffic(double latitude, double longitude) {
+        TrafficAggregator current = aggregator;
+        if (current == null) {
+            return Optional.empty();
+        }
+        int area = current.areaAt(latitude, longitude, snapRadiusMeters);
+        return area < 0 ? Optional.empty() : Optional.of(current.area(area, System.currentTimeMillis()));
+    }
+
+    public Optional<TrafficReading> citywideTraffic() {
+        TrafficAggregator current = aggregator;
+        return current == null ? Optional.empty() : Optional.of(current.citywide(System.currentTimeMillis()));
+    }
+
+    public Optional<RouteTraffic> routeTraffic(RoutePath path) {
+        TrafficAggregator current = aggregator;
+        return current == null ? Optional.empty() : Optional.of(current.route(path, System.currentTimeMillis()));
+    }
+
+    /**
+     * Register a listener for accepted feed events (replaces any previous one)
+     */
+    public void setEventListener(TrafficEventListener listener) {
+        TrafficIngestor current = ingestor;
+        if (current != null) {
+            current.setListener(listener);
+        }
+    }
+
+    /**
+     * Aggregates behind live traffic, or null when traffic is disabled
+     */
+    public TrafficAggregator getAggregator() {
+        return aggregator;
+    }
+
+    public boolean isAvailable() {
+        return aggregator != null;
+    }
+
+    public Optional<TrafficIngestStats> getStats() {
+        TrafficIngestor current = ingestor;
+        return current == null ? Optional.empty() : Optional.of(current.stats());
+    }
+}
@@ -19,6 +19,10 @@ import java.util.Optional;
 public class UserSessionService {
 
     private final UserSessionRepository sessionRepository;
+    private final StatisticsService statisticsService;
+    private final RollupService rollupService;
+    private final ConversationService conversationService;
+    private final ReadModelService readModelService;
 
     /**
      * Get or create user session
@@ -27,12 +31,23 @@ public class UserSessionService {
     public UserSession getOrCreateSession(String phoneNumber) {
         log.debug("Getting or creating session for phone number: {}", phoneNumber);
 
-        Optional<UserSession> existingSession = sessionRepository.findByPhoneNumberAndSessionActiveTrue(phoneNumber);
+        UserSession session = findOrNewSession(phoneNumber);
+        SessionBefore before = SessionBefore.of(session);
+        reactivate(session);
+        session.setUpdatedAt(LocalDateTime.now());
+        return save(session, before);
+    }
+
+    /**
+     * Load the number's session, active or ended, or build a new unsaved one.
+     * A number has one session row, so an ended session is reused rather
+     * than inserted again. Callers save once after applying their own changes.
+     */
+    private UserSession findOrNewSession(String phoneNumber) {
+        Optional<UserSession> existingSession = sessionRepository.findByPhoneNumber(phoneNumber);
         
         if (existingSession.isPresent()) {
-            UserSession session = existingSession.get();
-            session.setUpdatedAt(LocalDateTime.now());
-            return sessionRepository.save(session);
+            return existingSession.get();
         }
 
         // Create new session
@@ -42,7 +57,7 @@ public class UserSessionService {
         newSession.setNavigationPath("WELCOME");
         newSession.setSessionActive(true);
         
-        return sessionRepository.save(newSession);
+        return newSession;
     }
 
     /**
@@ -52,7 +67,9 @@ public class UserSessionService {
     public UserSession updateSessionState(String phoneNumber, String newState) {
         log.debug("Updating session state for {}: {}", phoneNumber, newState);
 
-        UserSession session = getOrCreateSession(phoneNumber);
+        UserSession session = findOrNewSession(phoneNumber);
+        SessionBefore before = SessionBefore.of(session);
+        reactivate(session);
         
         // Update navigation path
         String currentPath = session.getNavigationPath();
@@ -65,21 +82,23 @@ public class UserSessionService {
         session.setCurrentState(newState);
         session.setUpdatedAt(LocalDateTime.now());
         
-        return sessionRepository.save(session);
+        return save(session, before);
     }
 
     /**
-     * Update user preferences
+     * Update user preferences. They belong to the number rather than one
+     * session, so an ended session keeps them.
      */
     @Transactional
     public UserSession updateUserPreferences(String phoneNumber, String preferences) {
         log.debug("Updating user preferences for {}: {}", phoneNumber, preferences);
 
-        UserSession session = getOrCreateSession(phoneNumber);
+        UserSession session = findOrNewSession(phoneNumber);
+        SessionBefore before = SessionBefore.of(session);
         session.setUserPreferences(preferences);
         session.setUpdatedAt(LocalDateTime.now());
         
-        return sessionRepository.save(session);
+        return save(session, before);
     }
 
     /**
@@ -92,12 +111,32 @@ public class UserSessionService {
         Optional<UserSession> session = sessionRepository.findByPhoneNumberAndSessionActiveTrue(phoneNumber);
         if (session.isPresent()) {
             UserSession userSession = session.get();
+            SessionBefore before = SessionBefore.of(userSession);
+            conversationService.endConversation(phoneNumber);
             userSession.setSessionActive(false);
             userSession.setUpdatedAt(LocalDateTime.now());
-            sessionRepository.save(userSession);
+            save(userSession, before);
         }
     }
 
+    /**
+     * Reset a user's session (active or not) back to the welcome state
+     */
+    @Transactional
+    public void resetSession(String phoneNumber) {
+        log.debug("Resetting session for phone number: {}", phoneNumber);
+
+        sessionRepository.findByPhoneNumber(phoneNumber).ifPresent(session -> {
+            SessionBefore before = SessionBefore.of(session);
+            // Ended first, so the conversation keeps the state it reached rather than WELCOME
+            conversationService.endConversation(phoneNumber);
+            session.setCurrentState("WELCOME");
+            session.setNavigationPath("WELCOME");
+            session.setSessionActive(true);
+            save(session, before);
+        });
+    }
+
     /**
      * Get current session state
      */
@@ -107,27 +146,61 @@ public class UserSessionService {
     }
 
     /**
-     * Get user preferences
+     * Get user preferences, whether or not the session is active
      */
     public String getUserPreferences(String phoneNumber) {
-        Optional<UserSession> session = sessionRepository.findByPhoneNumberAndSessionActiveTrue(phoneNumber);
+        Optional<UserSession> session = sessionRepository.findByPhoneNumber(phoneNumber);
         return session.map(UserSession::getUserPreferences).orElse("");
     }
 
     /**
-     * Clean up old inactive sessions
+     * Get session statistics
      */
-    @Transactional
-    public int cleanupOldSessions() {
-        log.info("Cleaning up old sessions");
-        LocalDateTime cutoffTime = LocalDateTime.now().minusHours(24);
-        return sessionRepository.deactivateOldSessions(cutoffTime);
+    public long getActiveSessionCount() {
+        return sessionRepository.countBySessionActiveTrue();
     }
 
     /**
-     * Get session statistics
+     * Restart an ended session in the welcome state, as a new one would start
      */
-    public long getActiveSessionCount() {
-        return sessionRepository.countBySessionActiveTrue();
+    private static void reactivate(UserSession session) {
+        if (!Boolean.TRUE.equals(session.getSessionActive())) {
+            session.setCurrentState("WELCOME");
+            session.setNavigationPath("WELCOME");
+            session.setSessionActive(true);
+        }
+    }
+
+    private UserSession save(UserSession session, SessionBefore before) {
+        UserSession saved = sessionRepository.save(session);
+        statisticsService.sessionSaved(before.created, before.active, before.state, saved);
+        if (before.created) {
+            // A new session starts in its initial state, even when saved with a later one
+            rollupService.stateChanged(null, before.state);
+        }
+        rollupService.stateChanged(before.state, saved.getCurrentState());
+        conversationService.stateChanged(saved.getPhoneNumber(), saved.getCurrentState());
+        readModelService.sessionSaved(saved);
+        return saved;
+    }
+
+    /**
+     * What the statistics need to know about a session before it is changed
+     */
+    private static final class SessionBefore {
+        final boolean created;
+        final boolean active;
+        final String state;
+
+        private SessionBefore(boolean created, boolean active, String state) {
+            this.created = created;
+            this.active = active;
+            this.state = state;
+        }
+
+        static SessionBefore of(UserSession session) {
+            return new SessionBefore(session.getId() == null, Boolean.TRUE.equals(session.getSessionActive()),
+                    session.getCurrentState());
+        }
     }
 }
@@ -2,7 +2,6 @@ package com.whatsapp.chatbot.service;
 
 import com.whatsapp.chatbot.dto.WhatsAppOutboundMessage;
 import com.whatsapp.chatbot.model.WhatsAppMessage;
-import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,8 +11,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Service for handling WhatsApp Business API operations
@@ -23,7 +25,7 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class WhatsAppService {
 
-    private final WhatsAppMessageRepository messageRepository;
+    private final MessageLogWriter messageLogWriter;
     private final WebClient.Builder webClientBuilder;
 
     @Value("${whatsapp.api.base-url}")
@@ -38,6 +40,9 @@ public class WhatsAppService {
     @Value("${whatsapp.api.mock-mode:false}")
     private boolean mockMode;
 
+    @Value("${whatsapp.api.mock-latency-millis:0}")
+    private long mockLatencyMillis;
+
     /**
      * Send a text message via WhatsApp Business API
      */
@@ -58,10 +63,10 @@ public class WhatsAppService {
                 .build();
 
         return sendMessage(outboundMessage)
-                .doOnSuccess(response -> saveOutboundMessage(to, message, "text", "SENT"))
+                .doOnSuccess(response -> saveOutboundMessage(to, message, "text", "SENT", response))
                 .doOnError(error -> {
                     log.error("Failed to send message to {}: {}", to, error.getMessage());
-                    saveOutboundMessage(to, message, "text", "FAILED");
+                    saveOutboundMessage(to, message, "text", "FAILED", null);
                 });
     }
 
@@ -104,10 +109,10 @@ public class WhatsAppService {
                 .build();
 
         return sendMessage(outboundMessage)
-                .doOnSuccess(response -> saveOutboundMessage(to, bodyText, "interactive", "SENT"))
+                .doOnSuccess(response -> saveOutboundMessage(to, bodyText, "interactive", "SENT", response))
                 .doOnError(error -> {
                     log.error("Failed to send button message to {}: {}", to, error.getMessage());
-                    saveOutboundMessage(to, bodyText, "interactive", "FAILED");
+                    saveOutboundMessage(to, bodyText, "interactive", "FAILED", null);
                 });
     }
 
@@ -117,7 +122,12 @@ public class WhatsAppService {
     public Mono<Map<String, Object>> sendListMessage(String to, String bodyText, String buttonText,
                                                     String sectionTitle, String[] optionIds, 
                                                     String[] optionTitles, String[] optionDescriptions) {
-        log.info("Sending list message to: {}", to);
+        log.info("Sending list message to: {} (Mock Mode: {})", to, mockMode);
+
+        // Mock mode for testing without real API
+        if (mockMode) {
+            return createMockResponse(to, bodyText, "interactive");
+        }
 
         WhatsAppOutboundMessage.Interactive.Action.Section.Row[] rows = 
             new WhatsAppOutboundMessage.Interactive.Action.Section.Row[optionIds.length];
@@ -152,10 +162,10 @@ public class WhatsAppService {
                 .build();
 
         return sendMessage(outboundMessage)
-                .doOnSuccess(response -> saveOutboundMessage(to, bodyText, "interactive", "SENT"))
+                .doOnSuccess(response -> saveOutboundMessage(to, bodyText, "interactive", "SENT", response))
                 .doOnError(error -> {
                     log.error("Failed to send list message to {}: {}", to, error.getMessage());
-                    saveOutboundMessage(to, bodyText, "interactive", "FAILED");
+                    saveOutboundMessage(to, bodyText, "interactive", "FAILED", null);
                 });
     }
 
@@ -180,11 +190,14 @@ public class WhatsAppService {
     }
 
     /**
-     * Save outbound message to database
+     * Queue the outbound message for the database, keyed by the WhatsApp
+     * message id so later status updates can find it
      */
-    private void saveOutboundMessage(String to, String messageText, String messageType, String status) {
+    private void saveOutboundMessage(String to, String messageText, String messageType, String status,
+                                     Map<String, Object> response) {
         try {
             WhatsAppMessage message = new WhatsAppMessage();
+            message.setMessageId(outboundMessageId(response));
             message.setFromNumber(phoneNumberId);
             message.setToNumber(to);
             message.setMessageText(messageText);
@@ -193,15 +206,27 @@ public class WhatsAppService {
             message.setDirection("OUTBOUND");
             message.setTimestamp(LocalDateTime.now());
             
-            messageRepository.save(message);
-            log.debug("Saved outbound message to database");
+            messageLogWriter.append(message);
+            log.debug("Queued outbound message {} for the database", message.getMessageId());
         } catch (Exception e) {
             log.error("Failed to save outbound message: {}", e.getMessage());
         }
     }
 
     /**
-     * Create a mock response for testing purposes
+     * The id WhatsApp assigned ({"messages":[{"id":...}]}), or a local one when there is none
+     */
+    private static String outboundMessageId(Map<String, Object> response) {
+        if (response != null && response.get("messages") instanceof List<?> messages && !messages.isEmpty()
+                && messages.get(0) instanceof Map<?, ?> first && first.get("id") != null) {
+            return first.get("id").toString();
+        }
+        return "local-" + UUID.randomUUID();
+    }
+
+    /**
+     * Create a mock response for testing purposes, after the configured
+     * latency to stand in for the API round trip (no thread waits on it)
      */
     private Mono<Map<String, Object>> createMockResponse(String to, String message, String messageType) {
         Map<String, Object> response = Map.of(
@@ -213,6 +238,8 @@ public class WhatsAppService {
         );
 
         log.info("Mock response created: {}", response);
-        return Mono.just(response);
+        return mockLatencyMillis > 0
+                ? Mono.just(response).delayElement(Duration.ofMillis(mockLatencyMillis))
+                : Mono.just(response);
     }
 }
@@ -0,0 +1,14 @@
+package com.whatsapp.chatbot.spool;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Records read from the spool and where the next read continues
+ */
+@Value
+public class SpoolBatch {
+    List<byte[]> records;
+    SpoolPosition next;
+}
@@ -0,0 +1,417 @@
+package com.whatsapp.chatbot.spool;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of opaque records in fixed-size, memory-mapped segment
+ * files. Each record is its length, a CRC32C of its bytes and the bytes;
+ * a zero length marks the end of a segment's data, since new segments are
+ * zero-filled. Appending is a copy into the mapped segment under a short
+ * lock, so it costs about as much as a memory copy until the page cache
+ * pushes back.
+ *
+ * Records reach disk when the OS writes the pages back or on {@link #force()};
+ * a process crash loses nothing, a host crash loses what was not yet
+ * forced. On open, the newest segment is scanned and anything after the
+ * last record with a good checksum is cleared, so a torn append is dropped
+ * rather than read back.
+ *
+ * Segments are deleted once a reader releases them, or at the disk cap
+ * according to the {@link SpoolOverflow} policy. One process at a time may
+ * open a directory.
+ */
+@Slf4j
+public final class SpoolLog implements Closeable {
+
+    static final int HEADER_BYTES = 8;
+
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final String LOCK_FILE = "spool.lock";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final SpoolOverflow overflow;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final ConcurrentSkipListMap<Long, MappedByteBuffer> segments;
+
+    private MappedByteBuffer active;
+    /** The segment before the active one, until its pages are forced */
+    private MappedByteBuffer sealed;
+    /** Active segment id in the high half, end of its data in the low half, so readers see both at once */
+    private volatile long tail;
+    private boolean closed;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder appendedBytes = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder droppedSegments = new LongAdder();
+    private final LongAdder corruptRecords = new LongAdder();
+
+    private SpoolLog(Path directory, int segmentBytes, int maxSegments, SpoolOverflow overflow,
+                     FileChannel lockChannel, FileLock lock, ConcurrentSkipListMap<Long, MappedByteBuffer> segments) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        this.overflow = overflow;
+        this.lockChannel = lockChannel;
+        this.lock = lock;
+        this.segments = segments;
+    }
+
+    /**
+     * Open (or create) the spool under a directory, recovering the newest segment
+     *
+     * @param maxBytes disk cap; at least two segments are always allowed
+     * @throws IOException if the directory is unusable or another spool has it open
+     */
+    public static SpoolLog open(Path directory, int segmentBytes, long maxBytes, SpoolOverflow overflow)
+            throws IOException {
+        if (segmentBytes < 1024) {
+            throw new IllegalArgumentException("Spool segments must be at least 1 KB");
+        }
+        Files.createDirectories(directory);
+        FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Spool directory " + directory + " is in use by another spool");
+        }
+
+        try {
+            ConcurrentSkipListMap<Long, MappedByteBuffer> segments = new ConcurrentSkipListMap<>();
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path path : (Iterable<Path>) files::iterator) {
+                    String name = path.getFileName().toString();
+                    if (name.endsWith(SEGMENT_SUFFIX)) {
+                        long id = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                        segments.put(id, map(path, Files.size(path)));
+                    }
+                }
+            }
+            int maxSegments = (int) Math.max(2, Math.min(Integer.MAX_VALUE, maxBytes / segmentBytes));
+            SpoolLog spool = new SpoolLog(directory, segmentBytes, maxSegments, overflow, lockChannel, lock,
+                    segments);
+            if (segments.isEmpty()) {
+                spool.activate(0, spool.createSegment(0), 0);
+            } else {
+                Map.Entry<Long, MappedByteBuffer> newest = segments.lastEntry();
+                spool.activate(newest.getKey(), newest.getValue(), spool.recover(newest.getValue()));
+            }
+            return spool;
+        } catch (IOException | RuntimeException e) {
+            lock.release();
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Append one record
+     *
+     * @return false if the spool is at its disk cap (with DROP_NEWEST) or closed and the record was dropped
+     * @throws IOException if a new segment could not be created
+     */
+    public boolean append(byte[] record) throws IOException {
+        if (record.length == 0 || record.length > segmentBytes - HEADER_BYTES) {
+            throw new IllegalArgumentException("Record of " + record.length + " bytes does not fit a spool segment");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(record);
+        int checksum = (int) crc.getValue();
+        int size = HEADER_BYTES + record.length;
+
+        synchronized (this) {
+            if (closed) {
+                rejected.increment();
+                return false;
+            }
+            long segment = tail >>> 32;
+            int offset = (int) tail;
+            if (offset + size > active.capacity()) {
+                if (!roll(segment + 1)) {
+                    rejected.increment();
+                    return false;
+                }
+                segment++;
+                offset = 0;
+            }
+            // The length goes in last: until it is there, readers and recovery see the end of the data
+            active.putInt(offset + 4, checksum);
+            active.put(offset + HEADER_BYTES, record);
+            active.putInt(offset, record.length);
+            tail = (segment << 32) | (offset + size);
+        }
+        appended.increment();
+        appendedBytes.add(size);
+        return true;
+    }
+
+    /**
+     * Read up to a number of records starting at a position. Segments
+     * deleted at the disk cap are skipped; a record with a bad checksum is
+     * counted and the rest of its segment skipped, since the lengths after
+     * it cannot be trusted.
+     */
+    public SpoolBatch read(SpoolPosition from, int maxRecords) {
+        long published = tail;
+        long tailSegment = published >>> 32;
+        int tailOffset = (int) published;
+
+        Map.Entry<Long, MappedByteBuffer> entry = segments.ceilingEntry(from.getSegment());
+        if (entry == null) {
+            return new SpoolBatch(List.of(), from);
+        }
+        long segment = entry.getKey();
+        MappedByteBuffer buffer = entry.getValue();
+        int offset = segment == from.getSegment() ? from.getOffset() : 0;
+        List<byte[]> records = new ArrayList<>();
+        while (true) {
+            int limit = segment < tailSegment ? buffer.capacity() : segment == tailSegment ? tailOffset : 0;
+            if (offset + HEADER_BYTES <= limit) {
+                int length = buffer.getInt(offset);
+                if (length > 0 && offset + HEADER_BYTES + length <= limit) {
+                    if (records.size() == maxRecords) {
+                        break;
+                    }
+                    byte[] record = new byte[length];
+                    buffer.get(offset + HEADER_BYTES, record);
+                    CRC32C crc = new CRC32C();
+                    crc.update(record);
+                    if ((int) crc.getValue() == buffer.getInt(offset + 4)) {
+                        records.add(record);
+                        offset += HEADER_BYTES + length;
+                        continue;
+                    }
+                }
+                if (length != 0) {
+                    corruptRecords.increment();
+                    log.warn("Corrupt spool record in segment {} at offset {}, skipping the rest of the segment",
+                            segment, offset);
+                }
+            }
+            // End of this segment's data: move on unless it is the one being written, so a
+            // position never rests at the end of a segment that could be released
+            Map.Entry<Long, MappedByteBuffer> next = segment < tailSegment ? segments.higherEntry(segment) : null;
+            if (next == null) {
+                break;
+            }
+            segment = next.getKey();
+            buffer = next.getValue();
+            offset = 0;
+        }
+        return new SpoolBatch(records, new SpoolPosition(segment, offset));
+    }
+
+    /**
+     * Delete the segments wholly before a position, once everything before it has been shipped
+     */
+    public void release(SpoolPosition shipped) {
+        while (true) {
+            Map.Entry<Long, MappedByteBuffer> oldest = segments.firstEntry();
+            if (oldest == null || oldest.getKey() >= shipped.getSegment() || oldest.getKey() >= tail >>> 32) {
+                return;
+            }
+            delete(oldest.getKey());
+        }
+    }
+
+    /**
+     * Write the active segment's pages to disk
+     */
+    public void force() {
+        MappedByteBuffer current;
+        MappedByteBuffer previous;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            current = active;
+            previous = sealed;
+            sealed = null;
+        }
+        if (previous != null) {
+            previous.force();
+        }
+        current.force();
+    }
+
+    /**
+     * Bytes appended after a position and not yet read past it
+     */
+    public long backlogBytes(SpoolPosition from) {
+        long published = tail;
+        long tailSegment = published >>> 32;
+        long backlog = 0;
+        for (Map.Entry<Long, MappedByteBuffer> entry : segments.tailMap(from.getSegment()).entrySet()) {
+            long start = entry.getKey() == from.getSegment() ? from.getOffset() : 0;
+            long end = entry.getKey() < tailSegment ? entry.getValue().capacity()
+                    : entry.getKey() == tailSegment ? (int) published : 0;
+            backlog += Math.max(0, end - start);
+        }
+        return backlog;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long getDiskBytes() {
+        return segments.values().stream().mapToLong(MappedByteBuffer::capacity).sum();
+    }
+
+    public long getMaxDiskBytes() {
+        return (long) maxSegments * segmentBytes;
+    }
+
+    public SpoolOverflow getOverflow() {
+        return overflow;
+    }
+
+    public long getAppended() {
+        return appended.sum();
+    }
+
+    public long getAppendedBytes() {
+        return appendedBytes.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getDroppedSegments() {
+        return droppedSegments.sum();
+    }
+
+    public long getCorruptRecords() {
+        return corruptRecords.sum();
+    }
+
+    /**
+     * Force the active segment and release the directory; later appends are rejected
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (sealed != null) {
+                sealed.force();
+            }
+            active.force();
+        }
+        try {
+            lock.release();
+        } finally {
+            lockChannel.close();
+        }
+    }
+
+    /**
+     * Start a new segment, first making room under the disk cap
+     */
+    private boolean roll(long id) throws IOException {
+        while (segments.size() >= maxSegments) {
+            if (overflow == SpoolOverflow.DROP_NEWEST) {
+                return false;
+            }
+            long oldest = segments.firstKey();
+            log.warn("Spool at its cap of {} segments, dropping unshipped segment {}", maxSegments, oldest);
+            delete(oldest);
+            droppedSegments.increment();
+        }
+        sealed = active;
+        activate(id, createSegment(id), 0);
+        return true;
+    }
+
+    private void activate(long id, MappedByteBuffer buffer, int end) {
+        segments.put(id, buffer);
+        active = buffer;
+        tail = (id << 32) | end;
+    }
+
+    private MappedByteBuffer createSegment(long id) throws IOException {
+        return map(segmentPath(id), segmentBytes);
+    }
+
+    private void delete(long id) {
+        // A reader still holding the mapping keeps working; the file goes once the mapping is collected
+        segments.remove(id);
+        try {
+            Files.deleteIfExists(segmentPath(id));
+        } catch (IOException e) {
+            log.warn("Could not delete spool segment {}: {}", id, e.getMessage());
+        }
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("%020d%s", id, SEGMENT_SUFFIX));
+    }
+
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * Find the end of the good records in a segment and clear anything after it
+     */
+    private int recover(MappedByteBuffer buffer) {
+        int offset = 0;
+        CRC32C crc = new CRC32C();
+        while (offset + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + HEADER_BYTES + length > buffer.capacity()) {
+                break;
+            }
+            byte[] record = new byte[length];
+            buffer.get(offset + HEADER_BYTES, record);
+            crc.reset();
+            crc.update(record);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+        if (offset + HEADER_BYTES <= buffer.capacity()
+                && (buffer.getInt(offset) != 0 || buffer.getInt(offset + 4) != 0)) {
+            corruptRecords.increment();
+            log.warn("Clearing a torn or corrupt record at the end of the spool, offset {}", offset);
+            byte[] zeros = new byte[Math.min(64 * 1024, buffer.capacity() - offset)];
+            for (int position = offset; position < buffer.capacity(); position += zeros.length) {
+                buffer.put(position, zeros, 0, Math.min(zeros.length, buffer.capacity() - position));
+            }
+        }
+        return offset;
+    }
+}
@@ -0,0 +1,11 @@
+package com.whatsapp.chatbot.spool;
+
+/**
+ * What the spool gives up when it reaches its disk cap
+ */
+public enum SpoolOverflow {
+    /** Delete the oldest segment, shipped or not, to make room */
+    DROP_OLDEST,
+    /** Refuse new records until the shipper frees a segment */
+    DROP_NEWEST
+}
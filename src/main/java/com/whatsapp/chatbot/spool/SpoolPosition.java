@@ -0,0 +1,15 @@
+package com.whatsapp.chatbot.spool;
+
+import lombok.Value;
+
+/**
+ * A place in the spool: a segment and a byte offset within it
+ */
+@Value
+public class SpoolPosition {
+
+    public static final SpoolPosition START = new SpoolPosition(0, 0);
+
+    long segment;
+    int offset;
+}
@@ -0,0 +1,203 @@
+package com.whatsapp.chatbot.spool;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drains a spool into a sink one batch at a time, in append order. A batch
+ * that fails is retried with exponential backoff and jitter, while the
+ * spool keeps absorbing new records: for as long as it takes while the sink
+ * reports the failure as retryable (an outage), and up to a maximum number
+ * of attempts otherwise, after which the batch is appended to a dead-letter
+ * file and shipping moves on. After each shipped or dead-lettered batch the
+ * position is checkpointed to a file and fully shipped segments are
+ * released, so a restart resumes where shipping stopped; a batch shipped
+ * just before a crash may be shipped again, so the sink must be idempotent.
+ */
+@Slf4j
+public final class SpoolShipper implements Runnable, Closeable {
+
+    private final SpoolLog spool;
+    private final SpoolSink sink;
+    private final Path checkpointFile;
+    private final Path deadLetterFile;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long pollMillis;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private volatile SpoolPosition position;
+
+    private final LongAdder shipped = new LongAdder();
+    private final LongAdder shippedBatches = new LongAdder();
+    private final LongAdder shipAttempts = new LongAdder();
+    private final LongAdder shipFailures = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LongAdder shipNanos = new LongAdder();
+
+    /**
+     * @param checkpointFile where the shipped position is kept; read now, so the stats start from it
+     * @param deadLetterFile where batches that keep failing without being retryable are appended, one
+     *                       record per line
+     * @param maxAttempts    attempts at a batch whose failures are not retryable
+     */
+    public SpoolShipper(SpoolLog spool, SpoolSink sink, Path checkpointFile, Path deadLetterFile, int batchSize,
+                        int maxAttempts, Duration pollInterval, Duration initialBackoff, Duration maxBackoff)
+            throws IOException {
+        if (batchSize < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("Batch size and attempts must be positive");
+        }
+        this.spool = spool;
+        this.sink = sink;
+        this.checkpointFile = checkpointFile;
+        this.deadLetterFile = deadLetterFile;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.pollMillis = Math.max(1, pollInterval.toMillis());
+        this.initialBackoffMillis = Math.max(1, initialBackoff.toMillis());
+        this.maxBackoffMillis = Math.max(initialBackoffMillis, maxBackoff.toMillis());
+        this.position = loadCheckpoint(checkpointFile);
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (stopped.getCount() > 0) {
+                SpoolBatch batch = spool.read(position, batchSize);
+                if (batch.getRecords().isEmpty()) {
+                    position = batch.getNext();
+                    stopped.await(pollMillis, TimeUnit.MILLISECONDS);
+                } else if (ship(batch.getRecords())) {
+                    position = batch.getNext();
+                    saveCheckpoint();
+                    spool.release(position);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stop after the batch being shipped; anything left stays in the spool for the next start
+     */
+    @Override
+    public void close() {
+        stopped.countDown();
+    }
+
+    public SpoolStats stats() {
+        SpoolPosition current = position;
+        long batches = shippedBatches.sum();
+        return new SpoolStats(spool.getSegmentCount(), spool.getDiskBytes(), spool.getMaxDiskBytes(),
+                spool.getOverflow(), spool.getAppended(), spool.getAppendedBytes(), spool.getRejected(),
+                spool.getDroppedSegments(), spool.getCorruptRecords(), spool.backlogBytes(current), shipped.sum(),
+                batches, shipAttempts.sum(), shipFailures.sum(), deadLettered.sum(),
+                batches == 0 ? 0.0 : shipNanos.sum() / 1e6 / batches, current);
+    }
+
+    /**
+     * Ship one batch, retrying until it succeeds, or dead-letter it once it
+     * has failed the maximum number of attempts without being retryable
+     *
+     * @return false if the shipper was stopped first
+     */
+    private boolean ship(List<byte[]> records) throws InterruptedException {
+        int permanentFailures = 0;
+        for (int attempt = 1; stopped.getCount() > 0; attempt++) {
+            long start = System.nanoTime();
+            shipAttempts.increment();
+            try {
+                sink.ship(records).get();
+                shipNanos.add(System.nanoTime() - start);
+                shipped.add(records.size());
+                shippedBatches.increment();
+                return true;
+            } catch (ExecutionException | RuntimeException e) {
+                shipFailures.increment();
+                Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                if (!sink.isRetryable(cause) && ++permanentFailures >= maxAttempts && deadLetter(records, cause)) {
+                    return true;
+                }
+                long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+                long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+                log.debug("Shipping {} spooled records failed (attempt {}), retrying in {} ms: {}",
+                        records.size(), attempt, delay, cause.getMessage());
+                if (attempt == 1) {
+                    log.warn("Shipping spooled records failed, retrying: {}", cause.getMessage());
+                }
+                stopped.await(delay, TimeUnit.MILLISECONDS);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Append a batch to the dead-letter file so shipping can move past it
+     *
+     * @return false if it could not be written, so the batch stays in the spool
+     */
+    private boolean deadLetter(List<byte[]> records, Throwable cause) {
+        try {
+            Files.createDirectories(deadLetterFile.toAbsolutePath().getParent());
+            try (OutputStream out = Files.newOutputStream(deadLetterFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND)) {
+                for (byte[] record : records) {
+                    out.write(record);
+                    out.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            log.error("Could not write {} spooled records to the dead-letter file {}: {}", records.size(),
+                    deadLetterFile, e.getMessage());
+            return false;
+        }
+        deadLettered.add(records.size());
+        log.error("Gave up on {} spooled records after {} non-retryable failures, kept in {}: {}",
+                records.size(), maxAttempts, deadLetterFile, cause.getMessage());
+        return true;
+    }
+
+    private void saveCheckpoint() {
+        SpoolPosition current = position;
+        try {
+            Path temporary = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+            Files.writeString(temporary, current.getSegment() + " " + current.getOffset() + "\n",
+                    StandardCharsets.UTF_8);
+            Files.move(temporary, checkpointFile, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // The next checkpoint supersedes it; until then a restart ships a little again
+            log.warn("Could not save spool checkpoint: {}", e.getMessage());
+        }
+    }
+
+    private static SpoolPosition loadCheckpoint(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return SpoolPosition.START;
+        }
+        String[] parts = Files.readString(file, StandardCharsets.UTF_8).trim().split(" ");
+        try {
+            return new SpoolPosition(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+        } catch (RuntimeException e) {
+            throw new IOException("Unreadable spool checkpoint " + file, e);
+        }
+    }
+}
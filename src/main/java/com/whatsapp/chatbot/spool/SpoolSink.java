@@ -0,0 +1,21 @@
+package com.whatsapp.chatbot.spool;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Delivers spooled records downstream; the records count as shipped once the future completes normally
+ */
+@FunctionalInterface
+public interface SpoolSink {
+
+    CompletableFuture<?> ship(List<byte[]> records);
+
+    /**
+     * Whether a failed shipment may succeed if tried again later, such as
+     * during an outage; by default every failure is
+     */
+    default boolean isRetryable(Throwable error) {
+        return true;
+    }
+}
@@ -0,0 +1,34 @@
+package com.whatsapp.chatbot.spool;
+
+import lombok.Value;
+
+/**
+ * Point-in-time counters for the spool and its shipper. Rejected records
+ * were refused at the disk cap; dropped segments were deleted unshipped to
+ * make room.
+ */
+@Value
+public class SpoolStats {
+    int segments;
+    long diskBytes;
+    long maxDiskBytes;
+    SpoolOverflow overflow;
+
+    long appended;
+    long appendedBytes;
+    long rejected;
+    long droppedSegments;
+    long corruptRecords;
+
+    /** Bytes appended but not yet shipped */
+    long backlogBytes;
+
+    long shipped;
+    long shippedBatches;
+    long shipAttempts;
+    long shipFailures;
+    /** Records given up on after repeated non-retryable failures, kept in the dead-letter file */
+    long deadLettered;
+    double meanShipMillis;
+    SpoolPosition shippedTo;
+}
@@ -0,0 +1,124 @@
+package com.whatsapp.chatbot.traffic;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Follows a growing text file like {@code tail -F}, passing each complete line
+ * to a consumer. Handles truncation (restart from the top) and rotation (the
+ * path now names a different file). A trailing partial line is held back until
+ * its newline arrives.
+ */
+@Slf4j
+public final class FileTailFeed implements Runnable, Closeable {
+
+    private final Path path;
+    private final Consumer<String> lines;
+    private final long pollMillis;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private volatile boolean running = true;
+
+    public FileTailFeed(Path path, Consumer<String> lines, long pollMillis) {
+        this.path = path;
+        this.lines = lines;
+        this.pollMillis = pollMillis;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                if (!Files.isRegularFile(path)) {
+                    sleep();
+                    continue;
+                }
+                follow();
+            } catch (IOException e) {
+                log.warn("Traffic feed file {} unreadable: {}", path, e.getMessage());
+                sleep();
+            }
+        }
+    }
+
+    /**
+     * Read the current file until it is rotated away or the feed is closed
+     */
+    private void follow() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Object fileKey = fileKey(path);
+            long position = 0;
+            pending.reset();
+            log.info("Following traffic feed file {}", path);
+
+            while (running) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read > 0) {
+                    position += read;
+                    buffer.flip();
+                    drainLines();
+                    continue;
+                }
+
+                if (channel.size() < position) {
+                    log.info("Traffic feed file {} truncated, reading from the start", path);
+                    position = 0;
+                    pending.reset();
+                } else if (!Files.isRegularFile(path) || !Objects.equals(fileKey, fileKey(path))) {
+                    log.info("Traffic feed file {} rotated, reopening", path);
+                    return;
+                } else {
+                    sleep();
+                }
+            }
+        }
+    }
+
+    private void drainLines() {
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (b == '\n') {
+                lines.accept(pending.toString(StandardCharsets.UTF_8));
+                pending.reset();
+            } else if (b != '\r') {
+                pending.write(b);
+            }
+        }
+    }
+
+    private static Object fileKey(Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(pollMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+    }
+}
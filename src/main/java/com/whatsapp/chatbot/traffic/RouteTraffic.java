@@ -0,0 +1,28 @@
+package com.whatsapp.chatbot.traffic;
+
+import lombok.Value;
+
+/**
+ * Live traffic summary along a planned route
+ */
+@Value
+public class RouteTraffic {
+
+    long freeFlowMillis;
+    long liveMillis;
+    int edges;
+    int edgesWithReports;
+    int incidents;
+
+    /** Street with the lowest reported speed, or empty when nothing on the route has reports */
+    String slowestStreet;
+    double slowestSpeedKmh;
+
+    public long getDelayMillis() {
+        return Math.max(0, liveMillis - freeFlowMillis);
+    }
+
+    public double getCoverage() {
+        return edges == 0 ? 0.0 : (double) edgesWithReports / edges;
+    }
+}
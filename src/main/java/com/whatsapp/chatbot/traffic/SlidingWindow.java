@@ -0,0 +1,75 @@
+package com.whatsapp.chatbot.traffic;
+
+/**
+ * Fixed number of rows, each a ring of time buckets holding a sum and a count.
+ * A bucket slot is reused once its bucket falls out of the window, so updates
+ * and reads touch at most {@code buckets} slots regardless of event volume.
+ * Not thread-safe; callers serialize access.
+ */
+final class SlidingWindow {
+
+    private final int buckets;
+    private final int[] stamps;
+    private final long[] sums;
+    private final int[] counts;
+
+    SlidingWindow(int rows, int buckets) {
+        this.buckets = buckets;
+        this.stamps = new int[rows * buckets];
+        this.sums = new long[rows * buckets];
+        this.counts = new int[rows * buckets];
+    }
+
+    /**
+     * Add a value to the bucket of a row. Stamps are bucket numbers + 1 so a
+     * zeroed slot never looks current.
+     *
+     * @return false if the bucket is older than the window ending at {@code currentBucket}
+     */
+    boolean add(int row, int bucket, long value, int currentBucket) {
+        if (bucket <= currentBucket - buckets) {
+            return false;
+        }
+        int slot = row * buckets + Math.floorMod(bucket, buckets);
+        int stamp = bucket + 1;
+        if (stamps[slot] != stamp) {
+            if (stamps[slot] > stamp) {
+                // Slot already reused by a newer bucket
+                return false;
+            }
+            stamps[slot] = stamp;
+            sums[slot] = 0;
+            counts[slot] = 0;
+        }
+        sums[slot] += value;
+        counts[slot]++;
+        return true;
+    }
+
+    long sum(int row, int currentBucket) {
+        long total = 0;
+        int base = row * buckets;
+        for (int i = 0; i < buckets; i++) {
+            if (isLive(stamps[base + i], currentBucket)) {
+                total += sums[base + i];
+            }
+        }
+        return total;
+    }
+
+    int count(int row, int currentBucket) {
+        int total = 0;
+        int base = row * buckets;
+        for (int i = 0; i < buckets; i++) {
+            if (isLive(stamps[base + i], currentBucket)) {
+                total += counts[base + i];
+            }
+        }
+        return total;
+    }
+
+    private boolean isLive(int stamp, int currentBucket) {
+        int bucket = stamp - 1;
+        return stamp != 0 && bucket <= currentBucket && bucket > currentBucket - buckets;
+    }
+}
@@ -0,0 +1,83 @@
+package com.whatsapp.chatbot.traffic;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Accepts line-oriented feed connections on a loopback port; each connected
+ * producer gets its own reader thread.
+ */
+@Slf4j
+public final class SocketLineFeed implements Runnable, Closeable {
+
+    private final ServerSocket serverSocket;
+    private final Consumer<String> lines;
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+
+    /**
+     * Bind immediately so configuration errors surface at startup
+     */
+    public SocketLineFeed(int port, Consumer<String> lines) throws IOException {
+        this.serverSocket = new ServerSocket(port, 16, InetAddress.getLoopbackAddress());
+        this.lines = lines;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void run() {
+        log.info("Listening for traffic feed connections on {}", serverSocket.getLocalSocketAddress());
+        while (running) {
+            try {
+                Socket client = serverSocket.accept();
+                clients.add(client);
+                Thread reader = new Thread(() -> read(client), "traffic-socket-" + client.getPort());
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Traffic feed accept failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void read(Socket client) {
+        try (client; BufferedReader reader = new BufferedReader(
+                new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8), 1 << 16)) {
+            String line;
+            while (running && (line = reader.readLine()) != null) {
+                lines.accept(line);
+            }
+        } catch (IOException e) {
+            if (running) {
+                log.debug("Traffic feed connection closed: {}", e.getMessage());
+            }
+        } finally {
+            clients.remove(client);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        for (Socket client : clients) {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.whatsapp.chatbot.traffic;
+
+import com.whatsapp.chatbot.routing.RoadGraph;
+import com.whatsapp.chatbot.routing.RoutePath;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sliding-window traffic state over a {@link RoadGraph}.
+ *
+ * Speed and incident reports are folded into per-segment (edge) and per-area
+ * (grid cell, plus one citywide row) bucket rings as they arrive, so reading
+ * the current state of a segment or area costs a fixed number of array reads
+ * however many events were ingested. Reports older than the window are ignored.
+ */
+public final class TrafficAggregator {
+
+    private static final int SPEED_SCALE = 10;
+    private static final int RATIO_SCALE = 1000;
+    // Probe speeds far above the speed limit are usually GPS noise
+    private static final double MAX_SPEED_RATIO = 1.5;
+
+    private final RoadGraph graph;
+    private final long bucketMillis;
+    private final int buckets;
+    private final long epochMillis;
+    private final int areaCount;
+    private final int[] nodeArea;
+    private final int[] edgeArea;
+    private final long[] sortedExternalIds;
+    private final int[] nodeBySortedId;
+    private final SlidingWindow segmentSpeeds;
+    private final SlidingWindow segmentIncidents;
+    private final SlidingWindow areaRatios;
+    private final SlidingWindow areaIncidents;
+
+    /**
+     * @param areaCellSizeDegrees size of the grid cells used as areas
+     * @param bucketMillis        width of one time bucket
+     * @param buckets             buckets per window; the window is {@code buckets * bucketMillis}
+     * @param epochMillis         timestamps before this are rejected (keeps bucket numbers in int range)
+     */
+    public TrafficAggregator(RoadGraph graph, double areaCellSizeDegrees, long bucketMillis, int buckets,
+                             long epochMillis) {
+        if (areaCellSizeDegrees <= 0 || bucketMillis <= 0 || buckets < 1) {
+            throw new IllegalArgumentException("Area cell size, bucket width and bucket count must be positive");
+        }
+        this.graph = graph;
+        this.bucketMillis = bucketMillis;
+        this.buckets = buckets;
+        this.epochMillis = epochMillis;
+
+        int nodes = graph.nodeCount();
+        nodeArea = new int[nodes];
+        Map<Long, Integer> areaIds = new HashMap<>();
+        for (int v = 0; v < nodes; v++) {
+            long cy = (long) Math.floor((graph.latitude(v) + 90.0) / areaCellSizeDegrees);
+            long cx = (long) Math.floor((graph.longitude(v) + 180.0) / areaCellSizeDegrees);
+            Integer area = areaIds.get(cy << 32 | cx);
+            if (area == null) {
+                area = areaIds.size();
+                areaIds.put(cy << 32 | cx, area);
+            }
+            nodeArea[v] = area;
+        }
+        areaCount = areaIds.size();
+
+        edgeArea = new int[graph.edgeCount()];
+        for (int v = 0; v < nodes; v++) {
+            for (int e = graph.firstEdge(v); e < graph.firstEdge(v + 1); e++) {
+                edgeArea[e] = nodeArea[v];
+            }
+        }
+
+        // Sorted external ids for resolving feed references without a boxed map
+        sortedExternalIds = new long[nodes];
+        nodeBySortedId = new int[nodes];
+        Integer[] order = new Integer[nodes];
+        for (int v = 0; v < nodes; v++) {
+            order[v] = v;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(graph.externalId(a), graph.externalId(b)));
+        for (int i = 0; i < nodes; i++) {
+            sortedExternalIds[i] = graph.externalId(order[i]);
+            nodeBySortedId[i] = order[i];
+        }
+
+        segmentSpeeds = new SlidingWindow(graph.edgeCount(), buckets);
+        segmentIncidents = new SlidingWindow(graph.edgeCount(), buckets);
+        areaRatios = new SlidingWindow(areaCount + 1, buckets);
+        areaIncidents = new SlidingWindow(areaCount + 1, buckets);
+    }
+
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    public int areaCount() {
+        return areaCount;
+    }
+
+    public long windowMillis() {
+        return bucketMillis * buckets;
+    }
+
+    public int areaOfEdge(int edge) {
+        return edgeArea[edge];
+    }
+
+    /**
+     * Internal node for a source-data node id, or -1
+     */
+    public int node(long externalId) {
+        int index = Arrays.binarySearch(sortedExternalIds, externalId);
+        return index < 0 ? -1 : nodeBySortedId[index];
+    }
+
+    /**
+     * Directed edge between two source-data node ids, or -1
+     */
+    public int segment(long fromExternalId, long toExternalId) {
+        int from = node(fromExternalId);
+        int to = node(toExternalId);
+        if (from < 0 || to < 0) {
+            return -1;
+        }
+        for (int e = graph.firstEdge(from); e < graph.firstEdge(from + 1); e++) {
+            if (graph.edgeTarget(e) == to) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Area containing the road node closest to a coordinate, or -1 if no road is nearby
+     */
+    public int areaAt(double latitude, double longitude, double maxRadiusMeters) {
+        int node = graph.nearestNode(latitude, longitude, maxRadiusMeters);
+        return node < 0 ? -1 : nodeArea[node];
+    }
+
+    /**
+     * @return false if the report is older than the window
+     */
+    public synchronized boolean recordSpeed(int edge, double speedKmh, long timestampMillis, long nowMillis) {
+        int current = bucketOf(nowMillis);
+        int bucket = bucketOf(Math.min(timestampMillis, nowMillis));
+        if (!segmentSpeeds.add(edge, bucket, Math.round(speedKmh * SPEED_SCALE), current)) {
+            return false;
+        }
+        long ratio = Math.round(Math.min(MAX_SPEED_RATIO, speedKmh / freeFlowSpeedKmh(edge)) * RATIO_SCALE);
+        areaRatios.add(edgeArea[edge], bucket, ratio, current);
+        areaRatios.add(areaCount, bucket, ratio, current);
+        return true;
+    }
+
+    /**
+     * @return false if the report is older than the window
+     */
+    public synchronized boolean recordIncident(int edge, int severity, long timestampMillis, long nowMillis) {
+        int current = bucketOf(nowMillis);
+        int bucket = bucketOf(Math.min(timestampMillis, nowMillis));
+        if (!segmentIncidents.add(edge, bucket, severity, current)) {
+            return false;
+        }
+        areaIncidents.add(edgeArea[edge], bucket, severity, current);
+        areaIncidents.add(areaCount, bucket, severity, current);
+        return true;
+    }
+
+    public synchronized TrafficReading segment(int edge, long nowMillis) {
+        int current = bucketOf(nowMillis);
+        int samples = segmentSpeeds.count(edge, current);
+        double averageSpeed = samples == 0 ? 0.0
+                : segmentSpeeds.sum(edge, current) / (double) (samples * SPEED_SCALE);
+        double ratio = samples == 0 ? 1.0 : Math.min(MAX_SPEED_RATIO, averageSpeed / freeFlowSpeedKmh(edge));
+        return new TrafficReading(samples, averageSpeed, ratio, segmentIncidents.count(edge, current));
+    }
+
+    public synchronized TrafficReading area(int area, long nowMillis) {
+        if (area < 0 || area >= areaCount) {
+            throw new IllegalArgumentException("Unknown area: " + area);
+        }
+        return areaReading(area, bucketOf(nowMillis));
+    }
+
+    public synchronized TrafficReading citywide(long nowMillis) {
+        return areaReading(areaCount, bucketOf(nowMillis));
+    }
+
+    /**
+     * Travel time of an edge at the currently reported speed, never below free flow
+     */
+    public synchronized int liveWeightMillis(int edge, long nowMillis) {
+        int current = bucketOf(nowMillis);
+        return liveWeight(edge, current, segmentSpeeds.count(edge, current));
+    }
+
+    /**
+     * Sum live travel time and collect the slowest reported street along a route
+     */
+    public synchronized RouteTraffic route(RoutePath path, long nowMillis) {
+        int current = bucketOf(nowMillis);
+        long freeFlow = 0;
+        long live = 0;
+        int withReports = 0;
+        int incidents = 0;
+        String slowestStreet = "";
+        double slowestSpeed = Double.MAX_VALUE;
+
+        for (int edge : path.getEdges()) {
+            int samples = segmentSpeeds.count(edge, current);
+            freeFlow += graph.edgeWeightMillis(edge);
+            live += liveWeight(edge, current, samples);
+            incidents += segmentIncidents.count(edge, current);
+            if (samples > 0) {
+                withReports++;
+                double speed = segmentSpeeds.sum(edge, current) / (double) (samples * SPEED_SCALE);
+                if (speed < slowestSpeed) {
+                    slowestSpeed = speed;
+                    slowestStreet = graph.edgeName(edge);
+                }
+            }
+        }
+        return new RouteTraffic(freeFlow, live, path.getEdges().length, withReports, incidents,
+                slowestStreet, withReports == 0 ? 0.0 : slowestSpeed);
+    }
+
+    private TrafficReading areaReading(int row, int current) {
+        int samples = areaRatios.count(row, current);
+        double ratio = samples == 0 ? 1.0 : areaRatios.sum(row, current) / (double) samples / RATIO_SCALE;
+        return new TrafficReading(samples, 0.0, ratio, areaIncidents.count(row, current));
+    }
+
+    private int liveWeight(int edge, int current, int samples) {
+        int freeFlow = graph.edgeWeightMillis(edge);
+        if (samples == 0) {
+            return freeFlow;
+        }
+        double speedKmh = segmentSpeeds.sum(edge, current) / (double) (samples * SPEED_SCALE);
+        if (speedKmh <= 0.5) {
+            // Stopped traffic: cap at a crawl instead of an infinite weight
+            speedKmh = 0.5;
+        }
+        long millis = Math.round(graph.edgeLengthMeters(edge) / (speedKmh / 3.6) * 1000.0);
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(freeFlow, millis));
+    }
+
+    private double freeFlowSpeedKmh(int edge) {
+        return graph.edgeLengthMeters(edge) * 3600.0 / graph.edgeWeightMillis(edge);
+    }
+
+    private int bucketOf(long timestampMillis) {
+        return (int) Math.floorDiv(timestampMillis - epochMillis, bucketMillis);
+    }
+}
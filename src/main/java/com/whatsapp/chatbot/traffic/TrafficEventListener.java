@@ -0,0 +1,12 @@
+package com.whatsapp.chatbot.traffic;
+
+/**
+ * Notified on the ingest thread after a feed event has been folded into the
+ * aggregates. Implementations must be quick and must not block.
+ */
+public interface TrafficEventListener {
+
+    void onSpeedReport(int edge, long nowMillis);
+
+    void onIncident(int edge, int severity, long nowMillis);
+}
@@ -0,0 +1,26 @@
+package com.whatsapp.chatbot.traffic;
+
+import lombok.Value;
+
+/**
+ * Point-in-time ingest counters for the traffic feed
+ */
+@Value
+public class TrafficIngestStats {
+
+    long accepted;
+    long malformed;
+    long unknownSegments;
+    long late;
+
+    /** Accepted events per second over the last few seconds */
+    double eventsPerSecond;
+
+    /** Age of the newest accepted event; -1 before the first event */
+    long dataAgeMillis;
+
+    /** Smoothed delay between an event's timestamp and its ingestion */
+    double ingestLagMillis;
+
+    long windowMillis;
+}
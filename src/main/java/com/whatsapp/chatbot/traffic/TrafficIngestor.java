@@ -0,0 +1,148 @@
+package com.whatsapp.chatbot.traffic;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Parses traffic feed lines and folds them into a {@link TrafficAggregator}.
+ *
+ * One event per line, comma separated, segments addressed by source-data node ids:
+ * <pre>
+ * timestamp_ms,SPEED,from_node,to_node,speed_kmh
+ * timestamp_ms,INCIDENT,from_node,to_node,severity[,description]
+ * </pre>
+ * Blank lines and lines starting with {@code #} are ignored. Safe to call from
+ * several feed threads at once.
+ */
+public final class TrafficIngestor implements Consumer<String> {
+
+    private static final int RATE_SECONDS = 10;
+    private static final double LAG_SMOOTHING = 0.05;
+
+    private final TrafficAggregator aggregator;
+    private final LongSupplier clock;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder malformed = new LongAdder();
+    private final LongAdder unknownSegments = new LongAdder();
+    private final LongAdder late = new LongAdder();
+
+    // Per-second accepted counts for the throughput figure, guarded by this
+    private final long[] rateSeconds = new long[RATE_SECONDS + 1];
+    private final long[] rateCounts = new long[RATE_SECONDS + 1];
+    private long newestEventMillis = -1;
+    private double lagMillis;
+
+    private volatile TrafficEventListener listener;
+
+    public TrafficIngestor(TrafficAggregator aggregator) {
+        this(aggregator, System::currentTimeMillis);
+    }
+
+    public TrafficIngestor(TrafficAggregator aggregator, LongSupplier clock) {
+        this.aggregator = aggregator;
+        this.clock = clock;
+    }
+
+    public void setListener(TrafficEventListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void accept(String rawLine) {
+        String line = rawLine == null ? "" : rawLine.strip();
+        if (line.isEmpty() || line.charAt(0) == '#') {
+            return;
+        }
+
+        int c1 = line.indexOf(',');
+        int c2 = c1 < 0 ? -1 : line.indexOf(',', c1 + 1);
+        int c3 = c2 < 0 ? -1 : line.indexOf(',', c2 + 1);
+        int c4 = c3 < 0 ? -1 : line.indexOf(',', c3 + 1);
+        if (c4 < 0) {
+            malformed.increment();
+            return;
+        }
+        int c5 = line.indexOf(',', c4 + 1);
+        int valueEnd = c5 < 0 ? line.length() : c5;
+
+        long timestamp;
+        long from;
+        long to;
+        double value;
+        try {
+            timestamp = Long.parseLong(line, 0, c1, 10);
+            from = Long.parseLong(line, c2 + 1, c3, 10);
+            to = Long.parseLong(line, c3 + 1, c4, 10);
+            value = Double.parseDouble(line.substring(c4 + 1, valueEnd));
+        } catch (NumberFormatException e) {
+            malformed.increment();
+            return;
+        }
+
+        int typeLength = c2 - c1 - 1;
+        boolean speed = typeLength == 5 && line.regionMatches(true, c1 + 1, "SPEED", 0, 5);
+        boolean incident = typeLength == 8 && line.regionMatches(true, c1 + 1, "INCIDENT", 0, 8);
+        if ((!speed && !incident) || !(value >= 0) || Double.isInfinite(value)) {
+            malformed.increment();
+            return;
+        }
+
+        int edge = aggregator.segment(from, to);
+        if (edge < 0) {
+            unknownSegments.increment();
+            return;
+        }
+
+        long now = clock.getAsLong();
+        int severity = (int) Math.max(1, Math.min(5, value));
+        boolean recorded = speed
+                ? aggregator.recordSpeed(edge, value, timestamp, now)
+                : aggregator.recordIncident(edge, severity, timestamp, now);
+        if (!recorded) {
+            late.increment();
+            return;
+        }
+        accepted.increment();
+        recordAccepted(timestamp, now);
+
+        TrafficEventListener current = listener;
+        if (current != null) {
+            if (speed) {
+                current.onSpeedReport(edge, now);
+            } else {
+                current.onIncident(edge, severity, now);
+            }
+        }
+    }
+
+    private synchronized void recordAccepted(long timestamp, long now) {
+        long second = now / 1000;
+        int slot = (int) (second % rateSeconds.length);
+        if (rateSeconds[slot] != second) {
+            rateSeconds[slot] = second;
+            rateCounts[slot] = 0;
+        }
+        rateCounts[slot]++;
+
+        long lag = Math.max(0, now - timestamp);
+        lagMillis = newestEventMillis < 0 ? lag : lagMillis + LAG_SMOOTHING * (lag - lagMillis);
+        newestEventMillis = Math.max(newestEventMillis, Math.min(timestamp, now));
+    }
+
+    public synchronized TrafficIngestStats stats() {
+        long now = clock.getAsLong();
+        long currentSecond = now / 1000;
+        long events = 0;
+        // Only complete seconds, so the figure does not dip at the start of each second
+        for (int i = 0; i < rateSeconds.length; i++) {
+            long second = rateSeconds[i];
+            if (second < currentSecond && second >= currentSecond - RATE_SECONDS) {
+                events += rateCounts[i];
+            }
+        }
+        return new TrafficIngestStats(accepted.sum(), malformed.sum(), unknownSegments.sum(), late.sum(),
+                events / (double) RATE_SECONDS, newestEventMillis < 0 ? -1 : now - newestEventMillis,
+                lagMillis, aggregator.windowMillis());
+    }
+}
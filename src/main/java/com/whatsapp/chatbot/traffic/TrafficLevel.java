@@ -0,0 +1,32 @@
+package com.whatsapp.chatbot.traffic;
+
+/**
+ * Congestion level from observed speed as a fraction of free-flow speed
+ */
+public enum TrafficLevel {
+
+    UNKNOWN("No recent reports"),
+    LIGHT("Light traffic"),
+    MODERATE("Moderate delays"),
+    HEAVY("Heavy traffic");
+
+    private final String label;
+
+    TrafficLevel(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public static TrafficLevel fromSpeedRatio(double speedRatio, int samples) {
+        if (samples == 0) {
+            return UNKNOWN;
+        }
+        if (speedRatio >= 0.8) {
+            return LIGHT;
+        }
+        return speedRatio >= 0.5 ? MODERATE : HEAVY;
+    }
+}
@@ -0,0 +1,26 @@
+package com.whatsapp.chatbot.traffic;
+
+import lombok.Value;
+
+/**
+ * Windowed traffic aggregate for a road segment or area
+ */
+@Value
+public class TrafficReading {
+
+    /** Speed reports in the window */
+    int samples;
+
+    /** Mean reported speed; 0 for areas, which mix road classes */
+    double averageSpeedKmh;
+
+    /** Mean of reported speed / free-flow speed, 1.0 when there are no reports */
+    double speedRatio;
+
+    /** Incident reports in the window */
+    int incidents;
+
+    public TrafficLevel getLevel() {
+        return TrafficLevel.fromSpeedRatio(speedRatio, samples);
+    }
+}
@@ -0,0 +1,31 @@
+-- Schema as first deployed (created by Hibernate from the original entities with ids from AUTO_INCREMENT).
+-- Production runs with ddl-auto=validate: apply these scripts in version order before deploying a release
+-- that needs them; a fresh database starts from this one.
+
+CREATE TABLE whatsapp_messages (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    message_id VARCHAR(255) NOT NULL,
+    from_number VARCHAR(255) NOT NULL,
+    to_number VARCHAR(255) NOT NULL,
+    message_text TEXT,
+    message_type VARCHAR(255),
+    timestamp DATETIME(6) NOT NULL,
+    status VARCHAR(255),
+    direction VARCHAR(255),
+    conversation_id VARCHAR(255),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_whatsapp_messages_message_id UNIQUE (message_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE user_sessions (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    phone_number VARCHAR(255) NOT NULL,
+    current_state VARCHAR(255),
+    navigation_path TEXT,
+    user_preferences TEXT,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    session_active BIT,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_user_sessions_phone_number UNIQUE (phone_number)
+) ENGINE=InnoDB;
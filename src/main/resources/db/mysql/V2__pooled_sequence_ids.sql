@@ -0,0 +1,9 @@
+-- Pooled sequence ids for batched message and session inserts. MySQL has no sequences, so Hibernate
+-- keeps each one as a one-row table. A pooled block of 50 ids ends at the value read, so start one
+-- block past the highest id AUTO_INCREMENT already handed out.
+
+CREATE TABLE whatsapp_message_seq (next_val BIGINT) ENGINE=InnoDB;
+INSERT INTO whatsapp_message_seq (next_val) SELECT COALESCE(MAX(id), 0) + 51 FROM whatsapp_messages;
+
+CREATE TABLE user_session_seq (next_val BIGINT) ENGINE=InnoDB;
+INSERT INTO user_session_seq (next_val) SELECT COALESCE(MAX(id), 0) + 51 FROM user_sessions;
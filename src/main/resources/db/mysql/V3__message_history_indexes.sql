@@ -0,0 +1,5 @@
+-- Message history is read newest first per number from either side; id breaks timestamp ties for
+-- keyset paging, so each page is one ordered range of an index.
+
+CREATE INDEX idx_messages_from_timestamp ON whatsapp_messages (from_number, timestamp DESC, id DESC);
+CREATE INDEX idx_messages_to_timestamp ON whatsapp_messages (to_number, timestamp DESC, id DESC);
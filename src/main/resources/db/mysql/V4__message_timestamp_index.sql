@@ -0,0 +1,3 @@
+-- Date-range exports read messages in timestamp order.
+
+CREATE INDEX idx_messages_timestamp ON whatsapp_messages (timestamp);
@@ -0,0 +1,20 @@
+-- Conversation ids are assigned as messages are logged, and each conversation keeps a running summary
+-- so listing conversations never scans the message table.
+
+CREATE TABLE conversations (
+    conversation_id VARCHAR(255) NOT NULL,
+    phone_number VARCHAR(255) NOT NULL,
+    started_at DATETIME(6) NOT NULL,
+    last_message_at DATETIME(6) NOT NULL,
+    ended_at DATETIME(6),
+    message_count BIGINT NOT NULL,
+    inbound_count BIGINT NOT NULL,
+    outbound_count BIGINT NOT NULL,
+    final_state VARCHAR(255),
+    PRIMARY KEY (conversation_id)
+) ENGINE=InnoDB;
+CREATE INDEX idx_conversations_phone_started ON conversations (phone_number, started_at DESC);
+
+-- conversation_id has been on whatsapp_messages since the baseline; existing messages keep it NULL.
+-- A conversation is loaded as one range of this index
+CREATE INDEX idx_messages_conversation ON whatsapp_messages (conversation_id, timestamp, id);
@@ -0,0 +1,162 @@
+package com.whatsapp.chatbot.alerts;
+
+import com.whatsapp.chatbot.routing.RoadGraph;
+import com.whatsapp.chatbot.routing.RoadGraphBuilder;
+import com.whatsapp.chatbot.routing.RoutePath;
+import com.whatsapp.chatbot.traffic.TrafficAggregator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for alert matching, dedup and paced dispatch
+ */
+class TrafficAlertEngineTest {
+
+    private static final long MINUTE = 60_000;
+    private static final long START = 1_700_000_000_000L;
+
+    private final List<String> delivered = new CopyOnWriteArrayList<>();
+    private AlertDispatcher dispatcher;
+
+    @AfterEach
+    void stopDispatcher() {
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+    }
+
+    @Test
+    void onIncident_AlertsRouteAndAreaSubscribersOfThatSegmentOnly() throws InterruptedException {
+        // Arrange
+        TrafficAggregator aggregator = aggregator();
+        TrafficAlertEngine engine = engine(aggregator, 10 * MINUTE, 1000);
+        int first = aggregator.segment(1L, 2L);
+        int second = aggregator.segment(2L, 3L);
+        engine.subscribeRoute("100", route(first), "Home → Work");
+        engine.subscribeArea("100", aggregator.areaOfEdge(first));
+        engine.subscribeArea("200", aggregator.areaOfEdge(first));
+        engine.subscribeRoute("300", route(second), "Gym → Home");
+
+        // Act
+        aggregator.recordIncident(first, 3, START, START);
+        engine.onIncident(first, 3, START);
+        waitFor(() -> delivered.size() >= 2);
+        Thread.sleep(100);
+
+        // Assert
+        assertEquals(2, delivered.size());
+        assertTrue(delivered.stream().anyMatch(alert ->
+                alert.startsWith("100:") && alert.contains("First Avenue") && alert.contains("Home → Work")));
+        assertTrue(delivered.stream().anyMatch(alert -> alert.startsWith("200:") && alert.contains("near you")));
+        assertEquals(1, engine.stats().getMatchedEvents());
+    }
+
+    @Test
+    void onIncident_SuppressesRepeatsWithinCooldownAndStopsAfterUnsubscribe() throws InterruptedException {
+        // Arrange
+        TrafficAggregator aggregator = aggregator();
+        TrafficAlertEngine engine = engine(aggregator, 10 * MINUTE, 1000);
+        int edge = aggregator.segment(1L, 2L);
+        engine.subscribeRoute("100", route(edge), "Home → Work");
+
+        // Act
+        engine.onIncident(edge, 2, START);
+        engine.onIncident(edge, 2, START + MINUTE);
+        engine.onIncident(edge, 2, START + 11 * MINUTE);
+        engine.unsubscribe("100");
+        engine.onIncident(edge, 2, START + 30 * MINUTE);
+        waitFor(() -> delivered.size() >= 2);
+        Thread.sleep(100);
+
+        // Assert
+        assertEquals(2, delivered.size());
+        assertEquals(1, engine.stats().getSuppressed());
+        assertFalse(engine.isSubscribed("100"));
+    }
+
+    @Test
+    void onSpeedReport_AlertsOnlyWhenSegmentTurnsHeavy() throws InterruptedException {
+        // Arrange
+        TrafficAggregator aggregator = aggregator();
+        TrafficAlertEngine engine = engine(aggregator, 0, 1000);
+        int edge = aggregator.segment(1L, 2L);
+        engine.subscribeRoute("100", route(edge), null);
+
+        // Act: three slow reports cross into heavy, further slow reports stay heavy
+        for (int i = 0; i < 6; i++) {
+            aggregator.recordSpeed(edge, 8, START + i, START + i);
+            engine.onSpeedReport(edge, START + i);
+        }
+        waitFor(() -> !delivered.isEmpty());
+        Thread.sleep(100);
+
+        // Assert
+        assertEquals(1, delivered.size());
+        assertTrue(delivered.get(0).contains("Heavy traffic on First Avenue"));
+    }
+
+    @Test
+    void dispatcher_PacesSendsToConfiguredRate() throws InterruptedException {
+        // Arrange: burst of 5, then 20 per second
+        dispatcher = new AlertDispatcher(this::record, 100, 5, 20, Duration.ofSeconds(5));
+        Thread thread = new Thread(dispatcher);
+        thread.setDaemon(true);
+        long started = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            dispatcher.offer(new Alert("1" + i, "alert", 1, started));
+        }
+
+        // Act
+        thread.start();
+        waitFor(() -> delivered.size() == 10);
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        // Assert
+        assertEquals(10, dispatcher.sent());
+        assertTrue(elapsedMillis >= 200, "elapsed " + elapsedMillis + " ms");
+    }
+
+    private TrafficAlertEngine engine(TrafficAggregator aggregator, long cooldownMillis, double ratePerSecond) {
+        dispatcher = new AlertDispatcher(this::record, 1000, 50, ratePerSecond, Duration.ofSeconds(5));
+        Thread thread = new Thread(dispatcher);
+        thread.setDaemon(true);
+        thread.start();
+        return new TrafficAlertEngine(aggregator, dispatcher, cooldownMillis);
+    }
+
+    private Mono<String> record(String phoneNumber, String message) {
+        delivered.add(phoneNumber + ": " + message);
+        return Mono.just("ok");
+    }
+
+    private static TrafficAggregator aggregator() {
+        // Two 40 km/h segments on a straight road, each in its own area cell
+        RoadGraph graph = new RoadGraphBuilder(0.01)
+                .addNode(1, 40.000, -74.00)
+                .addNode(2, 40.000, -73.98)
+                .addNode(3, 40.000, -73.96)
+                .addEdge(1, 2, 0, 40, false, "First Avenue")
+                .addEdge(2, 3, 0, 40, false, "Second Avenue")
+                .build(1L);
+        return new TrafficAggregator(graph, 0.015, MINUTE, 5, START - MINUTE);
+    }
+
+    private static RoutePath route(int edge) {
+        return new RoutePath(new int[0], new int[]{edge}, 0, 0, 0);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
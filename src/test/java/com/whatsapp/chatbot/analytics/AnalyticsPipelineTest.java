@@ -0,0 +1,131 @@
+package com.whatsapp.chatbot.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for per-minute counting, sampling and flushing in the analytics pipeline
+ */
+class AnalyticsPipelineTest {
+
+    private static final long MINUTE = 60_000;
+    private static final long T0 = 1_700_000_040_000L; // 22:14:00 UTC
+
+    private final List<AnalyticsEvent> written = new ArrayList<>();
+    private final List<MinuteCounter> counters = new ArrayList<>();
+    private final AnalyticsSink sink = (sampled, minuteCounters) -> {
+        written.addAll(sampled);
+        counters.addAll(minuteCounters);
+    };
+
+    @Test
+    void flush_WritesClosedMinutesOnlyOnceTheGracePeriodHasPassed() {
+        // Arrange
+        AnalyticsPipeline pipeline = new AnalyticsPipeline(AnalyticsSinkType.NONE, sink, 0.0, 100, 100, 5_000, 60 * MINUTE);
+        for (int i = 0; i < 30; i++) {
+            pipeline.record(event("user_interactions", i % 3 == 0 ? "image" : "text", T0 + i * 1_000));
+        }
+        pipeline.record(event("navigation_requests", "directions", T0 + 59_000));
+        pipeline.record(event("user_interactions", "text", T0 + MINUTE + 1_000));
+
+        // Act
+        pipeline.flush(T0 + MINUTE + 4_000, false);
+        int beforeGrace = counters.size();
+        pipeline.flush(T0 + MINUTE + 5_000, false);
+
+        // Assert: the first minute's three counters, not the second minute's
+        assertEquals(0, beforeGrace);
+        assertEquals(3, counters.size());
+        assertEquals(20, count("user_interactions", "text"));
+        assertEquals(10, count("user_interactions", "image"));
+        assertEquals(1, count("navigation_requests", "directions"));
+        assertEquals("2023-11-14T22:14Z", counters.get(0).getMinute());
+        assertEquals(1, pipeline.stats().getOpenMinutes());
+        assertTrue(written.isEmpty());
+    }
+
+    @Test
+    void record_SamplesAboutTheConfiguredShareAndCountsEveryEvent() {
+        // Arrange
+        AnalyticsPipeline pipeline = new AnalyticsPipeline(AnalyticsSinkType.NONE, sink, 0.01, 100_000, 100, 0, 60 * MINUTE);
+
+        // Act
+        for (int i = 0; i < 100_000; i++) {
+            pipeline.record(event("analytics", "location_search", T0));
+        }
+        pipeline.flush(T0, true);
+
+        // Assert: 1% of 100k, within a wide margin; each sample carries its rate
+        assertTrue(written.size() > 800 && written.size() < 1_200, "sampled " + written.size());
+        assertEquals(0.01, written.get(0).getData().get("sampleRate"));
+        assertEquals(100_000, count("analytics", "location_search"));
+        AnalyticsStats stats = pipeline.stats();
+        assertEquals(100_000, stats.getEvents());
+        assertEquals(written.size() + 1, stats.getEventsWritten() + stats.getCountersWritten());
+    }
+
+    @Test
+    void record_CountsLateEventsAndKindsOverTheLimitSeparately() {
+        // Arrange: at most two kinds per minute
+        AnalyticsPipeline pipeline = new AnalyticsPipeline(AnalyticsSinkType.NONE, sink, 0.0, 100, 2, 0, 60 * MINUTE);
+        pipeline.record(event("analytics", "a", T0));
+        pipeline.flush(T0 + MINUTE, false);
+
+        // Act
+        pipeline.record(event("analytics", "a", T0 + 1_000));
+        pipeline.record(event("analytics", "b", T0 + MINUTE));
+        pipeline.record(event("analytics", "c", T0 + MINUTE));
+        pipeline.record(event("analytics", "d", T0 + MINUTE));
+        pipeline.record(event("analytics", "e", T0 + MINUTE));
+        pipeline.flush(T0 + 2 * MINUTE, false);
+
+        // Assert: the late event is flushed as a second counter for its minute
+        assertEquals(2, count("analytics", "a"));
+        assertEquals(1, count("analytics", "b"));
+        assertEquals(1, count("analytics", "c"));
+        assertEquals(2, count("analytics", "other"));
+        AnalyticsStats stats = pipeline.stats();
+        assertEquals(1, stats.getLateEvents());
+        assertEquals(2, stats.getKindOverflow());
+    }
+
+    @Test
+    void flush_CarriesTheMinuteTotalAndDropsEventsPastTheLateWindow() {
+        // Arrange: totals kept for two minutes after a flush
+        AnalyticsPipeline pipeline = new AnalyticsPipeline(AnalyticsSinkType.NONE, sink, 0.0, 100, 100, 0,
+                2 * MINUTE);
+        pipeline.record(event("analytics", "a", T0));
+        pipeline.record(event("analytics", "a", T0 + 1_000));
+        pipeline.flush(T0 + MINUTE, false);
+
+        // Act: a late event within the window, then one past it
+        pipeline.record(event("analytics", "a", T0 + 2_000));
+        pipeline.flush(T0 + 2 * MINUTE, false);
+        pipeline.flush(T0 + 5 * MINUTE, false);
+        pipeline.record(event("analytics", "a", T0 + 3_000));
+        pipeline.flush(T0 + 6 * MINUTE, false);
+
+        // Assert
+        assertEquals(2, counters.size());
+        assertEquals(1, counters.get(1).getCount());
+        assertEquals(3, counters.get(1).getTotal());
+        assertEquals(1, pipeline.stats().getExpiredEvents());
+    }
+
+    private long count(String stream, String kind) {
+        return counters.stream()
+                .filter(counter -> counter.getStream().equals(stream) && counter.getKind().equals(kind))
+                .mapToLong(MinuteCounter::getCount)
+                .sum();
+    }
+
+    private static AnalyticsEvent event(String stream, String kind, long timestampMillis) {
+        return new AnalyticsEvent(stream, kind, timestampMillis, Map.of("phoneNumber", "15550001"));
+    }
+}
@@ -0,0 +1,36 @@
+package com.whatsapp.chatbot.analytics;
+
+import com.whatsapp.chatbot.firestore.FirestoreWrite;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for the Firestore analytics documents
+ */
+class FirestoreAnalyticsSinkTest {
+
+    @Test
+    void write_OverwritesAMinuteFlushedTwiceWithItsTotal() {
+        // Arrange
+        List<FirestoreWrite> writes = new ArrayList<>();
+        FirestoreAnalyticsSink sink = new FirestoreAnalyticsSink(writes::add);
+        MinuteCounter first = new MinuteCounter("user_interactions", "text", "2024-05-01T10:14Z",
+                1_714_558_440_000L, 42, 42);
+        MinuteCounter late = new MinuteCounter("user_interactions", "text", "2024-05-01T10:14Z",
+                1_714_558_440_000L, 3, 45);
+
+        // Act: the minute is flushed again for late events
+        sink.write(List.of(), List.of(first));
+        sink.write(List.of(), List.of(late));
+
+        // Assert: one document, holding the whole count however often the last write is retried
+        assertEquals(writes.get(0).path(), writes.get(1).path());
+        assertEquals("user_interactions_text_2024-05-01T10:14Z", writes.get(1).getDocumentId());
+        assertEquals(45L, writes.get(1).getData().get("count"));
+        assertEquals("2024-05-01T10:14Z", writes.get(1).getData().get("minute"));
+    }
+}
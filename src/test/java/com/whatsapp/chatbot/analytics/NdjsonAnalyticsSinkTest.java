@@ -0,0 +1,49 @@
+package com.whatsapp.chatbot.analytics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for the hourly NDJSON analytics files
+ */
+class NdjsonAnalyticsSinkTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void write_AppendsOneLinePerEventAndCounterToTheHoursFiles() throws Exception {
+        // Arrange
+        Clock clock = Clock.fixed(Instant.parse("2024-05-01T10:15:30Z"), ZoneOffset.UTC);
+        NdjsonAnalyticsSink sink = new NdjsonAnalyticsSink(directory, clock);
+        AnalyticsEvent event = new AnalyticsEvent("user_interactions", "text", 1_714_558_530_000L,
+                Map.of("phoneNumber", "15550001", "sampleRate", 0.01));
+        MinuteCounter counter = new MinuteCounter("user_interactions", "text", "2024-05-01T10:14Z",
+                1_714_558_440_000L, 42, 42);
+
+        // Act: two flushes in the same hour
+        sink.write(List.of(event), List.of(counter));
+        sink.write(List.of(event, event), List.of());
+
+        // Assert
+        List<String> events = Files.readAllLines(directory.resolve("events-2024-05-01T10.ndjson"));
+        List<String> counters = Files.readAllLines(directory.resolve("counters-2024-05-01T10.ndjson"));
+        assertEquals(3, events.size());
+        assertEquals(1, counters.size());
+        Map<?, ?> line = new ObjectMapper().readValue(events.get(2), Map.class);
+        assertEquals("text", line.get("kind"));
+        assertEquals("15550001", line.get("phoneNumber"));
+        assertEquals(42, new ObjectMapper().readValue(counters.get(0), Map.class).get("count"));
+    }
+}
@@ -0,0 +1,163 @@
+package com.whatsapp.chatbot.archive;
+
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the segment file format and archive reads
+ */
+class MessageArchiveTest {
+
+    private static final LocalDateTime DAY_ONE = LocalDateTime.of(2024, 3, 1, 9, 0, 0, 123_456_000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void append_PartitionsByDayAndRoundTripsEveryColumn() throws Exception {
+        // Arrange
+        MessageArchive archive = MessageArchive.open(directory, 10);
+        List<WhatsAppMessage> messages = conversation(40);
+        messages.get(3).setMessageText(null);
+        messages.get(4).setConversationId("conv-1");
+
+        // Act
+        archive.append(messages);
+        MessageArchive reopened = MessageArchive.open(directory, 10);
+
+        // Assert
+        assertEquals(2, reopened.getPartitions());
+        assertEquals(40, reopened.getRows());
+        List<WhatsAppMessage> restored = new ArrayList<>();
+        for (Segment segment : reopened.getSegments()) {
+            restored.addAll(segment.readAll());
+        }
+        restored.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+        assertEquals(messages, restored);
+    }
+
+    @Test
+    void history_PagesNewestFirstAcrossSegments() throws Exception {
+        // Arrange
+        MessageArchive archive = MessageArchive.open(directory, 10);
+        List<WhatsAppMessage> messages = conversation(40);
+        archive.append(messages.subList(0, 20));
+        archive.append(messages.subList(20, 40));
+
+        // Act
+        List<WhatsAppMessage> first = archive.history("15550001", LocalDateTime.MAX.withYear(9999), Long.MAX_VALUE, 15);
+        WhatsAppMessage last = first.get(first.size() - 1);
+        List<WhatsAppMessage> second = archive.history("15550001", last.getTimestamp(), last.getId(), 15);
+
+        // Assert: every other message is 15550001's, ids 39, 37, ... 1
+        assertEquals(15, first.size());
+        assertEquals(39L, first.get(0).getId());
+        assertEquals(11L, last.getId());
+        assertEquals(5, second.size());
+        assertEquals(1L, second.get(4).getId());
+        assertTrue(archive.history("15559999", LocalDateTime.MAX.withYear(9999), Long.MAX_VALUE, 15).isEmpty());
+    }
+
+    @Test
+    void commit_SurvivesReopen() throws Exception {
+        // Arrange
+        MessageArchive archive = MessageArchive.open(directory, 10);
+        List<Segment> written = archive.append(conversation(40));
+
+        // Act
+        archive.commit(written.get(0).getSequence());
+        MessageArchive reopened = MessageArchive.open(directory, 10);
+
+        // Assert
+        assertEquals(1, reopened.uncommitted().size());
+        assertEquals(written.get(1).getSequence(), reopened.uncommitted().get(0).getSequence());
+    }
+
+    @Test
+    void rewriteAndDrop_ReplaceWholeSegmentsAndSurviveReopen() throws Exception {
+        // Arrange: day one in two segments, day two in one
+        MessageArchive archive = MessageArchive.open(directory, 10);
+        List<WhatsAppMessage> messages = conversation(40);
+        archive.append(messages.subList(0, 10));
+        archive.append(messages.subList(10, 40));
+        archive.commit(Long.MAX_VALUE);
+        LocalDateTime dayTwo = DAY_ONE.plusDays(1).withHour(0);
+
+        // Act
+        long rewritten = archive.rewriteBetween(DAY_ONE.minusDays(1), dayTwo, message -> {
+            message.setMessageText(null);
+            return message;
+        });
+        MessageArchive reopened = MessageArchive.open(directory, 10);
+
+        // Assert: day one compacted into one segment without text; day two untouched
+        assertEquals(20, rewritten);
+        assertEquals(2, reopened.getSegments().size());
+        assertEquals(40, reopened.getRows());
+        for (Segment segment : reopened.getSegments()) {
+            for (WhatsAppMessage message : segment.readAll()) {
+                assertEquals(message.getTimestamp().isBefore(dayTwo), message.getMessageText() == null);
+            }
+        }
+        List<Long> dropped = new ArrayList<>();
+        assertEquals(20, reopened.dropBefore(dayTwo, dropped::add));
+        assertEquals(20, dropped.size());
+        assertEquals(1, MessageArchive.open(directory, 10).getPartitions());
+    }
+
+    @Test
+    void dropBefore_KeepsSegmentFilesUntilOpenReadsClose() throws Exception {
+        // Arrange
+        MessageArchive archive = MessageArchive.open(directory, 10);
+        List<WhatsAppMessage> messages = conversation(40);
+        archive.append(messages);
+        archive.commit(Long.MAX_VALUE);
+        LocalDateTime dayTwo = DAY_ONE.plusDays(1).toLocalDate().atStartOfDay();
+
+        // Act: retention drops the first day while a read still holds it
+        List<WhatsAppMessage> restored = new ArrayList<>();
+        Path dropped;
+        try (MessageArchive.Read read = archive.openRead()) {
+            assertEquals(20, archive.dropBefore(dayTwo, id -> { }));
+            Segment oldest = read.getSegments().get(read.getSegments().size() - 1);
+            dropped = oldest.getPath();
+            assertTrue(Files.exists(dropped));
+            for (Segment segment : read.getSegments()) {
+                restored.addAll(segment.readAll());
+            }
+        }
+        archive.dropBefore(dayTwo, id -> { });
+
+        // Assert
+        assertEquals(40, restored.size());
+        assertEquals(1, archive.getPartitions());
+        assertFalse(Files.exists(dropped));
+    }
+
+    /**
+     * Messages alternating between two users, the second half a day later
+     */
+    private static List<WhatsAppMessage> conversation(int count) {
+        List<WhatsAppMessage> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String user = i % 2 == 1 ? "15550001" : "15550002";
+            boolean inbound = i % 4 < 2;
+            LocalDateTime timestamp = DAY_ONE.plusDays(i < count / 2 ? 0 : 1).plusMinutes(i);
+            messages.add(new WhatsAppMessage((long) i, "wamid." + i, inbound ? user : "chatbot",
+                    inbound ? "chatbot" : user, "Message " + i, "text", timestamp,
+                    inbound ? "RECEIVED" : "SENT", inbound ? "INBOUND" : "OUTBOUND", null));
+        }
+        return messages;
+    }
+}
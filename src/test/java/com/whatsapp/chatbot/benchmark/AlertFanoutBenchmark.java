@@ -0,0 +1,142 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.alerts.AlertDispatcher;
+import com.whatsapp.chatbot.alerts.AlertStats;
+import com.whatsapp.chatbot.alerts.TrafficAlertEngine;
+import com.whatsapp.chatbot.routing.RoadGraph;
+import com.whatsapp.chatbot.routing.RoadGraphBuilder;
+import com.whatsapp.chatbot.routing.RoutePath;
+import com.whatsapp.chatbot.traffic.TrafficAggregator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Traffic alert matching and fan-out benchmark.
+ * Run with: mvn test -Pbenchmark -Dtest=AlertFanoutBenchmark [-Dbenchmark.subscribers=100000]
+ *
+ * Half the subscribers watch an area, half a 50-segment route. The sender is
+ * a no-op and the rate limit is effectively off, so the numbers cover
+ * matching, dedup, queueing and dispatch rather than the WhatsApp API.
+ */
+@Tag("benchmark")
+class AlertFanoutBenchmark {
+
+    private static final int SIDE = 300;
+    private static final int ROUTE_LENGTH = 50;
+    private static final int MATCHED_EVENTS = 2_000;
+    private static final int UNWATCHED_EVENTS = 1_000_000;
+
+    @Test
+    void fanOut() throws InterruptedException {
+        int subscribers = Integer.getInteger("benchmark.subscribers", 100_000);
+        RoadGraphBuilder builder = new RoadGraphBuilder(0.01);
+        for (int r = 0; r < SIDE; r++) {
+            for (int c = 0; c < SIDE; c++) {
+                builder.addNode((long) r * SIDE + c, 30.0 + r * 0.002, -100.0 + c * 0.0025);
+            }
+        }
+        for (int r = 0; r < SIDE; r++) {
+            for (int c = 0; c < SIDE; c++) {
+                long id = (long) r * SIDE + c;
+                if (c + 1 < SIDE) {
+                    builder.addEdge(id, id + 1, 0, 40, false, "Row " + r);
+                }
+                if (r + 1 < SIDE) {
+                    builder.addEdge(id, id + SIDE, 0, 40, false, "Col " + c);
+                }
+            }
+        }
+        RoadGraph graph = builder.build(1L);
+        long now = System.currentTimeMillis();
+        TrafficAggregator aggregator = new TrafficAggregator(graph, 0.02, 60_000, 5, now - 86_400_000L);
+
+        AlertDispatcher dispatcher = new AlertDispatcher((phone, message) -> Mono.empty(), 10_000_000, 500,
+                1e12, Duration.ofSeconds(30));
+        Thread thread = new Thread(dispatcher, "alert-dispatcher");
+        thread.setDaemon(true);
+        thread.start();
+        TrafficAlertEngine engine = new TrafficAlertEngine(aggregator, dispatcher, 0);
+
+        Random random = new Random(5);
+        long setupStart = System.nanoTime();
+        for (int i = 0; i < subscribers; i++) {
+            String phone = "1555" + i;
+            int r = random.nextInt(SIDE - ROUTE_LENGTH);
+            int c = random.nextInt(SIDE - ROUTE_LENGTH);
+            if (i % 2 == 0) {
+                engine.subscribeArea(phone, aggregator.areaOfEdge(aggregator.segment(r * (long) SIDE + c,
+                        r * (long) SIDE + c + 1)));
+            } else {
+                engine.subscribeRoute(phone, staircase(aggregator, r, c), "Route " + i);
+            }
+        }
+        AlertStats loaded = engine.stats();
+        System.out.printf("segments=%d areas=%d subscribers=%d route postings=%d setup=%d ms%n",
+                graph.edgeCount(), aggregator.areaCount(), loaded.getSubscribers(),
+                loaded.getRouteSegmentPostings(), (System.nanoTime() - setupStart) / 1_000_000);
+
+        LatencyRecorder matching = new LatencyRecorder("incident match + enqueue");
+        LatencyRecorder delivery = new LatencyRecorder("incident to last send");
+        long alerts = 0;
+        for (int i = 0; i < MATCHED_EVENTS; i++) {
+            int edge = random.nextInt(graph.edgeCount());
+            long queuedBefore = dispatcher.queued();
+            long start = System.nanoTime();
+            engine.onIncident(edge, 2, now + i);
+            matching.record(System.nanoTime() - start);
+            long target = dispatcher.queued();
+            while (dispatcher.sent() < target) {
+                Thread.onSpinWait();
+            }
+            delivery.record(System.nanoTime() - start);
+            alerts += target - queuedBefore;
+        }
+        matching.print();
+        delivery.print();
+        AlertStats stats = engine.stats();
+        System.out.printf("alerts=%d (%.1f per incident) first-send mean=%.3f ms max=%.3f ms%n",
+                alerts, alerts / (double) MATCHED_EVENTS, stats.getMeanFanOutLatencyMillis(),
+                stats.getMaxFanOutLatencyMillis());
+        assertEquals(0, stats.getDropped());
+
+        // Speed reports on segments nobody watches should cost almost nothing
+        AlertDispatcher idle = new AlertDispatcher((phone, message) -> Mono.empty(), 1, 1, 1, Duration.ofSeconds(1));
+        TrafficAlertEngine unwatched = new TrafficAlertEngine(aggregator, idle, 0);
+        unwatched.subscribeArea("15550000", 0);
+        int[] edges = new int[UNWATCHED_EVENTS];
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = random.nextInt(graph.edgeCount());
+        }
+        long start = System.nanoTime();
+        for (int edge : edges) {
+            unwatched.onSpeedReport(edge, now);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("unwatched speed reports: %.0f ns/event%n", elapsed / (double) UNWATCHED_EVENTS);
+        dispatcher.close();
+    }
+
+    /**
+     * Alternating east/north steps from (r, c), ROUTE_LENGTH segments
+     */
+    private static RoutePath staircase(TrafficAggregator aggregator, int r, int c) {
+        int[] edges = new int[ROUTE_LENGTH];
+        for (int i = 0; i < ROUTE_LENGTH; i++) {
+            long from = (long) r * SIDE + c;
+            if (i % 2 == 0) {
+                edges[i] = aggregator.segment(from, from + 1);
+                c++;
+            } else {
+                edges[i] = aggregator.segment(from, from + SIDE);
+                r++;
+            }
+        }
+        return new RoutePath(new int[0], edges, 0, 0, 0);
+    }
+}
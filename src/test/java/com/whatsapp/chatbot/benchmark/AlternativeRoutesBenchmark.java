@@ -0,0 +1,113 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.routing.AlternativeRoutes;
+import com.whatsapp.chatbot.routing.EdgeWeights;
+import com.whatsapp.chatbot.routing.RoadGraph;
+import com.whatsapp.chatbot.routing.RoadGraphBuilder;
+import com.whatsapp.chatbot.routing.RoutePath;
+import com.whatsapp.chatbot.routing.Router;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Alternative route latency by number of routes requested and pool parallelism.
+ * Run with: mvn test -Pbenchmark -Dtest=AlternativeRoutesBenchmark [-Dbenchmark.gridSize=400]
+ *
+ * Same perturbed grid with arterials as RoutingBenchmark; every query spans
+ * about a third of the grid, and runs under the production 200 ms deadline.
+ */
+@Tag("benchmark")
+class AlternativeRoutesBenchmark {
+
+    private static final int QUERIES = 100;
+    private static final int[] ROUTE_COUNTS = {2, 3, 5};
+    private static final Duration DEADLINE = Duration.ofMillis(200);
+
+    @Test
+    void latencyByRoutesAndCores() {
+        int side = Integer.getInteger("benchmark.gridSize", 400);
+        Random random = new Random(7);
+        RoadGraphBuilder builder = new RoadGraphBuilder(0.01);
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                builder.addNode((long) r * side + c, 30.0 + r * 0.002 + random.nextDouble() * 0.0005,
+                        -100.0 + c * 0.0025 + random.nextDouble() * 0.0005);
+            }
+        }
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                long id = (long) r * side + c;
+                if (c + 1 < side) {
+                    builder.addEdge(id, id + 1, 0, r % 20 == 0 ? 90 : 30 + random.nextInt(20), false, "Row " + r);
+                }
+                if (r + 1 < side) {
+                    builder.addEdge(id, id + side, 0, c % 20 == 0 ? 90 : 30 + random.nextInt(20), false, "Col " + c);
+                }
+            }
+        }
+        RoadGraph graph = builder.build(42L);
+        Router router = new Router(graph);
+        EdgeWeights weights = EdgeWeights.freeFlow(graph);
+
+        int span = side / 3;
+        int[][] queries = new int[QUERIES][2];
+        for (int q = 0; q < QUERIES; q++) {
+            int r = random.nextInt(side - span);
+            int c = random.nextInt(side - span);
+            queries[q][0] = graph.nearestNode(30.0 + r * 0.002, -100.0 + c * 0.0025, 1_000);
+            queries[q][1] = graph.nearestNode(30.0 + (r + span) * 0.002, -100.0 + (c + span) * 0.0025, 1_000);
+        }
+
+        LatencyRecorder single = new LatencyRecorder("fastest route only");
+        for (int[] query : queries) {
+            long start = System.nanoTime();
+            router.route(query[0], query[1], weights);
+            single.record(System.nanoTime() - start);
+        }
+        System.out.printf("nodes=%d edges=%d cores=%d%n", graph.nodeCount(), graph.edgeCount(),
+                Runtime.getRuntime().availableProcessors());
+        single.print();
+
+        TreeSet<Integer> parallelisms = new TreeSet<>(List.of(1, 2, 4, Runtime.getRuntime().availableProcessors()));
+        for (int parallelism : parallelisms) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            AlternativeRoutes alternatives = new AlternativeRoutes(router, pool);
+            try {
+                for (int k : ROUTE_COUNTS) {
+                    // Warm up, then measure
+                    run(alternatives, queries, k, weights, null);
+                    LatencyRecorder recorder = new LatencyRecorder("k=" + k + " parallelism=" + parallelism);
+                    long found = run(alternatives, queries, k, weights, recorder);
+                    recorder.print();
+                    System.out.printf("  routes per query=%.2f%n", found / (double) QUERIES);
+                    assertTrue(found >= QUERIES);
+                    assertTrue(recorder.percentileNanos(50) < DEADLINE.toNanos() + single.percentileNanos(99) * 2);
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static long run(AlternativeRoutes alternatives, int[][] queries, int k, EdgeWeights weights,
+                            LatencyRecorder recorder) {
+        long found = 0;
+        for (int[] query : queries) {
+            long start = System.nanoTime();
+            List<RoutePath> routes = alternatives.find(query[0], query[1], k, weights, DEADLINE);
+            if (recorder != null) {
+                recorder.record(System.nanoTime() - start);
+            }
+            found += routes.size();
+        }
+        return found;
+    }
+}
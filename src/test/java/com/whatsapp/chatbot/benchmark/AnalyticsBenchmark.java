@@ -0,0 +1,109 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.analytics.AnalyticsEvent;
+import com.whatsapp.chatbot.analytics.AnalyticsPipeline;
+import com.whatsapp.chatbot.analytics.AnalyticsSinkType;
+import com.whatsapp.chatbot.analytics.AnalyticsStats;
+import com.whatsapp.chatbot.analytics.FirestoreAnalyticsSink;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Firestore documents written for an hour of traffic, one per event as
+ * before against per-minute counters plus a 1% sample, and the cost of
+ * recording an event from the request threads.
+ * Run with: mvn test -Pbenchmark -Dtest=AnalyticsBenchmark [-Dbenchmark.events=2000000]
+ *
+ * Events are spread evenly over 60 minutes: 80% interactions over four
+ * message types, 15% navigation requests over three request types and 5%
+ * analytics events over twenty event types. The pipeline is flushed every
+ * ten seconds of event time, as the flush thread would.
+ */
+@Tag("benchmark")
+class AnalyticsBenchmark {
+
+    private static final int THREADS = 8;
+    private static final long START = 1_700_000_040_000L;
+    private static final long HOUR = 3_600_000;
+    private static final String[] MESSAGE_TYPES = {"text", "location", "image", "interactive"};
+    private static final String[] REQUEST_TYPES = {"directions", "traffic", "nearby"};
+
+    @Test
+    void documentsPerHour() throws InterruptedException {
+        int events = Integer.getInteger("benchmark.events", 2_000_000);
+        LongAdder documents = new LongAdder();
+        AnalyticsPipeline pipeline = new AnalyticsPipeline(AnalyticsSinkType.FIRESTORE,
+                new FirestoreAnalyticsSink(write -> documents.increment()), 0.01, 100_000, 1_000, 5_000,
+                3_600_000);
+
+        int perThread = events / THREADS;
+        long[][] samples = new long[THREADS][perThread];
+        CountDownLatch done = new CountDownLatch(THREADS);
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    int n = i * THREADS + thread;
+                    long timestamp = START + n * HOUR / events;
+                    long t0 = System.nanoTime();
+                    pipeline.record(event(n, timestamp));
+                    samples[thread][i] = System.nanoTime() - t0;
+                    if (thread == 0 && i % 1_000 == 0) {
+                        // Flush roughly every ten seconds of event time, as the flush thread would
+                        pipeline.flush(timestamp, false);
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pipeline.flush(START + HOUR, true);
+
+        LatencyRecorder record = new LatencyRecorder("record event");
+        for (long[] own : samples) {
+            for (long nanos : own) {
+                record.record(nanos);
+            }
+        }
+        record.print();
+        AnalyticsStats stats = pipeline.stats();
+        System.out.printf("%,d events in %,.0f ms (%,.0f events/s over %d threads)%n", stats.getEvents(),
+                seconds * 1000, stats.getEvents() / seconds, THREADS);
+        System.out.printf("documents: %,d one per event, %,d aggregated (%,d counters + %,d sampled), %.0fx fewer; "
+                        + "%,d late events%n",
+                stats.getEvents(), documents.sum(), stats.getCountersWritten(), stats.getEventsWritten(),
+                (double) stats.getEvents() / documents.sum(), stats.getLateEvents());
+
+        assertEquals((long) perThread * THREADS, stats.getEvents());
+        assertEquals(stats.getCountersWritten() + stats.getEventsWritten(), documents.sum());
+    }
+
+    private static AnalyticsEvent event(int n, long timestamp) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("phoneNumber", "1555" + (n % 100_000));
+        int bucket = n % 20;
+        if (bucket < 16) {
+            String type = MESSAGE_TYPES[n % MESSAGE_TYPES.length];
+            data.put("messageType", type);
+            data.put("messageText", "message " + n);
+            return new AnalyticsEvent("user_interactions", type, timestamp, data);
+        }
+        if (bucket < 19) {
+            String type = REQUEST_TYPES[n % REQUEST_TYPES.length];
+            data.put("requestType", type);
+            return new AnalyticsEvent("navigation_requests", type, timestamp, data);
+        }
+        String type = "event_" + (n % 20);
+        data.put("eventType", type);
+        return new AnalyticsEvent("analytics", type, timestamp, data);
+    }
+}
@@ -0,0 +1,101 @@
+package com.whatsapp.chatbot.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Concurrent /api/send-message requests against the mock WhatsApp API with
+ * a simulated round trip, on a Tomcat limited to 8 request threads. While
+ * sends blocked a request thread, requests beyond 8 queued for one and the
+ * whole burst took at least requests / 8 round trips; now it takes about
+ * one round trip.
+ * Run with: mvn test -Pbenchmark -Dtest=ApiConcurrencyBenchmark [-Dbenchmark.requests=800]
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.tomcat.threads.max=" + ApiConcurrencyBenchmark.SERVLET_THREADS,
+        "whatsapp.api.mock-mode=true",
+        "whatsapp.api.mock-latency-millis=" + ApiConcurrencyBenchmark.ROUND_TRIP_MILLIS,
+        "firebase.spool.enabled=false",
+        "search.enabled=false",
+        "archive.enabled=false",
+        "retention.enabled=false",
+        "logging.level.com.whatsapp.chatbot=WARN"})
+class ApiConcurrencyBenchmark {
+
+    static final int SERVLET_THREADS = 8;
+    static final int ROUND_TRIP_MILLIS = 200;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void concurrentSends() {
+        int requests = Integer.getInteger("benchmark.requests", 800);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        // Warm up the endpoint and connection handling
+        burst(client, requests).forEach(CompletableFuture::join);
+
+        long[] latencies = new long[requests];
+        long start = System.nanoTime();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            int index = i;
+            long sent = System.nanoTime();
+            responses.add(send(client, i).whenComplete((response, error) ->
+                    latencies[index] = System.nanoTime() - sent));
+        }
+        long ok = responses.stream().map(CompletableFuture::join).filter(response -> response.statusCode() == 200)
+                .count();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        LatencyRecorder latency = new LatencyRecorder("send-message");
+        for (long nanos : latencies) {
+            latency.record(nanos);
+        }
+        latency.print();
+        double blockingSeconds = (double) requests / SERVLET_THREADS * ROUND_TRIP_MILLIS / 1000;
+        System.out.printf("%,d concurrent sends (%d ms mock round trip, %d servlet threads): %,d ok in %,.0f ms, "
+                        + "%,.0f requests/s; blocking one thread per send needs at least %,.0f ms%n",
+                requests, ROUND_TRIP_MILLIS, SERVLET_THREADS, ok, seconds * 1000, requests / seconds,
+                blockingSeconds * 1000);
+
+        assertEquals(requests, ok);
+        assertTrue(seconds < blockingSeconds / 2, "burst took " + seconds + " s");
+    }
+
+    private List<CompletableFuture<HttpResponse<String>>> burst(HttpClient client, int requests) {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            responses.add(send(client, i));
+        }
+        return responses;
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(HttpClient client, int i) {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:" + port + "/api/send-message?to=1555" + i + "&message=hello"))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .timeout(Duration.ofSeconds(60))
+                .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,103 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.archive.MessageArchive;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Message archive write throughput, size and history latency.
+ * Run with: mvn test -Pbenchmark -Dtest=ArchiveBenchmark [-Dbenchmark.rows=1000000]
+ *
+ * Messages are spread over 90 days and 50k users, archived in batches the
+ * size of the tiering job's, so there is a segment per day per batch.
+ */
+@Tag("benchmark")
+class ArchiveBenchmark {
+
+    private static final int USERS = 50_000;
+    private static final int DAYS = 90;
+    private static final int BATCH = 50_000;
+    private static final int QUERIES = 2_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void archive() throws Exception {
+        int rows = Integer.getInteger("benchmark.rows", 1_000_000);
+        Random random = new Random(11);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        long rowSeconds = DAYS * 86_400L / rows;
+
+        MessageArchive archive = MessageArchive.open(directory, 10);
+        long textBytes = 0;
+        long writeNanos = 0;
+        List<WhatsAppMessage> batch = new ArrayList<>(BATCH);
+        for (int n = 0; n < rows; n++) {
+            String user = String.valueOf(15_550_000 + random.nextInt(USERS));
+            boolean inbound = random.nextBoolean();
+            String text = inbound ? "Message " + random.nextInt(1_000) : "Route to stop " + random.nextInt(200)
+                    + ": 12 min, 4.3 km via Main St";
+            textBytes += text.length();
+            batch.add(new WhatsAppMessage((long) n + 1, "wamid.HBgL" + Long.toHexString(random.nextLong()),
+                    inbound ? user : "chatbot", inbound ? "chatbot" : user, text,
+                    random.nextInt(10) == 0 ? "interactive" : "text", start.plusSeconds(n * rowSeconds),
+                    inbound ? "RECEIVED" : random.nextInt(20) == 0 ? "FAILED" : "SENT",
+                    inbound ? "INBOUND" : "OUTBOUND", null));
+            if (batch.size() == BATCH || n == rows - 1) {
+                long t0 = System.nanoTime();
+                archive.append(batch);
+                writeNanos += System.nanoTime() - t0;
+                batch.clear();
+            }
+        }
+        System.out.printf("write: %,d rows in %,d ms (%,.0f rows/s), %,d segments in %,d partitions%n",
+                rows, writeNanos / 1_000_000, rows / (writeNanos / 1e9), archive.getSegments().size(),
+                archive.getPartitions());
+        System.out.printf("size: %,.1f MB on disk, %,.1f bytes/row, %,.1f MB of columns before compression, "
+                        + "%,.1f MB of message text alone%n",
+                archive.getSizeBytes() / 1e6, (double) archive.getSizeBytes() / rows, archive.getRawBytes() / 1e6,
+                textBytes / 1e6);
+
+        MessageArchive reopened = MessageArchive.open(directory, 10);
+        assertEquals(rows, reopened.getRows());
+
+        LatencyRecorder first = new LatencyRecorder("history first page (20)");
+        LatencyRecorder next = new LatencyRecorder("history second page (20)");
+        LatencyRecorder absent = new LatencyRecorder("history, unknown number");
+        LocalDateTime newest = LocalDateTime.of(9999, 12, 31, 23, 59);
+        int found = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            String user = String.valueOf(15_550_000 + random.nextInt(USERS));
+            long t0 = System.nanoTime();
+            List<WhatsAppMessage> page = reopened.history(user, newest, Long.MAX_VALUE, 20);
+            first.record(System.nanoTime() - t0);
+            found += page.size();
+            if (page.size() == 20) {
+                WhatsAppMessage last = page.get(19);
+                t0 = System.nanoTime();
+                reopened.history(user, last.getTimestamp(), last.getId(), 20);
+                next.record(System.nanoTime() - t0);
+            }
+            t0 = System.nanoTime();
+            List<WhatsAppMessage> none = reopened.history("1444" + q, newest, Long.MAX_VALUE, 20);
+            absent.record(System.nanoTime() - t0);
+            assertTrue(none.isEmpty());
+        }
+        first.print();
+        next.print();
+        absent.print();
+        assertTrue(found > 0);
+    }
+}
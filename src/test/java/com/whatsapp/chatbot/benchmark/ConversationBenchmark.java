@@ -0,0 +1,136 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.dto.ConversationThread;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import com.whatsapp.chatbot.service.ArchiveService;
+import com.whatsapp.chatbot.service.ConversationService;
+import com.whatsapp.chatbot.service.MessageHistoryService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Conversation id assignment cost and conversation load latency.
+ * Run with: mvn test -Pbenchmark -Dtest=ConversationBenchmark
+ *
+ * Users send bursts of messages separated by gaps longer than the idle
+ * gap, so each burst is its own conversation; loads pick conversations at
+ * random and are interleaved with writes so H2 can't answer from its query cache.
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ConversationService.class, MessageHistoryService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ConversationBenchmark {
+
+    private static final int USERS = 5_000;
+    private static final int CONVERSATIONS_PER_USER = 8;
+    private static final int MESSAGES_PER_CONVERSATION = 12;
+    private static final int BATCH = 500;
+    private static final int QUERIES = 2_000;
+
+    @Autowired
+    private WhatsAppMessageRepository repository;
+
+    @Autowired
+    private ConversationService conversationService;
+
+    @Autowired
+    private MessageHistoryService historyService;
+
+    @MockBean
+    private ArchiveService archiveService;
+
+    @Test
+    void conversations() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        Random random = new Random(11);
+        List<String> ids = new ArrayList<>();
+        List<WhatsAppMessage> batch = new ArrayList<>(BATCH);
+        long assignNanos = 0;
+        int total = 0;
+
+        long began = System.nanoTime();
+        for (int c = 0; c < CONVERSATIONS_PER_USER; c++) {
+            LocalDateTime burst = start.plusHours(c);
+            for (int m = 0; m < MESSAGES_PER_CONVERSATION; m++) {
+                for (int u = 0; u < USERS; u++) {
+                    String user = "1555" + (100_000 + u);
+                    WhatsAppMessage message = m % 2 == 0 ? message(user, "chatbot", burst.plusSeconds(m))
+                                                         : message("chatbot", user, burst.plusSeconds(m));
+                    long t0 = System.nanoTime();
+                    conversationService.assign(message);
+                    assignNanos += System.nanoTime() - t0;
+                    if (m == 0 && random.nextInt(10) == 0) {
+                        ids.add(message.getConversationId());
+                    }
+                    batch.add(message);
+                    total++;
+                    if (batch.size() == BATCH) {
+                        write(batch);
+                    }
+                }
+            }
+        }
+        write(batch);
+        long elapsed = System.nanoTime() - began;
+        System.out.printf("ingest: %,d messages in %,d ms, assign %.2f us/message, summaries %.2f us/message, "
+                + "%,d conversations started%n", total, elapsed / 1_000_000, assignNanos / 1e3 / total,
+                summaryNanos / 1e3 / total, conversationService.getStarted());
+
+        LatencyRecorder load = new LatencyRecorder(String.format("conversation load, %,d rows", total));
+        for (int q = 0; q < QUERIES; q++) {
+            String id = ids.get(random.nextInt(ids.size()));
+            long t0 = System.nanoTime();
+            ConversationThread thread = historyService.conversation(id).orElseThrow();
+            load.record(System.nanoTime() - t0);
+            assertEquals(MESSAGES_PER_CONVERSATION, thread.getMessages().size());
+            assertEquals(MESSAGES_PER_CONVERSATION, thread.getConversation().getMessageCount());
+            if (q % 10 == 0) {
+                WhatsAppMessage message = message("15550000", "chatbot", start.plusDays(1).plusSeconds(q));
+                conversationService.assign(message);
+                write(new ArrayList<>(List.of(message)));
+            }
+        }
+        load.print();
+    }
+
+    private void write(List<WhatsAppMessage> batch) {
+        repository.insertAll(batch);
+        long t0 = System.nanoTime();
+        conversationService.messagesWritten(batch);
+        summaryNanos += System.nanoTime() - t0;
+        batch.clear();
+    }
+
+    private int sequence;
+    private long summaryNanos;
+
+    private WhatsAppMessage message(String from, String to, LocalDateTime timestamp) {
+        WhatsAppMessage message = new WhatsAppMessage();
+        message.setMessageId("conv" + sequence++);
+        message.setFromNumber(from);
+        message.setToNumber(to);
+        message.setMessageText("text");
+        message.setMessageType("text");
+        message.setStatus("RECEIVED");
+        message.setDirection("chatbot".equals(from) ? "OUTBOUND" : "INBOUND");
+        message.setTimestamp(timestamp);
+        return message;
+    }
+}
@@ -0,0 +1,99 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.whatsapp.chatbot.feed.FeedEvent;
+import com.whatsapp.chatbot.feed.FeedHub;
+import com.whatsapp.chatbot.feed.FeedSink;
+import com.whatsapp.chatbot.feed.FeedStats;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Cost of pushing message events to 1 and to 50 connected dashboards: the
+ * publisher's time per event (serializing it once and appending it to each
+ * buffer) and the delivery threads' time writing SSE frames. Sockets are
+ * simulated by encoding each frame to bytes.
+ * Run with: mvn test -Pbenchmark -Dtest=DashboardFeedBenchmark [-Dbenchmark.events=200000]
+ */
+@Tag("benchmark")
+class DashboardFeedBenchmark {
+
+    private static final int DELIVERY_THREADS = 4;
+
+    @Test
+    void fanOut() throws Exception {
+        int events = Integer.getInteger("benchmark.events", 200_000);
+        ObjectMapper json = new ObjectMapper().findAndRegisterModules();
+        // Warm up
+        run(json, 50, events / 4);
+
+        for (int clients : new int[] {1, 50}) {
+            run(json, clients, events);
+        }
+    }
+
+    private void run(ObjectMapper json, int clients, int events) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        ExecutorService delivery = Executors.newFixedThreadPool(DELIVERY_THREADS);
+        FeedHub hub = new FeedHub(clients, events + 1, delivery,
+                () -> List.of(new FeedEvent("snapshot", null, "{}")));
+        LongAdder bytes = new LongAdder();
+        LongAdder frames = new LongAdder();
+        for (int c = 0; c < clients; c++) {
+            hub.subscribe(new FeedSink() {
+                @Override
+                public void send(FeedEvent event) {
+                    String frame = "event:" + event.getName() + "\ndata:" + event.getData() + "\n\n";
+                    bytes.add(frame.getBytes(StandardCharsets.UTF_8).length);
+                    frames.increment();
+                }
+
+                @Override
+                public void close() {
+                }
+            }, null);
+        }
+
+        long start = System.nanoTime();
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < events; i++) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("id", "wamid." + i);
+            data.put("phoneNumber", "1555" + (i % 1_000));
+            data.put("direction", i % 2 == 0 ? "INBOUND" : "OUTBOUND");
+            data.put("messageType", "text");
+            data.put("messageText", "how do I get to the station " + i);
+            data.put("status", "RECEIVED");
+            data.put("timestamp", LocalDateTime.of(2024, 1, 1, 12, 0).plusSeconds(i));
+            hub.publish(new FeedEvent("message", null, json.writeValueAsString(data)));
+        }
+        double publishMicros = (threads.getCurrentThreadCpuTime() - cpuStart) / 1e3 / events;
+        long expected = (long) events * clients + clients;
+        while (frames.sum() < expected) {
+            Thread.sleep(5);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        FeedStats stats = hub.stats();
+        hub.close();
+        delivery.shutdownNow();
+
+        System.out.printf("%2d dashboards: publish %.2f us/event on the publisher, %,d events delivered in %,.0f ms "
+                        + "(%,.0f events/s per dashboard, %,.1f MB written), %d dropped%n",
+                clients, publishMicros, stats.getDelivered(), seconds * 1000, events / seconds, bytes.sum() / 1e6,
+                stats.getDropped());
+        assertEquals((long) events * clients, stats.getDelivered());
+    }
+}
@@ -0,0 +1,96 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.export.ExportFormat;
+import com.whatsapp.chatbot.export.ExportStats;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import com.whatsapp.chatbot.service.ArchiveService;
+import com.whatsapp.chatbot.service.ExportService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Streaming export throughput.
+ * Run with: mvn test -Pbenchmark -Dtest=ExportBenchmark [-Dbenchmark.rows=1000000]
+ *
+ * Exports go to a discarding stream, so the numbers cover the cursor, row
+ * encoding and compression rather than the network.
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ExportService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ExportBenchmark {
+
+    @Autowired
+    private WhatsAppMessageRepository repository;
+
+    @Autowired
+    private ExportService exportService;
+
+    @MockBean
+    private ArchiveService archiveService;
+
+    @Test
+    void exportThroughput() throws Exception {
+        int rows = Integer.getInteger("benchmark.rows", 1_000_000);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<WhatsAppMessage> batch = new ArrayList<>(1_000);
+        for (int n = 0; n < rows; n++) {
+            WhatsAppMessage message = new WhatsAppMessage();
+            message.setMessageId("wamid.export-" + n);
+            message.setFromNumber(n % 2 == 0 ? "1555" + (n % 50_000) : "chatbot");
+            message.setToNumber(n % 2 == 0 ? "chatbot" : "1555" + (n % 50_000));
+            message.setMessageText("Export benchmark message " + n + ", with a comma and \"quotes\"");
+            message.setMessageType("text");
+            message.setStatus("RECEIVED");
+            message.setDirection(n % 2 == 0 ? "INBOUND" : "OUTBOUND");
+            message.setTimestamp(start.plusSeconds(n));
+            batch.add(message);
+            if (batch.size() == 1_000) {
+                repository.insertAll(batch);
+                batch.clear();
+            }
+        }
+        repository.insertAll(batch);
+
+        // Warm up
+        exportService.exportMessages(OutputStream.nullOutputStream(), ExportFormat.NDJSON, false,
+                null, start.plusSeconds(50_000), null);
+
+        for (ExportFormat format : ExportFormat.values()) {
+            for (boolean gzip : new boolean[]{false, true}) {
+                ExportStats stats = exportService.exportMessages(OutputStream.nullOutputStream(), format, gzip,
+                        null, null, null);
+                print(stats);
+                assertEquals(rows, stats.getRows());
+            }
+        }
+
+        ExportStats filtered = exportService.exportMessages(OutputStream.nullOutputStream(), ExportFormat.CSV, false,
+                start.plusSeconds(rows / 4), start.plusSeconds(rows / 2), "inbound");
+        print(filtered);
+        assertEquals(rows / 8, filtered.getRows());
+    }
+
+    private static void print(ExportStats stats) {
+        System.out.printf("%-6s gzip=%-5s rows=%,10d  %,10.0f rows/s  %,8.1f MB/s  %,9.1f MB sent%n",
+                stats.getFormat(), stats.isGzip(), stats.getRows(), stats.getRowsPerSecond(),
+                stats.getBytesPerSecond() / 1e6, stats.getBytes() / 1e6);
+    }
+}
@@ -0,0 +1,118 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.firestore.FirestoreBatchWriter;
+import com.whatsapp.chatbot.firestore.FirestoreWrite;
+import com.whatsapp.chatbot.firestore.FirestoreWriterStats;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Firestore write cost on the webhook thread: one blocking write per event
+ * (the old path) against queueing for the batched writer.
+ * Run with: mvn test -Pbenchmark -Dtest=FirestoreWriterBenchmark [-Dbenchmark.rtt-millis=30]
+ *
+ * Firestore is simulated: every commit, of one write or a batch of 500,
+ * completes after a fixed round trip plus 20 us per write. Eight request
+ * threads each send events as fast as the write path lets them.
+ */
+@Tag("benchmark")
+class FirestoreWriterBenchmark {
+
+    private static final int THREADS = 8;
+    private static final int EVENTS_PER_THREAD = 20_000;
+    private static final int BLOCKING_EVENTS_PER_THREAD = 100;
+
+    @Test
+    void webhookWritePath() throws InterruptedException {
+        long rttMillis = Long.getLong("benchmark.rtt-millis", 30);
+        ScheduledExecutorService firestore = Executors.newScheduledThreadPool(2);
+        AtomicInteger rpcs = new AtomicInteger();
+
+        // Old path: each event waits for its own write
+        LatencyRecorder blocking = new LatencyRecorder("blocking write per event");
+        double blockingRate = drive(BLOCKING_EVENTS_PER_THREAD, blocking, () -> {
+            try {
+                commit(firestore, rpcs, 1, rttMillis).get();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        int blockingRpcs = rpcs.getAndSet(0);
+
+        // New path: queue and return
+        FirestoreBatchWriter writer = new FirestoreBatchWriter(writes -> commit(firestore, rpcs, writes.size(),
+                rttMillis), THREADS * EVENTS_PER_THREAD, 500, Duration.ofMillis(500), 4, 5, Duration.ofMillis(200),
+                Duration.ofSeconds(10));
+        Thread thread = new Thread(writer, "firestore-writer");
+        thread.start();
+        LatencyRecorder queued = new LatencyRecorder("queue for batched writer");
+        long start = System.nanoTime();
+        double queuedRate = drive(EVENTS_PER_THREAD, queued, () -> writer.offer(FirestoreWrite.add("user_interactions",
+                Map.of("phoneNumber", "15550001", "messageText", "hello", "platform", "whatsapp"))));
+        writer.close();
+        thread.join();
+        writer.awaitIdle(Duration.ofSeconds(30));
+        double drainedRate = THREADS * EVENTS_PER_THREAD / ((System.nanoTime() - start) / 1e9);
+        FirestoreWriterStats stats = writer.stats();
+        firestore.shutdown();
+
+        blocking.print();
+        queued.print();
+        System.out.printf("blocking: %,.0f events/s with %d threads, %,d RPCs%n", blockingRate, THREADS,
+                blockingRpcs);
+        System.out.printf("batched: %,.0f events/s accepted, %,.0f events/s committed end to end, %,d RPCs "
+                        + "(mean batch %.0f, commit %.1f ms mean / %.1f ms max)%n",
+                queuedRate, drainedRate, rpcs.get(), stats.getMeanBatchSize(), stats.getMeanCommitMillis(),
+                stats.getMaxCommitMillis());
+        assertEquals(THREADS * EVENTS_PER_THREAD, stats.getWritten());
+        assertEquals(0, stats.getDropped());
+    }
+
+    private static CompletableFuture<?> commit(ScheduledExecutorService firestore, AtomicInteger rpcs, int writes,
+                                               long rttMillis) {
+        rpcs.incrementAndGet();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        firestore.schedule(() -> done.complete(null), rttMillis * 1_000 + writes * 20L, TimeUnit.MICROSECONDS);
+        return done;
+    }
+
+    /**
+     * Run the event on every request thread and return events per second
+     */
+    private static double drive(int eventsPerThread, LatencyRecorder latency, Runnable event)
+            throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(THREADS);
+        long[][] samples = new long[THREADS][eventsPerThread];
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            long[] own = samples[t];
+            new Thread(() -> {
+                for (int i = 0; i < eventsPerThread; i++) {
+                    long t0 = System.nanoTime();
+                    event.run();
+                    own[i] = System.nanoTime() - t0;
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        double rate = THREADS * eventsPerThread / ((System.nanoTime() - start) / 1e9);
+        for (long[] own : samples) {
+            for (long nanos : own) {
+                latency.record(nanos);
+            }
+        }
+        return rate;
+    }
+}
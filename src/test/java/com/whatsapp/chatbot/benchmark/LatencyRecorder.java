@@ -0,0 +1,48 @@
+package com.whatsapp.chatbot.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Collects per-operation latencies for benchmark reporting
+ */
+class LatencyRecorder {
+
+    private final String name;
+    private long[] samples = new long[1024];
+    private int count;
+
+    LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    long percentileNanos(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, rank))];
+    }
+
+    double meanNanos() {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += samples[i];
+        }
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    void print() {
+        System.out.printf("%-40s n=%-8d mean=%9.1f us  p50=%9.1f us  p99=%9.1f us  max=%9.1f us%n",
+                name, count, meanNanos() / 1_000.0, percentileNanos(50) / 1_000.0,
+                percentileNanos(99) / 1_000.0, percentileNanos(100) / 1_000.0);
+    }
+}
@@ -0,0 +1,150 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.dto.MessageHistoryPage;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import com.whatsapp.chatbot.service.ArchiveService;
+import com.whatsapp.chatbot.service.MessageHistoryService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Conversation history latency as the message table grows.
+ * Run with: mvn test -Pbenchmark -Dtest=MessageHistoryBenchmark [-Dbenchmark.rows=1000000]
+ *
+ * Compares keyset pages (first page and 100 pages deep) with the previous
+ * query, an OR across from_number and to_number that loads a number's whole
+ * history. Uses the configured datasource, H2 in memory by default.
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(MessageHistoryService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MessageHistoryBenchmark {
+
+    private static final int USERS = 10_000;
+    private static final int HEAVY_USER_MESSAGES = 5_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int DEEP_PAGES = 100;
+    private static final int QUERIES = 200;
+    private static final String HEAVY_USER = "15559999";
+
+    @Autowired
+    private WhatsAppMessageRepository repository;
+
+    @Autowired
+    private MessageHistoryService historyService;
+
+    @MockBean
+    private ArchiveService archiveService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Random random = new Random(7);
+    private int sequence;
+
+    @Test
+    void historyLatency() {
+        int maxRows = Integer.getInteger("benchmark.rows", 1_000_000);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        insert(HEAVY_USER_MESSAGES, start, true);
+
+        for (int rows = maxRows / 10; rows <= maxRows; rows *= 10) {
+            insert(rows - (int) repository.count(), start, false);
+
+            LatencyRecorder first = new LatencyRecorder(String.format("keyset first page, %,d rows", rows));
+            LatencyRecorder deep = new LatencyRecorder(String.format("keyset page %d, %,d rows", DEEP_PAGES, rows));
+            LatencyRecorder scan = new LatencyRecorder(String.format("OR query (all rows), %,d rows", rows));
+
+            // Walking to the deep page doubles as warm-up
+            String deepCursor = null;
+            for (int round = 0; round < 5; round++) {
+                deepCursor = null;
+                for (int p = 0; p < DEEP_PAGES; p++) {
+                    deepCursor = historyService.history(HEAVY_USER, deepCursor, PAGE_SIZE).getNextCursor();
+                }
+            }
+            for (int q = 0; q < QUERIES; q++) {
+                long t0 = System.nanoTime();
+                MessageHistoryPage page = historyService.history(HEAVY_USER, null, PAGE_SIZE);
+                first.record(System.nanoTime() - t0);
+                assertEquals(PAGE_SIZE, page.getMessages().size());
+
+                t0 = System.nanoTime();
+                page = historyService.history(HEAVY_USER, deepCursor, PAGE_SIZE);
+                deep.record(System.nanoTime() - t0);
+                assertEquals(PAGE_SIZE, page.getMessages().size());
+
+                if (q < 20) {
+                    t0 = System.nanoTime();
+                    List<?> all = entityManager.createQuery("SELECT m FROM WhatsAppMessage m " +
+                                    "WHERE m.fromNumber = :n OR m.toNumber = :n ORDER BY m.timestamp DESC")
+                            .setParameter("n", HEAVY_USER)
+                            .getResultList();
+                    scan.record(System.nanoTime() - t0);
+                    assertEquals(HEAVY_USER_MESSAGES, all.size());
+                    entityManager.clear();
+                }
+            }
+            first.print();
+            deep.print();
+            scan.print();
+        }
+
+        String plan = jdbcTemplate.queryForObject("EXPLAIN SELECT * FROM whatsapp_messages WHERE from_number = ? " +
+                "AND timestamp <= ? AND (timestamp < ? OR (timestamp = ? AND id < ?)) " +
+                "ORDER BY from_number, timestamp DESC, id DESC LIMIT 21", String.class,
+                HEAVY_USER, start, start, start, Long.MAX_VALUE);
+        System.out.println(plan);
+        assertTrue(plan.contains("IDX_MESSAGES_FROM_TIMESTAMP") && plan.contains("index sorted"),
+                "history query does not read the index in order");
+    }
+
+    private void insert(int count, LocalDateTime start, boolean heavyUser) {
+        List<WhatsAppMessage> batch = new ArrayList<>(1_000);
+        for (int i = 0; i < count; i++) {
+            int n = sequence++;
+            String user = heavyUser ? HEAVY_USER : String.valueOf(15_540_000 + random.nextInt(USERS));
+            boolean inbound = random.nextBoolean();
+            WhatsAppMessage message = new WhatsAppMessage();
+            message.setMessageId("bench-" + n);
+            message.setFromNumber(inbound ? user : "chatbot");
+            message.setToNumber(inbound ? "chatbot" : user);
+            message.setMessageText("History benchmark message " + n);
+            message.setMessageType("text");
+            message.setStatus("RECEIVED");
+            message.setDirection(inbound ? "INBOUND" : "OUTBOUND");
+            message.setTimestamp(start.plusSeconds(random.nextInt(30 * 86_400)));
+            batch.add(message);
+            if (batch.size() == 1_000) {
+                repository.insertAll(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            repository.insertAll(batch);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import com.whatsapp.chatbot.service.ConversationService;
+import com.whatsapp.chatbot.service.MessageLogWriter;
+import com.whatsapp.chatbot.service.ReadModelService;
+import com.whatsapp.chatbot.service.RollupService;
+import com.whatsapp.chatbot.service.SearchService;
+import com.whatsapp.chatbot.service.StatisticsService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Message record write throughput: one save per message (the old path)
+ * against bulk inserts, then the message log writer under a steady 10k
+ * messages/sec. Uses the configured datasource, H2 in memory by default.
+ * Run with: mvn test -Pbenchmark -Dtest=MessagePersistenceBenchmark
+ * For MySQL add -Dspring.profiles.active=prod -DDATABASE_URL=jdbc:mysql://...?rewriteBatchedStatements=true
+ * (and credentials) against a schema created with JPA_DDL_AUTO=update.
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({MessageLogWriter.class, StatisticsService.class, RollupService.class, ConversationService.class,
+        ReadModelService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MessagePersistenceBenchmark {
+
+    private static final int SINGLE_ROWS = 20_000;
+    private static final int BULK_ROWS = 200_000;
+    private static final int BULK_BATCH = 500;
+    private static final int TARGET_RATE = 10_000;
+    private static final int STEADY_SECONDS = 5;
+
+    @Autowired
+    private WhatsAppMessageRepository repository;
+
+    @Autowired
+    private MessageLogWriter writer;
+
+    @MockBean
+    private SearchService searchService;
+
+    private int sequence;
+
+    @Test
+    void writeThroughput() throws InterruptedException {
+        // Warm up both paths
+        for (int i = 0; i < 2_000; i++) {
+            repository.save(message());
+        }
+        repository.insertAll(messages(5_000));
+        long before = repository.count();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < SINGLE_ROWS; i++) {
+            repository.save(message());
+        }
+        double singleRate = rate(SINGLE_ROWS, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (int written = 0; written < BULK_ROWS; written += BULK_BATCH) {
+            repository.insertAll(messages(BULK_BATCH));
+        }
+        double bulkRate = rate(BULK_ROWS, System.nanoTime() - start);
+
+        // Steady offered load through the writer, paced per millisecond
+        int total = TARGET_RATE * STEADY_SECONDS;
+        int perMilli = TARGET_RATE / 1000;
+        int maxPending = 0;
+        start = System.nanoTime();
+        for (int sent = 0; sent < total; sent += perMilli) {
+            for (int i = 0; i < perMilli; i++) {
+                writer.append(message());
+            }
+            maxPending = Math.max(maxPending, writer.getPending());
+            long due = start + TimeUnit.MILLISECONDS.toNanos((sent + perMilli) / perMilli);
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+        double offeredRate = rate(total, System.nanoTime() - start);
+        writer.flush();
+        double drainedRate = rate(total, System.nanoTime() - start);
+
+        System.out.printf("one save per message: %,10.0f msgs/s (%,d rows)%n", singleRate, SINGLE_ROWS);
+        System.out.printf("bulk insert (%d/call): %,10.0f msgs/s (%,d rows)%n", BULK_BATCH, bulkRate, BULK_ROWS);
+        System.out.printf("log writer: offered %,.0f msgs/s, written %,.0f msgs/s, max %,d pending, %,d batches%n",
+                offeredRate, drainedRate, maxPending, writer.getBatches());
+
+        assertEquals(before + SINGLE_ROWS + BULK_ROWS + total, repository.count());
+        assertEquals(0, writer.getFailed());
+        assertTrue(drainedRate >= TARGET_RATE * 0.9, "writer fell behind the offered load");
+    }
+
+    private List<WhatsAppMessage> messages(int count) {
+        List<WhatsAppMessage> batch = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            batch.add(message());
+        }
+        return batch;
+    }
+
+    private WhatsAppMessage message() {
+        int n = sequence++;
+        WhatsAppMessage message = new WhatsAppMessage();
+        message.setMessageId("bench-" + n);
+        message.setFromNumber("1555" + (n % 10_000));
+        message.setToNumber("chatbot");
+        message.setMessageText("Benchmark message number " + n);
+        message.setMessageType("text");
+        message.setStatus("RECEIVED");
+        message.setDirection("INBOUND");
+        message.setTimestamp(LocalDateTime.now());
+        return message;
+    }
+
+    private static double rate(int rows, long nanos) {
+        return rows / (nanos / 1e9);
+    }
+}
@@ -0,0 +1,166 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.navigation.NavigationEngine;
+import com.whatsapp.chatbot.navigation.NavigationStats;
+import com.whatsapp.chatbot.routing.RoadGraph;
+import com.whatsapp.chatbot.routing.RoadGraphBuilder;
+import com.whatsapp.chatbot.routing.RoutePath;
+import com.whatsapp.chatbot.routing.Router;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Live navigation under many concurrent drivers.
+ * Run with: mvn test -Pbenchmark -Dtest=NavigationBenchmark [-Dbenchmark.drivers=10000]
+ *
+ * Every driver follows a route across a third of a 300 x 300 grid, sending
+ * three fixes per street segment with GPS-like noise; one in ten drivers
+ * turns off the route halfway, which forces a reroute. Fixes from all
+ * drivers are interleaved and applied from several threads.
+ */
+@Tag("benchmark")
+class NavigationBenchmark {
+
+    private static final int SIDE = 300;
+    private static final int THREADS = 8;
+
+    @Test
+    void concurrentDrivers() throws Exception {
+        int drivers = Integer.getInteger("benchmark.drivers", 10_000);
+        Random random = new Random(3);
+        RoadGraphBuilder builder = new RoadGraphBuilder(0.01);
+        for (int r = 0; r < SIDE; r++) {
+            for (int c = 0; c < SIDE; c++) {
+                builder.addNode((long) r * SIDE + c, 30.0 + r * 0.002, -100.0 + c * 0.0025);
+            }
+        }
+        for (int r = 0; r < SIDE; r++) {
+            for (int c = 0; c < SIDE; c++) {
+                long id = (long) r * SIDE + c;
+                if (c + 1 < SIDE) {
+                    builder.addEdge(id, id + 1, 0, r % 10 == 0 ? 70 : 40, false, "Row " + r);
+                }
+                if (r + 1 < SIDE) {
+                    builder.addEdge(id, id + SIDE, 0, c % 10 == 0 ? 70 : 40, false, "Col " + c);
+                }
+            }
+        }
+        RoadGraph graph = builder.build(1L);
+        Router router = new Router(graph);
+        NavigationEngine engine = new NavigationEngine(router, drivers, 600_000, 60, 2, 10_000);
+
+        // Plan every driver's route and fix stream up front
+        long setupStart = System.nanoTime();
+        List<RoutePath> routes = new ArrayList<>(drivers);
+        List<double[]> tracks = new ArrayList<>(drivers);
+        for (int d = 0; d < drivers; d++) {
+            int r = random.nextInt(SIDE - SIDE / 3);
+            int c = random.nextInt(SIDE - SIDE / 3);
+            int source = graph.nearestNode(30.0 + r * 0.002, -100.0 + c * 0.0025, 50);
+            int target = graph.nearestNode(30.0 + (r + SIDE / 3) * 0.002, -100.0 + (c + SIDE / 6) * 0.0025, 50);
+            RoutePath route = router.route(source, target);
+            routes.add(route);
+            tracks.add(track(graph, route, d % 10 == 0, random));
+        }
+        long usedBefore = usedMemory();
+        for (int d = 0; d < drivers; d++) {
+            engine.start("driver" + d, routes.get(d), "Destination", 0);
+        }
+        long sessionBytes = (usedMemory() - usedBefore) / drivers;
+        System.out.printf("drivers=%d setup=%d ms, ~%d bytes of session state per driver (route arrays shared)%n",
+                drivers, (System.nanoTime() - setupStart) / 1_000_000, sessionBytes);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<LatencyRecorder>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                LatencyRecorder recorder = new LatencyRecorder("fix (thread " + thread + ")");
+                // Round-robin over this thread's drivers, one fix each per pass, like interleaved webhooks
+                int maxLength = 0;
+                for (int d = thread; d < drivers; d += THREADS) {
+                    maxLength = Math.max(maxLength, tracks.get(d).length / 2);
+                }
+                for (int fix = 0; fix < maxLength; fix++) {
+                    for (int d = thread; d < drivers; d += THREADS) {
+                        double[] track = tracks.get(d);
+                        if (fix * 2 >= track.length) {
+                            continue;
+                        }
+                        long begin = System.nanoTime();
+                        engine.onLocation("driver" + d, track[fix * 2], track[fix * 2 + 1], fix * 5_000L, fix * 5_000L);
+                        recorder.record(System.nanoTime() - begin);
+                    }
+                }
+                return recorder;
+            }));
+        }
+        for (Future<LatencyRecorder> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        NavigationStats stats = engine.stats();
+        for (Future<LatencyRecorder> future : futures) {
+            future.get().print();
+        }
+        System.out.printf("fixes=%d in %d ms (%.0f fixes/s on %d threads) instructions=%d reroutes=%d arrived=%d"
+                        + " expired=%d%n", stats.getLocationUpdates(), elapsed / 1_000_000,
+                stats.getLocationUpdates() / (elapsed / 1e9), THREADS, stats.getInstructionsSent(),
+                stats.getReroutes(), stats.getArrived(), stats.getExpired());
+        // Detoured drivers stop sending after the detour and are expired once idle
+        assertEquals(drivers - drivers / 10, stats.getArrived());
+        assertEquals(drivers, stats.getArrived() + stats.getActiveSessions() + stats.getExpired());
+        assertTrue(stats.getReroutes() >= drivers / 10 / 2);
+    }
+
+    /**
+     * Three noisy fixes per route edge as lat/lon pairs; detours leave the route
+     * halfway and continue two blocks sideways before heading on
+     */
+    private static double[] track(RoadGraph graph, RoutePath route, boolean detour, Random random) {
+        int[] nodes = route.getNodes();
+        List<Double> points = new ArrayList<>();
+        int turnOff = detour ? nodes.length / 2 : Integer.MAX_VALUE;
+        for (int i = 0; i + 1 < nodes.length && i < turnOff; i++) {
+            for (int step = 1; step <= 3; step++) {
+                double t = step / 3.0;
+                points.add(graph.latitude(nodes[i]) + t * (graph.latitude(nodes[i + 1]) - graph.latitude(nodes[i]))
+                        + random.nextGaussian() * 0.00005);
+                points.add(graph.longitude(nodes[i]) + t * (graph.longitude(nodes[i + 1]) - graph.longitude(nodes[i]))
+                        + random.nextGaussian() * 0.00005);
+            }
+        }
+        if (detour) {
+            double lat = graph.latitude(nodes[turnOff]);
+            double lon = graph.longitude(nodes[turnOff]);
+            for (int step = 1; step <= 6; step++) {
+                points.add(lat);
+                points.add(lon - step * 0.0025 / 3);
+            }
+        }
+        double[] track = new double[points.size()];
+        for (int i = 0; i < track.length; i++) {
+            track[i] = points.get(i);
+        }
+        return track;
+    }
+
+    private static long usedMemory() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,123 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.geo.PlaceAutocomplete;
+import com.whatsapp.chatbot.geo.PoiIndex;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Build time, index size and lookup latency of the place autocomplete trie.
+ * Run with: mvn test -Pbenchmark -Dtest=PlaceAutocompleteBenchmark [-Dbenchmark.pois=1000000]
+ */
+@Tag("benchmark")
+class PlaceAutocompleteBenchmark {
+
+    private static final String[] CATEGORIES = {
+        "Restaurant", "Cafe", "Gas Station", "Pharmacy", "Hospital", "School", "Bank", "Parking", "Supermarket",
+        "Hotel", "Museum", "Park", "Bakery", "Bar", "Cinema", "Library", "Gym", "Car Wash", "Florist", "Laundry"
+    };
+    private static final String[] STREET_SUFFIXES = {"Street", "Avenue", "Road", "Boulevard", "Lane", "Plaza"};
+
+    private static final int QUERIES = 200_000;
+
+    @Test
+    void buildMapAndComplete() throws Exception {
+        int poiCount = Integer.getInteger("benchmark.pois", 1_000_000);
+        Random random = new Random(17);
+        String[] brands = syllableWords(random, 20_000);
+        String[] streets = syllableWords(random, 5_000);
+
+        PoiIndex.Builder builder = PoiIndex.builder(0.01);
+        String[] names = new String[poiCount];
+        for (int i = 0; i < poiCount; i++) {
+            names[i] = brands[random.nextInt(brands.length)] + " "
+                    + CATEGORIES[random.nextInt(CATEGORIES.length)] + " "
+                    + streets[random.nextInt(streets.length)] + " "
+                    + STREET_SUFFIXES[random.nextInt(STREET_SUFFIXES.length)];
+            builder.add(names[i], "", 35 + random.nextDouble(), -100 + random.nextDouble(), random.nextDouble());
+        }
+        PoiIndex index = builder.build();
+
+        long started = System.nanoTime();
+        PlaceAutocomplete built = PlaceAutocomplete.build(index, 1L, 10);
+        long buildMillis = (System.nanoTime() - started) / 1_000_000;
+
+        Path file = Files.createTempFile("autocomplete", ".bin");
+        try {
+            started = System.nanoTime();
+            built.write(file);
+            long writeMillis = (System.nanoTime() - started) / 1_000_000;
+            started = System.nanoTime();
+            PlaceAutocomplete mapped = PlaceAutocomplete.map(file);
+            long mapMicros = (System.nanoTime() - started) / 1_000;
+            System.out.printf("POIs=%d slots=%d size=%.1f MB (%.1f bytes/POI) build=%d ms write=%d ms map=%d us%n",
+                    poiCount, mapped.slotCount(), mapped.sizeBytes() / 1048576.0,
+                    mapped.sizeBytes() / (double) poiCount, buildMillis, writeMillis, mapMicros);
+
+            // Prefixes of real names: short (brand start), medium (brand), long (brand + category)
+            String[] shortPrefixes = new String[QUERIES];
+            String[] brandPrefixes = new String[QUERIES];
+            String[] longPrefixes = new String[QUERIES];
+            for (int q = 0; q < QUERIES; q++) {
+                String name = names[random.nextInt(poiCount)];
+                shortPrefixes[q] = name.substring(0, 3);
+                brandPrefixes[q] = name.substring(0, name.indexOf(' '));
+                longPrefixes[q] = name.substring(0, Math.min(name.length(), name.indexOf(' ') + 6));
+            }
+
+            int found = 0;
+            for (int round = 0; round < 2; round++) {
+                // First round warms up the JIT; only the second is reported
+                boolean measure = round == 1;
+                LatencyRecorder shortRecorder = new LatencyRecorder("complete 3-char prefix k=10 (mapped)");
+                LatencyRecorder brandRecorder = new LatencyRecorder("complete word prefix k=10 (mapped)");
+                LatencyRecorder longRecorder = new LatencyRecorder("complete two-word prefix k=10 (mapped)");
+                for (int q = 0; q < QUERIES; q++) {
+                    found += time(shortRecorder, mapped, shortPrefixes[q]);
+                    found += time(brandRecorder, mapped, brandPrefixes[q]);
+                    found += time(longRecorder, mapped, longPrefixes[q]);
+                }
+                if (measure) {
+                    shortRecorder.print();
+                    brandRecorder.print();
+                    longRecorder.print();
+                }
+            }
+            assertTrue(found > 0);
+            for (int q = 0; q < 1_000; q++) {
+                assertArrayEquals(built.complete(longPrefixes[q], 10), mapped.complete(longPrefixes[q], 10));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static int time(LatencyRecorder recorder, PlaceAutocomplete autocomplete, String prefix) {
+        long start = System.nanoTime();
+        int[] ids = autocomplete.complete(prefix, 10);
+        recorder.record(System.nanoTime() - start);
+        return ids.length;
+    }
+
+    private static String[] syllableWords(Random random, int count) {
+        String[] syllables = {"ka", "lo", "mi", "ra", "to", "ve", "su", "ne", "po", "di", "an", "el", "or", "us", "ba"};
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 2 + random.nextInt(3);
+            for (int s = 0; s < length; s++) {
+                word.append(syllables[random.nextInt(syllables.length)]);
+            }
+            word.setCharAt(0, Character.toUpperCase(word.charAt(0)));
+            words[i] = word.toString() + i;
+        }
+        return words;
+    }
+}
@@ -0,0 +1,116 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.geo.PoiHit;
+import com.whatsapp.chatbot.geo.PoiIndex;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Build and query benchmark for PoiIndex over a synthetic dataset.
+ * Run with: mvn test -Pbenchmark -Dtest=PoiIndexBenchmark [-Dbenchmark.pois=10000000]
+ */
+@Tag("benchmark")
+class PoiIndexBenchmark {
+
+    private static final String[] CATEGORIES = {
+        "restaurant", "cafe", "gas_station", "pharmacy", "hospital", "school", "bank", "atm", "parking",
+        "supermarket", "hotel", "museum", "park", "bus_station", "train_station", "bakery", "bar", "cinema",
+        "library", "post_office", "police", "fire_station", "dentist", "gym", "car_wash", "car_repair",
+        "hardware", "florist", "bookshop", "clothes", "electronics", "furniture", "laundry", "toilets"
+    };
+    private static final String[] STREET_SUFFIXES = {"Street", "Avenue", "Road", "Boulevard", "Lane", "Plaza"};
+
+    private static final int QUERIES = 20_000;
+
+    @Test
+    void buildAndQuery() {
+        int poiCount = Integer.getInteger("benchmark.pois", 10_000_000);
+        Random random = new Random(42);
+        String[] brands = syllableWords(random, 20_000);
+        String[] streets = syllableWords(random, 5_000);
+
+        // Synthetic country-sized extent with dense urban clusters
+        double[][] cities = new double[200][];
+        for (int c = 0; c < cities.length; c++) {
+            cities[c] = new double[]{35 + random.nextDouble() * 10, -100 + random.nextDouble() * 20};
+        }
+
+        long started = System.nanoTime();
+        PoiIndex.Builder builder = PoiIndex.builder(0.01);
+        for (int i = 0; i < poiCount; i++) {
+            double[] city = cities[random.nextInt(cities.length)];
+            String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            String name = brands[random.nextInt(brands.length)] + " " + category.replace('_', ' ') + " "
+                    + streets[random.nextInt(streets.length)] + " " + STREET_SUFFIXES[random.nextInt(STREET_SUFFIXES.length)];
+            builder.add(name, category, city[0] + random.nextGaussian() * 0.1, city[1] + random.nextGaussian() * 0.1,
+                    random.nextDouble());
+        }
+        long loaded = System.nanoTime();
+        PoiIndex index = builder.build();
+        long built = System.nanoTime();
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        System.out.printf("POIs=%d cells=%d terms=%d load=%d ms build=%d ms heap used=%d MB%n",
+                index.size(), index.cellCount(), index.termCount(), (loaded - started) / 1_000_000,
+                (built - loaded) / 1_000_000, (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+
+        LatencyRecorder nearestAny = new LatencyRecorder("nearest (no filter) k=10");
+        LatencyRecorder nearestCategory = new LatencyRecorder("nearest <category> k=5");
+        LatencyRecorder nameSearch = new LatencyRecorder("search <brand category> k=5");
+        LatencyRecorder partialSearch = new LatencyRecorder("search <brand unknown-term> k=5");
+
+        int found = 0;
+        for (int round = 0; round < 2; round++) {
+            // First round warms up the JIT; only the second is reported
+            boolean measure = round == 1;
+            for (int q = 0; q < QUERIES; q++) {
+                double[] city = cities[random.nextInt(cities.length)];
+                double lat = city[0] + random.nextGaussian() * 0.05;
+                double lon = city[1] + random.nextGaussian() * 0.05;
+                String category = CATEGORIES[random.nextInt(CATEGORIES.length)].replace('_', ' ');
+                String brand = brands[random.nextInt(brands.length)];
+
+                found += time(measure ? nearestAny : null, () -> index.nearest("", lat, lon, 10, 25_000));
+                found += time(measure ? nearestCategory : null, () -> index.nearest(category, lat, lon, 5, 25_000));
+                found += time(measure ? nameSearch : null, () -> index.search(brand + " " + category, lat, lon, 5));
+                found += time(measure ? partialSearch : null, () -> index.search(brand + " zzqx", lat, lon, 5));
+            }
+        }
+
+        nearestAny.print();
+        nearestCategory.print();
+        nameSearch.print();
+        partialSearch.print();
+        assertFalse(found == 0);
+    }
+
+    private static int time(LatencyRecorder recorder, java.util.function.Supplier<List<PoiHit>> query) {
+        long start = System.nanoTime();
+        List<PoiHit> hits = query.get();
+        if (recorder != null) {
+            recorder.record(System.nanoTime() - start);
+        }
+        return hits.size();
+    }
+
+    private static String[] syllableWords(Random random, int count) {
+        String[] syllables = {"ka", "lo", "mi", "ra", "to", "ve", "su", "ne", "po", "di", "an", "el", "or", "us", "ba"};
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 2 + random.nextInt(3);
+            for (int s = 0; s < length; s++) {
+                word.append(syllables[random.nextInt(syllables.length)]);
+            }
+            word.setCharAt(0, Character.toUpperCase(word.charAt(0)));
+            words[i] = word.toString() + i;
+        }
+        return words;
+    }
+}
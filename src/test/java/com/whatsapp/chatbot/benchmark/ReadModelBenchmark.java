@@ -0,0 +1,168 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.model.UserSession;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.UserSessionRepository;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import com.whatsapp.chatbot.service.ReadModelService;
+import com.whatsapp.chatbot.service.StatisticsService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Write-path latency while dashboards poll, with the management reads
+ * served from the tables (before) and from the read model (after).
+ * Run with: mvn test -Pbenchmark -Dtest=ReadModelBenchmark [-Dbenchmark.rows=300000]
+ *
+ * The writer stands in for the webhook path: per message it inserts the
+ * message record and updates the sender's session. Pollers fetch the active
+ * session list and the first page of messages every 5 ms each (up to 800
+ * polls/s in all, a wall of open dashboards), or as fast as the reads
+ * allow when they take longer than that.
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = {"spring.jpa.show-sql=false", "read-model.recent-messages=10000"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ReadModelService.class, StatisticsService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReadModelBenchmark {
+
+    private static final int SESSIONS = 20_000;
+    private static final int WRITES = 3_000;
+    private static final int POLLERS = 4;
+
+    @Autowired
+    private WhatsAppMessageRepository messageRepository;
+
+    @Autowired
+    private UserSessionRepository sessionRepository;
+
+    @Autowired
+    private ReadModelService readModelService;
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    private int sequence;
+
+    @Test
+    void dashboardLoad() throws InterruptedException {
+        int rows = Integer.getInteger("benchmark.rows", 300_000);
+        LocalDateTime start = LocalDateTime.now().minusDays(30);
+        List<WhatsAppMessage> batch = new ArrayList<>(1_000);
+        for (int n = 0; n < rows; n++) {
+            batch.add(message("1555" + (n % SESSIONS), start.plusSeconds(n)));
+            if (batch.size() == 1_000) {
+                messageRepository.insertAll(batch);
+                batch.clear();
+            }
+        }
+        messageRepository.insertAll(batch);
+        List<UserSession> sessions = new ArrayList<>(SESSIONS);
+        for (int n = 0; n < SESSIONS; n++) {
+            UserSession session = new UserSession();
+            session.setPhoneNumber("1555" + n);
+            session.setCurrentState("MAIN_MENU");
+            session.setNavigationPath("WELCOME");
+            session.setSessionActive(n % 3 != 0);
+            sessions.add(session);
+        }
+        sessions = sessionRepository.saveAll(sessions);
+        statisticsService.reconcile();
+        readModelService.requestRebuild();
+        Thread.sleep(2_000);
+
+        run("no pollers", sessions, null);
+        run("pollers on the tables", sessions, () -> {
+            sessionRepository.findBySessionActiveTrueOrderByUpdatedAtDesc();
+            messageRepository.findAll(PageRequest.of(0, 20, Sort.by("timestamp").descending()));
+        });
+        run("pollers on the read model", sessions, () -> {
+            readModelService.getActiveSessions();
+            readModelService.getMessages(0, 20);
+        });
+        System.out.println("read model: " + readModelService.status());
+        assertTrue(readModelService.getStalenessMillis() <= readModelService.getMaxStalenessMillis());
+    }
+
+    private void run(String name, List<UserSession> sessions, Runnable poll) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder polls = new LongAdder();
+        LatencyRecorder pollLatency = new LatencyRecorder(name + ": one dashboard poll");
+        List<Thread> pollers = new ArrayList<>();
+        for (int p = 0; poll != null && p < POLLERS; p++) {
+            Thread poller = new Thread(() -> {
+                while (running.get()) {
+                    long t0 = System.nanoTime();
+                    poll.run();
+                    long elapsed = System.nanoTime() - t0;
+                    synchronized (pollLatency) {
+                        pollLatency.record(elapsed);
+                    }
+                    polls.increment();
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+            pollers.add(poller);
+            poller.start();
+        }
+
+        LatencyRecorder writes = new LatencyRecorder(name + ": message insert + session update");
+        long began = System.nanoTime();
+        for (int i = 0; i < WRITES; i++) {
+            UserSession session = sessions.get(i * 7 % sessions.size());
+            session.setCurrentState(i % 2 == 0 ? "NAVIGATION_HELP" : "MAIN_MENU");
+            long t0 = System.nanoTime();
+            List<WhatsAppMessage> message = List.of(message(session.getPhoneNumber(), LocalDateTime.now()));
+            messageRepository.insertAll(message);
+            readModelService.messagesWritten(message);
+            UserSession saved = sessionRepository.save(session);
+            readModelService.sessionSaved(saved);
+            writes.record(System.nanoTime() - t0);
+            sessions.set(i * 7 % sessions.size(), saved);
+        }
+        double seconds = (System.nanoTime() - began) / 1e9;
+        running.set(false);
+        for (Thread poller : pollers) {
+            poller.join();
+        }
+        writes.print();
+        if (poll != null) {
+            pollLatency.print();
+            System.out.printf("%s: %,.0f polls/s%n", name, polls.sum() / seconds);
+        }
+    }
+
+    private WhatsAppMessage message(String phoneNumber, LocalDateTime timestamp) {
+        WhatsAppMessage message = new WhatsAppMessage();
+        message.setMessageId("wamid.read-model-" + sequence++);
+        message.setFromNumber(phoneNumber);
+        message.setToNumber("chatbot");
+        message.setMessageText("Read model benchmark message");
+        message.setMessageType("text");
+        message.setStatus("RECEIVED");
+        message.setDirection("INBOUND");
+        message.setTimestamp(timestamp);
+        return message;
+    }
+}
@@ -0,0 +1,187 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.model.UserSession;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.UserSessionRepository;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import com.whatsapp.chatbot.retention.RetentionStats;
+import com.whatsapp.chatbot.service.ArchiveService;
+import com.whatsapp.chatbot.service.ReadModelService;
+import com.whatsapp.chatbot.service.RetentionService;
+import com.whatsapp.chatbot.service.SearchService;
+import com.whatsapp.chatbot.service.StatisticsService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Webhook write latency while retention purges, with one unbounded
+ * transaction (before) and with the chunked, paced job (after).
+ * Run with: mvn test -Pbenchmark -Dtest=RetentionBenchmark [-Dbenchmark.rows=300000]
+ *
+ * Every session is idle past the deactivation cutoff and every seeded
+ * message is past the retention period. The writer stands in for the
+ * webhook path, one returning user every 2 ms: it inserts a message and
+ * updates that user's session, which retention may hold locked.
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = {"spring.jpa.show-sql=false", "retention.enabled=false", "retention.window=",
+        "retention.chunk-size=1000", "retention.chunk-pause-millis=10", "retention.max-rows-per-second=100000"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({RetentionService.class, ReadModelService.class, StatisticsService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RetentionBenchmark {
+
+    private static final int SESSIONS = 20_000;
+
+    @DynamicPropertySource
+    static void directory(DynamicPropertyRegistry registry) throws IOException {
+        registry.add("retention.directory", Files.createTempDirectory("retention-benchmark")::toString);
+        registry.add("storage.allow-temp-directories", () -> "true");
+    }
+
+    @Autowired
+    private WhatsAppMessageRepository messageRepository;
+
+    @Autowired
+    private UserSessionRepository sessionRepository;
+
+    @Autowired
+    private RetentionService retentionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private ArchiveService archiveService;
+
+    @MockBean
+    private SearchService searchService;
+
+    private int sequence;
+
+    @Test
+    void purgeUnderLoad() throws InterruptedException {
+        int rows = Integer.getInteger("benchmark.rows", 300_000);
+        List<UserSession> sessions = new ArrayList<>(SESSIONS);
+        for (int n = 0; n < SESSIONS; n++) {
+            UserSession session = new UserSession();
+            session.setPhoneNumber("1555" + n);
+            session.setCurrentState("MAIN_MENU");
+            sessions.add(session);
+        }
+        sessionRepository.saveAll(sessions);
+
+        seed(rows);
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(365);
+        run("unbounded transaction", () -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE user_sessions SET session_active = false WHERE updated_at < ?",
+                    LocalDateTime.now().minusHours(24));
+            jdbcTemplate.update("DELETE FROM whatsapp_messages WHERE timestamp < ?", cutoff);
+        }), rows);
+
+        seed(rows);
+        run("chunked retention", () -> retentionService.run(true), rows);
+        RetentionStats stats = retentionService.getStats();
+        System.out.printf("chunked retention: %,d chunks, final chunk %d rows, mean chunk %.1f ms, "
+                        + "max chunk %d ms, %d lock conflicts, %,.0f rows/s of chunk work%n",
+                stats.getChunks(), stats.getCurrentChunkSize(), stats.getMeanChunkMillis(),
+                stats.getMaxChunkMillis(), stats.getLockConflicts(), stats.getLastRunRowsPerSecond());
+        assertEquals(0L, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM whatsapp_messages WHERE timestamp < ?", Long.class, cutoff));
+    }
+
+    /**
+     * Insert expired messages, reactivate every session and backdate them all past the idle cutoff
+     */
+    private void seed(int rows) {
+        LocalDateTime start = LocalDateTime.now().minusDays(730);
+        List<WhatsAppMessage> batch = new ArrayList<>(1_000);
+        for (int n = 0; n < rows; n++) {
+            batch.add(message("1555" + (n % SESSIONS), start.plusSeconds(n)));
+            if (batch.size() == 1_000) {
+                messageRepository.insertAll(batch);
+                batch.clear();
+            }
+        }
+        messageRepository.insertAll(batch);
+        jdbcTemplate.update("UPDATE user_sessions SET session_active = true, updated_at = ?",
+                LocalDateTime.now().minusDays(2));
+    }
+
+    private void run(String name, Runnable purge, int rows) throws InterruptedException {
+        AtomicBoolean purging = new AtomicBoolean(true);
+        LatencyRecorder writes = new LatencyRecorder(name + ": message insert + session update");
+        LongAdder failures = new LongAdder();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; purging.get(); i++) {
+                long t0 = System.nanoTime();
+                try {
+                    UserSession session = sessionRepository.findByPhoneNumber("1555" + (i * 7 % SESSIONS))
+                            .orElseThrow();
+                    session.setCurrentState(i % 2 == 0 ? "NAVIGATION_HELP" : "MAIN_MENU");
+                    messageRepository.insertAll(List.of(message(session.getPhoneNumber(), LocalDateTime.now())));
+                    sessionRepository.save(session);
+                    writes.record(System.nanoTime() - t0);
+                } catch (RuntimeException e) {
+                    failures.increment();
+                }
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        writer.start();
+        Thread.sleep(200);
+
+        long t0 = System.nanoTime();
+        purge.run();
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        purging.set(false);
+        writer.join();
+
+        System.out.printf("%s: purged %,d messages and %,d sessions in %.2f s (%,.0f rows/s)%n",
+                name, rows, SESSIONS, seconds, (rows + SESSIONS) / seconds);
+        writes.print();
+        System.out.printf("%s: %d failed writes%n", name, failures.sum());
+    }
+
+    private WhatsAppMessage message(String phoneNumber, LocalDateTime timestamp) {
+        WhatsAppMessage message = new WhatsAppMessage();
+        message.setMessageId("wamid.retention-" + sequence++);
+        message.setFromNumber(phoneNumber);
+        message.setToNumber("chatbot");
+        message.setMessageText("Retention benchmark message");
+        message.setMessageType("text");
+        message.setStatus("RECEIVED");
+        message.setDirection("INBOUND");
+        message.setTimestamp(timestamp);
+        return message;
+    }
+}
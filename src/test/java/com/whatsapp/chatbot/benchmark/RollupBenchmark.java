@@ -0,0 +1,106 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.rollup.FunnelStep;
+import com.whatsapp.chatbot.rollup.Resolution;
+import com.whatsapp.chatbot.rollup.RollupEngine;
+import com.whatsapp.chatbot.rollup.RollupPoint;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Rollup record throughput, query latency and snapshot size.
+ * Run with: mvn test -Pbenchmark -Dtest=RollupBenchmark
+ *
+ * Events cover 30 days with the default tier sizes, so every ring has
+ * wrapped; names are pre-built so the numbers cover the engine alone.
+ */
+@Tag("benchmark")
+class RollupBenchmark {
+
+    private static final int EVENTS = 5_000_000;
+    private static final int THREADS = 4;
+    private static final int QUERIES = 2_000;
+    private static final String[] STATES = {"WELCOME", "MAIN_MENU", "NAVIGATION_HELP", "ROUTE_PLANNING",
+            "LOCATION_SEARCH", "TRAFFIC_INFO", "ROUTE_OPTIMIZATION", "NAVIGATING"};
+
+    @Test
+    void rollups() throws Exception {
+        RollupEngine engine = new RollupEngine(1440, 720, 365, 256);
+        List<String> names = new ArrayList<>(List.of("messages.inbound", "messages.outbound", "messages.type.text",
+                "messages.type.location", "messages.type.interactive"));
+        for (String from : STATES) {
+            names.add(RollupEngine.stateSeries(from));
+            for (String to : STATES) {
+                if (!from.equals(to)) {
+                    names.add(RollupEngine.transitionSeries(from, to));
+                }
+            }
+        }
+        long end = 1_700_000_000_000L;
+        long span = 30L * 86_400_000L;
+
+        long start = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int seed = t;
+            Thread thread = new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < EVENTS / THREADS; i++) {
+                    // Time moves forward with a little jitter, as arrivals do
+                    long at = end - span + span * i / (EVENTS / THREADS) - random.nextInt(5_000);
+                    engine.record(names.get(random.nextInt(names.size())), at, 1);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("record: %,d events on %d threads in %,d ms (%,.0f events/s), %d series%n",
+                EVENTS, THREADS, elapsed / 1_000_000, EVENTS / (elapsed / 1e9), engine.seriesNames().size());
+
+        LatencyRecorder day = new LatencyRecorder("last day per minute, 2 series");
+        LatencyRecorder month = new LatencyRecorder("last 30 days per hour, 2 series");
+        LatencyRecorder funnel = new LatencyRecorder("funnel of 4 steps over 30 days");
+        List<FunnelStep> steps = null;
+        for (int q = 0; q < QUERIES; q++) {
+            long t0 = System.nanoTime();
+            List<RollupPoint> minutes = engine.query(List.of("messages.inbound", "messages.outbound"),
+                    Resolution.MINUTE, end - 86_400_000L, end);
+            day.record(System.nanoTime() - t0);
+            assertEquals(1440, minutes.size());
+
+            t0 = System.nanoTime();
+            engine.query(List.of("messages.inbound", "messages.outbound"), Resolution.HOUR, end - span, end);
+            month.record(System.nanoTime() - t0);
+
+            t0 = System.nanoTime();
+            steps = engine.funnel(List.of("MAIN_MENU", "NAVIGATION_HELP", "ROUTE_PLANNING", "NAVIGATING"),
+                    Resolution.HOUR, end - span, end);
+            funnel.record(System.nanoTime() - t0);
+        }
+        day.print();
+        month.print();
+        funnel.print();
+        System.out.println("funnel: " + steps);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        start = System.nanoTime();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            engine.writeTo(out);
+        }
+        System.out.printf("snapshot: %,d bytes gzipped in %,d ms%n", bytes.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        assertEquals(EVENTS, engine.stats().getEvents());
+    }
+}
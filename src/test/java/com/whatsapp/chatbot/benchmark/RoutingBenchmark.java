@@ -0,0 +1,109 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.routing.RoadGraph;
+import com.whatsapp.chatbot.routing.RoadGraphBuilder;
+import com.whatsapp.chatbot.routing.RoutePath;
+import com.whatsapp.chatbot.routing.Router;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Graph build, memory-mapped load and query latency benchmark for the embedded router.
+ * Run with: mvn test -Pbenchmark -Dtest=RoutingBenchmark [-Dbenchmark.gridSize=1000]
+ *
+ * The synthetic network is a perturbed city grid (side x side nodes) with a
+ * sparse overlay of fast arterials, so long queries benefit from the heuristic
+ * the way real road networks do. Queries are bucketed by straight-line distance.
+ */
+@Tag("benchmark")
+class RoutingBenchmark {
+
+    private static final int QUERIES_PER_BUCKET = 500;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void buildLoadAndQuery() throws Exception {
+        int side = Integer.getInteger("benchmark.gridSize", 1_000);
+        Random random = new Random(7);
+
+        long started = System.nanoTime();
+        RoadGraphBuilder builder = new RoadGraphBuilder(0.01);
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                builder.addNode((long) r * side + c, 30.0 + r * 0.002 + random.nextDouble() * 0.0005,
+                        -100.0 + c * 0.0025 + random.nextDouble() * 0.0005);
+            }
+        }
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                long id = (long) r * side + c;
+                boolean arterialRow = r % 20 == 0;
+                boolean arterialCol = c % 20 == 0;
+                if (c + 1 < side) {
+                    builder.addEdge(id, id + 1, 0, arterialRow ? 90 : 30 + random.nextInt(20), false, "Row " + r);
+                }
+                if (r + 1 < side) {
+                    builder.addEdge(id, id + side, 0, arterialCol ? 90 : 30 + random.nextInt(20), false, "Col " + c);
+                }
+            }
+        }
+        long loaded = System.nanoTime();
+        RoadGraph graph = builder.build(42L);
+        long built = System.nanoTime();
+
+        Path file = tempDir.resolve("graph.bin");
+        graph.write(file);
+        long written = System.nanoTime();
+        RoadGraph mapped = RoadGraph.map(file);
+        long mappedAt = System.nanoTime();
+
+        System.out.printf("nodes=%d edges=%d add=%d ms csr-build=%d ms write=%d ms (%d MB) mmap-open=%.2f ms%n",
+                graph.nodeCount(), graph.edgeCount(), (loaded - started) / 1_000_000, (built - loaded) / 1_000_000,
+                (written - built) / 1_000_000, Files.size(file) >> 20, (mappedAt - written) / 1e6);
+
+        runQueries("heap", graph, side, random);
+        runQueries("mmap", mapped, side, random);
+    }
+
+    private void runQueries(String label, RoadGraph graph, int side, Random random) {
+        Router router = new Router(graph);
+        int[] buckets = {side / 50, side / 10, side / 3, side};
+        String[] names = {"short", "medium", "long", "very long"};
+        long settledTotal = 0;
+
+        for (int b = 0; b < buckets.length; b++) {
+            LatencyRecorder recorder = new LatencyRecorder(label + " " + names[b] + " (<= " + buckets[b] + " cells)");
+            for (int round = 0; round < 2; round++) {
+                for (int q = 0; q < QUERIES_PER_BUCKET; q++) {
+                    int span = Math.max(1, buckets[b]);
+                    int r1 = random.nextInt(side);
+                    int c1 = random.nextInt(side);
+                    int r2 = Math.max(0, Math.min(side - 1, r1 + random.nextInt(2 * span + 1) - span));
+                    int c2 = Math.max(0, Math.min(side - 1, c1 + random.nextInt(2 * span + 1) - span));
+                    int source = graph.nearestNode(30.0 + r1 * 0.002, -100.0 + c1 * 0.0025, 1_000);
+                    int target = graph.nearestNode(30.0 + r2 * 0.002, -100.0 + c2 * 0.0025, 1_000);
+
+                    long start = System.nanoTime();
+                    RoutePath path = router.route(source, target);
+                    long elapsed = System.nanoTime() - start;
+                    assertTrue(path != null);
+                    if (round == 1) {
+                        recorder.record(elapsed);
+                        settledTotal += path.getSettledNodes();
+                    }
+                }
+            }
+            recorder.print();
+        }
+        System.out.printf("%s mean settled nodes/query=%d%n", label, settledTotal / (QUERIES_PER_BUCKET * buckets.length));
+    }
+}
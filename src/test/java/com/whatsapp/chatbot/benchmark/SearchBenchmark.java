@@ -0,0 +1,200 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.search.MessageIndex;
+import com.whatsapp.chatbot.search.MessageTokenizer;
+import com.whatsapp.chatbot.search.SearchHit;
+import com.whatsapp.chatbot.search.SearchOrder;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Message search index build rate, size and query latency, against a
+ * substring scan of every message (what LIKE '%word%' on the unindexed
+ * text column amounts to).
+ * Run with: mvn test -Pbenchmark -Dtest=SearchBenchmark [-Dbenchmark.rows=2000000]
+ *
+ * Words follow a Zipf distribution over a 50k-word vocabulary, so the most
+ * common word is in about one message in ten; "refund" is in one in 500
+ * and "station" in one in 20. Messages go to 100k users.
+ */
+@Tag("benchmark")
+class SearchBenchmark {
+
+    private static final int VOCABULARY = 50_000;
+    private static final int USERS = 100_000;
+    private static final int QUERIES = 2_000;
+    private static final int SCANS = 5;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void search() throws Exception {
+        int rows = Integer.getInteger("benchmark.rows", 2_000_000);
+        Random random = new Random(17);
+        String[] words = new String[VOCABULARY];
+        double[] cumulative = new double[VOCABULARY];
+        double total = 0;
+        for (int w = 0; w < VOCABULARY; w++) {
+            words[w] = "w" + Integer.toString(w, 36);
+            total += 1.0 / (w + 1);
+            cumulative[w] = total;
+        }
+
+        MessageIndex index = MessageIndex.open(directory, 100_000, 10, 5_000_000);
+        String[] texts = new String[rows];
+        long indexNanos = 0;
+        long maintenanceNanos = 0;
+        long textBytes = 0;
+        String stationUser = null;
+        for (int n = 0; n < rows; n++) {
+            String text = message(random, words, cumulative, total);
+            String user = "@" + (15_550_000 + random.nextInt(USERS));
+            texts[n] = text;
+            textBytes += text.length();
+            stationUser = text.contains("Station") ? user : stationUser;
+            long t0 = System.nanoTime();
+            List<String> tokens = new ArrayList<>(MessageTokenizer.tokenize(text));
+            tokens.add(user);
+            index.add(n + 1, tokens);
+            indexNanos += System.nanoTime() - t0;
+            if (index.needsFlush()) {
+                t0 = System.nanoTime();
+                index.flush();
+                while (index.maybeMerge()) {
+                    // Merge until the policy is satisfied, as the indexer thread does
+                }
+                maintenanceNanos += System.nanoTime() - t0;
+            }
+        }
+        long t0 = System.nanoTime();
+        index.flush();
+        maintenanceNanos += System.nanoTime() - t0;
+        System.out.printf(Locale.ROOT, "index: %,d messages, %,d ms in memory (%,.0f msgs/s), %,d ms flushing and "
+                        + "merging; %,d merges rewrote %,d messages%n",
+                rows, indexNanos / 1_000_000, rows / (indexNanos / 1e9), maintenanceNanos / 1_000_000,
+                index.getMerges(), index.getMergedDocs());
+        System.out.printf(Locale.ROOT, "size: %,.1f MB in %d segments, %,d terms, %.1f bytes/message "
+                        + "(%.1f bytes of text/message)%n",
+                index.getSizeBytes() / 1e6, index.getSegmentCount(), index.getTerms(),
+                (double) index.getSizeBytes() / rows, (double) textBytes / rows);
+
+        MessageIndex reopened = MessageIndex.open(directory, 100_000, 10, 5_000_000);
+        assertEquals(rows, reopened.getDocs());
+
+        String common = words[0];
+        query(reopened, "rare term, newest 20", List.of("refund"), SearchOrder.RECENT);
+        query(reopened, "common term, newest 20", List.of(common), SearchOrder.RECENT);
+        query(reopened, "two terms, newest 20", List.of("station", words[3]), SearchOrder.RECENT);
+        query(reopened, "number and term, newest 20", List.of(stationUser, "station"), SearchOrder.RECENT);
+        query(reopened, "rare term, best 20", List.of("refund"), SearchOrder.RELEVANCE);
+        query(reopened, "two terms, best 20 of 100k newest", List.of("station", words[3]), SearchOrder.RELEVANCE);
+
+        // The same with a nearly full in-memory segment in front of the files
+        for (int n = 0; n < 99_999; n++) {
+            List<String> tokens = new ArrayList<>(MessageTokenizer.tokenize(message(random, words, cumulative, total)));
+            tokens.add("@" + (15_550_000 + random.nextInt(USERS)));
+            index.add(rows + n + 1, tokens);
+        }
+        query(index, "common term, 99,999 unflushed", List.of(common), SearchOrder.RECENT);
+        query(index, "two terms, 99,999 unflushed", List.of("station", words[3]), SearchOrder.RECENT);
+
+        // Deep pages: keep following the cursor
+        LatencyRecorder deep = new LatencyRecorder("rare term, pages 1-50 of 20");
+        long beforeId = Long.MAX_VALUE;
+        for (int page = 0; page < 50; page++) {
+            long start = System.nanoTime();
+            List<SearchHit> hits = reopened.search(List.of("refund"), SearchOrder.RECENT, beforeId, 20, 100_000);
+            deep.record(System.nanoTime() - start);
+            if (hits.size() < 20) {
+                break;
+            }
+            beforeId = hits.get(hits.size() - 1).getId();
+        }
+        deep.print();
+
+        // Baseline: substring scan of every message for the newest 20 matches
+        LatencyRecorder scan = new LatencyRecorder("substring scan, rare term");
+        int scanned = 0;
+        for (int q = 0; q < SCANS; q++) {
+            long start = System.nanoTime();
+            int found = 0;
+            for (int n = rows - 1; n >= 0 && found < 20; n--) {
+                if (texts[n].toLowerCase(Locale.ROOT).contains("refund")) {
+                    found++;
+                }
+            }
+            scan.record(System.nanoTime() - start);
+            scanned = found;
+        }
+        scan.print();
+        LatencyRecorder fullScan = new LatencyRecorder("substring scan, no match (full table)");
+        for (int q = 0; q < SCANS; q++) {
+            long start = System.nanoTime();
+            int found = 0;
+            for (int n = rows - 1; n >= 0; n--) {
+                if (texts[n].toLowerCase(Locale.ROOT).contains("zzzzqx")) {
+                    found++;
+                }
+            }
+            fullScan.record(System.nanoTime() - start);
+            assertEquals(0, found);
+        }
+        fullScan.print();
+
+        List<SearchHit> refunds = reopened.search(List.of("refund"), SearchOrder.RECENT, Long.MAX_VALUE, 20, 100_000);
+        assertEquals(scanned, refunds.size());
+        assertTrue(texts[(int) refunds.get(0).getId() - 1].contains("refund"));
+    }
+
+    private static void query(MessageIndex index, String name, List<String> terms, SearchOrder order) {
+        for (int q = 0; q < QUERIES / 10; q++) {
+            index.search(terms, order, Long.MAX_VALUE, 20, 100_000);
+        }
+        LatencyRecorder latency = new LatencyRecorder(name);
+        int hits = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            long start = System.nanoTime();
+            hits += index.search(terms, order, Long.MAX_VALUE, 20, 100_000).size();
+            latency.record(System.nanoTime() - start);
+        }
+        latency.print();
+        assertTrue(hits > 0, name);
+    }
+
+    private static String message(Random random, String[] words, double[] cumulative, double total) {
+        StringBuilder text = new StringBuilder();
+        int length = 3 + random.nextInt(13);
+        for (int i = 0; i < length; i++) {
+            double target = random.nextDouble() * total;
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulative[middle] < target) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            text.append(i == 0 ? "" : " ").append(words[low]);
+        }
+        if (random.nextInt(500) == 0) {
+            text.append(" refund");
+        }
+        if (random.nextInt(20) == 0) {
+            text.append(" near the Station");
+        }
+        return text.toString();
+    }
+}
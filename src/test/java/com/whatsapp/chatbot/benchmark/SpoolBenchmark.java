@@ -0,0 +1,121 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.whatsapp.chatbot.firestore.FirestoreWrite;
+import com.whatsapp.chatbot.spool.SpoolLog;
+import com.whatsapp.chatbot.spool.SpoolOverflow;
+import com.whatsapp.chatbot.spool.SpoolShipper;
+import com.whatsapp.chatbot.spool.SpoolStats;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Firestore spool append cost on the caller's thread, encoding included,
+ * and how fast the shipper drains it into a simulated Firestore (a fixed
+ * round trip plus 20 us per write, one batch of 500 at a time). Also the
+ * time to reopen a full spool.
+ * Run with: mvn test -Pbenchmark -Dtest=SpoolBenchmark [-Dbenchmark.rtt-millis=30]
+ */
+@Tag("benchmark")
+class SpoolBenchmark {
+
+    private static final int THREADS = 8;
+    private static final int EVENTS_PER_THREAD = 100_000;
+    private static final int SEGMENT_BYTES = 64 << 20;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendAndShip() throws Exception {
+        long rttMillis = Long.getLong("benchmark.rtt-millis", 30);
+        ObjectMapper json = new ObjectMapper();
+        SpoolLog spool = SpoolLog.open(directory, SEGMENT_BYTES, 4L << 30, SpoolOverflow.DROP_OLDEST);
+
+        // Append from the request threads with nothing shipping, as while Firestore is down
+        long[][] samples = new long[THREADS][EVENTS_PER_THREAD];
+        CountDownLatch done = new CountDownLatch(THREADS);
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            long[] own = samples[t];
+            String phone = "1555000" + t;
+            new Thread(() -> {
+                try {
+                    for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+                        long t0 = System.nanoTime();
+                        spool.append(json.writeValueAsBytes(FirestoreWrite.add("user_interactions",
+                                Map.of("phoneNumber", phone, "messageText", "how do I get to the station " + i,
+                                        "messageType", "text", "timestamp", "1700000000", "platform", "whatsapp"))));
+                        own[i] = System.nanoTime() - t0;
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        double appendSeconds = (System.nanoTime() - start) / 1e9;
+        long t0 = System.nanoTime();
+        spool.force();
+        long forceMillis = (System.nanoTime() - t0) / 1_000_000;
+        LatencyRecorder append = new LatencyRecorder("encode and append");
+        for (long[] own : samples) {
+            for (long nanos : own) {
+                append.record(nanos);
+            }
+        }
+        append.print();
+        int events = THREADS * EVENTS_PER_THREAD;
+        System.out.printf("append: %,.0f events/s, %,.1f MB/s over %d threads (%.0f bytes/event), "
+                        + "force %,d ms, %d segments%n",
+                events / appendSeconds, spool.getAppendedBytes() / 1e6 / appendSeconds, THREADS,
+                (double) spool.getAppendedBytes() / events, forceMillis, spool.getSegmentCount());
+        spool.close();
+
+        // Reopen (scanning the newest segment) and drain into the simulated Firestore
+        t0 = System.nanoTime();
+        SpoolLog reopened = SpoolLog.open(directory, SEGMENT_BYTES, 4L << 30, SpoolOverflow.DROP_OLDEST);
+        long openMillis = (System.nanoTime() - t0) / 1_000_000;
+        ScheduledExecutorService firestore = Executors.newSingleThreadScheduledExecutor();
+        SpoolShipper shipper = new SpoolShipper(reopened, records -> {
+            CompletableFuture<Void> committed = new CompletableFuture<>();
+            firestore.schedule(() -> committed.complete(null), rttMillis * 1_000 + records.size() * 20L,
+                    TimeUnit.MICROSECONDS);
+            return committed;
+        }, directory.resolve("checkpoint"), directory.resolve("dead-letter"), 500, 5, Duration.ofMillis(10),
+                Duration.ofMillis(100), Duration.ofSeconds(1));
+        Thread thread = new Thread(shipper);
+        start = System.nanoTime();
+        thread.start();
+        while (shipper.stats().getShipped() < events) {
+            Thread.sleep(20);
+        }
+        double shipSeconds = (System.nanoTime() - start) / 1e9;
+        shipper.close();
+        thread.join();
+        SpoolStats stats = shipper.stats();
+        System.out.printf("reopen: %,d ms; ship: %,.0f events/s in batches of 500 (%.1f ms mean per batch), "
+                        + "%d segments left%n",
+                openMillis, events / shipSeconds, stats.getMeanShipMillis(), stats.getSegments());
+        firestore.shutdown();
+        reopened.close();
+
+        assertEquals(events, stats.getShipped());
+        assertEquals(0, stats.getBacklogBytes());
+        assertEquals(1, stats.getSegments());
+    }
+}
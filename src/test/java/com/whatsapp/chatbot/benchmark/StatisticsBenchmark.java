@@ -0,0 +1,142 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.model.UserSession;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.UserSessionRepository;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import com.whatsapp.chatbot.service.StatisticsService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * /api/stats cost: the five COUNT queries it used to run against the
+ * in-memory snapshot, plus what one reconciliation costs. A message is
+ * written between iterations, as on a live system, so the database can't
+ * answer from its query result cache.
+ * Run with: mvn test -Pbenchmark -Dtest=StatisticsBenchmark [-Dbenchmark.rows=1000000]
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(StatisticsService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StatisticsBenchmark {
+
+    private static final int SESSIONS = 100_000;
+    private static final String[] STATES = {"WELCOME", "MAIN_MENU", "SEARCH_LOCATION", "NAVIGATION", "SETTINGS"};
+
+    @Autowired
+    private WhatsAppMessageRepository messageRepository;
+
+    @Autowired
+    private UserSessionRepository sessionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Test
+    void statistics() {
+        int rows = Integer.getInteger("benchmark.rows", 1_000_000);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<WhatsAppMessage> batch = new ArrayList<>(1_000);
+        for (int n = 0; n < rows; n++) {
+            WhatsAppMessage message = new WhatsAppMessage();
+            message.setMessageId("wamid.stats-" + n);
+            message.setFromNumber(n % 2 == 0 ? "1555" + (n % SESSIONS) : "chatbot");
+            message.setToNumber(n % 2 == 0 ? "chatbot" : "1555" + (n % SESSIONS));
+            message.setMessageText("Statistics benchmark message " + n);
+            message.setMessageType("text");
+            message.setStatus(n % 2 == 0 ? "RECEIVED" : n % 7 == 0 ? "read" : "SENT");
+            message.setDirection(n % 2 == 0 ? "INBOUND" : "OUTBOUND");
+            message.setTimestamp(start.plusSeconds(n));
+            batch.add(message);
+            if (batch.size() == 1_000) {
+                messageRepository.insertAll(batch);
+                batch.clear();
+            }
+        }
+        messageRepository.insertAll(batch);
+        List<UserSession> sessions = new ArrayList<>(1_000);
+        for (int n = 0; n < SESSIONS; n++) {
+            UserSession session = new UserSession();
+            session.setPhoneNumber("1555" + n);
+            session.setCurrentState(STATES[n % STATES.length]);
+            session.setNavigationPath("WELCOME");
+            session.setSessionActive(n % 3 != 0);
+            sessions.add(session);
+            if (sessions.size() == 1_000) {
+                sessionRepository.saveAll(sessions);
+                sessions.clear();
+            }
+        }
+
+        LatencyRecorder queries = new LatencyRecorder("five COUNT queries (old /api/stats)");
+        for (int i = 0; i < 20; i++) {
+            arrive(rows + i);
+            long t0 = System.nanoTime();
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM whatsapp_messages", Long.class);
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM whatsapp_messages WHERE direction = 'INBOUND'",
+                    Long.class);
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM whatsapp_messages WHERE direction = 'OUTBOUND'",
+                    Long.class);
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_sessions", Long.class);
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_sessions WHERE session_active = TRUE",
+                    Long.class);
+            queries.record(System.nanoTime() - t0);
+        }
+
+        LatencyRecorder reconcile = new LatencyRecorder("reconcile (two GROUP BY scans)");
+        for (int i = 0; i < 10; i++) {
+            arrive(rows + 20 + i);
+            long t0 = System.nanoTime();
+            statisticsService.reconcile();
+            reconcile.record(System.nanoTime() - t0);
+        }
+
+        LatencyRecorder snapshot = new LatencyRecorder("in-memory snapshot (new /api/stats)");
+        Map<String, Object> stats = null;
+        for (int i = 0; i < 100_000; i++) {
+            long t0 = System.nanoTime();
+            stats = statisticsService.snapshot();
+            snapshot.record(System.nanoTime() - t0);
+        }
+
+        queries.print();
+        reconcile.print();
+        snapshot.print();
+        assertEquals(rows + 30L, stats.get("totalMessages"));
+        assertEquals((long) SESSIONS, stats.get("totalSessions"));
+        assertEquals((long) SESSIONS - (SESSIONS + 2) / 3, stats.get("activeSessions"));
+    }
+
+    private void arrive(int n) {
+        WhatsAppMessage message = new WhatsAppMessage();
+        message.setMessageId("wamid.stats-" + n);
+        message.setFromNumber("15550000");
+        message.setToNumber("chatbot");
+        message.setMessageText("hi");
+        message.setMessageType("text");
+        message.setStatus("RECEIVED");
+        message.setDirection("INBOUND");
+        message.setTimestamp(LocalDateTime.now());
+        messageRepository.insertAll(List.of(message));
+        statisticsService.messagesAdded(List.of(message));
+    }
+}
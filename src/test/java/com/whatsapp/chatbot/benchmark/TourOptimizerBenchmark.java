@@ -0,0 +1,115 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.routing.EdgeWeights;
+import com.whatsapp.chatbot.routing.RoadGraph;
+import com.whatsapp.chatbot.routing.RoadGraphBuilder;
+import com.whatsapp.chatbot.routing.Router;
+import com.whatsapp.chatbot.routing.Tour;
+import com.whatsapp.chatbot.routing.TourOptimizer;
+import com.whatsapp.chatbot.routing.TravelTimeMatrix;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Multi-stop optimization: matrix build time, search throughput and tour quality by stop count.
+ * Run with: mvn test -Pbenchmark -Dtest=TourOptimizerBenchmark [-Dbenchmark.timeBoxMillis=1000]
+ *
+ * Stops are random nodes in a 20 x 20 km patch of a perturbed grid with
+ * arterials. Quality is the gap to the best tour found with ten times the
+ * time box, and the saving over the order the stops were sent in.
+ */
+@Tag("benchmark")
+class TourOptimizerBenchmark {
+
+    private static final int SIDE = 400;
+    private static final int PATCH = 100;
+    private static final int[] STOP_COUNTS = {5, 10, 25, 50, 100};
+    private static final int INSTANCES = 5;
+
+    @Test
+    void matrixAndSearchByStopCount() {
+        long timeBoxMillis = Long.getLong("benchmark.timeBoxMillis", 1_000);
+        Random random = new Random(7);
+        RoadGraphBuilder builder = new RoadGraphBuilder(0.01);
+        for (int r = 0; r < SIDE; r++) {
+            for (int c = 0; c < SIDE; c++) {
+                builder.addNode((long) r * SIDE + c, 30.0 + r * 0.002 + random.nextDouble() * 0.0005,
+                        -100.0 + c * 0.0025 + random.nextDouble() * 0.0005);
+            }
+        }
+        for (int r = 0; r < SIDE; r++) {
+            for (int c = 0; c < SIDE; c++) {
+                long id = (long) r * SIDE + c;
+                if (c + 1 < SIDE) {
+                    builder.addEdge(id, id + 1, 0, r % 20 == 0 ? 90 : 30 + random.nextInt(20), false, "Row " + r);
+                }
+                if (r + 1 < SIDE) {
+                    builder.addEdge(id, id + SIDE, 0, c % 20 == 0 ? 90 : 30 + random.nextInt(20), false, "Col " + c);
+                }
+            }
+        }
+        RoadGraph graph = builder.build(42L);
+        Router router = new Router(graph);
+        EdgeWeights weights = EdgeWeights.freeFlow(graph);
+        int cores = Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(cores);
+        TourOptimizer optimizer = new TourOptimizer(pool);
+        System.out.printf("nodes=%d edges=%d cores=%d time box=%d ms%n",
+                graph.nodeCount(), graph.edgeCount(), cores, timeBoxMillis);
+
+        try {
+            // Warm up the search and optimizer code paths
+            optimizer.optimize(TravelTimeMatrix.compute(router, stops(graph, random, 25), weights, pool), false,
+                    Duration.ofMillis(timeBoxMillis));
+
+            for (int count : STOP_COUNTS) {
+                LatencyRecorder matrixTime = new LatencyRecorder("matrix " + count + " stops");
+                LatencyRecorder searchTime = new LatencyRecorder("search " + count + " stops");
+                double gap = 0;
+                double saving = 0;
+                double iterationsPerSecond = 0;
+                for (int instance = 0; instance < INSTANCES; instance++) {
+                    int[] nodes = stops(graph, random, count);
+                    long start = System.nanoTime();
+                    TravelTimeMatrix matrix = TravelTimeMatrix.compute(router, nodes, weights, pool);
+                    matrixTime.record(System.nanoTime() - start);
+
+                    start = System.nanoTime();
+                    Tour tour = optimizer.optimize(matrix, false, Duration.ofMillis(timeBoxMillis));
+                    long elapsed = System.nanoTime() - start;
+                    searchTime.record(elapsed);
+                    Tour reference = optimizer.optimize(matrix, false, Duration.ofMillis(timeBoxMillis * 10));
+
+                    assertTrue(tour.isComplete());
+                    gap += (double) tour.getDurationMillis() / Math.min(tour.getDurationMillis(),
+                            reference.getDurationMillis()) - 1;
+                    saving += 1 - (double) tour.getDurationMillis() / tour.getGivenOrderMillis();
+                    iterationsPerSecond += tour.getIterations() / (elapsed / 1e9);
+                }
+                matrixTime.print();
+                searchTime.print();
+                System.out.printf("  stops=%d gap to 10x budget=%.2f%% saving vs given order=%.1f%% kicks/s=%.0f%n",
+                        count, 100 * gap / INSTANCES, 100 * saving / INSTANCES, iterationsPerSecond / INSTANCES);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static int[] stops(RoadGraph graph, Random random, int count) {
+        int top = random.nextInt(SIDE - PATCH);
+        int left = random.nextInt(SIDE - PATCH);
+        int[] nodes = new int[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = graph.nearestNode(30.0 + (top + random.nextInt(PATCH)) * 0.002,
+                    -100.0 + (left + random.nextInt(PATCH)) * 0.0025, 1_000);
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,99 @@
+package com.whatsapp.chatbot.benchmark;
+
+import com.whatsapp.chatbot.routing.RoadGraph;
+import com.whatsapp.chatbot.routing.RoadGraphBuilder;
+import com.whatsapp.chatbot.traffic.TrafficAggregator;
+import com.whatsapp.chatbot.traffic.TrafficIngestStats;
+import com.whatsapp.chatbot.traffic.TrafficIngestor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Traffic feed ingest throughput and read latency benchmark.
+ * Run with: mvn test -Pbenchmark -Dtest=TrafficIngestBenchmark [-Dbenchmark.gridSize=1000]
+ *
+ * Feed lines are pre-generated so the measurement covers parsing, segment
+ * resolution and window updates, not string building.
+ */
+@Tag("benchmark")
+class TrafficIngestBenchmark {
+
+    private static final int EVENTS = 5_000_000;
+    private static final int READS = 1_000_000;
+
+    @Test
+    void ingestAndRead() {
+        int side = Integer.getInteger("benchmark.gridSize", 1_000);
+        RoadGraphBuilder builder = new RoadGraphBuilder(0.01);
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                builder.addNode((long) r * side + c, 30.0 + r * 0.002, -100.0 + c * 0.0025);
+            }
+        }
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                long id = (long) r * side + c;
+                if (c + 1 < side) {
+                    builder.addEdge(id, id + 1, 0, 40, false, "Row " + r);
+                }
+                if (r + 1 < side) {
+                    builder.addEdge(id, id + side, 0, 40, false, "Col " + c);
+                }
+            }
+        }
+        RoadGraph graph = builder.build(1L);
+
+        long now = System.currentTimeMillis();
+        long setupStart = System.nanoTime();
+        TrafficAggregator aggregator = new TrafficAggregator(graph, 0.02, 60_000, 5, now - 86_400_000L);
+        TrafficIngestor ingestor = new TrafficIngestor(aggregator, () -> now);
+        System.out.printf("segments=%d areas=%d aggregator setup=%d ms%n",
+                graph.edgeCount(), aggregator.areaCount(), (System.nanoTime() - setupStart) / 1_000_000);
+
+        Random random = new Random(3);
+        String[] lines = new String[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            int r = random.nextInt(side);
+            int c = random.nextInt(side - 1);
+            long from = (long) r * side + c;
+            long timestamp = now - random.nextInt(240_000);
+            lines[i] = i % 100 == 0
+                    ? timestamp + ",INCIDENT," + from + "," + (from + 1) + ",2,Collision"
+                    : timestamp + ",SPEED," + from + "," + (from + 1) + "," + (5 + random.nextInt(600) / 10.0);
+        }
+
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (String line : lines) {
+                ingestor.accept(line);
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("round %d: %d events in %d ms = %.0f events/s%n",
+                    round, EVENTS, elapsed / 1_000_000, EVENTS / (elapsed / 1e9));
+        }
+        TrafficIngestStats stats = ingestor.stats();
+        assertEquals(2L * EVENTS, stats.getAccepted());
+
+        LatencyRecorder segmentReads = new LatencyRecorder("segment reading");
+        LatencyRecorder areaReads = new LatencyRecorder("area reading");
+        long checksum = 0;
+        for (int i = 0; i < READS; i++) {
+            int edge = random.nextInt(graph.edgeCount());
+            long start = System.nanoTime();
+            checksum += aggregator.segment(edge, now).getSamples();
+            segmentReads.record(System.nanoTime() - start);
+
+            int area = random.nextInt(aggregator.areaCount());
+            start = System.nanoTime();
+            checksum += aggregator.area(area, now).getSamples();
+            areaReads.record(System.nanoTime() - start);
+        }
+        segmentReads.print();
+        areaReads.print();
+        System.out.println("checksum=" + checksum);
+    }
+}
@@ -0,0 +1,210 @@
+package com.whatsapp.chatbot.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for QueryCache
+ */
+class QueryCacheTest {
+
+    @Test
+    void get_CachesLoadedValueAndCountsHits() {
+        // Arrange
+        QueryCache<String, String> cache = new QueryCache<>("test", 100, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        String first = cache.get("airport", () -> "JFK" + loads.incrementAndGet());
+        String second = cache.get("airport", () -> "JFK" + loads.incrementAndGet());
+
+        // Assert
+        assertEquals("JFK1", first);
+        assertEquals("JFK1", second);
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getLoads());
+        assertEquals(0.5, stats.getHitRatio(), 1e-9);
+    }
+
+    @Test
+    void get_ReloadsAfterTtlExpires() {
+        // Arrange
+        AtomicLong now = new AtomicLong();
+        QueryCache<String, Integer> cache = new QueryCache<>("test", 100, Duration.ofSeconds(10), now::get);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("downtown", loads::incrementAndGet);
+
+        // Act
+        now.addAndGet(TimeUnit.SECONDS.toNanos(9));
+        int beforeExpiry = cache.get("downtown", loads::incrementAndGet);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        int afterExpiry = cache.get("downtown", loads::incrementAndGet);
+
+        // Assert
+        assertEquals(1, beforeExpiry);
+        assertEquals(2, afterExpiry);
+        assertEquals(1, cache.stats().getExpirations());
+    }
+
+    @Test
+    void get_ConcurrentMissesShareOneLoad() throws Exception {
+        // Arrange
+        QueryCache<String, String> cache = new QueryCache<>("test", 100, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            // Act
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.get("central station", () -> {
+                loads.incrementAndGet();
+                loaderStarted.countDown();
+                await(release);
+                return "Grand Central";
+            })));
+            loaderStarted.await();
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> cache.get("central station", () -> {
+                    loads.incrementAndGet();
+                    return "duplicate load";
+                })));
+            }
+            while (cache.stats().getCoalescedLoads() < 7) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            // Assert
+            for (Future<String> result : results) {
+                assertEquals("Grand Central", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void get_LoaderFailureIsNotCached() {
+        // Arrange
+        QueryCache<String, String> cache = new QueryCache<>("test", 100, Duration.ofMinutes(1));
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> cache.get("airport", () -> {
+            throw new IllegalStateException("index unavailable");
+        }));
+        String value = cache.get("airport", () -> "JFK");
+
+        // Assert
+        assertEquals("JFK", value);
+        assertEquals(1, cache.stats().getLoadFailures());
+    }
+
+    @Test
+    void get_StaleEntryIsServedWhileRefreshedInBackground() {
+        // Arrange
+        AtomicLong now = new AtomicLong();
+        List<Runnable> refreshes = new ArrayList<>();
+        QueryCache<String, Integer> cache = new QueryCache<>("test", 100, Duration.ofSeconds(10),
+                Duration.ofSeconds(5), refreshes::add, now::get);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("alice", loads::incrementAndGet);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(6));
+
+        // Act
+        int stale = cache.get("alice", loads::incrementAndGet);
+        int again = cache.get("alice", loads::incrementAndGet);
+        refreshes.forEach(Runnable::run);
+        int refreshed = cache.get("alice", loads::incrementAndGet);
+
+        // Assert
+        assertEquals(1, stale);
+        assertEquals(1, again);
+        assertEquals(1, refreshes.size(), "one refresh while one is pending");
+        assertEquals(2, refreshed);
+        assertEquals(1, cache.stats().getRefreshes());
+        assertEquals(1, cache.stats().getMisses());
+    }
+
+    @Test
+    void put_WinsOverLoadRunningAtTheTime() throws Exception {
+        // Arrange
+        QueryCache<String, String> cache = new QueryCache<>("test", 100, Duration.ofMinutes(1));
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<String> loaded = executor.submit(() -> cache.get("alice", () -> {
+                loaderStarted.countDown();
+                await(release);
+                return "old";
+            }));
+            assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+
+            // Act
+            cache.put("alice", "new");
+            release.countDown();
+
+            // Assert
+            assertEquals("old", loaded.get(5, TimeUnit.SECONDS));
+            assertEquals("new", cache.getIfPresent("alice"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void get_PopularEntriesSurviveScanOfOneOffQueries() {
+        // Arrange
+        QueryCache<String, String> cache = new QueryCache<>("test", 200, Duration.ofMinutes(1));
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 100; i++) {
+                cache.get("popular " + i, () -> "value");
+            }
+        }
+
+        // Act: popular keys keep trickling in, too rarely for plain LRU to keep them
+        for (int i = 0; i < 10_000; i++) {
+            cache.get("one-off " + i, () -> "value");
+            if (i % 3 == 0) {
+                cache.get("popular " + (i / 3) % 100, () -> "value");
+            }
+        }
+
+        // Assert
+        int retained = 0;
+        for (int i = 0; i < 100; i++) {
+            if (cache.getIfPresent("popular " + i) != null) {
+                retained++;
+            }
+        }
+        assertTrue(retained >= 95, "popular entries retained: " + retained);
+        assertTrue(cache.size() <= 200);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.whatsapp.chatbot.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for DurableDirectories
+ */
+class DurableDirectoriesTest {
+
+    private static final String TEMP = Path.of(System.getProperty("java.io.tmpdir"), "whatsapp-chatbot", "archive")
+            .toString();
+
+    @Test
+    void problem_RejectsMissingAndTempDirectories() {
+        assertTrue(DurableDirectories.problem("", false).isPresent());
+        assertTrue(DurableDirectories.problem(null, true).isPresent());
+        assertTrue(DurableDirectories.problem(TEMP, false).isPresent());
+    }
+
+    @Test
+    void problem_AcceptsExplicitDurableDirectory() {
+        assertTrue(DurableDirectories.problem("/var/lib/whatsapp-chatbot/archive", false).isEmpty());
+        assertTrue(DurableDirectories.problem(TEMP, true).isEmpty());
+    }
+}
@@ -0,0 +1,207 @@
+package com.whatsapp.chatbot.controller;
+
+import com.whatsapp.chatbot.model.UserSession;
+import com.whatsapp.chatbot.service.ArchiveService;
+import com.whatsapp.chatbot.service.DashboardFeedService;
+import com.whatsapp.chatbot.service.FirebaseService;
+import com.whatsapp.chatbot.service.LocationSearchService;
+import com.whatsapp.chatbot.service.MessageHistoryService;
+import com.whatsapp.chatbot.service.NavigationService;
+import com.whatsapp.chatbot.service.PreferenceService;
+import com.whatsapp.chatbot.service.ReadModelService;
+import com.whatsapp.chatbot.service.RetentionService;
+import com.whatsapp.chatbot.service.RoutingService;
+import com.whatsapp.chatbot.service.SearchService;
+import com.whatsapp.chatbot.service.StatisticsService;
+import com.whatsapp.chatbot.service.TrafficAlertService;
+import com.whatsapp.chatbot.service.TrafficService;
+import com.whatsapp.chatbot.service.UserSessionService;
+import com.whatsapp.chatbot.service.WhatsAppService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Tests for the asynchronous ChatbotApiController endpoints
+ */
+@WebMvcTest(controllers = ChatbotApiController.class,
+        properties = {"api.send-timeout-millis=100", "api.read-timeout-millis=100"})
+class ChatbotApiControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private WhatsAppService whatsAppService;
+
+    @MockBean
+    private MessageHistoryService messageHistoryService;
+
+    @MockBean
+    private ArchiveService archiveService;
+
+    @MockBean
+    private RetentionService retentionService;
+
+    @MockBean
+    private SearchService searchService;
+
+    @MockBean
+    private StatisticsService statisticsService;
+
+    @MockBean
+    private ReadModelService readModelService;
+
+    @MockBean
+    private UserSessionService userSessionService;
+
+    @MockBean
+    private LocationSearchService locationSearchService;
+
+    @MockBean
+    private RoutingService routingService;
+
+    @MockBean
+    private TrafficService trafficService;
+
+    @MockBean
+    private TrafficAlertService trafficAlertService;
+
+    @MockBean
+    private NavigationService navigationService;
+
+    @MockBean
+    private FirebaseService firebaseService;
+
+    @MockBean
+    private PreferenceService preferenceService;
+
+    @MockBean
+    private DashboardFeedService dashboardFeedService;
+
+    @Test
+    void sendMessage_AnswersWhenTheApiCallCompletes() throws Exception {
+        // Arrange
+        when(whatsAppService.sendTextMessage("15550001", "hello"))
+                .thenReturn(Mono.just(Map.of("messages", "sent")));
+
+        // Act
+        MvcResult started = mockMvc.perform(post("/api/send-message")
+                        .param("to", "15550001")
+                        .param("message", "hello"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.message").value("Message sent successfully"));
+    }
+
+    @Test
+    void sendMessage_TimesOutWith504() throws Exception {
+        // Arrange
+        when(whatsAppService.sendTextMessage("15550001", "hello")).thenReturn(Mono.never());
+
+        // Act
+        MvcResult started = mockMvc.perform(post("/api/send-message")
+                        .param("to", "15550001")
+                        .param("message", "hello"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    void getUserSession_ReadsOffTheServletThread() throws Exception {
+        // Arrange
+        UserSession session = new UserSession();
+        session.setPhoneNumber("15550001");
+        AtomicReference<String> readThread = new AtomicReference<>();
+        when(readModelService.getSession("15550001")).thenAnswer(invocation -> {
+            readThread.set(Thread.currentThread().getName());
+            return Optional.of(session);
+        });
+
+        // Act
+        MvcResult started = mockMvc.perform(get("/api/session/15550001"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.phoneNumber").value("15550001"));
+        assertTrue(readThread.get().startsWith("api-read"), readThread.get());
+    }
+
+    @Test
+    void getUserSession_TimesOutWith504() throws Exception {
+        // Arrange
+        when(readModelService.getSession("15550001")).thenAnswer(invocation -> {
+            Thread.sleep(1_000);
+            return Optional.empty();
+        });
+
+        // Act
+        MvcResult started = mockMvc.perform(get("/api/session/15550001"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isGatewayTimeout());
+    }
+
+    @Test
+    void runArchive_StartsInTheBackgroundAndRefusesASecondRun() throws Exception {
+        // Arrange
+        when(archiveService.isAvailable()).thenReturn(true);
+        when(archiveService.requestRun(any())).thenReturn(true, false);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/archive/run").param("olderThanDays", "30"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.started").value(true));
+        mockMvc.perform(post("/api/archive/run").param("olderThanDays", "30"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.started").value(false));
+        verify(archiveService, never()).archiveOlderThan(any());
+    }
+
+    @Test
+    void runRetention_Answers409WhileARunIsInProgress() throws Exception {
+        // Arrange
+        when(retentionService.requestRun(true)).thenReturn(true, false);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/retention/run").param("force", "true"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.started").value(true));
+        mockMvc.perform(post("/api/retention/run").param("force", "true"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.started").value(false));
+        verify(retentionService, never()).run(true);
+    }
+}
@@ -4,7 +4,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.whatsapp.chatbot.dto.WebhookRequest;
 import com.whatsapp.chatbot.service.ChatbotService;
 import com.whatsapp.chatbot.service.FirebaseService;
-import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import com.whatsapp.chatbot.service.MessageLogWriter;
+import com.whatsapp.chatbot.service.NavigationService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -14,7 +15,12 @@ import org.springframework.test.web.servlet.MockMvc;
 import reactor.core.publisher.Mono;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -32,11 +38,14 @@ class WhatsAppWebhookControllerTest {
     private ChatbotService chatbotService;
 
     @MockBean
-    private WhatsAppMessageRepository messageRepository;
+    private MessageLogWriter messageLogWriter;
 
     @MockBean
     private FirebaseService firebaseService;
 
+    @MockBean
+    private NavigationService navigationService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -77,6 +86,66 @@ class WhatsAppWebhookControllerTest {
                 .andExpect(content().string("OK"));
     }
 
+    @Test
+    void handleWebhook_LiveLocationGoesToNavigationOnly() throws Exception {
+        // Arrange
+        String payload = "{\"object\":\"whatsapp_business_account\",\"entry\":[{\"id\":\"1\",\"changes\":[{" +
+                "\"field\":\"messages\",\"value\":{\"messages\":[{\"id\":\"m1\",\"from\":\"15550001\"," +
+                "\"timestamp\":\"1700000000\",\"type\":\"location\"," +
+                "\"location\":{\"latitude\":40.758,\"longitude\":-73.9855}}]}}]}]}";
+        when(navigationService.onLocation(anyString(), anyDouble(), anyDouble(), anyLong())).thenReturn(true);
+
+        // Act
+        mockMvc.perform(post("/webhook")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(payload))
+                .andExpect(status().isOk());
+
+        // Assert
+        verify(navigationService).onLocation(eq("15550001"), eq(40.758), eq(-73.9855), eq(1700000000L));
+        verify(messageLogWriter, never()).append(any());
+        verify(chatbotService, never()).processMessage(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void handleWebhook_SharedLocationGoesToChatbot() throws Exception {
+        // Arrange
+        String payload = "{\"object\":\"whatsapp_business_account\",\"entry\":[{\"id\":\"1\",\"changes\":[{" +
+                "\"field\":\"messages\",\"value\":{\"messages\":[{\"id\":\"m2\",\"from\":\"15550001\"," +
+                "\"timestamp\":\"1700000000\",\"type\":\"location\"," +
+                "\"location\":{\"latitude\":40.712,\"longitude\":-74.006}}]}}]}]}";
+        when(navigationService.onLocation(anyString(), anyDouble(), anyDouble(), anyLong())).thenReturn(false);
+        when(chatbotService.processLocation(anyString(), anyDouble(), anyDouble())).thenReturn(Mono.empty());
+
+        // Act
+        mockMvc.perform(post("/webhook")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(payload))
+                .andExpect(status().isOk());
+
+        // Assert: not navigating, so the location is remembered for "near you" answers such as area alerts
+        verify(chatbotService).processLocation(eq("15550001"), eq(40.712), eq(-74.006));
+        verify(chatbotService, never()).processMessage(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void handleWebhook_StatusGoesToTheWriterWithoutFlushing() throws Exception {
+        // Arrange
+        String payload = "{\"object\":\"whatsapp_business_account\",\"entry\":[{\"id\":\"1\",\"changes\":[{" +
+                "\"field\":\"messages\",\"value\":{\"statuses\":[{\"id\":\"wamid.1\",\"status\":\"delivered\"," +
+                "\"timestamp\":\"1700000000\",\"recipient_id\":\"15550001\"}]}}]}]}";
+
+        // Act
+        mockMvc.perform(post("/webhook")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(payload))
+                .andExpect(status().isOk());
+
+        // Assert
+        verify(messageLogWriter).updateStatus("wamid.1", "delivered");
+        verify(messageLogWriter, never()).flush();
+    }
+
     @Test
     void healthCheck_Success() throws Exception {
         mockMvc.perform(get("/webhook/health"))
@@ -0,0 +1,56 @@
+package com.whatsapp.chatbot.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the NDJSON and CSV export row writers
+ */
+class RowWriterTest {
+
+    private static final String[] COLUMNS = {"id", "text", "active"};
+
+    @Test
+    void csv_QuotesOnlyFieldsThatNeedIt() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        try (RowWriter writer = ExportFormat.CSV.open(out, COLUMNS)) {
+            writer.write(new Object[]{1L, "plain", true});
+            writer.write(new Object[]{2L, "say \"hi\", then\nleave", null});
+        }
+
+        // Assert
+        assertEquals("id,text,active\r\n1,plain,true\r\n2,\"say \"\"hi\"\", then\nleave\",\r\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void ndjson_WritesOneTypedObjectPerLine() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        try (RowWriter writer = ExportFormat.NDJSON.open(out, COLUMNS)) {
+            writer.write(new Object[]{1L, "line\nbreak", true});
+            writer.write(new Object[]{2L, null, false});
+        }
+
+        // Assert
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        JsonNode first = new ObjectMapper().readTree(lines[0]);
+        assertEquals(1L, first.get("id").asLong());
+        assertEquals("line\nbreak", first.get("text").asText());
+        assertTrue(first.get("active").asBoolean());
+        assertTrue(new ObjectMapper().readTree(lines[1]).get("text").isNull());
+    }
+}
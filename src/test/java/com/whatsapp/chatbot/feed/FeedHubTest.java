@@ -0,0 +1,141 @@
+package com.whatsapp.chatbot.feed;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FeedHub
+ */
+class FeedHubTest {
+
+    private static final List<FeedEvent> SNAPSHOT = List.of(new FeedEvent("snapshot", null, "{}"));
+
+    @Test
+    void publish_FullBufferDropsOldestAndResendsSnapshot() {
+        // Arrange
+        List<Runnable> deliveries = new ArrayList<>();
+        FeedHub hub = new FeedHub(10, 3, deliveries::add, () -> SNAPSHOT);
+        List<String> received = new ArrayList<>();
+        hub.subscribe(recording(received), null);
+
+        // Act: the client is not read from while five events arrive
+        for (int i = 1; i <= 5; i++) {
+            hub.publish(new FeedEvent("stats", null, "{\"n\":" + i + "}"));
+        }
+        runAll(deliveries);
+
+        // Assert
+        assertEquals(List.of("snapshot", "{\"n\":3}", "{\"n\":4}", "{\"n\":5}"), received);
+        FeedStats stats = hub.stats();
+        assertEquals(5, stats.getPublished());
+        assertEquals(3, stats.getDelivered());
+        assertEquals(2, stats.getDropped());
+        assertEquals(1, stats.getSnapshots());
+    }
+
+    @Test
+    void publish_SlowClientDoesNotHoldBackOthers() throws Exception {
+        // Arrange
+        ExecutorService delivery = Executors.newFixedThreadPool(2);
+        FeedHub hub = new FeedHub(10, 100, delivery, () -> SNAPSHOT);
+        CountDownLatch release = new CountDownLatch(1);
+        hub.subscribe(new FeedSink() {
+            @Override
+            public void send(FeedEvent event) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        }, null);
+        List<String> followed = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(3);
+        hub.subscribe(new FeedSink() {
+            @Override
+            public void send(FeedEvent event) {
+                followed.add(event.getName() + ":" + event.getPhoneNumber());
+                delivered.countDown();
+            }
+
+            @Override
+            public void close() {
+            }
+        }, "15550001");
+
+        try {
+            // Act
+            hub.publish(new FeedEvent("message", "15550002", "{}"));
+            hub.publish(new FeedEvent("message", "15550001", "{}"));
+            hub.publish(new FeedEvent("session", null, "{}"));
+
+            // Assert: delivered while the other client is stuck, and only what the client follows
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of("snapshot:null", "message:15550001", "session:null"), followed);
+        } finally {
+            release.countDown();
+            delivery.shutdownNow();
+        }
+    }
+
+    @Test
+    void subscribe_FailedClientIsRemovedAndFreesItsPlace() {
+        // Arrange
+        List<Runnable> deliveries = new ArrayList<>();
+        FeedHub hub = new FeedHub(1, 10, deliveries::add, () -> SNAPSHOT);
+        hub.subscribe(new FeedSink() {
+            @Override
+            public void send(FeedEvent event) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void close() {
+            }
+        }, null);
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> hub.subscribe(recording(new ArrayList<>()), null));
+        runAll(deliveries);
+        hub.subscribe(recording(new ArrayList<>()), null);
+
+        // Assert
+        FeedStats stats = hub.stats();
+        assertEquals(1, stats.getClients());
+        assertEquals(1, stats.getRejectedClients());
+        assertEquals(1, stats.getDisconnected());
+    }
+
+    private static FeedSink recording(List<String> received) {
+        return new FeedSink() {
+            @Override
+            public void send(FeedEvent event) {
+                received.add(event.getName().equals("snapshot") ? "snapshot" : event.getData());
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static void runAll(List<Runnable> deliveries) {
+        while (!deliveries.isEmpty()) {
+            deliveries.remove(0).run();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.whatsapp.chatbot.firestore;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for batching, retries and back-pressure in the Firestore writer
+ */
+class FirestoreBatchWriterTest {
+
+    private final List<List<FirestoreWrite>> committed = new CopyOnWriteArrayList<>();
+    private FirestoreBatchWriter writer;
+
+    @AfterEach
+    void stopWriter() {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    @Test
+    void run_FlushesFullBatchesAtOnceAndTheRemainderOnTheInterval() throws InterruptedException {
+        // Arrange
+        writer = start(this::commitNow, 10_000, 4, 1, Duration.ofMillis(200));
+
+        // Act
+        for (int i = 0; i < 1_200; i++) {
+            writer.offer(FirestoreWrite.add("analytics", Map.of("n", i)));
+        }
+        waitFor(() -> writer.stats().getWritten() == 1_200);
+
+        // Assert
+        assertEquals(List.of(500, 500, 200), committed.stream().map(List::size).toList());
+        FirestoreWriterStats stats = writer.stats();
+        assertEquals(2, stats.getSizeFlushes());
+        assertEquals(1, stats.getIntervalFlushes());
+        assertEquals(0, stats.getBacklog());
+    }
+
+    @Test
+    void run_RetriesFailedBatchesWithTheSameDocumentIds() throws InterruptedException {
+        // Arrange: the first two commits fail
+        AtomicInteger attempts = new AtomicInteger();
+        List<String> ids = new CopyOnWriteArrayList<>();
+        writer = start(writes -> {
+            writes.forEach(write -> ids.add(write.getDocumentId()));
+            return attempts.incrementAndGet() <= 2
+                    ? CompletableFuture.failedFuture(new IllegalStateException("UNAVAILABLE"))
+                    : commitNow(writes);
+        }, 100, 1, 5, Duration.ofMillis(10));
+
+        // Act
+        writer.offer(FirestoreWrite.add("user_interactions", Map.of("phoneNumber", "15550001")));
+        waitFor(() -> writer.stats().getWritten() == 1);
+
+        // Assert
+        FirestoreWriterStats stats = writer.stats();
+        assertEquals(1, stats.getWritten());
+        assertEquals(2, stats.getRetries());
+        assertEquals(0, stats.getFailed());
+        assertEquals(3, ids.size());
+        assertEquals(1, ids.stream().distinct().count());
+    }
+
+    @Test
+    void offer_DropsOnceInFlightBatchesAndQueueAreFull() throws InterruptedException {
+        // Arrange: commits never complete, one batch of one may be in flight
+        List<CompletableFuture<Void>> pending = new CopyOnWriteArrayList<>();
+        writer = new FirestoreBatchWriter(writes -> {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            pending.add(future);
+            return future;
+        }, 3, 1, Duration.ofMillis(1), 1, 1, Duration.ofMillis(1), Duration.ofMillis(1));
+        Thread thread = new Thread(writer);
+        thread.setDaemon(true);
+        thread.start();
+
+        // Act: one write in flight, one taken by the blocked writer thread, three queued, the rest dropped
+        List<Boolean> accepted = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            accepted.add(writer.offer(FirestoreWrite.set("user_preferences", "1555000" + i, Map.of())));
+            Thread.sleep(5);
+        }
+
+        // Assert
+        assertEquals(1, pending.size());
+        assertTrue(accepted.subList(0, 5).stream().allMatch(a -> a));
+        assertFalse(accepted.get(9));
+        FirestoreWriterStats stats = writer.stats();
+        assertEquals(5, stats.getAccepted());
+        assertEquals(5, stats.getDropped());
+        assertEquals(1, stats.getInFlightBatches());
+        pending.get(0).complete(null);
+        waitFor(() -> pending.size() == 2);
+        assertEquals(1, writer.stats().getWritten());
+    }
+
+    @Test
+    void run_HoldsBackWritesToADocumentUntilItsInFlightBatchCommits() throws InterruptedException {
+        // Arrange: commits complete only when released
+        List<CompletableFuture<Void>> pending = new CopyOnWriteArrayList<>();
+        writer = start(writes -> {
+            committed.add(writes);
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            pending.add(future);
+            return future;
+        }, 100, 4, 1, Duration.ofMillis(1));
+
+        // Act
+        writer.offer(FirestoreWrite.set("user_preferences", "15550001", Map.of("language", "en")));
+        waitFor(() -> pending.size() == 1);
+        writer.offer(FirestoreWrite.set("user_preferences", "15550001", Map.of("language", "es")));
+        writer.offer(FirestoreWrite.set("user_preferences", "15550002", Map.of("language", "fr")));
+        waitFor(() -> pending.size() == 2);
+        Thread.sleep(50);
+        int whileFirstInFlight = pending.size();
+        pending.get(0).complete(null);
+        waitFor(() -> pending.size() == 3);
+
+        // Assert: the other document went ahead; the second write to the first waited for its first
+        assertEquals(2, whileFirstInFlight);
+        assertEquals("15550002", committed.get(1).get(0).getDocumentId());
+        assertEquals(Map.of("language", "es"), committed.get(2).get(0).getData());
+    }
+
+    private FirestoreBatchWriter start(BatchCommitter committer, int queueCapacity, int maxInFlight,
+                                       int maxAttempts, Duration flushInterval) {
+        FirestoreBatchWriter started = new FirestoreBatchWriter(committer, queueCapacity, 500, flushInterval,
+                maxInFlight, maxAttempts, Duration.ofMillis(5), Duration.ofMillis(20));
+        Thread thread = new Thread(started);
+        thread.setDaemon(true);
+        thread.start();
+        return started;
+    }
+
+    private CompletableFuture<?> commitNow(List<FirestoreWrite> writes) {
+        committed.add(writes);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.whatsapp.chatbot.geo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the place-name autocomplete trie
+ */
+class PlaceAutocompleteTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PoiIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = PoiIndex.builder(0.01)
+                .add("Starbucks Times Square", "cafe", 40.7589, -73.9851, 0.5)
+                .add("Starbucks Union Square", "cafe", 40.7363, -73.9902, 0.4)
+                .add("Star Diner", "restaurant", 40.7500, -73.9900, 0.9)
+                .add("Times Square", "landmark", 40.7580, -73.9855, 1.0)
+                .add("Café Lalo", "cafe", 40.7838, -73.9792, 0.4)
+                .add("Stadium Parking", "parking", 40.8296, -73.9262, 0.1)
+                .build();
+    }
+
+    @Test
+    void complete_RanksByPopularityWithinPrefix() {
+        // Arrange
+        PlaceAutocomplete autocomplete = PlaceAutocomplete.build(index, 1L, 10);
+
+        // Act
+        List<String> star = names(autocomplete.complete("star", 10));
+        List<String> starb = names(autocomplete.complete("Starb", 10));
+        List<String> sta = names(autocomplete.complete("sta", 2));
+
+        // Assert
+        assertEquals(List.of("Star Diner", "Starbucks Times Square", "Starbucks Union Square"), star);
+        assertEquals(List.of("Starbucks Times Square", "Starbucks Union Square"), starb);
+        assertEquals(List.of("Star Diner", "Starbucks Times Square"), sta);
+    }
+
+    @Test
+    void complete_MatchesLaterWordsAfterFullNameMatches() {
+        // Arrange
+        PlaceAutocomplete autocomplete = PlaceAutocomplete.build(index, 1L, 10);
+
+        // Act
+        List<String> times = names(autocomplete.complete("times", 10));
+        List<String> squ = names(autocomplete.complete("squ", 10));
+
+        // Assert
+        assertEquals(List.of("Times Square", "Starbucks Times Square"), times);
+        assertEquals(3, squ.size());
+        assertEquals("Times Square", squ.get(0));
+    }
+
+    @Test
+    void complete_NormalizesInputAndRejectsUnknownPrefixes() {
+        // Arrange
+        PlaceAutocomplete autocomplete = PlaceAutocomplete.build(index, 1L, 10);
+
+        // Act & Assert
+        assertEquals(List.of("Café Lalo"), names(autocomplete.complete("CAFE la", 10)));
+        assertEquals(0, autocomplete.complete("starz", 10).length);
+        assertEquals(0, autocomplete.complete("  ", 10).length);
+    }
+
+    @Test
+    void map_ReadsBackTheSameCompletions() throws Exception {
+        // Arrange
+        PlaceAutocomplete built = PlaceAutocomplete.build(index, 42L, 3);
+        Path file = tempDir.resolve("autocomplete.bin");
+
+        // Act
+        built.write(file);
+        PlaceAutocomplete mapped = PlaceAutocomplete.map(file);
+
+        // Assert
+        assertEquals(42L, PlaceAutocomplete.readFingerprint(file));
+        assertEquals(3, mapped.maxCompletions());
+        assertEquals(built.slotCount(), mapped.slotCount());
+        for (String prefix : new String[]{"s", "star", "times sq", "cafe", "park"}) {
+            assertArrayEquals(built.complete(prefix, 3), mapped.complete(prefix, 3), prefix);
+        }
+    }
+
+    private List<String> names(int[] poiIds) {
+        return Arrays.stream(poiIds).mapToObj(index::name).collect(Collectors.toList());
+    }
+}
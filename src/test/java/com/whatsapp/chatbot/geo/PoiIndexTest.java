@@ -0,0 +1,123 @@
+package com.whatsapp.chatbot.geo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PoiIndex and PoiLoader
+ */
+class PoiIndexTest {
+
+    private static final double ORIGIN_LAT = 40.7580;
+    private static final double ORIGIN_LON = -73.9855;
+
+    private PoiIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = PoiIndex.builder(0.01)
+                .add("Shell Gas Station Midtown", "gas_station", 40.7641, -73.9930, 0.3)
+                .add("Exxon Gas Station Harlem", "gas_station", 40.8097, -73.9449, 0.2)
+                .add("Starbucks Times Square", "cafe", 40.7589, -73.9851, 0.5)
+                .add("Starbucks Union Square", "cafe", 40.7363, -73.9902, 0.4)
+                .add("Café Lalo", "cafe", 40.7838, -73.9792, 0.4)
+                .add("JFK International Airport", "airport", 40.6413, -73.7781, 1.0)
+                .build();
+    }
+
+    @Test
+    void nearest_FiltersByTermsAndOrdersByDistance() {
+        // Act
+        List<PoiHit> hits = index.nearest("gas station", ORIGIN_LAT, ORIGIN_LON, 5, 50_000);
+
+        // Assert
+        assertEquals(2, hits.size());
+        assertEquals("Shell Gas Station Midtown", hits.get(0).getName());
+        assertEquals("Exxon Gas Station Harlem", hits.get(1).getName());
+        assertTrue(hits.get(0).getDistanceMeters() < hits.get(1).getDistanceMeters());
+    }
+
+    @Test
+    void nearest_RespectsMaxRadius() {
+        // Act
+        List<PoiHit> hits = index.nearest("airport", ORIGIN_LAT, ORIGIN_LON, 5, 5_000);
+
+        // Assert
+        assertTrue(hits.isEmpty());
+    }
+
+    @Test
+    void nearest_WithoutTermsReturnsClosestPois() {
+        // Act
+        List<PoiHit> hits = index.nearest("", ORIGIN_LAT, ORIGIN_LON, 2, 50_000);
+
+        // Assert
+        assertEquals(2, hits.size());
+        assertEquals("Starbucks Times Square", hits.get(0).getName());
+    }
+
+    @Test
+    void search_RanksCloserMatchFirst() {
+        // Act
+        List<PoiHit> hits = index.search("starbucks", ORIGIN_LAT, ORIGIN_LON, 3);
+
+        // Assert
+        assertEquals(2, hits.size());
+        assertEquals("Starbucks Times Square", hits.get(0).getName());
+        assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+    }
+
+    @Test
+    void search_FoldsAccentsAndFallsBackToPartialMatches() {
+        // Act
+        List<PoiHit> accentFolded = index.search("cafe lalo", ORIGIN_LAT, ORIGIN_LON, 3);
+        List<PoiHit> partial = index.search("starbucks brooklyn", ORIGIN_LAT, ORIGIN_LON, 3);
+
+        // Assert
+        assertEquals("Café Lalo", accentFolded.get(0).getName());
+        assertEquals(2, partial.size());
+        assertTrue(partial.get(0).getName().startsWith("Starbucks"));
+    }
+
+    @Test
+    void loadCsv_SkipsInvalidRows() throws Exception {
+        // Arrange
+        String csv = "name,category,lat,lon,popularity\n" +
+                     "\"Joe's Pizza, Broadway\",restaurant,40.7548,-73.9871,0.5\n" +
+                     "Broken Row,restaurant,not-a-number,-73.98,0.1\n";
+        PoiIndex.Builder builder = PoiIndex.builder(0.01);
+
+        // Act
+        int skipped = PoiLoader.loadCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), builder);
+        PoiIndex loaded = builder.build();
+
+        // Assert
+        assertEquals(1, skipped);
+        assertEquals(1, loaded.size());
+        assertEquals("Joe's Pizza, Broadway", loaded.name(0));
+    }
+
+    @Test
+    void loadGeoJson_ReadsPointFeatures() throws Exception {
+        // Arrange
+        String geoJson = "{\"type\":\"FeatureCollection\",\"features\":[" +
+                "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[-73.9772,40.7527]}," +
+                "\"properties\":{\"name\":\"Grand Central Terminal\",\"amenity\":\"train_station\"}}]}";
+        PoiIndex.Builder builder = PoiIndex.builder(0.01);
+
+        // Act
+        PoiLoader.loadGeoJson(new ByteArrayInputStream(geoJson.getBytes(StandardCharsets.UTF_8)), builder);
+        PoiIndex loaded = builder.build();
+
+        // Assert
+        assertEquals(1, loaded.size());
+        assertEquals("train_station", loaded.category(0));
+        assertEquals(40.7527, loaded.latitude(0), 1e-6);
+    }
+}
@@ -0,0 +1,138 @@
+package com.whatsapp.chatbot.navigation;
+
+import com.whatsapp.chatbot.routing.RoadGraph;
+import com.whatsapp.chatbot.routing.RoadGraphBuilder;
+import com.whatsapp.chatbot.routing.RoutePath;
+import com.whatsapp.chatbot.routing.Router;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for live navigation guidance
+ */
+class NavigationEngineTest {
+
+    private static final int SIDE = 10;
+
+    private RoadGraph graph;
+    private Router router;
+
+    @BeforeEach
+    void setUp() {
+        RoadGraphBuilder builder = new RoadGraphBuilder(0.01);
+        for (int r = 0; r < SIDE; r++) {
+            for (int c = 0; c < SIDE; c++) {
+                builder.addNode(r * SIDE + c, latitude(r), longitude(c));
+            }
+        }
+        for (int r = 0; r < SIDE; r++) {
+            for (int c = 0; c < SIDE; c++) {
+                if (c + 1 < SIDE) {
+                    builder.addEdge(r * SIDE + c, r * SIDE + c + 1, 0, r == 0 ? 60 : 40, false, "Row " + r);
+                }
+                if (r + 1 < SIDE) {
+                    builder.addEdge(r * SIDE + c, (r + 1) * SIDE + c, 0, c == 5 ? 60 : 40, false, "Col " + c);
+                }
+            }
+        }
+        graph = builder.build(1L);
+        router = new Router(graph);
+    }
+
+    @Test
+    void onLocation_SendsEachInstructionOnceAndEndsOnArrival() {
+        // Arrange
+        NavigationEngine engine = new NavigationEngine(router, 10, 60_000, 60, 2, 10_000);
+        RoutePath route = route(0, 0, 6, 5);
+        NavigationUpdate first = engine.start("1555", route, "Park", 0).orElseThrow();
+
+        // Act: drive the route, four fixes per edge
+        List<Maneuver> announced = new ArrayList<>();
+        announced.add(first.getNext());
+        NavigationUpdate last = null;
+        long time = 0;
+        int[] nodes = route.getNodes();
+        for (int i = 0; i + 1 < nodes.length && (last == null || last.getKind() != NavigationUpdate.Kind.ARRIVED); i++) {
+            for (int step = 1; step <= 4; step++) {
+                double t = step / 4.0;
+                double lat = graph.latitude(nodes[i]) + t * (graph.latitude(nodes[i + 1]) - graph.latitude(nodes[i]));
+                double lon = graph.longitude(nodes[i]) + t * (graph.longitude(nodes[i + 1]) - graph.longitude(nodes[i]));
+                last = engine.onLocation("1555", lat, lon, time += 1_000, time).orElseThrow();
+                if (last.getKind() == NavigationUpdate.Kind.INSTRUCTION) {
+                    announced.add(last.getNext());
+                }
+                assertNotEquals(NavigationUpdate.Kind.REROUTED, last.getKind());
+            }
+        }
+
+        // Assert
+        assertEquals(NavigationUpdate.Kind.ARRIVED, last.getKind());
+        assertFalse(engine.isNavigating("1555"));
+        assertEquals(Maneuver.Turn.ARRIVE, announced.get(announced.size() - 1).getTurn());
+        for (int i = 1; i < announced.size(); i++) {
+            assertTrue(announced.get(i).getEdgeIndex() > announced.get(i - 1).getEdgeIndex(), "repeated " + i);
+        }
+        assertEquals(announced.size(), engine.stats().getInstructionsSent());
+    }
+
+    @Test
+    void onLocation_ReroutesAfterConsecutiveOffRouteFixes() {
+        // Arrange: a straight route along Row 0, then the driver turns onto Col 3
+        NavigationEngine engine = new NavigationEngine(router, 10, 60_000, 60, 2, 10_000);
+        engine.start("1555", route(0, 0, 0, 9), "Pier", 0);
+        engine.onLocation("1555", latitude(0), longitude(2), 1_000, 1_000);
+
+        // Act
+        NavigationUpdate firstOff = engine.onLocation("1555", latitude(1), longitude(3), 2_000, 2_000).orElseThrow();
+        NavigationUpdate secondOff = engine.onLocation("1555", latitude(2), longitude(3), 3_000, 3_000).orElseThrow();
+        NavigationUpdate thirdOff = engine.onLocation("1555", latitude(3), longitude(3), 4_000, 4_000).orElseThrow();
+
+        // Assert
+        assertEquals(NavigationUpdate.Kind.NONE, firstOff.getKind());
+        assertEquals(NavigationUpdate.Kind.REROUTED, secondOff.getKind());
+        assertEquals(NavigationUpdate.Kind.NONE, thirdOff.getKind(), "matches the new route");
+        assertEquals(1, engine.stats().getReroutes());
+    }
+
+    @Test
+    void start_BoundsSessionsAndExpiresIdleOnes() {
+        // Arrange
+        NavigationEngine engine = new NavigationEngine(router, 2, 60_000, 60, 2, 10_000);
+        RoutePath route = route(0, 0, 3, 3);
+
+        // Act & Assert
+        assertTrue(engine.start("a", route, "X", 0).isPresent());
+        assertTrue(engine.start("b", route, "X", 30_000).isPresent());
+        assertTrue(engine.start("c", route, "X", 40_000).isEmpty());
+        assertTrue(engine.start("a", route, "X", 40_000).isPresent(), "restarting an existing session is allowed");
+        assertTrue(engine.start("c", route, "X", 100_000).isPresent(), "b has been idle past the timeout");
+        assertFalse(engine.isNavigating("b"));
+        assertTrue(engine.onLocation("b", latitude(0), longitude(0), 1, 100_000).isEmpty());
+
+        engine.onLocation("c", latitude(0), longitude(1), 5_000, 100_000);
+        NavigationUpdate stale = engine.onLocation("c", latitude(0), longitude(0), 4_000, 100_000).orElseThrow();
+        assertEquals(NavigationUpdate.Kind.NONE, stale.getKind());
+        assertEquals(1, engine.stats().getStaleUpdates());
+        assertEquals(1, engine.stats().getRejected());
+        assertEquals(1, engine.stats().getExpired());
+    }
+
+    private RoutePath route(int fromRow, int fromCol, int toRow, int toCol) {
+        int source = graph.nearestNode(latitude(fromRow), longitude(fromCol), 50);
+        int target = graph.nearestNode(latitude(toRow), longitude(toCol), 50);
+        return router.route(source, target);
+    }
+
+    private static double latitude(int row) {
+        return 40.0 + row * 0.002;
+    }
+
+    private static double longitude(int col) {
+        return -74.0 + col * 0.0025;
+    }
+}
@@ -0,0 +1,39 @@
+package com.whatsapp.chatbot.retention;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for RetentionWindow parsing and matching
+ */
+class RetentionWindowTest {
+
+    @Test
+    void contains_HandlesWindowsWrappingMidnight() {
+        // Arrange
+        RetentionWindow night = RetentionWindow.parse("02:00-05:00");
+        RetentionWindow wrapping = RetentionWindow.parse("23:30-01:00");
+        RetentionWindow always = RetentionWindow.parse("");
+
+        // Act & Assert
+        assertTrue(night.contains(LocalTime.of(2, 0)));
+        assertTrue(night.contains(LocalTime.of(4, 59)));
+        assertFalse(night.contains(LocalTime.of(5, 0)));
+        assertTrue(wrapping.contains(LocalTime.of(23, 45)));
+        assertTrue(wrapping.contains(LocalTime.of(0, 30)));
+        assertFalse(wrapping.contains(LocalTime.of(12, 0)));
+        assertTrue(always.contains(LocalTime.NOON));
+    }
+
+    @Test
+    void parse_RejectsMalformedWindows() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> RetentionWindow.parse("02:00"));
+        assertThrows(IllegalArgumentException.class, () -> RetentionWindow.parse("2am-5am"));
+    }
+}
@@ -0,0 +1,95 @@
+package com.whatsapp.chatbot.rollup;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for RollupEngine tiers, funnels and snapshots
+ */
+class RollupEngineTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 3_600_000L;
+    private static final long START = 1_700_000_000_000L / HOUR * HOUR;
+
+    @Test
+    void record_CoarserTiersKeepCountsAfterTheMinuteRingWraps() {
+        // Arrange: 60 minutes of per-minute counts, but three hours of traffic
+        RollupEngine engine = new RollupEngine(60, 24, 7, 16);
+
+        // Act
+        for (int minute = 0; minute < 180; minute++) {
+            engine.record("messages.inbound", START + minute * MINUTE, 2);
+        }
+
+        // Assert
+        List<RollupPoint> minutes = engine.query(List.of("messages.inbound"), Resolution.MINUTE,
+                START, START + 180 * MINUTE);
+        assertEquals(60, minutes.size());
+        assertEquals(2L, minutes.get(0).getValues().get("messages.inbound"));
+        assertEquals(0L, engine.total("messages.inbound", Resolution.MINUTE, START, START + HOUR));
+
+        List<RollupPoint> hours = engine.query(List.of("messages.inbound", "unknown"), Resolution.HOUR,
+                START, START + 3 * HOUR);
+        assertEquals(3, hours.size());
+        assertEquals(120L, hours.get(0).getValues().get("messages.inbound"));
+        assertEquals(0L, hours.get(0).getValues().get("unknown"));
+        assertEquals(360L, engine.total("messages.inbound", Resolution.DAY, START, START + 3 * HOUR));
+    }
+
+    @Test
+    void funnel_ConvertsFromTheStepBefore() {
+        // Arrange: 10 sessions ask for help, 4 of them go straight to route planning, 1 arrives from the menu
+        RollupEngine engine = new RollupEngine(60, 24, 7, 16);
+        for (int i = 0; i < 10; i++) {
+            record(engine, "MAIN_MENU", "NAVIGATION_HELP");
+        }
+        for (int i = 0; i < 4; i++) {
+            record(engine, "NAVIGATION_HELP", "ROUTE_PLANNING");
+        }
+        record(engine, "MAIN_MENU", "ROUTE_PLANNING");
+
+        // Act
+        List<FunnelStep> funnel = engine.funnel(List.of("NAVIGATION_HELP", "ROUTE_PLANNING"), Resolution.HOUR,
+                START, START + HOUR);
+
+        // Assert
+        assertEquals(10, funnel.get(0).getEntered());
+        assertEquals(5, funnel.get(1).getEntered());
+        assertEquals(4, funnel.get(1).getFromPrevious());
+        assertEquals(0.4, funnel.get(1).getConversion(), 1e-9);
+    }
+
+    @Test
+    void snapshot_RoundTripsAndRespectsTheSeriesLimit() throws Exception {
+        // Arrange
+        RollupEngine engine = new RollupEngine(60, 24, 7, 2);
+        engine.record("messages.inbound", START, 3);
+        engine.record("messages.inbound", START + 5 * MINUTE, 1);
+        engine.record("messages.outbound", START + HOUR, 2);
+        engine.record("messages.type.text", START, 1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        engine.writeTo(out);
+        RollupEngine restored = new RollupEngine(60, 24, 7, 2);
+        restored.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        // Assert
+        assertEquals(1, engine.stats().getRejectedEvents());
+        assertEquals(List.of("messages.inbound", "messages.outbound"), restored.seriesNames());
+        assertEquals(4L, restored.total("messages.inbound", Resolution.HOUR, START, START + HOUR));
+        assertEquals(1L, restored.total("messages.inbound", Resolution.MINUTE, START + MINUTE, START + HOUR));
+        assertEquals(2L, restored.total("messages.outbound", Resolution.DAY, START, START + 2 * HOUR));
+    }
+
+    private static void record(RollupEngine engine, String from, String to) {
+        engine.record(RollupEngine.stateSeries(to), START + MINUTE, 1);
+        engine.record(RollupEngine.transitionSeries(from, to), START + MINUTE, 1);
+    }
+}
@@ -0,0 +1,238 @@
+package com.whatsapp.chatbot.routing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RoadGraph building, persistence and Router queries
+ */
+class RouterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void route_MatchesDijkstraOnRandomGrid() {
+        // Arrange
+        RoadGraph graph = randomGrid(30, 30, 7);
+        Router router = new Router(graph);
+        Random random = new Random(11);
+
+        for (int q = 0; q < 200; q++) {
+            int source = random.nextInt(graph.nodeCount());
+            int target = random.nextInt(graph.nodeCount());
+
+            // Act
+            RoutePath path = router.route(source, target);
+
+            // Assert
+            long expected = dijkstra(graph, source, target);
+            if (expected == Long.MAX_VALUE) {
+                assertNull(path);
+                continue;
+            }
+            assertNotNull(path);
+            assertEquals(expected, path.getDurationMillis(), "query " + source + " -> " + target);
+            assertEquals(source, path.getNodes()[0]);
+            assertEquals(target, path.getNodes()[path.getNodes().length - 1]);
+            long summed = Arrays.stream(path.getEdges()).mapToLong(graph::edgeWeightMillis).sum();
+            assertEquals(expected, summed);
+        }
+    }
+
+    @Test
+    void route_RespectsOnewayAndReportsUnreachable() {
+        // Arrange
+        RoadGraph graph = new RoadGraphBuilder(0.01)
+                .addNode(1, 40.00, -74.00)
+                .addNode(2, 40.00, -73.99)
+                .addNode(3, 40.01, -73.99)
+                .addEdge(1, 2, 0, 50, true, "One Way St")
+                .build(1L);
+        Router router = new Router(graph);
+        int a = graph.nearestNode(40.00, -74.00, 100);
+        int b = graph.nearestNode(40.00, -73.99, 100);
+        int c = graph.nearestNode(40.01, -73.99, 100);
+
+        // Act & Assert
+        assertNotNull(router.route(a, b));
+        assertNull(router.route(b, a));
+        assertNull(router.route(a, c));
+        assertEquals(java.util.List.of("One Way St"), router.route(a, b).streetNames(graph));
+    }
+
+    @Test
+    void route_GivesUpAfterDeadline() {
+        // Arrange
+        RoadGraph graph = randomGrid(40, 40, 5);
+        Router router = new Router(graph);
+        int target = graph.nodeCount() - 1;
+
+        // Act & Assert
+        assertNull(router.route(0, target, EdgeWeights.freeFlow(graph), System.nanoTime() - 1));
+        assertNotNull(router.route(0, target, EdgeWeights.freeFlow(graph), Router.NO_DEADLINE));
+    }
+
+    @Test
+    void durationsFrom_MatchesPointToPointRoutes() {
+        // Arrange
+        RoadGraph graph = randomGrid(30, 30, 7);
+        Router router = new Router(graph);
+        Random random = new Random(3);
+        int[] targets = random.ints(20, 0, graph.nodeCount()).toArray();
+        int source = targets[0];
+
+        // Act
+        long[] durations = router.durationsFrom(source, targets, EdgeWeights.freeFlow(graph));
+
+        // Assert
+        for (int i = 0; i < targets.length; i++) {
+            RoutePath path = router.route(source, targets[i]);
+            assertEquals(path == null ? Long.MAX_VALUE : path.getDurationMillis(), durations[i], "target " + i);
+        }
+    }
+
+    @Test
+    void alternatives_AreDistinctAndWithinStretch() {
+        // Arrange
+        RoadGraph graph = randomGrid(30, 30, 7);
+        Router router = new Router(graph);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        AlternativeRoutes alternatives = new AlternativeRoutes(router, pool);
+        int source = 0;
+        int target = graph.nodeCount() - 1;
+
+        try {
+            // Act
+            List<RoutePath> routes = alternatives.find(source, target, 3, EdgeWeights.freeFlow(graph),
+                    Duration.ofSeconds(5));
+
+            // Assert
+            assertTrue(routes.size() >= 2, "found " + routes.size());
+            assertEquals(router.route(source, target).getDurationMillis(), routes.get(0).getDurationMillis());
+            for (RoutePath route : routes) {
+                assertEquals(source, route.getNodes()[0]);
+                assertEquals(target, route.getNodes()[route.getNodes().length - 1]);
+                assertEquals(Arrays.stream(route.getEdges()).mapToLong(graph::edgeWeightMillis).sum(),
+                        route.getDurationMillis());
+                assertTrue(route.getDurationMillis() <= routes.get(0).getDurationMillis() * 1.4);
+            }
+            BitSet first = new BitSet();
+            Arrays.stream(routes.get(0).getEdges()).forEach(first::set);
+            assertFalse(Arrays.stream(routes.get(1).getEdges()).allMatch(first::get));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void writeAndMap_RoundTripsGraph() throws Exception {
+        // Arrange
+        RoadGraph graph = randomGrid(12, 9, 3);
+        Path file = tempDir.resolve("graph.bin");
+
+        // Act
+        graph.write(file);
+        RoadGraph mapped = RoadGraph.map(file);
+
+        // Assert
+        assertEquals(graph.getFingerprint(), RoadGraph.readFingerprint(file));
+        assertEquals(graph.nodeCount(), mapped.nodeCount());
+        assertEquals(graph.edgeCount(), mapped.edgeCount());
+        assertEquals(graph.maxSpeedMetersPerSecond(), mapped.maxSpeedMetersPerSecond());
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            assertEquals(graph.edgeTarget(e), mapped.edgeTarget(e));
+            assertEquals(graph.edgeWeightMillis(e), mapped.edgeWeightMillis(e));
+            assertEquals(graph.edgeName(e), mapped.edgeName(e));
+        }
+        for (int v = 0; v < graph.nodeCount(); v++) {
+            assertEquals(graph.externalId(v), mapped.externalId(v));
+        }
+        assertEquals(new Router(graph).route(0, graph.nodeCount() - 1).getDurationMillis(),
+                new Router(mapped).route(0, mapped.nodeCount() - 1).getDurationMillis());
+        assertEquals(graph.nearestNode(40.02, -73.98, 5_000), mapped.nearestNode(40.02, -73.98, 5_000));
+    }
+
+    @Test
+    void loadCsv_SkipsBrokenRows() throws Exception {
+        // Arrange
+        String nodes = "id,lat,lon\n1,40.0,-74.0\n2,40.0,-73.99\nbad,1,1\n";
+        String edges = "from,to,length_m,speed_kmh,oneway,name\n1,2,,50,no,Main Street, North\n1,9,,50,no,Ghost Road\n";
+        RoadGraphBuilder builder = new RoadGraphBuilder(0.01);
+
+        // Act
+        int skipped = RoadGraphLoader.loadCsv(stream(nodes), stream(edges), builder);
+        RoadGraph graph = builder.build(1L);
+
+        // Assert
+        assertEquals(2, skipped);
+        assertEquals(2, graph.nodeCount());
+        assertEquals(2, graph.edgeCount());
+        assertEquals("Main Street, North", graph.edgeName(0));
+    }
+
+    static RoadGraph randomGrid(int rows, int cols, long seed) {
+        Random random = new Random(seed);
+        RoadGraphBuilder builder = new RoadGraphBuilder(0.01);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                builder.addNode(r * 1000L + c, 40.0 + r * 0.004 + random.nextDouble() * 0.001,
+                        -74.0 + c * 0.005 + random.nextDouble() * 0.001);
+            }
+        }
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (c + 1 < cols && random.nextInt(10) > 0) {
+                    builder.addEdge(r * 1000L + c, r * 1000L + c + 1, 0, 20 + random.nextInt(80),
+                            random.nextInt(5) == 0, "Street " + r);
+                }
+                if (r + 1 < rows && random.nextInt(10) > 0) {
+                    builder.addEdge(r * 1000L + c, (r + 1) * 1000L + c, 0, 20 + random.nextInt(80),
+                            random.nextInt(5) == 0, "Avenue " + c);
+                }
+            }
+        }
+        return builder.build(seed);
+    }
+
+    private static long dijkstra(RoadGraph graph, int source, int target) {
+        long[] distance = new long[graph.nodeCount()];
+        Arrays.fill(distance, Long.MAX_VALUE);
+        distance[source] = 0;
+        PriorityQueue<long[]> queue = new PriorityQueue<>((x, y) -> Long.compare(x[0], y[0]));
+        queue.add(new long[]{0, source});
+        while (!queue.isEmpty()) {
+            long[] top = queue.poll();
+            int u = (int) top[1];
+            if (top[0] > distance[u]) {
+                continue;
+            }
+            for (int e = graph.firstEdge(u); e < graph.firstEdge(u + 1); e++) {
+                int v = graph.edgeTarget(e);
+                long candidate = distance[u] + graph.edgeWeightMillis(e);
+                if (candidate < distance[v]) {
+                    distance[v] = candidate;
+                    queue.add(new long[]{candidate, v});
+                }
+            }
+        }
+        return distance[target];
+    }
+
+    private static ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
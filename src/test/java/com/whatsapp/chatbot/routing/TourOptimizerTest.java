@@ -0,0 +1,120 @@
+package com.whatsapp.chatbot.routing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the multi-stop tour optimizer
+ */
+class TourOptimizerTest {
+
+    private ForkJoinPool pool;
+    private TourOptimizer optimizer;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(2);
+        optimizer = new TourOptimizer(pool);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void optimize_FindsOptimalOrderOnSmallAsymmetricInstances() {
+        Random random = new Random(9);
+        for (int instance = 0; instance < 20; instance++) {
+            // Arrange
+            long[][] rows = new long[8][8];
+            for (long[] row : rows) {
+                for (int j = 0; j < row.length; j++) {
+                    row[j] = 60_000 + random.nextInt(600_000);
+                }
+            }
+            TravelTimeMatrix matrix = new TravelTimeMatrix(rows);
+            boolean roundTrip = instance % 2 == 0;
+
+            // Act
+            Tour tour = optimizer.optimize(matrix, roundTrip, Duration.ofSeconds(2));
+
+            // Assert
+            assertEquals(0, tour.getOrder()[0]);
+            int[] sorted = tour.getOrder().clone();
+            Arrays.sort(sorted);
+            assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5, 6, 7}, sorted);
+            assertEquals(cost(matrix, tour.getOrder(), roundTrip), tour.getDurationMillis());
+            assertEquals(bruteForce(matrix, roundTrip), tour.getDurationMillis(), "instance " + instance);
+            assertTrue(tour.getDurationMillis() <= tour.getGivenOrderMillis());
+        }
+    }
+
+    @Test
+    void optimize_OrdersStopsAlongALineAndFlagsUnreachableLegs() {
+        // Arrange: stops on a line, sent out of order
+        int[] positions = {0, 7, 2, 9, 4, 1};
+        long[][] rows = new long[positions.length][positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            for (int j = 0; j < positions.length; j++) {
+                rows[i][j] = Math.abs(positions[i] - positions[j]) * 60_000L;
+            }
+        }
+        long[][] cut = new long[2][2];
+        cut[0][1] = Long.MAX_VALUE;
+        cut[1][0] = Long.MAX_VALUE;
+
+        // Act
+        Tour tour = optimizer.optimize(new TravelTimeMatrix(rows), false, Duration.ofSeconds(1));
+        Tour unreachable = optimizer.optimize(new TravelTimeMatrix(cut), false, Duration.ofSeconds(1));
+
+        // Assert
+        assertArrayEquals(new int[]{0, 5, 2, 4, 1, 3}, tour.getOrder());
+        assertEquals(9 * 60_000L, tour.getDurationMillis());
+        assertTrue(tour.isComplete());
+        assertFalse(unreachable.isComplete());
+    }
+
+    private static long cost(TravelTimeMatrix matrix, int[] order, boolean roundTrip) {
+        long total = 0;
+        for (int i = 0; i + 1 < order.length; i++) {
+            total += matrix.millis(order[i], order[i + 1]);
+        }
+        return roundTrip ? total + matrix.millis(order[order.length - 1], 0) : total;
+    }
+
+    private static long bruteForce(TravelTimeMatrix matrix, boolean roundTrip) {
+        int[] order = new int[matrix.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        return permute(matrix, order, 1, roundTrip);
+    }
+
+    private static long permute(TravelTimeMatrix matrix, int[] order, int position, boolean roundTrip) {
+        if (position == order.length) {
+            return cost(matrix, order, roundTrip);
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = position; i < order.length; i++) {
+            swap(order, position, i);
+            best = Math.min(best, permute(matrix, order, position + 1, roundTrip));
+            swap(order, position, i);
+        }
+        return best;
+    }
+
+    private static void swap(int[] order, int a, int b) {
+        int tmp = order[a];
+        order[a] = order[b];
+        order[b] = tmp;
+    }
+}
@@ -0,0 +1,142 @@
+package com.whatsapp.chatbot.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the inverted index: flushing, merging, deletes and ranking
+ */
+class MessageIndexTest {
+
+    private static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void search_FindsMessagesWithEveryTermNewestFirstAcrossMemoryAndSegments() throws Exception {
+        // Arrange: ids 1..1000 on disk, 1001..1500 in memory; every 7th mentions a refund, every 3rd a street
+        MessageIndex index = MessageIndex.open(directory, 1_000, 10, 1_000_000);
+        for (long id = 1; id <= 1_500; id++) {
+            index.add(id, MessageTokenizer.tokenize(text(id)));
+            if (id == 1_000) {
+                index.flush();
+            }
+        }
+
+        // Act
+        List<SearchHit> first = index.search(List.of("refund", "baker"), SearchOrder.RECENT, Long.MAX_VALUE, 30,
+                UNBOUNDED);
+        List<SearchHit> second = index.search(List.of("refund", "baker"), SearchOrder.RECENT,
+                first.get(first.size() - 1).getId(), 50, UNBOUNDED);
+
+        // Assert: multiples of 21, newest first, the page boundary crossing into the flushed segment
+        assertEquals(1, index.getSegmentCount());
+        assertEquals(30, first.size());
+        assertEquals(1_491, first.get(0).getId());
+        assertEquals(882, first.get(29).getId());
+        assertEquals(861, second.get(0).getId());
+        assertEquals(41, second.size());
+        assertEquals(21, second.get(40).getId());
+        assertTrue(index.search(List.of("refund", "nowhere"), SearchOrder.RECENT, Long.MAX_VALUE, 10,
+                UNBOUNDED).isEmpty());
+    }
+
+    @Test
+    void maybeMerge_MergesATierIntoOneSegmentThatSurvivesReopening() throws Exception {
+        // Arrange: four flushes of 100 messages with a merge factor of 4
+        MessageIndex index = MessageIndex.open(directory, 100, 4, 1_000_000);
+        for (long id = 1; id <= 400; id++) {
+            index.add(id, MessageTokenizer.tokenize(text(id)));
+            if (index.needsFlush()) {
+                index.flush();
+            }
+        }
+        List<SearchHit> before = index.search(List.of("refund"), SearchOrder.RECENT, Long.MAX_VALUE, UNBOUNDED,
+                UNBOUNDED);
+
+        // Act
+        boolean merged = index.maybeMerge();
+        MessageIndex reopened = MessageIndex.open(directory, 100, 4, 1_000_000);
+
+        // Assert
+        assertTrue(merged);
+        assertEquals(1, reopened.getSegmentCount());
+        assertEquals(400, reopened.getDocs());
+        assertEquals(400, reopened.maxDoc());
+        assertEquals(57, before.size());
+        assertEquals(before, reopened.search(List.of("refund"), SearchOrder.RECENT, Long.MAX_VALUE, UNBOUNDED,
+                UNBOUNDED));
+    }
+
+    @Test
+    void delete_HidesMessagesAtOnceAndMergingDropsThemForGood() throws Exception {
+        // Arrange
+        MessageIndex index = MessageIndex.open(directory, 100, 10, 1_000_000);
+        for (long id = 1; id <= 100; id++) {
+            index.add(id, MessageTokenizer.tokenize(text(id)));
+        }
+        index.flush();
+
+        // Act: delete 7..70, which is enough of the segment to rewrite it alone
+        List<Long> deleted = new ArrayList<>();
+        for (long id = 7; id <= 70; id += 7) {
+            deleted.add(id);
+        }
+        index.delete(deleted);
+        List<SearchHit> hidden = index.search(List.of("refund"), SearchOrder.RECENT, Long.MAX_VALUE, UNBOUNDED,
+                UNBOUNDED);
+        index.flush();
+        MessageIndex reopened = MessageIndex.open(directory, 100, 10, 1_000_000);
+        long deletedAfterReopening = reopened.getDeletedDocs();
+        boolean merged = reopened.maybeMerge();
+
+        // Assert
+        assertEquals(List.of(98L, 91L, 84L, 77L), hidden.stream().map(SearchHit::getId).toList());
+        assertEquals(10, deletedAfterReopening);
+        assertTrue(merged);
+        assertEquals(90, reopened.getDocs());
+        assertEquals(0, reopened.getDeletedDocs());
+        assertEquals(4, reopened.search(List.of("refund"), SearchOrder.RECENT, Long.MAX_VALUE, UNBOUNDED,
+                UNBOUNDED).size());
+    }
+
+    @Test
+    void search_RanksByRelevanceWithRepeatedTermsAndShortMessagesFirst() throws Exception {
+        // Arrange
+        MessageIndex index = MessageIndex.open(directory, 100, 10, 1_000_000);
+        index.add(1, MessageTokenizer.tokenize("refund refund refund please"));
+        index.add(2, MessageTokenizer.tokenize("refund"));
+        index.add(3, MessageTokenizer.tokenize("I asked about the refund for my order yesterday and again today"));
+        index.add(4, MessageTokenizer.tokenize("where is the station"));
+        index.flush();
+
+        // Act
+        List<SearchHit> recent = index.search(List.of("refund"), SearchOrder.RECENT, Long.MAX_VALUE, 10, UNBOUNDED);
+        List<SearchHit> relevant = index.search(List.of("refund"), SearchOrder.RELEVANCE, Long.MAX_VALUE, 10,
+                UNBOUNDED);
+
+        // Assert
+        assertEquals(List.of(3L, 2L, 1L), recent.stream().map(SearchHit::getId).toList());
+        assertEquals(List.of(1L, 2L, 3L), relevant.stream().map(SearchHit::getId).toList());
+        assertTrue(relevant.get(0).getScore() > relevant.get(2).getScore());
+    }
+
+    private static String text(long id) {
+        StringBuilder text = new StringBuilder("message ").append(id);
+        if (id % 7 == 0) {
+            text.append(" about my refund");
+        }
+        if (id % 3 == 0) {
+            text.append(" near Baker Street");
+        }
+        return text.toString();
+    }
+}
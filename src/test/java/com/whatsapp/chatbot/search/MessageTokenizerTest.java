@@ -0,0 +1,35 @@
+package com.whatsapp.chatbot.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for message text tokenization (non-ASCII text is escaped, as the build sets no source encoding)
+ */
+class MessageTokenizerTest {
+
+    @Test
+    void tokenize_FoldsCaseAndAccentsAndKeepsWordsWithDigits() {
+        // Act
+        List<String> tokens = MessageTokenizer.tokenize("Caf\u00e9 on Rue Saint-Honor\u00e9, REFUND #A12!");
+
+        // Assert
+        assertEquals(List.of("cafe", "on", "rue", "saint", "honore", "refund", "a12"), tokens);
+    }
+
+    @Test
+    void tokenize_BigramsCjkAndSeparatesEmojiFromOtherScripts() {
+        // Arrange: Tokyo station (Han) + "made" (Hiragana), taxi, thumbs up with a skin tone, "privet" (Cyrillic)
+        String text = "\u6771\u4eac\u99c5\u307e\u3067\ud83d\ude95\ud83d\udc4d\ud83c\udffd \u041f\u0440\u0438\u0432\u0435\u0442";
+
+        // Act
+        List<String> tokens = MessageTokenizer.tokenize(text);
+
+        // Assert
+        assertEquals(List.of("\u6771\u4eac", "\u4eac\u99c5", "\u307e\u3067", "\ud83d\ude95", "\ud83d\udc4d",
+                "\u043f\u0440\u0438\u0432\u0435\u0442"), tokens);
+    }
+}
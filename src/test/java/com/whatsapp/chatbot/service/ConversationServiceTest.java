@@ -0,0 +1,153 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.dto.ConversationThread;
+import com.whatsapp.chatbot.model.Conversation;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.ConversationRepository;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Tests for ConversationService boundaries and conversation summaries
+ */
+@DataJpaTest
+@Import({ConversationService.class, MessageHistoryService.class})
+class ConversationServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Autowired
+    private WhatsAppMessageRepository messageRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private ConversationService conversationService;
+
+    @Autowired
+    private MessageHistoryService historyService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @MockBean
+    private ArchiveService archiveService;
+
+    @Test
+    void assign_StartsNewConversationAfterIdleGapOrEnd() {
+        // Arrange
+        WhatsAppMessage first = message("a1", "15550101", "chatbot", START);
+        WhatsAppMessage reply = message("a2", "chatbot", "15550101", START.plusMinutes(1));
+        WhatsAppMessage afterGap = message("a3", "15550101", "chatbot", START.plusMinutes(40));
+        WhatsAppMessage afterReset = message("a4", "15550101", "chatbot", START.plusMinutes(41));
+
+        // Act
+        conversationService.assign(first);
+        conversationService.assign(reply);
+        conversationService.assign(afterGap);
+        conversationService.endConversation("15550101");
+        conversationService.assign(afterReset);
+
+        // Assert
+        assertNotNull(first.getConversationId());
+        assertEquals(first.getConversationId(), reply.getConversationId());
+        assertNotEquals(reply.getConversationId(), afterGap.getConversationId());
+        assertNotEquals(afterGap.getConversationId(), afterReset.getConversationId());
+    }
+
+    @Test
+    void conversation_LoadsSummaryAndMessagesInOrder() {
+        // Arrange: one conversation interleaved with another user's
+        List<WhatsAppMessage> messages = List.of(
+                message("b1", "15550201", "chatbot", START),
+                message("c1", "15550202", "chatbot", START),
+                message("b2", "chatbot", "15550201", START.plusSeconds(1)),
+                message("b3", "15550201", "chatbot", START.plusSeconds(2)));
+        messages.forEach(conversationService::assign);
+        messageRepository.insertAll(messages);
+        conversationService.messagesWritten(messages);
+        conversationService.stateChanged("15550201", "NAVIGATION_HELP");
+        conversationService.writePending();
+        entityManager.clear();
+
+        // Act
+        ConversationThread thread = historyService.conversation(messages.get(0).getConversationId()).orElseThrow();
+        List<Conversation> conversations = historyService.conversations("15550201", 10);
+
+        // Assert
+        Conversation summary = thread.getConversation();
+        assertEquals(3, summary.getMessageCount());
+        assertEquals(2, summary.getInboundCount());
+        assertEquals(1, summary.getOutboundCount());
+        assertEquals(START, summary.getStartedAt());
+        assertEquals(START.plusSeconds(2), summary.getLastMessageAt());
+        assertEquals("NAVIGATION_HELP", summary.getFinalState());
+        assertEquals(List.of("b1", "b2", "b3"),
+                thread.getMessages().stream().map(WhatsAppMessage::getMessageId).toList());
+        assertEquals(1, conversations.size());
+    }
+
+    @Test
+    void assign_WritesNothingUntilTheWriterRunsPendingWrites() {
+        // Arrange
+        WhatsAppMessage first = message("d1", "15550301", "chatbot", START);
+
+        // Act
+        conversationService.assign(first);
+        conversationService.stateChanged("15550301", "MAIN_MENU");
+        boolean savedBeforeWriter = conversationRepository.existsById(first.getConversationId());
+        conversationService.writePending();
+
+        // Assert
+        assertFalse(savedBeforeWriter);
+        assertEquals("MAIN_MENU",
+                conversationRepository.findById(first.getConversationId()).orElseThrow().getFinalState());
+        assertEquals(0, conversationService.getPendingWrites());
+    }
+
+    @Test
+    void loadRecent_ContinuesConversationsAcrossARestart() {
+        // Arrange: a conversation written before the restart, still inside the idle gap
+        LocalDateTime now = LocalDateTime.now();
+        WhatsAppMessage before = message("e1", "15550401", "chatbot", now.minusMinutes(5));
+        conversationRepository.insert(new Conversation("conv-before-restart", "15550401", now.minusMinutes(5),
+                now.minusMinutes(5), null, 1, 1, 0, null));
+        before.setConversationId("conv-before-restart");
+        messageRepository.insertAll(List.of(before));
+
+        // Act
+        conversationService.loadRecent();
+        WhatsAppMessage after = message("e2", "15550401", "chatbot", now);
+        conversationService.assign(after);
+
+        // Assert
+        assertEquals("conv-before-restart", after.getConversationId());
+    }
+
+    private static WhatsAppMessage message(String id, String from, String to, LocalDateTime timestamp) {
+        WhatsAppMessage message = new WhatsAppMessage();
+        message.setMessageId(id);
+        message.setFromNumber(from);
+        message.setToNumber(to);
+        message.setMessageText("text " + id);
+        message.setMessageType("text");
+        message.setStatus("RECEIVED");
+        message.setDirection("chatbot".equals(from) ? "OUTBOUND" : "INBOUND");
+        message.setTimestamp(timestamp);
+        return message;
+    }
+}
@@ -0,0 +1,84 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.export.ExportFormat;
+import com.whatsapp.chatbot.export.ExportStats;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for ExportService
+ */
+@DataJpaTest
+@Import(ExportService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ExportServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private WhatsAppMessageRepository messageRepository;
+
+    @MockBean
+    private ArchiveService archiveService;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void exportMessages_IncludesArchivedMessagesInRange() throws Exception {
+        // Arrange
+        messageRepository.save(message("wamid.stored", "INBOUND", FROM.plusDays(20)));
+        List<WhatsAppMessage> archived = List.of(message("wamid.archived-in", "INBOUND", FROM.plusDays(1)),
+                message("wamid.archived-out", "OUTBOUND", FROM.plusDays(2)));
+        when(archiveService.replayBetween(eq(FROM), eq(TO), any())).thenAnswer(invocation -> {
+            invocation.getArgument(2, Consumer.class).accept(archived);
+            return (long) archived.size();
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        ExportStats stats = exportService.exportMessages(out, ExportFormat.NDJSON, false, FROM, TO, "inbound");
+
+        // Assert
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, stats.getRows());
+        assertEquals(1, stats.getArchivedRows());
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("wamid.archived-in"));
+        assertTrue(lines[1].contains("wamid.stored"));
+    }
+
+    private static WhatsAppMessage message(String messageId, String direction, LocalDateTime timestamp) {
+        WhatsAppMessage message = new WhatsAppMessage();
+        message.setMessageId(messageId);
+        message.setFromNumber("INBOUND".equals(direction) ? "15550101" : "chatbot");
+        message.setToNumber("INBOUND".equals(direction) ? "chatbot" : "15550101");
+        message.setMessageText("hello");
+        message.setMessageType("text");
+        message.setStatus("RECEIVED");
+        message.setDirection(direction);
+        message.setTimestamp(timestamp);
+        return message;
+    }
+}
@@ -0,0 +1,102 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.dto.MessageHistoryPage;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for MessageHistoryService keyset pagination
+ */
+@DataJpaTest
+@Import(MessageHistoryService.class)
+class MessageHistoryServiceTest {
+
+    @Autowired
+    private WhatsAppMessageRepository messageRepository;
+
+    @Autowired
+    private MessageHistoryService historyService;
+
+    @MockBean
+    private ArchiveService archiveService;
+
+    @Test
+    void history_PagesThroughBothDirectionsWithoutGapsOrDuplicates() {
+        // Arrange: alternating inbound/outbound, with timestamp ties, plus another user's messages
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 12, 0);
+        List<WhatsAppMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            LocalDateTime at = start.plusSeconds(i / 2);
+            messages.add(i % 2 == 0 ? message("in" + i, "15550001", "chatbot", at)
+                                    : message("out" + i, "chatbot", "15550001", at));
+            messages.add(message("other" + i, "15550002", "chatbot", at));
+        }
+        messageRepository.insertAll(messages);
+
+        // Act
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            MessageHistoryPage page = historyService.history("15550001", cursor, 10);
+            page.getMessages().forEach(m -> seen.add(m.getMessageId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        // Assert: newest first, every message exactly once
+        assertEquals(3, pages);
+        assertEquals(25, seen.size());
+        assertEquals("in24", seen.get(0));
+        assertEquals("in0", seen.get(24));
+        assertEquals(25, seen.stream().distinct().count());
+    }
+
+    @Test
+    void history_MessageToSelfAppearsOnce() {
+        // Arrange
+        messageRepository.insertAll(List.of(
+                message("self", "15550001", "15550001", LocalDateTime.of(2024, 1, 1, 12, 0))));
+
+        // Act
+        MessageHistoryPage page = historyService.history("15550001", null, 10);
+
+        // Assert
+        assertEquals(1, page.getMessages().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void history_RejectsMalformedCursor() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> historyService.history("15550001", "not-a-cursor", 10));
+        assertNotNull(historyService.history("15550001", null, 10).getMessages());
+    }
+
+    private static WhatsAppMessage message(String id, String from, String to, LocalDateTime timestamp) {
+        WhatsAppMessage message = new WhatsAppMessage();
+        message.setMessageId(id);
+        message.setFromNumber(from);
+        message.setToNumber(to);
+        message.setMessageText("text " + id);
+        message.setMessageType("text");
+        message.setStatus("RECEIVED");
+        message.setDirection("chatbot".equals(from) ? "OUTBOUND" : "INBOUND");
+        message.setTimestamp(timestamp);
+        return message;
+    }
+}
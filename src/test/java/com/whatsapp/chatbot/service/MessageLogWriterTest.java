@@ -0,0 +1,89 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for MessageLogWriter status callbacks
+ */
+@DataJpaTest
+@Import({MessageLogWriter.class, StatisticsService.class, RollupService.class, ConversationService.class,
+        ReadModelService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "messages.log.flush-interval-millis=100")
+class MessageLogWriterTest {
+
+    @Autowired
+    private MessageLogWriter writer;
+
+    @Autowired
+    private WhatsAppMessageRepository messageRepository;
+
+    @MockBean
+    private SearchService searchService;
+
+    @Test
+    void updateStatus_QueuedMessageGetsItsStatusOnceWritten() throws InterruptedException {
+        // Arrange
+        writer.append(message("wamid.queued"));
+
+        // Act: the callback arrives before the writer inserted the message
+        writer.updateStatus("wamid.queued", "delivered");
+
+        // Assert
+        assertEquals("delivered", awaitStatus("wamid.queued", "delivered"));
+        assertEquals(0, writer.getPendingStatuses());
+    }
+
+    @Test
+    void updateStatus_StoredMessageIsUpdatedDirectly() {
+        // Arrange
+        WhatsAppMessage stored = message("wamid.stored");
+        messageRepository.save(stored);
+
+        // Act
+        writer.updateStatus("wamid.stored", "read");
+
+        // Assert
+        assertEquals("read", messageRepository.findByMessageId("wamid.stored").orElseThrow().getStatus());
+        assertEquals(0, writer.getPendingStatuses());
+    }
+
+    private String awaitStatus(String messageId, String status) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        String current = null;
+        while (System.currentTimeMillis() < deadline) {
+            current = messageRepository.findByMessageId(messageId).map(WhatsAppMessage::getStatus).orElse(null);
+            if (status.equals(current)) {
+                break;
+            }
+            Thread.sleep(20);
+        }
+        return current;
+    }
+
+    private static WhatsAppMessage message(String messageId) {
+        WhatsAppMessage message = new WhatsAppMessage();
+        message.setMessageId(messageId);
+        message.setFromNumber("chatbot");
+        message.setToNumber("15550101");
+        message.setMessageText("hello");
+        message.setMessageType("text");
+        message.setStatus("SENT");
+        message.setDirection("OUTBOUND");
+        message.setTimestamp(LocalDateTime.now());
+        return message;
+    }
+}
@@ -0,0 +1,101 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.dto.UserPreferences;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PreferenceService
+ */
+@ExtendWith(MockitoExtension.class)
+class PreferenceServiceTest {
+
+    private static final String PHONE = "15550001";
+
+    @Mock
+    private FirebaseService firebaseService;
+
+    @Mock
+    private UserSessionService userSessionService;
+
+    @InjectMocks
+    private PreferenceService preferenceService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(preferenceService, "cacheMaximumSize", 100);
+        ReflectionTestUtils.setField(preferenceService, "cacheTtlSeconds", 600L);
+        ReflectionTestUtils.setField(preferenceService, "refreshAfterSeconds", 300L);
+        ReflectionTestUtils.setField(preferenceService, "loadTimeoutMillis", 100L);
+        ReflectionTestUtils.setField(preferenceService, "refreshThreads", 1);
+        preferenceService.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        preferenceService.shutdown();
+    }
+
+    @Test
+    void save_WritesThroughAndServesReadsFromCache() {
+        // Act
+        preferenceService.save(PHONE, Map.of("units", "km"));
+        Map<String, Object> read = preferenceService.getPreferences(PHONE);
+
+        // Assert
+        assertEquals(Map.of("units", "km"), read);
+        verify(userSessionService).updateUserPreferences(eq(PHONE), contains("\"units\":\"km\""));
+        verify(firebaseService).saveUserPreferences(eq(PHONE), any(UserPreferences.class));
+        verify(firebaseService, never()).readUserPreferences(anyString(), any(Duration.class));
+        assertEquals(1, preferenceService.getCacheStats().getHits());
+    }
+
+    @Test
+    void get_TakesNewerOfFirestoreAndStoredCopy() {
+        // Arrange
+        when(userSessionService.getUserPreferences(PHONE))
+                .thenReturn("{\"updatedAt\":2000,\"values\":{\"units\":\"mi\"}}");
+        when(firebaseService.readUserPreferences(eq(PHONE), any(Duration.class)))
+                .thenReturn(Optional.of(new UserPreferences(Map.of("units", "km"), 1000)));
+
+        // Act
+        Map<String, Object> read = preferenceService.getPreferences(PHONE);
+
+        // Assert: Firestore has not caught up with the last save yet
+        assertEquals(Map.of("units", "mi"), read);
+    }
+
+    @Test
+    void get_FallsBackToStoredCopyWhenFirestoreFails() {
+        // Arrange
+        when(userSessionService.getUserPreferences(PHONE))
+                .thenReturn("{\"updatedAt\":1000,\"values\":{\"avoidTolls\":true}}");
+        when(firebaseService.readUserPreferences(eq(PHONE), any(Duration.class)))
+                .thenThrow(new IllegalStateException("Timed out reading preferences"));
+
+        // Act
+        Map<String, Object> read = preferenceService.getPreferences(PHONE);
+        preferenceService.getPreferences(PHONE);
+
+        // Assert
+        assertEquals(Map.of("avoidTolls", true), read);
+        assertEquals(1, preferenceService.getFirestoreReadFailures());
+        assertEquals(1, preferenceService.getCacheStats().getLoads());
+    }
+}
@@ -0,0 +1,191 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.model.UserSession;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.UserSessionRepository;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for ReadModelService projections and rebuilds
+ */
+@DataJpaTest
+@Import({ReadModelService.class, StatisticsService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "read-model.recent-messages=4")
+class ReadModelServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Autowired
+    private ReadModelService readModelService;
+
+    @Autowired
+    private UserSessionRepository sessionRepository;
+
+    @Autowired
+    private WhatsAppMessageRepository messageRepository;
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    private final List<UserSession> saved = new ArrayList<>();
+    private final List<WhatsAppMessage> written = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        sessionRepository.deleteAll(saved);
+        messageRepository.deleteAll(written);
+        statisticsService.messagesRemoved(written);
+    }
+
+    @Test
+    void projection_FollowsSessionAndMessageChanges() throws InterruptedException {
+        // Arrange
+        List<WhatsAppMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            messages.add(message("rm" + i, i, START.plusSeconds(i)));
+        }
+
+        // Act
+        readModelService.sessionSaved(session("15550301", "MAIN_MENU", true, START));
+        readModelService.sessionSaved(session("15550302", "NAVIGATION_HELP", true, START.plusMinutes(1)));
+        readModelService.sessionSaved(session("15550301", "WELCOME", true, START.minusMinutes(1)));
+        readModelService.messagesWritten(messages);
+        WhatsAppMessage delivered = message("rm4", 4, START.plusSeconds(4));
+        delivered.setStatus("delivered");
+        readModelService.messageStatusChanged(delivered);
+        awaitCaughtUp();
+
+        // Assert: an out-of-order older session change is ignored; messages newest first
+        assertEquals("MAIN_MENU", readModelService.getSession("15550301").orElseThrow().getCurrentState());
+        List<UserSession> active = readModelService.getActiveSessions().stream()
+                .filter(s -> s.getPhoneNumber().startsWith("1555030")).toList();
+        assertEquals(List.of("15550302", "15550301"), active.stream().map(UserSession::getPhoneNumber).toList());
+        Page<WhatsAppMessage> page = readModelService.getMessages(0, 2);
+        assertEquals(List.of("rm4", "rm3"), page.getContent().stream().map(WhatsAppMessage::getMessageId).toList());
+        assertEquals("delivered", page.getContent().get(0).getStatus());
+        assertEquals(List.of("rm2", "rm1"), readModelService.getMessages(1, 2).getContent().stream()
+                .map(WhatsAppMessage::getMessageId).toList());
+    }
+
+    @Test
+    void rebuild_PicksUpWritesTheHooksMissed() throws InterruptedException {
+        // Arrange: a session deactivated by a bulk update, which no hook reports
+        UserSession session = session("15550401", "MAIN_MENU", true, START);
+        session.setId(null);
+        saved.add(sessionRepository.save(session));
+        readModelService.requestRebuild();
+        awaitCaughtUp();
+        assertTrue(readModelService.getSession("15550401").orElseThrow().getSessionActive());
+        sessionRepository.deactivateIdle(List.of(saved.get(0).getId()), LocalDateTime.now().plusDays(1));
+
+        // Act
+        readModelService.requestRebuild();
+        awaitCaughtUp();
+
+        // Assert
+        assertFalse(readModelService.getSession("15550401").orElseThrow().getSessionActive());
+        assertTrue(readModelService.getActiveSessions().stream()
+                .noneMatch(s -> s.getPhoneNumber().equals("15550401")));
+        assertEquals(0L, readModelService.status().get("dropped"));
+    }
+
+    @Test
+    void sessionsDeactivated_ProjectsTheBulkUpdateWithoutARebuild() throws InterruptedException {
+        // Arrange
+        UserSession idle = session("15550501", "MAIN_MENU", true, START);
+        UserSession used = session("15550502", "MAIN_MENU", true, START.plusDays(2));
+        readModelService.sessionSaved(idle);
+        readModelService.sessionSaved(used);
+        awaitCaughtUp();
+        long rebuilds = (long) readModelService.status().get("rebuilds");
+
+        // Act: the second session was used after retention selected it
+        readModelService.sessionsDeactivated(List.of(idle, used), START.plusDays(1));
+        awaitCaughtUp();
+
+        // Assert
+        assertFalse(readModelService.getSession("15550501").orElseThrow().getSessionActive());
+        assertTrue(readModelService.getSession("15550502").orElseThrow().getSessionActive());
+        assertEquals(rebuilds, readModelService.status().get("rebuilds"));
+    }
+
+    @Test
+    void getMessages_ReadsPagesPastTheWindowFromTheDatabase() throws InterruptedException {
+        // Arrange: ten stored messages, the newest four of them in the window
+        for (int i = 0; i < 10; i++) {
+            WhatsAppMessage message = message("deep" + i, i, START.minusDays(1).plusSeconds(i));
+            message.setId(null);
+            written.add(message);
+        }
+        messageRepository.insertAll(written);
+        statisticsService.messagesAdded(written);
+        readModelService.requestRebuild();
+        awaitCaughtUp();
+
+        // Act
+        List<String> straddling = ids(readModelService.getMessages(1, 3));
+        List<String> next = ids(readModelService.getMessages(2, 3));
+        List<String> jumped = ids(readModelService.getMessages(4, 2));
+
+        // Assert
+        assertEquals(List.of("deep6", "deep5", "deep4"), straddling);
+        assertEquals(List.of("deep3", "deep2", "deep1"), next);
+        assertEquals(List.of("deep1", "deep0"), jumped);
+    }
+
+    private static List<String> ids(Page<WhatsAppMessage> page) {
+        return page.getContent().stream().map(WhatsAppMessage::getMessageId).toList();
+    }
+
+    private void awaitCaughtUp() throws InterruptedException {
+        // Let the projector pick up a requested rebuild before checking
+        Thread.sleep(150);
+        for (int i = 0; i < 100 && !readModelService.isCaughtUp(); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(readModelService.isCaughtUp());
+    }
+
+    private static UserSession session(String phoneNumber, String state, boolean active, LocalDateTime updatedAt) {
+        UserSession session = new UserSession();
+        session.setId(1L);
+        session.setPhoneNumber(phoneNumber);
+        session.setCurrentState(state);
+        session.setSessionActive(active);
+        session.setCreatedAt(START);
+        session.setUpdatedAt(updatedAt);
+        return session;
+    }
+
+    private static WhatsAppMessage message(String id, long rowId, LocalDateTime timestamp) {
+        WhatsAppMessage message = new WhatsAppMessage();
+        message.setId(rowId + 1);
+        message.setMessageId(id);
+        message.setFromNumber("15550301");
+        message.setToNumber("chatbot");
+        message.setMessageText("text " + id);
+        message.setMessageType("text");
+        message.setStatus("RECEIVED");
+        message.setDirection("INBOUND");
+        message.setTimestamp(timestamp);
+        return message;
+    }
+}
@@ -0,0 +1,172 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.model.UserSession;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.UserSessionRepository;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import com.whatsapp.chatbot.retention.RetentionCheckpoint;
+import com.whatsapp.chatbot.retention.RetentionStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for RetentionService chunked purges and checkpoints
+ */
+@DataJpaTest
+@Import({RetentionService.class, StatisticsService.class, ReadModelService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "retention.enabled=false",
+        "retention.window=",
+        "retention.messages-mode=anonymize",
+        "retention.messages-days=30",
+        "retention.sessions-days=90",
+        "retention.chunk-size=10",
+        "retention.chunk-pause-millis=0",
+        "retention.max-rows-per-second=0"
+})
+class RetentionServiceTest {
+
+    private static final Path DIRECTORY;
+
+    static {
+        try {
+            DIRECTORY = Files.createTempDirectory("retention-test");
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void directory(DynamicPropertyRegistry registry) {
+        registry.add("retention.directory", DIRECTORY::toString);
+        registry.add("storage.allow-temp-directories", () -> "true");
+    }
+
+    @Autowired
+    private RetentionService retentionService;
+
+    @Autowired
+    private WhatsAppMessageRepository messageRepository;
+
+    @Autowired
+    private UserSessionRepository sessionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private ArchiveService archiveService;
+
+    @MockBean
+    private SearchService searchService;
+
+    private final List<Long> messageIds = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        messageRepository.deleteAllByIdInBatch(messageIds);
+        jdbcTemplate.update("DELETE FROM user_sessions WHERE phone_number LIKE '1555070%'");
+    }
+
+    @Test
+    void run_AnonymizesOldMessagesInChunksAndResumesFromTheCheckpoint() throws IOException {
+        // Arrange: 25 expired messages, five recent ones
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 30; i++) {
+            boolean inbound = i % 2 == 0;
+            messageIds.add(messageRepository.save(message("ret" + i, inbound,
+                    i < 25 ? now.minusDays(60).plusMinutes(i) : now.minusDays(1))).getId());
+        }
+
+        // Act
+        retentionService.run(true);
+        long anonymized = retentionService.getStats().getRowsByTask().get("messages.anonymized");
+        retentionService.run(true);
+
+        // Assert: three chunks of at most ten, user side and text gone; the second run starts past them
+        List<WhatsAppMessage> messages = messageRepository.findAllById(messageIds);
+        assertEquals(25, anonymized);
+        assertEquals(25, retentionService.getStats().getRowsByTask().get("messages.anonymized"));
+        for (WhatsAppMessage message : messages) {
+            boolean expired = message.getTimestamp().isBefore(now.minusDays(30));
+            assertEquals(expired, message.getMessageText() == null);
+            String user = "INBOUND".equals(message.getDirection()) ? message.getFromNumber() : message.getToNumber();
+            String bot = "INBOUND".equals(message.getDirection()) ? message.getToNumber() : message.getFromNumber();
+            assertEquals(expired ? RetentionService.ANONYMIZED : "15550701", user);
+            assertEquals("chatbot", bot);
+        }
+        RetentionCheckpoint checkpoint = RetentionCheckpoint.load(DIRECTORY.resolve("checkpoint.properties"));
+        assertEquals(messageIds.get(24), checkpoint.getLong("messages.anonymized.after-id"));
+    }
+
+    @Test
+    void run_DeactivatesIdleSessionsAndDeletesLongInactiveOnes() throws IOException {
+        // Arrange: an idle active session, a long inactive one, a recently inactive one and a fresh one
+        LocalDateTime now = LocalDateTime.now();
+        session("15550701", true, now.minusDays(2));
+        session("15550702", false, now.minusDays(100));
+        session("15550703", false, now.minusDays(10));
+        session("15550704", true, now);
+
+        // Act
+        retentionService.run(true);
+
+        // Assert
+        assertFalse(sessionRepository.findByPhoneNumber("15550701").orElseThrow().getSessionActive());
+        assertTrue(sessionRepository.findByPhoneNumber("15550702").isEmpty());
+        assertTrue(sessionRepository.findByPhoneNumber("15550703").isPresent());
+        assertTrue(sessionRepository.findByPhoneNumber("15550704").orElseThrow().getSessionActive());
+        RetentionStats stats = retentionService.getStats();
+        assertTrue(stats.getChunks() > 0);
+        assertEquals(0L, stats.getLockConflicts());
+        // A finished pass clears the session cursor so the next one starts over
+        RetentionCheckpoint checkpoint = RetentionCheckpoint.load(DIRECTORY.resolve("checkpoint.properties"));
+        assertNull(checkpoint.get("sessions.idle.after-id"));
+    }
+
+    private void session(String phoneNumber, boolean active, LocalDateTime updatedAt) {
+        UserSession session = new UserSession();
+        session.setPhoneNumber(phoneNumber);
+        session.setCurrentState("MAIN_MENU");
+        session.setSessionActive(active);
+        sessionRepository.save(session);
+        // Created and updated times are stamped on save; backdate them directly
+        jdbcTemplate.update("UPDATE user_sessions SET updated_at = ? WHERE phone_number = ?", updatedAt, phoneNumber);
+    }
+
+    private static WhatsAppMessage message(String id, boolean inbound, LocalDateTime timestamp) {
+        WhatsAppMessage message = new WhatsAppMessage();
+        message.setMessageId(id);
+        message.setFromNumber(inbound ? "15550701" : "chatbot");
+        message.setToNumber(inbound ? "chatbot" : "15550701");
+        message.setMessageText("text " + id);
+        message.setMessageType("text");
+        message.setStatus(inbound ? "RECEIVED" : "SENT");
+        message.setDirection(inbound ? "INBOUND" : "OUTBOUND");
+        message.setTimestamp(timestamp);
+        return message;
+    }
+}
@@ -0,0 +1,114 @@
+package com.whatsapp.chatbot.service;
+
+import com.whatsapp.chatbot.model.UserSession;
+import com.whatsapp.chatbot.model.WhatsAppMessage;
+import com.whatsapp.chatbot.repository.UserSessionRepository;
+import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for StatisticsService counters and reconciliation
+ */
+@DataJpaTest
+@Import({StatisticsService.class, UserSessionService.class})
+class StatisticsServiceTest {
+
+    @Autowired
+    private WhatsAppMessageRepository messageRepository;
+
+    @Autowired
+    private UserSessionRepository sessionRepository;
+
+    @Autowired
+    private UserSessionService sessionService;
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @MockBean
+    private RollupService rollupService;
+
+    @MockBean
+    private ConversationService conversationService;
+
+    @MockBean
+    private ReadModelService readModelService;
+
+    @Test
+    void snapshot_FollowsMessageAndSessionWrites() {
+        // Arrange: start from the empty tables
+        statisticsService.reconcile();
+        List<WhatsAppMessage> messages = List.of(
+                message("m1", "INBOUND", "RECEIVED"),
+                message("m2", "OUTBOUND", "SENT"),
+                message("m3", "OUTBOUND", "SENT"));
+        messageRepository.insertAll(messages);
+
+        // Act
+        statisticsService.messagesAdded(messages);
+        statisticsService.messageStatusChanged("SENT", "delivered");
+        sessionService.getOrCreateSession("15550001");
+        sessionService.getOrCreateSession("15550002");
+        sessionService.updateSessionState("15550001", "SEARCH_LOCATION");
+        sessionService.endSession("15550002");
+
+        // Assert
+        Map<String, Object> stats = statisticsService.snapshot();
+        assertEquals(3L, stats.get("totalMessages"));
+        assertEquals(1L, stats.get("inboundMessages"));
+        assertEquals(2L, stats.get("outboundMessages"));
+        assertEquals(Map.of("RECEIVED", 1L, "SENT", 1L, "delivered", 1L), stats.get("messagesByStatus"));
+        assertEquals(2L, stats.get("totalSessions"));
+        assertEquals(1L, stats.get("activeSessions"));
+        assertEquals(Map.of("SEARCH_LOCATION", 1L), stats.get("activeSessionsByState"));
+    }
+
+    @Test
+    void reconcile_CorrectsWritesTheCountersMissed() {
+        // Arrange: rows written behind the service's back, and a counter bumped for a row that was never saved
+        statisticsService.reconcile();
+        messageRepository.insertAll(List.of(message("m1", "INBOUND", "RECEIVED"), message("m2", "INBOUND", null)));
+        UserSession session = new UserSession();
+        session.setPhoneNumber("15550003");
+        session.setCurrentState("MAIN_MENU");
+        session.setSessionActive(true);
+        sessionRepository.save(session);
+        statisticsService.messagesAdded(List.of(message("lost", "OUTBOUND", "SENT")));
+
+        // Act
+        statisticsService.reconcile();
+
+        // Assert
+        Map<String, Object> stats = statisticsService.snapshot();
+        assertEquals(2L, stats.get("totalMessages"));
+        assertEquals(2L, stats.get("inboundMessages"));
+        assertEquals(0L, stats.get("outboundMessages"));
+        assertEquals(Map.of("RECEIVED", 1L, "UNKNOWN", 1L), stats.get("messagesByStatus"));
+        assertEquals(1L, stats.get("totalSessions"));
+        assertEquals(Map.of("MAIN_MENU", 1L), stats.get("activeSessionsByState"));
+        assertEquals(9L, stats.get("lastReconcileDrift"));
+    }
+
+    private static WhatsAppMessage message(String messageId, String direction, String status) {
+        WhatsAppMessage message = new WhatsAppMessage();
+        message.setMessageId(messageId);
+        message.setFromNumber("INBOUND".equals(direction) ? "15550001" : "chatbot");
+        message.setToNumber("INBOUND".equals(direction) ? "chatbot" : "15550001");
+        message.setMessageText("hello");
+        message.setMessageType("text");
+        message.setStatus(status);
+        message.setDirection(direction);
+        message.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 0));
+        return message;
+    }
+}
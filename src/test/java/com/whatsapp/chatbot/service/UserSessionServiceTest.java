@@ -24,6 +24,18 @@ class UserSessionServiceTest {
     @Mock
     private UserSessionRepository sessionRepository;
 
+    @Mock
+    private StatisticsService statisticsService;
+
+    @Mock
+    private RollupService rollupService;
+
+    @Mock
+    private ConversationService conversationService;
+
+    @Mock
+    private ReadModelService readModelService;
+
     @InjectMocks
     private UserSessionService userSessionService;
 
@@ -36,7 +48,7 @@ class UserSessionServiceTest {
         existingSession.setCurrentState("MAIN_MENU");
         existingSession.setSessionActive(true);
 
-        when(sessionRepository.findByPhoneNumberAndSessionActiveTrue(phoneNumber))
+        when(sessionRepository.findByPhoneNumber(phoneNumber))
                 .thenReturn(Optional.of(existingSession));
         when(sessionRepository.save(any(UserSession.class))).thenReturn(existingSession);
 
@@ -60,7 +72,7 @@ class UserSessionServiceTest {
         newSession.setCurrentState("WELCOME");
         newSession.setSessionActive(true);
 
-        when(sessionRepository.findByPhoneNumberAndSessionActiveTrue(phoneNumber))
+        when(sessionRepository.findByPhoneNumber(phoneNumber))
                 .thenReturn(Optional.empty());
         when(sessionRepository.save(any(UserSession.class))).thenReturn(newSession);
 
@@ -72,6 +84,34 @@ class UserSessionServiceTest {
         verify(sessionRepository).save(any(UserSession.class));
     }
 
+    @Test
+    void getOrCreateSession_ReactivatesDeactivatedSession() {
+        // Arrange: retention deactivated the session, then the user writes again
+        String phoneNumber = "1234567890";
+        UserSession deactivated = new UserSession();
+        deactivated.setId(7L);
+        deactivated.setPhoneNumber(phoneNumber);
+        deactivated.setCurrentState("NAVIGATION_HELP");
+        deactivated.setNavigationPath("WELCOME -> NAVIGATION_HELP");
+        deactivated.setUserPreferences("{\"language\":\"en\"}");
+        deactivated.setSessionActive(false);
+
+        when(sessionRepository.findByPhoneNumber(phoneNumber)).thenReturn(Optional.of(deactivated));
+        when(sessionRepository.save(any(UserSession.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        UserSession result = userSessionService.getOrCreateSession(phoneNumber);
+
+        // Assert: the same row is saved again, not a second one for the number
+        assertSame(deactivated, result);
+        assertEquals(7L, result.getId());
+        assertTrue(result.getSessionActive());
+        assertEquals("WELCOME", result.getCurrentState());
+        assertEquals("WELCOME", result.getNavigationPath());
+        assertEquals("{\"language\":\"en\"}", result.getUserPreferences());
+        verify(statisticsService).sessionSaved(false, false, "NAVIGATION_HELP", deactivated);
+    }
+
     @Test
     void updateSessionState_Success() {
         // Arrange
@@ -83,7 +123,7 @@ class UserSessionServiceTest {
         session.setNavigationPath("WELCOME");
         session.setSessionActive(true);
 
-        when(sessionRepository.findByPhoneNumberAndSessionActiveTrue(phoneNumber))
+        when(sessionRepository.findByPhoneNumber(phoneNumber))
                 .thenReturn(Optional.of(session));
         when(sessionRepository.save(any(UserSession.class))).thenReturn(session);
 
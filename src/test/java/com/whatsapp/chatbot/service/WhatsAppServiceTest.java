@@ -1,7 +1,6 @@
 package com.whatsapp.chatbot.service;
 
 import com.whatsapp.chatbot.model.WhatsAppMessage;
-import com.whatsapp.chatbot.repository.WhatsAppMessageRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -23,7 +22,7 @@ import static org.mockito.Mockito.*;
 class WhatsAppServiceTest {
 
     @Mock
-    private WhatsAppMessageRepository messageRepository;
+    private MessageLogWriter messageLogWriter;
 
     @Mock
     private WebClient.Builder webClientBuilder;
@@ -49,8 +48,8 @@ class WhatsAppServiceTest {
         when(webClientBuilder.defaultHeader(any(), any())).thenReturn(webClientBuilder);
         when(webClientBuilder.build()).thenReturn(webClient);
         when(webClient.post()).thenReturn(requestBodyUriSpec);
-        when(requestBodyUriSpec.uri(any(String.class), any())).thenReturn(requestBodySpec);
-        when(requestBodySpec.bodyValue(any())).thenReturn(requestBodySpec);
+        when(requestBodyUriSpec.uri(any(String.class), any(Object[].class))).thenReturn(requestBodySpec);
+        doReturn(requestBodySpec).when(requestBodySpec).bodyValue(any());
         when(requestBodySpec.retrieve()).thenReturn(responseSpec);
     }
 
@@ -62,14 +61,12 @@ class WhatsAppServiceTest {
         Map<String, Object> expectedResponse = Map.of("messages", "sent");
         
         when(responseSpec.bodyToMono(Map.class)).thenReturn(Mono.just(expectedResponse));
-        when(messageRepository.save(any(WhatsAppMessage.class))).thenReturn(new WhatsAppMessage());
 
         // Act & Assert
         Mono<Map<String, Object>> result = whatsAppService.sendTextMessage(to, message);
-        // For now, just verify the method doesn't throw an exception
-        // In a real scenario, you would need to mock WebClient properly
+        result.block();
 
-        verify(messageRepository).save(any(WhatsAppMessage.class));
+        verify(messageLogWriter).append(any(WhatsAppMessage.class));
     }
 
     @Test
@@ -82,13 +79,11 @@ class WhatsAppServiceTest {
         Map<String, Object> expectedResponse = Map.of("messages", "sent");
         
         when(responseSpec.bodyToMono(Map.class)).thenReturn(Mono.just(expectedResponse));
-        when(messageRepository.save(any(WhatsAppMessage.class))).thenReturn(new WhatsAppMessage());
 
         // Act & Assert
         Mono<Map<String, Object>> result = whatsAppService.sendButtonMessage(to, bodyText, buttonIds, buttonTitles);
-        // For now, just verify the method doesn't throw an exception
-        // In a real scenario, you would need to mock WebClient properly
+        result.block();
 
-        verify(messageRepository).save(any(WhatsAppMessage.class));
+        verify(messageLogWriter).append(any(WhatsAppMessage.class));
     }
 }
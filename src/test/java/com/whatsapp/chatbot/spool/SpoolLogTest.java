@@ -0,0 +1,174 @@
+package com.whatsapp.chatbot.spool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for appending, reading, recovery and the disk cap of the spool log
+ */
+class SpoolLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void read_ReturnsRecordsInOrderAcrossSegmentsAndAfterReopening() throws IOException {
+        // Arrange: 100-byte records, ten to a 1 KB segment
+        try (SpoolLog spool = SpoolLog.open(directory, 1024, 1 << 20, SpoolOverflow.DROP_NEWEST)) {
+            for (int i = 0; i < 35; i++) {
+                assertTrue(spool.append(record(i)));
+            }
+
+            // Act
+            SpoolBatch first = spool.read(SpoolPosition.START, 20);
+            SpoolBatch rest = spool.read(first.getNext(), 100);
+
+            // Assert
+            assertEquals(4, spool.getSegmentCount());
+            assertEquals(20, first.getRecords().size());
+            assertEquals(15, rest.getRecords().size());
+            assertEquals("record-34", text(rest.getRecords().get(14)));
+            assertTrue(spool.read(rest.getNext(), 100).getRecords().isEmpty());
+            assertEquals(0, spool.backlogBytes(rest.getNext()));
+        }
+
+        try (SpoolLog reopened = SpoolLog.open(directory, 1024, 1 << 20, SpoolOverflow.DROP_NEWEST)) {
+            assertTrue(reopened.append(record(35)));
+            List<String> all = readAll(reopened, SpoolPosition.START);
+            assertEquals(36, all.size());
+            assertEquals("record-35", all.get(35));
+        }
+    }
+
+    @Test
+    void open_ClearsATornRecordAndReadSkipsPastACorruptOne() throws IOException {
+        // Arrange: ten records in the first segment and five in the second, then a torn
+        // sixth there (checksum and bytes written, length not yet)
+        try (SpoolLog spool = SpoolLog.open(directory, 1024, 1 << 20, SpoolOverflow.DROP_NEWEST)) {
+            for (int i = 0; i < 15; i++) {
+                spool.append(record(i));
+            }
+        }
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files.filter(path -> path.toString().endsWith(".spool")).sorted().toList();
+        }
+        try (FileChannel channel = FileChannel.open(segments.get(1), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}), 5 * 100 + 4);
+        }
+
+        // Act
+        List<String> recovered;
+        long cleared;
+        try (SpoolLog spool = SpoolLog.open(directory, 1024, 1 << 20, SpoolOverflow.DROP_NEWEST)) {
+            spool.append(record(15));
+            recovered = readAll(spool, SpoolPosition.START);
+            cleared = spool.getCorruptRecords();
+        }
+        // Flip a byte in the second record of the first segment
+        try (FileChannel channel = FileChannel.open(segments.get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), 100 + 20);
+        }
+        List<String> afterCorruption;
+        long corrupt;
+        try (SpoolLog spool = SpoolLog.open(directory, 1024, 1 << 20, SpoolOverflow.DROP_NEWEST)) {
+            afterCorruption = readAll(spool, SpoolPosition.START);
+            corrupt = spool.getCorruptRecords();
+        }
+
+        // Assert
+        assertEquals(16, recovered.size());
+        assertEquals("record-15", last(recovered));
+        assertEquals(1, cleared);
+        assertEquals(List.of("record-0", "record-10", "record-11", "record-12", "record-13", "record-14",
+                "record-15"), afterCorruption);
+        assertEquals(1, corrupt);
+    }
+
+    @Test
+    void append_AppliesTheOverflowPolicyAtTheDiskCap() throws IOException {
+        // Arrange: room for two 1 KB segments
+        try (SpoolLog newest = SpoolLog.open(directory.resolve("newest"), 1024, 2048, SpoolOverflow.DROP_NEWEST);
+             SpoolLog oldest = SpoolLog.open(directory.resolve("oldest"), 1024, 2048, SpoolOverflow.DROP_OLDEST)) {
+
+            // Act
+            List<Boolean> accepted = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                accepted.add(newest.append(record(i)));
+                oldest.append(record(i));
+            }
+
+            // Assert: DROP_NEWEST keeps the first 20, DROP_OLDEST the last ten and the active segment
+            assertTrue(accepted.subList(0, 20).stream().allMatch(a -> a));
+            assertFalse(accepted.get(20));
+            assertEquals(10, newest.getRejected());
+            assertEquals("record-19", last(readAll(newest, SpoolPosition.START)));
+            List<String> kept = readAll(oldest, SpoolPosition.START);
+            assertEquals(List.of("record-10", "record-29"), List.of(kept.get(0), last(kept)));
+            assertEquals(1, oldest.getDroppedSegments());
+            assertEquals(2, oldest.getSegmentCount());
+
+            newest.release(newest.read(SpoolPosition.START, 10).getNext());
+            assertTrue(newest.append(record(30)));
+        }
+    }
+
+    @Test
+    void open_RefusesADirectoryAlreadyInUse() throws IOException {
+        // Arrange
+        SpoolLog held = SpoolLog.open(directory, 1024, 1 << 20, SpoolOverflow.DROP_OLDEST);
+
+        // Act & Assert: refused while held, opens again once released
+        try {
+            assertThrows(IOException.class, () -> SpoolLog.open(directory, 1024, 1 << 20, SpoolOverflow.DROP_OLDEST));
+        } finally {
+            held.close();
+        }
+        SpoolLog.open(directory, 1024, 1 << 20, SpoolOverflow.DROP_OLDEST).close();
+    }
+
+    /**
+     * A 92-byte record, 100 bytes with its header
+     */
+    private static byte[] record(int n) {
+        byte[] record = new byte[92];
+        byte[] text = ("record-" + n).getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(text, 0, record, 0, text.length);
+        return record;
+    }
+
+    private static String text(byte[] record) {
+        return new String(record, StandardCharsets.UTF_8).trim();
+    }
+
+    private static List<String> readAll(SpoolLog spool, SpoolPosition from) {
+        List<String> texts = new ArrayList<>();
+        SpoolBatch batch;
+        SpoolPosition position = from;
+        while (!(batch = spool.read(position, 7)).getRecords().isEmpty()) {
+            batch.getRecords().forEach(record -> texts.add(text(record)));
+            position = batch.getNext();
+        }
+        return texts;
+    }
+
+    private static String last(List<String> texts) {
+        return texts.get(texts.size() - 1);
+    }
+}
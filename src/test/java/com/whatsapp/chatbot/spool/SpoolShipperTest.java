@@ -0,0 +1,137 @@
+package com.whatsapp.chatbot.spool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for shipping, retrying and resuming from the checkpoint
+ */
+class SpoolShipperTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<String> shipped = new CopyOnWriteArrayList<>();
+
+    @Test
+    void run_RetriesAFailedBatchAndResumesFromTheCheckpointAfterRestart() throws Exception {
+        // Arrange: the first two attempts fail
+        AtomicInteger attempts = new AtomicInteger();
+        SpoolSink flaky = records -> attempts.incrementAndGet() <= 2
+                ? CompletableFuture.failedFuture(new IllegalStateException("UNAVAILABLE"))
+                : accept(records);
+        try (SpoolLog spool = SpoolLog.open(directory, 1024, 1 << 20, SpoolOverflow.DROP_NEWEST)) {
+            append(spool, 0, 25);
+
+            // Act
+            SpoolShipper shipper = start(spool, flaky);
+            waitFor(() -> shipped.size() == 25);
+            stop(shipper);
+            append(spool, 25, 30);
+
+            // Assert
+            SpoolStats stats = shipper.stats();
+            assertEquals(25, stats.getShipped());
+            assertEquals(2, stats.getShipFailures());
+            assertEquals(5 * 100, stats.getBacklogBytes());
+        }
+
+        try (SpoolLog reopened = SpoolLog.open(directory, 1024, 1 << 20, SpoolOverflow.DROP_NEWEST)) {
+            SpoolShipper shipper = start(reopened, this::accept);
+            waitFor(() -> shipped.size() == 30);
+            stop(shipper);
+
+            assertEquals("event-25", shipped.get(25));
+            assertEquals(30, shipped.stream().distinct().count());
+            assertEquals(1, reopened.getSegmentCount());
+        }
+    }
+
+    @Test
+    void run_DeadLettersABatchThatKeepsFailingPermanentlyAndMovesOn() throws Exception {
+        // Arrange: the batch holding event-3 is rejected as not retryable
+        SpoolSink rejecting = new SpoolSink() {
+            @Override
+            public CompletableFuture<?> ship(List<byte[]> records) {
+                return records.stream().anyMatch(record -> new String(record, StandardCharsets.UTF_8).trim()
+                        .equals("event-3"))
+                        ? CompletableFuture.failedFuture(new IllegalArgumentException("INVALID_ARGUMENT"))
+                        : accept(records);
+            }
+
+            @Override
+            public boolean isRetryable(Throwable error) {
+                return !(error instanceof IllegalArgumentException);
+            }
+        };
+        try (SpoolLog spool = SpoolLog.open(directory, 1024, 1 << 20, SpoolOverflow.DROP_NEWEST)) {
+            append(spool, 0, 25);
+
+            // Act
+            SpoolShipper shipper = start(spool, rejecting);
+            waitFor(() -> shipped.size() == 15);
+            stop(shipper);
+
+            // Assert: the first batch of ten went to the dead-letter file, the rest shipped
+            SpoolStats stats = shipper.stats();
+            assertEquals(15, stats.getShipped());
+            assertEquals(10, stats.getDeadLettered());
+            assertEquals(3, stats.getShipFailures());
+            assertEquals(5, stats.getShipAttempts());
+            assertEquals(0, stats.getBacklogBytes());
+            List<String> deadLetters = Files.readAllLines(directory.resolve("dead-letter")).stream()
+                    .map(String::trim).toList();
+            assertEquals(10, deadLetters.size());
+            assertEquals("event-3", deadLetters.get(3));
+        }
+    }
+
+    private SpoolShipper start(SpoolLog spool, SpoolSink sink) throws IOException {
+        SpoolShipper shipper = new SpoolShipper(spool, sink, directory.resolve("checkpoint"),
+                directory.resolve("dead-letter"), 10, 3, Duration.ofMillis(5), Duration.ofMillis(5),
+                Duration.ofMillis(20));
+        Thread thread = new Thread(shipper);
+        thread.setDaemon(true);
+        thread.start();
+        return shipper;
+    }
+
+    private static void stop(SpoolShipper shipper) throws InterruptedException {
+        shipper.close();
+        Thread.sleep(50);
+    }
+
+    private CompletableFuture<?> accept(List<byte[]> records) {
+        records.forEach(record -> shipped.add(new String(record, StandardCharsets.UTF_8).trim()));
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static void append(SpoolLog spool, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            byte[] record = new byte[92];
+            byte[] text = ("event-" + i).getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(text, 0, record, 0, text.length);
+            spool.append(record);
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.whatsapp.chatbot.traffic;
+
+import com.whatsapp.chatbot.routing.RoadGraph;
+import com.whatsapp.chatbot.routing.RoadGraphBuilder;
+import com.whatsapp.chatbot.routing.RoutePath;
+import com.whatsapp.chatbot.routing.Router;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for traffic aggregation, feed parsing and file tailing
+ */
+class TrafficAggregatorTest {
+
+    private static final long MINUTE = 60_000;
+    private static final long START = 1_700_000_000_000L;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void recordSpeed_AveragesWithinWindowAndExpires() {
+        // Arrange
+        RoadGraph graph = threeNodeRoad();
+        TrafficAggregator aggregator = new TrafficAggregator(graph, 0.05, MINUTE, 5, START - MINUTE);
+        int edge = segment(aggregator, 1, 2);
+
+        // Act
+        aggregator.recordSpeed(edge, 20, START, START);
+        aggregator.recordSpeed(edge, 30, START + MINUTE, START + MINUTE);
+        TrafficReading current = aggregator.segment(edge, START + 2 * MINUTE);
+        TrafficReading partlyExpired = aggregator.segment(edge, START + 5 * MINUTE);
+        TrafficReading expired = aggregator.segment(edge, START + 6 * MINUTE);
+
+        // Assert
+        assertEquals(2, current.getSamples());
+        assertEquals(25.0, current.getAverageSpeedKmh(), 1e-9);
+        assertEquals(0.625, current.getSpeedRatio(), 1e-3);
+        assertEquals(TrafficLevel.MODERATE, current.getLevel());
+        assertEquals(1, partlyExpired.getSamples());
+        assertEquals(30.0, partlyExpired.getAverageSpeedKmh(), 1e-9);
+        assertEquals(0, expired.getSamples());
+        assertEquals(TrafficLevel.UNKNOWN, expired.getLevel());
+    }
+
+    @Test
+    void recordSpeed_RejectsReportsOlderThanWindow() {
+        // Arrange
+        RoadGraph graph = threeNodeRoad();
+        TrafficAggregator aggregator = new TrafficAggregator(graph, 0.05, MINUTE, 5, START - MINUTE);
+        int edge = segment(aggregator, 1, 2);
+
+        // Act
+        boolean late = aggregator.recordSpeed(edge, 20, START, START + 10 * MINUTE);
+
+        // Assert
+        assertFalse(late);
+        assertEquals(0, aggregator.citywide(START + 10 * MINUTE).getSamples());
+    }
+
+    @Test
+    void route_AddsDelayFromSlowSegmentsAndCountsIncidents() {
+        // Arrange
+        RoadGraph graph = threeNodeRoad();
+        TrafficAggregator aggregator = new TrafficAggregator(graph, 0.05, MINUTE, 5, START - MINUTE);
+        int first = segment(aggregator, 1, 2);
+        RoutePath path = new Router(graph).route(aggregator.node(1), aggregator.node(3));
+        aggregator.recordSpeed(first, 10, START, START);
+        aggregator.recordIncident(first, 2, START, START);
+
+        // Act
+        RouteTraffic traffic = aggregator.route(path, START);
+
+        // Assert
+        assertEquals(path.getDurationMillis(), traffic.getFreeFlowMillis());
+        long expectedLive = graph.edgeWeightMillis(first) * 4L + graph.edgeWeightMillis(segment(aggregator, 2, 3));
+        assertEquals(expectedLive, traffic.getLiveMillis(), 100);
+        assertEquals("First Avenue", traffic.getSlowestStreet());
+        assertEquals(1, traffic.getIncidents());
+        assertEquals(0.5, traffic.getCoverage(), 1e-9);
+        assertEquals(0.25, aggregator.citywide(START).getSpeedRatio(), 1e-3);
+    }
+
+    @Test
+    void ingestor_ParsesLinesAndCountsRejects() {
+        // Arrange
+        RoadGraph graph = threeNodeRoad();
+        TrafficAggregator aggregator = new TrafficAggregator(graph, 0.05, MINUTE, 5, START - MINUTE);
+        AtomicLong now = new AtomicLong(START);
+        TrafficIngestor ingestor = new TrafficIngestor(aggregator, now::get);
+
+        // Act
+        ingestor.accept("# header comment");
+        ingestor.accept(START + ",SPEED,1,2,35.5");
+        ingestor.accept((START - 1000) + ",speed,2,3,40\r");
+        ingestor.accept(START + ",INCIDENT,2,1,3,Stalled vehicle, left lane");
+        ingestor.accept(START + ",SPEED,1,3,50");
+        ingestor.accept(START + ",SPEED,1,2,fast");
+        ingestor.accept(START + ",JAM,1,2,1");
+        ingestor.accept((START - 20 * MINUTE) + ",SPEED,1,2,50");
+        now.addAndGet(2000);
+        TrafficIngestStats stats = ingestor.stats();
+
+        // Assert
+        assertEquals(3, stats.getAccepted());
+        assertEquals(1, stats.getUnknownSegments());
+        assertEquals(2, stats.getMalformed());
+        assertEquals(1, stats.getLate());
+        assertEquals(2000, stats.getDataAgeMillis());
+        assertEquals(35.5, aggregator.segment(segment(aggregator, 1, 2), now.get()).getAverageSpeedKmh(), 1e-9);
+        assertEquals(1, aggregator.segment(segment(aggregator, 2, 1), now.get()).getIncidents());
+    }
+
+    @Test
+    void fileTailFeed_DeliversCompleteLinesAsTheyAreAppended() throws Exception {
+        // Arrange
+        Path feedFile = tempDir.resolve("traffic.log");
+        Files.writeString(feedFile, "first\nsecond\npart");
+        List<String> received = new CopyOnWriteArrayList<>();
+        FileTailFeed feed = new FileTailFeed(feedFile, received::add, 10);
+        Thread thread = new Thread(feed);
+        thread.start();
+
+        try {
+            // Act
+            waitFor(() -> received.size() == 2);
+            Files.writeString(feedFile, "ial\r\nthird\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            waitFor(() -> received.size() == 4);
+
+            // Assert
+            assertEquals(List.of("first", "second", "partial", "third"), received);
+        } finally {
+            feed.close();
+            thread.join(5_000);
+        }
+    }
+
+    private static RoadGraph threeNodeRoad() {
+        // Two 40 km/h segments on a straight road
+        return new RoadGraphBuilder(0.01)
+                .addNode(1, 40.000, -74.00)
+                .addNode(2, 40.000, -73.99)
+                .addNode(3, 40.000, -73.98)
+                .addEdge(1, 2, 0, 40, false, "First Avenue")
+                .addEdge(2, 3, 0, 40, false, "Second Avenue")
+                .build(1L);
+    }
+
+    private static int segment(TrafficAggregator aggregator, long from, long to) {
+        int edge = aggregator.segment(from, to);
+        assertTrue(edge >= 0, "segment " + from + " -> " + to);
+        return edge;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean(), "condition not met within 5 s");
+    }
+}